@@ -0,0 +1,229 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.bench;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.arakhne.afc.vmutil.locale.Locale;
+import org.janusproject.kernel.bench.api.BenchResult;
+import org.janusproject.kernel.bench.api.BenchResultSet;
+import org.janusproject.kernel.bench.api.BenchStatistics;
+
+/** Compare two sets of bench results and flag the significant regressions.
+ * <p>
+ * A run is a regression when its mean test duration is greater in the candidate
+ * set than in the baseline set by more than the given threshold, and when the
+ * difference is significant at 95% according to the Welch's t-test.
+ * A run with less than two measurements in one of the sets cannot be tested,
+ * and it is reported as unchanged.
+ * <p>
+ * Usage: <code>BenchDiff &lt;baseline&gt; &lt;candidate&gt; [threshold]</code>,
+ * where the result sets are the directories created by {@link Benchs} or
+ * result files, and the threshold is a percentage (5 by default).
+ * The exit code is <code>1</code> if at least one regression was found,
+ * so that the comparison may be used as a gate.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class BenchDiff {
+
+	/** Default threshold in percent under which a difference is ignored.
+	 */
+	public static final double DEFAULT_THRESHOLD = 5.;
+
+	private int regressions = 0;
+	private int improvements = 0;
+	private int unchanged = 0;
+	private int missings = 0;
+	private int news = 0;
+	private final List<String> report = new ArrayList<String>();
+
+	/**
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length<2 || args.length>3) {
+			System.err.println(Locale.getString("USAGE")); //$NON-NLS-1$
+			System.exit(2);
+			return;
+		}
+		File baselineFile = new File(args[0]);
+		File candidateFile = new File(args[1]);
+		double threshold = (args.length>2) ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+
+		System.out.println(Locale.getString("COMPARING", //$NON-NLS-1$
+				baselineFile.getAbsolutePath(), candidateFile.getAbsolutePath(), format(threshold)));
+
+		BenchDiff diff = new BenchDiff();
+		for(String line : diff.compare(BenchResultSet.read(baselineFile), BenchResultSet.read(candidateFile), threshold)) {
+			System.out.println(line);
+		}
+
+		System.exit(diff.getRegressionCount()>0 ? 1 : 0);
+	}
+
+	/** Create a comparator of result sets.
+	 */
+	public BenchDiff() {
+		//
+	}
+
+	/** Replies the number of regressions found by the last comparison.
+	 * 
+	 * @return the number of regressions.
+	 */
+	public int getRegressionCount() {
+		return this.regressions;
+	}
+
+	/** Replies the number of improvements found by the last comparison.
+	 * 
+	 * @return the number of improvements.
+	 */
+	public int getImprovementCount() {
+		return this.improvements;
+	}
+
+	/** Replies the number of runs without significant difference
+	 * found by the last comparison.
+	 * 
+	 * @return the number of unchanged runs.
+	 */
+	public int getUnchangedCount() {
+		return this.unchanged;
+	}
+
+	/** Replies the number of runs of the baseline which are not in
+	 * the candidate, found by the last comparison.
+	 * 
+	 * @return the number of missing runs.
+	 */
+	public int getMissingCount() {
+		return this.missings;
+	}
+
+	/** Replies the number of runs of the candidate which are not in
+	 * the baseline, found by the last comparison.
+	 * 
+	 * @return the number of new runs.
+	 */
+	public int getNewCount() {
+		return this.news;
+	}
+
+	/** Replies the report of the last comparison.
+	 * 
+	 * @return the lines of the report.
+	 */
+	public List<String> getReport() {
+		return Collections.unmodifiableList(this.report);
+	}
+
+	/** Compare the given result sets.
+	 * 
+	 * @param baseline is the reference result set.
+	 * @param candidate is the result set to compare to the reference.
+	 * @param threshold is the percentage under which a difference is ignored.
+	 * @return the lines of the report of the differences.
+	 * @see #getReport()
+	 */
+	public List<String> compare(BenchResultSet baseline, BenchResultSet candidate, double threshold) {
+		this.regressions = this.improvements = this.unchanged = this.missings = this.news = 0;
+		this.report.clear();
+
+		// Environment
+		Set<String> names = new TreeSet<String>(baseline.getEnvironment().toMap().keySet());
+		names.addAll(candidate.getEnvironment().toMap().keySet());
+		for(String name : names) {
+			String v1 = baseline.getEnvironment().get(name);
+			String v2 = candidate.getEnvironment().get(name);
+			if (v1==null ? v2!=null : !v1.equals(v2)) {
+				this.report.add(Locale.getString("ENVIRONMENT_CHANGE", //$NON-NLS-1$
+						name, v1, v2));
+			}
+		}
+
+		// Results
+		for(BenchResult result : baseline.getResults()) {
+			BenchResult other = candidate.getResult(result.getKey());
+			if (other==null) {
+				++this.missings;
+				this.report.add(Locale.getString("MISSING", result.getKey())); //$NON-NLS-1$
+			}
+			else {
+				compare(result, other, threshold);
+			}
+		}
+		for(BenchResult result : candidate.getResults()) {
+			if (baseline.getResult(result.getKey())==null) {
+				++this.news;
+				this.report.add(Locale.getString("NEW", result.getKey())); //$NON-NLS-1$
+			}
+		}
+
+		this.report.add(Locale.getString("SUMMARY", //$NON-NLS-1$
+				this.regressions, this.improvements, this.unchanged, this.missings, this.news));
+		return getReport();
+	}
+
+	private void compare(BenchResult baseline, BenchResult candidate, double threshold) {
+		BenchStatistics s1 = baseline.getStatistics();
+		BenchStatistics s2 = candidate.getStatistics();
+		double change = (s2.getMean() - s1.getMean()) / s1.getMean() * 100.;
+		String status;
+		if (!Double.isNaN(change) && !Double.isInfinite(change)
+			&& Math.abs(change)>threshold && s1.isSignificantlyDifferent(s2)) {
+			if (change>0) {
+				++this.regressions;
+				status = "REGRESSION"; //$NON-NLS-1$
+			}
+			else {
+				++this.improvements;
+				status = "IMPROVEMENT"; //$NON-NLS-1$
+			}
+		}
+		else {
+			++this.unchanged;
+			status = "UNCHANGED"; //$NON-NLS-1$
+		}
+		this.report.add(Locale.getString("RESULT", //$NON-NLS-1$
+				Locale.getString(status),
+				baseline.getKey(),
+				format(s1.getMean()), format(s1.getConfidenceInterval()),
+				format(s2.getMean()), format(s2.getConfidenceInterval()),
+				format(change)));
+	}
+
+	private static String format(double v) {
+		return String.format(java.util.Locale.ENGLISH, "%.2f", v); //$NON-NLS-1$
+	}
+
+}
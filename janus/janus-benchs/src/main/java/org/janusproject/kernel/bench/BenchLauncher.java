@@ -24,6 +24,8 @@ import java.io.File;
 import java.lang.reflect.Constructor;
 
 import org.janusproject.kernel.bench.api.Bench;
+import org.janusproject.kernel.bench.api.BenchEnvironment;
+import org.janusproject.kernel.bench.api.BenchResultStore;
 
 /** Run the benchs.
  * 
@@ -45,13 +47,23 @@ public class BenchLauncher {
 		float progression = Float.parseFloat(args[1]);
 		float progressionWindow = Float.parseFloat(args[2]);
 		float progressionPerClass = progressionWindow / (args.length - 3);
+		BenchEnvironment environment = BenchEnvironment.current();
 		for(int i=3; i<args.length; ++i) {
 			Class<?> type = Class.forName(args[i]);
 			if (Bench.class.isAssignableFrom(type)) {
 				Class<? extends Bench<?>> benchType = (Class<? extends Bench<?>>)type; 
 				Constructor<? extends Bench<?>> cons = benchType.getConstructor(File.class);
 				Bench<?> bench = cons.newInstance(output);
-				bench.runBenchs(progression, progressionPerClass);
+				BenchResultStore store = new BenchResultStore(
+						new File(output, type.getSimpleName()+BenchResultStore.EXTENSION),
+						environment);
+				try {
+					bench.setResultStore(store);
+					bench.runBenchs(progression, progressionPerClass);
+				}
+				finally {
+					store.close();
+				}
 				bench = null;
 				for(int j=0; j<6; ++j) {
 					System.gc();
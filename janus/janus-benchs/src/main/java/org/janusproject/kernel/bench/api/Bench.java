@@ -60,6 +60,8 @@ public abstract class Bench<R extends BenchRun> {
 	
 	private final OperatingSystemMXBean osBean;
 	
+	private BenchResultStore resultStore = null;
+	
 	/**
 	 */
 	protected Bench() {
@@ -118,6 +120,24 @@ public abstract class Bench<R extends BenchRun> {
 		this.currentRun = run;
 	}
 	
+	/** Replies the store in which the results of the runs are written.
+	 * 
+	 * @return the store, or <code>null</code>.
+	 * @since 1.1
+	 */
+	public BenchResultStore getResultStore() {
+		return this.resultStore;
+	}
+	
+	/** Set the store in which the results of the runs are written.
+	 * 
+	 * @param store is the store, or <code>null</code>.
+	 * @since 1.1
+	 */
+	public void setResultStore(BenchResultStore store) {
+		this.resultStore = store;
+	}
+	
 	/** Set the number of tests to run for each benchmark.
 	 * Each benchmark function is invoked the number of times
 	 * given by the parameter. This enable us to obtain
@@ -360,6 +380,9 @@ public abstract class Bench<R extends BenchRun> {
 								(long)testAverage,
 								stdDev);
 					}
+					if (this.resultStore!=null) {
+						this.resultStore.record(getClass().getName(), groupName, run, measurements);
+					}
 					if (nbRuns>1) {
 						tearDownMultiRunBench(nbRuns, run);
 					}
@@ -0,0 +1,119 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.bench.api;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.janusproject.kernel.configuration.JanusProperty;
+
+/** Description of the environment in which the benchs were run.
+ * <p>
+ * The environment contains the description of the JVM, of the
+ * operating system, and the Janus properties which were explicitly
+ * set in the system properties.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class BenchEnvironment {
+
+	private static final String[] SYSTEM_PROPERTIES = new String[] {
+		"java.version", //$NON-NLS-1$
+		"java.vendor", //$NON-NLS-1$
+		"java.vm.name", //$NON-NLS-1$
+		"java.vm.version", //$NON-NLS-1$
+		"os.name", //$NON-NLS-1$
+		"os.arch", //$NON-NLS-1$
+		"os.version", //$NON-NLS-1$
+	};
+
+	/** Name of the entry for the number of processors.
+	 */
+	public static final String PROCESSORS = "processors"; //$NON-NLS-1$
+
+	/** Name of the entry for the maximal amount of memory.
+	 */
+	public static final String MAX_MEMORY = "maxMemory"; //$NON-NLS-1$
+
+	private final SortedMap<String,String> values = new TreeMap<String,String>();
+
+	/** Create an empty environment.
+	 */
+	public BenchEnvironment() {
+		//
+	}
+
+	/** Replies the environment of the current JVM.
+	 * 
+	 * @return the current environment.
+	 */
+	public static BenchEnvironment current() {
+		BenchEnvironment env = new BenchEnvironment();
+		for(String name : SYSTEM_PROPERTIES) {
+			env.set(name, System.getProperty(name));
+		}
+		Runtime runtime = Runtime.getRuntime();
+		env.set(PROCESSORS, Integer.toString(runtime.availableProcessors()));
+		env.set(MAX_MEMORY, Long.toString(runtime.maxMemory()));
+		for(JanusProperty property : JanusProperty.values()) {
+			env.set(property.getPropertyName(), System.getProperty(property.getPropertyName()));
+		}
+		return env;
+	}
+
+	/** Set an entry of the environment.
+	 * 
+	 * @param name
+	 * @param value is the value of the entry; <code>null</code> to remove it.
+	 */
+	public void set(String name, String value) {
+		if (value==null) {
+			this.values.remove(name);
+		}
+		else {
+			this.values.put(name, value);
+		}
+	}
+
+	/** Replies an entry of the environment.
+	 * 
+	 * @param name
+	 * @return the value of the entry, or <code>null</code>.
+	 */
+	public String get(String name) {
+		return this.values.get(name);
+	}
+
+	/** Replies the entries of the environment sorted by name.
+	 * 
+	 * @return the entries.
+	 */
+	public Map<String,String> toMap() {
+		return Collections.unmodifiableMap(this.values);
+	}
+
+}
@@ -0,0 +1,99 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.bench.api;
+
+/** Result of a bench run which is stored in a {@link BenchResultStore}.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class BenchResult {
+
+	private final String bench;
+	private final String group;
+	private final String run;
+	private final BenchStatistics statistics;
+
+	/**
+	 * @param bench is the name of the bench class.
+	 * @param group is the name of the group of benchs.
+	 * @param run is the name of the run.
+	 * @param statistics are the statistics on the test durations of the run, in nanoseconds.
+	 */
+	public BenchResult(String bench, String group, String run, BenchStatistics statistics) {
+		this.bench = bench;
+		this.group = group;
+		this.run = run;
+		this.statistics = statistics;
+	}
+
+	/** Replies the key which is identifying the same run in different result sets.
+	 * 
+	 * @return the key of the result.
+	 */
+	public String getKey() {
+		return this.bench+"#"+this.group+"#"+this.run; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/** Replies the name of the bench class.
+	 * 
+	 * @return the name of the bench.
+	 */
+	public String getBench() {
+		return this.bench;
+	}
+
+	/** Replies the name of the group of benchs.
+	 * 
+	 * @return the name of the group.
+	 */
+	public String getGroup() {
+		return this.group;
+	}
+
+	/** Replies the name of the run.
+	 * 
+	 * @return the name of the run.
+	 */
+	public String getRun() {
+		return this.run;
+	}
+
+	/** Replies the statistics on the test durations of the run, in nanoseconds.
+	 * 
+	 * @return the statistics.
+	 */
+	public BenchStatistics getStatistics() {
+		return this.statistics;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return getKey();
+	}
+
+}
@@ -0,0 +1,190 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.bench.api;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Set of bench results read from the files written by {@link BenchResultStore}.
+ * <p>
+ * When the same run appears several times in the set,
+ * its measurements are merged.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class BenchResultSet {
+
+	private final BenchEnvironment environment = new BenchEnvironment();
+	private final Map<String,BenchResult> results = new LinkedHashMap<String,BenchResult>();
+
+	/** Create an empty set.
+	 */
+	public BenchResultSet() {
+		//
+	}
+
+	/** Read a result set.
+	 * 
+	 * @param file is a result file, or a directory which contains result files.
+	 * @return the result set.
+	 * @throws IOException
+	 */
+	public static BenchResultSet read(File file) throws IOException {
+		BenchResultSet set = new BenchResultSet();
+		if (file.isDirectory()) {
+			File[] files = file.listFiles(new ResultFileFilter());
+			if (files!=null) {
+				Arrays.sort(files);
+				for(File f : files) {
+					set.load(f);
+				}
+			}
+		}
+		else {
+			set.load(file);
+		}
+		return set;
+	}
+
+	/** Add the results of the given file in this set.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	public void load(File file) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = reader.readLine())!=null) {
+				if (line.startsWith(BenchResultStore.ENVIRONMENT_PREFIX)) {
+					String[] columns = split(line.substring(BenchResultStore.ENVIRONMENT_PREFIX.length()));
+					if (columns.length>=2) {
+						this.environment.set(columns[0], columns[1]);
+					}
+				}
+				else if (line.length()>0 && !line.startsWith(BenchResultStore.HEADER_PREFIX)) {
+					String[] columns = split(line);
+					if (columns.length>=4) {
+						add(columns[0], columns[1], columns[2], parseSamples(columns[columns.length-1]));
+					}
+				}
+			}
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	private static String[] split(String line) {
+		return line.split(Character.toString(BenchResultStore.COLUMN_SEPARATOR), -1);
+	}
+
+	private static long[] parseSamples(String column) throws IOException {
+		if (column.length()==0) return new long[0];
+		String[] values = column.split(Character.toString(BenchResultStore.SAMPLE_SEPARATOR));
+		long[] samples = new long[values.length];
+		try {
+			for(int i=0; i<values.length; ++i) {
+				samples[i] = Long.parseLong(values[i].trim());
+			}
+		}
+		catch(NumberFormatException e) {
+			throw new IOException(e.toString());
+		}
+		return samples;
+	}
+
+	private void add(String bench, String group, String run, long[] samples) {
+		BenchResult result = new BenchResult(bench, group, run, new BenchStatistics(samples));
+		BenchResult old = this.results.get(result.getKey());
+		if (old!=null) {
+			long[] s1 = old.getStatistics().getSamples();
+			long[] merged = Arrays.copyOf(s1, s1.length+samples.length);
+			System.arraycopy(samples, 0, merged, s1.length, samples.length);
+			result = new BenchResult(bench, group, run, new BenchStatistics(merged));
+		}
+		this.results.put(result.getKey(), result);
+	}
+
+	/** Replies the environment of the benchs.
+	 * 
+	 * @return the environment.
+	 */
+	public BenchEnvironment getEnvironment() {
+		return this.environment;
+	}
+
+	/** Replies the result with the given key.
+	 * 
+	 * @param key
+	 * @return the result, or <code>null</code>.
+	 * @see BenchResult#getKey()
+	 */
+	public BenchResult getResult(String key) {
+		return this.results.get(key);
+	}
+
+	/** Replies the results.
+	 * 
+	 * @return the results.
+	 */
+	public Collection<BenchResult> getResults() {
+		return Collections.unmodifiableCollection(this.results.values());
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class ResultFileFilter implements FileFilter {
+
+		/**
+		 */
+		public ResultFileFilter() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean accept(File pathname) {
+			return pathname.isFile() && pathname.getName().endsWith(BenchResultStore.EXTENSION);
+		}
+
+	}
+
+}
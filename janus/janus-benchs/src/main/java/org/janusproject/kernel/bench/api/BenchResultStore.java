@@ -0,0 +1,147 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.bench.api;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Map.Entry;
+
+/** Store of the results of the benchs.
+ * <p>
+ * The results are written in a text file as soon as each run
+ * is terminated, so that the results of a bench suite which
+ * has crashed are not lost. The file starts with the description
+ * of the environment, then each line contains the results of a run:
+ * the bench class, the group, the run, the statistics on the test
+ * durations, and the measured test durations. The columns are separated
+ * by tabulations.
+ * <p>
+ * The result files are read with {@link BenchResultSet#read(File)}.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class BenchResultStore {
+
+	/** Extension of the result files.
+	 */
+	public static final String EXTENSION = ".results"; //$NON-NLS-1$
+
+	/** Version of the format of the result files.
+	 */
+	public static final int FORMAT_VERSION = 1;
+
+	/** Prefix of the header line.
+	 */
+	static final String HEADER_PREFIX = "#"; //$NON-NLS-1$
+
+	/** Prefix of the environment lines.
+	 */
+	static final String ENVIRONMENT_PREFIX = "@"; //$NON-NLS-1$
+
+	/** Separator of columns.
+	 */
+	static final char COLUMN_SEPARATOR = '\t';
+
+	/** Separator of the measurements.
+	 */
+	static final char SAMPLE_SEPARATOR = ',';
+
+	private BufferedWriter writer;
+
+	/**
+	 * @param file is the file in which the results must be written.
+	 * @param environment is the environment of the benchs.
+	 * @throws IOException
+	 */
+	public BenchResultStore(File file, BenchEnvironment environment) throws IOException {
+		this.writer = new BufferedWriter(new FileWriter(file));
+		this.writer.write(HEADER_PREFIX);
+		write(
+				"Bench", "Group", "Run", "Count", "Mean (ns)", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+				"Standard Deviation", "Confidence Interval 95%", //$NON-NLS-1$ //$NON-NLS-2$
+				"Min", "P50", "P90", "P99", "Max", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+				"Measurements (ns)", //$NON-NLS-1$
+				Integer.toString(FORMAT_VERSION));
+		for(Entry<String,String> entry : environment.toMap().entrySet()) {
+			this.writer.write(ENVIRONMENT_PREFIX);
+			write(entry.getKey(), entry.getValue());
+		}
+		this.writer.flush();
+	}
+
+	/** Close the store.
+	 * 
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		if (this.writer!=null) {
+			this.writer.close();
+			this.writer = null;
+		}
+	}
+
+	/** Write the results of a run.
+	 * 
+	 * @param bench is the name of the bench class.
+	 * @param group is the name of the group of benchs.
+	 * @param run is the terminated run.
+	 * @param measurements are the average test durations of each execution of the run, in nanoseconds.
+	 * @throws IOException
+	 */
+	public void record(String bench, String group, BenchRun run, long[] measurements) throws IOException {
+		assert(this.writer!=null);
+		BenchStatistics stats = new BenchStatistics(measurements);
+		StringBuilder samples = new StringBuilder();
+		for(int i=0; i<measurements.length; ++i) {
+			if (i>0) samples.append(SAMPLE_SEPARATOR);
+			samples.append(measurements[i]);
+		}
+		write(
+				bench, group, run.toString(),
+				Integer.toString(stats.getCount()),
+				Double.toString(stats.getMean()),
+				Double.toString(stats.getStandardDeviation()),
+				Double.toString(stats.getConfidenceInterval()),
+				Long.toString(stats.getMin()),
+				Long.toString(stats.getMedian()),
+				Long.toString(stats.getPercentile(90)),
+				Long.toString(stats.getPercentile(99)),
+				Long.toString(stats.getMax()),
+				samples.toString());
+		this.writer.flush();
+	}
+
+	private void write(String... columns) throws IOException {
+		for(int i=0; i<columns.length; ++i) {
+			if (i>0) this.writer.write(COLUMN_SEPARATOR);
+			if (columns[i]!=null)
+				this.writer.write(columns[i].replaceAll("[\t\r\n]", " ")); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		this.writer.write("\n"); //$NON-NLS-1$
+	}
+
+}
@@ -0,0 +1,195 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.bench.api;
+
+import java.util.Arrays;
+
+/** Statistics on the measurements of a bench run.
+ * <p>
+ * The confidence interval is computed at 95% with the
+ * Student's t-distribution.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class BenchStatistics {
+
+	/** Two-sided 95% quantiles of the Student's t-distribution
+	 * for 1 to 30 degrees of freedom.
+	 */
+	private static final double[] STUDENT_95 = new double[] {
+		12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+		2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+		2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042,
+	};
+
+	/** Quantile of the normal distribution used when the
+	 * degree of freedom is greater than 30.
+	 */
+	private static final double NORMAL_95 = 1.960;
+
+	private final long[] samples;
+	private final double mean;
+	private final double standardDeviation;
+
+	/**
+	 * @param samples are the measurements.
+	 */
+	public BenchStatistics(long... samples) {
+		this.samples = Arrays.copyOf(samples, samples.length);
+		Arrays.sort(this.samples);
+		double sum = 0.;
+		for(long x : this.samples) {
+			sum += x;
+		}
+		this.mean = (this.samples.length>0) ? sum / this.samples.length : Double.NaN;
+		double var = 0.;
+		if (this.samples.length>1) {
+			for(long x : this.samples) {
+				var += (x-this.mean)*(x-this.mean);
+			}
+			var /= (this.samples.length - 1);
+		}
+		this.standardDeviation = Math.sqrt(var);
+	}
+
+	/** Replies the number of measurements.
+	 * 
+	 * @return the number of measurements.
+	 */
+	public int getCount() {
+		return this.samples.length;
+	}
+
+	/** Replies the measurements in ascending order.
+	 * 
+	 * @return the measurements.
+	 */
+	public long[] getSamples() {
+		return Arrays.copyOf(this.samples, this.samples.length);
+	}
+
+	/** Replies the mean of the measurements.
+	 * 
+	 * @return the mean, or {@link Double#NaN} if there is no measurement.
+	 */
+	public double getMean() {
+		return this.mean;
+	}
+
+	/** Replies the sample standard deviation of the measurements.
+	 * 
+	 * @return the standard deviation.
+	 */
+	public double getStandardDeviation() {
+		return this.standardDeviation;
+	}
+
+	/** Replies the smallest measurement.
+	 * 
+	 * @return the minimum, or <code>0</code> if there is no measurement.
+	 */
+	public long getMin() {
+		return (this.samples.length>0) ? this.samples[0] : 0;
+	}
+
+	/** Replies the largest measurement.
+	 * 
+	 * @return the maximum, or <code>0</code> if there is no measurement.
+	 */
+	public long getMax() {
+		return (this.samples.length>0) ? this.samples[this.samples.length-1] : 0;
+	}
+
+	/** Replies the percentile of the measurements with the nearest-rank method.
+	 * 
+	 * @param percentage is the percentage in <code>[0;100]</code>.
+	 * @return the percentile, or <code>0</code> if there is no measurement.
+	 */
+	public long getPercentile(double percentage) {
+		if (this.samples.length==0) return 0;
+		int rank = (int)Math.ceil(percentage / 100. * this.samples.length);
+		if (rank<1) rank = 1;
+		if (rank>this.samples.length) rank = this.samples.length;
+		return this.samples[rank-1];
+	}
+
+	/** Replies the median of the measurements.
+	 * 
+	 * @return the median.
+	 */
+	public long getMedian() {
+		return getPercentile(50);
+	}
+
+	/** Replies the standard error of the mean.
+	 * 
+	 * @return the standard error.
+	 */
+	public double getStandardError() {
+		if (this.samples.length==0) return Double.NaN;
+		return this.standardDeviation / Math.sqrt(this.samples.length);
+	}
+
+	/** Replies the half-width of the 95% confidence interval of the mean.
+	 * 
+	 * @return the half-width of the confidence interval, or
+	 * {@link Double#NaN} if there is less than two measurements.
+	 */
+	public double getConfidenceInterval() {
+		if (this.samples.length==0) return Double.NaN;
+		return student95(this.samples.length-1) * getStandardError();
+	}
+
+	/** Replies if the mean of the given statistics is significantly different
+	 * from the mean of this statistics at 95%, according to the Welch's t-test.
+	 * <p>
+	 * The test is inconclusive, and this function replies <code>false</code>,
+	 * when one of the statistics has less than two measurements, because
+	 * its variance is unknown.
+	 * 
+	 * @param other
+	 * @return <code>true</code> if the means are significantly different,
+	 * otherwise <code>false</code>.
+	 */
+	public boolean isSignificantlyDifferent(BenchStatistics other) {
+		if (getCount()<2 || other.getCount()<2) return false;
+		double v1 = getStandardError() * getStandardError();
+		double v2 = other.getStandardError() * other.getStandardError();
+		double se = Math.sqrt(v1 + v2);
+		double diff = Math.abs(getMean() - other.getMean());
+		if (se==0.) return diff>0.;
+		// Welch-Satterthwaite degree of freedom
+		double df = (v1+v2)*(v1+v2) / (v1*v1/(getCount()-1) + v2*v2/(other.getCount()-1));
+		return diff / se > student95(df);
+	}
+
+	private static double student95(double degreeOfFreedom) {
+		if (degreeOfFreedom<1) return Double.POSITIVE_INFINITY;
+		int df = (int)Math.floor(degreeOfFreedom);
+		if (df>STUDENT_95.length) return NORMAL_95;
+		return STUDENT_95[df-1];
+	}
+
+}
@@ -0,0 +1,127 @@
+/*
+ * $Id$
+ *
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.bench;
+
+import java.io.File;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.janusproject.kernel.bench.api.BenchEnvironment;
+import org.janusproject.kernel.bench.api.BenchResultSet;
+import org.janusproject.kernel.bench.api.BenchResultStore;
+import org.janusproject.kernel.bench.api.BenchRun;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see BenchDiff
+ */
+public class BenchDiffTest extends TestCase {
+
+	private File baselineFile;
+	private File candidateFile;
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		this.baselineFile = File.createTempFile("baseline", BenchResultStore.EXTENSION); //$NON-NLS-1$
+		this.candidateFile = File.createTempFile("candidate", BenchResultStore.EXTENSION); //$NON-NLS-1$
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		this.baselineFile.delete();
+		this.candidateFile.delete();
+		this.baselineFile = this.candidateFile = null;
+		super.tearDown();
+	}
+
+	private static BenchResultSet write(File file, String processors, Object... runs) throws Exception {
+		BenchEnvironment environment = new BenchEnvironment();
+		environment.set(BenchEnvironment.PROCESSORS, processors);
+		BenchResultStore store = new BenchResultStore(file, environment);
+		try {
+			for(int i=0; i<runs.length; i+=2) {
+				store.record("Bench", "group", new BenchRun((String)runs[i]), (long[])runs[i+1]); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		finally {
+			store.close();
+		}
+		return BenchResultSet.read(file);
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testCompare() throws Exception {
+		BenchResultSet baseline = write(this.baselineFile, "4", //$NON-NLS-1$
+				"slower", new long[] {100, 101, 99, 100, 102}, //$NON-NLS-1$
+				"faster", new long[] {200, 201, 199, 200, 202}, //$NON-NLS-1$
+				"noisy", new long[] {100, 150, 50, 120, 80}, //$NON-NLS-1$
+				"small", new long[] {1000, 1001, 999, 1000, 1002}, //$NON-NLS-1$
+				"removed", new long[] {10}); //$NON-NLS-1$
+		BenchResultSet candidate = write(this.candidateFile, "8", //$NON-NLS-1$
+				"slower", new long[] {200, 201, 199, 200, 202}, //$NON-NLS-1$
+				"faster", new long[] {100, 101, 99, 100, 102}, //$NON-NLS-1$
+				"noisy", new long[] {105, 140, 60, 110, 90}, //$NON-NLS-1$
+				"small", new long[] {1020, 1021, 1019, 1020, 1022}, //$NON-NLS-1$
+				"added", new long[] {10}); //$NON-NLS-1$
+
+		BenchDiff diff = new BenchDiff();
+		List<String> report = diff.compare(baseline, candidate, BenchDiff.DEFAULT_THRESHOLD);
+		assertEquals(1, diff.getRegressionCount());
+		assertEquals(1, diff.getImprovementCount());
+		// The noisy run is not significant, and the small run is under the threshold
+		assertEquals(2, diff.getUnchangedCount());
+		assertEquals(1, diff.getMissingCount());
+		assertEquals(1, diff.getNewCount());
+
+		assertEquals(report, diff.getReport());
+		// Environment change, 4 results, missing, new and summary
+		assertEquals(8, report.size());
+		assertTrue(report.get(0).contains(BenchEnvironment.PROCESSORS));
+		assertTrue(report.get(1).startsWith("REGRESSION\tBench#group#slower")); //$NON-NLS-1$
+		assertTrue(report.get(2).startsWith("IMPROVEMENT\tBench#group#faster")); //$NON-NLS-1$
+		assertTrue(report.get(3).startsWith("UNCHANGED\tBench#group#noisy")); //$NON-NLS-1$
+		assertTrue(report.get(4).startsWith("UNCHANGED\tBench#group#small")); //$NON-NLS-1$
+		assertEquals("MISSING\tBench#group#removed", report.get(5)); //$NON-NLS-1$
+		assertEquals("NEW\tBench#group#added", report.get(6)); //$NON-NLS-1$
+		assertTrue(report.get(7).startsWith("1 regression(s), 1 improvement(s)")); //$NON-NLS-1$
+
+		// The counts are reset by each comparison
+		diff.compare(baseline, baseline, 1.);
+		assertEquals(0, diff.getRegressionCount());
+		assertEquals(5, diff.getUnchangedCount());
+		// 5 results and summary
+		assertEquals(6, diff.getReport().size());
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * $Id$
+ *
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.bench.api;
+
+import java.io.File;
+import java.io.FileWriter;
+
+import junit.framework.TestCase;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see BenchResultSet
+ */
+public class BenchResultSetTest extends TestCase {
+
+	private File directory;
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		this.directory = File.createTempFile("benchresults", ""); //$NON-NLS-1$ //$NON-NLS-2$
+		this.directory.delete();
+		this.directory.mkdirs();
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		File[] files = this.directory.listFiles();
+		if (files!=null) {
+			for(File file : files) {
+				file.delete();
+			}
+		}
+		this.directory.delete();
+		this.directory = null;
+		super.tearDown();
+	}
+
+	private File write(String name, String run, long... measurements) throws Exception {
+		BenchEnvironment environment = new BenchEnvironment();
+		environment.set(BenchEnvironment.PROCESSORS, "4"); //$NON-NLS-1$
+		File file = new File(this.directory, name+BenchResultStore.EXTENSION);
+		BenchResultStore store = new BenchResultStore(file, environment);
+		try {
+			store.record("Bench", "group", new BenchRun(run), measurements); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		finally {
+			store.close();
+		}
+		return file;
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testReadFile() throws Exception {
+		File file = write("a", "run1", 30, 10, 20); //$NON-NLS-1$ //$NON-NLS-2$
+		BenchResultSet set = BenchResultSet.read(file);
+		assertEquals("4", set.getEnvironment().get(BenchEnvironment.PROCESSORS)); //$NON-NLS-1$
+		assertEquals(1, set.getResults().size());
+		BenchResult result = set.getResult("Bench#group#run1"); //$NON-NLS-1$
+		assertNotNull(result);
+		assertEquals("Bench", result.getBench()); //$NON-NLS-1$
+		assertEquals("group", result.getGroup()); //$NON-NLS-1$
+		assertEquals("run1", result.getRun()); //$NON-NLS-1$
+		BenchStatistics stats = result.getStatistics();
+		assertEquals(3, stats.getCount());
+		assertEquals(20., stats.getMean(), 1e-9);
+		assertEquals(10, stats.getMin());
+		assertEquals(30, stats.getMax());
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testReadDirectory() throws Exception {
+		write("a", "run1", 10, 20); //$NON-NLS-1$ //$NON-NLS-2$
+		write("b", "run1", 30); //$NON-NLS-1$ //$NON-NLS-2$
+		write("c", "run2", 5); //$NON-NLS-1$ //$NON-NLS-2$
+		// Not a result file
+		FileWriter writer = new FileWriter(new File(this.directory, "notes.txt")); //$NON-NLS-1$
+		writer.write("Bench\tgroup\trun3\t1\n"); //$NON-NLS-1$
+		writer.close();
+
+		BenchResultSet set = BenchResultSet.read(this.directory);
+		assertEquals(2, set.getResults().size());
+		// The measurements of the same run are merged
+		BenchStatistics stats = set.getResult("Bench#group#run1").getStatistics(); //$NON-NLS-1$
+		assertEquals(3, stats.getCount());
+		assertEquals(20., stats.getMean(), 1e-9);
+		assertEquals(1, set.getResult("Bench#group#run2").getStatistics().getCount()); //$NON-NLS-1$
+		assertNull(set.getResult("Bench#group#run3")); //$NON-NLS-1$
+	}
+
+}
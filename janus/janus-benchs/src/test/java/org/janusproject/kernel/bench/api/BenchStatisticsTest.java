@@ -0,0 +1,114 @@
+/*
+ * $Id$
+ *
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.bench.api;
+
+import junit.framework.TestCase;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see BenchStatistics
+ */
+public class BenchStatisticsTest extends TestCase {
+
+	/**
+	 */
+	public void testStatistics() {
+		BenchStatistics stats = new BenchStatistics(7, 2, 9, 4, 1, 10, 3, 8, 6, 5);
+		assertEquals(10, stats.getCount());
+		assertEquals(5.5, stats.getMean(), 1e-9);
+		assertEquals(3.02765, stats.getStandardDeviation(), 1e-5);
+		assertEquals(1, stats.getMin());
+		assertEquals(10, stats.getMax());
+		assertEquals(0.95743, stats.getStandardError(), 1e-5);
+		assertEquals(2.16570, stats.getConfidenceInterval(), 1e-5);
+		long[] samples = stats.getSamples();
+		for(int i=0; i<samples.length; ++i) {
+			assertEquals(i+1, samples[i]);
+		}
+	}
+
+	/**
+	 */
+	public void testPercentile() {
+		BenchStatistics stats = new BenchStatistics(7, 2, 9, 4, 1, 10, 3, 8, 6, 5);
+		assertEquals(1, stats.getPercentile(0));
+		assertEquals(1, stats.getPercentile(10));
+		assertEquals(5, stats.getMedian());
+		assertEquals(9, stats.getPercentile(90));
+		assertEquals(10, stats.getPercentile(99));
+		assertEquals(10, stats.getPercentile(100));
+
+		stats = new BenchStatistics(42);
+		assertEquals(42, stats.getMedian());
+		assertEquals(42, stats.getPercentile(99));
+	}
+
+	/**
+	 */
+	public void testEmpty() {
+		BenchStatistics stats = new BenchStatistics();
+		assertEquals(0, stats.getCount());
+		assertTrue(Double.isNaN(stats.getMean()));
+		assertEquals(0, stats.getMin());
+		assertEquals(0, stats.getMax());
+		assertEquals(0, stats.getMedian());
+		assertTrue(Double.isNaN(stats.getConfidenceInterval()));
+		assertFalse(stats.isSignificantlyDifferent(new BenchStatistics(1, 2, 3)));
+	}
+
+	/**
+	 */
+	public void testIsSignificantlyDifferent() {
+		BenchStatistics s1 = new BenchStatistics(100, 101, 99, 100, 102);
+		BenchStatistics s2 = new BenchStatistics(200, 201, 199, 200, 202);
+		assertTrue(s1.isSignificantlyDifferent(s2));
+		assertTrue(s2.isSignificantlyDifferent(s1));
+		assertFalse(s1.isSignificantlyDifferent(new BenchStatistics(100, 101, 99, 100, 102)));
+
+		// The difference of the means is small compared to the noise
+		BenchStatistics noisy1 = new BenchStatistics(100, 150, 50, 120, 80);
+		BenchStatistics noisy2 = new BenchStatistics(105, 140, 60, 110, 90);
+		assertFalse(noisy1.isSignificantlyDifferent(noisy2));
+	}
+
+	/**
+	 */
+	public void testIsSignificantlyDifferent_noVariance() {
+		BenchStatistics s1 = new BenchStatistics(5, 5, 5);
+		assertTrue(s1.isSignificantlyDifferent(new BenchStatistics(6, 6, 6)));
+		assertFalse(s1.isSignificantlyDifferent(new BenchStatistics(5, 5)));
+	}
+
+	/**
+	 */
+	public void testIsSignificantlyDifferent_singleMeasurement() {
+		BenchStatistics s1 = new BenchStatistics(100, 101, 99, 100, 102);
+		BenchStatistics single = new BenchStatistics(1000);
+		assertFalse(s1.isSignificantlyDifferent(single));
+		assertFalse(single.isSignificantlyDifferent(s1));
+		assertFalse(single.isSignificantlyDifferent(new BenchStatistics(1)));
+		assertFalse(new BenchStatistics(5, 5, 5).isSignificantlyDifferent(new BenchStatistics(6)));
+	}
+
+}
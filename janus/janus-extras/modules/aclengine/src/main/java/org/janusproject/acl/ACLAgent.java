@@ -20,10 +20,14 @@
  */
 package org.janusproject.acl;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.janusproject.acl.encoding.PayloadEncoding;
@@ -64,6 +68,13 @@ public class ACLAgent extends Agent {
 	 */
 	private ACLRepresentation aclRepresentation;
 
+	/**
+	 * The decoded ACL Messages which were not consumed by the last call
+	 * to {@link #consumeACLMessages(ACLMessageConsumer)}, so that they are
+	 * not decoded again.
+	 */
+	private transient Map<ACLTransportMessage,ACLMessage> unconsumedMessages = null;
+
 	/**
 	 * Creates a new ACL Agent with default payload encoding (UTF8) and default acl representation (string).
 	 */
@@ -107,6 +118,26 @@ public class ACLAgent extends Agent {
 		return sendMessage(transportMessage, agents);
 	}
 
+	/**
+	 * Sends the specified <code>ACL Message</code> to all the given agents.
+	 * <p>
+	 * The message is encoded once for all the receivers.
+	 * This function force the emitter of the message to be this agent.
+	 * </p>
+	 * 
+	 * @param message is the ACL Message to send
+	 * @param agents is the collection of receivers.
+	 * @since 1.1
+	 */
+	public final void broadcastACLMessage(ACLMessage message, Collection<? extends AgentAddress> agents) {
+
+		initACLMessage(message);
+		ACLTransportMessage transportMessage = getAclMessageHandler().prepareOutgoingACLMessage(
+				message, agents.toArray(new AgentAddress[agents.size()]));
+
+		broadcastMessage(transportMessage, agents);
+	}
+
 	/**
 	 * Replies the first available ACL Message in the agent mail box and remove it from the mailbox.
 	 * 
@@ -342,6 +373,55 @@ public class ACLAgent extends Agent {
 		return resultList.iterator();
 	}
 
+	/**
+	 * Gives all the ACL Messages in the agent mailbox to the given consumer,
+	 * and removes the consumed messages from the mailbox.
+	 * <p>
+	 * The mailbox is traversed once, and each message is decoded once:
+	 * the messages which are not consumed are not decoded again by the
+	 * next calls to this function.
+	 * This method is essentially used by the protocols which are
+	 * managing many conversations at the same time.
+	 * 
+	 * @param consumer is the consumer of the messages.
+	 * @return the number of consumed messages.
+	 * @since 1.1
+	 */
+	public final int consumeACLMessages(ACLMessageConsumer consumer) {
+		List<ACLTransportMessage> consumed = null;
+		Map<ACLTransportMessage,ACLMessage> decoded = this.unconsumedMessages;
+		Map<ACLTransportMessage,ACLMessage> unconsumed = null;
+		for(ACLTransportMessage msg : peekMessages(ACLTransportMessage.class)) {
+			ACLMessage aMsg = (decoded == null) ? null : decoded.get( msg );
+			if (aMsg == null) {
+				aMsg = getAclMessageFromTransportMessage( msg ) ;
+			}
+			if( aMsg != null ) {
+				if( consumer.consume(aMsg) ) {
+					if (consumed == null) {
+						consumed = new ArrayList<ACLTransportMessage>();
+					}
+					consumed.add(msg);
+				}
+				else {
+					if (unconsumed == null) {
+						unconsumed = new IdentityHashMap<ACLTransportMessage,ACLMessage>();
+					}
+					unconsumed.put(msg, aMsg);
+				}
+			}
+		}
+		// Only the messages which are still in the mailbox are kept.
+		this.unconsumedMessages = unconsumed;
+		if (consumed == null) {
+			return 0;
+		}
+		for(ACLTransportMessage msg : consumed) {
+			getMailbox().remove( msg );
+		}
+		return consumed.size();
+	}
+
 	/** 
 	 * Indicates if the agent mailbox contains at least one ACL Message or not.
 	 * 
@@ -0,0 +1,46 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.acl;
+
+/**
+ * A consumer of the ACL Messages of an agent.
+ * 
+ * @see ACLAgent#consumeACLMessages(ACLMessageConsumer)
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $Groupid$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public interface ACLMessageConsumer {
+
+	/**
+	 * Invoked for each ACL Message in the mailbox of the agent.
+	 * 
+	 * @param message is the ACL Message.
+	 * @return <code>true</code> if the message was consumed and must be
+	 * removed from the mailbox, <code>false</code> to let the message
+	 * in the mailbox.
+	 */
+	public boolean consume(ACLMessage message);
+
+}
@@ -88,6 +88,11 @@ public abstract class AbstractFipaProtocol {
 	 * Started time is used to check if timeout is reached or not.
 	 */
 	private long startedTime = 0;
+
+	/**
+	 * Conversation manager which is indexing this protocol.
+	 */
+	private FipaConversationManager conversationManager = null;
 	
 	/**
 	 * Logger
@@ -140,7 +145,7 @@ public abstract class AbstractFipaProtocol {
 				this.logger.log(Level.WARNING, Locale.getString("AbstractFipaProtocol.1")); //$NON-NLS-1$
 			}
 		}
-		this.conversationId = generateConversationId();
+		setConversationId(generateConversationId());
 	}
 	
 	/**
@@ -161,7 +166,7 @@ public abstract class AbstractFipaProtocol {
 				this.logger.log(Level.WARNING, Locale.getString("AbstractFipaProtocol.3")); //$NON-NLS-1$
 			}
 		}
-		this.conversationId = generateConversationId();
+		setConversationId(generateConversationId());
 	}
 	
 	/**
@@ -231,7 +236,11 @@ public abstract class AbstractFipaProtocol {
 	 * @param conversationId
 	 */
 	public void setConversationId(UUID conversationId) {
+		UUID old = this.conversationId;
 		this.conversationId = conversationId;
+		if (this.conversationManager!=null) {
+			this.conversationManager.conversationIdChanged(this, old);
+		}
 	}
 
 	/**
@@ -331,7 +340,27 @@ public abstract class AbstractFipaProtocol {
 	 * @param state
 	 */
 	public void setState(ProtocolState state) {
+		ProtocolState old = this.state;
 		this.state = state;
+		if (this.conversationManager!=null && old!=state) {
+			this.conversationManager.stateChanged(this, old);
+		}
+	}
+
+	/**
+	 * Gets the conversation manager which is indexing this protocol.
+	 * @return the conversation manager, or <code>null</code>.
+	 */
+	final FipaConversationManager getConversationManager() {
+		return this.conversationManager;
+	}
+
+	/**
+	 * Sets the conversation manager which is indexing this protocol.
+	 * @param manager
+	 */
+	final void setConversationManager(FipaConversationManager manager) {
+		this.conversationManager = manager;
 	}
 	
 	/**
@@ -21,7 +21,17 @@
 package org.janusproject.acl.protocol;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -54,6 +64,22 @@ import org.janusproject.acl.protocol.request.RequestProtocolState;
  * <dt>Initiation of the protocol on the Participant side :</dt>
  * <dl><code>protocol.initiateAsParticipant();</code></dl>
  * </ul>
+ * <p>
+ * The conversations are indexed by conversation id, by protocol type
+ * and by state. The indexes are updated by the protocols each time their
+ * state or their conversation id is changed.
+ * <p>
+ * The finished conversations are automatically removed after
+ * {@link #getFinishedRetention()} milliseconds. By default, the conversations
+ * which are not finished are never removed automatically, because a
+ * conversation may legitimately wait for its participants longer than
+ * expected; an idle timeout may be set with {@link #setIdleTimeout(long)}
+ * so that the conversations which have not changed of state during this
+ * duration are considered as timed out and removed. The dates of expiry
+ * are stored in a timer queue which is checked each time the manager is used.
+ * <p>
+ * The collections of conversations which are replied by this manager
+ * are copies, which may be traversed while the conversations are changed.
  * 
  * @see EnumFipaProtocol
  * @see AbstractFipaProtocol
@@ -69,8 +95,43 @@ import org.janusproject.acl.protocol.request.RequestProtocolState;
  * @mavenartifactid $ArtifactId$
  */
 public class FipaConversationManager {	
+
+	/**
+	 * Default duration during which the finished conversations
+	 * are kept, in milliseconds.
+	 * @since 1.1
+	 */
+	public static final long DEFAULT_FINISHED_RETENTION = 10000;
+
+	/**
+	 * Default duration after which a conversation without
+	 * state change is removed, in milliseconds. The default
+	 * value is zero: the conversations which are not finished
+	 * are never removed automatically.
+	 * @since 1.1
+	 */
+	public static final long DEFAULT_IDLE_TIMEOUT = 0;
+
+	private static final Set<ProtocolState> FINAL_STATES = new HashSet<ProtocolState>();
+
+	static {
+		FINAL_STATES.add(RequestProtocolState.DONE);
+		FINAL_STATES.add(RequestProtocolState.CANCELED);
+		FINAL_STATES.add(ContractNetProtocolState.DONE);
+		FINAL_STATES.add(ContractNetProtocolState.CANCELED);
+		FINAL_STATES.add(ProposeProtocolState.DONE);
+		FINAL_STATES.add(ProposeProtocolState.CANCELED);
+		FINAL_STATES.add(QueryProtocolState.DONE);
+		FINAL_STATES.add(QueryProtocolState.CANCELED);
+	}
 	
-	private ArrayList<AbstractFipaProtocol> conversations;
+	private final Map<AbstractFipaProtocol,Conversation> conversations = new LinkedHashMap<AbstractFipaProtocol,Conversation>();
+	private final Map<UUID,AbstractFipaProtocol> conversationsById = new HashMap<UUID,AbstractFipaProtocol>();
+	private final Map<EnumFipaProtocol,Set<AbstractFipaProtocol>> conversationsByType = new EnumMap<EnumFipaProtocol,Set<AbstractFipaProtocol>>(EnumFipaProtocol.class);
+	private final Map<ProtocolState,Set<AbstractFipaProtocol>> conversationsByState = new HashMap<ProtocolState,Set<AbstractFipaProtocol>>();
+	private final PriorityQueue<Expiry> expiries = new PriorityQueue<Expiry>(11, new ExpiryComparator());
+	private long finishedRetention = DEFAULT_FINISHED_RETENTION;
+	private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
 	private ACLAgent agent;
 	
 	private Logger logger;
@@ -80,7 +141,6 @@ public class FipaConversationManager {
 	 */
 	public FipaConversationManager(final ACLAgent agent) {
 		this.agent = agent;
-		this.conversations = new ArrayList<AbstractFipaProtocol>();
 		this.logger = Logger.getLogger(this.getClass().getName());
 	}
 	
@@ -91,32 +151,33 @@ public class FipaConversationManager {
 	 * @return the protocol created
 	 */
 	public AbstractFipaProtocol createProtocol(EnumFipaProtocol protocolType) {	
+		expireConversations();
 		AbstractFipaProtocol protocol;
 		if (EnumFipaProtocol.FIPA_REQUEST == protocolType) {
 			protocol = new FipaRequestProtocol(this.agent);
 			protocol.setState(RequestProtocolState.NOT_STARTED);
 			protocol.setRefAclAgent(this.agent);
-			this.conversations.add(protocol);
+			addConversation(protocol, protocolType);
 			return protocol;
 		}
 		else if (EnumFipaProtocol.FIPA_CONTRACT_NET == protocolType) {
 			protocol = new FipaContractNetProtocol(this.agent);
 			protocol.setState(ContractNetProtocolState.NOT_STARTED);
 			protocol.setRefAclAgent(this.agent);
-			this.conversations.add(protocol);
+			addConversation(protocol, protocolType);
 			return protocol;
 		} else if (EnumFipaProtocol.FIPA_PROPOSE == protocolType) {
 			protocol = new FipaProposeProtocol(this.agent);
 			protocol.setState(ProposeProtocolState.NOT_STARTED);
 			protocol.setRefAclAgent(this.agent);
-			this.conversations.add(protocol);
+			addConversation(protocol, protocolType);
 			return protocol;
 		}
 		else if (EnumFipaProtocol.FIPA_QUERY == protocolType) {
 			protocol = new FipaQueryProtocol(this.agent);
 			protocol.setState(QueryProtocolState.NOT_STARTED);
 			protocol.setRefAclAgent(this.agent);
-			this.conversations.add(protocol);
+			addConversation(protocol, protocolType);
 			return protocol;
 		}
 		else {
@@ -160,11 +221,43 @@ public class FipaConversationManager {
 	 * @return the protocol with the specified conversationId
 	 */
 	public AbstractFipaProtocol getConversation(UUID conversationId) {
-		for (AbstractFipaProtocol protocol : this.conversations) {
-			if (protocol.getConversationId().compareTo(conversationId) == 0)
-				return protocol;
-		}
-		return null;		
+		expireConversations();
+		return this.conversationsById.get(conversationId);
+	}
+
+	/**
+	 * Gets the current conversations based on the given protocol type.
+	 * 
+	 * @param protocolType
+	 * @return the conversations.
+	 * @since 1.1
+	 */
+	public Collection<AbstractFipaProtocol> getConversations(EnumFipaProtocol protocolType) {
+		expireConversations();
+		return copy(this.conversationsByType.get(protocolType));
+	}
+
+	/**
+	 * Gets the current conversations in the given state.
+	 * 
+	 * @param state
+	 * @return the conversations.
+	 * @since 1.1
+	 */
+	public Collection<AbstractFipaProtocol> getConversations(ProtocolState state) {
+		expireConversations();
+		return copy(this.conversationsByState.get(state));
+	}
+
+	/**
+	 * Gets the number of current conversations.
+	 * 
+	 * @return the number of conversations.
+	 * @since 1.1
+	 */
+	public int getConversationCount() {
+		expireConversations();
+		return this.conversations.size();
 	}
 	
 	/** 
@@ -186,31 +279,319 @@ public class FipaConversationManager {
 	 * @param state
 	 */
 	public void removeConversations(ProtocolState state) {
-		Iterator<AbstractFipaProtocol> i = this.conversations.iterator();
-		
-		while (i.hasNext()) {
-			AbstractFipaProtocol conv = i.next();
-			if (conv.getState() == state) {
-				i.remove();
+		Set<AbstractFipaProtocol> protocols = this.conversationsByState.get(state);
+		if (protocols!=null) {
+			for(AbstractFipaProtocol protocol : new ArrayList<AbstractFipaProtocol>(protocols)) {
+				removeConversation(protocol);
 			}
 		}
+		expireConversations();
+	}
+
+	/**
+	 * Delete the given conversation.
+	 * 
+	 * @param protocol
+	 * @return <code>true</code> if the conversation was removed,
+	 * <code>false</code> if it is unknown.
+	 * @since 1.1
+	 */
+	public boolean removeConversation(AbstractFipaProtocol protocol) {
+		Conversation conversation = this.conversations.remove(protocol);
+		if (conversation==null) return false;
+		UUID id = protocol.getConversationId();
+		if (id!=null && this.conversationsById.get(id)==protocol) {
+			this.conversationsById.remove(id);
+		}
+		removeFromIndex(this.conversationsByType, conversation.type, protocol);
+		removeFromIndex(this.conversationsByState, protocol.getState(), protocol);
+		// The expiry which is still in the queue is ignored when reached
+		conversation.expiry = Long.MAX_VALUE;
+		protocol.setConversationManager(null);
+		return true;
 	}
 	
 	/**
 	 * Gets the list of current conversations.
-	 * @return the list of current conversations.
+	 * @return a copy of the list of current conversations.
 	 */
 	public ArrayList<AbstractFipaProtocol> getConversations() {
-		return this.conversations;
+		expireConversations();
+		return new ArrayList<AbstractFipaProtocol>(this.conversations.keySet());
 	}
 
 	/**
 	 * Sets the list of current conversations.
 	 * @param protocols - the list of current conversations.
 	 */
-	public void setConversations(ArrayList<AbstractFipaProtocol> protocols) {
-		this.conversations = protocols;
+	public void setConversations(Collection<? extends AbstractFipaProtocol> protocols) {
+		for(AbstractFipaProtocol protocol : new ArrayList<AbstractFipaProtocol>(this.conversations.keySet())) {
+			removeConversation(protocol);
+		}
+		this.expiries.clear();
+		for(AbstractFipaProtocol protocol : protocols) {
+			addConversation(protocol, getProtocolType(protocol));
+		}
+	}
+
+	/**
+	 * Gets the duration during which the finished conversations are kept.
+	 * 
+	 * @return the duration in milliseconds; zero or negative if the
+	 * finished conversations are never removed automatically.
+	 * @since 1.1
+	 */
+	public long getFinishedRetention() {
+		return this.finishedRetention;
+	}
+
+	/**
+	 * Sets the duration during which the next finished conversations are kept.
+	 * 
+	 * @param retention is the duration in milliseconds; zero or negative if the
+	 * finished conversations must never be removed automatically.
+	 * @since 1.1
+	 */
+	public void setFinishedRetention(long retention) {
+		this.finishedRetention = retention;
+	}
+
+	/**
+	 * Gets the duration after which a conversation without state change
+	 * is considered as timed out.
+	 * 
+	 * @return the duration in milliseconds; zero or negative if the
+	 * conversations never time out.
+	 * @since 1.1
+	 */
+	public long getIdleTimeout() {
+		return this.idleTimeout;
+	}
+
+	/**
+	 * Sets the duration after which a conversation without state change
+	 * is considered as timed out.
+	 * 
+	 * @param timeout is the duration in milliseconds; zero or negative if the
+	 * conversations must never time out.
+	 * @since 1.1
+	 */
+	public void setIdleTimeout(long timeout) {
+		this.idleTimeout = timeout;
+	}
+
+	/**
+	 * Removes the finished and the timed out conversations
+	 * which have reached their date of expiry.
+	 * 
+	 * @return the number of removed conversations.
+	 * @since 1.1
+	 */
+	public int expireConversations() {
+		int count = 0;
+		Expiry expiry = this.expiries.peek();
+		if (expiry!=null) {
+			long now = AbstractFipaProtocol.getCurrentTime();
+			while (expiry!=null && expiry.date<=now) {
+				this.expiries.poll();
+				// Ignore the obsolete expiries
+				if (expiry.conversation.expiry==expiry.date
+					&& removeConversation(expiry.conversation.protocol)) {
+					++count;
+				}
+				expiry = this.expiries.peek();
+			}
+		}
+		return count;
+	}
+
+	private void addConversation(AbstractFipaProtocol protocol, EnumFipaProtocol type) {
+		FipaConversationManager manager = protocol.getConversationManager();
+		if (manager!=null && manager!=this) {
+			manager.removeConversation(protocol);
+		}
+		Conversation conversation = new Conversation(protocol, type);
+		if (this.conversations.put(protocol, conversation)==null) {
+			protocol.setConversationManager(this);
+			UUID id = protocol.getConversationId();
+			if (id!=null) {
+				this.conversationsById.put(id, protocol);
+			}
+			addInIndex(this.conversationsByType, type, protocol);
+			addInIndex(this.conversationsByState, protocol.getState(), protocol);
+			scheduleExpiry(conversation);
+		}
+	}
+
+	/**
+	 * Invoked by the protocol when its state has changed.
+	 * 
+	 * @param protocol
+	 * @param oldState
+	 */
+	void stateChanged(AbstractFipaProtocol protocol, ProtocolState oldState) {
+		Conversation conversation = this.conversations.get(protocol);
+		if (conversation!=null) {
+			removeFromIndex(this.conversationsByState, oldState, protocol);
+			addInIndex(this.conversationsByState, protocol.getState(), protocol);
+			scheduleExpiry(conversation);
+		}
+	}
+
+	/**
+	 * Invoked by the protocol when its conversation id has changed.
+	 * 
+	 * @param protocol
+	 * @param oldId
+	 */
+	void conversationIdChanged(AbstractFipaProtocol protocol, UUID oldId) {
+		if (this.conversations.containsKey(protocol)) {
+			if (oldId!=null && this.conversationsById.get(oldId)==protocol) {
+				this.conversationsById.remove(oldId);
+			}
+			UUID id = protocol.getConversationId();
+			if (id!=null) {
+				this.conversationsById.put(id, protocol);
+			}
+		}
+	}
+
+	private void scheduleExpiry(Conversation conversation) {
+		long delay = FINAL_STATES.contains(conversation.protocol.getState())
+				? this.finishedRetention : this.idleTimeout;
+		if (delay>0) {
+			conversation.expiry = AbstractFipaProtocol.getCurrentTime() + delay;
+			this.expiries.add(new Expiry(conversation, conversation.expiry));
+		}
+		else {
+			conversation.expiry = Long.MAX_VALUE;
+		}
+	}
+
+	private static <K> void addInIndex(Map<K,Set<AbstractFipaProtocol>> index, K key, AbstractFipaProtocol protocol) {
+		if (key!=null) {
+			Set<AbstractFipaProtocol> protocols = index.get(key);
+			if (protocols==null) {
+				protocols = new LinkedHashSet<AbstractFipaProtocol>();
+				index.put(key, protocols);
+			}
+			protocols.add(protocol);
+		}
+	}
+
+	private static <K> void removeFromIndex(Map<K,Set<AbstractFipaProtocol>> index, K key, AbstractFipaProtocol protocol) {
+		if (key!=null) {
+			Set<AbstractFipaProtocol> protocols = index.get(key);
+			if (protocols!=null && protocols.remove(protocol) && protocols.isEmpty()) {
+				index.remove(key);
+			}
+		}
+	}
+
+	private static Collection<AbstractFipaProtocol> copy(Set<AbstractFipaProtocol> protocols) {
+		if (protocols==null) return Collections.emptyList();
+		return new ArrayList<AbstractFipaProtocol>(protocols);
+	}
+
+	private static EnumFipaProtocol getProtocolType(AbstractFipaProtocol protocol) {
+		if (protocol instanceof FipaRequestProtocol) return EnumFipaProtocol.FIPA_REQUEST;
+		if (protocol instanceof FipaContractNetProtocol) return EnumFipaProtocol.FIPA_CONTRACT_NET;
+		if (protocol instanceof FipaProposeProtocol) return EnumFipaProtocol.FIPA_PROPOSE;
+		if (protocol instanceof FipaQueryProtocol) return EnumFipaProtocol.FIPA_QUERY;
+		return null;
+	}
+
+	/**
+	 * Entry of the conversation table.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $Groupid$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class Conversation {
+
+		/** Protocol of the conversation.
+		 */
+		public final AbstractFipaProtocol protocol;
+
+		/** Type of the protocol.
+		 */
+		public final EnumFipaProtocol type;
+
+		/** Current date of expiry.
+		 */
+		public long expiry = Long.MAX_VALUE;
+
+		/**
+		 * @param protocol
+		 * @param type
+		 */
+		public Conversation(AbstractFipaProtocol protocol, EnumFipaProtocol type) {
+			this.protocol = protocol;
+			this.type = type;
+		}
+
+	}
+
+	/**
+	 * Date of expiry of a conversation.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $Groupid$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class Expiry {
+
+		/** Expiring conversation.
+		 */
+		public final Conversation conversation;
+
+		/** Date of expiry.
+		 */
+		public final long date;
+
+		/**
+		 * @param conversation
+		 * @param date
+		 */
+		public Expiry(Conversation conversation, long date) {
+			this.conversation = conversation;
+			this.date = date;
+		}
+
+	}
+
+	/**
+	 * Comparator of expiries.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $Groupid$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class ExpiryComparator implements Comparator<Expiry> {
+
+		/**
+		 */
+		public ExpiryComparator() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int compare(Expiry o1, Expiry o2) {
+			if (o1.date<o2.date) return -1;
+			if (o1.date>o2.date) return 1;
+			return 0;
+		}
+
 	}
-	
 	
 }
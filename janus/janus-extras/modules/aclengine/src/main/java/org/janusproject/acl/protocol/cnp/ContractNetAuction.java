@@ -0,0 +1,277 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.acl.protocol.cnp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.janusproject.acl.Performative;
+import org.janusproject.acl.protocol.ProtocolResult;
+import org.janusproject.kernel.address.AgentAddress;
+
+/**
+ * State of a Contract Net auction managed by a {@link ParallelContractNetInitiator}.
+ * <p>
+ * Only the best proposal is stored; the other proposals are
+ * forgotten as soon as they are scored.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $Groupid$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class ContractNetAuction {
+
+	private final UUID conversationId;
+	private final Object content;
+	private final int participantCount;
+	private final long proposalDeadline;
+	private final List<AgentAddress> proposers = new ArrayList<AgentAddress>();
+	private int answerCount = 0;
+	private ProtocolResult bestProposal = null;
+	private double bestScore = Double.NaN;
+	private ProtocolResult result = null;
+	private ContractNetProtocolState state;
+	private long deadline;
+	private boolean timedOut = false;
+
+	/**
+	 * @param conversationId is the identifier of the conversation.
+	 * @param content is the content of the call for proposal.
+	 * @param participantCount is the number of participants.
+	 * @param proposalDeadline is the date after which the proposals are no more accepted.
+	 */
+	ContractNetAuction(UUID conversationId, Object content, int participantCount, long proposalDeadline) {
+		this.conversationId = conversationId;
+		this.content = content;
+		this.participantCount = participantCount;
+		this.proposalDeadline = proposalDeadline;
+		this.deadline = proposalDeadline;
+		this.state = ContractNetProtocolState.WAITING_ALL_PROPOSALS;
+	}
+
+	/**
+	 * Replies the identifier of the conversation of this auction.
+	 * 
+	 * @return the conversation identifier.
+	 */
+	public UUID getConversationId() {
+		return this.conversationId;
+	}
+
+	/**
+	 * Replies the content of the call for proposal.
+	 * 
+	 * @return the content of the call for proposal.
+	 */
+	public Object getContent() {
+		return this.content;
+	}
+
+	/**
+	 * Replies the state of this auction.
+	 * 
+	 * @return the state of the auction.
+	 */
+	public ContractNetProtocolState getState() {
+		return this.state;
+	}
+
+	/**
+	 * Replies the number of participants which have received the call for proposal.
+	 * 
+	 * @return the number of participants.
+	 */
+	public int getParticipantCount() {
+		return this.participantCount;
+	}
+
+	/**
+	 * Replies the number of participants which have answered
+	 * to the call for proposal, by a proposal or by a refusal.
+	 * 
+	 * @return the number of answers.
+	 */
+	public int getAnswerCount() {
+		return this.answerCount;
+	}
+
+	/**
+	 * Replies the number of received proposals.
+	 * 
+	 * @return the number of proposals.
+	 */
+	public int getProposalCount() {
+		return this.proposers.size();
+	}
+
+	/**
+	 * Replies the agents which have sent a proposal.
+	 * 
+	 * @return the proposers.
+	 */
+	public List<AgentAddress> getProposers() {
+		return Collections.unmodifiableList(this.proposers);
+	}
+
+	/**
+	 * Replies the best acceptable proposal received until now.
+	 * 
+	 * @return the best proposal, or <code>null</code> if no acceptable proposal was received.
+	 */
+	public ProtocolResult getBestProposal() {
+		return this.bestProposal;
+	}
+
+	/**
+	 * Replies the score of the best acceptable proposal received until now.
+	 * 
+	 * @return the best score, or {@link Double#NaN} if no acceptable proposal was received.
+	 */
+	public double getBestScore() {
+		return this.bestScore;
+	}
+
+	/**
+	 * Replies the agent which has won this auction.
+	 * 
+	 * @return the winner, or <code>null</code> if the auction was not awarded.
+	 */
+	public AgentAddress getWinner() {
+		if (this.state==ContractNetProtocolState.WAITING_ALL_PROPOSALS
+			|| this.bestProposal==null) {
+			return null;
+		}
+		return this.bestProposal.getAuthor();
+	}
+
+	/**
+	 * Replies the result sent by the winner.
+	 * 
+	 * @return the result, or <code>null</code> if no result was received.
+	 */
+	public ProtocolResult getResult() {
+		return this.result;
+	}
+
+	/**
+	 * Replies if the auction was successfully terminated, ie.
+	 * the winner has informed the initiator of the result of its task.
+	 * 
+	 * @return <code>true</code> if the auction was successfully terminated,
+	 * otherwise <code>false</code>.
+	 */
+	public boolean isSuccessful() {
+		return this.state==ContractNetProtocolState.DONE
+			&& this.result!=null
+			&& this.result.getPerformative()==Performative.INFORM;
+	}
+
+	/**
+	 * Replies if a deadline of this auction has expired.
+	 * 
+	 * @return <code>true</code> if the auction has reached a timeout,
+	 * otherwise <code>false</code>.
+	 */
+	public boolean isTimedOut() {
+		return this.timedOut;
+	}
+
+	/**
+	 * Replies the date after which the proposals are no more accepted.
+	 * 
+	 * @return the date in milliseconds.
+	 */
+	public long getProposalDeadline() {
+		return this.proposalDeadline;
+	}
+
+	/**
+	 * Replies the date of the next deadline of this auction.
+	 * 
+	 * @return the date in milliseconds.
+	 */
+	long getDeadline() {
+		return this.deadline;
+	}
+
+	/**
+	 * Change the state of this auction.
+	 * 
+	 * @param state
+	 * @param deadline is the date of the next deadline.
+	 */
+	void setState(ContractNetProtocolState state, long deadline) {
+		this.state = state;
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Mark this auction as timed out.
+	 */
+	void setTimedOut() {
+		this.timedOut = true;
+	}
+
+	/**
+	 * Add a proposal in this auction.
+	 * 
+	 * @param proposal
+	 * @param score is the score of the proposal.
+	 */
+	void addProposal(ProtocolResult proposal, double score) {
+		++this.answerCount;
+		this.proposers.add(proposal.getAuthor());
+		if (!Double.isNaN(score)
+			&& (this.bestProposal==null || score>this.bestScore)) {
+			this.bestProposal = proposal;
+			this.bestScore = score;
+		}
+	}
+
+	/**
+	 * Add a refusal in this auction.
+	 */
+	void addRefusal() {
+		++this.answerCount;
+	}
+
+	/**
+	 * Set the result sent by the winner.
+	 * 
+	 * @param result
+	 */
+	void setResult(ProtocolResult result) {
+		this.result = result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return this.conversationId.toString()+"["+this.state.name()+"]"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+}
@@ -0,0 +1,48 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.acl.protocol.cnp;
+
+/**
+ * Decides if a Contract Net auction may be awarded before
+ * all the participants have answered.
+ * <p>
+ * The cut-off is evaluated each time a proposal is received.
+ * 
+ * @see ParallelContractNetInitiator
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $Groupid$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public interface ContractNetCutoff {
+
+	/**
+	 * Replies if the given auction may be awarded now.
+	 * 
+	 * @param auction is the auction to test.
+	 * @return <code>true</code> if the auction may be awarded without
+	 * waiting for the other proposals, otherwise <code>false</code>.
+	 */
+	public boolean isSatisfied(ContractNetAuction auction);
+
+}
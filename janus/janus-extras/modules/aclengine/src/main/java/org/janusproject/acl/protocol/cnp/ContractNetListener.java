@@ -0,0 +1,51 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.acl.protocol.cnp;
+
+import java.util.EventListener;
+
+/**
+ * Listener on the Contract Net auctions of a {@link ParallelContractNetInitiator}.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $Groupid$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public interface ContractNetListener extends EventListener {
+
+	/**
+	 * Invoked when the winner of an auction was selected
+	 * and the answers were sent to the proposers.
+	 * 
+	 * @param auction is the awarded auction.
+	 */
+	public void auctionAwarded(ContractNetAuction auction);
+
+	/**
+	 * Invoked when an auction is terminated, successfully or not.
+	 * 
+	 * @param auction is the terminated auction.
+	 */
+	public void auctionDone(ContractNetAuction auction);
+
+}
@@ -0,0 +1,449 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.acl.protocol.cnp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+import org.janusproject.acl.ACLAgent;
+import org.janusproject.acl.ACLMessage;
+import org.janusproject.acl.ACLMessageConsumer;
+import org.janusproject.acl.Performative;
+import org.janusproject.acl.protocol.AbstractFipaProtocol;
+import org.janusproject.acl.protocol.EnumFipaProtocol;
+import org.janusproject.acl.protocol.ProtocolResult;
+import org.janusproject.kernel.address.AgentAddress;
+
+/**
+ * Initiator of many Contract Net auctions at the same time.
+ * <p>
+ * Contrary to {@link FipaContractNetProtocol}, which is managing one
+ * conversation, this initiator is managing all the auctions of an agent.
+ * The mailbox of the agent is traversed once per call to {@link #process()},
+ * and each message is dispatched to its auction according to its
+ * conversation identifier.
+ * <p>
+ * The proposals are scored by a {@link ProposalScorer} as soon as they
+ * are received, and only the best one is kept. An auction is awarded
+ * when all the participants have answered, when the {@link ContractNetCutoff}
+ * is satisfied, or when its deadline has expired. The deadlines of all the
+ * auctions are stored in a heap, so that only the expired ones are
+ * visited by {@link #process()}.
+ * <p>
+ * The answers of the participants which are received for an unknown
+ * auction, or for an auction which is terminated since the end of its
+ * proposal phase, are consumed: the proposals are rejected and the
+ * other answers are discarded. Consequently, the Contract Net auctions
+ * initiated by an agent must all be managed by the same initiator.
+ * <p>
+ * This initiator is not thread-safe; it must be used by the thread
+ * which is running the behaviour of the agent.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $Groupid$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class ParallelContractNetInitiator implements ACLMessageConsumer {
+
+	/** Default duration of each phase of an auction, in milliseconds.
+	 */
+	public static final long DEFAULT_TIMEOUT = 10000;
+
+	private static final String EMPTY_CONTENT = ""; //$NON-NLS-1$
+
+	private final ACLAgent agent;
+	private final ProposalScorer scorer;
+	private final ContractNetCutoff cutoff;
+	private final Map<UUID,ContractNetAuction> auctions = new HashMap<UUID,ContractNetAuction>();
+	private final PriorityQueue<Deadline> deadlines = new PriorityQueue<Deadline>(11, new DeadlineComparator());
+	private final List<ContractNetListener> listeners = new ArrayList<ContractNetListener>();
+	private long timeout = DEFAULT_TIMEOUT;
+	private int openAuctionCount = 0;
+
+	/**
+	 * @param agent is the agent which is initiating the auctions.
+	 * @param scorer is the evaluator of the proposals.
+	 */
+	public ParallelContractNetInitiator(ACLAgent agent, ProposalScorer scorer) {
+		this(agent, scorer, null);
+	}
+
+	/**
+	 * @param agent is the agent which is initiating the auctions.
+	 * @param scorer is the evaluator of the proposals.
+	 * @param cutoff permits to award an auction before all the participants
+	 * have answered; may be <code>null</code>.
+	 */
+	public ParallelContractNetInitiator(ACLAgent agent, ProposalScorer scorer, ContractNetCutoff cutoff) {
+		assert(agent!=null);
+		assert(scorer!=null);
+		this.agent = agent;
+		this.scorer = scorer;
+		this.cutoff = cutoff;
+	}
+
+	/**
+	 * Replies the duration of each phase of the auctions.
+	 * 
+	 * @return the duration in milliseconds.
+	 */
+	public long getTimeout() {
+		return this.timeout;
+	}
+
+	/**
+	 * Set the duration of each phase of the next auctions.
+	 * 
+	 * @param timeout is the duration in milliseconds.
+	 */
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Add a listener on the auctions.
+	 * 
+	 * @param listener
+	 */
+	public void addContractNetListener(ContractNetListener listener) {
+		this.listeners.add(listener);
+	}
+
+	/**
+	 * Remove a listener on the auctions.
+	 * 
+	 * @param listener
+	 */
+	public void removeContractNetListener(ContractNetListener listener) {
+		this.listeners.remove(listener);
+	}
+
+	/**
+	 * Replies the number of auctions which are not terminated.
+	 * 
+	 * @return the number of running auctions.
+	 */
+	public int getOpenAuctionCount() {
+		return this.openAuctionCount;
+	}
+
+	/**
+	 * Replies the auction for the given conversation.
+	 * 
+	 * @param conversationId
+	 * @return the auction, or <code>null</code> if the conversation is unknown
+	 * or terminated since a while.
+	 */
+	public ContractNetAuction getAuction(UUID conversationId) {
+		return this.auctions.get(conversationId);
+	}
+
+	/**
+	 * Start a new auction by sending a call for proposal to the given participants.
+	 * 
+	 * @param content is the content of the call for proposal.
+	 * @param participants are the agents which are invited to the auction.
+	 * @return the new auction.
+	 */
+	public ContractNetAuction callForProposal(Object content, Collection<? extends AgentAddress> participants) {
+		UUID conversationId = UUID.randomUUID();
+		long deadline = AbstractFipaProtocol.getCurrentTime() + this.timeout;
+		ContractNetAuction auction = new ContractNetAuction(conversationId, content, participants.size(), deadline);
+		this.auctions.put(conversationId, auction);
+		++this.openAuctionCount;
+		this.deadlines.add(new Deadline(auction, deadline));
+
+		this.agent.broadcastACLMessage(
+				createMessage(conversationId, content, Performative.CFP),
+				participants);
+
+		if (participants.isEmpty()) {
+			award(auction);
+		}
+		return auction;
+	}
+
+	/**
+	 * Cancel the given auction.
+	 * <p>
+	 * The proposers are rejected if the auction was not awarded;
+	 * the winner receives a cancelation if it was awarded.
+	 * 
+	 * @param auction
+	 */
+	public void cancel(ContractNetAuction auction) {
+		switch(auction.getState()) {
+		case WAITING_ALL_PROPOSALS:
+			for(AgentAddress proposer : auction.getProposers()) {
+				send(auction, EMPTY_CONTENT, Performative.REJECT_PROPOSAL, proposer);
+			}
+			terminate(auction, ContractNetProtocolState.CANCELED);
+			break;
+		case WAITING_ALL_RESULTS:
+			send(auction, auction.getContent(), Performative.CANCEL, auction.getWinner());
+			terminate(auction, ContractNetProtocolState.CANCELED);
+			break;
+		default:
+		}
+	}
+
+	/**
+	 * Consume the Contract Net messages of the agent and
+	 * update the auctions according to the expired deadlines.
+	 * <p>
+	 * This function is supposed to be invoked in the <code>live()</code>
+	 * function of the agent.
+	 * 
+	 * @return the number of consumed messages.
+	 */
+	public int process() {
+		int count = this.agent.consumeACLMessages(this);
+		long now = AbstractFipaProtocol.getCurrentTime();
+		Deadline deadline = this.deadlines.peek();
+		while (deadline!=null && deadline.date<=now) {
+			this.deadlines.poll();
+			expire(deadline.auction, deadline.date);
+			deadline = this.deadlines.peek();
+		}
+		return count;
+	}
+
+	private void expire(ContractNetAuction auction, long date) {
+		if (auction.getDeadline()!=date) {
+			// Obsolete deadline
+			return;
+		}
+		switch(auction.getState()) {
+		case WAITING_ALL_PROPOSALS:
+			auction.setTimedOut();
+			award(auction);
+			break;
+		case WAITING_ALL_RESULTS:
+			auction.setTimedOut();
+			terminate(auction, ContractNetProtocolState.DONE);
+			break;
+		default:
+			// The auction is terminated and no more late proposal may be received.
+			this.auctions.remove(auction.getConversationId());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean consume(ACLMessage message) {
+		if (message.getProtocol()!=EnumFipaProtocol.FIPA_CONTRACT_NET) return false;
+		Performative performative = message.getPerformative();
+		AgentAddress sender = message.getSender();
+		ContractNetAuction auction = this.auctions.get(message.getConversationId());
+		if (auction==null) {
+			return consumeUnknown(message.getConversationId(), performative, sender);
+		}
+
+		ContractNetProtocolState state = auction.getState();
+
+		switch(performative) {
+		case PROPOSE:
+			if (state==ContractNetProtocolState.WAITING_ALL_PROPOSALS) {
+				ProtocolResult proposal = new ProtocolResult(sender, performative, getContent(message));
+				auction.addProposal(proposal, this.scorer.score(proposal));
+				if (auction.getAnswerCount()>=auction.getParticipantCount()
+					|| (this.cutoff!=null && this.cutoff.isSatisfied(auction))) {
+					award(auction);
+				}
+			}
+			else {
+				// Late proposal
+				send(auction, EMPTY_CONTENT, Performative.REJECT_PROPOSAL, sender);
+			}
+			break;
+		case REFUSE:
+		case NOT_UNDERSTOOD:
+			if (state==ContractNetProtocolState.WAITING_ALL_PROPOSALS) {
+				auction.addRefusal();
+				if (auction.getAnswerCount()>=auction.getParticipantCount()) {
+					award(auction);
+				}
+			}
+			break;
+		case INFORM:
+		case FAILURE:
+			if (state==ContractNetProtocolState.WAITING_ALL_RESULTS
+				&& sender.equals(auction.getWinner())) {
+				auction.setResult(new ProtocolResult(sender, performative, getContent(message)));
+				terminate(auction, ContractNetProtocolState.DONE);
+			}
+			break;
+		default:
+		}
+		return true;
+	}
+
+	/** Consume the answer of a participant to an unknown auction,
+	 * or to an auction which was dropped.
+	 * 
+	 * @param conversationId
+	 * @param performative
+	 * @param sender
+	 * @return <code>true</code> if the message was consumed,
+	 * <code>false</code> if the message is not an answer to an initiator.
+	 */
+	private boolean consumeUnknown(UUID conversationId, Performative performative, AgentAddress sender) {
+		switch(performative) {
+		case PROPOSE:
+			this.agent.sendACLMessage(
+					createMessage(conversationId, EMPTY_CONTENT, Performative.REJECT_PROPOSAL),
+					sender);
+			return true;
+		case REFUSE:
+		case NOT_UNDERSTOOD:
+		case INFORM:
+		case FAILURE:
+			return true;
+		default:
+			// Message for a participant of an auction
+			return false;
+		}
+	}
+
+	private void award(ContractNetAuction auction) {
+		ProtocolResult best = auction.getBestProposal();
+		AgentAddress winner = (best==null) ? null : best.getAuthor();
+		for(AgentAddress proposer : auction.getProposers()) {
+			if (!proposer.equals(winner)) {
+				send(auction, EMPTY_CONTENT, Performative.REJECT_PROPOSAL, proposer);
+			}
+		}
+		if (winner==null) {
+			terminate(auction, ContractNetProtocolState.DONE);
+		}
+		else {
+			long deadline = AbstractFipaProtocol.getCurrentTime() + this.timeout;
+			auction.setState(ContractNetProtocolState.WAITING_ALL_RESULTS, deadline);
+			this.deadlines.add(new Deadline(auction, deadline));
+			send(auction, auction.getContent(), Performative.ACCEPT_PROPOSAL, winner);
+			for(ContractNetListener listener : new ArrayList<ContractNetListener>(this.listeners)) {
+				listener.auctionAwarded(auction);
+			}
+		}
+	}
+
+	private void terminate(ContractNetAuction auction, ContractNetProtocolState state) {
+		// The auction is kept until the end of the proposal phase
+		// to reject the late proposals. The deadline of this phase
+		// is still in the heap if it has not expired.
+		long deadline = auction.getProposalDeadline();
+		auction.setState(state, deadline);
+		--this.openAuctionCount;
+		if (deadline<=AbstractFipaProtocol.getCurrentTime()) {
+			this.auctions.remove(auction.getConversationId());
+		}
+		for(ContractNetListener listener : new ArrayList<ContractNetListener>(this.listeners)) {
+			listener.auctionDone(auction);
+		}
+	}
+
+	private void send(ContractNetAuction auction, Object content, Performative performative, AgentAddress receiver) {
+		this.agent.sendACLMessage(
+				createMessage(auction.getConversationId(), content, performative),
+				receiver);
+	}
+
+	private static ACLMessage createMessage(UUID conversationId, Object content, Performative performative) {
+		ACLMessage message = new ACLMessage(content, performative);
+		message.setProtocol(EnumFipaProtocol.FIPA_CONTRACT_NET);
+		message.setConversationId(conversationId);
+		return message;
+	}
+
+	private static Object getContent(ACLMessage message) {
+		return (message.getContent()==null) ? null : message.getContent().getContent();
+	}
+
+	/**
+	 * Deadline of an auction.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $Groupid$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class Deadline {
+
+		/** Auction.
+		 */
+		public final ContractNetAuction auction;
+
+		/** Date of the deadline.
+		 */
+		public final long date;
+
+		/**
+		 * @param auction
+		 * @param date
+		 */
+		public Deadline(ContractNetAuction auction, long date) {
+			this.auction = auction;
+			this.date = date;
+		}
+
+	}
+
+	/**
+	 * Comparator of deadlines.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $Groupid$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class DeadlineComparator implements Comparator<Deadline> {
+
+		/**
+		 */
+		public DeadlineComparator() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int compare(Deadline o1, Deadline o2) {
+			if (o1.date<o2.date) return -1;
+			if (o1.date>o2.date) return 1;
+			return 0;
+		}
+
+	}
+
+}
@@ -0,0 +1,51 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.acl.protocol.cnp;
+
+import org.janusproject.acl.protocol.ProtocolResult;
+
+/**
+ * Evaluates the proposals received during a Contract Net auction.
+ * <p>
+ * Each proposal is scored once, when it is received, so that the
+ * initiator does not need to keep all the proposals to select the best one.
+ * 
+ * @see ParallelContractNetInitiator
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $Groupid$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public interface ProposalScorer {
+
+	/**
+	 * Replies the score of the given proposal.
+	 * The greater the score is, the better the proposal is.
+	 * 
+	 * @param proposal is the received proposal.
+	 * @return the score of the proposal, or {@link Double#NaN} if the
+	 * proposal is not acceptable.
+	 */
+	public double score(ProtocolResult proposal);
+
+}
@@ -0,0 +1,62 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.acl.protocol.cnp;
+
+/**
+ * Cut-off which is awarding an auction as soon as a
+ * proposal has reached a given score.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $Groupid$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class ScoreThresholdCutoff implements ContractNetCutoff {
+
+	private final double threshold;
+
+	/**
+	 * @param threshold is the minimal score which is considered as good enough.
+	 */
+	public ScoreThresholdCutoff(double threshold) {
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Replies the minimal score which is considered as good enough.
+	 * 
+	 * @return the threshold.
+	 */
+	public double getThreshold() {
+		return this.threshold;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isSatisfied(ContractNetAuction auction) {
+		double score = auction.getBestScore();
+		return !Double.isNaN(score) && score>=this.threshold;
+	}
+
+}
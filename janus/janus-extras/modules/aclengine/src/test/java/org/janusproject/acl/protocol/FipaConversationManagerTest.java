@@ -0,0 +1,159 @@
+/*
+ * $Id$
+ *
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.acl.protocol;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.logging.Level;
+
+import junit.framework.TestCase;
+
+import org.janusproject.acl.ACLAgent;
+import org.janusproject.acl.protocol.cnp.ContractNetProtocolState;
+import org.janusproject.acl.protocol.query.QueryProtocolState;
+import org.janusproject.acl.protocol.request.RequestProtocolState;
+import org.janusproject.kernel.logger.LoggerUtil;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $Groupid$
+ * @mavenartifactid $ArtifactId$
+ * @see FipaConversationManager
+ */
+public class FipaConversationManagerTest extends TestCase {
+
+	private FipaConversationManager manager;
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		LoggerUtil.setGlobalLevel(Level.OFF);
+		this.manager = new FipaConversationManager(new ACLAgent());
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		this.manager = null;
+		super.tearDown();
+	}
+
+	/**
+	 */
+	public void testIndexes() {
+		AbstractFipaProtocol request = this.manager.createConversation(EnumFipaProtocol.FIPA_REQUEST, "request"); //$NON-NLS-1$
+		AbstractFipaProtocol cnp = this.manager.createConversation(EnumFipaProtocol.FIPA_CONTRACT_NET, "cnp"); //$NON-NLS-1$
+		assertEquals(2, this.manager.getConversationCount());
+
+		UUID id = UUID.randomUUID();
+		request.setConversationId(id);
+		assertSame(request, this.manager.getConversation(id));
+
+		Collection<AbstractFipaProtocol> protocols = this.manager.getConversations(EnumFipaProtocol.FIPA_CONTRACT_NET);
+		assertEquals(1, protocols.size());
+		assertTrue(protocols.contains(cnp));
+		assertTrue(this.manager.getConversations(EnumFipaProtocol.FIPA_QUERY).isEmpty());
+
+		protocols = this.manager.getConversations(RequestProtocolState.NOT_STARTED);
+		assertEquals(1, protocols.size());
+		assertTrue(protocols.contains(request));
+
+		request.setState(RequestProtocolState.WAITING_ANSWER);
+		assertTrue(this.manager.getConversations(RequestProtocolState.NOT_STARTED).isEmpty());
+		assertTrue(this.manager.getConversations(RequestProtocolState.WAITING_ANSWER).contains(request));
+
+		assertTrue(this.manager.removeConversation(request));
+		assertFalse(this.manager.removeConversation(request));
+		assertNull(this.manager.getConversation(id));
+		assertEquals(1, this.manager.getConversationCount());
+	}
+
+	/**
+	 */
+	public void testRemoveConversations() {
+		AbstractFipaProtocol cnp1 = this.manager.createConversation(EnumFipaProtocol.FIPA_CONTRACT_NET, "cnp1"); //$NON-NLS-1$
+		AbstractFipaProtocol cnp2 = this.manager.createConversation(EnumFipaProtocol.FIPA_CONTRACT_NET, "cnp2"); //$NON-NLS-1$
+		cnp1.setState(ContractNetProtocolState.DONE);
+		this.manager.removeConversations(ContractNetProtocolState.DONE);
+		assertEquals(1, this.manager.getConversationCount());
+		assertTrue(this.manager.getConversations().contains(cnp2));
+	}
+
+	/**
+	 */
+	public void testGetConversations_snapshot() {
+		for(int i=0; i<4; ++i) {
+			this.manager.createConversation(EnumFipaProtocol.FIPA_REQUEST, "request"+i); //$NON-NLS-1$
+		}
+		// The conversations are changed while the replied collections are traversed
+		for(AbstractFipaProtocol protocol : this.manager.getConversations()) {
+			this.manager.removeConversation(protocol);
+			this.manager.createConversation(EnumFipaProtocol.FIPA_QUERY, "query"); //$NON-NLS-1$
+		}
+		assertEquals(4, this.manager.getConversationCount());
+		for(AbstractFipaProtocol protocol : this.manager.getConversations(EnumFipaProtocol.FIPA_QUERY)) {
+			this.manager.createConversation(EnumFipaProtocol.FIPA_QUERY, "query"); //$NON-NLS-1$
+			this.manager.removeConversation(protocol);
+		}
+		assertEquals(4, this.manager.getConversations(EnumFipaProtocol.FIPA_QUERY).size());
+		for(AbstractFipaProtocol protocol : this.manager.getConversations(QueryProtocolState.NOT_STARTED)) {
+			protocol.setState(QueryProtocolState.DONE);
+		}
+		assertEquals(4, this.manager.getConversations(QueryProtocolState.DONE).size());
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testFinishedRetention() throws Exception {
+		this.manager.setFinishedRetention(50);
+		AbstractFipaProtocol cnp = this.manager.createConversation(EnumFipaProtocol.FIPA_CONTRACT_NET, "cnp"); //$NON-NLS-1$
+		cnp.setState(ContractNetProtocolState.DONE);
+		assertEquals(1, this.manager.getConversationCount());
+		Thread.sleep(200);
+		assertEquals(0, this.manager.getConversationCount());
+		assertNull(cnp.getConversationManager());
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testIdleTimeout() throws Exception {
+		// The conversations which are waiting are kept by default
+		assertTrue(this.manager.getIdleTimeout()<=0);
+		AbstractFipaProtocol waiting = this.manager.createConversation(EnumFipaProtocol.FIPA_REQUEST, "waiting"); //$NON-NLS-1$
+		waiting.setState(RequestProtocolState.WAITING_ANSWER);
+
+		this.manager.setIdleTimeout(50);
+		AbstractFipaProtocol idle = this.manager.createConversation(EnumFipaProtocol.FIPA_REQUEST, "idle"); //$NON-NLS-1$
+		Thread.sleep(200);
+		assertEquals(1, this.manager.getConversationCount());
+		assertTrue(this.manager.getConversations().contains(waiting));
+		assertNull(idle.getConversationManager());
+	}
+
+}
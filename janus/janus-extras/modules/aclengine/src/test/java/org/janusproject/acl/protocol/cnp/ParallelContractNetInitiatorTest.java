@@ -0,0 +1,312 @@
+/*
+ * $Id$
+ *
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.acl.protocol.cnp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+
+import junit.framework.TestCase;
+
+import org.janusproject.acl.ACLAgent;
+import org.janusproject.acl.ACLMessage;
+import org.janusproject.acl.ACLMessageConsumer;
+import org.janusproject.acl.Performative;
+import org.janusproject.acl.protocol.EnumFipaProtocol;
+import org.janusproject.acl.protocol.ProtocolResult;
+import org.janusproject.kernel.Kernel;
+import org.janusproject.kernel.address.AgentAddress;
+import org.janusproject.kernel.agent.Kernels;
+import org.janusproject.kernel.logger.LoggerUtil;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $Groupid$
+ * @mavenartifactid $ArtifactId$
+ * @see ParallelContractNetInitiator
+ */
+public class ParallelContractNetInitiatorTest extends TestCase {
+
+	private static final long WAITING_DELAY = 5000;
+
+	private ACLAgent initiatorAgent;
+	private List<ACLAgent> participants;
+	private List<AgentAddress> addresses;
+	private ParallelContractNetInitiator initiator;
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		LoggerUtil.setGlobalLevel(Level.OFF);
+		Kernel kernel = Kernels.create();
+		this.initiatorAgent = new ACLAgent();
+		kernel.launchLightAgent(this.initiatorAgent);
+		this.participants = new ArrayList<ACLAgent>();
+		this.addresses = new ArrayList<AgentAddress>();
+		for(int i=0; i<3; ++i) {
+			ACLAgent participant = new ACLAgent();
+			this.participants.add(participant);
+			this.addresses.add(kernel.launchLightAgent(participant));
+		}
+		this.initiator = new ParallelContractNetInitiator(this.initiatorAgent, new ScorerStub());
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		Kernels.killAll();
+		this.initiator = null;
+		this.initiatorAgent = null;
+		this.participants = null;
+		this.addresses = null;
+		super.tearDown();
+	}
+
+	/** Wait for the Contract Net messages of the given participant.
+	 *
+	 * @param participant
+	 * @param count is the number of expected messages.
+	 * @return the received messages.
+	 * @throws InterruptedException
+	 */
+	private static List<ACLMessage> receive(ACLAgent participant, int count) throws InterruptedException {
+		MessageCollector collector = new MessageCollector();
+		long end = System.currentTimeMillis() + WAITING_DELAY;
+		while (collector.messages.size()<count && System.currentTimeMillis()<end) {
+			participant.consumeACLMessages(collector);
+			Thread.sleep(10);
+		}
+		assertEquals(count, collector.messages.size());
+		return collector.messages;
+	}
+
+	private ACLMessage receive(int participant, Performative performative) throws InterruptedException {
+		ACLMessage message = receive(this.participants.get(participant), 1).get(0);
+		assertSame(performative, message.getPerformative());
+		return message;
+	}
+
+	private void answer(int participant, UUID conversationId, Performative performative, Object content) {
+		ACLMessage message = new ACLMessage(content, performative);
+		message.setProtocol(EnumFipaProtocol.FIPA_CONTRACT_NET);
+		message.setConversationId(conversationId);
+		this.participants.get(participant).sendACLMessage(message, this.initiatorAgent.getAddress());
+	}
+
+	/** Run the initiator until the given number of messages is consumed.
+	 *
+	 * @param count is the number of expected messages.
+	 * @throws InterruptedException
+	 */
+	private void process(int count) throws InterruptedException {
+		int consumed = 0;
+		long end = System.currentTimeMillis() + WAITING_DELAY;
+		while (consumed<count && System.currentTimeMillis()<end) {
+			consumed += this.initiator.process();
+			Thread.sleep(10);
+		}
+		assertEquals(count, consumed);
+	}
+
+	private ContractNetAuction callForProposal() throws InterruptedException {
+		ContractNetAuction auction = this.initiator.callForProposal("task", this.addresses); //$NON-NLS-1$
+		for(int i=0; i<this.participants.size(); ++i) {
+			ACLMessage cfp = receive(i, Performative.CFP);
+			assertEquals(auction.getConversationId(), cfp.getConversationId());
+		}
+		return auction;
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testAwardAllAnswers() throws Exception {
+		ContractNetAuction auction = callForProposal();
+		assertEquals(1, this.initiator.getOpenAuctionCount());
+		UUID id = auction.getConversationId();
+
+		answer(0, id, Performative.PROPOSE, "1"); //$NON-NLS-1$
+		answer(1, id, Performative.PROPOSE, "3"); //$NON-NLS-1$
+		answer(2, id, Performative.REFUSE, ""); //$NON-NLS-1$
+		process(3);
+
+		assertSame(ContractNetProtocolState.WAITING_ALL_RESULTS, auction.getState());
+		assertEquals(this.addresses.get(1), auction.getWinner());
+		assertFalse(auction.isTimedOut());
+		receive(0, Performative.REJECT_PROPOSAL);
+		receive(1, Performative.ACCEPT_PROPOSAL);
+
+		answer(1, id, Performative.INFORM, "done"); //$NON-NLS-1$
+		process(1);
+		assertSame(ContractNetProtocolState.DONE, auction.getState());
+		assertTrue(auction.isSuccessful());
+		assertEquals(this.addresses.get(1), auction.getResult().getAuthor());
+		assertEquals(0, this.initiator.getOpenAuctionCount());
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testCutoffAndLateProposal() throws Exception {
+		this.initiator = new ParallelContractNetInitiator(
+				this.initiatorAgent, new ScorerStub(), new ScoreThresholdCutoff(2.));
+		ContractNetAuction auction = callForProposal();
+		UUID id = auction.getConversationId();
+
+		answer(1, id, Performative.PROPOSE, "3"); //$NON-NLS-1$
+		process(1);
+		// Awarded before the other participants have answered
+		assertSame(ContractNetProtocolState.WAITING_ALL_RESULTS, auction.getState());
+		assertEquals(this.addresses.get(1), auction.getWinner());
+		receive(1, Performative.ACCEPT_PROPOSAL);
+
+		// Late proposal
+		answer(0, id, Performative.PROPOSE, "5"); //$NON-NLS-1$
+		process(1);
+		receive(0, Performative.REJECT_PROPOSAL);
+		assertEquals(this.addresses.get(1), auction.getWinner());
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testTimeoutAward() throws Exception {
+		this.initiator.setTimeout(300);
+		ContractNetAuction auction = callForProposal();
+		UUID id = auction.getConversationId();
+
+		answer(2, id, Performative.PROPOSE, "1"); //$NON-NLS-1$
+		process(1);
+		assertSame(ContractNetProtocolState.WAITING_ALL_PROPOSALS, auction.getState());
+
+		long end = System.currentTimeMillis() + WAITING_DELAY;
+		while (auction.getState()==ContractNetProtocolState.WAITING_ALL_PROPOSALS
+				&& System.currentTimeMillis()<end) {
+			this.initiator.process();
+			Thread.sleep(10);
+		}
+		assertSame(ContractNetProtocolState.WAITING_ALL_RESULTS, auction.getState());
+		assertTrue(auction.isTimedOut());
+		assertEquals(this.addresses.get(2), auction.getWinner());
+		receive(2, Performative.ACCEPT_PROPOSAL);
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testCancel() throws Exception {
+		ContractNetAuction auction = callForProposal();
+		UUID id = auction.getConversationId();
+
+		answer(0, id, Performative.PROPOSE, "1"); //$NON-NLS-1$
+		process(1);
+		this.initiator.cancel(auction);
+		assertSame(ContractNetProtocolState.CANCELED, auction.getState());
+		assertEquals(0, this.initiator.getOpenAuctionCount());
+		receive(0, Performative.REJECT_PROPOSAL);
+
+		// Answer after the cancelation
+		answer(1, id, Performative.PROPOSE, "2"); //$NON-NLS-1$
+		process(1);
+		receive(1, Performative.REJECT_PROPOSAL);
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testUnknownConversation() throws Exception {
+		UUID id = UUID.randomUUID();
+		answer(0, id, Performative.PROPOSE, "1"); //$NON-NLS-1$
+		answer(1, id, Performative.INFORM, "done"); //$NON-NLS-1$
+		process(2);
+		ACLMessage reject = receive(0, Performative.REJECT_PROPOSAL);
+		assertEquals(id, reject.getConversationId());
+		assertEquals(0, this.initiator.getOpenAuctionCount());
+		assertNull(this.initiator.getAuction(id));
+
+		// The messages to a participant are not consumed by the initiator
+		answer(2, id, Performative.CFP, "task"); //$NON-NLS-1$
+		List<ACLMessage> messages = receive(this.initiatorAgent, 1);
+		assertSame(Performative.CFP, messages.get(0).getPerformative());
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $Groupid$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class ScorerStub implements ProposalScorer {
+
+		/**
+		 */
+		public ScorerStub() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public double score(ProtocolResult proposal) {
+			return Double.parseDouble(proposal.getContent().toString());
+		}
+
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $Groupid$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class MessageCollector implements ACLMessageConsumer {
+
+		/** Consumed messages.
+		 */
+		public final List<ACLMessage> messages = new ArrayList<ACLMessage>();
+
+		/**
+		 */
+		public MessageCollector() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean consume(ACLMessage message) {
+			if (message.getProtocol()!=EnumFipaProtocol.FIPA_CONTRACT_NET) return false;
+			this.messages.add(message);
+			return true;
+		}
+
+	}
+
+}
@@ -0,0 +1,177 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.continuousspace;
+
+import java.io.Serializable;
+
+/**
+ * Immutable point or vector in a continuous space.
+ * <p>
+ * The same type is used for the 2D and the 3D spaces;
+ * in a 2D space, the <var>z</var> coordinate is always zero.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public final class SpacePoint implements Serializable {
+
+	private static final long serialVersionUID = -6216946003520880245L;
+
+	/** Origin of the space.
+	 */
+	public static final SpacePoint ORIGIN = new SpacePoint(0, 0, 0);
+
+	private final double x;
+	private final double y;
+	private final double z;
+
+	/**
+	 * @param x
+	 * @param y
+	 */
+	public SpacePoint(double x, double y) {
+		this(x, y, 0);
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @param z
+	 */
+	public SpacePoint(double x, double y, double z) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+	}
+
+	/** Replies the <var>x</var> coordinate.
+	 * 
+	 * @return the <var>x</var> coordinate.
+	 */
+	public double getX() {
+		return this.x;
+	}
+
+	/** Replies the <var>y</var> coordinate.
+	 * 
+	 * @return the <var>y</var> coordinate.
+	 */
+	public double getY() {
+		return this.y;
+	}
+
+	/** Replies the <var>z</var> coordinate.
+	 * 
+	 * @return the <var>z</var> coordinate.
+	 */
+	public double getZ() {
+		return this.z;
+	}
+
+	/** Replies the coordinate on the given axis.
+	 * 
+	 * @param axis is <code>0</code> for <var>x</var>, <code>1</code>
+	 * for <var>y</var>, and <code>2</code> for <var>z</var>.
+	 * @return the coordinate.
+	 */
+	public double get(int axis) {
+		switch(axis) {
+		case 0:
+			return this.x;
+		case 1:
+			return this.y;
+		case 2:
+			return this.z;
+		default:
+			throw new IndexOutOfBoundsException(Integer.toString(axis));
+		}
+	}
+
+	/** Replies the sum of this point and the given vector.
+	 * 
+	 * @param dx
+	 * @param dy
+	 * @param dz
+	 * @return the translated point.
+	 */
+	public SpacePoint translate(double dx, double dy, double dz) {
+		return new SpacePoint(this.x+dx, this.y+dy, this.z+dz);
+	}
+
+	/** Replies the squared distance between this point and the given point.
+	 * 
+	 * @param p
+	 * @return the squared distance.
+	 */
+	public double distanceSquared(SpacePoint p) {
+		double dx = p.x - this.x;
+		double dy = p.y - this.y;
+		double dz = p.z - this.z;
+		return dx*dx + dy*dy + dz*dz;
+	}
+
+	/** Replies the distance between this point and the given point.
+	 * 
+	 * @param p
+	 * @return the distance.
+	 */
+	public double distance(SpacePoint p) {
+		return Math.sqrt(distanceSquared(p));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (obj==this) return true;
+		if (obj instanceof SpacePoint) {
+			SpacePoint p = (SpacePoint)obj;
+			return Double.compare(this.x, p.x)==0
+				&& Double.compare(this.y, p.y)==0
+				&& Double.compare(this.z, p.z)==0;
+		}
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		long bits = Double.doubleToLongBits(this.x);
+		bits = 31 * bits + Double.doubleToLongBits(this.y);
+		bits = 31 * bits + Double.doubleToLongBits(this.z);
+		return (int)(bits ^ (bits >>> 32));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "("+this.x+";"+this.y+";"+this.z+")"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+
+}
@@ -0,0 +1,47 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.continuousspace.environment;
+
+import org.janusproject.continuousspace.SpacePoint;
+
+/** This interface defines the methods which are used
+ * to apply the actions computed by an influence solver.
+ * <p>
+ * The actions are applied at the end of the step, when all
+ * the influences are solved. The functions of the applier may
+ * be invoked by several threads, each of them for different bodies.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public interface ActionApplier {
+
+	/** Move a body.
+	 * 
+	 * @param body is the body to move.
+	 * @param position is the new position of the body.
+	 */
+	public void moveBody(SituatedBody body, SpacePoint position);
+
+}
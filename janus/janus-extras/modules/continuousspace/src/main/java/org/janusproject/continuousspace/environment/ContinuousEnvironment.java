@@ -0,0 +1,373 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.continuousspace.environment;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.janusproject.continuousspace.SpacePoint;
+import org.janusproject.continuousspace.index.SpatialIndex;
+import org.janusproject.continuousspace.influence.Influence;
+
+/**
+ * Continuous environment in which bodies are situated.
+ * <p>
+ * The environment is run step by step according to the
+ * influence/reaction model. During a step, the agents perceive
+ * the environment through their bodies and emit influences. At the
+ * end of the step, {@link #runStep()} gives the influences of each body
+ * to the {@link InfluenceSolver}, and then applies the computed actions.
+ * <p>
+ * The perceptions are answered by a {@link SpatialIndex}, so that
+ * a body perceives its neighbours without testing all the bodies.
+ * The influences of the bodies are solved in parallel when an
+ * executor service is given; the spatial index is updated once
+ * all the influences are solved.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class ContinuousEnvironment {
+
+	/** Minimal number of bodies solved by a thread.
+	 */
+	private static final int MIN_PARTITION_SIZE = 64;
+
+	private final SpatialIndex<SituatedBody> index;
+	private final InfluenceSolver solver;
+	private final ExecutorService executor;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Collection<Influence> influences = new ConcurrentLinkedQueue<Influence>();
+	private final Set<SituatedBody> bodies = new LinkedHashSet<SituatedBody>();
+	private int partitionCount = Runtime.getRuntime().availableProcessors();
+	private long step = 0;
+
+	/**
+	 * @param index is the spatial index of the bodies.
+	 * @param solver is the solver of the influences.
+	 * @param executor is the executor service used to solve the
+	 * influences in parallel, or <code>null</code> to solve them
+	 * in the calling thread.
+	 */
+	public ContinuousEnvironment(SpatialIndex<SituatedBody> index, InfluenceSolver solver, ExecutorService executor) {
+		assert(index!=null);
+		assert(solver!=null);
+		this.index = index;
+		this.solver = solver;
+		this.executor = executor;
+		solver.setEnvironment(this);
+	}
+
+	/** Replies the number of dimensions of this environment: 2 or 3.
+	 * 
+	 * @return the number of dimensions.
+	 */
+	public int getDimension() {
+		return this.index.getDimension();
+	}
+
+	/** Replies the solver of the influences.
+	 * 
+	 * @return the solver of the influences.
+	 */
+	public InfluenceSolver getInfluenceSolver() {
+		return this.solver;
+	}
+
+	/** Replies the number of steps already run.
+	 * 
+	 * @return the number of steps.
+	 */
+	public long getStepCount() {
+		this.lock.readLock().lock();
+		try {
+			return this.step;
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/** Replies the maximal number of tasks used to solve the influences.
+	 * 
+	 * @return the number of tasks.
+	 */
+	public int getPartitionCount() {
+		return this.partitionCount;
+	}
+
+	/** Set the maximal number of tasks used to solve the influences.
+	 * 
+	 * @param count is the number of tasks.
+	 */
+	public void setPartitionCount(int count) {
+		this.partitionCount = Math.max(1, count);
+	}
+
+	/** Add a body in this environment.
+	 * 
+	 * @param body
+	 * @return <code>true</code> if the body was added, <code>false</code>
+	 * if it is already in an environment.
+	 */
+	public boolean addBody(SituatedBody body) {
+		this.lock.writeLock().lock();
+		try {
+			if (body.getEnvironment()!=null) return false;
+			body.setEnvironment(this);
+			this.bodies.add(body);
+			this.index.insert(body, body.getPosition());
+			return true;
+		}
+		finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/** Remove a body from this environment.
+	 * 
+	 * @param body
+	 * @return <code>true</code> if the body was removed, <code>false</code>
+	 * if it is not in this environment.
+	 */
+	public boolean removeBody(SituatedBody body) {
+		this.lock.writeLock().lock();
+		try {
+			if (body.getEnvironment()!=this) return false;
+			body.setEnvironment(null);
+			this.bodies.remove(body);
+			this.index.remove(body);
+			return true;
+		}
+		finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/** Replies the bodies in this environment, in their order of addition.
+	 * 
+	 * @return the bodies.
+	 */
+	public List<SituatedBody> getBodies() {
+		this.lock.readLock().lock();
+		try {
+			return Collections.unmodifiableList(new ArrayList<SituatedBody>(this.bodies));
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/** Replies the number of bodies in this environment.
+	 * 
+	 * @return the number of bodies.
+	 */
+	public int getBodyCount() {
+		this.lock.readLock().lock();
+		try {
+			return this.bodies.size();
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/** Replies the bodies at the given distance of a point, or closer.
+	 * 
+	 * @param center is the center of the search.
+	 * @param radius is the distance of search.
+	 * @return the found bodies.
+	 */
+	public List<SituatedBody> findInRadius(SpacePoint center, double radius) {
+		List<SituatedBody> result = new ArrayList<SituatedBody>();
+		this.lock.readLock().lock();
+		try {
+			this.index.findInRadius(center, radius, result);
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+		return result;
+	}
+
+	/** Replies the nearest bodies of a point.
+	 * 
+	 * @param center is the center of the search.
+	 * @param k is the maximal number of bodies to reply.
+	 * @return the found bodies, from the nearest to the farest.
+	 */
+	public List<SituatedBody> findNearest(SpacePoint center, int k) {
+		this.lock.readLock().lock();
+		try {
+			return this.index.findNearest(center, k);
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/** Add an influence to solve at the end of the current step.
+	 * 
+	 * @param influence
+	 */
+	void emit(Influence influence) {
+		this.influences.add(influence);
+	}
+
+	/** Solve the influences emitted since the previous step,
+	 * and apply the resulting actions.
+	 * <p>
+	 * The perception queries may be done during the resolution of
+	 * the influences; they reply the state of the environment at the
+	 * beginning of the step.
+	 * 
+	 * @throws InterruptedException
+	 * @throws ExecutionException if the solver has failed.
+	 */
+	public synchronized void runStep() throws InterruptedException, ExecutionException {
+		// Group the influences by emitter
+		Map<SituatedBody,List<Influence>> byBody = new LinkedHashMap<SituatedBody,List<Influence>>();
+		Influence influence;
+		List<Influence> l;
+		Collection<Influence> queue = this.influences;
+		Iterator<Influence> iterator = queue.iterator();
+		while (iterator.hasNext()) {
+			influence = iterator.next();
+			iterator.remove();
+			if (influence.getEmitter().getEnvironment()==this) {
+				l = byBody.get(influence.getEmitter());
+				if (l==null) {
+					l = new ArrayList<Influence>();
+					byBody.put(influence.getEmitter(), l);
+				}
+				l.add(influence);
+			}
+		}
+
+		List<SituatedBody> moved = new ArrayList<SituatedBody>(byBody.keySet());
+		List<List<Influence>> lists = new ArrayList<List<Influence>>(byBody.values());
+		int partitions = Math.min(this.partitionCount, moved.size() / MIN_PARTITION_SIZE);
+		if (this.executor==null || partitions<=1) {
+			new SolvingTask(moved, lists, 0, moved.size()).call();
+		}
+		else {
+			List<SolvingTask> tasks = new ArrayList<SolvingTask>(partitions);
+			int size = moved.size();
+			for(int i=0; i<partitions; ++i) {
+				tasks.add(new SolvingTask(moved, lists,
+						(int)((long)size * i / partitions),
+						(int)((long)size * (i+1) / partitions)));
+			}
+			for(Future<Void> future : this.executor.invokeAll(tasks)) {
+				future.get();
+			}
+		}
+
+		// Commit the actions
+		this.lock.writeLock().lock();
+		try {
+			for(SituatedBody body : moved) {
+				SpacePoint p = body.nextPosition;
+				if (p!=null) {
+					body.nextPosition = null;
+					if (body.getEnvironment()==this) {
+						body.setPosition(p);
+						this.index.insert(body, p);
+					}
+				}
+			}
+			++this.step;
+		}
+		finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Task which is solving the influences of a part of the bodies.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private class SolvingTask implements Callable<Void>, ActionApplier {
+
+		private final List<SituatedBody> bodies;
+		private final List<List<Influence>> influences;
+		private final int start;
+		private final int end;
+
+		/**
+		 * @param bodies
+		 * @param influences
+		 * @param start
+		 * @param end
+		 */
+		public SolvingTask(List<SituatedBody> bodies, List<List<Influence>> influences, int start, int end) {
+			this.bodies = bodies;
+			this.influences = influences;
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public Void call() {
+			InfluenceSolver s = ContinuousEnvironment.this.solver;
+			for(int i=this.start; i<this.end; ++i) {
+				s.solve(this.bodies.get(i), this.influences.get(i), this);
+			}
+			return null;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void moveBody(SituatedBody body, SpacePoint position) {
+			body.nextPosition = position;
+		}
+
+	}
+
+}
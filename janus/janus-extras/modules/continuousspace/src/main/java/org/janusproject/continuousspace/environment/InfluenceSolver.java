@@ -0,0 +1,74 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.continuousspace.environment;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+import org.janusproject.continuousspace.influence.Influence;
+
+/** This class defines the methods of a solver of
+ * influence conflicts in a continuous environment.
+ * <p>
+ * The influences are solved for each body independently,
+ * and the bodies may be solved in parallel. The conflicts
+ * between bodies are detected against the state of the
+ * environment at the beginning of the step, which may
+ * be queried during the resolution.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public abstract class InfluenceSolver {
+
+	private WeakReference<ContinuousEnvironment> environment = null;
+
+	/** Replies the environment in which the influences are solved.
+	 * 
+	 * @return the environment.
+	 */
+	public ContinuousEnvironment getEnvironment() {
+		return this.environment==null ? null : this.environment.get();
+	}
+
+	/** Set the environment in which the influences are solved.
+	 * 
+	 * @param environment
+	 */
+	void setEnvironment(ContinuousEnvironment environment) {
+		this.environment = new WeakReference<ContinuousEnvironment>(environment);
+	}
+
+	/** Detect and solve the conflicts between the influences of a body.
+	 * 
+	 * @param body is the body which has emitted the influences.
+	 * @param influences are the influences emitted by the body during the step.
+	 * @param actionApplier is the object which may receive actions.
+	 */
+	public abstract void solve(
+			SituatedBody body,
+			List<? extends Influence> influences,
+			ActionApplier actionApplier);
+
+}
@@ -0,0 +1,167 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.continuousspace.environment;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.janusproject.continuousspace.SpacePoint;
+import org.janusproject.continuousspace.influence.Influence;
+import org.janusproject.continuousspace.influence.MotionInfluence;
+import org.janusproject.kernel.address.AgentAddress;
+
+/**
+ * Body of an agent in a continuous environment.
+ * <p>
+ * The body is the only way for its agent to perceive the environment
+ * and to act on it. The actions are not applied immediately: the body
+ * emits influences, which are solved by the environment at the end
+ * of the current step.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class SituatedBody {
+
+	private final AgentAddress owner;
+	private volatile SpacePoint position;
+	private volatile ContinuousEnvironment environment = null;
+
+	/** Position computed during the current step.
+	 */
+	SpacePoint nextPosition = null;
+
+	/**
+	 * @param owner is the address of the agent which owns this body, or <code>null</code>.
+	 * @param position is the initial position of the body.
+	 */
+	public SituatedBody(AgentAddress owner, SpacePoint position) {
+		assert(position!=null);
+		this.owner = owner;
+		this.position = position;
+	}
+
+	/** Replies the address of the agent which owns this body.
+	 * 
+	 * @return the address of the owner, or <code>null</code>.
+	 */
+	public AgentAddress getOwner() {
+		return this.owner;
+	}
+
+	/** Replies the position of this body.
+	 * 
+	 * @return the position of this body.
+	 */
+	public SpacePoint getPosition() {
+		return this.position;
+	}
+
+	/** Set the position of this body.
+	 * 
+	 * @param position
+	 */
+	void setPosition(SpacePoint position) {
+		this.position = position;
+	}
+
+	/** Replies the environment in which this body is located.
+	 * 
+	 * @return the environment, or <code>null</code>.
+	 */
+	public ContinuousEnvironment getEnvironment() {
+		return this.environment;
+	}
+
+	/** Set the environment in which this body is located.
+	 * 
+	 * @param environment
+	 */
+	void setEnvironment(ContinuousEnvironment environment) {
+		this.environment = environment;
+	}
+
+	/** Emit an influence in the environment.
+	 * 
+	 * @param influence
+	 * @return <code>true</code> if the influence was emitted,
+	 * <code>false</code> if this body is not in an environment.
+	 */
+	public boolean influence(Influence influence) {
+		assert(influence!=null && influence.getEmitter()==this);
+		ContinuousEnvironment env = this.environment;
+		if (env==null) return false;
+		env.emit(influence);
+		return true;
+	}
+
+	/** Emit a motion influence in the environment.
+	 * 
+	 * @param dx is the translation along the <var>x</var> axis.
+	 * @param dy is the translation along the <var>y</var> axis.
+	 * @param dz is the translation along the <var>z</var> axis.
+	 * @return <code>true</code> if the influence was emitted,
+	 * <code>false</code> if this body is not in an environment.
+	 */
+	public boolean move(double dx, double dy, double dz) {
+		return influence(new MotionInfluence(this, dx, dy, dz));
+	}
+
+	/** Replies the other bodies at the given distance of this body, or closer.
+	 * 
+	 * @param radius is the distance of perception.
+	 * @return the perceived bodies.
+	 */
+	public List<SituatedBody> perceive(double radius) {
+		ContinuousEnvironment env = this.environment;
+		if (env==null) return Collections.emptyList();
+		List<SituatedBody> bodies = env.findInRadius(this.position, radius);
+		bodies.remove(this);
+		return bodies;
+	}
+
+	/** Replies the nearest other bodies.
+	 * 
+	 * @param k is the maximal number of perceived bodies.
+	 * @return the perceived bodies, from the nearest to the farest.
+	 */
+	public List<SituatedBody> perceiveNearest(int k) {
+		ContinuousEnvironment env = this.environment;
+		if (env==null) return Collections.emptyList();
+		List<SituatedBody> bodies = env.findNearest(this.position, k+1);
+		if (!bodies.remove(this) && !bodies.isEmpty()) {
+			bodies.remove(bodies.size()-1);
+		}
+		return bodies;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return this.owner==null ? this.position.toString() : this.owner.toString();
+	}
+
+}
@@ -0,0 +1,127 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.continuousspace.environment;
+
+import java.util.List;
+
+import org.janusproject.continuousspace.SpacePoint;
+import org.janusproject.continuousspace.influence.Influence;
+import org.janusproject.continuousspace.influence.MotionInfluence;
+
+/** Solver which is moving each body according to the sum of
+ * its motion influences.
+ * <p>
+ * If bounds are given, the bodies are kept inside them; in a
+ * wrapped space, a body which is going out of a side comes back
+ * by the opposite side.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class StandardInfluenceSolver extends InfluenceSolver {
+
+	private final SpacePoint lower;
+	private final SpacePoint upper;
+	private final boolean isWrapped;
+
+	/** Create a solver for an unbounded space.
+	 */
+	public StandardInfluenceSolver() {
+		this(null, null, false);
+	}
+
+	/**
+	 * @param lower is the lower corner of the space.
+	 * @param upper is the upper corner of the space.
+	 * @param wrapped indicates if the space is wrapped.
+	 */
+	public StandardInfluenceSolver(SpacePoint lower, SpacePoint upper, boolean wrapped) {
+		assert((lower==null)==(upper==null));
+		this.lower = lower;
+		this.upper = upper;
+		this.isWrapped = wrapped;
+	}
+
+	/** Replies if the space is wrapped.
+	 * 
+	 * @return <code>true</code> if the space is
+	 * wrapped, otherwise <code>false</code>.
+	 */
+	public boolean isWrapped() {
+		return this.isWrapped;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void solve(SituatedBody body, List<? extends Influence> influences, ActionApplier actionApplier) {
+		double dx = 0, dy = 0, dz = 0;
+		boolean moved = false;
+		MotionInfluence mi;
+		for(Influence influence : influences) {
+			if (influence instanceof MotionInfluence) {
+				mi = (MotionInfluence)influence;
+				dx += mi.getLinearMotionX();
+				dy += mi.getLinearMotionY();
+				dz += mi.getLinearMotionZ();
+				moved = true;
+			}
+		}
+		if (moved) {
+			SpacePoint p = body.getPosition();
+			actionApplier.moveBody(body, validatePosition(
+					p.getX()+dx, p.getY()+dy, p.getZ()+dz));
+		}
+	}
+
+	/** Replies the position inside the space which corresponds
+	 * to the given position.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return the valid position.
+	 */
+	protected SpacePoint validatePosition(double x, double y, double z) {
+		if (this.lower==null) return new SpacePoint(x, y, z);
+		return new SpacePoint(
+				validate(x, this.lower.getX(), this.upper.getX()),
+				validate(y, this.lower.getY(), this.upper.getY()),
+				validate(z, this.lower.getZ(), this.upper.getZ()));
+	}
+
+	private double validate(double v, double min, double max) {
+		if (v>=min && v<=max) return v;
+		if (this.isWrapped) {
+			double size = max - min;
+			if (size<=0) return min;
+			double r = (v - min) % size;
+			if (r<0) r += size;
+			return min + r;
+		}
+		return v<min ? min : max;
+	}
+
+}
@@ -0,0 +1,250 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.continuousspace.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.janusproject.continuousspace.SpacePoint;
+
+/**
+ * Abstract implementation of a spatial index.
+ * <p>
+ * The position of each object is stored in an entry which is
+ * reachable from the object in constant time, so that the objects
+ * may be moved or removed without searching them in the index.
+ * 
+ * @param <T> is the type of the indexed objects.
+ * @param <E> is the type of the entries of the index.
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+abstract class AbstractSpatialIndex<T, E extends AbstractSpatialIndex.Entry<T>> implements SpatialIndex<T> {
+
+	private final int dimension;
+
+	/** Entries of the objects.
+	 */
+	protected final Map<T,E> entries = new HashMap<T,E>();
+
+	/**
+	 * @param dimension is the number of dimensions of the space: 2 or 3.
+	 */
+	public AbstractSpatialIndex(int dimension) {
+		if (dimension!=2 && dimension!=3) {
+			throw new IllegalArgumentException(Integer.toString(dimension));
+		}
+		this.dimension = dimension;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final int getDimension() {
+		return this.dimension;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SpacePoint getPosition(T object) {
+		E e = this.entries.get(object);
+		return e==null ? null : e.position;
+	}
+
+	/** Replies the given point, projected in the space of the index.
+	 * 
+	 * @param p
+	 * @return the point in the space of the index.
+	 */
+	protected SpacePoint project(SpacePoint p) {
+		if (this.dimension==2 && p.getZ()!=0) {
+			return new SpacePoint(p.getX(), p.getY());
+		}
+		return p;
+	}
+
+	/**
+	 * Entry of an object in the index.
+	 * 
+	 * @param <T> is the type of the indexed objects.
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	static class Entry<T> {
+
+		/** Indexed object.
+		 */
+		public final T object;
+
+		/** Position of the object.
+		 */
+		public SpacePoint position;
+
+		/**
+		 * @param object
+		 * @param position
+		 */
+		public Entry(T object, SpacePoint position) {
+			this.object = object;
+			this.position = position;
+		}
+
+	}
+
+	/**
+	 * Collector of the nearest objects of a point.
+	 * <p>
+	 * The collector keeps the <var>k</var> nearest objects
+	 * in a heap which has the farest object on its top.
+	 * 
+	 * @param <T> is the type of the indexed objects.
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	static class NearestCollector<T> implements Comparator<Candidate<T>> {
+
+		private final SpacePoint center;
+		private final int k;
+		private final PriorityQueue<Candidate<T>> heap;
+
+		/**
+		 * @param center
+		 * @param k
+		 */
+		public NearestCollector(SpacePoint center, int k) {
+			this.center = center;
+			this.k = k;
+			this.heap = new PriorityQueue<Candidate<T>>(Math.max(1, k), this);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int compare(Candidate<T> o1, Candidate<T> o2) {
+			return Double.compare(o2.distance, o1.distance);
+		}
+
+		/** Replies if the collector contains <var>k</var> objects.
+		 * 
+		 * @return <code>true</code> if the collector is full.
+		 */
+		public boolean isFull() {
+			return this.heap.size()>=this.k;
+		}
+
+		/** Replies the squared distance of the farest collected object.
+		 * 
+		 * @return the squared distance, or the infinity if the collector is not full.
+		 */
+		public double getWorstDistance() {
+			if (!isFull()) return Double.POSITIVE_INFINITY;
+			return this.heap.peek().distance;
+		}
+
+		/** Submit an entry.
+		 * 
+		 * @param entry
+		 */
+		public void add(Entry<T> entry) {
+			double d = this.center.distanceSquared(entry.position);
+			if (!isFull()) {
+				this.heap.add(new Candidate<T>(entry.object, d));
+			}
+			else if (d<this.heap.peek().distance) {
+				this.heap.poll();
+				this.heap.add(new Candidate<T>(entry.object, d));
+			}
+		}
+
+		/** Replies the collected objects, from the nearest to the farest.
+		 * 
+		 * @return the collected objects.
+		 */
+		public List<T> toList() {
+			List<Candidate<T>> candidates = new ArrayList<Candidate<T>>(this.heap);
+			Collections.sort(candidates, this);
+			List<T> result = new ArrayList<T>(candidates.size());
+			for(int i=candidates.size()-1; i>=0; --i) {
+				result.add(candidates.get(i).object);
+			}
+			return result;
+		}
+
+	}
+
+	/**
+	 * Object found by a search of the nearest objects.
+	 * 
+	 * @param <T> is the type of the indexed objects.
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	static class Candidate<T> {
+
+		/** Found object.
+		 */
+		public final T object;
+
+		/** Squared distance to the center of the search.
+		 */
+		public final double distance;
+
+		/**
+		 * @param object
+		 * @param distance
+		 */
+		public Candidate(T object, double distance) {
+			this.object = object;
+			this.distance = distance;
+		}
+
+	}
+
+}
@@ -0,0 +1,286 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.continuousspace.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.janusproject.continuousspace.SpacePoint;
+
+/**
+ * Spatial index based on a uniform grid.
+ * <p>
+ * The space is divided in square (or cubic) cells of the same size,
+ * and only the non-empty cells are stored. This index is efficient
+ * when the objects are uniformly distributed and when the radius of
+ * the queries is close to the size of the cells.
+ * 
+ * @param <T> is the type of the indexed objects.
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class GridIndex<T> extends AbstractSpatialIndex<T,GridIndex.GridEntry<T>> {
+
+	private static final int COORDINATE_BITS = 21;
+	private static final long COORDINATE_MASK = (1L << COORDINATE_BITS) - 1;
+
+	private final double cellSize;
+	private final double inverseCellSize;
+	private final Map<Long,List<GridEntry<T>>> cells = new HashMap<Long,List<GridEntry<T>>>();
+
+	/**
+	 * @param dimension is the number of dimensions of the space: 2 or 3.
+	 * @param cellSize is the size of the cells.
+	 */
+	public GridIndex(int dimension, double cellSize) {
+		super(dimension);
+		if (cellSize<=0) {
+			throw new IllegalArgumentException(Double.toString(cellSize));
+		}
+		this.cellSize = cellSize;
+		this.inverseCellSize = 1. / cellSize;
+	}
+
+	/** Replies the size of the cells.
+	 * 
+	 * @return the size of the cells.
+	 */
+	public double getCellSize() {
+		return this.cellSize;
+	}
+
+	/** Replies the number of non-empty cells.
+	 * 
+	 * @return the number of non-empty cells.
+	 */
+	public int getCellCount() {
+		return this.cells.size();
+	}
+
+	private int cell(double coordinate) {
+		return (int)Math.floor(coordinate * this.inverseCellSize);
+	}
+
+	private static Long key(int x, int y, int z) {
+		return Long.valueOf(((x & COORDINATE_MASK) << (2*COORDINATE_BITS))
+				| ((y & COORDINATE_MASK) << COORDINATE_BITS)
+				| (z & COORDINATE_MASK));
+	}
+
+	private Long key(SpacePoint p) {
+		return key(cell(p.getX()), cell(p.getY()), cell(p.getZ()));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		this.entries.clear();
+		this.cells.clear();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void insert(T object, SpacePoint position) {
+		SpacePoint p = project(position);
+		Long key = key(p);
+		GridEntry<T> entry = this.entries.get(object);
+		if (entry==null) {
+			entry = new GridEntry<T>(object, p, key);
+			this.entries.put(object, entry);
+		}
+		else {
+			entry.position = p;
+			if (entry.cell.equals(key)) return;
+			removeFromCell(entry);
+			entry.cell = key;
+		}
+		List<GridEntry<T>> cell = this.cells.get(key);
+		if (cell==null) {
+			cell = new ArrayList<GridEntry<T>>();
+			this.cells.put(key, cell);
+		}
+		cell.add(entry);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean remove(T object) {
+		GridEntry<T> entry = this.entries.remove(object);
+		if (entry==null) return false;
+		removeFromCell(entry);
+		return true;
+	}
+
+	private void removeFromCell(GridEntry<T> entry) {
+		List<GridEntry<T>> cell = this.cells.get(entry.cell);
+		assert(cell!=null);
+		int idx = cell.indexOf(entry);
+		assert(idx>=0);
+		int last = cell.size() - 1;
+		cell.set(idx, cell.get(last));
+		cell.remove(last);
+		if (cell.isEmpty()) {
+			this.cells.remove(entry.cell);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void findInRadius(SpacePoint center, double radius, Collection<? super T> result) {
+		SpacePoint c = project(center);
+		double r2 = radius * radius;
+		int minX = cell(c.getX()-radius), maxX = cell(c.getX()+radius);
+		int minY = cell(c.getY()-radius), maxY = cell(c.getY()+radius);
+		int minZ = 0, maxZ = 0;
+		if (getDimension()==3) {
+			minZ = cell(c.getZ()-radius);
+			maxZ = cell(c.getZ()+radius);
+		}
+		double cellCount = (maxX-minX+1.) * (maxY-minY+1.) * (maxZ-minZ+1.);
+		if (cellCount>this.cells.size()) {
+			// Less work to test all the non-empty cells
+			for(List<GridEntry<T>> cell : this.cells.values()) {
+				addInRadius(cell, c, r2, result);
+			}
+			return;
+		}
+		List<GridEntry<T>> cell;
+		for(int x=minX; x<=maxX; ++x) {
+			for(int y=minY; y<=maxY; ++y) {
+				for(int z=minZ; z<=maxZ; ++z) {
+					cell = this.cells.get(key(x, y, z));
+					if (cell!=null) {
+						addInRadius(cell, c, r2, result);
+					}
+				}
+			}
+		}
+	}
+
+	private static <T> void addInRadius(List<GridEntry<T>> cell, SpacePoint center, double r2, Collection<? super T> result) {
+		for(GridEntry<T> entry : cell) {
+			if (center.distanceSquared(entry.position)<=r2) {
+				result.add(entry.object);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<T> findNearest(SpacePoint center, int k) {
+		SpacePoint c = project(center);
+		NearestCollector<T> collector = new NearestCollector<T>(c, k);
+		if (k<=0) return collector.toList();
+		int cx = cell(c.getX());
+		int cy = cell(c.getY());
+		int cz = cell(c.getZ());
+		boolean is3d = getDimension()==3;
+		int visited = 0;
+		int total = size();
+		int ring = 0;
+		double covered;
+		List<GridEntry<T>> cell;
+		while (visited<total) {
+			double side = 2. * ring + 1.;
+			if ((is3d ? side*side*side : side*side) > 4. * this.cells.size()) {
+				// The rings are larger than the non-empty area of the grid;
+				// restart with a linear search.
+				collector = new NearestCollector<T>(c, k);
+				for(List<GridEntry<T>> l : this.cells.values()) {
+					for(GridEntry<T> entry : l) {
+						collector.add(entry);
+					}
+				}
+				break;
+			}
+			// Visit the cells at the given distance of the center cell
+			for(int x=-ring; x<=ring; ++x) {
+				for(int y=-ring; y<=ring; ++y) {
+					int minZ = is3d ? -ring : 0;
+					int maxZ = is3d ? ring : 0;
+					for(int z=minZ; z<=maxZ; ++z) {
+						if (Math.abs(x)==ring || Math.abs(y)==ring || Math.abs(z)==ring) {
+							cell = this.cells.get(key(cx+x, cy+y, cz+z));
+							if (cell!=null) {
+								visited += cell.size();
+								for(GridEntry<T> entry : cell) {
+									collector.add(entry);
+								}
+							}
+						}
+					}
+				}
+			}
+			// All the objects closer than this distance were visited
+			covered = ring * this.cellSize;
+			if (collector.isFull() && collector.getWorstDistance()<=covered*covered) {
+				break;
+			}
+			++ring;
+		}
+		return collector.toList();
+	}
+
+	/**
+	 * Entry of an object in a grid.
+	 * 
+	 * @param <T> is the type of the indexed objects.
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	static class GridEntry<T> extends AbstractSpatialIndex.Entry<T> {
+
+		/** Key of the cell which contains the object.
+		 */
+		public Long cell;
+
+		/**
+		 * @param object
+		 * @param position
+		 * @param cell
+		 */
+		public GridEntry(T object, SpacePoint position, Long cell) {
+			super(object, position);
+			this.cell = cell;
+		}
+
+	}
+
+}
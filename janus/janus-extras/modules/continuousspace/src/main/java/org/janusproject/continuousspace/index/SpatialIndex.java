@@ -0,0 +1,99 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.continuousspace.index;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.janusproject.continuousspace.SpacePoint;
+
+/**
+ * Index of objects located in a continuous space.
+ * <p>
+ * The queries may be run in parallel by several threads,
+ * provided that no modification of the index is done at
+ * the same time.
+ * 
+ * @param <T> is the type of the indexed objects.
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public interface SpatialIndex<T> {
+
+	/** Replies the number of dimensions of the space: 2 or 3.
+	 * 
+	 * @return the number of dimensions.
+	 */
+	public int getDimension();
+
+	/** Replies the number of objects in this index.
+	 * 
+	 * @return the number of objects.
+	 */
+	public int size();
+
+	/** Remove all the objects from this index.
+	 */
+	public void clear();
+
+	/** Add an object in this index, or move it if it is already inside.
+	 * 
+	 * @param object
+	 * @param position is the position of the object.
+	 */
+	public void insert(T object, SpacePoint position);
+
+	/** Remove an object from this index.
+	 * 
+	 * @param object
+	 * @return <code>true</code> if the object was removed,
+	 * <code>false</code> if it was not inside this index.
+	 */
+	public boolean remove(T object);
+
+	/** Replies the position of the given object.
+	 * 
+	 * @param object
+	 * @return the position of the object, or <code>null</code> if
+	 * the object is not inside this index.
+	 */
+	public SpacePoint getPosition(T object);
+
+	/** Replies the objects at the given distance of a point, or closer.
+	 * 
+	 * @param center is the center of the search.
+	 * @param radius is the distance of search.
+	 * @param result is filled with the found objects.
+	 */
+	public void findInRadius(SpacePoint center, double radius, Collection<? super T> result);
+
+	/** Replies the nearest objects of a point.
+	 * 
+	 * @param center is the center of the search.
+	 * @param k is the maximal number of objects to reply.
+	 * @return the nearest objects, from the nearest to the farest.
+	 */
+	public List<T> findNearest(SpacePoint center, int k);
+
+}
@@ -0,0 +1,474 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.continuousspace.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.janusproject.continuousspace.SpacePoint;
+
+/**
+ * Spatial index based on a quadtree in 2D, or on an octree in 3D.
+ * <p>
+ * A node of the tree is split when it contains more objects than
+ * the capacity of the nodes, and the children of a node are merged
+ * when they contain less objects than the half of this capacity. This index is
+ * efficient when the objects are not uniformly distributed.
+ * <p>
+ * The objects outside the bounds of the tree are stored apart
+ * and are tested by each query.
+ * 
+ * @param <T> is the type of the indexed objects.
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class TreeIndex<T> extends AbstractSpatialIndex<T,TreeIndex.TreeEntry<T>> {
+
+	/** Default maximal number of objects in a leaf.
+	 */
+	public static final int DEFAULT_NODE_CAPACITY = 8;
+
+	/** Maximal depth of the tree.
+	 */
+	public static final int MAX_DEPTH = 16;
+
+	private final int capacity;
+	private final SpacePoint lower;
+	private final SpacePoint upper;
+	private Node<T> root;
+	private final List<TreeEntry<T>> outside = new ArrayList<TreeEntry<T>>();
+
+	/**
+	 * @param dimension is the number of dimensions of the space: 2 or 3.
+	 * @param lower is the lower corner of the space.
+	 * @param upper is the upper corner of the space.
+	 */
+	public TreeIndex(int dimension, SpacePoint lower, SpacePoint upper) {
+		this(dimension, lower, upper, DEFAULT_NODE_CAPACITY);
+	}
+
+	/**
+	 * @param dimension is the number of dimensions of the space: 2 or 3.
+	 * @param lower is the lower corner of the space.
+	 * @param upper is the upper corner of the space.
+	 * @param capacity is the maximal number of objects in a leaf.
+	 */
+	public TreeIndex(int dimension, SpacePoint lower, SpacePoint upper, int capacity) {
+		super(dimension);
+		this.lower = project(lower);
+		this.upper = project(upper);
+		this.capacity = Math.max(1, capacity);
+		this.root = newRoot();
+	}
+
+	private Node<T> newRoot() {
+		return new Node<T>(null, 0,
+				this.lower.getX(), this.lower.getY(), this.lower.getZ(),
+				this.upper.getX(), this.upper.getY(), this.upper.getZ());
+	}
+
+	/** Replies the lower corner of the space.
+	 * 
+	 * @return the lower corner.
+	 */
+	public SpacePoint getLowerCorner() {
+		return this.lower;
+	}
+
+	/** Replies the upper corner of the space.
+	 * 
+	 * @return the upper corner.
+	 */
+	public SpacePoint getUpperCorner() {
+		return this.upper;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		this.entries.clear();
+		this.outside.clear();
+		this.root = newRoot();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void insert(T object, SpacePoint position) {
+		SpacePoint p = project(position);
+		TreeEntry<T> entry = this.entries.get(object);
+		if (entry==null) {
+			entry = new TreeEntry<T>(object, p);
+			this.entries.put(object, entry);
+		}
+		else {
+			Node<T> node = entry.node;
+			if (node!=null && node.contains(p)) {
+				entry.position = p;
+				return;
+			}
+			detach(entry);
+			entry.position = p;
+		}
+		attach(entry);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean remove(T object) {
+		TreeEntry<T> entry = this.entries.remove(object);
+		if (entry==null) return false;
+		detach(entry);
+		return true;
+	}
+
+	private void attach(TreeEntry<T> entry) {
+		if (!this.root.contains(entry.position)) {
+			entry.node = null;
+			this.outside.add(entry);
+			return;
+		}
+		Node<T> node = this.root;
+		while (node.children!=null) {
+			node = node.children[node.childIndex(entry.position)];
+		}
+		node.add(entry);
+		if (node.entries.size()>this.capacity && node.depth<MAX_DEPTH) {
+			split(node);
+		}
+	}
+
+	private void detach(TreeEntry<T> entry) {
+		Node<T> node = entry.node;
+		if (node==null) {
+			removeFrom(this.outside, entry);
+			return;
+		}
+		removeFrom(node.entries, entry);
+		entry.node = null;
+		// Merge the children when they become too small
+		Node<T> parent = node.parent;
+		while (parent!=null && parent.isMergeable(this.capacity/2)) {
+			merge(parent);
+			parent = parent.parent;
+		}
+	}
+
+	private static <T> void removeFrom(List<TreeEntry<T>> list, TreeEntry<T> entry) {
+		int idx = list.indexOf(entry);
+		assert(idx>=0);
+		int last = list.size() - 1;
+		list.set(idx, list.get(last));
+		list.remove(last);
+	}
+
+	private void split(Node<T> node) {
+		boolean is3d = getDimension()==3;
+		node.split(is3d);
+		List<TreeEntry<T>> l = node.entries;
+		node.entries = null;
+		Node<T> child;
+		for(TreeEntry<T> entry : l) {
+			child = node.children[node.childIndex(entry.position)];
+			child.add(entry);
+		}
+		for(Node<T> c : node.children) {
+			if (c.entries.size()>this.capacity && c.depth<MAX_DEPTH) {
+				split(c);
+			}
+		}
+	}
+
+	private static <T> void merge(Node<T> node) {
+		List<TreeEntry<T>> l = new ArrayList<TreeEntry<T>>();
+		for(Node<T> child : node.children) {
+			l.addAll(child.entries);
+		}
+		node.children = null;
+		node.entries = new ArrayList<TreeEntry<T>>(l.size());
+		for(TreeEntry<T> entry : l) {
+			node.add(entry);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void findInRadius(SpacePoint center, double radius, Collection<? super T> result) {
+		SpacePoint c = project(center);
+		double r2 = radius * radius;
+		for(TreeEntry<T> entry : this.outside) {
+			if (c.distanceSquared(entry.position)<=r2) {
+				result.add(entry.object);
+			}
+		}
+		findInRadius(this.root, c, r2, result);
+	}
+
+	private static <T> void findInRadius(Node<T> node, SpacePoint center, double r2, Collection<? super T> result) {
+		if (node.distanceSquared(center)>r2) return;
+		if (node.children==null) {
+			for(TreeEntry<T> entry : node.entries) {
+				if (center.distanceSquared(entry.position)<=r2) {
+					result.add(entry.object);
+				}
+			}
+		}
+		else {
+			for(Node<T> child : node.children) {
+				findInRadius(child, center, r2, result);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<T> findNearest(SpacePoint center, int k) {
+		final SpacePoint c = project(center);
+		NearestCollector<T> collector = new NearestCollector<T>(c, k);
+		if (k<=0) return collector.toList();
+		for(TreeEntry<T> entry : this.outside) {
+			collector.add(entry);
+		}
+		// Best-first traversal of the tree
+		PriorityQueue<Candidate<Node<T>>> queue = new PriorityQueue<Candidate<Node<T>>>(64,
+				new Comparator<Candidate<Node<T>>>() {
+					@Override
+					public int compare(Candidate<Node<T>> o1, Candidate<Node<T>> o2) {
+						return Double.compare(o1.distance, o2.distance);
+					}
+				});
+		queue.add(new Candidate<Node<T>>(this.root, this.root.distanceSquared(c)));
+		Candidate<Node<T>> candidate;
+		Node<T> node;
+		while (!queue.isEmpty()) {
+			candidate = queue.poll();
+			if (candidate.distance>collector.getWorstDistance()) break;
+			node = candidate.object;
+			if (node.children==null) {
+				for(TreeEntry<T> entry : node.entries) {
+					collector.add(entry);
+				}
+			}
+			else {
+				for(Node<T> child : node.children) {
+					if (!child.isEmptyLeaf()) {
+						queue.add(new Candidate<Node<T>>(child, child.distanceSquared(c)));
+					}
+				}
+			}
+		}
+		return collector.toList();
+	}
+
+	/**
+	 * Entry of an object in a tree.
+	 * 
+	 * @param <T> is the type of the indexed objects.
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	static class TreeEntry<T> extends AbstractSpatialIndex.Entry<T> {
+
+		/** Leaf which contains the object, or <code>null</code>
+		 * if the object is outside the tree.
+		 */
+		public Node<T> node = null;
+
+		/**
+		 * @param object
+		 * @param position
+		 */
+		public TreeEntry(T object, SpacePoint position) {
+			super(object, position);
+		}
+
+	}
+
+	/**
+	 * Node of a tree.
+	 * 
+	 * @param <T> is the type of the indexed objects.
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	static class Node<T> {
+
+		/** Parent node.
+		 */
+		public final Node<T> parent;
+
+		/** Depth of the node.
+		 */
+		public final int depth;
+
+		private final double minX, minY, minZ;
+		private final double maxX, maxY, maxZ;
+		private final double midX, midY, midZ;
+
+		/** Children, or <code>null</code> for a leaf.
+		 */
+		public Node<T>[] children = null;
+
+		/** Objects in a leaf, or <code>null</code> for an inner node.
+		 */
+		public List<TreeEntry<T>> entries = new ArrayList<TreeEntry<T>>();
+
+		/**
+		 * @param parent
+		 * @param depth
+		 * @param minX
+		 * @param minY
+		 * @param minZ
+		 * @param maxX
+		 * @param maxY
+		 * @param maxZ
+		 */
+		public Node(Node<T> parent, int depth,
+				double minX, double minY, double minZ,
+				double maxX, double maxY, double maxZ) {
+			this.parent = parent;
+			this.depth = depth;
+			this.minX = minX;
+			this.minY = minY;
+			this.minZ = minZ;
+			this.maxX = maxX;
+			this.maxY = maxY;
+			this.maxZ = maxZ;
+			this.midX = (minX + maxX) / 2.;
+			this.midY = (minY + maxY) / 2.;
+			this.midZ = (minZ + maxZ) / 2.;
+		}
+
+		/** Replies if the given point is inside this node.
+		 * 
+		 * @param p
+		 * @return <code>true</code> if the point is inside.
+		 */
+		public boolean contains(SpacePoint p) {
+			return p.getX()>=this.minX && p.getX()<=this.maxX
+				&& p.getY()>=this.minY && p.getY()<=this.maxY
+				&& p.getZ()>=this.minZ && p.getZ()<=this.maxZ;
+		}
+
+		/** Replies the index of the child which contains the given point.
+		 * 
+		 * @param p
+		 * @return the index of the child.
+		 */
+		public int childIndex(SpacePoint p) {
+			int idx = 0;
+			if (p.getX()>=this.midX) idx |= 1;
+			if (p.getY()>=this.midY) idx |= 2;
+			if (this.children.length>4 && p.getZ()>=this.midZ) idx |= 4;
+			return idx;
+		}
+
+		/** Replies the squared distance between this node and the given point.
+		 * 
+		 * @param p
+		 * @return the squared distance, or zero if the point is inside.
+		 */
+		public double distanceSquared(SpacePoint p) {
+			double dx = Math.max(0, Math.max(this.minX - p.getX(), p.getX() - this.maxX));
+			double dy = Math.max(0, Math.max(this.minY - p.getY(), p.getY() - this.maxY));
+			double dz = Math.max(0, Math.max(this.minZ - p.getZ(), p.getZ() - this.maxZ));
+			return dx*dx + dy*dy + dz*dz;
+		}
+
+		/** Add an object in this leaf.
+		 * 
+		 * @param entry
+		 */
+		public void add(TreeEntry<T> entry) {
+			this.entries.add(entry);
+			entry.node = this;
+		}
+
+		/** Replies if this node is a leaf without object.
+		 * 
+		 * @return <code>true</code> if this node is an empty leaf.
+		 */
+		public boolean isEmptyLeaf() {
+			return this.children==null && this.entries.isEmpty();
+		}
+
+		/** Replies if the children of this node are leaves
+		 * which contain less objects than the given capacity.
+		 * 
+		 * @param capacity
+		 * @return <code>true</code> if the children may be merged.
+		 */
+		public boolean isMergeable(int capacity) {
+			int count = 0;
+			for(Node<T> child : this.children) {
+				if (child.children!=null) return false;
+				count += child.entries.size();
+			}
+			return count<=capacity;
+		}
+
+		/** Create the children of this node.
+		 * 
+		 * @param is3d indicates if the space has three dimensions.
+		 */
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		public void split(boolean is3d) {
+			int count = is3d ? 8 : 4;
+			Node<T>[] c = new Node[count];
+			for(int i=0; i<count; ++i) {
+				boolean upperX = (i & 1)!=0;
+				boolean upperY = (i & 2)!=0;
+				boolean upperZ = (i & 4)!=0;
+				c[i] = new Node<T>(this, this.depth+1,
+						upperX ? this.midX : this.minX,
+						upperY ? this.midY : this.minY,
+						is3d ? (upperZ ? this.midZ : this.minZ) : this.minZ,
+						upperX ? this.maxX : this.midX,
+						upperY ? this.maxY : this.midY,
+						is3d ? (upperZ ? this.maxZ : this.midZ) : this.maxZ);
+			}
+			this.children = c;
+		}
+
+	}
+
+}
@@ -0,0 +1,61 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.continuousspace.influence;
+
+import org.janusproject.continuousspace.environment.SituatedBody;
+
+/** This class defines an influence from a body to the continuous environment.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public abstract class Influence {
+
+	private final SituatedBody emitter;
+	
+	/**
+	 * @param emitter is the emitter of the influence.
+	 */
+	public Influence(SituatedBody emitter) {
+		assert(emitter!=null);
+		this.emitter = emitter;
+	}
+	
+	/** Replies the influence emitter.
+	 * 
+	 * @return the influence emitter.
+	 */
+	public SituatedBody getEmitter() {
+		return this.emitter;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return this.emitter.toString();
+	}
+		
+}
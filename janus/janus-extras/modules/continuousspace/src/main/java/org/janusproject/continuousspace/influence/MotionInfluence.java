@@ -0,0 +1,87 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.continuousspace.influence;
+
+import org.janusproject.continuousspace.environment.SituatedBody;
+
+/** This class defines a motion influence in a continuous space.
+ * <p>
+ * The motion is a translation of the body during one step
+ * of the environment.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class MotionInfluence extends Influence {
+
+	private final double dx;
+	private final double dy;
+	private final double dz;
+	
+	/**
+	 * @param emitter is the emitter of the influence.
+	 * @param dx is the translation along the <var>x</var> axis.
+	 * @param dy is the translation along the <var>y</var> axis.
+	 * @param dz is the translation along the <var>z</var> axis.
+	 */
+	public MotionInfluence(SituatedBody emitter, double dx, double dy, double dz) {
+		super(emitter);
+		this.dx = dx;
+		this.dy = dy;
+		this.dz = dz;
+	}
+	
+	/** Replies the translation along the <var>x</var> axis.
+	 * 
+	 * @return the translation along the <var>x</var> axis.
+	 */
+	public double getLinearMotionX() {
+		return this.dx;
+	}
+	
+	/** Replies the translation along the <var>y</var> axis.
+	 * 
+	 * @return the translation along the <var>y</var> axis.
+	 */
+	public double getLinearMotionY() {
+		return this.dy;
+	}
+	
+	/** Replies the translation along the <var>z</var> axis.
+	 * 
+	 * @return the translation along the <var>z</var> axis.
+	 */
+	public double getLinearMotionZ() {
+		return this.dz;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return super.toString()+": ("+this.dx+";"+this.dy+";"+this.dz+")"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+		
+}
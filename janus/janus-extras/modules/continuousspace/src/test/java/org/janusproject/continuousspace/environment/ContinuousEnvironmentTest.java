@@ -0,0 +1,163 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.continuousspace.environment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+import org.janusproject.continuousspace.SpacePoint;
+import org.janusproject.continuousspace.index.GridIndex;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see ContinuousEnvironment
+ */
+public class ContinuousEnvironmentTest extends TestCase {
+
+	private ContinuousEnvironment environment;
+	private SituatedBody b1;
+	private SituatedBody b2;
+	private SituatedBody b3;
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		this.environment = new ContinuousEnvironment(
+				new GridIndex<SituatedBody>(2, 10.),
+				new StandardInfluenceSolver(new SpacePoint(0, 0), new SpacePoint(100, 100), false),
+				null);
+		this.b1 = new SituatedBody(null, new SpacePoint(10, 10));
+		this.b2 = new SituatedBody(null, new SpacePoint(15, 10));
+		this.b3 = new SituatedBody(null, new SpacePoint(50, 50));
+		assertTrue(this.environment.addBody(this.b1));
+		assertTrue(this.environment.addBody(this.b2));
+		assertTrue(this.environment.addBody(this.b3));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		this.environment = null;
+		this.b1 = this.b2 = this.b3 = null;
+		super.tearDown();
+	}
+
+	/**
+	 */
+	public void testAddBody() {
+		assertFalse(this.environment.addBody(this.b1));
+		assertSame(this.environment, this.b1.getEnvironment());
+		assertEquals(3, this.environment.getBodyCount());
+		assertEquals(Arrays.asList(this.b1, this.b2, this.b3), this.environment.getBodies());
+	}
+
+	/**
+	 */
+	public void testRemoveBody() {
+		assertTrue(this.environment.removeBody(this.b2));
+		assertFalse(this.environment.removeBody(this.b2));
+		assertNull(this.b2.getEnvironment());
+		assertEquals(2, this.environment.getBodyCount());
+		assertEquals(Arrays.asList(this.b1, this.b3), this.environment.getBodies());
+		assertTrue(this.b1.perceive(10).isEmpty());
+		assertTrue(this.environment.addBody(this.b2));
+		assertEquals(Arrays.asList(this.b1, this.b3, this.b2), this.environment.getBodies());
+	}
+
+	/**
+	 */
+	public void testRemoveBodyChurn() {
+		List<SituatedBody> bodies = new ArrayList<SituatedBody>();
+		for(int i=0; i<10000; ++i) {
+			SituatedBody body = new SituatedBody(null, new SpacePoint(i % 100, i / 100));
+			bodies.add(body);
+			assertTrue(this.environment.addBody(body));
+		}
+		for(SituatedBody body : bodies) {
+			assertTrue(this.environment.removeBody(body));
+		}
+		assertEquals(Arrays.asList(this.b1, this.b2, this.b3), this.environment.getBodies());
+	}
+
+	/**
+	 */
+	public void testPerceive() {
+		assertEquals(Arrays.asList(this.b2), this.b1.perceive(10));
+		assertEquals(Arrays.asList(this.b2), this.b1.perceiveNearest(1));
+		assertEquals(Arrays.asList(this.b2, this.b3), this.b1.perceiveNearest(5));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testRunStep() throws Exception {
+		assertTrue(this.b1.move(5, 5, 0));
+		assertTrue(this.b3.move(100, 0, 0));
+		// Perceptions reply the state at the beginning of the step
+		assertEquals(new SpacePoint(10, 10), this.b1.getPosition());
+		this.environment.runStep();
+		assertEquals(1, this.environment.getStepCount());
+		assertEquals(new SpacePoint(15, 15), this.b1.getPosition());
+		assertEquals(new SpacePoint(100, 50), this.b3.getPosition());
+		assertEquals(Arrays.asList(this.b1), this.environment.findInRadius(new SpacePoint(15, 15), 1));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testRunStepParallel() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			ContinuousEnvironment env = new ContinuousEnvironment(
+					new GridIndex<SituatedBody>(2, 10.),
+					new StandardInfluenceSolver(), executor);
+			env.setPartitionCount(4);
+			List<SituatedBody> bodies = new ArrayList<SituatedBody>();
+			for(int i=0; i<1000; ++i) {
+				SituatedBody body = new SituatedBody(null, new SpacePoint(i, 0));
+				bodies.add(body);
+				env.addBody(body);
+				body.move(0, i, 0);
+			}
+			env.runStep();
+			for(int i=0; i<1000; ++i) {
+				assertEquals(new SpacePoint(i, i), bodies.get(i).getPosition());
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
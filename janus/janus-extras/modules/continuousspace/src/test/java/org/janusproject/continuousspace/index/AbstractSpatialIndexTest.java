@@ -0,0 +1,229 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.continuousspace.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.janusproject.continuousspace.SpacePoint;
+
+/**
+ * Compare the replies of a spatial index with a brute-force search.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public abstract class AbstractSpatialIndexTest extends TestCase {
+
+	/** Size of the space in which most of the objects are located.
+	 */
+	protected static final double SPACE_SIZE = 100.;
+
+	private static final int OBJECT_COUNT = 500;
+
+	private Random random;
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		this.random = new Random(1234);
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		this.random = null;
+		super.tearDown();
+	}
+
+	/** Create the index to test.
+	 * 
+	 * @param dimension is the number of dimensions of the space.
+	 * @return the index.
+	 */
+	protected abstract SpatialIndex<Integer> createIndex(int dimension);
+
+	/** Replies a random point; some points are outside
+	 * the space of size {@link #SPACE_SIZE}.
+	 */
+	private SpacePoint randomPoint(int dimension) {
+		double min = -SPACE_SIZE / 5.;
+		double range = SPACE_SIZE * 1.4;
+		double x = min + this.random.nextDouble() * range;
+		double y = min + this.random.nextDouble() * range;
+		if (dimension==3) {
+			return new SpacePoint(x, y, min + this.random.nextDouble() * range);
+		}
+		return new SpacePoint(x, y);
+	}
+
+	private Map<Integer,SpacePoint> fill(SpatialIndex<Integer> index, int dimension) {
+		Map<Integer,SpacePoint> positions = new LinkedHashMap<Integer,SpacePoint>();
+		SpacePoint p;
+		for(int i=0; i<OBJECT_COUNT; ++i) {
+			p = randomPoint(dimension);
+			index.insert(i, p);
+			positions.put(i, p);
+		}
+		return positions;
+	}
+
+	private void churn(SpatialIndex<Integer> index, Map<Integer,SpacePoint> positions, int dimension) {
+		SpacePoint p;
+		for(int i=0; i<OBJECT_COUNT; ++i) {
+			Integer object = this.random.nextInt(OBJECT_COUNT);
+			if (this.random.nextInt(4)==0) {
+				assertEquals(positions.containsKey(object), index.remove(object));
+				positions.remove(object);
+			}
+			else {
+				p = randomPoint(dimension);
+				index.insert(object, p);
+				positions.put(object, p);
+			}
+		}
+	}
+
+	private static Set<Integer> bruteForceRadius(Map<Integer,SpacePoint> positions, SpacePoint center, double radius) {
+		Set<Integer> result = new HashSet<Integer>();
+		for(Map.Entry<Integer,SpacePoint> entry : positions.entrySet()) {
+			if (entry.getValue().distance(center)<=radius) {
+				result.add(entry.getKey());
+			}
+		}
+		return result;
+	}
+
+	private static List<Integer> bruteForceNearest(final Map<Integer,SpacePoint> positions, final SpacePoint center, int k) {
+		List<Integer> objects = new ArrayList<Integer>(positions.keySet());
+		Collections.sort(objects, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Double.compare(
+						positions.get(o1).distanceSquared(center),
+						positions.get(o2).distanceSquared(center));
+			}
+		});
+		return objects.subList(0, Math.min(k, objects.size()));
+	}
+
+	private void assertQueries(SpatialIndex<Integer> index, Map<Integer,SpacePoint> positions, int dimension) {
+		assertEquals(positions.size(), index.size());
+		for(Map.Entry<Integer,SpacePoint> entry : positions.entrySet()) {
+			assertEquals(entry.getValue(), index.getPosition(entry.getKey()));
+		}
+		SpacePoint center;
+		for(int i=0; i<50; ++i) {
+			center = randomPoint(dimension);
+			double radius = this.random.nextDouble() * SPACE_SIZE / 4.;
+			List<Integer> found = new ArrayList<Integer>();
+			index.findInRadius(center, radius, found);
+			assertEquals(bruteForceRadius(positions, center, radius), new HashSet<Integer>(found));
+			assertEquals(found.size(), new HashSet<Integer>(found).size());
+
+			int k = 1 + this.random.nextInt(20);
+			assertEquals(bruteForceNearest(positions, center, k), index.findNearest(center, k));
+		}
+	}
+
+	private void doTestQueries(int dimension) {
+		SpatialIndex<Integer> index = createIndex(dimension);
+		assertEquals(dimension, index.getDimension());
+		Map<Integer,SpacePoint> positions = fill(index, dimension);
+		assertQueries(index, positions, dimension);
+		churn(index, positions, dimension);
+		assertQueries(index, positions, dimension);
+	}
+
+	/**
+	 */
+	public void testQueries2D() {
+		doTestQueries(2);
+	}
+
+	/**
+	 */
+	public void testQueries3D() {
+		doTestQueries(3);
+	}
+
+	/**
+	 */
+	public void testFindNearestAll() {
+		SpatialIndex<Integer> index = createIndex(2);
+		Map<Integer,SpacePoint> positions = new LinkedHashMap<Integer,SpacePoint>();
+		for(int i=0; i<5; ++i) {
+			SpacePoint p = randomPoint(2);
+			index.insert(i, p);
+			positions.put(i, p);
+		}
+		SpacePoint center = randomPoint(2);
+		assertEquals(bruteForceNearest(positions, center, 5), index.findNearest(center, 10));
+		assertTrue(index.findNearest(center, 0).isEmpty());
+	}
+
+	/**
+	 */
+	public void testRemoveClear() {
+		SpatialIndex<Integer> index = createIndex(2);
+		index.insert(1, new SpacePoint(10, 10));
+		index.insert(2, new SpacePoint(-50, 10));
+		assertEquals(2, index.size());
+		assertTrue(index.remove(2));
+		assertFalse(index.remove(2));
+		assertNull(index.getPosition(2));
+		assertEquals(1, index.size());
+		index.clear();
+		assertEquals(0, index.size());
+		assertNull(index.getPosition(1));
+		List<Integer> found = new ArrayList<Integer>();
+		index.findInRadius(new SpacePoint(10, 10), 10, found);
+		assertTrue(found.isEmpty());
+	}
+
+	/**
+	 */
+	public void testProjection2D() {
+		SpatialIndex<Integer> index = createIndex(2);
+		index.insert(1, new SpacePoint(10, 10, 50));
+		assertEquals(new SpacePoint(10, 10), index.getPosition(1));
+		List<Integer> found = new ArrayList<Integer>();
+		index.findInRadius(new SpacePoint(10, 10, -50), 1, found);
+		assertEquals(Collections.singletonList(1), found);
+	}
+
+}
@@ -0,0 +1,45 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.continuousspace.index;
+
+import org.janusproject.continuousspace.SpacePoint;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see TreeIndex
+ */
+public class TreeIndexTest extends AbstractSpatialIndexTest {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected SpatialIndex<Integer> createIndex(int dimension) {
+		return new TreeIndex<Integer>(dimension,
+				new SpacePoint(0, 0, 0),
+				new SpacePoint(SPACE_SIZE, SPACE_SIZE, SPACE_SIZE),
+				4);
+	}
+
+}
@@ -24,7 +24,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -231,12 +230,7 @@ public abstract class EcoAgent extends Agent implements ChannelInteractable {
 	 */
 	protected final EcoRelation getAcquaintance(EcoRelation pattern) {
 		assert(pattern!=null);
-		for(EcoRelation relation :this.ecoEntity.getAcquaintances()) {
-			if (pattern.equals(relation)) {
-				return relation;
-			}
-		}
-		return null;
+		return this.ecoEntity.findAcquaintance(pattern);
 	}
 	
 	/**
@@ -248,14 +242,7 @@ public abstract class EcoAgent extends Agent implements ChannelInteractable {
 	 */
 	protected final <T extends EcoRelation> Set<T> getAcquaintances(Class<? extends T> pattern) {
 		assert(pattern!=null);
-		
-		Set<T> searchedAcq = new HashSet<T>();
-		for(EcoRelation relation :this.ecoEntity.getAcquaintances()) {
-			if (pattern.isAssignableFrom(relation.getClass())) {
-				searchedAcq.add(pattern.cast(relation));
-			}
-		}	
-		return searchedAcq;
+		return this.ecoEntity.getAcquaintances(pattern);
 	}
 	
 	/**
@@ -269,14 +256,11 @@ public abstract class EcoAgent extends Agent implements ChannelInteractable {
 		assert(patterns!=null&&patterns.size()>0);
 		
 		Map<Class<? extends T>,T> searchedAcq = new HashMap<Class<? extends T>,T>();
-		for(EcoRelation relation :this.ecoEntity.getAcquaintances()) {
-			for (Class<? extends T> pattern : patterns) {
-				if (pattern.isAssignableFrom(relation.getClass())) {
-					searchedAcq.put(pattern, pattern.cast(relation));
-				}
+		for (Class<? extends T> pattern : patterns) {
+			for(T relation : this.ecoEntity.getAcquaintances(pattern)) {
+				searchedAcq.put(pattern, relation);
 			}
-
-		}	
+		}
 		return searchedAcq;
 	}
 
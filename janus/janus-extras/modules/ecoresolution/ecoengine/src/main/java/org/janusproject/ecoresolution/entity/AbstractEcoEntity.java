@@ -49,6 +49,7 @@ import org.janusproject.ecoresolution.message.EcoProblemSolverPresentationMessag
 import org.janusproject.ecoresolution.message.EcoProblemSolvingStartMessage;
 import org.janusproject.ecoresolution.relation.EcoAttack;
 import org.janusproject.ecoresolution.relation.EcoRelation;
+import org.janusproject.ecoresolution.relation.EcoRelationIndex;
 import org.janusproject.kernel.address.AgentAddress;
 import org.janusproject.kernel.message.Message;
 
@@ -74,7 +75,7 @@ public abstract class AbstractEcoEntity implements InitializableEcoEntity {
 	private EcoRelation goal = null;
 	private final Set<EcoIdentity> dependencies = new TreeSet<EcoIdentity>(EcoIdentityComparator.SINGLETON);
 	private Set<EcoAttack> attacks = new HashSet<EcoAttack>();
-	private final Set<EcoRelation> acquaintances = new HashSet<EcoRelation>();
+	private final EcoRelationIndex acquaintances = new EcoRelationIndex();
 	
 	private EcoRelation bufferedGoal = null;
 	private final Set<EcoRelation> bufferedAddedAcquaintances = new HashSet<EcoRelation>();
@@ -328,7 +329,28 @@ public abstract class AbstractEcoEntity implements InitializableEcoEntity {
 	 */
 	@Override
 	public Set<EcoRelation> getAcquaintances() {
-		return Collections.unmodifiableSet(this.acquaintances);
+		return this.acquaintances.getRelations();
+	}
+
+	/** Replies the acquaintances of the given type, including its sub-types.
+	 * 
+	 * @param <T> is the type of the acquaintances.
+	 * @param type is the type of the acquaintances.
+	 * @return the acquaintances of the given type.
+	 * @since 1.1
+	 */
+	public <T extends EcoRelation> Set<T> getAcquaintances(Class<? extends T> type) {
+		return this.acquaintances.getRelations(type);
+	}
+
+	/** Replies the first acquaintance which is matching the given pattern.
+	 * 
+	 * @param pattern
+	 * @return the acquaintance which is matching the given pattern, or <code>null</code>.
+	 * @since 1.1
+	 */
+	public EcoRelation findAcquaintance(EcoRelation pattern) {
+		return this.acquaintances.find(pattern);
 	}
 
 	/**
@@ -405,15 +427,10 @@ public abstract class AbstractEcoEntity implements InitializableEcoEntity {
 	private boolean removeConflictingAcquaintances(Collection<EcoRelation> acquaintances) {
 		boolean changed = false;
 		for(EcoRelation newRelation : acquaintances) {
-			Iterator<EcoRelation> iterator = this.acquaintances.iterator();
-			while (iterator.hasNext()) {
-				EcoRelation oldRelation = iterator.next();
-				if (newRelation.isConflict(oldRelation)) {
-					iterator.remove();
-					changed = true;
-					notifyOtherPartyAboutAcquaintanceChange(oldRelation, false);
-					fireAcquaintanceRemoval(oldRelation);
-				}
+			for(EcoRelation oldRelation : this.acquaintances.removeConflicts(newRelation)) {
+				changed = true;
+				notifyOtherPartyAboutAcquaintanceChange(oldRelation, false);
+				fireAcquaintanceRemoval(oldRelation);
 			}
 		}
 		return changed;
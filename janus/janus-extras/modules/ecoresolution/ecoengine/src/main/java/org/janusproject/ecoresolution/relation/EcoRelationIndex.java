@@ -0,0 +1,302 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.ecoresolution.relation;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.janusproject.ecoresolution.identity.AnyIdentity;
+import org.janusproject.ecoresolution.identity.EcoIdentity;
+import org.janusproject.ecoresolution.identity.NoIdentity;
+
+/** Set of eco-relations which is indexed by relation type
+ * and by participant.
+ * <p>
+ * The relations of a given type, or the relations in which
+ * a given eco-entity is participating, are replied without
+ * testing all the relations of the set.
+ * <p>
+ * The conflicts are searched among the relations of the participants
+ * of the given relation, and among the relations which have a wildcard
+ * participant. This index assumes that two relations between identified
+ * eco-entities are in conflict only if they have a common participant;
+ * the relations with a wildcard participant are compared to all the
+ * relations.
+ * <p>
+ * This set is not thread-safe.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $Groupid$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class EcoRelationIndex implements Iterable<EcoRelation> {
+
+	private final Set<EcoRelation> relations = new HashSet<EcoRelation>();
+	private final Map<Class<? extends EcoRelation>,Set<EcoRelation>> byType = new HashMap<Class<? extends EcoRelation>,Set<EcoRelation>>();
+	private final Map<EcoIdentity,Set<EcoRelation>> byParticipant = new HashMap<EcoIdentity,Set<EcoRelation>>();
+	private final Set<EcoRelation> wildcards = new HashSet<EcoRelation>();
+
+	/**
+	 */
+	public EcoRelationIndex() {
+		//
+	}
+
+	/** Replies the number of relations.
+	 * 
+	 * @return the number of relations.
+	 */
+	public int size() {
+		return this.relations.size();
+	}
+
+	/** Replies if this set contains no relation.
+	 * 
+	 * @return <code>true</code> if the set is empty.
+	 */
+	public boolean isEmpty() {
+		return this.relations.isEmpty();
+	}
+
+	/** Replies if this set contains the given relation.
+	 * 
+	 * @param relation
+	 * @return <code>true</code> if the relation is inside the set.
+	 */
+	public boolean contains(EcoRelation relation) {
+		return this.relations.contains(relation);
+	}
+
+	/** Replies the relations.
+	 * 
+	 * @return an unmodifiable view on the relations.
+	 */
+	public Set<EcoRelation> getRelations() {
+		return Collections.unmodifiableSet(this.relations);
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public Iterator<EcoRelation> iterator() {
+		return getRelations().iterator();
+	}
+
+	/** Add a relation.
+	 * 
+	 * @param relation
+	 * @return <code>true</code> if the relation was added,
+	 * <code>false</code> if it is already inside the set.
+	 */
+	public boolean add(EcoRelation relation) {
+		if (!this.relations.add(relation)) return false;
+		put(this.byType, relation.getClass(), relation);
+		EcoIdentity master = relation.getMaster();
+		EcoIdentity slave = relation.getSlave();
+		if (isIndexable(master)) {
+			put(this.byParticipant, master, relation);
+		}
+		if (isIndexable(slave) && !slave.equals(master)) {
+			put(this.byParticipant, slave, relation);
+		}
+		if (!isIndexable(master) || !isIndexable(slave)) {
+			this.wildcards.add(relation);
+		}
+		return true;
+	}
+
+	/** Remove a relation.
+	 * 
+	 * @param relation
+	 * @return <code>true</code> if the relation was removed,
+	 * <code>false</code> if it is not inside the set.
+	 */
+	public boolean remove(EcoRelation relation) {
+		if (!this.relations.remove(relation)) return false;
+		unindex(relation);
+		return true;
+	}
+
+	/** Remove all the relations.
+	 */
+	public void clear() {
+		this.relations.clear();
+		this.byType.clear();
+		this.byParticipant.clear();
+		this.wildcards.clear();
+	}
+
+	private void unindex(EcoRelation relation) {
+		delete(this.byType, relation.getClass(), relation);
+		EcoIdentity master = relation.getMaster();
+		EcoIdentity slave = relation.getSlave();
+		if (isIndexable(master)) {
+			delete(this.byParticipant, master, relation);
+		}
+		if (isIndexable(slave)) {
+			delete(this.byParticipant, slave, relation);
+		}
+		this.wildcards.remove(relation);
+	}
+
+	private static boolean isIndexable(EcoIdentity identity) {
+		return identity!=null
+			&& !(identity instanceof AnyIdentity)
+			&& !(identity instanceof NoIdentity);
+	}
+
+	private static <K> void put(Map<K,Set<EcoRelation>> map, K key, EcoRelation relation) {
+		Set<EcoRelation> set = map.get(key);
+		if (set==null) {
+			set = new HashSet<EcoRelation>();
+			map.put(key, set);
+		}
+		set.add(relation);
+	}
+
+	private static <K> void delete(Map<K,Set<EcoRelation>> map, K key, EcoRelation relation) {
+		Set<EcoRelation> set = map.get(key);
+		if (set!=null && set.remove(relation) && set.isEmpty()) {
+			map.remove(key);
+		}
+	}
+
+	/** Remove the relations which are in conflict with the given relation.
+	 * 
+	 * @param relation
+	 * @return the removed relations.
+	 * @see EcoRelation#isConflict(EcoRelation)
+	 */
+	public Set<EcoRelation> removeConflicts(EcoRelation relation) {
+		Set<EcoRelation> removed = new HashSet<EcoRelation>();
+		EcoIdentity master = relation.getMaster();
+		EcoIdentity slave = relation.getSlave();
+		if (!isIndexable(master) || !isIndexable(slave)) {
+			// A wildcard may be in conflict with any relation
+			for(EcoRelation r : this.relations) {
+				if (relation.isConflict(r)) {
+					removed.add(r);
+				}
+			}
+		}
+		else {
+			collectConflicts(relation, this.byParticipant.get(master), removed);
+			collectConflicts(relation, this.byParticipant.get(slave), removed);
+			collectConflicts(relation, this.wildcards, removed);
+		}
+		for(EcoRelation r : removed) {
+			this.relations.remove(r);
+			unindex(r);
+		}
+		return removed;
+	}
+
+	private static void collectConflicts(EcoRelation relation, Set<EcoRelation> candidates, Set<EcoRelation> conflicts) {
+		if (candidates!=null) {
+			for(EcoRelation r : candidates) {
+				if (relation.isConflict(r)) {
+					conflicts.add(r);
+				}
+			}
+		}
+	}
+
+	/** Replies the relations of the given type, including its sub-types.
+	 * 
+	 * @param <T> is the type of the relations.
+	 * @param type is the type of the relations.
+	 * @return the relations of the given type.
+	 */
+	public <T extends EcoRelation> Set<T> getRelations(Class<? extends T> type) {
+		Set<T> result = new HashSet<T>();
+		for(Entry<Class<? extends EcoRelation>,Set<EcoRelation>> entry : this.byType.entrySet()) {
+			if (type.isAssignableFrom(entry.getKey())) {
+				for(EcoRelation relation : entry.getValue()) {
+					result.add(type.cast(relation));
+				}
+			}
+		}
+		return result;
+	}
+
+	/** Replies the relations in which the given eco-entity is participating.
+	 * 
+	 * @param participant
+	 * @return the relations of the participant.
+	 */
+	public Set<EcoRelation> getRelations(EcoIdentity participant) {
+		Set<EcoRelation> set = this.byParticipant.get(participant);
+		if (set==null) return Collections.emptySet();
+		return Collections.unmodifiableSet(set);
+	}
+
+	/** Replies the relations of the given type in which the given
+	 * eco-entity is participating.
+	 * 
+	 * @param <T> is the type of the relations.
+	 * @param type is the type of the relations.
+	 * @param participant
+	 * @return the relations of the given type.
+	 */
+	public <T extends EcoRelation> Set<T> getRelations(Class<? extends T> type, EcoIdentity participant) {
+		Set<T> result = new HashSet<T>();
+		for(EcoRelation relation : getRelations(participant)) {
+			if (type.isInstance(relation)) {
+				result.add(type.cast(relation));
+			}
+		}
+		return result;
+	}
+
+	/** Replies the first relation which is matching the given pattern.
+	 * If one of the participants of the pattern is not a wildcard,
+	 * only the relations of this participant are tested.
+	 * 
+	 * @param pattern
+	 * @return the relation which is matching the pattern, or <code>null</code>.
+	 */
+	public EcoRelation find(EcoRelation pattern) {
+		Iterable<EcoRelation> candidates;
+		if (isIndexable(pattern.getMaster())) {
+			candidates = getRelations(pattern.getMaster());
+		}
+		else if (isIndexable(pattern.getSlave())) {
+			candidates = getRelations(pattern.getSlave());
+		}
+		else {
+			candidates = this.relations;
+		}
+		for(EcoRelation relation : candidates) {
+			if (pattern.equals(relation)) {
+				return relation;
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,192 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.ecoresolution.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.janusproject.ecoresolution.entity.AbstractEcoEntity;
+import org.janusproject.ecoresolution.identity.AgentIdentity;
+import org.janusproject.ecoresolution.identity.EcoIdentity;
+import org.janusproject.ecoresolution.sm.EcoState;
+import org.janusproject.ecoresolution.sm.EcoStateMachine;
+import org.janusproject.kernel.crio.core.AddressUtil;
+import org.janusproject.kernel.message.Message;
+
+/** Eco-entity which is solved by a {@link BulkEcoProblem}
+ * without being an agent.
+ * <p>
+ * The messages of the entity are delivered by the problem
+ * in memory, and its state machine is run by the threads of
+ * the problem.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $Groupid$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public abstract class BulkEcoEntity extends AbstractEcoEntity {
+
+	private final Queue<Message> mailbox = new ConcurrentLinkedQueue<Message>();
+	private final EcoStateMachine stateMachine;
+	private BulkEcoProblem problem = null;
+	private boolean changed = false;
+	private volatile boolean killed = false;
+
+	/**
+	 * @param identity is the identity of the entity.
+	 */
+	public BulkEcoEntity(EcoIdentity identity) {
+		super(identity);
+		this.stateMachine = new EcoStateMachine(this);
+	}
+
+	/** Create an entity with a random identity.
+	 */
+	public BulkEcoEntity() {
+		this(new AgentIdentity(AddressUtil.createAgentAddress(UUID.randomUUID())));
+	}
+
+	/** Replies the state machine of this entity.
+	 * 
+	 * @return the state machine.
+	 */
+	public EcoStateMachine getStateMachine() {
+		return this.stateMachine;
+	}
+
+	/** Replies the current state of this entity.
+	 * 
+	 * @return the current state.
+	 */
+	public EcoState getEcoState() {
+		return this.stateMachine.getState();
+	}
+
+	/** Replies the problem in which this entity is participating.
+	 * 
+	 * @return the problem, or <code>null</code>.
+	 */
+	public BulkEcoProblem getProblem() {
+		return this.problem;
+	}
+
+	/** Set the problem in which this entity is participating.
+	 * 
+	 * @param problem
+	 */
+	void setProblem(BulkEcoProblem problem) {
+		this.problem = problem;
+	}
+
+	/** Replies if this entity was killed at the end of the solving.
+	 * 
+	 * @return <code>true</code> if the entity was killed.
+	 */
+	public boolean isKilled() {
+		return this.killed;
+	}
+
+	/** Put a message in the mailbox of this entity.
+	 * 
+	 * @param message
+	 */
+	void post(Message message) {
+		this.mailbox.add(message);
+	}
+
+	/** Replies if messages are waiting in the mailbox of this entity.
+	 * 
+	 * @return <code>true</code> if messages are waiting.
+	 */
+	boolean hasMessages() {
+		return !this.mailbox.isEmpty();
+	}
+
+	/** Run the state machine of this entity once.
+	 * 
+	 * @return <code>true</code> if something has changed in the entity,
+	 * <code>false</code> if the entity is waiting for messages.
+	 */
+	boolean step() {
+		if (this.killed) return false;
+		this.changed = false;
+		boolean run = this.stateMachine.run();
+		return run || this.changed;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean updateGoal() {
+		boolean c = super.updateGoal();
+		if (c) this.changed = true;
+		return c;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean updateKnowledge() {
+		boolean c = super.updateKnowledge();
+		if (c) this.changed = true;
+		return c;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Iterable<Message> getMessages() {
+		List<Message> messages = new ArrayList<Message>();
+		Message m;
+		while ((m = this.mailbox.poll())!=null) {
+			messages.add(m);
+		}
+		return messages;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void sendMessage(Message message, EcoIdentity receiver) {
+		BulkEcoProblem p = this.problem;
+		if (p!=null) {
+			p.deliver(message, receiver);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void doKill() {
+		this.killed = true;
+	}
+
+}
@@ -0,0 +1,644 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.ecoresolution.solver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.janusproject.ecoresolution.event.AcquaintanceEvent;
+import org.janusproject.ecoresolution.event.AttackEvent;
+import org.janusproject.ecoresolution.event.DependencyEvent;
+import org.janusproject.ecoresolution.event.EcoEntityListener;
+import org.janusproject.ecoresolution.event.EcoStateMachineListener;
+import org.janusproject.ecoresolution.event.GoalChangeEvent;
+import org.janusproject.ecoresolution.identity.AgentIdentity;
+import org.janusproject.ecoresolution.identity.EcoIdentity;
+import org.janusproject.ecoresolution.message.EcoInitializationDoneMessage;
+import org.janusproject.ecoresolution.message.EcoProblemSolvedMessage;
+import org.janusproject.ecoresolution.message.EcoProblemSolverPresentationMessage;
+import org.janusproject.ecoresolution.message.EcoProblemSolvingStartMessage;
+import org.janusproject.ecoresolution.problem.EcoProblem;
+import org.janusproject.ecoresolution.problem.EcoProblemMonitor;
+import org.janusproject.ecoresolution.relation.EcoAttack;
+import org.janusproject.ecoresolution.relation.EcoRelation;
+import org.janusproject.ecoresolution.sm.EcoState;
+import org.janusproject.kernel.address.AgentAddress;
+import org.janusproject.kernel.crio.core.AddressUtil;
+import org.janusproject.kernel.message.Message;
+import org.janusproject.kernel.message.MessageFactory;
+
+/** This class defines an eco-resolution problem which is solved
+ * by stepping all its eco-entities in bulk, without agents.
+ * <p>
+ * The eco-entities are linked by their goals, acquaintances,
+ * dependencies and attacks. The connected components of this graph
+ * are independent sub-problems: they are stepped in parallel, each
+ * component by only one thread. A component is not stepped when
+ * none of its entities has changed or received a message since
+ * the previous step. The components are computed again when the
+ * relations between the entities change.
+ * <p>
+ * The solving is detected with one check after each step: by the
+ * given monitor, or when all the entities are satisfied.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $Groupid$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public abstract class BulkEcoProblem extends EcoProblem {
+
+	private final Map<EcoIdentity,BulkEcoEntity> entities = new LinkedHashMap<EcoIdentity,BulkEcoEntity>();
+	private final AgentAddress solverAddress = AddressUtil.createAgentAddress(UUID.randomUUID());
+	private final AgentIdentity solverIdentity = new AgentIdentity(this.solverAddress);
+	private final Queue<Message> solverMailbox = new ConcurrentLinkedQueue<Message>();
+	private final AtomicInteger satisfiedCount = new AtomicInteger();
+	private volatile boolean graphChanged = true;
+	private final GraphListener graphListener = new GraphListener();
+	private final ExecutorService executor;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private long maxSteps = Long.MAX_VALUE;
+	private long steps = 0;
+	private boolean isSolved = false;
+
+	/** Create a problem which is using its own threads during the solving.
+	 */
+	public BulkEcoProblem() {
+		this(null);
+	}
+
+	/**
+	 * @param executor is the executor service used to step the components
+	 * in parallel, or <code>null</code> to create threads during the solving.
+	 */
+	public BulkEcoProblem(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	/** Replies the maximal number of components stepped in parallel.
+	 * 
+	 * @return the maximal number of parallel tasks.
+	 */
+	public int getParallelism() {
+		return this.parallelism;
+	}
+
+	/** Set the maximal number of components stepped in parallel.
+	 * 
+	 * @param parallelism is the maximal number of parallel tasks.
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/** Replies the maximal number of steps of the solving.
+	 * 
+	 * @return the maximal number of steps.
+	 */
+	public long getMaxSteps() {
+		return this.maxSteps;
+	}
+
+	/** Set the maximal number of steps of the solving.
+	 * 
+	 * @param steps is the maximal number of steps.
+	 */
+	public void setMaxSteps(long steps) {
+		this.maxSteps = Math.max(1, steps);
+	}
+
+	/** Replies the number of steps run by the last solving.
+	 * 
+	 * @return the number of steps.
+	 */
+	public long getStepCount() {
+		return this.steps;
+	}
+
+	/** Replies if the last solving has solved the problem.
+	 * 
+	 * @return <code>true</code> if the problem is solved; <code>false</code>
+	 * if the solving was stopped before.
+	 */
+	public boolean isSolved() {
+		return this.isSolved;
+	}
+
+	/** Replies the eco-entities of this problem.
+	 * 
+	 * @return the eco-entities.
+	 */
+	public Collection<BulkEcoEntity> getEntities() {
+		return Collections.unmodifiableCollection(this.entities.values());
+	}
+
+	/** Initialize the given eco-entity and register it in this problem.
+	 * <p>
+	 * If goal is not <code>null</code>, the goal's master entity must be the given <var>entity</var>.
+	 * For each acquaintance, the relation master must be the given <var>entity</var>.
+	 * 
+	 * @param entity is the entity which is participating to the given relation.
+	 * @param goal is the goal of the entity.
+	 * @param aquaintances is the knowledge to insert at startup.
+	 */
+	protected void init(BulkEcoEntity entity, EcoRelation goal, EcoRelation... aquaintances) {
+		EcoProblem.init(entity, goal, aquaintances);
+		if (this.entities.put(entity.getIdentity(), entity)==null) {
+			entity.setProblem(this);
+			entity.addEcoEntityListener(this.graphListener);
+			entity.getStateMachine().addEcoStateMachineListener(new SatisfactionListener());
+		}
+	}
+
+	/** Deliver a message to an eco-entity, or to the solver.
+	 * 
+	 * @param message
+	 * @param receiver
+	 */
+	void deliver(Message message, EcoIdentity receiver) {
+		if (this.solverIdentity.equals(receiver)) {
+			this.solverMailbox.add(message);
+		}
+		else {
+			BulkEcoEntity entity = this.entities.get(receiver);
+			if (entity!=null) {
+				entity.post(message);
+			}
+		}
+	}
+
+	private void broadcast(Message message) {
+		SolverMessageFactory.setSender(message, this.solverAddress);
+		for(BulkEcoEntity entity : this.entities.values()) {
+			entity.post(message);
+		}
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public final void solve(EcoProblemMonitor monitor) {
+		this.steps = 0;
+		this.isSolved = false;
+		ExecutorService service = this.executor;
+		boolean ownExecutor = false;
+		if (service==null && this.parallelism>1) {
+			service = Executors.newFixedThreadPool(this.parallelism);
+			ownExecutor = true;
+		}
+		try {
+			int count = this.entities.size();
+			int initialized = 0;
+			boolean started = false;
+			boolean active = true;
+			List<List<Component>> buckets = null;
+			Message message;
+
+			broadcast(new EcoProblemSolverPresentationMessage());
+
+			while (active && this.steps<this.maxSteps) {
+				if (this.graphChanged || buckets==null) {
+					this.graphChanged = false;
+					buckets = partition(computeComponents());
+				}
+
+				active = step(buckets, service);
+				++this.steps;
+
+				while ((message = this.solverMailbox.poll())!=null) {
+					if (message instanceof EcoInitializationDoneMessage) {
+						++initialized;
+					}
+					active = true;
+				}
+				if (!started && initialized>=count) {
+					started = true;
+					broadcast(new EcoProblemSolvingStartMessage());
+					active = true;
+				}
+
+				// Aggregate check of the solving
+				if (started) {
+					this.isSolved = (monitor!=null)
+							? monitor.isProblemSolved()
+							: this.satisfiedCount.get()>=count;
+					if (this.isSolved) {
+						broadcast(new EcoProblemSolvedMessage());
+						step(buckets, service);
+						active = false;
+					}
+				}
+			}
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch(ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+		finally {
+			if (ownExecutor) {
+				service.shutdown();
+			}
+		}
+	}
+
+	private boolean step(List<List<Component>> buckets, ExecutorService service) throws InterruptedException, ExecutionException {
+		boolean active = false;
+		if (service==null || buckets.size()<=1) {
+			for(List<Component> bucket : buckets) {
+				active = new StepTask(bucket).call().booleanValue() || active;
+			}
+		}
+		else {
+			List<StepTask> tasks = new ArrayList<StepTask>(buckets.size());
+			for(List<Component> bucket : buckets) {
+				tasks.add(new StepTask(bucket));
+			}
+			for(Future<Boolean> future : service.invokeAll(tasks)) {
+				active = future.get().booleanValue() || active;
+			}
+		}
+		return active;
+	}
+
+	/** Compute the connected components of the graph of the eco-entities.
+	 * 
+	 * @return the components.
+	 */
+	private List<Component> computeComponents() {
+		List<BulkEcoEntity> list = new ArrayList<BulkEcoEntity>(this.entities.values());
+		Map<EcoIdentity,Integer> indexes = new HashMap<EcoIdentity,Integer>();
+		for(int i=0; i<list.size(); ++i) {
+			indexes.put(list.get(i).getIdentity(), Integer.valueOf(i));
+		}
+		UnionFind uf = new UnionFind(list.size());
+		BulkEcoEntity entity;
+		EcoRelation goal;
+		for(int i=0; i<list.size(); ++i) {
+			entity = list.get(i);
+			goal = entity.getGoal();
+			if (goal!=null) {
+				link(uf, indexes, i, goal.getMaster());
+				link(uf, indexes, i, goal.getSlave());
+			}
+			for(EcoRelation relation : entity.getAcquaintances()) {
+				link(uf, indexes, i, relation.getMaster());
+				link(uf, indexes, i, relation.getSlave());
+			}
+			for(EcoIdentity dependency : entity.getDependencies()) {
+				link(uf, indexes, i, dependency);
+			}
+			for(EcoAttack attack : entity.getAttacks()) {
+				link(uf, indexes, i, attack.getAssailant());
+			}
+		}
+		Map<Integer,Component> components = new LinkedHashMap<Integer,Component>();
+		Integer root;
+		Component component;
+		for(int i=0; i<list.size(); ++i) {
+			root = Integer.valueOf(uf.find(i));
+			component = components.get(root);
+			if (component==null) {
+				component = new Component();
+				components.put(root, component);
+			}
+			component.entities.add(list.get(i));
+		}
+		return new ArrayList<Component>(components.values());
+	}
+
+	private static void link(UnionFind uf, Map<EcoIdentity,Integer> indexes, int entity, EcoIdentity other) {
+		if (other!=null) {
+			Integer idx = indexes.get(other);
+			if (idx!=null) {
+				uf.union(entity, idx.intValue());
+			}
+		}
+	}
+
+	/** Distribute the components in buckets of similar sizes.
+	 * 
+	 * @param components
+	 * @return the buckets.
+	 */
+	private List<List<Component>> partition(List<Component> components) {
+		Collections.sort(components, new Comparator<Component>() {
+			@Override
+			public int compare(Component o1, Component o2) {
+				return o2.entities.size() - o1.entities.size();
+			}
+		});
+		int count = Math.max(1, Math.min(this.parallelism, components.size()));
+		List<List<Component>> buckets = new ArrayList<List<Component>>(count);
+		int[] sizes = new int[count];
+		for(int i=0; i<count; ++i) {
+			buckets.add(new ArrayList<Component>());
+		}
+		int smallest;
+		for(Component component : components) {
+			// Put the component in the least loaded bucket
+			smallest = 0;
+			for(int i=1; i<count; ++i) {
+				if (sizes[i]<sizes[smallest]) smallest = i;
+			}
+			buckets.get(smallest).add(component);
+			sizes[smallest] += component.entities.size();
+		}
+		return buckets;
+	}
+
+	/**
+	 * Connected component of the graph of the eco-entities.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $Groupid$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class Component {
+
+		/** Entities in the component.
+		 */
+		public final List<BulkEcoEntity> entities = new ArrayList<BulkEcoEntity>();
+
+		/** Indicates if an entity has changed during the previous step.
+		 */
+		public boolean active = true;
+
+		/**
+		 */
+		public Component() {
+			//
+		}
+
+		/** Replies if the component must be stepped.
+		 * 
+		 * @return <code>true</code> if the component must be stepped.
+		 */
+		public boolean isRunnable() {
+			if (this.active) return true;
+			for(BulkEcoEntity entity : this.entities) {
+				if (entity.hasMessages()) return true;
+			}
+			return false;
+		}
+
+	}
+
+	/**
+	 * Task which is stepping a set of components.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $Groupid$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class StepTask implements Callable<Boolean> {
+
+		private final List<Component> components;
+
+		/**
+		 * @param components
+		 */
+		public StepTask(List<Component> components) {
+			this.components = components;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Boolean call() {
+			boolean active = false;
+			boolean componentActive;
+			for(Component component : this.components) {
+				if (component.isRunnable()) {
+					componentActive = false;
+					for(BulkEcoEntity entity : component.entities) {
+						componentActive = entity.step() || componentActive;
+					}
+					component.active = componentActive;
+					active = active || componentActive;
+				}
+			}
+			return Boolean.valueOf(active);
+		}
+
+	}
+
+	/**
+	 * Disjoint sets of entity indexes.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $Groupid$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class UnionFind {
+
+		private final int[] parents;
+
+		/**
+		 * @param size
+		 */
+		public UnionFind(int size) {
+			this.parents = new int[size];
+			for(int i=0; i<size; ++i) {
+				this.parents[i] = i;
+			}
+		}
+
+		/** Replies the representative of the set of the given element.
+		 * 
+		 * @param element
+		 * @return the representative.
+		 */
+		public int find(int element) {
+			int root = element;
+			while (this.parents[root]!=root) {
+				root = this.parents[root];
+			}
+			int e = element;
+			int next;
+			while (e!=root) {
+				next = this.parents[e];
+				this.parents[e] = root;
+				e = next;
+			}
+			return root;
+		}
+
+		/** Merge the sets of the given elements.
+		 * 
+		 * @param a
+		 * @param b
+		 */
+		public void union(int a, int b) {
+			int ra = find(a);
+			int rb = find(b);
+			if (ra!=rb) {
+				this.parents[ra] = rb;
+			}
+		}
+
+	}
+
+	/**
+	 * Listener which is detecting the changes of the relations between entities.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $Groupid$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private class GraphListener implements EcoEntityListener {
+
+		/**
+		 */
+		public GraphListener() {
+			//
+		}
+
+		@SuppressWarnings("synthetic-access")
+		private void changed() {
+			BulkEcoProblem.this.graphChanged = true;
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public void problemSolvingStarted() {
+			//
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public void problemSolved() {
+			//
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public void goalChanged(GoalChangeEvent event) {
+			changed();
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public void acquaintanceChanged(AcquaintanceEvent event) {
+			changed();
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public void attackChanged(AttackEvent event) {
+			changed();
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public void dependencyChanged(DependencyEvent event) {
+			changed();
+		}
+
+	}
+
+	/**
+	 * Listener which is counting the satisfied entities.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $Groupid$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private class SatisfactionListener implements EcoStateMachineListener {
+
+		/**
+		 */
+		public SatisfactionListener() {
+			//
+		}
+
+		/** {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public void stateChanged(EcoState oldState, EcoState newState) {
+			if (newState==EcoState.SATISFACTED && oldState!=EcoState.SATISFACTED) {
+				BulkEcoProblem.this.satisfiedCount.incrementAndGet();
+			}
+			else if (oldState==EcoState.SATISFACTED && newState!=EcoState.SATISFACTED) {
+				BulkEcoProblem.this.satisfiedCount.decrementAndGet();
+			}
+		}
+
+	}
+
+	/**
+	 * Factory which is setting the sender of the messages of the solver.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $Groupid$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class SolverMessageFactory extends MessageFactory {
+
+		/** Set the sender of the given message.
+		 * 
+		 * @param message
+		 * @param sender
+		 */
+		public static void setSender(Message message, AgentAddress sender) {
+			MessageFactory.setSender(message, sender);
+		}
+
+	}
+
+}
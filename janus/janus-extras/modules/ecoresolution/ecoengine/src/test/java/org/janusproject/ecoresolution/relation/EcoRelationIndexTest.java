@@ -0,0 +1,371 @@
+/*
+ * $Id$
+ *
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.ecoresolution.relation;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import junit.framework.TestCase;
+
+import org.janusproject.ecoresolution.identity.AgentIdentity;
+import org.janusproject.ecoresolution.identity.AnyIdentity;
+import org.janusproject.ecoresolution.identity.EcoIdentity;
+import org.janusproject.kernel.crio.core.AddressUtil;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see EcoRelationIndex
+ */
+public class EcoRelationIndexTest extends TestCase {
+
+	private EcoIdentity[] entities;
+	private EcoRelationIndex index;
+	private Random random;
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		this.entities = new EcoIdentity[10];
+		for(int i=0; i<this.entities.length; ++i) {
+			this.entities[i] = new AgentIdentity(AddressUtil.createAgentAddress(UUID.randomUUID()));
+		}
+		this.index = new EcoRelationIndex();
+		this.random = new Random(1234);
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		this.entities = null;
+		this.index = null;
+		this.random = null;
+		super.tearDown();
+	}
+
+	private EcoIdentity randomEntity() {
+		return this.entities[this.random.nextInt(this.entities.length)];
+	}
+
+	private EcoRelation randomRelation() {
+		EcoIdentity master = randomEntity();
+		EcoIdentity slave = randomEntity();
+		if (this.random.nextBoolean()) {
+			return new OnRelation(master, slave);
+		}
+		return new NearRelation(master, slave);
+	}
+
+	private static Set<EcoRelation> bruteForceConflicts(Iterable<EcoRelation> relations, EcoRelation relation) {
+		Set<EcoRelation> conflicts = new HashSet<EcoRelation>();
+		for(EcoRelation r : relations) {
+			if (relation.isConflict(r)) {
+				conflicts.add(r);
+			}
+		}
+		return conflicts;
+	}
+
+	private void assertIndexed(Set<EcoRelation> expected) {
+		assertEquals(expected, this.index.getRelations());
+		assertEquals(expected.size(), this.index.size());
+		for(EcoIdentity entity : this.entities) {
+			Set<EcoRelation> participating = new HashSet<EcoRelation>();
+			for(EcoRelation r : expected) {
+				if (entity.equals(r.getMaster()) || entity.equals(r.getSlave())) {
+					participating.add(r);
+				}
+			}
+			assertEquals(participating, this.index.getRelations(entity));
+		}
+	}
+
+	/**
+	 */
+	public void testAddRemove() {
+		EcoRelation r1 = new OnRelation(this.entities[0], this.entities[1]);
+		EcoRelation r2 = new NearRelation(this.entities[1], this.entities[2]);
+		EcoRelation r3 = new OnRelation(this.entities[3], this.entities[3]);
+
+		assertTrue(this.index.isEmpty());
+		assertTrue(this.index.add(r1));
+		assertFalse(this.index.add(new OnRelation(this.entities[0], this.entities[1])));
+		assertTrue(this.index.add(r2));
+		assertTrue(this.index.add(r3));
+		assertEquals(3, this.index.size());
+		assertTrue(this.index.contains(r2));
+
+		assertEquals(2, this.index.getRelations(this.entities[1]).size());
+		assertEquals(1, this.index.getRelations(this.entities[3]).size());
+		assertTrue(this.index.getRelations(this.entities[4]).isEmpty());
+
+		assertTrue(this.index.remove(r2));
+		assertFalse(this.index.remove(r2));
+		assertFalse(this.index.contains(r2));
+		assertEquals(1, this.index.getRelations(this.entities[1]).size());
+		assertTrue(this.index.getRelations(this.entities[2]).isEmpty());
+
+		assertTrue(this.index.remove(r3));
+		assertTrue(this.index.getRelations(this.entities[3]).isEmpty());
+
+		this.index.clear();
+		assertTrue(this.index.isEmpty());
+		assertTrue(this.index.getRelations(this.entities[0]).isEmpty());
+		assertTrue(this.index.getRelations(OnRelation.class).isEmpty());
+	}
+
+	/**
+	 */
+	public void testGetRelationsByType() {
+		Set<EcoRelation> on = new HashSet<EcoRelation>();
+		Set<EcoRelation> near = new HashSet<EcoRelation>();
+		EcoRelation r;
+		for(int i=0; i<50; ++i) {
+			r = randomRelation();
+			if (this.index.add(r)) {
+				if (r instanceof OnRelation) on.add(r);
+				else near.add(r);
+			}
+		}
+		assertEquals(on, this.index.getRelations(OnRelation.class));
+		assertEquals(near, this.index.getRelations(NearRelation.class));
+		assertEquals(this.index.getRelations(), this.index.getRelations(EcoRelation.class));
+
+		Set<EcoRelation> expected = new HashSet<EcoRelation>();
+		for(EcoRelation rel : on) {
+			if (this.entities[0].equals(rel.getMaster()) || this.entities[0].equals(rel.getSlave())) {
+				expected.add(rel);
+			}
+		}
+		assertEquals(expected, this.index.getRelations(OnRelation.class, this.entities[0]));
+	}
+
+	/**
+	 */
+	public void testFind() {
+		EcoRelation r1 = new OnRelation(this.entities[0], this.entities[1]);
+		EcoRelation r2 = new OnRelation(this.entities[2], this.entities[3]);
+		this.index.add(r1);
+		this.index.add(r2);
+		this.index.add(new NearRelation(this.entities[0], this.entities[3]));
+
+		assertSame(r1, this.index.find(new OnRelation(this.entities[0], this.entities[1])));
+		assertSame(r1, this.index.find(new OnRelation(this.entities[0], AnyIdentity.SINGLETON)));
+		assertSame(r2, this.index.find(new OnRelation(AnyIdentity.SINGLETON, this.entities[3])));
+		assertNotNull(this.index.find(new OnRelation(AnyIdentity.SINGLETON, AnyIdentity.SINGLETON)));
+		assertNull(this.index.find(new OnRelation(this.entities[1], AnyIdentity.SINGLETON)));
+		assertNull(this.index.find(new OnRelation(this.entities[0], this.entities[3])));
+	}
+
+	/**
+	 */
+	public void testRemoveConflicts() {
+		Set<EcoRelation> expected = new HashSet<EcoRelation>();
+		EcoRelation relation;
+		Set<EcoRelation> conflicts;
+		for(int i=0; i<500; ++i) {
+			relation = randomRelation();
+			if (this.random.nextInt(4)==0) {
+				conflicts = bruteForceConflicts(new ArrayList<EcoRelation>(expected), relation);
+				assertEquals(conflicts, this.index.removeConflicts(relation));
+				expected.removeAll(conflicts);
+			}
+			else if (this.random.nextInt(3)==0) {
+				assertEquals(expected.remove(relation), this.index.remove(relation));
+			}
+			else {
+				assertEquals(expected.add(relation), this.index.add(relation));
+			}
+			assertIndexed(expected);
+		}
+	}
+
+	/**
+	 */
+	public void testRemoveConflictsWithWildcards() {
+		Set<EcoRelation> expected = new HashSet<EcoRelation>();
+		List<EcoRelation> wildcards = new ArrayList<EcoRelation>();
+		EcoRelation relation;
+		for(int i=0; i<40; ++i) {
+			relation = randomRelation();
+			if (this.index.add(relation)) expected.add(relation);
+		}
+		for(int i=0; i<3; ++i) {
+			relation = new OnRelation(AnyIdentity.SINGLETON, randomEntity());
+			wildcards.add(relation);
+			if (this.index.add(relation)) expected.add(relation);
+		}
+		assertIndexed(expected);
+
+		// An identified relation must find the wildcard relations in conflict
+		Set<EcoRelation> conflicts;
+		for(EcoRelation wildcard : wildcards) {
+			relation = new OnRelation(randomEntity(), wildcard.getSlave());
+			conflicts = bruteForceConflicts(new ArrayList<EcoRelation>(expected), relation);
+			assertEquals(conflicts, this.index.removeConflicts(relation));
+			expected.removeAll(conflicts);
+			assertIndexed(expected);
+		}
+
+		// A wildcard relation is compared to all the relations
+		relation = new NearRelation(AnyIdentity.SINGLETON, randomEntity());
+		conflicts = bruteForceConflicts(new ArrayList<EcoRelation>(expected), relation);
+		assertEquals(conflicts, this.index.removeConflicts(relation));
+		expected.removeAll(conflicts);
+		assertIndexed(expected);
+	}
+
+	/**
+	 * Relation which is in conflict with the relations of the same type
+	 * that are sharing its master or its slave.
+	 *
+	 * @param <ME> is the type of the relation.
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static abstract class AbstractTestRelation<ME extends AbstractTestRelation<ME>> extends AbstractEcoRelation<ME,ME> {
+
+		private static final long serialVersionUID = -1418522620640066802L;
+
+		/**
+		 * @param master
+		 * @param slave
+		 */
+		public AbstractTestRelation(EcoIdentity master, EcoIdentity slave) {
+			super(master, slave);
+		}
+
+		/** Create a relation of the same type.
+		 *
+		 * @param master
+		 * @param slave
+		 * @return the relation.
+		 */
+		protected abstract ME create(EcoIdentity master, EcoIdentity slave);
+
+		@Override
+		public int hashCode() {
+			return getClass().hashCode() ^ getMaster().hashCode() ^ (31 * getSlave().hashCode());
+		}
+
+		@Override
+		public boolean equals(EcoRelation relation) {
+			return relation!=null
+				&& getClass()==relation.getClass()
+				&& getMaster().equals(relation.getMaster())
+				&& getSlave().equals(relation.getSlave());
+		}
+
+		@Override
+		public ME invert() {
+			return create(getSlave(), getMaster());
+		}
+
+		@Override
+		public boolean isConflict(EcoRelation relation) {
+			return getClass()==relation.getClass()
+				&& !equals(relation)
+				&& (getMaster().equals(relation.getMaster())
+					|| getSlave().equals(relation.getSlave()));
+		}
+
+		@Override
+		public EcoRelation toPattern(EcoIdentity participantToRemove) {
+			if (getMaster().equals(participantToRemove)) {
+				return create(AnyIdentity.SINGLETON, getSlave());
+			}
+			if (getSlave().equals(participantToRemove)) {
+				return create(getMaster(), AnyIdentity.SINGLETON);
+			}
+			return this;
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName()+"("+getMaster()+","+getSlave()+")"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class OnRelation extends AbstractTestRelation<OnRelation> {
+
+		private static final long serialVersionUID = 3957313717734734290L;
+
+		/**
+		 * @param master
+		 * @param slave
+		 */
+		public OnRelation(EcoIdentity master, EcoIdentity slave) {
+			super(master, slave);
+		}
+
+		@Override
+		protected OnRelation create(EcoIdentity master, EcoIdentity slave) {
+			return new OnRelation(master, slave);
+		}
+
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class NearRelation extends AbstractTestRelation<NearRelation> {
+
+		private static final long serialVersionUID = -6101420373447014062L;
+
+		/**
+		 * @param master
+		 * @param slave
+		 */
+		public NearRelation(EcoIdentity master, EcoIdentity slave) {
+			super(master, slave);
+		}
+
+		@Override
+		protected NearRelation create(EcoIdentity master, EcoIdentity slave) {
+			return new NearRelation(master, slave);
+		}
+
+	}
+
+}
@@ -0,0 +1,279 @@
+/*
+ * $Id$
+ *
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.ecoresolution.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+import org.janusproject.ecoresolution.identity.AnyIdentity;
+import org.janusproject.ecoresolution.identity.EcoIdentity;
+import org.janusproject.ecoresolution.problem.EcoProblemMonitor;
+import org.janusproject.ecoresolution.relation.AbstractEcoRelation;
+import org.janusproject.ecoresolution.relation.EcoAttack;
+import org.janusproject.ecoresolution.relation.EcoRelation;
+import org.janusproject.ecoresolution.sm.EcoState;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see BulkEcoProblem
+ */
+public class BulkEcoProblemTest extends TestCase {
+
+	private static void assertSolved(BulkEcoProblem problem) {
+		assertTrue(problem.isSolved());
+		for(BulkEcoEntity entity : problem.getEntities()) {
+			assertEquals(EcoState.SATISFACTED, entity.getEcoState());
+			assertTrue(entity.isKilled());
+			assertNotNull(entity.getGoal());
+			assertTrue(entity.getAcquaintances().contains(entity.getGoal()));
+		}
+	}
+
+	/**
+	 */
+	public void testSolveSequential() {
+		ChainProblem problem = new ChainProblem(5, 4, true);
+		problem.setParallelism(1);
+		problem.solve(null);
+		assertSolved(problem);
+		assertEquals(20, problem.getEntities().size());
+		assertTrue(problem.getStepCount()>0);
+	}
+
+	/**
+	 */
+	public void testSolveParallel() {
+		ChainProblem problem = new ChainProblem(8, 3, true);
+		problem.setParallelism(4);
+		problem.solve(null);
+		assertSolved(problem);
+	}
+
+	/**
+	 */
+	public void testSolveWithExecutor() {
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			ChainProblem problem = new ChainProblem(6, 2, true, executor);
+			problem.setParallelism(3);
+			problem.solve(null);
+			assertSolved(problem);
+			assertFalse(executor.isShutdown());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 */
+	public void testSolveWithMonitor() {
+		final ChainProblem problem = new ChainProblem(3, 2, true);
+		problem.setParallelism(2);
+		problem.solve(new EcoProblemMonitor() {
+			@Override
+			public boolean isProblemSolved() {
+				for(BulkEcoEntity entity : problem.getEntities()) {
+					if (entity.getEcoState()!=EcoState.SATISFACTED) return false;
+				}
+				return true;
+			}
+		});
+		assertSolved(problem);
+	}
+
+	/**
+	 */
+	public void testUnsolvable() {
+		ChainProblem problem = new ChainProblem(4, 2, false);
+		problem.setParallelism(2);
+		problem.solve(null);
+		assertFalse(problem.isSolved());
+		for(BulkEcoEntity entity : problem.getEntities()) {
+			assertFalse(entity.isKilled());
+			assertFalse(entity.getEcoState()==EcoState.SATISFACTED);
+		}
+	}
+
+	/**
+	 */
+	public void testMaxSteps() {
+		ChainProblem problem = new ChainProblem(4, 2, true);
+		problem.setMaxSteps(2);
+		problem.solve(null);
+		assertFalse(problem.isSolved());
+		assertEquals(2, problem.getStepCount());
+	}
+
+	/**
+	 * Problem composed of independent chains of eco-entities.
+	 * Each entity wants to be linked to the next entity of its chain.
+	 *
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class ChainProblem extends BulkEcoProblem {
+
+		/**
+		 * @param chains is the number of chains.
+		 * @param length is the number of entities in each chain.
+		 * @param cooperative indicates if the entities are creating their goals.
+		 */
+		public ChainProblem(int chains, int length, boolean cooperative) {
+			this(chains, length, cooperative, null);
+		}
+
+		/**
+		 * @param chains is the number of chains.
+		 * @param length is the number of entities in each chain.
+		 * @param cooperative indicates if the entities are creating their goals.
+		 * @param executor
+		 */
+		public ChainProblem(int chains, int length, boolean cooperative, ExecutorService executor) {
+			super(executor);
+			List<LinkEntity> chain = new ArrayList<LinkEntity>(length);
+			for(int i=0; i<chains; ++i) {
+				chain.clear();
+				for(int j=0; j<length; ++j) {
+					chain.add(new LinkEntity(cooperative));
+				}
+				for(int j=0; j<length; ++j) {
+					LinkEntity entity = chain.get(j);
+					LinkEntity next = chain.get((j+1)%length);
+					init(entity, new LinkRelation(entity.getIdentity(), next.getIdentity()));
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class LinkEntity extends BulkEcoEntity {
+
+		private final boolean cooperative;
+
+		/**
+		 * @param cooperative
+		 */
+		public LinkEntity(boolean cooperative) {
+			this.cooperative = cooperative;
+		}
+
+		@Override
+		public EcoAttack selectSatisfactionIntruder() {
+			return null;
+		}
+
+		@Override
+		public Set<EcoAttack> selectEscapingIntruder(Set<EcoAttack> attacks) {
+			return null;
+		}
+
+		@Override
+		public void doSatisfactionIncreasing() {
+			if (this.cooperative) {
+				addAcquaintance(getGoal());
+			}
+		}
+
+		@Override
+		public void doSatisfied() {
+			//
+		}
+
+		@Override
+		public void doEscaping() {
+			//
+		}
+
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class LinkRelation extends AbstractEcoRelation<LinkRelation,LinkRelation> {
+
+		private static final long serialVersionUID = 7480305432116399455L;
+
+		/**
+		 * @param master
+		 * @param slave
+		 */
+		public LinkRelation(EcoIdentity master, EcoIdentity slave) {
+			super(master, slave);
+		}
+
+		@Override
+		public int hashCode() {
+			return getMaster().hashCode() ^ (31 * getSlave().hashCode());
+		}
+
+		@Override
+		public boolean equals(EcoRelation relation) {
+			return relation instanceof LinkRelation
+				&& getMaster().equals(relation.getMaster())
+				&& getSlave().equals(relation.getSlave());
+		}
+
+		@Override
+		public LinkRelation invert() {
+			return new LinkRelation(getSlave(), getMaster());
+		}
+
+		@Override
+		public boolean isConflict(EcoRelation relation) {
+			return relation instanceof LinkRelation
+				&& !equals(relation)
+				&& getMaster().equals(relation.getMaster());
+		}
+
+		@Override
+		public EcoRelation toPattern(EcoIdentity participantToRemove) {
+			if (getMaster().equals(participantToRemove)) {
+				return new LinkRelation(AnyIdentity.SINGLETON, getSlave());
+			}
+			if (getSlave().equals(participantToRemove)) {
+				return new LinkRelation(getMaster(), AnyIdentity.SINGLETON);
+			}
+			return this;
+		}
+
+	}
+
+}
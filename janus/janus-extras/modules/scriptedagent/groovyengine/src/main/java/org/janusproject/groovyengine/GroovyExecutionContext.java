@@ -20,11 +20,14 @@
  */
 package org.janusproject.groovyengine;
 
+import groovy.lang.Closure;
 import groovy.lang.GroovyClassLoader;
 
 import java.io.Reader;
 import java.lang.reflect.Method;
 
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
@@ -96,6 +99,9 @@ public class GroovyExecutionContext extends AbstractScriptExecutionContext {
 	@Override
 	public boolean isFunction(String functionName) {
 		GroovyScriptEngineImpl engine = (GroovyScriptEngineImpl)getScriptEngine();
+		// Functions defined by a script compiled with GroovyScriptClass
+		if (engine.getContext().getAttribute(functionName, ScriptContext.ENGINE_SCOPE) instanceof Closure<?>)
+			return true;
         GroovyClassLoader classLoader = engine.getClassLoader();
         String name;
         for(Class<?> type : classLoader.getLoadedClasses()) {
@@ -133,5 +139,26 @@ public class GroovyExecutionContext extends AbstractScriptExecutionContext {
 			throws ScriptException {
 		return engine.eval(script);
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected CompiledScript compile(ScriptEngine engine, String script)
+			throws ScriptException {
+		// The scripts compiled by the Groovy engine are registering
+		// their functions inside the compiling engine; they cannot
+		// be shared between the agents.
+		try {
+			GroovyClassLoader classLoader = ((GroovyScriptEngineImpl)engine).getClassLoader();
+			return new GroovyScriptClass(engine, classLoader.parseClass(script));
+		}
+		catch(AssertionError ae) {
+			throw ae;
+		}
+		catch(Exception e) {
+			throw new ScriptException(e);
+		}
+	}
 	
 }
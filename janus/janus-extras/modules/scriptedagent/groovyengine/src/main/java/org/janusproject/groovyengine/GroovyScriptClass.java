@@ -0,0 +1,112 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.groovyengine;
+
+import groovy.lang.Binding;
+import groovy.lang.Script;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.codehaus.groovy.runtime.MethodClosure;
+
+/**
+ * Groovy script compiled as a class.
+ * <p>
+ * In opposite to the compiled scripts of the Groovy engine, the
+ * functions of the script are not registered inside the engine
+ * which has compiled the script. They are put as closures in the
+ * context given to {@link #eval(ScriptContext)}. In this way,
+ * the compiled class may be evaluated by the engines of several
+ * agents.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $Groupid$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+class GroovyScriptClass extends CompiledScript {
+
+	private final ScriptEngine engine;
+	private final Class<?> scriptClass;
+	
+	/**
+	 * @param engine is the engine which has compiled the script.
+	 * @param scriptClass is the compiled script.
+	 */
+	public GroovyScriptClass(ScriptEngine engine, Class<?> scriptClass) {
+		this.engine = engine;
+		this.scriptClass = scriptClass;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ScriptEngine getEngine() {
+		return this.engine;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object eval(ScriptContext context) throws ScriptException {
+		try {
+			Writer writer = context.getWriter();
+			context.setAttribute("context", context, ScriptContext.ENGINE_SCOPE); //$NON-NLS-1$
+			context.setAttribute("out", //$NON-NLS-1$
+					(writer instanceof PrintWriter) ? writer : new PrintWriter(writer, true),
+					ScriptContext.ENGINE_SCOPE);
+			Binding binding = new Binding(context.getBindings(ScriptContext.ENGINE_SCOPE));
+			Script script = InvokerHelper.createScript(this.scriptClass, binding);
+			// Expose the functions of the script to the commands
+			// evaluated by the engine of the agent.
+			String name;
+			for(Method method : this.scriptClass.getDeclaredMethods()) {
+				name = method.getName();
+				if (!method.isSynthetic()
+					&& Modifier.isPublic(method.getModifiers())
+					&& !Modifier.isStatic(method.getModifiers())
+					&& !"run".equals(name)) { //$NON-NLS-1$
+					context.setAttribute(name, new MethodClosure(script, name), ScriptContext.ENGINE_SCOPE);
+				}
+			}
+			return script.run();
+		}
+		catch(AssertionError ae) {
+			throw ae;
+		}
+		catch(Exception e) {
+			throw new ScriptException(e);
+		}
+	}
+
+}
@@ -33,6 +33,7 @@ import junit.framework.TestCase;
 
 import org.arakhne.afc.vmutil.FileSystem;
 import org.arakhne.afc.vmutil.Resources;
+import org.janusproject.scriptedagent.CompiledScriptCache;
 import org.janusproject.scriptedagent.ScriptErrorListener;
 
 /**
@@ -416,6 +417,62 @@ public class GroovyExecutionContextTest extends TestCase {
 		this.listener.assertFalse();
 	}
 
+	/**
+	 * @throws Exception
+	 */
+	public void testSharedCompiledScript() throws Exception {
+		CompiledScriptCache.clearSharedCaches();
+		CompiledScriptCache cache = CompiledScriptCache.getSharedCache(
+				this.interpreter.getLanguageName());
+		assertEquals(0, cache.size());
+
+		this.interpreter.getScriptRepository().addDirectory(this.scriptDirectory);
+		this.listener.reset();
+		Object v = this.interpreter.runFunction(
+				ADDITION_SCRIPT_NAME,
+				"add", //$NON-NLS-1$
+				18,
+				27);
+		assertEquals(45, v);
+		this.listener.assertFalse();
+		assertEquals(1, cache.size());
+
+		// The second context is reusing the compiled script
+		GroovyExecutionContext interpreter2 = new GroovyExecutionContext(new ScriptEngineManager());
+		Listener listener2 = new Listener();
+		interpreter2.addScriptErrorListener(listener2);
+		interpreter2.getScriptRepository().addDirectory(this.scriptDirectory);
+		v = interpreter2.runFunction(
+				ADDITION_SCRIPT_NAME,
+				"add", //$NON-NLS-1$
+				1,
+				2);
+		assertEquals(3, v);
+		listener2.assertFalse();
+		assertEquals(1, cache.size());
+
+		// The functions are defined in the context of each agent
+		StringWriter output = new StringWriter();
+		interpreter2.setStandardOutput(output);
+		v = interpreter2.runFunction(
+				makeURL(METHOD_SCRIPT_NAME),
+				"printMyMsg", //$NON-NLS-1$
+				new TestObject(" was printed"), //$NON-NLS-1$
+				"my message"); //$NON-NLS-1$
+		assertNull(v);
+		assertEquals("my message was printed", output.toString()); //$NON-NLS-1$
+		listener2.assertFalse();
+		assertEquals(2, cache.size());
+
+		v = this.interpreter.runFunction(
+				ADDITION_SCRIPT_NAME,
+				"add", //$NON-NLS-1$
+				5,
+				6);
+		assertEquals(11, v);
+		this.listener.assertFalse();
+	}
+
 	/**
 	 * @author $Author: sgalland$
 	 */
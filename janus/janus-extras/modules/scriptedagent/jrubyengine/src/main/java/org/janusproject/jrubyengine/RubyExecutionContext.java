@@ -214,4 +214,13 @@ public class RubyExecutionContext extends AbstractScriptExecutionContext {
 		return engine.eval(script);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected String getCompiledScriptCategory() {
+		// The compiled scripts are bound to the Ruby runtime of the engine.
+		return null;
+	}
+
 }
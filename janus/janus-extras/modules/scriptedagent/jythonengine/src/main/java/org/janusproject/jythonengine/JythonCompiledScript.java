@@ -0,0 +1,79 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.jythonengine;
+
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+import org.python.core.PyCode;
+import org.python.jsr223.JanusJythonScriptEngine;
+
+/**
+ * Jython script compiled as a code which is not bound
+ * to the engine which has compiled it.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $Groupid$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+class JythonCompiledScript extends CompiledScript {
+
+	private final JanusJythonScriptEngine engine;
+	private final PyCode code;
+	
+	/**
+	 * @param engine is the engine which has compiled the script.
+	 * @param code is the compiled script.
+	 */
+	public JythonCompiledScript(JanusJythonScriptEngine engine, PyCode code) {
+		this.engine = engine;
+		this.code = code;
+	}
+	
+	/** Replies the compiled code.
+	 * 
+	 * @return the compiled code.
+	 */
+	public PyCode getCode() {
+		return this.code;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ScriptEngine getEngine() {
+		return this.engine;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object eval(ScriptContext context) throws ScriptException {
+		return this.engine.eval(this.code, context);
+	}
+
+}
@@ -22,6 +22,7 @@ package org.janusproject.jythonengine;
 
 import java.io.Reader;
 
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
@@ -119,4 +120,27 @@ public class JythonExecutionContext extends AbstractScriptExecutionContext {
 		return engine.eval(script);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected CompiledScript compile(ScriptEngine engine, String script)
+			throws ScriptException {
+		JanusJythonScriptEngine jythonEngine = (JanusJythonScriptEngine)engine;
+		return new JythonCompiledScript(jythonEngine, jythonEngine.compileCode(script));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Object evaluate(ScriptEngine engine, CompiledScript script)
+			throws ScriptException {
+		// Evaluate with the interpreter of the agent, not with the
+		// interpreter which has compiled the script.
+		return ((JanusJythonScriptEngine)engine).eval(
+				((JythonCompiledScript)script).getCode(),
+				engine.getContext());
+	}
+
 }
@@ -22,6 +22,11 @@ package org.python.jsr223;
 
 import java.lang.reflect.Field;
 
+import javax.script.ScriptContext;
+import javax.script.ScriptException;
+
+import org.python.core.PyCode;
+import org.python.core.PyException;
 import org.python.core.PyObject;
 import org.python.jsr223.PyScriptEngine;
 import org.python.util.PythonInterpreter;
@@ -69,4 +74,46 @@ public class JanusJythonScriptEngine extends PyScriptEngine {
 		}
 	}
 
+	/** Compile the given script.
+	 * <p>
+	 * In opposite to {@link #compile(String)}, the replied code is
+	 * not bound to this engine, and it may be evaluated by another
+	 * engine with {@link #eval(PyCode, ScriptContext)}.
+	 * 
+	 * @param script
+	 * @return the compiled code.
+	 * @throws ScriptException
+	 * @since 1.1
+	 */
+	public PyCode compileCode(String script) throws ScriptException {
+		try {
+			return this.interpreter.compile(script);
+		}
+		catch(PyException e) {
+			throw new ScriptException(e.toString());
+		}
+	}
+
+	/** Evaluate the given compiled code with the interpreter of
+	 * this engine.
+	 * 
+	 * @param code
+	 * @param context
+	 * @return the result of the evaluation.
+	 * @throws ScriptException
+	 * @since 1.1
+	 */
+	public synchronized Object eval(PyCode code, ScriptContext context) throws ScriptException {
+		try {
+			this.interpreter.setIn(context.getReader());
+			this.interpreter.setOut(context.getWriter());
+			this.interpreter.setErr(context.getErrorWriter());
+			this.interpreter.setLocals(new PyScriptEngineScope(this, context));
+			return this.interpreter.eval(code).__tojava__(Object.class);
+		}
+		catch(PyException e) {
+			throw new ScriptException(e.toString());
+		}
+	}
+
 }
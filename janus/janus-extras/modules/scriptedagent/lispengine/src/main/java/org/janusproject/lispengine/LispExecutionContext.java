@@ -25,6 +25,7 @@ import java.io.Reader;
 import java.math.BigDecimal;
 import java.util.UUID;
 
+import javax.script.CompiledScript;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
@@ -231,6 +232,25 @@ public class LispExecutionContext extends AbstractScriptExecutionContext {
 		return engine.eval(this.packageNameHeader+script);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected CompiledScript compile(ScriptEngine engine, String script)
+			throws ScriptException {
+		return super.compile(engine, this.packageNameHeader+script);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected String getCompiledScriptCategory() {
+		// The symbols of the compiled scripts are interned in
+		// the Lisp package of this execution context.
+		return null;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
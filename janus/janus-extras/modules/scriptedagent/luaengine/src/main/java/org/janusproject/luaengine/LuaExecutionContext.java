@@ -145,4 +145,13 @@ public class LuaExecutionContext extends AbstractScriptExecutionContext {
 		return engine.eval(script);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected String getCompiledScriptCategory() {
+		// The compiled scripts are bound to the globals of the engine.
+		return null;
+	}
+
 }
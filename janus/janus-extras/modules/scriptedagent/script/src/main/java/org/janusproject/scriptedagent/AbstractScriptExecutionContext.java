@@ -32,6 +32,8 @@ import java.util.Iterator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineFactory;
@@ -86,6 +88,8 @@ public abstract class AbstractScriptExecutionContext implements ScriptExecutionC
 	private ListenerCollection<ScriptErrorListener> listeners = null;
 	
 	private boolean isCatchAll = false;
+	
+	private CompiledScriptCache compiledScripts = null;
 
 	/** Index used to generate unique temp variable names.
 	 * This field is mandatory due to the possibility to invoke
@@ -319,6 +323,114 @@ public abstract class AbstractScriptExecutionContext implements ScriptExecutionC
 	 */
 	protected abstract Object evaluate(ScriptEngine engine, String script) throws ScriptException;
 
+	/** Invoked to compile the given script.
+	 * <p>
+	 * The default implementation invokes {@link Compilable#compile(String)}
+	 * if the engine supports the compilation.
+	 * 
+	 * @param engine is the engine to use for compilation.
+	 * @param script is the script to compile.
+	 * @return the compiled script, or <code>null</code> if the script
+	 * cannot be compiled.
+	 * @throws ScriptException
+	 * @since 1.1
+	 */
+	protected CompiledScript compile(ScriptEngine engine, String script) throws ScriptException {
+		if (engine instanceof Compilable) {
+			return ((Compilable)engine).compile(script);
+		}
+		return null;
+	}
+
+	/** Invoked to evaluate a compiled script.
+	 * <p>
+	 * The compiled script may have been compiled by the engine of
+	 * another execution context of the same category (see
+	 * {@link #getCompiledScriptCategory()}). The default implementation
+	 * invokes {@link CompiledScript#eval(ScriptContext)} with the
+	 * context of the given engine.
+	 * 
+	 * @param engine is the engine to use for evaluation.
+	 * @param script is the compiled script to evaluate.
+	 * @return the result of the evaluation.
+	 * @throws ScriptException
+	 * @since 1.1
+	 */
+	protected Object evaluate(ScriptEngine engine, CompiledScript script) throws ScriptException {
+		return script.eval(engine.getContext());
+	}
+
+	/** Replies the category of execution contexts which are able to share
+	 * their compiled scripts.
+	 * <p>
+	 * The default implementation replies the name of the language.
+	 * An execution context which is not able to evaluate the
+	 * scripts compiled by another execution context must reply
+	 * <code>null</code>; in this case, the compiled scripts are
+	 * cached by this execution context only.
+	 * 
+	 * @return the category of the execution context, or <code>null</code>
+	 * if the compiled scripts cannot be shared.
+	 * @since 1.1
+	 */
+	protected String getCompiledScriptCategory() {
+		return getLanguageName();
+	}
+
+	/** Replies the cache of compiled scripts used by this execution context.
+	 * 
+	 * @return the cache of compiled scripts.
+	 * @since 1.1
+	 */
+	protected final synchronized CompiledScriptCache getCompiledScriptCache() {
+		if (this.compiledScripts==null) {
+			String category = getCompiledScriptCategory();
+			if (category==null)
+				this.compiledScripts = new CompiledScriptCache();
+			else
+				this.compiledScripts = CompiledScriptCache.getSharedCache(category);
+		}
+		return this.compiledScripts;
+	}
+
+	/** Evaluate the script file in the given stream, and compile
+	 * it if not already compiled.
+	 * 
+	 * @param engine is the engine to use for evaluation.
+	 * @param path is the path to the script file.
+	 * @param stream is the content of the script file.
+	 * @return the result of the evaluation.
+	 * @throws ScriptException
+	 * @throws IOException
+	 */
+	private Object evaluate(ScriptEngine engine, URL path, Reader stream) throws ScriptException, IOException {
+		if (!CompiledScriptCache.isCacheEnable()) {
+			return evaluate(engine, stream);
+		}
+		String source = read(stream);
+		String key = path.toExternalForm();
+		CompiledScriptCache cache = getCompiledScriptCache();
+		CompiledScript compiledScript = cache.get(key, source);
+		if (compiledScript==null) {
+			compiledScript = compile(engine, source);
+			if (compiledScript==null) {
+				return evaluate(engine, source);
+			}
+			cache.put(key, source, compiledScript);
+		}
+		return evaluate(engine, compiledScript);
+	}
+
+	private static String read(Reader stream) throws IOException {
+		StringBuilder source = new StringBuilder();
+		char[] buffer = new char[4096];
+		int n;
+		while ((n = stream.read(buffer))>0) {
+			source.append(buffer, 0, n);
+		}
+		return source.toString();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -409,7 +521,7 @@ public abstract class AbstractScriptExecutionContext implements ScriptExecutionC
 					try {
 						is = fu.openStream();
 						try {
-							return evaluate(engine, new InputStreamReader(is));
+							return evaluate(engine, fu, new InputStreamReader(is));
 						}
 						catch (ScriptException e) {
 							if (firstException==null) {
@@ -459,7 +571,7 @@ public abstract class AbstractScriptExecutionContext implements ScriptExecutionC
 		try {
 			FileReader fr = new FileReader(scriptFilename);
 			try {
-				return evaluate(getScriptEngine(), fr);
+				return evaluate(getScriptEngine(), scriptFilename.toURI().toURL(), fr);
 			}
 			catch (ScriptException e) {
 				log(e);
@@ -489,7 +601,7 @@ public abstract class AbstractScriptExecutionContext implements ScriptExecutionC
 		try {
 			InputStream is = scriptFilename.openStream();
 			try {
-				return evaluate(getScriptEngine(), new InputStreamReader(is));
+				return evaluate(getScriptEngine(), scriptFilename, new InputStreamReader(is));
 			}
 			catch (ScriptException e) {
 				log(e);
@@ -0,0 +1,243 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.scriptedagent;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.script.CompiledScript;
+
+/**
+ * Cache of compiled scripts.
+ * <p>
+ * The compiled scripts are indexed by the path of the script
+ * file. Only the last compiled version of a script file is kept;
+ * a modified script is compiled again and replaces the previous
+ * version. The compiled scripts are softly referenced and may be
+ * released by the garbage collector; the released entries are
+ * removed from the cache.
+ * <p>
+ * A shared cache exists for each category of execution contexts,
+ * usually one per script language. It permits to compile a script
+ * file only one time for all the agents using the same language.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public final class CompiledScriptCache {
+
+	private static final AtomicBoolean isCacheEnabled = new AtomicBoolean(true);
+	
+	private static final Map<String,CompiledScriptCache> sharedCaches = new TreeMap<String,CompiledScriptCache>();
+	
+	/** Enable or disable the caching of the compiled scripts.
+	 * When disabled, the scripts are evaluated from their sources
+	 * at each run.
+	 * 
+	 * @param enable
+	 */
+	public static void setCacheEnable(boolean enable) {
+		isCacheEnabled.set(enable);
+		if (!enable) {
+			clearSharedCaches();
+		}
+	}
+
+	/** Replies if the caching of the compiled scripts is enabled.
+	 * 
+	 * @return <code>true</code> if the compiled scripts are cached,
+	 * otherwise <code>false</code>.
+	 */
+	public static boolean isCacheEnable() {
+		return isCacheEnabled.get();
+	}
+
+	/** Replies the cache shared by all the execution contexts of
+	 * the given category.
+	 * 
+	 * @param category is the category of the execution contexts,
+	 * usually the name of the script language.
+	 * @return the shared cache.
+	 */
+	public static CompiledScriptCache getSharedCache(String category) {
+		assert(category!=null);
+		synchronized(sharedCaches) {
+			CompiledScriptCache cache = sharedCaches.get(category);
+			if (cache==null) {
+				cache = new CompiledScriptCache();
+				sharedCaches.put(category, cache);
+			}
+			return cache;
+		}
+	}
+
+	/** Remove all the compiled scripts from the shared caches.
+	 */
+	public static void clearSharedCaches() {
+		synchronized(sharedCaches) {
+			for(CompiledScriptCache cache : sharedCaches.values()) {
+				cache.clear();
+			}
+		}
+	}
+
+	private final ConcurrentMap<String,EntryReference> scripts = new ConcurrentHashMap<String,EntryReference>();
+	
+	private final ReferenceQueue<Entry> releasedEntries = new ReferenceQueue<Entry>();
+	
+	/**
+	 */
+	public CompiledScriptCache() {
+		//
+	}
+	
+	/** Remove the entries released by the garbage collector.
+	 */
+	private void purge() {
+		Reference<? extends Entry> ref;
+		while ((ref = this.releasedEntries.poll())!=null) {
+			EntryReference entryRef = (EntryReference)ref;
+			this.scripts.remove(entryRef.path, entryRef);
+		}
+	}
+	
+	/** Replies the compiled script for the given script file.
+	 * 
+	 * @param path is the path of the script file.
+	 * @param source is the content of the script file.
+	 * @return the compiled script or <code>null</code> if the
+	 * script was not compiled or if its content has changed.
+	 */
+	public CompiledScript get(String path, String source) {
+		if (!isCacheEnabled.get()) return null;
+		purge();
+		EntryReference ref = this.scripts.get(path);
+		Entry entry = (ref==null) ? null : ref.get();
+		if (entry!=null && entry.hash==source.hashCode() && entry.source.equals(source)) {
+			return entry.script;
+		}
+		return null;
+	}
+	
+	/** Put the compiled script for the given script file in the cache.
+	 * The compiled script replaces the previously cached version
+	 * of the same script file.
+	 * 
+	 * @param path is the path of the script file.
+	 * @param source is the content of the script file.
+	 * @param script is the compiled script.
+	 */
+	public void put(String path, String source, CompiledScript script) {
+		if (isCacheEnabled.get()) {
+			purge();
+			this.scripts.put(path,
+					new EntryReference(path, new Entry(source, script), this.releasedEntries));
+		}
+	}
+	
+	/** Replies the number of compiled scripts in this cache.
+	 * 
+	 * @return the number of compiled scripts.
+	 */
+	public int size() {
+		purge();
+		return this.scripts.size();
+	}
+
+	/** Remove all the compiled scripts from this cache.
+	 */
+	public void clear() {
+		this.scripts.clear();
+		purge();
+	}
+
+	/**
+	 * Soft reference to an entry of the cache.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class EntryReference extends SoftReference<Entry> {
+		
+		/** Path of the script file.
+		 */
+		public final String path;
+		
+		/**
+		 * @param path
+		 * @param entry
+		 * @param queue
+		 */
+		public EntryReference(String path, Entry entry, ReferenceQueue<Entry> queue) {
+			super(entry, queue);
+			this.path = path;
+		}
+
+	}
+
+	/**
+	 * Entry of the cache.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class Entry {
+		
+		/** Source of the script.
+		 */
+		public final String source;
+		
+		/** Hash code of the source of the script.
+		 */
+		public final int hash;
+		
+		/** Compiled script.
+		 */
+		public final CompiledScript script;
+		
+		/**
+		 * @param source
+		 * @param script
+		 */
+		public Entry(String source, CompiledScript script) {
+			this.source = source;
+			this.hash = source.hashCode();
+			this.script = script;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,156 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.scriptedagent;
+
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+import junit.framework.TestCase;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class CompiledScriptCacheTest extends TestCase {
+
+	private CompiledScriptCache cache;
+	private CompiledScript script;
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.cache = new CompiledScriptCache();
+		this.script = new CompiledScriptStub();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		this.cache = null;
+		this.script = null;
+		super.tearDown();
+	}
+
+	/**
+	 */
+	public void testGetPut() {
+		assertNull(this.cache.get("a.js", "f()")); //$NON-NLS-1$ //$NON-NLS-2$
+		this.cache.put("a.js", "f()", this.script); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSame(this.script, this.cache.get("a.js", "f()")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(this.cache.get("b.js", "f()")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(1, this.cache.size());
+	}
+
+	/**
+	 */
+	public void testGetChangedContent() {
+		this.cache.put("a.js", "f()", this.script); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(this.cache.get("a.js", "g()")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 */
+	public void testPutChangedContent() {
+		CompiledScript script2 = new CompiledScriptStub();
+		this.cache.put("a.js", "f()", this.script); //$NON-NLS-1$ //$NON-NLS-2$
+		this.cache.put("a.js", "g()", script2); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(1, this.cache.size());
+		assertNull(this.cache.get("a.js", "f()")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSame(script2, this.cache.get("a.js", "g()")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 */
+	public void testClear() {
+		this.cache.put("a.js", "f()", this.script); //$NON-NLS-1$ //$NON-NLS-2$
+		this.cache.clear();
+		assertEquals(0, this.cache.size());
+		assertNull(this.cache.get("a.js", "f()")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 */
+	public void testGetSharedCache() {
+		CompiledScriptCache c1 = CompiledScriptCache.getSharedCache("lang1"); //$NON-NLS-1$
+		CompiledScriptCache c2 = CompiledScriptCache.getSharedCache("lang2"); //$NON-NLS-1$
+		assertNotSame(c1, c2);
+		assertSame(c1, CompiledScriptCache.getSharedCache("lang1")); //$NON-NLS-1$
+	}
+
+	/**
+	 */
+	public void testSetCacheEnable() {
+		try {
+			CompiledScriptCache.setCacheEnable(false);
+			this.cache.put("a.js", "f()", this.script); //$NON-NLS-1$ //$NON-NLS-2$
+			assertNull(this.cache.get("a.js", "f()")); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		finally {
+			CompiledScriptCache.setCacheEnable(true);
+		}
+		this.cache.put("a.js", "f()", this.script); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSame(this.script, this.cache.get("a.js", "f()")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class CompiledScriptStub extends CompiledScript {
+
+		/**
+		 */
+		public CompiledScriptStub() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Object eval(ScriptContext context) throws ScriptException {
+			return null;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public ScriptEngine getEngine() {
+			return null;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,47 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel;
+
+/**
+ * Listener on kernel events which is able to receive
+ * the launching of a population of agents as a single event.
+ * <p>
+ * When a population of agents is launched in bulk, the
+ * kernel invokes {@link #agentsLaunched(KernelEvent)} once
+ * on this listener, instead of invoking
+ * {@link #agentLaunched(KernelEvent)} for each agent.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public interface BulkKernelListener extends KernelListener {
+	
+	/** Invoked when a population of agents was launched.
+	 * 
+	 * @param event is describing the event. The launched agents
+	 * are replied by {@link KernelEvent#getAgents()}.
+	 */
+	public void agentsLaunched(KernelEvent event);
+	
+}
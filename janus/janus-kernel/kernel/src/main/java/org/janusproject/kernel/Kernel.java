@@ -29,11 +29,15 @@ import java.util.UUID;
 import org.janusproject.kernel.address.AgentAddress;
 import org.janusproject.kernel.agent.Agent;
 import org.janusproject.kernel.agent.AgentActivator;
+import org.janusproject.kernel.agent.AgentFactory;
 import org.janusproject.kernel.agent.AgentLifeState;
 import org.janusproject.kernel.agent.AgentLifeStateListener;
 import org.janusproject.kernel.agent.ChannelManager;
+import org.janusproject.kernel.agent.CheckPoint;
 import org.janusproject.kernel.agent.KernelContext;
+import org.janusproject.kernel.agent.KernelLoad;
 import org.janusproject.kernel.agent.Kernels;
+import org.janusproject.kernel.agent.LoadBalancer;
 import org.janusproject.kernel.agent.ProbeManager;
 import org.janusproject.kernel.configuration.JanusProperty;
 import org.janusproject.kernel.crio.core.CRIOContext;
@@ -206,6 +210,74 @@ public interface Kernel extends LoggerProvider {
 			AgentActivator activator,
 			Object... initParameters);
 	
+	/** Launch immediately the given agents as light agents.
+	 * <p>
+	 * The agents are registered with a single batch and
+	 * the instances of {@link BulkKernelListener} are notified
+	 * with a single event. It is faster than launching the agents
+	 * one by one when the population is large.
+	 * <p>
+	 * If initialization parameters are given,
+	 * they are passed to <code>activate()</code> of each agent,
+	 * otherwise the activator's initialization
+	 * parameters will be passed.
+	 * 
+	 * @param agents are the agents to initialize and launch
+	 * @param initParameters are the parameters to pass to activate.
+	 * @return the addresses of the launched agents on the kernel,
+	 * in the same order as the given agents.
+	 * @since 1.1
+	 */
+	public List<AgentAddress> launchLightAgents(
+			Collection<? extends Agent> agents,
+			Object... initParameters);
+
+	/** Launch immediately the given agents as light agents.
+	 * <p>
+	 * The agents are registered with a single batch and
+	 * the instances of {@link BulkKernelListener} are notified
+	 * with a single event.
+	 * <p>
+	 * If initialization parameters are given,
+	 * they are passed to <code>activate()</code> of each agent,
+	 * otherwise the activator's initialization
+	 * parameters will be passed.
+	 * 
+	 * @param agents are the agents to initialize and launch
+	 * @param activator is the activator to use, never <code>null</code>.
+	 * @param initParameters are the parameters to pass to activate.
+	 * @return the addresses of the launched agents on the kernel,
+	 * in the same order as the given agents.
+	 * @since 1.1
+	 */
+	public List<AgentAddress> launchLightAgents(
+			Collection<? extends Agent> agents,
+			AgentActivator activator,
+			Object... initParameters);
+
+	/** Create and launch immediately a population of light agents.
+	 * <p>
+	 * The agents are registered with a single batch and
+	 * the instances of {@link BulkKernelListener} are notified
+	 * with a single event.
+	 * <p>
+	 * If initialization parameters are given,
+	 * they are passed to <code>activate()</code> of each agent,
+	 * otherwise the activator's initialization
+	 * parameters will be passed.
+	 * 
+	 * @param factory is the factory which is creating the agents.
+	 * @param count is the number of agents to create.
+	 * @param initParameters are the parameters to pass to activate.
+	 * @return the addresses of the launched agents on the kernel,
+	 * in the creation order.
+	 * @since 1.1
+	 */
+	public List<AgentAddress> launchLightAgents(
+			AgentFactory factory,
+			int count,
+			Object... initParameters);
+
 	/** Launch immediately the given agent as a heavy agent.
 	 * <p>
 	 * If initialization parameters are given,
@@ -484,6 +556,82 @@ public interface Kernel extends LoggerProvider {
 	 */
 	public void createCheckPoint(OutputStream stream) throws IOException;
 
+	/**
+	 * Save the state of the kernel inside the given stream without
+	 * pausing the whole kernel.
+	 * <p>
+	 * In opposite to {@link #createCheckPoint(OutputStream)}, each agent
+	 * and each group is saved independently and in parallel. An agent is
+	 * only blocked during its own snapshot, between two activations of
+	 * its behaviour. The resulting check-point is not a global snapshot
+	 * of the kernel at a single instant.
+	 * <p>
+	 * When <var>delta</var> is <code>true</code>, only the entities
+	 * which have changed since the previous incremental check-point are
+	 * written, as well as the identifiers of the removed entities. If
+	 * there is no previous check-point, a full check-point is written.
+	 * The check-points may be read and merged with {@link CheckPoint}.
+	 * 
+	 * @param stream is the stream in which the state of the kernel is written.
+	 * @param delta indicates if only the changes since the previous
+	 * check-point must be written.
+	 * @return the status of the saving; it contains an error for each
+	 * entity which cannot be saved.
+	 * @throws IOException
+	 * @see CheckPoint
+	 * @since 1.1
+	 */
+	public Status createIncrementalCheckPoint(OutputStream stream, boolean delta) throws IOException;
+
+	/**
+	 * Move a light agent from this kernel to a remote kernel.
+	 * <p>
+	 * The agent must accept to migrate (see {@link Agent#canMigrate()}).
+	 * It is removed from this kernel between two activations of its
+	 * behaviour, and sent with its address, its fields, its mailbox
+	 * and its serializable memory to the given kernel, where it
+	 * continues its execution without being activated again.
+	 * The roles of the agent are left on this kernel and requested
+	 * again on the target kernel. If the target kernel cannot restore
+	 * the agent, the agent is sent back to this kernel.
+	 * 
+	 * @param agent is the address of the agent to move.
+	 * @param kernel is the address of the kernel agent of the target kernel.
+	 * @return the status of the departure of the agent.
+	 * @since 1.1
+	 */
+	public Status migrateAgent(AgentAddress agent, AgentAddress kernel);
+
+	/**
+	 * Set the policy which is periodically moving the agents of this
+	 * kernel to the remote kernels according to their loads.
+	 * <p>
+	 * The loads are exchanged and the balancer is invoked at the period
+	 * given by {@link JanusProperty#JANUS_LOAD_BALANCING_PERIOD}.
+	 * 
+	 * @param balancer is the load balancer, or <code>null</code> to
+	 * disable the balancing.
+	 * @since 1.1
+	 */
+	public void setLoadBalancer(LoadBalancer balancer);
+
+	/**
+	 * Replies the policy which is moving the agents of this
+	 * kernel to the remote kernels according to their loads.
+	 * 
+	 * @return the load balancer, or <code>null</code> if none.
+	 * @since 1.1
+	 */
+	public LoadBalancer getLoadBalancer();
+
+	/**
+	 * Replies the current load of this kernel.
+	 * 
+	 * @return the load of this kernel.
+	 * @since 1.1
+	 */
+	public KernelLoad getLoad();
+
 	/**
 	 * Creates a new group implementing the specified organization with its
 	 * associated GroupManager
@@ -20,6 +20,8 @@
  */
 package org.janusproject.kernel;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.EventObject;
 
 import org.janusproject.kernel.address.AgentAddress;
@@ -38,6 +40,7 @@ public class KernelEvent extends EventObject {
 	
 	private final boolean isKernel;
 	private final AgentAddress agent;
+	private final Collection<AgentAddress> agents;
 	private final KernelEventType type;
 	
 	/**
@@ -50,6 +53,23 @@ public class KernelEvent extends EventObject {
 		super(kernel);
 		this.type = type;
 		this.agent = agent;
+		this.agents = null;
+		this.isKernel = isKernel;
+	}
+	
+	/**
+	 * @param type is the type of event.
+	 * @param kernel is the kernel which has fired this event.
+	 * @param agents are the addresses of the agents concerned by this event.
+	 * @param isKernel indicates if the <var>agents</var> are kernel agents or not.
+	 * @since 1.1
+	 */
+	public KernelEvent(KernelEventType type, Kernel kernel, Collection<AgentAddress> agents, boolean isKernel) {
+		super(kernel);
+		assert(agents!=null && !agents.isEmpty());
+		this.type = type;
+		this.agent = agents.iterator().next();
+		this.agents = Collections.unmodifiableCollection(agents);
 		this.isKernel = isKernel;
 	}
 	
@@ -70,13 +90,26 @@ public class KernelEvent extends EventObject {
 	}
 	
 	/** Replies the agent concerned by this event.
+	 * If several agents are concerned by this event,
+	 * replies the first of them.
 	 * 
 	 * @return the address of the agent.
+	 * @see #getAgents()
 	 */
 	public AgentAddress getAgent() {
 		return this.agent;
 	}
 
+	/** Replies the agents concerned by this event.
+	 * 
+	 * @return the addresses of the agents.
+	 * @since 1.1
+	 */
+	public Collection<AgentAddress> getAgents() {
+		if (this.agents==null) return Collections.singleton(this.agent);
+		return this.agents;
+	}
+
 	/** Indicates if the agent concerned by
 	 * this event is a kernel agent or not.
 	 * 
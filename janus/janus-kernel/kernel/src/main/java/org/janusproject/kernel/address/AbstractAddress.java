@@ -22,6 +22,8 @@ package org.janusproject.kernel.address;
 
 import java.util.UUID;
 
+import org.janusproject.kernel.util.random.RandomNumber;
+
 /** This abstract class describes all the addresses used by the kernel
  * to identify its elements
  * 
@@ -40,14 +42,26 @@ public abstract class AbstractAddress implements Address {
 	 */
 	private final UUID id;
 
+	/**
+	 * The key of this address in the kernel which is hosting the
+	 * addressed entity: the local index in the low bits and the
+	 * allocation stamp in the high bits; <code>0</code> if not hosted.
+	 */
+	private transient volatile long localKey = 0;
+
 	/**
 	 * Create an address based on the specified identifier
+	 * <p>
+	 * If the identifier is <code>null</code>, a random identifier is
+	 * replied by {@link RandomNumber#randomUUID()}: it is derived from the
+	 * seed and from the rank of the current agent when the activator
+	 * is deterministic.
 	 * 
 	 * @param id is the identifier of the address.
 	 */
 	protected AbstractAddress(UUID id) {
 		if (id==null)
-			this.id = UUID.randomUUID();
+			this.id = RandomNumber.randomUUID();
 		else
 			this.id = id;
 	}
@@ -59,6 +73,39 @@ public abstract class AbstractAddress implements Address {
 		this(null);
 	}
 
+	/** Replies the dense index of this address in the kernel which is
+	 * hosting the addressed entity.
+	 * <p>
+	 * The index is stable while the entity is hosted by the kernel,
+	 * and it may be reused by another entity after. The {@link UUID}
+	 * remains the global identity of the address.
+	 * 
+	 * @return the local index, or <code>-1</code> if the entity
+	 * is not hosted by a local kernel.
+	 * @since 1.1
+	 * @see AddressIndexer
+	 */
+	public final int getLocalIndex() {
+		long key = this.localKey;
+		return (key==0) ? -1 : (int)key;
+	}
+
+	/** Replies the local key of this address.
+	 * 
+	 * @return the local key, or <code>0</code> if not hosted.
+	 */
+	final long getLocalKey() {
+		return this.localKey;
+	}
+
+	/** Change the local key of this address.
+	 * 
+	 * @param key is the local key, or <code>0</code> if not hosted.
+	 */
+	final void setLocalKey(long key) {
+		this.localKey = key;
+	}
+
 	/** {@inheritDoc}
 	 */
 	@Override
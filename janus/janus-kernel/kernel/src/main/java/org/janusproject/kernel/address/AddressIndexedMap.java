@@ -0,0 +1,489 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.address;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Map with address keys which is indexing the addresses
+ * hosted by a local kernel with their dense local indexes.
+ * <p>
+ * The content of the map is stored in a backing map, which
+ * defines the iteration order. In addition, the entries of
+ * the addresses which have a local index are stored in an
+ * open-addressing table of integer keys, so that their lookup
+ * does not compare the {@link java.util.UUID}s of the addresses.
+ * The other addresses, e.g. the addresses received from a
+ * remote kernel, are found in the backing map. The local key
+ * of each indexed entry is also stored by address, so that an
+ * entry is removed from the table without scanning it.
+ * <p>
+ * The entries may be removed through the views of this map.
+ * The backing map must not be changed outside this map.
+ * This map is not thread-safe.
+ * 
+ * @param <A> is the type of the addresses.
+ * @param <V> is the type of the values.
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ * @see AddressIndexer
+ */
+public class AddressIndexedMap<A extends AbstractAddress, V> extends AbstractMap<A,V> {
+
+	private final Map<A,V> map;
+	private final Set<Entry<A,V>> entries = new EntrySet();
+
+	/** Local keys of the entries in the table, by address.
+	 */
+	private final Map<AbstractAddress,Long> indexedKeys = new HashMap<AbstractAddress,Long>();
+
+	private long[] keys = null;
+	private AbstractAddress[] addresses = null;
+	private Object[] values = null;
+	private int indexedCount = 0;
+
+	/**
+	 * @param map is the backing map.
+	 */
+	public AddressIndexedMap(Map<A,V> map) {
+		assert(map!=null && map.isEmpty());
+		this.map = map;
+	}
+
+	private static int hash(int index) {
+		int h = index * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/** Replies the position in the table of the entry with
+	 * the given local index.
+	 * 
+	 * @param index
+	 * @return the position, or <code>-1</code>.
+	 */
+	private int find(int index) {
+		if (this.keys==null) return -1;
+		int mask = this.keys.length - 1;
+		int i = hash(index) & mask;
+		long k;
+		while ((k = this.keys[i])!=0) {
+			if (((int)k)==index) return i;
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	/** Replies the position in the table of the entry for
+	 * the given address.
+	 * 
+	 * @param address
+	 * @return the position, or <code>-1</code>.
+	 */
+	private int findEntry(Object address) {
+		if (address instanceof AbstractAddress) {
+			AbstractAddress adr = (AbstractAddress)address;
+			long key = adr.getLocalKey();
+			if (key!=0) {
+				int i = find((int)key);
+				if (i>=0 && this.keys[i]==key && this.addresses[i]==adr) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private void index(A address, V value) {
+		long key = address.getLocalKey();
+		if (key==0) return;
+		int i = find((int)key);
+		if (i<0) {
+			if ((this.indexedCount + 1) * 2 > ((this.keys==null) ? 0 : this.keys.length)) {
+				grow();
+			}
+			int mask = this.keys.length - 1;
+			i = hash((int)key) & mask;
+			while (this.keys[i]!=0) {
+				i = (i + 1) & mask;
+			}
+			++this.indexedCount;
+		}
+		else if (this.keys[i]!=key || !address.equals(this.addresses[i])) {
+			// The previous entry was indexed with a released index
+			this.indexedKeys.remove(this.addresses[i]);
+		}
+		this.keys[i] = key;
+		this.addresses[i] = address;
+		this.values[i] = value;
+		this.indexedKeys.put(address, Long.valueOf(key));
+	}
+
+	/** Replies the position in the table of the entry which is
+	 * equal to the given address.
+	 * 
+	 * @param address
+	 * @return the position, or <code>-1</code>.
+	 */
+	private int findIndexed(Object address) {
+		Long key = this.indexedKeys.get(address);
+		if (key==null) return -1;
+		long k = key.longValue();
+		int i = find((int)k);
+		return (i>=0 && this.keys[i]==k) ? i : -1;
+	}
+
+	private void grow() {
+		long[] oldKeys = this.keys;
+		AbstractAddress[] oldAddresses = this.addresses;
+		Object[] oldValues = this.values;
+		int capacity = (oldKeys==null) ? 16 : oldKeys.length * 2;
+		this.keys = new long[capacity];
+		this.addresses = new AbstractAddress[capacity];
+		this.values = new Object[capacity];
+		if (oldKeys!=null) {
+			int mask = capacity - 1;
+			int i;
+			for(int j=0; j<oldKeys.length; ++j) {
+				if (oldKeys[j]!=0) {
+					i = hash((int)oldKeys[j]) & mask;
+					while (this.keys[i]!=0) {
+						i = (i + 1) & mask;
+					}
+					this.keys[i] = oldKeys[j];
+					this.addresses[i] = oldAddresses[j];
+					this.values[i] = oldValues[j];
+				}
+			}
+		}
+	}
+
+	/** Remove the entry at the given position of the table,
+	 * and shift back the following entries.
+	 * 
+	 * @param position
+	 */
+	private void removeAt(int position) {
+		int mask = this.keys.length - 1;
+		int i = position;
+		int j = i;
+		int h;
+		long k;
+		while (true) {
+			j = (j + 1) & mask;
+			k = this.keys[j];
+			if (k==0) break;
+			h = hash((int)k) & mask;
+			if ((j>i) ? (h<=i || h>j) : (h<=i && h>j)) {
+				this.keys[i] = k;
+				this.addresses[i] = this.addresses[j];
+				this.values[i] = this.values[j];
+				i = j;
+			}
+		}
+		this.keys[i] = 0;
+		this.addresses[i] = null;
+		this.values[i] = null;
+		--this.indexedCount;
+	}
+
+	/** Remove the entry of the table which is equal to the given address.
+	 * 
+	 * @param address
+	 */
+	private void unindex(Object address) {
+		if (this.indexedCount==0) return;
+		// The entry may be indexed with another instance of the address.
+		int i = findIndexed(address);
+		this.indexedKeys.remove(address);
+		if (i>=0) removeAt(i);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public V get(Object key) {
+		int i = findEntry(key);
+		if (i>=0) return (V)this.values[i];
+		return this.map.get(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey(Object key) {
+		return findEntry(key)>=0 || this.map.containsKey(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V put(A key, V value) {
+		V old = this.map.put(key, value);
+		if (old!=null) unindex(key);
+		index(key, value);
+		return old;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V remove(Object key) {
+		V old = this.map.remove(key);
+		if (old!=null) unindex(key);
+		return old;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		this.map.clear();
+		this.indexedKeys.clear();
+		this.keys = null;
+		this.addresses = null;
+		this.values = null;
+		this.indexedCount = 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return this.map.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isEmpty() {
+		return this.map.isEmpty();
+	}
+
+	/** Replies the entries of this map, in the order of the backing map.
+	 * 
+	 * @return the entries.
+	 */
+	@Override
+	public Set<Entry<A,V>> entrySet() {
+		return this.entries;
+	}
+
+	/**
+	 * Entries of the map, which are removed from the table
+	 * when they are removed through the iterator.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private class EntrySet extends AbstractSet<Entry<A,V>> {
+
+		/**
+		 */
+		public EntrySet() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public Iterator<Entry<A,V>> iterator() {
+			return new EntryIterator(AddressIndexedMap.this.map.entrySet().iterator());
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public int size() {
+			return AddressIndexedMap.this.map.size();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public boolean contains(Object o) {
+			return AddressIndexedMap.this.map.entrySet().contains(o);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void clear() {
+			AddressIndexedMap.this.clear();
+		}
+
+	}
+
+	/**
+	 * Iterator on the entries of the backing map.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private class EntryIterator implements Iterator<Entry<A,V>> {
+
+		private final Iterator<Entry<A,V>> iterator;
+		private A lastKey = null;
+
+		/**
+		 * @param iterator is the iterator on the backing map.
+		 */
+		public EntryIterator(Iterator<Entry<A,V>> iterator) {
+			this.iterator = iterator;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean hasNext() {
+			return this.iterator.hasNext();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Entry<A,V> next() {
+			Entry<A,V> entry = this.iterator.next();
+			// The key is saved because the backing entry may be reused by the removal
+			this.lastKey = entry.getKey();
+			return new IndexedEntry(entry);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public void remove() {
+			if (this.lastKey==null) throw new IllegalStateException();
+			this.iterator.remove();
+			unindex(this.lastKey);
+			this.lastKey = null;
+		}
+
+	}
+
+	/**
+	 * Entry of the backing map, which is also changing
+	 * the value in the table.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private class IndexedEntry implements Entry<A,V> {
+
+		private final Entry<A,V> entry;
+
+		/**
+		 * @param entry is the entry of the backing map.
+		 */
+		public IndexedEntry(Entry<A,V> entry) {
+			this.entry = entry;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public A getKey() {
+			return this.entry.getKey();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public V getValue() {
+			return this.entry.getValue();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public V setValue(V value) {
+			V old = this.entry.setValue(value);
+			int i = findIndexed(this.entry.getKey());
+			if (i>=0) AddressIndexedMap.this.values[i] = value;
+			return old;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			return this.entry.equals(obj);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int hashCode() {
+			return this.entry.hashCode();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String toString() {
+			return this.entry.toString();
+		}
+
+	}
+
+}
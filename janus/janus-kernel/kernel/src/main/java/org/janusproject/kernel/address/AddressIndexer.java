@@ -0,0 +1,165 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.address;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Allocator of the dense local indexes of the addresses
+ * hosted by a kernel.
+ * <p>
+ * The indexes are allocated from zero, and the indexes
+ * of the released addresses are reused first, so that
+ * the indexes remain dense. Each allocation is stamped
+ * to make the difference between two successive hostings
+ * of the same index.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ * @see AbstractAddress#getLocalIndex()
+ * @see AddressIndexedMap
+ */
+public final class AddressIndexer {
+
+	private static final AtomicInteger STAMP = new AtomicInteger();
+
+	private AbstractAddress[] addresses = new AbstractAddress[16];
+	private final Map<AbstractAddress,Integer> indexes = new IdentityHashMap<AbstractAddress,Integer>();
+	private long[] keys = new long[16];
+	private int[] freeIndexes = new int[16];
+	private int freeCount = 0;
+	private int nextIndex = 0;
+	private int size = 0;
+
+	/**
+	 */
+	public AddressIndexer() {
+		//
+	}
+
+	/** Allocate a local index for the given address.
+	 * If the address has already an index given by this
+	 * allocator, this index is replied, even if another
+	 * allocator has changed it meanwhile. If the address has
+	 * an index given by another allocator, e.g. when an agent
+	 * is migrating between two kernels of the same virtual
+	 * machine, a new index replaces it.
+	 * 
+	 * @param address
+	 * @return the local index of the address.
+	 */
+	public synchronized int allocate(AbstractAddress address) {
+		assert(address!=null);
+		int index = address.getLocalIndex();
+		if (index>=0 && index<this.nextIndex && this.addresses[index]==address
+			&& this.keys[index]==address.getLocalKey()) {
+			return index;
+		}
+		// The address may have an index from this allocator, overridden by another allocator.
+		Integer previous = this.indexes.get(address);
+		if (previous!=null) {
+			index = previous.intValue();
+			address.setLocalKey(this.keys[index]);
+			return index;
+		}
+		if (this.freeCount>0) {
+			--this.freeCount;
+			index = this.freeIndexes[this.freeCount];
+		}
+		else {
+			index = this.nextIndex++;
+			if (index>=this.addresses.length) {
+				AbstractAddress[] t = new AbstractAddress[this.addresses.length*2];
+				System.arraycopy(this.addresses, 0, t, 0, this.addresses.length);
+				this.addresses = t;
+				long[] k = new long[this.keys.length*2];
+				System.arraycopy(this.keys, 0, k, 0, this.keys.length);
+				this.keys = k;
+			}
+		}
+		this.addresses[index] = address;
+		this.indexes.put(address, Integer.valueOf(index));
+		++this.size;
+		int stamp;
+		do {
+			stamp = STAMP.incrementAndGet();
+		}
+		while (stamp==0);
+		long key = (((long)stamp) << 32) | (index & 0xFFFFFFFFL);
+		this.keys[index] = key;
+		address.setLocalKey(key);
+		return index;
+	}
+
+	/** Release the local index of the given address.
+	 * Nothing is done if the index of the address was
+	 * not given by this allocator.
+	 * 
+	 * @param address
+	 * @return <code>true</code> if the index was released,
+	 * otherwise <code>false</code>.
+	 */
+	public synchronized boolean release(AbstractAddress address) {
+		assert(address!=null);
+		// The address may have received an index from another allocator.
+		Integer i = this.indexes.remove(address);
+		if (i==null) return false;
+		int index = i.intValue();
+		if (this.keys[index]==address.getLocalKey()) {
+			address.setLocalKey(0);
+		}
+		this.addresses[index] = null;
+		this.keys[index] = 0;
+		--this.size;
+		if (this.freeCount>=this.freeIndexes.length) {
+			int[] t = new int[this.freeIndexes.length*2];
+			System.arraycopy(this.freeIndexes, 0, t, 0, this.freeIndexes.length);
+			this.freeIndexes = t;
+		}
+		this.freeIndexes[this.freeCount++] = index;
+		return true;
+	}
+
+	/** Replies the address which has the given local index.
+	 * 
+	 * @param index
+	 * @return the address, or <code>null</code> if the index
+	 * is not allocated.
+	 */
+	public synchronized AbstractAddress getAddress(int index) {
+		if (index<0 || index>=this.nextIndex) return null;
+		return this.addresses[index];
+	}
+
+	/** Replies the number of allocated indexes.
+	 * 
+	 * @return the number of allocated indexes.
+	 */
+	public synchronized int size() {
+		return this.size;
+	}
+
+}
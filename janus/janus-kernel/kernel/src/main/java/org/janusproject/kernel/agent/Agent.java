@@ -29,9 +29,12 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.janusproject.kernel.address.Address;
 import org.janusproject.kernel.address.AgentAddress;
+import org.janusproject.kernel.agentmemory.Memory;
 import org.janusproject.kernel.agentsignal.BufferedSignalManager;
 import org.janusproject.kernel.agentsignal.SignalManager;
 import org.janusproject.kernel.condition.AfterTimeCondition;
@@ -42,6 +45,7 @@ import org.janusproject.kernel.crio.capacity.CapacityContainer;
 import org.janusproject.kernel.crio.core.CRIOContext;
 import org.janusproject.kernel.crio.core.GroupAddress;
 import org.janusproject.kernel.crio.core.Role;
+import org.janusproject.kernel.crio.core.RoleAddress;
 import org.janusproject.kernel.crio.core.RolePlayer;
 import org.janusproject.kernel.crio.interaction.MailboxUtil;
 import org.janusproject.kernel.crio.organization.GroupCondition;
@@ -87,6 +91,9 @@ implements Activable, Holon, Serializable {
 
 	private static final long serialVersionUID = -377981778136207606L;
 
+	private static final AtomicReferenceFieldUpdater<Agent,Mailbox> MAILBOX_UPDATER =
+		AtomicReferenceFieldUpdater.newUpdater(Agent.class, Mailbox.class, "mailbox"); //$NON-NLS-1$
+
 	/**
 	 * Indicates if this agent is able to commit a suicide or not.
 	 * When a agent is able to commit suicide is will automatically
@@ -147,6 +154,14 @@ implements Activable, Holon, Serializable {
 	 */
 	final AtomicBoolean isMigrating = new AtomicBoolean(false);
 
+	/** Lock which is held while the agent is running its behaviour.
+	 * It permits to take a snapshot of this agent without
+	 * pausing the other agents.
+	 * 
+	 * @since 1.1
+	 */
+	final ReentrantLock activationLock = new ReentrantLock();
+
 	/** Weak reference to the kernel agent on which is agent
 	 * is living.
 	 */
@@ -160,6 +175,11 @@ implements Activable, Holon, Serializable {
 	 */
 	Object[] personalInitParameters = null;
 
+	/** Indicates if the personal init parameters were already
+	 * validated against the prototype of the agent's type.
+	 */
+	transient boolean isPersonalInitParametersValidated = false;
+
 	/**
 	 * Indicates the state of this agent.
 	 */
@@ -168,7 +188,7 @@ implements Activable, Holon, Serializable {
 	/**
 	 * The mailbox of this agent
 	 */
-	private Mailbox mailbox;
+	private volatile Mailbox mailbox;
 
 	/**
 	 * The mailbox of this agent
@@ -180,8 +200,9 @@ implements Activable, Holon, Serializable {
 	private volatile Condition<?> agentWakeUpCondition = null;
 
 	/** Indicates if the agent has migrated from a kernel to another one.
+	 * This flag is set on the instance which has left the kernel.
 	 */
-	private final boolean hasMigrated = false;
+	transient volatile boolean hasMigrated = false;
 
 	/**
 	 * Create a new non-compound agent
@@ -508,6 +529,93 @@ implements Activable, Holon, Serializable {
 		return this.hasMigrated;
 	}
 
+	/**
+	 * Replies if this agent accepts to be moved to another kernel,
+	 * explicitly or by the load balancer of the kernel.
+	 * <p>
+	 * A migrating agent keeps its address, its fields, its mailbox,
+	 * and its memory and capacities when they are serializable.
+	 * Its roles are left on the source kernel and requested again
+	 * on the target kernel: the states of the roles and the messages
+	 * in their mailboxes are not transfered.
+	 * <p>
+	 * By default, an agent does not migrate.
+	 * 
+	 * @return <code>true</code> if this agent may migrate, otherwise <code>false</code>.
+	 * @see org.janusproject.kernel.Kernel#migrateAgent(AgentAddress, AgentAddress)
+	 * @see LoadBalancer
+	 * @EXECUTIONAPI
+	 * @since 1.1
+	 */
+	@SuppressWarnings("static-method")
+	protected boolean canMigrate() {
+		return false;
+	}
+
+	/** Leave all the roles of this agent before its migration.
+	 * 
+	 * @return the addresses of the left roles.
+	 * @since 1.1
+	 */
+	List<RoleAddress> leaveRolesForMigration() {
+		List<RoleAddress> roles = new ArrayList<RoleAddress>();
+		Iterator<RoleAddress> iterator = getRoleAddresses();
+		while (iterator.hasNext()) {
+			roles.add(iterator.next());
+		}
+		leaveAllRoles();
+		return roles;
+	}
+
+	/** Request the roles of this agent after its migration.
+	 * 
+	 * @param roles are the roles played before the migration.
+	 * @return the roles which cannot be obtained.
+	 * @since 1.1
+	 */
+	List<RoleAddress> requestRolesAfterMigration(Collection<RoleAddress> roles) {
+		List<RoleAddress> failures = new ArrayList<RoleAddress>();
+		for(RoleAddress role : roles) {
+			if (requestRole(role.getRole(), role.getGroup())==null) {
+				failures.add(role);
+			}
+		}
+		return failures;
+	}
+
+	/** Replies the memory of this agent if it may follow the agent
+	 * during its migration.
+	 * 
+	 * @return the memory, or <code>null</code> if not serializable.
+	 * @since 1.1
+	 */
+	Memory getMigrableMemory() {
+		Memory m = getMemory();
+		return (m instanceof Serializable) ? m : null;
+	}
+
+	/** Replies the capacities of this agent if they may follow the agent
+	 * during its migration.
+	 * 
+	 * @return the capacities, or <code>null</code> if not serializable.
+	 * @since 1.1
+	 */
+	CapacityContainer getMigrableCapacities() {
+		CapacityContainer c = getCapacityContainer();
+		return (c instanceof Serializable) ? c : null;
+	}
+
+	/** Restore the memory and the capacities of this agent after its migration.
+	 * 
+	 * @param memory is the memory of the agent, or <code>null</code>.
+	 * @param capacities are the capacities of the agent, or <code>null</code>.
+	 * @since 1.1
+	 */
+	void restoreAfterMigration(Memory memory, CapacityContainer capacities) {
+		if (memory!=null) setMemory(memory);
+		if (capacities!=null) setCapacityContainer(capacities);
+	}
+
 	/** Force the value of the agent state
 	 * 
 	 * @param state
@@ -817,15 +925,18 @@ implements Activable, Holon, Serializable {
 	 */
 	Status proceedPrivateInitialization(Object... parameters) {
 		Object[] params;
+		boolean isValidated = false;
 		if (this.personalInitParameters!=null) {
 			params = this.personalInitParameters;
 			this.personalInitParameters = null;
+			isValidated = this.isPersonalInitParametersValidated;
 		}
 		else {
 			params = parameters;
 		}
+		this.isPersonalInitParametersValidated = false;
 
-		assert(AgentActivationPrototypeValidator.validateInputParameters(
+		assert(isValidated || AgentActivationPrototypeValidator.validateInputParameters(
 				getClass(),
 				params));
 
@@ -902,11 +1013,20 @@ implements Activable, Holon, Serializable {
 		return canCommitSuicide() && activator.isUsed() && !activator.hasActivable();
 	}
 
+	/** Invoked when a message was delivered to this agent.
+	 * 
+	 * @since 1.1
+	 */
+	final void messageDelivered() {
+		markModified();
+	}
+
 	/** Run the private behaviour of this agent and invoke {@link #live()}
 	 * 
 	 * @return the status of the behaviour execution.
 	 */
 	Status proceedPrivateBehaviour() {
+		markModified();
 		Activator<? extends Role> activator = getRoleActivator();
 		assert(activator!=null);
 		activator.sync();
@@ -1150,10 +1270,15 @@ implements Activable, Holon, Serializable {
 	 * @MESSAGEAPI
 	 */
 	protected final Mailbox getMailbox() {
-		if (this.mailbox==null) {
-			this.mailbox = MailboxUtil.createDefaultMailbox(getClass(), getCRIOContext().getProperties(), getLogger());
+		Mailbox m = this.mailbox;
+		if (m==null) {
+			// The mailbox may be lazily created by several senders at the same time
+			m = MailboxUtil.createDefaultMailbox(getClass(), getCRIOContext().getProperties(), getLogger());
+			if (!MAILBOX_UPDATER.compareAndSet(this, null, m)) {
+				m = this.mailbox;
+			}
 		}
-		return this.mailbox;
+		return m;
 	}	
 
 	/**
@@ -1348,6 +1473,24 @@ implements Activable, Holon, Serializable {
 		return !getMailbox().isEmpty();
 	}
 
+	/** Indicates if the agent mailbox contains a message of the given type.
+	 * <p>
+	 * This function does not scan the mailbox when the mailbox
+	 * is a {@link org.janusproject.kernel.mailbox.PerTypeMailbox}.
+	 * 
+	 * @param <T> is the type of the expected messages.
+	 * @param type is the type of the expected messages.
+	 * @return <code>true</code> if the message contains at least one message
+	 * of the given type, otherwise <code>false</code>
+	 * @see #getMessages(Class)
+	 * @see #peekMessages(Class)
+	 * @MESSAGEAPI
+	 * @since 1.1
+	 */
+	protected final <T extends Message> boolean hasMessage(Class<T> type) {
+		return getMailbox().contains(new TypeSelector<T>(type));
+	}
+
 	/**
 	 * Replies the number of messages in the agent mailbox.
 	 * 
@@ -23,6 +23,9 @@ package org.janusproject.kernel.agent;
 import java.util.Collection;
 import java.util.Iterator;
 
+import org.janusproject.kernel.metrics.Counter;
+import org.janusproject.kernel.metrics.Histogram;
+import org.janusproject.kernel.metrics.KernelMetrics;
 import org.janusproject.kernel.schedule.AbstractActivator;
 import org.janusproject.kernel.schedule.ActivationStage;
 import org.janusproject.kernel.status.ExceptionStatus;
@@ -50,6 +53,9 @@ import org.janusproject.kernel.util.directaccess.SafeIterator;
 public class AgentActivator
 extends AbstractActivator<Agent> {
 
+	private static final Histogram PASS_TIME = KernelMetrics.getHistogram(KernelMetrics.ACTIVATION_PASS_TIME);
+	private static final Counter ACTIVATIONS = KernelMetrics.getCounter(KernelMetrics.AGENT_ACTIVATIONS);
+
 	/** 
 	 */
 	public AgentActivator() {
@@ -85,6 +91,8 @@ extends AbstractActivator<Agent> {
 				}
 			}
 			else {
+				// A migrating agent is resumed without being initialized again
+				h.isMigrating.set(false);
 				s = StatusFactory.ok(h);
 			}
 			ms.addStatus(s);
@@ -97,6 +105,8 @@ extends AbstractActivator<Agent> {
 	 */
 	@Override
 	protected Status executeBehaviour(Iterator<? extends Agent> agents) {
+		boolean metrics = KernelMetrics.isMetricsEnable();
+		long start = metrics ? System.nanoTime() : 0;
 		MultipleStatus ms = new MultipleStatus();
 		Agent h;
 		Status s;
@@ -106,6 +116,8 @@ extends AbstractActivator<Agent> {
 			switch(h.getState()) {
 			case ALIVE:
 				// standard execution
+				if (metrics) ACTIVATIONS.increment();
+				h.activationLock.lock();
 				try {
 					if (!h.wakeUpIfSleeping()) {
 						s = h.proceedPrivateBehaviour();
@@ -117,6 +129,9 @@ extends AbstractActivator<Agent> {
 				catch(Throwable e) {
 					s = new ExceptionStatus(e);
 				}
+				finally {
+					h.activationLock.unlock();
+				}
 				break;
 			case DYING:
 				// kill the agent
@@ -149,6 +164,7 @@ extends AbstractActivator<Agent> {
 			if (s!=null) ms.addStatus(s);
 			Thread.yield();
 		}
+		if (metrics) PASS_TIME.record(System.nanoTime() - start);
 		return ms.pack(this);
 	}
 
@@ -218,6 +234,22 @@ extends AbstractActivator<Agent> {
 		addActivableObject(agent);
 	}
 
+	/** Add agents to activate with the same initialization parameters.
+	 * The agents are added with a single change of the collection
+	 * of activable agents.
+	 * 
+	 * @param agents are the new agents.
+	 * @param initParameters are the parameters to pass to <code>activate()</code>
+	 * @since 1.1
+	 */
+	void addAgents(Collection<? extends Agent> agents, Object... initParameters) {
+		Object[] params = (initParameters==null || initParameters.length==0) ? null : initParameters;
+		for(Agent agent : agents) {
+			agent.personalInitParameters = params;
+		}
+		addAllActivableObjects(agents);
+	}
+
 	/** Remove an agent from the collection of activable agents.
 	 * 
 	 * @param agent is the agent to remove.
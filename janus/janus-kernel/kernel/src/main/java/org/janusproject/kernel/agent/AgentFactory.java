@@ -0,0 +1,43 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agent;
+
+/**
+ * This interface is used by the kernel to create
+ * the agents of a population launched in bulk.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ * @see org.janusproject.kernel.Kernel#launchLightAgents(AgentFactory, int, Object...)
+ */
+public interface AgentFactory {
+
+	/** Invoked to obtain a new instance of agent.
+	 * 
+	 * @param index is the index of the agent in the launched population.
+	 * @return the new agent instance, never <code>null</code>.
+	 */
+	public Agent newInstance(int index);
+
+}
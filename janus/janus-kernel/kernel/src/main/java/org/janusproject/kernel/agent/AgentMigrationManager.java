@@ -0,0 +1,600 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.arakhne.afc.vmutil.locale.Locale;
+import org.janusproject.kernel.address.AgentAddress;
+import org.janusproject.kernel.agentmemory.Memory;
+import org.janusproject.kernel.crio.capacity.CapacityContainer;
+import org.janusproject.kernel.crio.core.PrivilegedPlayerAddressService;
+import org.janusproject.kernel.crio.core.RoleAddress;
+import org.janusproject.kernel.mailbox.BufferedMailbox;
+import org.janusproject.kernel.mailbox.Mailbox;
+import org.janusproject.kernel.message.Message;
+import org.janusproject.kernel.status.MultipleStatus;
+import org.janusproject.kernel.status.Status;
+import org.janusproject.kernel.status.StatusFactory;
+import org.janusproject.kernel.util.selector.TypeSelector;
+import org.janusproject.kernel.util.sizediterator.SizedIterator;
+
+/**
+ * Manager of the migrations of the agents between kernels,
+ * and of the balancing of the loads of the kernels.
+ * <p>
+ * A migrating agent is serialized with its mailbox, and with its
+ * memory and its capacities when they are serializable. The roles
+ * of the agent are left on the source kernel, and requested again
+ * on the target kernel once the agent is restored with its address.
+ * The serialized agent is sent to the kernel agent of the target
+ * kernel through the distant kernel handler, ie. the network adapter.
+ * If the agent cannot be sent, the original agent is resumed on the
+ * source kernel. If the target kernel cannot restore the agent, it is
+ * sent back to the source kernel.
+ * <p>
+ * The messages received by the agent after its serialization are
+ * sent to the target kernel agent in a second migration message,
+ * which is delivered in the mailbox of the restored agent.
+ * <p>
+ * The loads of the kernels are exchanged with the same messages,
+ * and the {@link LoadBalancer} selects the agents to move.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+final class AgentMigrationManager {
+
+	private static final TypeSelector<MigrationMessage> SELECTOR = new TypeSelector<MigrationMessage>(MigrationMessage.class);
+
+	private final KernelAgent kernel;
+	private final Map<AgentAddress,KernelLoad> remoteLoads = new ConcurrentHashMap<AgentAddress,KernelLoad>();
+	private volatile LoadBalancer balancer = null;
+
+	/**
+	 * @param kernel is the kernel agent which is owning this manager.
+	 */
+	public AgentMigrationManager(KernelAgent kernel) {
+		assert(kernel!=null);
+		this.kernel = kernel;
+	}
+
+	/** Replies the load balancer.
+	 * 
+	 * @return the load balancer, or <code>null</code> if none.
+	 */
+	public LoadBalancer getLoadBalancer() {
+		return this.balancer;
+	}
+
+	/** Set the load balancer.
+	 * 
+	 * @param balancer is the load balancer, or <code>null</code> to disable balancing.
+	 */
+	public void setLoadBalancer(LoadBalancer balancer) {
+		this.balancer = balancer;
+	}
+
+	/** Replies if the given agent may be moved to another kernel.
+	 * 
+	 * @param agent
+	 * @return <code>true</code> if the agent may migrate, otherwise <code>false</code>.
+	 */
+	static boolean isMigrable(Agent agent) {
+		return !(agent instanceof ActivatorAgent<?>)
+			&& agent.executionResource==null
+			&& agent.getState()==AgentLifeState.ALIVE
+			&& agent.canMigrate();
+	}
+
+	/** Move the agent with the given address to the given kernel.
+	 * 
+	 * @param agentAddress is the address of the agent to move.
+	 * @param target is the address of the target kernel agent.
+	 * @return the status of the migration.
+	 */
+	public Status migrate(AgentAddress agentAddress, AgentAddress target) {
+		Agent agent = this.kernel.getKernelContext().getAgentRepository().get(agentAddress);
+		if (agent==null) {
+			return StatusFactory.error(this,
+					Locale.getString(AgentMigrationManager.class, "UNKNOWN_AGENT", agentAddress)); //$NON-NLS-1$
+		}
+		return migrate(agent, target);
+	}
+
+	/** Move the given agent to the given kernel.
+	 * <p>
+	 * The agent is removed from this kernel between two activations
+	 * of its behaviour.
+	 * 
+	 * @param agent is the agent to move.
+	 * @param target is the address of the target kernel agent.
+	 * @return the status of the migration.
+	 */
+	public Status migrate(Agent agent, AgentAddress target) {
+		AgentAddress adr = agent.getAddress();
+		KernelContext context = this.kernel.getKernelContext();
+		if (target==null || target.equals(this.kernel.getAddress())
+			|| context.getDistantKernelHandler()==null) {
+			return StatusFactory.error(this,
+					Locale.getString(AgentMigrationManager.class, "INVALID_TARGET_KERNEL", target)); //$NON-NLS-1$
+		}
+
+		// Wait for the end of the current activation of the agent,
+		// and block its next activation during the migration.
+		agent.activationLock.lock();
+		try {
+			AgentActivator activator = this.kernel.getActivator();
+			if (!isMigrable(agent) || activator==null || !activator.removeAgent(agent)) {
+				return StatusFactory.error(this,
+						Locale.getString(AgentMigrationManager.class, "NOT_MIGRABLE_AGENT", adr)); //$NON-NLS-1$
+			}
+			agent.isMigrating.set(true);
+			List<RoleAddress> roles = agent.leaveRolesForMigration();
+
+			Mailbox mailbox = agent.getMailbox();
+			synchronizeMailbox(mailbox);
+			Set<UUID> sentMessages = new HashSet<UUID>();
+			for(Message message : mailbox.iterable(false)) {
+				sentMessages.add(message.getIdentifier());
+			}
+
+			byte[] data;
+			try {
+				data = write(agent, roles);
+			}
+			catch(IOException e) {
+				// The agent stays on this kernel
+				agent.requestRolesAfterMigration(roles);
+				activator.addAgent(agent);
+				return StatusFactory.error(this,
+						Locale.getString(AgentMigrationManager.class, "SERIALIZATION_FAILURE", adr), //$NON-NLS-1$
+						e);
+			}
+
+			// Detach the agent from this kernel
+			context.getAgentRepository().remove(adr);
+			agent.hasMigrated = true;
+
+			// The agent must be accepted by the distant kernel handler,
+			// otherwise it could not be resumed on this kernel.
+			if (InteractionUtil.sendDistantMessage(this.kernel, target, new MigrationMessage(data, false))==null) {
+				// The original agent stays on this kernel
+				agent.hasMigrated = false;
+				context.getAgentRepository().add(adr, agent);
+				agent.requestRolesAfterMigration(roles);
+				activator.addAgent(agent);
+				return StatusFactory.error(this,
+						Locale.getString(AgentMigrationManager.class, "SEND_FAILURE", adr, target)); //$NON-NLS-1$
+			}
+
+			context.getProbeManager().release(agent);
+
+			// Send the messages received since the serialization
+			// to the target kernel.
+			synchronizeMailbox(mailbox);
+			List<Message> lateMessages = new ArrayList<Message>();
+			for(Message message : mailbox.iterable(true)) {
+				if (!sentMessages.contains(message.getIdentifier())) {
+					lateMessages.add(message);
+				}
+			}
+			if (!lateMessages.isEmpty()
+				&& InteractionUtil.sendDistantMessage(this.kernel, target,
+						new MigrationMessage(adr, lateMessages, false))==null) {
+				this.kernel.getLogger().warning(Locale.getString(
+						AgentMigrationManager.class,
+						"LOST_MESSAGES", //$NON-NLS-1$
+						Integer.valueOf(lateMessages.size()), adr));
+			}
+
+			agent.dispose();
+			agent.creator = null;
+			agent.kernel = null;
+
+			this.kernel.getLogger().fine(Locale.getString(
+					AgentMigrationManager.class,
+					"AGENT_MIGRATED", //$NON-NLS-1$
+					adr, target));
+
+			return StatusFactory.ok(this);
+		}
+		finally {
+			agent.activationLock.unlock();
+		}
+	}
+
+	/** Put the buffered messages of the given mailbox in its inbox.
+	 * 
+	 * @param mailbox
+	 */
+	private static void synchronizeMailbox(Mailbox mailbox) {
+		if (mailbox instanceof BufferedMailbox) {
+			((BufferedMailbox)mailbox).synchronizeMessages();
+		}
+	}
+
+	/** Restore the agent from the given data on this kernel.
+	 * 
+	 * @param data is the serialized agent.
+	 * @return the status of the restoration.
+	 */
+	private Status resume(byte[] data) {
+		List<RoleAddress> roles = new ArrayList<RoleAddress>();
+		Agent agent;
+		try {
+			agent = read(data, roles);
+		}
+		catch(AssertionError ae) {
+			throw ae;
+		}
+		catch(Throwable e) {
+			return StatusFactory.error(this,
+					Locale.getString(AgentMigrationManager.class, "DESERIALIZATION_FAILURE"), //$NON-NLS-1$
+					e);
+		}
+
+		AgentAddress adr = agent.getAddress();
+		KernelContext context = this.kernel.getKernelContext();
+		AgentActivator activator = this.kernel.getActivator();
+		if (activator==null || context.getAgentRepository().contains(adr)) {
+			return StatusFactory.error(this,
+					Locale.getString(AgentMigrationManager.class, "ALREADY_EXISTING_AGENT", adr)); //$NON-NLS-1$
+		}
+
+		context.getAgentRepository().add(adr, agent);
+		agent.kernel = new WeakReference<KernelAgent>(this.kernel);
+		agent.isMigrating.set(true);
+		List<RoleAddress> failures = agent.requestRolesAfterMigration(roles);
+		// The agent is not initialized again by the activator
+		activator.addAgent(agent);
+
+		this.kernel.getLogger().fine(Locale.getString(
+				AgentMigrationManager.class,
+				"AGENT_ARRIVED", //$NON-NLS-1$
+				adr));
+
+		if (!failures.isEmpty()) {
+			return StatusFactory.warning(this,
+					Locale.getString(AgentMigrationManager.class, "ROLE_FAILURE", adr, failures)); //$NON-NLS-1$
+		}
+		return StatusFactory.ok(this);
+	}
+
+	/** Consume the migration messages which were received by the kernel agent.
+	 * 
+	 * @return the status of the restorations of the received agents.
+	 */
+	public Status processMessages() {
+		Mailbox mailbox = this.kernel.getMailbox();
+		MultipleStatus ms = new MultipleStatus();
+		MigrationMessage message;
+		Status s;
+		while ((message = mailbox.removeFirst(SELECTOR))!=null) {
+			if (message.load!=null) {
+				this.remoteLoads.put(message.load.getKernel(), message.load);
+			}
+			else if (message.messages!=null) {
+				deliver(message);
+			}
+			else {
+				s = resume(message.agent);
+				if (s.isFailure() && !message.isReturned
+					&& message.getSender() instanceof AgentAddress) {
+					// Send the agent back to its previous kernel
+					AgentAddress source = message.getSender();
+					this.kernel.sendMessage(new MigrationMessage(message.agent, true), source);
+				}
+				ms.addStatus(s);
+			}
+		}
+		return ms.isEmpty() ? StatusFactory.ok(this) : ms.pack(this);
+	}
+
+	/** Deliver the messages which were received by a migrated agent
+	 * on its previous kernel.
+	 * 
+	 * @param message is the migration message which contains the messages.
+	 */
+	private void deliver(MigrationMessage message) {
+		Agent agent = this.kernel.getKernelContext().getAgentRepository().get(message.receiver);
+		if (agent!=null) {
+			Mailbox mailbox = agent.getMailbox();
+			for(Message m : message.messages) {
+				mailbox.add(m);
+			}
+		}
+		else if (!message.isReturned && message.getSender() instanceof AgentAddress) {
+			// The agent was sent back to its previous kernel
+			AgentAddress source = message.getSender();
+			this.kernel.sendMessage(
+					new MigrationMessage(message.receiver, message.messages, true),
+					source);
+		}
+		else {
+			this.kernel.getLogger().warning(Locale.getString(
+					AgentMigrationManager.class,
+					"LOST_MESSAGES", //$NON-NLS-1$
+					Integer.valueOf(message.messages.size()), message.receiver));
+		}
+	}
+
+	/** Replies the load of the local kernel.
+	 * 
+	 * @return the load of the local kernel.
+	 */
+	public KernelLoad getLocalLoad() {
+		int agents = 0;
+		int migrables = 0;
+		long messages = 0;
+		for(Agent agent : this.kernel.getKernelContext().getAgentRepository().values()) {
+			if (!(agent instanceof KernelAgent)) {
+				++agents;
+				if (isMigrable(agent)) ++migrables;
+				messages += agent.getMailbox().size();
+			}
+		}
+		return new KernelLoad(this.kernel.getAddress(), agents, migrables, messages,
+				System.currentTimeMillis());
+	}
+
+	/** Send the load of the local kernel to the remote kernels,
+	 * and move the agents selected by the load balancer.
+	 * 
+	 * @return the status of the migrations.
+	 */
+	public Status balance() {
+		DistantKernelHandler handler = this.kernel.getKernelContext().getDistantKernelHandler();
+		SizedIterator<AgentAddress> iterator = (handler==null) ? null : handler.getRemoteKernels();
+		if (iterator==null) return StatusFactory.ok(this);
+
+		KernelLoad localLoad = getLocalLoad();
+		Collection<KernelLoad> loads = new ArrayList<KernelLoad>();
+		Set<AgentAddress> kernels = new HashSet<AgentAddress>();
+		AgentAddress remoteKernel;
+		KernelLoad load;
+		while (iterator.hasNext()) {
+			remoteKernel = iterator.next();
+			kernels.add(remoteKernel);
+			this.kernel.sendMessage(new MigrationMessage(localLoad), remoteKernel);
+			load = this.remoteLoads.get(remoteKernel);
+			if (load!=null) loads.add(load);
+		}
+		// Forget the kernels which have disappeared
+		this.remoteLoads.keySet().retainAll(kernels);
+
+		LoadBalancer b = this.balancer;
+		if (b==null || loads.isEmpty() || localLoad.getMigrableAgentCount()==0) {
+			return StatusFactory.ok(this);
+		}
+
+		List<AgentAddress> candidates = new ArrayList<AgentAddress>();
+		for(Agent agent : this.kernel.getKernelContext().getAgentRepository().values()) {
+			if (!(agent instanceof KernelAgent) && isMigrable(agent)) {
+				candidates.add(agent.getAddress());
+			}
+		}
+
+		MultipleStatus ms = new MultipleStatus();
+		for(Entry<AgentAddress,AgentAddress> move : b.balance(localLoad, loads, candidates).entrySet()) {
+			ms.addStatus(this.kernel.migrateAgent(move.getKey(), move.getValue()));
+		}
+		return ms.isEmpty() ? StatusFactory.ok(this) : ms.pack(this);
+	}
+
+	/** Create the task which is periodically balancing the loads.
+	 * 
+	 * @return the task.
+	 */
+	public Runnable createBalancingTask() {
+		return new BalancingTask();
+	}
+
+	/** Serialize and compress the given agent.
+	 * 
+	 * @param agent
+	 * @param roles are the roles played by the agent before its migration.
+	 * @return the compressed serialized agent.
+	 * @throws IOException
+	 */
+	private static byte[] write(Agent agent, List<RoleAddress> roles) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(new DeflaterOutputStream(bytes));
+		try {
+			// The address is written first to be restored
+			// when the agent is deserialized.
+			oos.writeObject(agent.getAddress());
+			oos.writeObject(agent);
+			oos.writeObject(agent.getMigrableMemory());
+			oos.writeObject(agent.getMigrableCapacities());
+			oos.writeObject(new ArrayList<RoleAddress>(roles));
+		}
+		finally {
+			oos.close();
+		}
+		return bytes.toByteArray();
+	}
+
+	/** Decompress and deserialize an agent.
+	 * 
+	 * @param data is the compressed serialized agent.
+	 * @param roles is filled with the roles played by the agent before its migration.
+	 * @return the agent.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	@SuppressWarnings("unchecked")
+	private Agent read(byte[] data, List<RoleAddress> roles) throws IOException, ClassNotFoundException {
+		PrivilegedPlayerAddressService pa = this.kernel.getKernelContext().getPrivilegedPlayerAddressService();
+		assert(pa!=null);
+		ObjectInputStream ois = new ObjectInputStream(
+				new InflaterInputStream(new ByteArrayInputStream(data)));
+		try {
+			pa.setNextPlayerAddress((AgentAddress)ois.readObject());
+			Agent agent = (Agent)ois.readObject();
+			Memory memory = (Memory)ois.readObject();
+			CapacityContainer capacities = (CapacityContainer)ois.readObject();
+			roles.addAll((List<RoleAddress>)ois.readObject());
+			agent.restoreAfterMigration(memory, capacities);
+			return agent;
+		}
+		finally {
+			pa.setNextPlayerAddress(null);
+			ois.close();
+		}
+	}
+
+	/**
+	 * Message exchanged by the kernel agents to move an agent,
+	 * to forward the late messages of a moved agent,
+	 * or to publish their loads.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	static class MigrationMessage extends Message {
+
+		private static final long serialVersionUID = 3896702372135608329L;
+
+		/** Serialized agent, or <code>null</code> for a load or messages.
+		 */
+		final byte[] agent;
+
+		/** Indicates if the agent or the messages are sent back to the previous kernel.
+		 */
+		final boolean isReturned;
+
+		/** Address of the moved agent which should receive the {@link #messages}.
+		 */
+		final AgentAddress receiver;
+
+		/** Messages received by the moved agent after its serialization,
+		 * or <code>null</code> for an agent or a load.
+		 */
+		final List<Message> messages;
+
+		/** Load of the sending kernel, or <code>null</code> for an agent.
+		 */
+		final KernelLoad load;
+
+		/**
+		 * @param agent is the serialized agent.
+		 * @param isReturned indicates if the agent is sent back to its previous kernel.
+		 */
+		public MigrationMessage(byte[] agent, boolean isReturned) {
+			this.agent = agent;
+			this.isReturned = isReturned;
+			this.receiver = null;
+			this.messages = null;
+			this.load = null;
+		}
+
+		/**
+		 * @param receiver is the address of the moved agent.
+		 * @param messages are the messages received by the agent after its serialization.
+		 * @param isReturned indicates if the messages are sent back to the previous kernel.
+		 */
+		public MigrationMessage(AgentAddress receiver, List<Message> messages, boolean isReturned) {
+			this.agent = null;
+			this.isReturned = isReturned;
+			this.receiver = receiver;
+			this.messages = messages;
+			this.load = null;
+		}
+
+		/**
+		 * @param load is the load of the sending kernel.
+		 */
+		public MigrationMessage(KernelLoad load) {
+			this.agent = null;
+			this.isReturned = false;
+			this.receiver = null;
+			this.messages = null;
+			this.load = load;
+		}
+
+	}
+
+	/**
+	 * Task which is periodically balancing the loads.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private class BalancingTask implements Runnable {
+
+		/**
+		 */
+		public BalancingTask() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public void run() {
+			Logger logger = AgentMigrationManager.this.kernel.getLogger();
+			try {
+				Status s = balance();
+				if (s.isLoggable()) {
+					s.logOn(logger);
+				}
+			}
+			catch(AssertionError ae) {
+				throw ae;
+			}
+			catch(Throwable e) {
+				logger.log(Level.WARNING, e.toString(), e);
+			}
+		}
+
+	}
+
+}
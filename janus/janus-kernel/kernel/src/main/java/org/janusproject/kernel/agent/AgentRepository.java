@@ -20,12 +20,19 @@
  */
 package org.janusproject.kernel.agent;
 
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.janusproject.kernel.address.AddressIndexer;
 import org.janusproject.kernel.address.AgentAddress;
 import org.janusproject.kernel.repository.ConcurrentHashRepository;
 
 /**
  * This registry stores a reference to each agent of this kernel and their respective address : Agent White Pages.
  * This class is a singleton.
+ * <p>
+ * The address of each registered agent receives a dense local index,
+ * which is released when the agent is removed from the registry.
  * 
  * @author $Author: ngaud$
  * @author $Author: srodriguez$
@@ -33,14 +40,65 @@ import org.janusproject.kernel.repository.ConcurrentHashRepository;
  * @version $FullVersion$
  * @mavengroupid $GroupId$
  * @mavenartifactid $ArtifactId$
+ * @see AgentAddress#getLocalIndex()
  */
 final class AgentRepository
 extends ConcurrentHashRepository<AgentAddress,Agent> {
 	
+	private final AddressIndexer indexer = new AddressIndexer();
+	
 	/**
 	 */
 	public AgentRepository() {
 		//
 	}
 	
+	/** Replies the allocator of the local indexes of the agents.
+	 * 
+	 * @return the allocator of the local indexes.
+	 * @since 1.1
+	 */
+	public AddressIndexer getIndexer() {
+		return this.indexer;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void add(AgentAddress key, Agent data) {
+		this.indexer.allocate(data.getAddress());
+		super.add(key, data);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void addAll(Map<? extends AgentAddress, ? extends Agent> data) {
+		for(Agent agent : data.values()) {
+			this.indexer.allocate(agent.getAddress());
+		}
+		super.addAll(data);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Agent remove(AgentAddress key) {
+		Agent agent = super.remove(key);
+		if (agent!=null) this.indexer.release(agent.getAddress());
+		return agent;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void onRemoveFromIterator(Entry<AgentAddress,Agent> data) {
+		this.indexer.release(data.getValue().getAddress());
+		super.onRemoveFromIterator(data);
+	}
+	
 }
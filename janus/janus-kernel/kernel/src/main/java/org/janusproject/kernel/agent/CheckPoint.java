@@ -0,0 +1,340 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agent;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.zip.InflaterInputStream;
+
+import org.arakhne.afc.vmutil.locale.Locale;
+import org.janusproject.kernel.crio.core.GroupSnapshot;
+
+/**
+ * Content of an incremental check-point of a kernel.
+ * <p>
+ * A check-point is composed of independent entries: one for each
+ * agent (including its mailbox) and one for each group. Each entry
+ * is a compressed serialization of the entity. A full check-point
+ * contains all the entities of the kernel; a delta check-point
+ * contains only the entities which have changed since the previous
+ * check-point, and the identifiers of the removed entities.
+ * <p>
+ * The binary format is:
+ * <pre>
+ * int     magic number
+ * short   version of the format
+ * boolean is delta
+ * long    sequence number
+ * long    kernel identifier (most significant bits)
+ * long    kernel identifier (least significant bits)
+ * long    creation date
+ * entries, each composed of:
+ *     byte   type of entry (0 for the end of the check-point)
+ *     long   entity identifier (most significant bits)
+ *     long   entity identifier (least significant bits)
+ *     int    size of the data, if not a removal
+ *     byte[] compressed data, if not a removal
+ * </pre>
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ * @see org.janusproject.kernel.Kernel#createIncrementalCheckPoint(OutputStream, boolean)
+ */
+public class CheckPoint {
+
+	/** Version of the check-point format.
+	 */
+	public static final short FORMAT_VERSION = 1;
+
+	/** Magic number at the beginning of each check-point.
+	 */
+	static final int MAGIC_NUMBER = 0x4A43504B;
+
+	/** Type of entry which is marking the end of the check-point.
+	 */
+	static final byte END = 0;
+
+	/** Type of entry for an agent.
+	 */
+	static final byte AGENT = 1;
+
+	/** Type of entry for a group.
+	 */
+	static final byte GROUP = 2;
+
+	/** Type of entry for a removed agent.
+	 */
+	static final byte REMOVED_AGENT = 3;
+
+	/** Type of entry for a removed group.
+	 */
+	static final byte REMOVED_GROUP = 4;
+
+	private final UUID kernelId;
+	private final boolean isDelta;
+	private long sequence;
+	private long creationDate;
+	private final Map<UUID,byte[]> agents = new LinkedHashMap<UUID,byte[]>();
+	private final Map<UUID,byte[]> groups = new LinkedHashMap<UUID,byte[]>();
+	private final Set<UUID> removedAgents = new TreeSet<UUID>();
+	private final Set<UUID> removedGroups = new TreeSet<UUID>();
+
+	/**
+	 * @param kernelId is the identifier of the kernel.
+	 * @param isDelta indicates if the check-point is a delta check-point.
+	 * @param sequence is the sequence number of the check-point.
+	 * @param creationDate is the date of creation of the check-point.
+	 */
+	private CheckPoint(UUID kernelId, boolean isDelta, long sequence, long creationDate) {
+		this.kernelId = kernelId;
+		this.isDelta = isDelta;
+		this.sequence = sequence;
+		this.creationDate = creationDate;
+	}
+
+	/** Read a check-point from the given stream.
+	 * 
+	 * @param stream is the stream to read.
+	 * @return the check-point.
+	 * @throws IOException if the stream cannot be read or does not contain a check-point.
+	 */
+	public static CheckPoint read(InputStream stream) throws IOException {
+		DataInputStream dis = new DataInputStream(stream);
+		if (dis.readInt()!=MAGIC_NUMBER) {
+			throw new IOException(Locale.getString(CheckPoint.class, "INVALID_FORMAT")); //$NON-NLS-1$
+		}
+		short version = dis.readShort();
+		if (version!=FORMAT_VERSION) {
+			throw new IOException(Locale.getString(CheckPoint.class, "UNSUPPORTED_VERSION", Short.toString(version))); //$NON-NLS-1$
+		}
+		boolean isDelta = dis.readBoolean();
+		long sequence = dis.readLong();
+		UUID kernelId = new UUID(dis.readLong(), dis.readLong());
+		long creationDate = dis.readLong();
+		CheckPoint checkPoint = new CheckPoint(kernelId, isDelta, sequence, creationDate);
+		byte type;
+		UUID id;
+		byte[] data;
+		while ((type = dis.readByte())!=END) {
+			id = new UUID(dis.readLong(), dis.readLong());
+			switch(type) {
+			case AGENT:
+			case GROUP:
+				data = new byte[dis.readInt()];
+				dis.readFully(data);
+				if (type==AGENT) checkPoint.agents.put(id, data);
+				else checkPoint.groups.put(id, data);
+				break;
+			case REMOVED_AGENT:
+				checkPoint.removedAgents.add(id);
+				break;
+			case REMOVED_GROUP:
+				checkPoint.removedGroups.add(id);
+				break;
+			default:
+				throw new IOException(Locale.getString(CheckPoint.class, "INVALID_FORMAT")); //$NON-NLS-1$
+			}
+		}
+		return checkPoint;
+	}
+
+	/** Write the header of a check-point.
+	 * 
+	 * @param stream
+	 * @param kernelId
+	 * @param isDelta
+	 * @param sequence
+	 * @param creationDate
+	 * @throws IOException
+	 */
+	static void writeHeader(DataOutputStream stream, UUID kernelId, boolean isDelta, long sequence, long creationDate) throws IOException {
+		stream.writeInt(MAGIC_NUMBER);
+		stream.writeShort(FORMAT_VERSION);
+		stream.writeBoolean(isDelta);
+		stream.writeLong(sequence);
+		stream.writeLong(kernelId.getMostSignificantBits());
+		stream.writeLong(kernelId.getLeastSignificantBits());
+		stream.writeLong(creationDate);
+	}
+
+	/** Write an entry of a check-point.
+	 * 
+	 * @param stream
+	 * @param type
+	 * @param id
+	 * @param data is the compressed data, or <code>null</code> for a removal.
+	 * @throws IOException
+	 */
+	static void writeEntry(DataOutputStream stream, byte type, UUID id, byte[] data) throws IOException {
+		stream.writeByte(type);
+		stream.writeLong(id.getMostSignificantBits());
+		stream.writeLong(id.getLeastSignificantBits());
+		if (data!=null) {
+			stream.writeInt(data.length);
+			stream.write(data);
+		}
+	}
+
+	/** Replies the identifier of the kernel which has created this check-point.
+	 * 
+	 * @return the identifier of the kernel.
+	 */
+	public UUID getKernelId() {
+		return this.kernelId;
+	}
+
+	/** Replies if this check-point contains only the changes since
+	 * the previous check-point.
+	 * 
+	 * @return <code>true</code> if this check-point is a delta check-point,
+	 * <code>false</code> if it is a full check-point.
+	 */
+	public boolean isDelta() {
+		return this.isDelta;
+	}
+
+	/** Replies the sequence number of this check-point.
+	 * The full check-points have the sequence number zero,
+	 * and each delta check-point increments it.
+	 * 
+	 * @return the sequence number.
+	 */
+	public long getSequence() {
+		return this.sequence;
+	}
+
+	/** Replies the date at which this check-point was created.
+	 * 
+	 * @return the date in milliseconds.
+	 */
+	public long getCreationDate() {
+		return this.creationDate;
+	}
+
+	/** Replies the identifiers of the agents in this check-point.
+	 * 
+	 * @return the identifiers of the agents.
+	 */
+	public Set<UUID> getAgents() {
+		return Collections.unmodifiableSet(this.agents.keySet());
+	}
+
+	/** Replies the identifiers of the groups in this check-point.
+	 * 
+	 * @return the identifiers of the groups.
+	 */
+	public Set<UUID> getGroups() {
+		return Collections.unmodifiableSet(this.groups.keySet());
+	}
+
+	/** Replies the identifiers of the agents which were removed
+	 * since the previous check-point.
+	 * 
+	 * @return the identifiers of the removed agents.
+	 */
+	public Set<UUID> getRemovedAgents() {
+		return Collections.unmodifiableSet(this.removedAgents);
+	}
+
+	/** Replies the identifiers of the groups which were removed
+	 * since the previous check-point.
+	 * 
+	 * @return the identifiers of the removed groups.
+	 */
+	public Set<UUID> getRemovedGroups() {
+		return Collections.unmodifiableSet(this.removedGroups);
+	}
+
+	/** Restore the agent with the given identifier.
+	 * 
+	 * @param id is the identifier of the agent.
+	 * @return the agent, or <code>null</code> if the agent is not in this check-point.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	public Agent getAgent(UUID id) throws IOException, ClassNotFoundException {
+		return (Agent)readObject(this.agents.get(id));
+	}
+
+	/** Restore the snapshot of the group with the given identifier.
+	 * 
+	 * @param id is the identifier of the group.
+	 * @return the snapshot, or <code>null</code> if the group is not in this check-point.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	public GroupSnapshot getGroup(UUID id) throws IOException, ClassNotFoundException {
+		return (GroupSnapshot)readObject(this.groups.get(id));
+	}
+
+	private static Object readObject(byte[] data) throws IOException, ClassNotFoundException {
+		if (data==null) return null;
+		ObjectInputStream ois = new ObjectInputStream(
+				new InflaterInputStream(new ByteArrayInputStream(data)));
+		try {
+			return ois.readObject();
+		}
+		finally {
+			ois.close();
+		}
+	}
+
+	/** Apply the given delta check-point on this check-point.
+	 * <p>
+	 * After this call, this check-point describes the state of the
+	 * kernel at the time the delta check-point was created.
+	 * 
+	 * @param delta is the delta check-point to apply.
+	 * @throws IllegalArgumentException if the given check-point is not
+	 * a delta check-point following this check-point.
+	 */
+	public void apply(CheckPoint delta) {
+		if (!delta.isDelta() || !this.kernelId.equals(delta.getKernelId())
+			|| delta.getSequence()!=this.sequence+1) {
+			throw new IllegalArgumentException(Locale.getString(CheckPoint.class, "NOT_NEXT_DELTA")); //$NON-NLS-1$
+		}
+		for(UUID id : delta.removedAgents) {
+			this.agents.remove(id);
+		}
+		for(UUID id : delta.removedGroups) {
+			this.groups.remove(id);
+		}
+		this.agents.putAll(delta.agents);
+		this.groups.putAll(delta.groups);
+		this.sequence = delta.getSequence();
+		this.creationDate = delta.getCreationDate();
+	}
+
+}
@@ -0,0 +1,379 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+
+import org.arakhne.afc.vmutil.locale.Locale;
+import org.janusproject.kernel.crio.core.CRIOContext;
+import org.janusproject.kernel.crio.core.GroupAddress;
+import org.janusproject.kernel.crio.core.GroupSnapshot;
+import org.janusproject.kernel.status.MultipleStatus;
+import org.janusproject.kernel.status.Status;
+import org.janusproject.kernel.status.StatusFactory;
+
+/**
+ * Writer of incremental check-points for a kernel.
+ * <p>
+ * The agents and the groups are serialized independently and
+ * in parallel. Each agent is serialized while it is not running
+ * its behaviour, so that only this agent is paused during its
+ * own snapshot. A checksum of each serialized entity is kept
+ * to detect the entities which have changed since the previous
+ * check-point, and to write delta check-points. For a delta check-point,
+ * the agents which were not activated and have not received messages since
+ * the previous check-point are not serialized again.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ * @see CheckPoint
+ */
+final class CheckPointWriter {
+
+	/** Marker replied by the snapshot tasks for the unchanged entities.
+	 */
+	static final byte[] UNCHANGED = new byte[0];
+
+	private final KernelAgent kernel;
+	private final int threadCount;
+	private Map<UUID,Long> agentChecksums = null;
+	private Map<UUID,Long> agentStamps = null;
+	private Map<UUID,Long> groupChecksums = null;
+	private long sequence = 0;
+
+	/**
+	 * @param kernel is the kernel to save.
+	 * @param threadCount is the number of threads used to create the snapshots.
+	 */
+	public CheckPointWriter(KernelAgent kernel, int threadCount) {
+		assert(kernel!=null);
+		assert(threadCount>0);
+		this.kernel = kernel;
+		this.threadCount = threadCount;
+	}
+
+	/** Write a check-point in the given stream.
+	 * <p>
+	 * If a delta check-point is asked but no check-point was
+	 * previously written, a full check-point is written.
+	 * 
+	 * @param stream is the output stream.
+	 * @param delta indicates if only the changes since the previous
+	 * check-point must be written.
+	 * @return the status of the snapshots; it contains an error for
+	 * each entity which cannot be saved.
+	 * @throws IOException
+	 */
+	public synchronized Status write(OutputStream stream, boolean delta) throws IOException {
+		boolean isDelta = delta && this.agentChecksums!=null;
+		long seq = isDelta ? this.sequence + 1 : 0;
+
+		KernelContext context = this.kernel.getKernelContext();
+		CRIOContext crioContext = this.kernel.getCRIOContext();
+
+		MultipleStatus status = new MultipleStatus();
+		Map<UUID,Long> newAgentChecksums = new HashMap<UUID,Long>();
+		Map<UUID,Long> newAgentStamps = new HashMap<UUID,Long>();
+		Map<UUID,Long> newGroupChecksums = new HashMap<UUID,Long>();
+
+		DataOutputStream dos = new DataOutputStream(stream);
+		CheckPoint.writeHeader(dos, this.kernel.getAddress().getUUID(), isDelta, seq, System.currentTimeMillis());
+
+		ExecutorService executor = Executors.newFixedThreadPool(this.threadCount);
+		try {
+			// Agents
+			List<Future<byte[]>> agentTasks = new ArrayList<Future<byte[]>>();
+			List<AgentSnapshot> agents = new ArrayList<AgentSnapshot>();
+			for(Agent agent : context.getAgentRepository().values()) {
+				// The kernel agent is the container of the other entities.
+				if (!(agent instanceof KernelAgent)) {
+					UUID id = agent.getAddress().getUUID();
+					Long previousStamp = isDelta ? this.agentStamps.get(id) : null;
+					AgentSnapshot snapshot = new AgentSnapshot(agent, previousStamp);
+					agents.add(snapshot);
+					if (agent.activationLock.isHeldByCurrentThread()) {
+						// The caller is the agent itself; snapshot it
+						// from the current thread to avoid a dead-lock.
+						agentTasks.add(new Snapshot(snapshot).runNow());
+					}
+					else {
+						agentTasks.add(executor.submit(snapshot));
+					}
+				}
+			}
+
+			// Groups
+			List<Future<byte[]>> groupTasks = new ArrayList<Future<byte[]>>();
+			List<GroupAddress> groups = new ArrayList<GroupAddress>(crioContext.getGroupAddresses());
+			for(GroupAddress group : groups) {
+				groupTasks.add(executor.submit(new GroupSnapshotTask(crioContext, group)));
+			}
+
+			for(int i=0; i<agents.size(); ++i) {
+				AgentSnapshot snapshot = agents.get(i);
+				UUID id = snapshot.agent.getAddress().getUUID();
+				if (writeEntry(dos, CheckPoint.AGENT, id,
+						agentTasks.get(i), isDelta, this.agentChecksums, newAgentChecksums, status)) {
+					newAgentStamps.put(id, Long.valueOf(snapshot.stamp));
+				}
+			}
+			for(int i=0; i<groups.size(); ++i) {
+				writeEntry(dos, CheckPoint.GROUP, groups.get(i).getUUID(),
+						groupTasks.get(i), isDelta, this.groupChecksums, newGroupChecksums, status);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		if (isDelta) {
+			writeRemovals(dos, CheckPoint.REMOVED_AGENT, this.agentChecksums.keySet(), newAgentChecksums);
+			writeRemovals(dos, CheckPoint.REMOVED_GROUP, this.groupChecksums.keySet(), newGroupChecksums);
+		}
+		dos.writeByte(CheckPoint.END);
+		dos.flush();
+
+		this.agentChecksums = newAgentChecksums;
+		this.agentStamps = newAgentStamps;
+		this.groupChecksums = newGroupChecksums;
+		this.sequence = seq;
+
+		return status.isEmpty() ? StatusFactory.ok(this) : status.pack(this);
+	}
+
+	/** Write the entry for the given entity.
+	 * 
+	 * @return <code>true</code> if the entity was successfully saved or
+	 * is unchanged, <code>false</code> if the entity cannot be saved.
+	 */
+	private static boolean writeEntry(DataOutputStream stream, byte type, UUID id, Future<byte[]> task,
+			boolean isDelta, Map<UUID,Long> oldChecksums, Map<UUID,Long> newChecksums,
+			MultipleStatus status) throws IOException {
+		byte[] data;
+		try {
+			data = task.get();
+		}
+		catch(InterruptedException e) {
+			throw new IOException(e.toString());
+		}
+		catch(ExecutionException e) {
+			status.addStatus(StatusFactory.error(
+					CheckPointWriter.class,
+					Locale.getString(CheckPointWriter.class, "SNAPSHOT_FAILURE", id.toString()), //$NON-NLS-1$
+					e.getCause()));
+			// The entity is still alive; keep its previous state
+			// to avoid to mark it as removed in the next delta.
+			Long checksum = (oldChecksums==null) ? null : oldChecksums.get(id);
+			if (checksum!=null) {
+				newChecksums.put(id, checksum);
+			}
+			return false;
+		}
+		if (data==UNCHANGED) {
+			Long checksum = oldChecksums.get(id);
+			assert(checksum!=null);
+			newChecksums.put(id, checksum);
+		}
+		else if (data!=null) {
+			Long checksum = checksum(data);
+			newChecksums.put(id, checksum);
+			if (!isDelta || !checksum.equals(oldChecksums.get(id))) {
+				CheckPoint.writeEntry(stream, type, id, data);
+			}
+		}
+		return true;
+	}
+
+	private static void writeRemovals(DataOutputStream stream, byte type, Collection<UUID> oldIds, Map<UUID,Long> newChecksums) throws IOException {
+		for(UUID id : oldIds) {
+			if (!newChecksums.containsKey(id)) {
+				CheckPoint.writeEntry(stream, type, id, null);
+			}
+		}
+	}
+
+	private static Long checksum(byte[] data) {
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		return Long.valueOf((((long)data.length) << 32) ^ crc.getValue());
+	}
+
+	/** Serialize and compress the given object.
+	 * 
+	 * @param object
+	 * @return the compressed serialized object.
+	 * @throws IOException
+	 */
+	static byte[] serialize(Serializable object) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(new DeflaterOutputStream(bytes));
+		try {
+			oos.writeObject(object);
+		}
+		finally {
+			oos.close();
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Task which is creating the snapshot of an agent.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class AgentSnapshot implements Callable<byte[]> {
+
+		/** Agent to save.
+		 */
+		public final Agent agent;
+
+		/** Modification stamp of the agent when it was saved.
+		 * It is set by {@link #call()}.
+		 */
+		public long stamp;
+
+		private final Long previousStamp;
+
+		/**
+		 * @param agent
+		 * @param previousStamp is the modification stamp of the agent
+		 * in the previous check-point, or <code>null</code> if the agent
+		 * must be serialized.
+		 */
+		public AgentSnapshot(Agent agent, Long previousStamp) {
+			this.agent = agent;
+			this.previousStamp = previousStamp;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public byte[] call() throws Exception {
+			// Wait for the end of the current activation of the agent,
+			// and block its next activation during the snapshot.
+			this.agent.activationLock.lock();
+			try {
+				if (this.agent.getState().isMortuary()) return null;
+				this.stamp = this.agent.getModificationStamp();
+				if (this.previousStamp!=null && this.previousStamp.longValue()==this.stamp) {
+					return UNCHANGED;
+				}
+				return serialize(this.agent);
+			}
+			finally {
+				this.agent.activationLock.unlock();
+			}
+		}
+
+	}
+
+	/**
+	 * Task which is creating the snapshot of a group.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class GroupSnapshotTask implements Callable<byte[]> {
+
+		private final CRIOContext context;
+		private final GroupAddress group;
+
+		/**
+		 * @param context
+		 * @param group
+		 */
+		public GroupSnapshotTask(CRIOContext context, GroupAddress group) {
+			this.context = context;
+			this.group = group;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public byte[] call() throws Exception {
+			GroupSnapshot snapshot = this.context.createGroupSnapshot(this.group);
+			if (snapshot==null) return null;
+			return serialize(snapshot);
+		}
+
+	}
+
+	/**
+	 * Future of a snapshot which is run in the calling thread.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class Snapshot extends FutureTask<byte[]> {
+
+		/**
+		 * @param task
+		 */
+		public Snapshot(Callable<byte[]> task) {
+			super(task);
+		}
+
+		/** Run the snapshot.
+		 * 
+		 * @return this future.
+		 */
+		public Snapshot runNow() {
+			run();
+			return this;
+		}
+
+	}
+
+}
@@ -0,0 +1,549 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.janusproject.kernel.address.AgentAddress;
+import org.janusproject.kernel.mailbox.DeliveryBuffer;
+import org.janusproject.kernel.status.ExceptionStatus;
+import org.janusproject.kernel.status.MultipleStatus;
+import org.janusproject.kernel.status.Status;
+import org.janusproject.kernel.time.ConstantKernelTimeManager;
+import org.janusproject.kernel.util.random.RandomNumber;
+
+/**
+ * Activator for discrete-time simulations which is running the
+ * agents in parallel inside each step, and which replies the same
+ * results for the same seed.
+ * <p>
+ * Each invocation of {@link #live()} is a step of the simulation.
+ * The alive agents are run in parallel by a pool of threads, and a
+ * barrier waits for all of them at the end of the step. The result
+ * does not depend on the scheduling of the threads because:
+ * <ul>
+ * <li>each agent has a rank, given by the order of the launches;
+ * the agents launched during a step are ranked at the barrier, by
+ * the rank of their launcher and by their launching order;</li>
+ * <li>each agent has its own random stream, derived from the seed
+ * and from its rank; it is used by {@link RandomNumber} while the
+ * agent is running;</li>
+ * <li>the identifiers of the addresses and of the messages created by
+ * an agent are derived from the seed, from its rank and from the
+ * number of identifiers it has already created; they are not drawn
+ * from its random stream;</li>
+ * <li>the messages sent during a step are buffered and delivered
+ * at the barrier, by rank of their senders and by sending order;</li>
+ * <li>the receivers of the messages broadcast to a role during a step
+ * are the players of the role at the barrier, after the roles taken
+ * and left during the step.</li>
+ * </ul>
+ * The roles taken or left and the groups created by an agent are
+ * changed immediately, while the other agents are running. So the
+ * agents must not depend, during a step, on the organizational changes
+ * made by the other agents in the same step: the players of a role which
+ * are read, or the receiver of a message sent to a role, may depend on
+ * the scheduling of the threads in this case. Two agents must not create
+ * the same group during a step.
+ * <p>
+ * The agents must not share other mutable states outside the messages,
+ * or they must access them in an order-independent way.
+ * <p>
+ * The barrier may be extended by overriding {@link #onStepBarrier(long)}.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class DeterministicAgentActivator extends AgentActivator {
+
+	/** State of the agent which is run by the current thread.
+	 */
+	private static final ThreadLocal<AgentStepState> RUNNING = new ThreadLocal<AgentStepState>();
+
+	private final long seed;
+	private final int threadCount;
+	private final ConstantKernelTimeManager timeManager;
+	private final Map<AgentAddress,AgentStepState> states = new HashMap<AgentAddress,AgentStepState>();
+	private final TreeMap<Long,AgentStepState> rankedStates = new TreeMap<Long,AgentStepState>();
+	private long nextRank = 0;
+	private long step = 0;
+	private ThreadPoolExecutor executor = null;
+
+	/** 
+	 * @param seed is the seed of the simulation.
+	 */
+	public DeterministicAgentActivator(long seed) {
+		this(seed, Runtime.getRuntime().availableProcessors(), null);
+	}
+
+	/** 
+	 * @param seed is the seed of the simulation.
+	 * @param threadCount is the number of threads which are running the agents.
+	 */
+	public DeterministicAgentActivator(long seed, int threadCount) {
+		this(seed, threadCount, null);
+	}
+
+	/** 
+	 * @param seed is the seed of the simulation.
+	 * @param threadCount is the number of threads which are running the agents.
+	 * @param timeManager is the time manager to increment at the end of each step,
+	 * or <code>null</code> if the time is managed elsewhere.
+	 */
+	public DeterministicAgentActivator(long seed, int threadCount, ConstantKernelTimeManager timeManager) {
+		assert(threadCount>0);
+		this.seed = seed;
+		this.threadCount = threadCount;
+		this.timeManager = timeManager;
+	}
+
+	/** Replies the seed of the simulation.
+	 * 
+	 * @return the seed.
+	 */
+	public long getSeed() {
+		return this.seed;
+	}
+
+	/** Replies the number of threads which are running the agents.
+	 * 
+	 * @return the number of threads.
+	 */
+	public int getThreadCount() {
+		return this.threadCount;
+	}
+
+	/** Replies the number of steps already run.
+	 * 
+	 * @return the number of steps.
+	 */
+	public synchronized long getStep() {
+		return this.step;
+	}
+
+	/** Invoked at the end of each step, when all the agents have
+	 * finished their behaviours and the messages were delivered.
+	 * <p>
+	 * This function is invoked by the thread of the activator
+	 * and does nothing by default.
+	 * 
+	 * @param stepNumber is the number of the finished step, starting at <code>1</code>.
+	 */
+	protected void onStepBarrier(long stepNumber) {
+		//
+	}
+
+	/** Replies the state of the given agent, and rank the agent if
+	 * it has no rank yet.
+	 * 
+	 * @param agent
+	 * @return the state of the agent.
+	 */
+	private AgentStepState getState(Agent agent) {
+		synchronized(this.states) {
+			AgentStepState state = this.states.get(agent.getAddress());
+			if (state==null) {
+				state = rank(agent);
+			}
+			return state;
+		}
+	}
+
+	private AgentStepState rank(Agent agent) {
+		assert(Thread.holdsLock(this.states));
+		long r = this.nextRank++;
+		AgentStepState state = new AgentStepState(agent, r,
+				RandomNumber.createStream(this.seed, r),
+				RandomNumber.createIdentifierStream(this.seed, r));
+		this.states.put(agent.getAddress(), state);
+		this.rankedStates.put(Long.valueOf(r), state);
+		return state;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	void addAgent(Agent agent, Object... initParameters) {
+		AgentStepState launcher = RUNNING.get();
+		if (launcher!=null) {
+			// Launched by a running agent: ranked at the barrier.
+			launcher.launched.add(agent);
+		}
+		else {
+			getState(agent);
+		}
+		super.addAgent(agent, initParameters);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	void addAgents(Collection<? extends Agent> agents, Object... initParameters) {
+		AgentStepState launcher = RUNNING.get();
+		if (launcher!=null) {
+			// Launched by a running agent: ranked at the barrier.
+			launcher.launched.addAll(agents);
+		}
+		else {
+			for(Agent agent : agents) {
+				getState(agent);
+			}
+		}
+		super.addAgents(agents, initParameters);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Status executeInit(Iterator<? extends Agent> agents, Object... parameters) {
+		List<AgentStepState> ordered = sort(agents);
+		MultipleStatus ms = new MultipleStatus();
+		for(AgentStepState state : ordered) {
+			state.attach();
+			try {
+				ms.addStatus(super.executeInit(Collections.singleton(state.agent).iterator(), parameters));
+			}
+			finally {
+				state.detach();
+			}
+		}
+		return ms.pack(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Status executeBehaviour(Iterator<? extends Agent> agents) {
+		List<AgentStepState> ordered = sort(agents);
+		List<Agent> others = new ArrayList<Agent>();
+		List<Callable<Status>> tasks = new ArrayList<Callable<Status>>(ordered.size());
+		for(AgentStepState state : ordered) {
+			if (state.agent.getState()==AgentLifeState.ALIVE) {
+				tasks.add(new AgentStepTask(state));
+			}
+			else {
+				others.add(state.agent);
+			}
+		}
+
+		MultipleStatus ms = new MultipleStatus();
+		if (!tasks.isEmpty()) {
+			try {
+				for(Future<Status> future : getExecutor().invokeAll(tasks)) {
+					try {
+						ms.addStatus(future.get());
+					}
+					catch(ExecutionException e) {
+						ms.addStatus(new ExceptionStatus(e.getCause()));
+					}
+				}
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				ms.addStatus(new ExceptionStatus(e));
+			}
+		}
+
+		// The agents which are dying are killed by rank
+		if (!others.isEmpty()) {
+			ms.addStatus(super.executeBehaviour(others.iterator()));
+		}
+
+		barrier();
+
+		return ms.pack(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Status executeDestroy(Iterator<? extends Agent> agents) {
+		List<Agent> destroyed = new ArrayList<Agent>();
+		while (agents.hasNext()) {
+			destroyed.add(agents.next());
+		}
+		Status s = super.executeDestroy(destroyed.iterator());
+		synchronized(this.states) {
+			AgentStepState state;
+			for(Agent agent : destroyed) {
+				state = this.states.remove(agent.getAddress());
+				if (state!=null) {
+					this.rankedStates.remove(Long.valueOf(state.rank));
+					// Deliver the last messages of the agent
+					state.buffer.flush();
+				}
+			}
+		}
+		return s;
+	}
+
+	/** Rank the launched agents, deliver the buffered messages, and
+	 * increment the time.
+	 */
+	private void barrier() {
+		synchronized(this.states) {
+			List<AgentStepState> launchers = new ArrayList<AgentStepState>(this.rankedStates.values());
+			for(AgentStepState state : launchers) {
+				for(Agent agent : state.launched) {
+					if (!this.states.containsKey(agent.getAddress())) {
+						rank(agent);
+					}
+				}
+				state.launched.clear();
+			}
+			for(AgentStepState state : this.rankedStates.values()) {
+				state.buffer.flush();
+			}
+		}
+		if (this.timeManager!=null) {
+			this.timeManager.increment();
+		}
+		long n;
+		synchronized(this) {
+			n = ++this.step;
+		}
+		onStepBarrier(n);
+	}
+
+	private List<AgentStepState> sort(Iterator<? extends Agent> agents) {
+		List<AgentStepState> ordered = new ArrayList<AgentStepState>();
+		while (agents.hasNext()) {
+			ordered.add(getState(agents.next()));
+		}
+		Collections.sort(ordered, RankComparator.SINGLETON);
+		return ordered;
+	}
+
+	private synchronized ThreadPoolExecutor getExecutor() {
+		if (this.executor==null) {
+			this.executor = new ThreadPoolExecutor(
+					this.threadCount, this.threadCount,
+					60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(),
+					new DaemonThreadFactory());
+			this.executor.allowCoreThreadTimeOut(true);
+		}
+		return this.executor;
+	}
+
+	/**
+	 * State of an agent in the deterministic activator.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class AgentStepState {
+
+		/** Agent.
+		 */
+		public final Agent agent;
+
+		/** Rank of the agent.
+		 */
+		public final long rank;
+
+		/** Random stream of the agent.
+		 */
+		public final Random random;
+
+		/** Stream of the identifiers created by the agent.
+		 */
+		public final Random identifiers;
+
+		/** Messages sent by the agent during the current step.
+		 */
+		public final DeliveryBuffer buffer = new DeliveryBuffer();
+
+		/** Agents launched by the agent during the current step, in launching order.
+		 */
+		public final List<Agent> launched = new ArrayList<Agent>();
+
+		/**
+		 * @param agent
+		 * @param rank
+		 * @param random
+		 * @param identifiers
+		 */
+		public AgentStepState(Agent agent, long rank, Random random, Random identifiers) {
+			this.agent = agent;
+			this.rank = rank;
+			this.random = random;
+			this.identifiers = identifiers;
+		}
+
+		/** Attach this state to the current thread.
+		 */
+		@SuppressWarnings("synthetic-access")
+		public void attach() {
+			RUNNING.set(this);
+			RandomNumber.setLocalRandom(this.random);
+			RandomNumber.setLocalIdentifierStream(this.identifiers);
+			DeliveryBuffer.setCurrent(this.buffer);
+		}
+
+		/** Detach this state from the current thread.
+		 */
+		@SuppressWarnings("synthetic-access")
+		public void detach() {
+			DeliveryBuffer.setCurrent(null);
+			RandomNumber.setLocalIdentifierStream(null);
+			RandomNumber.setLocalRandom(null);
+			RUNNING.remove();
+		}
+
+	}
+
+	/**
+	 * Run the behaviour of an agent for one step.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class AgentStepTask implements Callable<Status> {
+
+		private final AgentStepState state;
+
+		/**
+		 * @param state
+		 */
+		public AgentStepTask(AgentStepState state) {
+			this.state = state;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Status call() throws Exception {
+			Agent agent = this.state.agent;
+			this.state.attach();
+			agent.activationLock.lock();
+			try {
+				if (!agent.wakeUpIfSleeping()) {
+					return agent.proceedPrivateBehaviour();
+				}
+				return null;
+			}
+			catch(AssertionError e) {
+				throw e;
+			}
+			catch(Throwable e) {
+				return new ExceptionStatus(e);
+			}
+			finally {
+				agent.activationLock.unlock();
+				this.state.detach();
+			}
+		}
+
+	}
+
+	/**
+	 * Compare the states of the agents by rank.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class RankComparator implements Comparator<AgentStepState> {
+
+		/** Singleton.
+		 */
+		public static final RankComparator SINGLETON = new RankComparator();
+
+		/**
+		 */
+		public RankComparator() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int compare(AgentStepState o1, AgentStepState o2) {
+			return (o1.rank<o2.rank) ? -1 : ((o1.rank==o2.rank) ? 0 : 1);
+		}
+
+	}
+
+	/**
+	 * Factory of the daemon threads which are running the agents.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class DaemonThreadFactory implements ThreadFactory {
+
+		/**
+		 */
+		public DaemonThreadFactory() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r);
+			t.setDaemon(true);
+			return t;
+		}
+
+	}
+
+}
@@ -30,6 +30,8 @@ import org.janusproject.kernel.address.Address;
 import org.janusproject.kernel.address.AgentAddress;
 import org.janusproject.kernel.crio.core.PrivilegedPlayerAddressService;
 import org.janusproject.kernel.crio.core.RolePlayer;
+import org.janusproject.kernel.mailbox.DeliveryBuffer;
+import org.janusproject.kernel.mailbox.Mailbox;
 import org.janusproject.kernel.message.Message;
 import org.janusproject.kernel.message.MessageFactory;
 import org.janusproject.kernel.message.MessageReceiverSelectionPolicy;
@@ -90,8 +92,11 @@ class InteractionUtil extends MessageFactory {
 			setSender(message, emitterAddress);
 			setReceiver(message, receiverAddress);
 	
-			// Put message in mail box
-			return receiver.getMailbox().add(message);
+			// Put message in mail box, or differ its delivery
+			Mailbox mailbox = receiver.getMailbox();
+			receiver.messageDelivered();
+			if (DeliveryBuffer.post(mailbox, message)) return true;
+			return mailbox.add(message);
 		}
 		return false;
 	}
@@ -119,6 +124,33 @@ class InteractionUtil extends MessageFactory {
 		return false;
 	}
 
+	/**
+	 * Send the specified <code>Message</code> to an agent which is running
+	 * on a distant kernel.
+	 * <p>
+	 * Contrary to the other sending functions, the reply of the distant kernel
+	 * handler is replied, and the local agents are ignored.
+	 * 
+	 * @param emitter is the emitter of the message.
+	 * @param receiverAddress is the address of the distant receiver.
+	 * @param message is the message to send
+	 * @return the address of the receiver of the message if the distant kernel
+	 *         handler has delivered it, <code>null</code> else.
+	 * @since 1.1
+	 */
+	static Address sendDistantMessage(
+			Agent emitter, 
+			AgentAddress receiverAddress,
+			Message message) {
+		KernelContext context = emitter.getKernelContext();
+		DistantKernelHandler distantKernel = context.getDistantKernelHandler();
+		if (distantKernel==null) return null;
+		setCreationDate(message, context.getTimeManager().getCurrentTime());
+		setSender(message, emitter.getAddress());
+		setReceiver(message, receiverAddress);
+		return distantKernel.sendMessage(message);
+	}
+
 	private static boolean broadcastDistantMessage(Agent emitter, Message message) {
 		assert(message!=null);
 		assert(emitter!=null);
@@ -29,9 +29,13 @@ import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EventListener;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -44,6 +48,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.arakhne.afc.vmutil.locale.Locale;
+import org.janusproject.kernel.BulkKernelListener;
 import org.janusproject.kernel.Kernel;
 import org.janusproject.kernel.KernelEvent;
 import org.janusproject.kernel.KernelEvent.KernelEventType;
@@ -65,6 +70,7 @@ import org.janusproject.kernel.crio.organization.OrganizationFactory;
 import org.janusproject.kernel.crio.organization.PrivilegedPersistentGroupCleanerService;
 import org.janusproject.kernel.logger.LoggerUtil;
 import org.janusproject.kernel.message.Message;
+import org.janusproject.kernel.metrics.KernelMetrics;
 import org.janusproject.kernel.repository.Repository;
 import org.janusproject.kernel.schedule.Activable;
 import org.janusproject.kernel.status.ExceptionStatus;
@@ -115,6 +121,30 @@ extends ActivatorAgent<AgentActivator> {
 	 * as heavy.
 	 */
 	private final Collection<Agent> newHeavyAgents = new LinkedList<Agent>();
+
+	/** Writer of the incremental check-points, lazily created.
+	 */
+	private transient CheckPointWriter checkPointWriter = null;
+
+	/** Task which is periodically dumping the metrics.
+	 */
+	private transient ScheduledFuture<?> metricsDumpTask = null;
+
+	/** Indicates if this kernel has registered the JMX bean of the metrics.
+	 */
+	private transient boolean isMetricsMBeanRegistered = false;
+
+	/** Indicates if this kernel has enabled the metrics.
+	 */
+	private transient boolean isMetricsEnabled = false;
+
+	/** Manager of the migrations of the agents, lazily created.
+	 */
+	private transient AgentMigrationManager migrationManager = null;
+
+	/** Task which is periodically balancing the loads of the kernels.
+	 */
+	private transient ScheduledFuture<?> loadBalancingTask = null;
 	
 	/**
 	 * Create a kernel agent with the default settings.
@@ -535,15 +565,168 @@ extends ActivatorAgent<AgentActivator> {
 		return this.context;
 	}
 
+	/** Replies the writer of the incremental check-points.
+	 * 
+	 * @return the writer of the check-points.
+	 * @since 1.1
+	 */
+	synchronized CheckPointWriter getCheckPointWriter() {
+		if (this.checkPointWriter==null) {
+			this.checkPointWriter = new CheckPointWriter(this,
+					Runtime.getRuntime().availableProcessors());
+		}
+		return this.checkPointWriter;
+	}
+
+	/** Replies the manager of the migrations of the agents.
+	 * 
+	 * @return the manager of the migrations.
+	 * @since 1.1
+	 */
+	synchronized AgentMigrationManager getAgentMigrationManager() {
+		if (this.migrationManager==null) {
+			this.migrationManager = new AgentMigrationManager(this);
+		}
+		return this.migrationManager;
+	}
+
+	/** Move the given agent to another kernel.
+	 * 
+	 * @param agent is the address of the agent to move.
+	 * @param kernel is the address of the kernel agent of the target kernel.
+	 * @return the status of the migration.
+	 * @since 1.1
+	 */
+	final Status migrateAgent(AgentAddress agent, AgentAddress kernel) {
+		return getAgentMigrationManager().migrate(agent, kernel);
+	}
+
 	@Override
 	protected Logger createLoggerInstance() {
 		return LoggerUtil.createKernelLogger(getClass(), getTimeManager(), getAddress());
 	}
 	
+	/** {@inheritDoc}
+	 */
+	@Override
+	Status proceedPrivateInitialization(Object... parameters) {
+		startMetrics();
+		startLoadBalancing();
+		return super.proceedPrivateInitialization(parameters);
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	Status proceedPrivateDestruction() {
+		Status s = super.proceedPrivateDestruction();
+		stopLoadBalancing();
+		stopMetrics();
+		return s;
+	}
+
+	/** Start the periodic balancing of the loads of the kernels
+	 * according to the Janus properties.
+	 */
+	private void startLoadBalancing() {
+		JanusProperties props = getCRIOContext().getProperties();
+		assert(props!=null);
+		long period = props.getLong(JanusProperty.JANUS_LOAD_BALANCING_PERIOD);
+		if (period>0) {
+			try {
+				this.loadBalancingTask = this.context.getScheduledExecutorService().scheduleWithFixedDelay(
+						getAgentMigrationManager().createBalancingTask(), period, period, TimeUnit.MILLISECONDS);
+			}
+			catch(AssertionError ae) {
+				throw ae;
+			}
+			catch(RejectedExecutionException e) {
+				getLogger().log(Level.WARNING, Throwables.toString(e), e);
+			}
+		}
+	}
+
+	/** Stop the periodic balancing of the loads of the kernels.
+	 */
+	private void stopLoadBalancing() {
+		if (this.loadBalancingTask!=null) {
+			this.loadBalancingTask.cancel(false);
+			this.loadBalancingTask = null;
+		}
+	}
+
+	/** Enable the metrics, their periodic dump and their JMX bean
+	 * according to the Janus properties.
+	 */
+	private void startMetrics() {
+		JanusProperties props = getCRIOContext().getProperties();
+		assert(props!=null);
+		if (props.getBoolean(JanusProperty.JANUS_METRICS)) {
+			KernelMetrics.enableMetrics();
+			this.isMetricsEnabled = true;
+		}
+		long period = props.getLong(JanusProperty.JANUS_METRICS_DUMP_PERIOD);
+		if (period>0) {
+			try {
+				this.metricsDumpTask = this.context.getScheduledExecutorService().scheduleAtFixedRate(
+						KernelMetrics.createDumpTask(getLogger()), period, period, TimeUnit.MILLISECONDS);
+			}
+			catch(AssertionError ae) {
+				throw ae;
+			}
+			catch(RejectedExecutionException e) {
+				getLogger().log(Level.WARNING, Throwables.toString(e), e);
+			}
+		}
+		if (props.getBoolean(JanusProperty.JANUS_METRICS_JMX)) {
+			try {
+				KernelMetrics.registerMBean();
+				this.isMetricsMBeanRegistered = true;
+			}
+			catch(AssertionError ae) {
+				throw ae;
+			}
+			catch(Throwable e) {
+				getLogger().log(Level.WARNING, Throwables.toString(e), e);
+			}
+		}
+	}
+
+	/** Stop the periodic dump of the metrics, unregister their JMX bean,
+	 * and release the metrics enabled by this kernel.
+	 */
+	private void stopMetrics() {
+		if (this.isMetricsEnabled) {
+			this.isMetricsEnabled = false;
+			KernelMetrics.disableMetrics();
+		}
+		if (this.metricsDumpTask!=null) {
+			this.metricsDumpTask.cancel(false);
+			this.metricsDumpTask = null;
+		}
+		if (this.isMetricsMBeanRegistered) {
+			this.isMetricsMBeanRegistered = false;
+			try {
+				KernelMetrics.unregisterMBean();
+			}
+			catch(AssertionError ae) {
+				throw ae;
+			}
+			catch(Throwable e) {
+				getLogger().log(Level.WARNING, Throwables.toString(e), e);
+			}
+		}
+	}
+
 	/** {@inheritDoc}
 	 */
 	@Override
 	Status proceedPrivateBehaviour() {
+		// The migration messages are consumed before the mailbox is cleared
+		Status ms = getAgentMigrationManager().processMessages();
+		if (ms.isLoggable()) {
+			ms.logOn(getLogger());
+		}
 		clearMailbox();
 		Status s = super.proceedPrivateBehaviour();
 
@@ -945,6 +1128,115 @@ extends ActivatorAgent<AgentActivator> {
 		return adr;
 	}
 
+	/** Launch immediately the given agents as light agents.
+	 * <p>
+	 * The agents are registered in the kernel with a single batch,
+	 * added to the activator with a single change, and
+	 * the listeners are notified with a single event.
+	 * The agents which are already registered in the kernel are ignored.
+	 * The agents which are not unborn and the kernel agents
+	 * are launched one by one, as with
+	 * {@link #launchLightAgent(boolean, AgentAddress, Agent, String, AgentActivator, Object[])}.
+	 * <p>
+	 * If initialization parameters are given,
+	 * they are passed to <code>activate()</code>,
+	 * otherwise the activator's initialization
+	 * parameters will be passed.
+	 * 
+	 * @param creator is the agent which has created the agents.
+	 * @param agents are the agents to initialize and launch
+	 * @param activator is the activator to use, or <code>null</code> to use
+	 * the default activator.
+	 * @param initParameters are the parameters to pass to activate.
+	 * @return the addresses of the launched agents on the kernel,
+	 * in the same order as the given agents; an address is
+	 * <code>null</code> if the corresponding agent cannot be launched.
+	 * @LAUNCHINGAPI
+	 * @since 1.1
+	 */
+	List<AgentAddress> launchLightAgents(
+			AgentAddress creator,
+			Collection<? extends Agent> agents,
+			AgentActivator activator,
+			Object[] initParameters) {
+		assert(agents!=null);
+		
+		List<AgentAddress> addresses = new ArrayList<AgentAddress>(agents.size());
+		Map<AgentAddress,Agent> population = new LinkedHashMap<AgentAddress,Agent>();
+		WeakReference<KernelAgent> kernelReference = new WeakReference<KernelAgent>(this);
+		AgentRepository repository = this.context.getAgentRepository();
+		
+		for(Agent agent : agents) {
+			assert(agent!=null);
+			AgentAddress adr = agent.getAddress();
+			assert(adr!=null);
+			if (population.containsKey(adr) || repository.contains(adr)) {
+				getLogger().warning(Locale.getString(
+						KernelAgent.class,
+						"AGENT_ALREADY_LAUNCHED_WO_NAME", //$NON-NLS-1$ 
+						adr));
+				addresses.add(adr);
+			}
+			else if (agent.getState()==AgentLifeState.UNBORN && !(agent instanceof KernelAgent)) {
+				agent.kernel = kernelReference;
+				agent.creator = creator;
+				population.put(adr, agent);
+				addresses.add(adr);
+			}
+			else {
+				addresses.add(launchLightAgent(false, creator, agent, null, activator, initParameters));
+			}
+		}
+		
+		if (!population.isEmpty()) {
+			Collection<Agent> launched = population.values();
+			
+			if (initParameters!=null && initParameters.length>0) {
+				assert(validatePrototypes(launched, initParameters));
+			}
+			
+			repository.addAll(population);
+			
+			AgentActivator currentActivator = activator;
+			if (currentActivator==null)
+				currentActivator = getActivator();
+			currentActivator.addAgents(launched, initParameters);
+			
+			float creationDate = this.context.getTimeManager().getCurrentTime();
+			for(Agent agent : launched) {
+				agent.creationDate = creationDate;
+			}
+			
+			getLogger().fine(Locale.getString(
+					KernelAgent.class,
+					"LIGHT_AGENTS_LAUNCHED", //$NON-NLS-1$
+					Integer.toString(population.size())));
+			fireAgentsLaunching(launched);
+		}
+
+		return addresses;
+	}
+	
+	/** Validate the given initialization parameters against the
+	 * prototype of the agents, once for each type of agent.
+	 * 
+	 * @param agents
+	 * @param initParameters
+	 * @return always <code>true</code>
+	 */
+	private static boolean validatePrototypes(Collection<Agent> agents, Object[] initParameters) {
+		Set<Class<? extends Agent>> types = new HashSet<Class<? extends Agent>>();
+		for(Agent agent : agents) {
+			if (types.add(agent.getClass())) {
+				AgentActivationPrototypeValidator.validateInputParameters(
+						agent.getClass(),
+						initParameters);
+			}
+			agent.isPersonalInitParametersValidated = true;
+		}
+		return true;
+	}
+
 	/** Change the execution method of the agent, and
 	 * switch to an light/nothreaded method if possible.
 	 * 
@@ -1189,6 +1481,59 @@ extends ActivatorAgent<AgentActivator> {
 		
 	}
 	
+	/** Fire the arrival of a population of agents which are not kernel agents.
+	 * <p>
+	 * The instances of {@link BulkKernelListener} receive a single event;
+	 * the other listeners receive an event for each agent.
+	 * 
+	 * @param agents are the launched agents.
+	 */
+	void fireAgentsLaunching(Collection<Agent> agents) {
+		assert(!agents.isEmpty());
+		this.isNonKernelAgentLaunched.set(true);
+		
+		KernelEvent event = null;
+		List<KernelEvent> events = null;
+		for(KernelListener listener : getEventListeners(KernelListener.class)) {
+			if (listener instanceof BulkKernelListener) {
+				if (event==null) {
+					List<AgentAddress> addresses = new ArrayList<AgentAddress>(agents.size());
+					for(Agent agent : agents) {
+						addresses.add(agent.getAddress());
+					}
+					event = new KernelEvent(
+							KernelEventType.AGENT_LAUNCHING,
+							this.kernelWrapper,
+							addresses,
+							false);
+				}
+				((BulkKernelListener)listener).agentsLaunched(event);
+			}
+			else {
+				if (events==null) {
+					events = new ArrayList<KernelEvent>(agents.size());
+					for(Agent agent : agents) {
+						events.add(new KernelEvent(
+								KernelEventType.AGENT_LAUNCHING,
+								this.kernelWrapper,
+								agent.getAddress(),
+								false));
+					}
+				}
+				for(KernelEvent e : events) {
+					listener.agentLaunched(e);
+				}
+			}
+		}
+		
+		ChannelManager channelManager = getKernelContext().getChannelManager();
+		for(Agent agent : agents) {
+			if (agent instanceof ChannelInteractable) {
+				channelManager.fireChannelInteractableLaunched((ChannelInteractable) agent);
+			}
+		}
+	}
+	
 	/** Fire agent departure.
 	 * 
 	 * @param agent is the killed agent.
@@ -1369,13 +1714,21 @@ extends ActivatorAgent<AgentActivator> {
 					// Live
 					try {
 						while (!this.kill && this.agent.getState()==AgentLifeState.ALIVE) {
-							if (!getKernelContext().isKernelPaused() && !this.agent.wakeUpIfSleeping()) {
-								s = this.agent.proceedPrivateBehaviour();
-								if (s!=null && s.isLoggable()) {
-									s.logOn(logger);
+							if (!getKernelContext().isKernelPaused()) {
+								this.agent.activationLock.lock();
+								try {
+									if (!this.agent.wakeUpIfSleeping()) {
+										s = this.agent.proceedPrivateBehaviour();
+										if (s!=null && s.isLoggable()) {
+											s.logOn(logger);
+										}
+										if (s!=null && s.isFailure() && s.getSeverity()!=StatusSeverity.CANCEL) {
+											this.kill = true; // Force to kill the agent because is has failed
+										}
+									}
 								}
-								if (s!=null && s.isFailure() && s.getSeverity()!=StatusSeverity.CANCEL) {
-									this.kill = true; // Force to kill the agent because is has failed
+								finally {
+									this.agent.activationLock.unlock();
 								}
 							}
 							Thread.yield();
@@ -1618,6 +1971,52 @@ extends ActivatorAgent<AgentActivator> {
 					initParameters); // init parameters
 		}
 		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public List<AgentAddress> launchLightAgents(
+				Collection<? extends Agent> agents, Object... initParameters) {
+			return KernelAgent.this.launchLightAgents(
+					null, // creator
+					agents, // launched agents
+					null, // activator
+					initParameters); // init parameters
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public List<AgentAddress> launchLightAgents(
+				Collection<? extends Agent> agents,
+				AgentActivator activator,
+				Object... initParameters) {
+			return KernelAgent.this.launchLightAgents(
+					null, // creator
+					agents, // launched agents
+					activator, // activator
+					initParameters); // init parameters
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public List<AgentAddress> launchLightAgents(
+				AgentFactory factory, int count,
+				Object... initParameters) {
+			List<Agent> agents = new ArrayList<Agent>(count);
+			for(int i=0; i<count; ++i) {
+				agents.add(factory.newInstance(i));
+			}
+			return KernelAgent.this.launchLightAgents(
+					null, // creator
+					agents, // launched agents
+					null, // activator
+					initParameters); // init parameters
+		}
+		
 		/**
 		 * {@inheritDoc}
 		 */
@@ -2043,6 +2442,41 @@ extends ActivatorAgent<AgentActivator> {
 			oos.writeObject(KernelAgent.this);
 		}
 
+		/** {@inheritDoc}
+		 */
+		@Override
+		public Status createIncrementalCheckPoint(OutputStream stream, boolean delta) throws IOException {
+			return getCheckPointWriter().write(stream, delta);
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public Status migrateAgent(AgentAddress agent, AgentAddress kernel) {
+			return KernelAgent.this.migrateAgent(agent, kernel);
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public void setLoadBalancer(LoadBalancer balancer) {
+			getAgentMigrationManager().setLoadBalancer(balancer);
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public LoadBalancer getLoadBalancer() {
+			return getAgentMigrationManager().getLoadBalancer();
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public KernelLoad getLoad() {
+			return getAgentMigrationManager().getLocalLoad();
+		}
+
 	}
 
 	/** This runnable task permits to detect a kernel agent
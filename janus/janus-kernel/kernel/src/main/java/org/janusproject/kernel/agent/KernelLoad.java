@@ -0,0 +1,124 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agent;
+
+import java.io.Serializable;
+
+import org.janusproject.kernel.address.AgentAddress;
+
+/**
+ * Load of a kernel, as exchanged between the kernels
+ * to balance the agents among them.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ * @see LoadBalancer
+ */
+public final class KernelLoad implements Serializable {
+
+	private static final long serialVersionUID = -2351871265493128730L;
+
+	private final AgentAddress kernel;
+	private final int agentCount;
+	private final int migrableAgentCount;
+	private final long pendingMessageCount;
+	private final long date;
+
+	/**
+	 * @param kernel is the address of the kernel agent.
+	 * @param agentCount is the number of agents running on the kernel,
+	 * without the kernel agent.
+	 * @param migrableAgentCount is the number of agents which may migrate.
+	 * @param pendingMessageCount is the number of messages which are
+	 * waiting in the mailboxes of the agents.
+	 * @param date is the date at which the load was computed, in milliseconds.
+	 */
+	public KernelLoad(AgentAddress kernel, int agentCount, int migrableAgentCount, long pendingMessageCount, long date) {
+		assert(kernel!=null);
+		this.kernel = kernel;
+		this.agentCount = agentCount;
+		this.migrableAgentCount = migrableAgentCount;
+		this.pendingMessageCount = pendingMessageCount;
+		this.date = date;
+	}
+
+	/** Replies the address of the kernel agent.
+	 * 
+	 * @return the address of the kernel agent.
+	 */
+	public AgentAddress getKernel() {
+		return this.kernel;
+	}
+
+	/** Replies the number of agents running on the kernel,
+	 * without the kernel agent.
+	 * 
+	 * @return the number of agents.
+	 */
+	public int getAgentCount() {
+		return this.agentCount;
+	}
+
+	/** Replies the number of agents which may migrate.
+	 * 
+	 * @return the number of agents which may migrate.
+	 * @see Agent#canMigrate()
+	 */
+	public int getMigrableAgentCount() {
+		return this.migrableAgentCount;
+	}
+
+	/** Replies the number of messages which are waiting
+	 * in the mailboxes of the agents.
+	 * 
+	 * @return the number of pending messages.
+	 */
+	public long getPendingMessageCount() {
+		return this.pendingMessageCount;
+	}
+
+	/** Replies the date at which the load was computed.
+	 * 
+	 * @return the date in milliseconds.
+	 */
+	public long getDate() {
+		return this.date;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder buf = new StringBuilder();
+		buf.append(this.kernel);
+		buf.append(": "); //$NON-NLS-1$
+		buf.append(this.agentCount);
+		buf.append(" agents, "); //$NON-NLS-1$
+		buf.append(this.pendingMessageCount);
+		buf.append(" messages"); //$NON-NLS-1$
+		return buf.toString();
+	}
+
+}
@@ -0,0 +1,401 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.janusproject.kernel.Kernel;
+import org.janusproject.kernel.address.Address;
+import org.janusproject.kernel.address.AgentAddress;
+import org.janusproject.kernel.crio.core.GroupAddress;
+import org.janusproject.kernel.crio.core.Organization;
+import org.janusproject.kernel.crio.core.Role;
+import org.janusproject.kernel.crio.core.RoleAddress;
+import org.janusproject.kernel.crio.organization.GroupCondition;
+import org.janusproject.kernel.message.Message;
+import org.janusproject.kernel.util.sizediterator.SizedIterator;
+import org.janusproject.kernel.util.sizediterator.UnmodifiableCollectionSizedIterator;
+
+/**
+ * Set of kernels which are sharing nothing inside the same
+ * virtual machine.
+ * <p>
+ * Each shard is a complete kernel with its own activator, its own
+ * execution resources and its own group repository. The groups
+ * are partitioned among the shards according to their organizations
+ * with a {@link ShardSelector}: the groups created with
+ * {@link #createGroup(Class)} or {@link #getOrCreateGroup(Class)}
+ * are created in the shard replied by {@link #getShard(Class)}.
+ * <p>
+ * Because the groups are not shared between the shards, the agents
+ * which are playing roles in the groups of an organization must be
+ * launched in the same shard. The groups created by an agent
+ * are always created in the shard of the agent: for them, the
+ * selector is only a hint for the placement of the agents.
+ * <p>
+ * The messages between the agents of different shards are
+ * delivered in-process, without serialization nor network
+ * layer. Because the shards are seen as distant kernels by each
+ * other, the agents may also migrate from a shard to another.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ * @see OrganizationShardSelector
+ */
+public class KernelShards {
+
+	private final KernelAgent[] shards;
+	private final ShardSelector selector;
+
+	/** Indicates if the current thread is forwarding a message
+	 * from a shard to another, to avoid the forwarding loops.
+	 */
+	private final ThreadLocal<Boolean> isForwarding = new ThreadLocal<Boolean>();
+
+	/**
+	 * @param shardCount is the number of shards.
+	 */
+	public KernelShards(int shardCount) {
+		this(shardCount, null, null);
+	}
+
+	/**
+	 * @param shardCount is the number of shards.
+	 * @param selector is the selector of the shards, or <code>null</code>
+	 * to use an {@link OrganizationShardSelector}.
+	 */
+	public KernelShards(int shardCount, ShardSelector selector) {
+		this(shardCount, selector, null);
+	}
+
+	/**
+	 * @param shardCount is the number of shards.
+	 * @param selector is the selector of the shards, or <code>null</code>
+	 * to use an {@link OrganizationShardSelector}.
+	 * @param applicationName is the name of the application supported by the shards.
+	 */
+	public KernelShards(int shardCount, ShardSelector selector, String applicationName) {
+		assert(shardCount>0);
+		this.selector = (selector==null) ? new OrganizationShardSelector() : selector;
+		this.shards = new KernelAgent[shardCount];
+		for(int i=0; i<shardCount; ++i) {
+			this.shards[i] = new KernelAgent(
+					new AgentActivator(), Boolean.FALSE, null, null,
+					new ShardHandler(i), applicationName, new Object[0]);
+		}
+	}
+
+	/** Replies the number of shards.
+	 * 
+	 * @return the number of shards.
+	 */
+	public int getShardCount() {
+		return this.shards.length;
+	}
+
+	/** Replies the selector of the shards.
+	 * 
+	 * @return the selector of the shards.
+	 */
+	public ShardSelector getShardSelector() {
+		return this.selector;
+	}
+
+	/** Replies the shard at the given index.
+	 * 
+	 * @param index
+	 * @return the kernel of the shard.
+	 */
+	public Kernel getShard(int index) {
+		return this.shards[index].toKernel();
+	}
+
+	/** Replies the shard which is hosting the groups of the given organization.
+	 * 
+	 * @param organization
+	 * @return the kernel of the shard.
+	 */
+	public Kernel getShard(Class<? extends Organization> organization) {
+		return this.shards[getShardIndex(organization)].toKernel();
+	}
+
+	/** Replies the index of the shard which is hosting the groups of the given organization.
+	 * 
+	 * @param organization
+	 * @return the index of the shard.
+	 */
+	public int getShardIndex(Class<? extends Organization> organization) {
+		int index = this.selector.selectShard(organization, this.shards.length);
+		assert(index>=0 && index<this.shards.length);
+		return index;
+	}
+
+	/** Creates a new group in the shard which is selected for the given organization.
+	 * 
+	 * @param organization is the organization that must be instanced.
+	 * @return the address of the group freshly created.
+	 * @see Kernel#createGroup(Class)
+	 */
+	public GroupAddress createGroup(Class<? extends Organization> organization) {
+		return getShard(organization).createGroup(organization);
+	}
+
+	/** Creates a new group in the shard which is selected for the given organization.
+	 * 
+	 * @param organization is the organization that must be instanced.
+	 * @param groupName is the name of the group.
+	 * @return the address of the group freshly created.
+	 * @see Kernel#createGroup(Class, String)
+	 */
+	public GroupAddress createGroup(Class<? extends Organization> organization, String groupName) {
+		return getShard(organization).createGroup(organization, groupName);
+	}
+
+	/** Creates a new group in the shard which is selected for the given organization.
+	 * 
+	 * @param organization is the organization that must be instanced.
+	 * @param obtainConditions is the list of conditions to respect to enter in the group.
+	 * @param leaveConditions is the list of conditions to respect to leave out of the group.
+	 * @param groupName is the name of the group.
+	 * @return the address of the group freshly created.
+	 * @see Kernel#createGroup(Class, Collection, Collection, String)
+	 */
+	public GroupAddress createGroup(
+			Class<? extends Organization> organization,
+			Collection<? extends GroupCondition> obtainConditions,
+			Collection<? extends GroupCondition> leaveConditions,
+			String groupName) {
+		return getShard(organization).createGroup(organization, obtainConditions, leaveConditions, groupName);
+	}
+
+	/** Replies a group of the given organization in the shard which is selected
+	 * for this organization, or create it if none.
+	 * 
+	 * @param organization is the organization that must be instanced.
+	 * @return the address of the group.
+	 * @see Kernel#getOrCreateGroup(Class)
+	 */
+	public GroupAddress getOrCreateGroup(Class<? extends Organization> organization) {
+		return getShard(organization).getOrCreateGroup(organization);
+	}
+
+	/** Replies a group of the given organization in the shard which is selected
+	 * for this organization, or create it if none.
+	 * 
+	 * @param organization is the organization that must be instanced.
+	 * @param groupName is the name of the group.
+	 * @return the address of the group.
+	 * @see Kernel#getOrCreateGroup(Class, String)
+	 */
+	public GroupAddress getOrCreateGroup(Class<? extends Organization> organization, String groupName) {
+		return getShard(organization).getOrCreateGroup(organization, groupName);
+	}
+
+	/** Replies the shard which is hosting the given group.
+	 * 
+	 * @param group
+	 * @return the kernel of the shard, or <code>null</code> if the group
+	 * is not hosted by a shard.
+	 */
+	public Kernel getShardOf(GroupAddress group) {
+		KernelAgent kernel;
+		for(int i=0; i<this.shards.length; ++i) {
+			kernel = this.shards[i];
+			if (kernel!=null && kernel.getCRIOContext().getGroupAddresses().contains(group)) {
+				return kernel.toKernel();
+			}
+		}
+		return null;
+	}
+
+	/** Replies the shard which is hosting the given agent.
+	 * 
+	 * @param agent
+	 * @return the kernel of the shard, or <code>null</code> if the agent
+	 * is not hosted by a shard.
+	 */
+	public Kernel getShardOf(AgentAddress agent) {
+		KernelAgent kernel = findShard(agent, -1);
+		return (kernel==null) ? null : kernel.toKernel();
+	}
+
+	/** Replies the kernel agent of the shard at the given index.
+	 * 
+	 * @param index
+	 * @return the kernel agent of the shard.
+	 */
+	KernelAgent getShardAgent(int index) {
+		return this.shards[index];
+	}
+
+	/** Send a termination request to all the shards.
+	 */
+	public void killAll() {
+		for(KernelAgent kernel : this.shards) {
+			if (kernel!=null) kernel.killMe();
+		}
+	}
+
+	/** Replies the shard which is the given kernel or which is hosting the given agent.
+	 * 
+	 * @param agent
+	 * @param excluded is the index of the shard to ignore.
+	 * @return the shard, or <code>null</code> if none.
+	 */
+	private KernelAgent findShard(AgentAddress agent, int excluded) {
+		KernelAgent kernel;
+		for(int i=0; i<this.shards.length; ++i) {
+			kernel = this.shards[i];
+			// The shards are not all created when the first ones are starting
+			if (i!=excluded && kernel!=null
+				&& (kernel.getAddress().equals(agent)
+					|| kernel.getKernelContext().getAgentRepository().contains(agent))) {
+				return kernel;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Handler of the distant kernels for a shard, which is delivering
+	 * the messages to the other shards in the same thread.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private class ShardHandler implements DistantKernelHandler {
+
+		private final int index;
+
+		/**
+		 * @param index is the index of the shard which is owning this handler.
+		 */
+		public ShardHandler(int index) {
+			this.index = index;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isRemoteAddress(GroupAddress groupAddress, AgentAddress address) {
+			// The groups are not shared between the shards.
+			return false;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void informLocalRoleTaken(GroupAddress groupAddress, Class<? extends Role> role, AgentAddress agentAddress) {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void informLocalRoleReleased(GroupAddress groupAddress, Class<? extends Role> role, AgentAddress agentAddress) {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public RoleAddress getRemoteAddress(GroupAddress groupAddress) {
+			return null;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public Address sendMessage(Message message) {
+			if (KernelShards.this.isForwarding.get()!=null) return null;
+			Address receiver = message.getReceiver();
+			AgentAddress agent;
+			if (receiver instanceof RoleAddress) agent = ((RoleAddress)receiver).getPlayer();
+			else if (receiver instanceof AgentAddress) agent = (AgentAddress)receiver;
+			else return null;
+			KernelAgent kernel = findShard(agent, this.index);
+			if (kernel==null) return null;
+			KernelShards.this.isForwarding.set(Boolean.TRUE);
+			try {
+				return kernel.forwardMessage(message);
+			}
+			finally {
+				KernelShards.this.isForwarding.remove();
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public void broadcastMessage(Message message) {
+			if (KernelShards.this.isForwarding.get()!=null) return;
+			Address sender = message.getSender();
+			GroupAddress group = (sender instanceof RoleAddress) ? ((RoleAddress)sender).getGroup() : null;
+			KernelShards.this.isForwarding.set(Boolean.TRUE);
+			try {
+				KernelAgent kernel;
+				for(int i=0; i<KernelShards.this.shards.length; ++i) {
+					kernel = KernelShards.this.shards[i];
+					if (i!=this.index && kernel!=null
+						&& (group==null || kernel.getCRIOContext().getGroupAddresses().contains(group))) {
+						kernel.forwardBroadcastMessage(message);
+					}
+				}
+			}
+			finally {
+				KernelShards.this.isForwarding.remove();
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public SizedIterator<AgentAddress> getRemoteKernels() {
+			List<AgentAddress> kernels = new ArrayList<AgentAddress>(KernelShards.this.shards.length);
+			for(int i=0; i<KernelShards.this.shards.length; ++i) {
+				if (i!=this.index && KernelShards.this.shards[i]!=null) {
+					kernels.add(KernelShards.this.shards[i].getAddress());
+				}
+			}
+			return new UnmodifiableCollectionSizedIterator<AgentAddress>(kernels);
+		}
+
+	}
+
+}
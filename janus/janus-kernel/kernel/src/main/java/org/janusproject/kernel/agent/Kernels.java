@@ -22,6 +22,7 @@ package org.janusproject.kernel.agent;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EventListener;
 import java.util.Iterator;
@@ -31,7 +32,10 @@ import java.util.TreeMap;
 import org.janusproject.kernel.Kernel;
 import org.janusproject.kernel.address.AgentAddress;
 import org.janusproject.kernel.configuration.JanusProperty;
+import org.janusproject.kernel.metrics.Gauge;
+import org.janusproject.kernel.metrics.KernelMetrics;
 import org.janusproject.kernel.time.KernelTimeManager;
+import org.janusproject.kernel.util.reflect.ClassMetadataRegistry;
 
 /**
  * Utility methods to access to kernel agents.
@@ -46,6 +50,11 @@ public final class Kernels {
 	private static final Map<AgentAddress,KernelAgent> kernelAgents = new TreeMap<AgentAddress,KernelAgent>();
 	
 	private static KernelAgentFactory defaultKernelFactory = null;
+
+	static {
+		KernelMetrics.registerGauge(KernelMetrics.AGENTS, new AgentGauge(false));
+		KernelMetrics.registerGauge(KernelMetrics.SLEEPING_AGENTS, new AgentGauge(true));
+	}
 	
 	/**
 	 */
@@ -66,6 +75,9 @@ public final class Kernels {
 	}
 
 	/** Remove the given kernel from the list of available kernels.
+	 * <p>
+	 * When the last kernel is removed, the metadata of the
+	 * classes are released from the {@link ClassMetadataRegistry}.
 	 * 
 	 * @param kernel
 	 */
@@ -73,6 +85,9 @@ public final class Kernels {
 		if (kernel!=null) {
 			synchronized(kernelAgents) {
 				kernelAgents.remove(kernel.getAddress());
+				if (kernelAgents.isEmpty()) {
+					ClassMetadataRegistry.clear();
+				}
 			}
 		}
 	}
@@ -1000,6 +1015,7 @@ public final class Kernels {
 				agent.shutdownNow();
 			}
 			kernelAgents.clear();
+			ClassMetadataRegistry.clear();
 			// Collect memory
 			System.gc();
 			System.gc();
@@ -1117,5 +1133,46 @@ public final class Kernels {
 		}
 		
 	}
+
+	/**
+	 * Gauge on the number of agents in all the kernels.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class AgentGauge implements Gauge {
+
+		private final boolean onlySleeping;
+
+		/**
+		 * @param onlySleeping indicates if only the sleeping agents are counted.
+		 */
+		public AgentGauge(boolean onlySleeping) {
+			this.onlySleeping = onlySleeping;
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public long getValue() {
+			Collection<KernelAgent> kernels;
+			synchronized(kernelAgents) {
+				kernels = new ArrayList<KernelAgent>(kernelAgents.values());
+			}
+			long count = 0;
+			for(KernelAgent kernel : kernels) {
+				for(Agent agent : kernel.getKernelContext().getAgentRepository().values()) {
+					if (!this.onlySleeping || agent.isSleeping()) {
+						++count;
+					}
+				}
+			}
+			return count;
+		}
+
+	}
 		
 }
@@ -0,0 +1,61 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agent;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.janusproject.kernel.address.AgentAddress;
+
+/**
+ * Policy which is deciding the agents to move from a kernel
+ * to the other kernels.
+ * <p>
+ * The balancer is periodically invoked by a kernel with its
+ * own load, the last loads received from the remote kernels,
+ * and the agents which accept to migrate. The kernels are
+ * exchanging their loads at the period given by
+ * {@link org.janusproject.kernel.configuration.JanusProperty#JANUS_LOAD_BALANCING_PERIOD}.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ * @see org.janusproject.kernel.Kernel#setLoadBalancer(LoadBalancer)
+ */
+public interface LoadBalancer {
+
+	/** Replies the agents to move and their target kernels.
+	 * 
+	 * @param localLoad is the load of the local kernel.
+	 * @param remoteLoads are the last known loads of the remote kernels.
+	 * @param candidates are the local agents which accept to migrate.
+	 * @return the map from the addresses of the agents to move
+	 * to the addresses of the target kernel agents; never <code>null</code>.
+	 */
+	public Map<AgentAddress,AgentAddress> balance(
+			KernelLoad localLoad,
+			Collection<KernelLoad> remoteLoads,
+			List<AgentAddress> candidates);
+
+}
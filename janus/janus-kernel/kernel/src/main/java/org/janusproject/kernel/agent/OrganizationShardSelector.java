@@ -0,0 +1,81 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.janusproject.kernel.crio.core.Organization;
+
+/**
+ * Selector of shards which is assigning the organizations
+ * to the shards explicitly, or according to the hash code
+ * of their names.
+ * <p>
+ * The hash code of the name of the organization class is used
+ * instead of the hash code of the class itself, so that the
+ * same organization is hosted by the same shard from one
+ * run of the application to another.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class OrganizationShardSelector implements ShardSelector {
+
+	private final Map<Class<? extends Organization>,Integer> assignments = new ConcurrentHashMap<Class<? extends Organization>,Integer>();
+
+	/**
+	 */
+	public OrganizationShardSelector() {
+		//
+	}
+
+	/** Assign the given organization to the given shard.
+	 * <p>
+	 * The assignment must be done before the creation of the
+	 * first group of the organization.
+	 * 
+	 * @param organization is the organization.
+	 * @param shard is the index of the shard.
+	 */
+	public void assign(Class<? extends Organization> organization, int shard) {
+		assert(organization!=null);
+		assert(shard>=0);
+		this.assignments.put(organization, Integer.valueOf(shard));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int selectShard(Class<? extends Organization> organization, int shardCount) {
+		assert(shardCount>0);
+		Integer shard = this.assignments.get(organization);
+		if (shard!=null) {
+			return shard.intValue() % shardCount;
+		}
+		return (organization.getName().hashCode() & Integer.MAX_VALUE) % shardCount;
+	}
+
+}
@@ -25,6 +25,7 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -43,6 +44,8 @@ import org.janusproject.kernel.probe.ProbeValueNotDefinedException;
 import org.janusproject.kernel.probe.Watchable;
 import org.janusproject.kernel.probe.WatchableObject;
 import org.janusproject.kernel.util.comparator.GenericComparator;
+import org.janusproject.kernel.util.reflect.ClassMetadataFacet;
+import org.janusproject.kernel.util.reflect.ClassMetadataRegistry;
 import org.janusproject.kernel.util.sizediterator.EmptyIterator;
 import org.janusproject.kernel.util.sizediterator.UnmodifiableCollectionSizedIterator;
 
@@ -58,9 +61,6 @@ import org.janusproject.kernel.util.sizediterator.UnmodifiableCollectionSizedIte
  */
 public class ProbeManager {
 	
-	private final Map<Class<?>, Collection<Field>> watchableFields = 
-		new TreeMap<Class<?>, Collection<Field>>(GenericComparator.SINGLETON);
-	
 	private final Map<AgentAddress,Collection<IndividualProbe>> individualProbes = 
 		new TreeMap<AgentAddress, Collection<IndividualProbe>>(GenericComparator.SINGLETON);
 	
@@ -96,8 +96,6 @@ public class ProbeManager {
 			iteratorC.remove();
 			onCollectiveProbeReleased(eC);
 		}
-
-		this.watchableFields.clear();
 	}
 	
 	private void onIndividualProbesReleased(AgentAddress probedObject, Collection<IndividualProbe> probes) {
@@ -154,21 +152,29 @@ public class ProbeManager {
 		}
 		
 		List<Field> fields = new ArrayList<Field>(attributes.size());
-		fields.addAll(attributes.values());
+		for(Field field : attributes.values()) {
+			// JANUS-156: Enable the probe manager to access to
+			// the fields that are not public. These Field objects
+			// are private to the probe managers.
+			try {
+				field.setAccessible(true);
+			}
+			catch(SecurityException _) {
+				//
+			}
+			fields.add(field);
+		}
 		attributes.clear();
-		return fields;
+		return Collections.unmodifiableList(fields);
 	}
 	
 	/** Replies the watchable attributes for the specified object.
+	 * The attributes are extracted once per type and memorized
+	 * by the {@link ClassMetadataRegistry}.
 	 */
-	private Collection<Field> getWatchableAttributes(Class<?> probedObjectType) {
+	private static Collection<Field> getWatchableAttributes(Class<?> probedObjectType) {
 		assert(probedObjectType!=null);
-		Collection<Field> fields = this.watchableFields.get(probedObjectType);
-		if (fields==null) {
-			fields = extractWatchableAttributesFrom(probedObjectType);
-			this.watchableFields.put(probedObjectType, fields);
-		}
-		return fields;
+		return ClassMetadataRegistry.getFacet(probedObjectType, WatchableFieldFacet.SINGLETON);
 	}
 
 	/** Return the value of the specified field inside the specified object.
@@ -181,18 +187,10 @@ public class ProbeManager {
 	synchronized Object getProbeValue(String probeName, Object probedObject) throws ProbeValueNotDefinedException {
 		if (probedObject!=null) {
 			Collection<Field> collection = getWatchableAttributes(probedObject.getClass());
-			Iterator<Field> iterator = collection.iterator();
-			Field field;
-			while (iterator.hasNext()) {
-				field = iterator.next();
+			for(Field field : collection) {
 				if (field.getName().equals(probeName)) {
-					// JANUS-156: Enable the probe manager to access to
-					// the fields that are not public.
-					// Change the accessibility during the reading of
-					// the value to limit the time during which
-					// the field accessibility is overridden.
-					boolean isAccessible = field.isAccessible();
-					field.setAccessible(true);
+					// JANUS-156: the fields that are not public
+					// were made accessible when they were extracted.
 					try {
 						return field.get(probedObject);
 					}
@@ -200,19 +198,11 @@ public class ProbeManager {
 						throw ae;
 					}
 					catch (IllegalArgumentException e) {
-						iterator.remove();
+						//
 					}
 					catch (IllegalAccessException e) {
-						iterator.remove();
-					}
-					finally {
-						field.setAccessible(isAccessible);
+						//
 					}
-					
-					// Remove the cache entry when it is no more required
-					if (collection.isEmpty())
-						this.watchableFields.remove(probedObject.getClass());
-					
 					break; // Stop loop and thrown an exception
 				}
 			}
@@ -570,4 +560,36 @@ public class ProbeManager {
 		return EmptyIterator.singleton();
 	}
 
+	/**
+	 * Extractor of the watchable attributes of a type.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class WatchableFieldFacet implements ClassMetadataFacet<Collection<Field>> {
+
+		/** Singleton.
+		 */
+		public static final WatchableFieldFacet SINGLETON = new WatchableFieldFacet();
+
+		/**
+		 */
+		private WatchableFieldFacet() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public Collection<Field> compute(Class<?> type) {
+			return extractWatchableAttributesFrom(type);
+		}
+
+	}
+
 }
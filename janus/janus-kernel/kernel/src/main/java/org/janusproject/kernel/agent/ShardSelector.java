@@ -0,0 +1,51 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agent;
+
+import org.janusproject.kernel.crio.core.Organization;
+
+/**
+ * Selects the kernel shard which is hosting the groups
+ * of an organization.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ * @see KernelShards
+ */
+public interface ShardSelector {
+
+	/** Replies the index of the shard which is hosting the groups
+	 * of the given organization.
+	 * <p>
+	 * This function must reply the same index for the same
+	 * organization during the whole life of the shards.
+	 * 
+	 * @param organization is the organization.
+	 * @param shardCount is the number of shards.
+	 * @return the index of the shard, between <code>0</code> (inclusive)
+	 * and <var>shardCount</var> (exclusive).
+	 */
+	public int selectShard(Class<? extends Organization> organization, int shardCount);
+
+}
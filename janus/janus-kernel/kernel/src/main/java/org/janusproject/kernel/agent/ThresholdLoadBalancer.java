@@ -0,0 +1,125 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agent;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.janusproject.kernel.address.AgentAddress;
+
+/**
+ * Load balancer which is moving agents to the least loaded
+ * kernel when the local kernel is overloaded.
+ * <p>
+ * The local kernel is overloaded when its number of agents
+ * is greater than the number of agents of the least loaded
+ * kernel multiplied by a threshold. In this case, the half of
+ * the difference is moved to the least loaded kernel, with
+ * an upper bound per invocation to avoid oscillations.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class ThresholdLoadBalancer implements LoadBalancer {
+
+	/** Default threshold.
+	 */
+	public static final float DEFAULT_THRESHOLD = 1.5f;
+
+	/** Default maximal number of agents moved per invocation.
+	 */
+	public static final int DEFAULT_MAX_MIGRATIONS = 10;
+
+	private final float threshold;
+	private final int maxMigrations;
+
+	/**
+	 */
+	public ThresholdLoadBalancer() {
+		this(DEFAULT_THRESHOLD, DEFAULT_MAX_MIGRATIONS);
+	}
+
+	/**
+	 * @param threshold is the ratio between the number of agents of
+	 * the local kernel and the number of agents of the least loaded kernel
+	 * above which the agents are moved. It must be greater than <code>1</code>.
+	 * @param maxMigrations is the maximal number of agents moved per invocation.
+	 */
+	public ThresholdLoadBalancer(float threshold, int maxMigrations) {
+		assert(threshold>1f);
+		assert(maxMigrations>0);
+		this.threshold = threshold;
+		this.maxMigrations = maxMigrations;
+	}
+
+	/** Replies the threshold above which the agents are moved.
+	 * 
+	 * @return the threshold.
+	 */
+	public float getThreshold() {
+		return this.threshold;
+	}
+
+	/** Replies the maximal number of agents moved per invocation.
+	 * 
+	 * @return the maximal number of migrations.
+	 */
+	public int getMaxMigrations() {
+		return this.maxMigrations;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<AgentAddress,AgentAddress> balance(
+			KernelLoad localLoad,
+			Collection<KernelLoad> remoteLoads,
+			List<AgentAddress> candidates) {
+		KernelLoad target = null;
+		for(KernelLoad load : remoteLoads) {
+			if (target==null || load.getAgentCount()<target.getAgentCount()) {
+				target = load;
+			}
+		}
+		if (target==null || candidates.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		int local = localLoad.getAgentCount();
+		int remote = target.getAgentCount();
+		if (local<=Math.max(1, remote)*this.threshold) {
+			return Collections.emptyMap();
+		}
+		int count = Math.min((local-remote)/2, Math.min(this.maxMigrations, candidates.size()));
+		Map<AgentAddress,AgentAddress> moves = new HashMap<AgentAddress,AgentAddress>();
+		for(int i=0; i<count; ++i) {
+			moves.put(candidates.get(i), target.getKernel());
+		}
+		return moves;
+	}
+
+}
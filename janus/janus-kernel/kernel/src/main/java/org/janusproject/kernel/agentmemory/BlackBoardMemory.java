@@ -20,6 +20,7 @@
  */
 package org.janusproject.kernel.agentmemory;
 
+import java.io.Serializable;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -27,6 +28,10 @@ import java.util.TreeMap;
  * Implementation of an agent memory using a black board.
  * <p>
  * <code>BlackBoardMemory</code> is not synchronized and uses a {@link TreeMap}.
+ * <p>
+ * The black board is serializable when its data are serializable,
+ * so that it may follow an agent which is migrating; the memory
+ * listeners are not serialized.
  * 
  * @author $Author: ngaud$
  * @author $Author: sgalland$
@@ -34,7 +39,9 @@ import java.util.TreeMap;
  * @mavengroupid $GroupId$
  * @mavenartifactid $ArtifactId$
  */
-public class BlackBoardMemory extends AbstractMemory {
+public class BlackBoardMemory extends AbstractMemory implements Serializable {
+
+	private static final long serialVersionUID = 6203479458115934816L;
 
 	private final Map<String,Object> blackBoard = new TreeMap<String,Object>();
 	
@@ -0,0 +1,270 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agentmemory;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.arakhne.afc.vmutil.locale.Locale;
+
+/**
+ * Typed and interned identifier of a knowledge.
+ * <p>
+ * There is a single key instance for each knowledge name in the
+ * virtual machine. Each key has a dense index which is used by the
+ * {@link TypedMemory typed memories} to store the knowledge in
+ * arrays instead of maps. The keys of the types <code>Integer</code>,
+ * <code>Long</code>, <code>Double</code> and <code>Boolean</code>
+ * are stored in primitive slots, without boxing.
+ * <p>
+ * The keys are intended to be created once, e.g. in static
+ * fields, and reused:
+ * <pre>
+ * static final MemoryKey&lt;Integer&gt; COUNT = MemoryKey.get("count", Integer.class);
+ * </pre>
+ * <p>
+ * The knowledges which are put with the untyped API of the memories,
+ * i.e. with a name, before a typed key was created for this name,
+ * are stored with an untyped key. The untyped keys are interned in
+ * another namespace, so that they never prevent the creation of a
+ * typed key with the same name.
+ * 
+ * @param <T> is the type of the knowledge.
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public final class MemoryKey<T> implements Serializable {
+
+	private static final long serialVersionUID = -2913498460935561227L;
+
+	/** The knowledge is stored as an object.
+	 */
+	static final byte OBJECT = 1;
+
+	/** The knowledge is stored as an integer.
+	 */
+	static final byte INT = 2;
+
+	/** The knowledge is stored as a long integer.
+	 */
+	static final byte LONG = 3;
+
+	/** The knowledge is stored as a double.
+	 */
+	static final byte DOUBLE = 4;
+
+	/** The knowledge is stored as a boolean.
+	 */
+	static final byte BOOLEAN = 5;
+
+	private static final ConcurrentMap<String,MemoryKey<?>> KEYS = new ConcurrentHashMap<String,MemoryKey<?>>();
+
+	private static final ConcurrentMap<String,MemoryKey<Object>> UNTYPED_KEYS = new ConcurrentHashMap<String,MemoryKey<Object>>();
+	
+	private static final AtomicInteger NEXT_INDEX = new AtomicInteger();
+
+	private final String name;
+	private final Class<T> type;
+	private final boolean isUntyped;
+	private final transient int index;
+	private final transient byte kind;
+
+	private MemoryKey(String name, Class<T> type, boolean isUntyped) {
+		this.name = name;
+		this.type = type;
+		this.isUntyped = isUntyped;
+		this.index = NEXT_INDEX.getAndIncrement();
+		if (type==Integer.class) this.kind = INT;
+		else if (type==Long.class) this.kind = LONG;
+		else if (type==Double.class) this.kind = DOUBLE;
+		else if (type==Boolean.class) this.kind = BOOLEAN;
+		else this.kind = OBJECT;
+	}
+
+	/** Replies the key with the given name and type.
+	 * 
+	 * @param <T> is the type of the knowledge.
+	 * @param name is the name of the knowledge.
+	 * @param type is the type of the knowledge.
+	 * @return the interned key.
+	 * @throws IllegalArgumentException if a key with the same
+	 * name but another type was already created.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> MemoryKey<T> get(String name, Class<T> type) {
+		assert(name!=null);
+		assert(type!=null);
+		MemoryKey<?> key = KEYS.get(name);
+		if (key==null) {
+			MemoryKey<?> newKey = new MemoryKey<T>(name, type, false);
+			key = KEYS.putIfAbsent(name, newKey);
+			if (key==null) key = newKey;
+		}
+		if (key.type!=type) {
+			throw new IllegalArgumentException(
+					Locale.getString(MemoryKey.class, "INVALID_KEY_TYPE", //$NON-NLS-1$
+							name, key.type.getName(), type.getName()));
+		}
+		return (MemoryKey<T>)key;
+	}
+
+	/** Replies the untyped key with the given name.
+	 * 
+	 * @param name is the name of the knowledge.
+	 * @return the interned untyped key.
+	 */
+	static MemoryKey<Object> getUntyped(String name) {
+		MemoryKey<Object> key = UNTYPED_KEYS.get(name);
+		if (key==null) {
+			MemoryKey<Object> newKey = new MemoryKey<Object>(name, Object.class, true);
+			key = UNTYPED_KEYS.putIfAbsent(name, newKey);
+			if (key==null) key = newKey;
+		}
+		return key;
+	}
+
+	/** Replies the typed key with the given name.
+	 * 
+	 * @param name is the name of the knowledge.
+	 * @return the interned key, or <code>null</code> if
+	 * no typed key was created with the given name.
+	 */
+	static MemoryKey<?> find(String name) {
+		return KEYS.get(name);
+	}
+
+	/** Replies the untyped key with the given name.
+	 * 
+	 * @param name is the name of the knowledge.
+	 * @return the interned untyped key, or <code>null</code> if
+	 * no knowledge was put with this name through the untyped API.
+	 */
+	static MemoryKey<Object> findUntyped(String name) {
+		return UNTYPED_KEYS.get(name);
+	}
+
+	/** Replies the name of the knowledge.
+	 * 
+	 * @return the name of the knowledge.
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/** Replies the type of the knowledge.
+	 * 
+	 * @return the type of the knowledge.
+	 */
+	public Class<T> getType() {
+		return this.type;
+	}
+
+	/** Replies the dense index of this key in the virtual machine.
+	 * 
+	 * @return the index of this key.
+	 */
+	int getIndex() {
+		return this.index;
+	}
+
+	/** Replies the kind of slot in which the knowledge is stored.
+	 * 
+	 * @return the kind of slot.
+	 */
+	byte getKind() {
+		return this.kind;
+	}
+
+	/** Replies if the given value may be stored with this key.
+	 * 
+	 * @param value
+	 * @return <code>true</code> if the value is <code>null</code>
+	 * or an instance of the type of this key.
+	 */
+	boolean accept(Object value) {
+		return value==null || this.type.isInstance(value);
+	}
+
+	/** Replies the value stored in a primitive slot.
+	 * 
+	 * @param bits is the content of the primitive slot.
+	 * @return the boxed value.
+	 */
+	Object box(long bits) {
+		switch(this.kind) {
+		case INT:
+			return Integer.valueOf((int)bits);
+		case LONG:
+			return Long.valueOf(bits);
+		case DOUBLE:
+			return Double.valueOf(Double.longBitsToDouble(bits));
+		case BOOLEAN:
+			return Boolean.valueOf(bits!=0);
+		default:
+		}
+		throw new IllegalStateException();
+	}
+
+	/** Replies the content of the primitive slot for the given value.
+	 * 
+	 * @param value is a non-<code>null</code> instance of the type of this key.
+	 * @return the content of the primitive slot.
+	 */
+	long unbox(Object value) {
+		switch(this.kind) {
+		case INT:
+			return ((Integer)value).intValue();
+		case LONG:
+			return ((Long)value).longValue();
+		case DOUBLE:
+			return Double.doubleToRawLongBits(((Double)value).doubleValue());
+		case BOOLEAN:
+			return ((Boolean)value).booleanValue() ? 1 : 0;
+		default:
+		}
+		throw new IllegalStateException();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return this.name;
+	}
+
+	/** Replace the deserialized key by the interned key.
+	 * 
+	 * @return the interned key.
+	 * @throws ObjectStreamException
+	 */
+	private Object readResolve() throws ObjectStreamException {
+		if (this.isUntyped) return getUntyped(this.name);
+		return get(this.name, this.type);
+	}
+
+}
@@ -0,0 +1,430 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agentmemory;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Implementation of a black board which may be shared by
+ * several agents or roles, e.g. by the roles of a group.
+ * <p>
+ * The knowledge is stored in slots indexed by the
+ * {@link MemoryKey typed keys}. The reads are lock-free. Each
+ * write creates a new version of the slot and replaces it with an
+ * atomic compare-and-set operation, so that concurrent writes never
+ * block the readers. The version of a knowledge may be used to do
+ * optimistic updates with
+ * {@link #compareAndPutMemorizedData(MemoryKey, long, Object)}.
+ * <p>
+ * The memory listeners are invoked in the thread which has written
+ * the knowledge, after the write. The memory events are created
+ * only when a listener is registered.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ * @see TypedBlackBoardMemory
+ */
+public class SharedBlackBoardMemory extends AbstractMemory implements TypedMemory {
+
+	private volatile Cell[] cells = new Cell[0];
+
+	/**
+	 * Create an empty black board.
+	 */
+	public SharedBlackBoardMemory() {
+		//
+	}
+
+	/** Replies the cell of the given key.
+	 * 
+	 * @param key
+	 * @param create indicates if the cell must be created if not existing.
+	 * @return the cell, or <code>null</code> if not existing.
+	 */
+	private Cell getCell(MemoryKey<?> key, boolean create) {
+		int i = key.getIndex();
+		Cell[] c = this.cells;
+		if (i<c.length && c[i]!=null) return c[i];
+		if (!create) return null;
+		synchronized(this) {
+			c = this.cells;
+			if (i>=c.length) {
+				c = Arrays.copyOf(c, Math.max(i + 1, c.length * 2));
+			}
+			Cell cell = c[i];
+			if (cell==null) {
+				cell = new Cell();
+				c[i] = cell;
+			}
+			// Publish the cell to the readers.
+			this.cells = c;
+			return cell;
+		}
+	}
+
+	private Slot getSlot(MemoryKey<?> key) {
+		Cell cell = getCell(key, false);
+		if (cell==null) return null;
+		Slot slot = cell.get();
+		return (slot!=null && slot.isPresent) ? slot : null;
+	}
+
+	private Object read(MemoryKey<?> key) {
+		Slot slot = getSlot(key);
+		if (slot==null) return null;
+		if (key.getKind()==MemoryKey.OBJECT) return slot.value;
+		return key.box(slot.bits);
+	}
+
+	/** Write the slot of the given key.
+	 * 
+	 * @param key
+	 * @param expectedVersion is the expected version of the slot,
+	 * or <code>-1</code> to write whatever the current version is.
+	 * @param isPresent indicates if the knowledge exists after the write.
+	 * @param value is the written object.
+	 * @param bits is the written primitive value.
+	 * @return <code>true</code> if the slot was written.
+	 */
+	private boolean write(MemoryKey<?> key, long expectedVersion, boolean isPresent, Object value, long bits) {
+		Cell cell = getCell(key, isPresent);
+		if (cell==null) return expectedVersion<=0;
+		Slot oldSlot;
+		long version;
+		do {
+			oldSlot = cell.get();
+			version = (oldSlot==null) ? 0 : oldSlot.version;
+			if (expectedVersion>=0 && version!=expectedVersion) return false;
+			if (!isPresent && (oldSlot==null || !oldSlot.isPresent)) return true;
+		}
+		while (!cell.compareAndSet(oldSlot, new Slot(version + 1, isPresent, value, bits)));
+
+		if (hasMemoryListener()) {
+			boolean wasPresent = (oldSlot!=null && oldSlot.isPresent);
+			boolean isObject = (key.getKind()==MemoryKey.OBJECT);
+			Object oldValue = wasPresent ? (isObject ? oldSlot.value : key.box(oldSlot.bits)) : null;
+			Object newValue = isPresent ? (isObject ? value : key.box(bits)) : null;
+			if (!isPresent)
+				fireKnowledgeRemoved(key.getName(), oldValue);
+			else if (wasPresent)
+				fireKnowledgeUpdate(key.getName(), oldValue, newValue);
+			else
+				fireKnowledgeAdded(key.getName(), newValue);
+		}
+		return true;
+	}
+
+	private boolean writeObject(MemoryKey<?> key, long expectedVersion, Object value) {
+		if (value==null)
+			return write(key, expectedVersion, false, null, 0);
+		if (key.getKind()==MemoryKey.OBJECT)
+			return write(key, expectedVersion, true, value, 0);
+		return write(key, expectedVersion, true, null, key.unbox(value));
+	}
+
+	/** Replies the version of the knowledge with the given key.
+	 * The version is incremented on each change of the knowledge,
+	 * including its removal.
+	 * 
+	 * @param key is the key of the knowledge.
+	 * @return the version, or <code>0</code> if the knowledge was never written.
+	 */
+	public long getVersion(MemoryKey<?> key) {
+		Cell cell = getCell(key, false);
+		if (cell==null) return 0;
+		Slot slot = cell.get();
+		return (slot==null) ? 0 : slot.version;
+	}
+
+	/** Put a knowledge in the memory if its version is the expected one.
+	 * 
+	 * @param <T> is the type of the data.
+	 * @param key is the key of the knowledge.
+	 * @param expectedVersion is the version of the knowledge, as replied by
+	 * {@link #getVersion(MemoryKey)}, from which the new value was computed.
+	 * @param value is the data to memorize, or <code>null</code> to remove the knowledge.
+	 * @return <code>true</code> if the knowledge was saved, <code>false</code> if
+	 * the knowledge was changed by another writer since the expected version.
+	 */
+	public <T> boolean compareAndPutMemorizedData(MemoryKey<T> key, long expectedVersion, T value) {
+		assert(expectedVersion>=0);
+		return writeObject(key, expectedVersion, value);
+	}
+
+	/** Replies the key of the knowledge with the given name in this
+	 * memory: the typed key if the knowledge is stored with it,
+	 * otherwise the untyped key.
+	 * 
+	 * @param id is the name of the knowledge.
+	 * @return the key, or <code>null</code> if the knowledge is not
+	 * in this memory.
+	 */
+	private MemoryKey<?> findKey(String id) {
+		MemoryKey<?> key = MemoryKey.find(id);
+		if (key!=null && getSlot(key)!=null) return key;
+		key = MemoryKey.findUntyped(id);
+		if (key!=null && getSlot(key)!=null) return key;
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object getMemorizedData(String id) {
+		MemoryKey<?> key = findKey(id);
+		return (key==null) ? null : read(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasMemorizedData(String id) {
+		return findKey(id)!=null;
+	}
+
+	/** Put a knowledge in the memory.
+	 * If a typed key with the given name was created, the
+	 * knowledge is stored with this key. Otherwise the knowledge
+	 * is stored with an untyped key, which does not prevent the
+	 * creation of a typed key with the same name later.
+	 * 
+	 * @param id is the identifier of the knowledge.
+	 * @param value is the data to memorize.
+	 * @return <code>true</code> if the knowledge was successfully saved,
+	 * <code>false</code> if the value is not of the type of the key.
+	 */
+	@Override
+	public boolean putMemorizedData(String id, Object value) {
+		MemoryKey<?> key = MemoryKey.find(id);
+		if (key!=null) {
+			if (!key.accept(value)) return false;
+			MemoryKey<?> untypedKey = MemoryKey.findUntyped(id);
+			if (untypedKey!=null) write(untypedKey, -1, false, null, 0);
+		}
+		else {
+			key = MemoryKey.getUntyped(id);
+		}
+		writeObject(key, -1, value);
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeMemorizedData(String id) {
+		MemoryKey<?> key = MemoryKey.find(id);
+		if (key!=null) write(key, -1, false, null, 0);
+		key = MemoryKey.findUntyped(id);
+		if (key!=null) write(key, -1, false, null, 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> T getMemorizedData(MemoryKey<T> key) {
+		return key.getType().cast(read(key));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasMemorizedData(MemoryKey<?> key) {
+		return getSlot(key)!=null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> boolean putMemorizedData(MemoryKey<T> key, T value) {
+		return writeObject(key, -1, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeMemorizedData(MemoryKey<?> key) {
+		write(key, -1, false, null, 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getMemorizedInt(MemoryKey<Integer> key, int defaultValue) {
+		Slot slot = getSlot(key);
+		return (slot==null) ? defaultValue : (int)slot.bits;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void putMemorizedInt(MemoryKey<Integer> key, int value) {
+		write(key, -1, true, null, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getMemorizedLong(MemoryKey<Long> key, long defaultValue) {
+		Slot slot = getSlot(key);
+		return (slot==null) ? defaultValue : slot.bits;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void putMemorizedLong(MemoryKey<Long> key, long value) {
+		write(key, -1, true, null, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getMemorizedDouble(MemoryKey<Double> key, double defaultValue) {
+		Slot slot = getSlot(key);
+		return (slot==null) ? defaultValue : Double.longBitsToDouble(slot.bits);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void putMemorizedDouble(MemoryKey<Double> key, double value) {
+		write(key, -1, true, null, Double.doubleToRawLongBits(value));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getMemorizedBoolean(MemoryKey<Boolean> key, boolean defaultValue) {
+		Slot slot = getSlot(key);
+		return (slot==null) ? defaultValue : slot.bits!=0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void putMemorizedBoolean(MemoryKey<Boolean> key, boolean value) {
+		write(key, -1, true, null, value ? 1 : 0);
+	}
+
+	/** Add the given value to the integer knowledge with the given key,
+	 * atomically.
+	 * 
+	 * @param key is the key of the knowledge.
+	 * @param delta is the value to add; the knowledge is initialized to
+	 * zero if it is not existing.
+	 * @return the new value of the knowledge.
+	 */
+	public int addAndGetMemorizedInt(MemoryKey<Integer> key, int delta) {
+		long version;
+		int value;
+		do {
+			Cell cell = getCell(key, true);
+			Slot slot = cell.get();
+			version = (slot==null) ? 0 : slot.version;
+			value = ((slot==null || !slot.isPresent) ? 0 : (int)slot.bits) + delta;
+		}
+		while (!write(key, version, true, null, value));
+		return value;
+	}
+
+	/**
+	 * Version of the value of a knowledge.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static final class Slot {
+
+		/** Version of the knowledge.
+		 */
+		public final long version;
+		
+		/** Indicates if the knowledge exists.
+		 */
+		public final boolean isPresent;
+		
+		/** Value of the knowledge if of an object type.
+		 */
+		public final Object value;
+
+		/** Value of the knowledge if of a primitive type.
+		 */
+		public final long bits;
+
+		/**
+		 * @param version
+		 * @param isPresent
+		 * @param value
+		 * @param bits
+		 */
+		public Slot(long version, boolean isPresent, Object value, long bits) {
+			this.version = version;
+			this.isPresent = isPresent;
+			this.value = value;
+			this.bits = bits;
+		}
+
+	}
+
+	/**
+	 * Cell containing the current version of a knowledge.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static final class Cell extends AtomicReference<Slot> {
+
+		private static final long serialVersionUID = 3418765409371520951L;
+
+		/**
+		 */
+		public Cell() {
+			//
+		}
+
+	}
+
+}
@@ -0,0 +1,431 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agentmemory;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * Implementation of an agent memory using a black board
+ * indexed by typed and interned keys.
+ * <p>
+ * The knowledge is stored in an open-addressing table of this
+ * memory, which is hashed by the indexes of the
+ * {@link MemoryKey keys}; the knowledge of primitive types
+ * is stored without boxing. The table is sized by the number
+ * of knowledges in this memory, not by the number of keys
+ * created in the virtual machine. The memory events are created
+ * only when a listener is registered.
+ * <p>
+ * <code>TypedBlackBoardMemory</code> is not synchronized. It is
+ * serializable when its data are serializable, so that it may follow
+ * an agent which is migrating; the memory listeners are not serialized.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ * @see SharedBlackBoardMemory
+ */
+public class TypedBlackBoardMemory extends AbstractMemory implements TypedMemory, Serializable {
+
+	private static final long serialVersionUID = -1573104396838926712L;
+
+	private transient MemoryKey<?>[] keys = null;
+	private transient Object[] objects = null;
+	private transient long[] primitives = null;
+	private transient int size = 0;
+
+	/**
+	 * Create an empty black board.
+	 */
+	public TypedBlackBoardMemory() {
+		//
+	}
+
+	/** Replies the number of knowledges in this memory.
+	 * 
+	 * @return the number of knowledges.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	private static int hash(int index) {
+		int h = index * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/** Replies the position in the table of the knowledge
+	 * with the given key.
+	 * 
+	 * @param key
+	 * @return the position, or <code>-1</code>.
+	 */
+	private int find(MemoryKey<?> key) {
+		if (this.keys==null) return -1;
+		int mask = this.keys.length - 1;
+		int i = hash(key.getIndex()) & mask;
+		MemoryKey<?> k;
+		while ((k = this.keys[i])!=null) {
+			if (k==key) return i;
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	/** Replies the position in the table of the knowledge
+	 * with the given key, or allocate it.
+	 * 
+	 * @param key
+	 * @return the position.
+	 */
+	private int allocate(MemoryKey<?> key) {
+		int i = find(key);
+		if (i<0) {
+			if ((this.size + 1) * 2 > ((this.keys==null) ? 0 : this.keys.length)) {
+				grow();
+			}
+			int mask = this.keys.length - 1;
+			i = hash(key.getIndex()) & mask;
+			while (this.keys[i]!=null) {
+				i = (i + 1) & mask;
+			}
+		}
+		return i;
+	}
+
+	private void grow() {
+		MemoryKey<?>[] oldKeys = this.keys;
+		Object[] oldObjects = this.objects;
+		long[] oldPrimitives = this.primitives;
+		int capacity = (oldKeys==null) ? 8 : oldKeys.length * 2;
+		this.keys = new MemoryKey<?>[capacity];
+		this.objects = new Object[capacity];
+		this.primitives = new long[capacity];
+		if (oldKeys!=null) {
+			int mask = capacity - 1;
+			int i;
+			for(int j=0; j<oldKeys.length; ++j) {
+				if (oldKeys[j]!=null) {
+					i = hash(oldKeys[j].getIndex()) & mask;
+					while (this.keys[i]!=null) {
+						i = (i + 1) & mask;
+					}
+					this.keys[i] = oldKeys[j];
+					this.objects[i] = oldObjects[j];
+					this.primitives[i] = oldPrimitives[j];
+				}
+			}
+		}
+	}
+
+	/** Remove the knowledge at the given position of the table,
+	 * and shift back the following knowledges.
+	 * 
+	 * @param position
+	 */
+	private void removeAt(int position) {
+		int mask = this.keys.length - 1;
+		int i = position;
+		int j = i;
+		int h;
+		MemoryKey<?> k;
+		while (true) {
+			j = (j + 1) & mask;
+			k = this.keys[j];
+			if (k==null) break;
+			h = hash(k.getIndex()) & mask;
+			if ((j>i) ? (h<=i || h>j) : (h<=i && h>j)) {
+				this.keys[i] = k;
+				this.objects[i] = this.objects[j];
+				this.primitives[i] = this.primitives[j];
+				i = j;
+			}
+		}
+		this.keys[i] = null;
+		this.objects[i] = null;
+		this.primitives[i] = 0;
+		--this.size;
+	}
+
+	private boolean contains(MemoryKey<?> key) {
+		return find(key)>=0;
+	}
+
+	private Object read(MemoryKey<?> key) {
+		int i = find(key);
+		if (i<0) return null;
+		if (key.getKind()==MemoryKey.OBJECT) return this.objects[i];
+		return key.box(this.primitives[i]);
+	}
+
+	private void write(MemoryKey<?> key, Object value) {
+		if (value==null) {
+			remove(key);
+		}
+		else if (key.getKind()==MemoryKey.OBJECT) {
+			int i = allocate(key);
+			Object oldValue = this.objects[i];
+			boolean isNew = (this.keys[i]==null);
+			this.keys[i] = key;
+			this.objects[i] = value;
+			if (isNew) {
+				++this.size;
+				fireKnowledgeAdded(key.getName(), value);
+			}
+			else {
+				fireKnowledgeUpdate(key.getName(), oldValue, value);
+			}
+		}
+		else {
+			writePrimitive(key, key.unbox(value));
+		}
+	}
+
+	private void writePrimitive(MemoryKey<?> key, long bits) {
+		int i = allocate(key);
+		long oldBits = this.primitives[i];
+		boolean isNew = (this.keys[i]==null);
+		this.keys[i] = key;
+		this.primitives[i] = bits;
+		if (isNew) ++this.size;
+		if (hasMemoryListener()) {
+			if (isNew)
+				fireKnowledgeAdded(key.getName(), key.box(bits));
+			else
+				fireKnowledgeUpdate(key.getName(), key.box(oldBits), key.box(bits));
+		}
+	}
+
+	private void remove(MemoryKey<?> key) {
+		int i = find(key);
+		if (i>=0) {
+			Object oldValue = null;
+			if (hasMemoryListener()) {
+				oldValue = (key.getKind()==MemoryKey.OBJECT)
+						? this.objects[i] : key.box(this.primitives[i]);
+			}
+			removeAt(i);
+			fireKnowledgeRemoved(key.getName(), oldValue);
+		}
+	}
+
+	/** Replies the key of the knowledge with the given name in this
+	 * memory: the typed key if the knowledge is stored with it,
+	 * otherwise the untyped key.
+	 * 
+	 * @param id is the name of the knowledge.
+	 * @return the key, or <code>null</code> if the knowledge is not
+	 * in this memory.
+	 */
+	private MemoryKey<?> findKey(String id) {
+		MemoryKey<?> key = MemoryKey.find(id);
+		if (key!=null && contains(key)) return key;
+		key = MemoryKey.findUntyped(id);
+		if (key!=null && contains(key)) return key;
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object getMemorizedData(String id) {
+		MemoryKey<?> key = findKey(id);
+		return (key==null) ? null : read(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasMemorizedData(String id) {
+		return findKey(id)!=null;
+	}
+
+	/** Put a knowledge in the memory.
+	 * If a typed key with the given name was created, the
+	 * knowledge is stored with this key. Otherwise the knowledge
+	 * is stored with an untyped key, which does not prevent the
+	 * creation of a typed key with the same name later.
+	 * 
+	 * @param id is the identifier of the knowledge.
+	 * @param value is the data to memorize.
+	 * @return <code>true</code> if the knowledge was successfully saved,
+	 * <code>false</code> if the value is not of the type of the key.
+	 */
+	@Override
+	public boolean putMemorizedData(String id, Object value) {
+		MemoryKey<?> key = MemoryKey.find(id);
+		if (key!=null) {
+			if (!key.accept(value)) return false;
+			MemoryKey<?> untypedKey = MemoryKey.findUntyped(id);
+			if (untypedKey!=null) remove(untypedKey);
+		}
+		else {
+			key = MemoryKey.getUntyped(id);
+		}
+		write(key, value);
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeMemorizedData(String id) {
+		MemoryKey<?> key = MemoryKey.find(id);
+		if (key!=null) remove(key);
+		key = MemoryKey.findUntyped(id);
+		if (key!=null) remove(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> T getMemorizedData(MemoryKey<T> key) {
+		return key.getType().cast(read(key));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasMemorizedData(MemoryKey<?> key) {
+		return contains(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> boolean putMemorizedData(MemoryKey<T> key, T value) {
+		write(key, value);
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeMemorizedData(MemoryKey<?> key) {
+		remove(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getMemorizedInt(MemoryKey<Integer> key, int defaultValue) {
+		int i = find(key);
+		return (i>=0) ? (int)this.primitives[i] : defaultValue;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void putMemorizedInt(MemoryKey<Integer> key, int value) {
+		writePrimitive(key, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getMemorizedLong(MemoryKey<Long> key, long defaultValue) {
+		int i = find(key);
+		return (i>=0) ? this.primitives[i] : defaultValue;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void putMemorizedLong(MemoryKey<Long> key, long value) {
+		writePrimitive(key, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getMemorizedDouble(MemoryKey<Double> key, double defaultValue) {
+		int i = find(key);
+		return (i>=0) ? Double.longBitsToDouble(this.primitives[i]) : defaultValue;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void putMemorizedDouble(MemoryKey<Double> key, double value) {
+		writePrimitive(key, Double.doubleToRawLongBits(value));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getMemorizedBoolean(MemoryKey<Boolean> key, boolean defaultValue) {
+		int i = find(key);
+		return (i>=0) ? this.primitives[i]!=0 : defaultValue;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void putMemorizedBoolean(MemoryKey<Boolean> key, boolean value) {
+		writePrimitive(key, value ? 1 : 0);
+	}
+
+	private void writeObject(ObjectOutputStream stream) throws IOException {
+		stream.defaultWriteObject();
+		stream.writeInt(this.size);
+		for(int i=0; this.keys!=null && i<this.keys.length; ++i) {
+			if (this.keys[i]!=null) {
+				stream.writeObject(this.keys[i]);
+				stream.writeObject(read(this.keys[i]));
+			}
+		}
+	}
+
+	private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+		stream.defaultReadObject();
+		// The indexes of the keys are not the same in all the virtual machines.
+		this.keys = null;
+		this.objects = null;
+		this.primitives = null;
+		this.size = 0;
+		int count = stream.readInt();
+		for(int i=0; i<count; ++i) {
+			MemoryKey<?> key = (MemoryKey<?>)stream.readObject();
+			write(key, stream.readObject());
+		}
+	}
+
+}
@@ -0,0 +1,129 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agentmemory;
+
+/**
+ * Agent memory which is accessed with typed and interned keys.
+ * <p>
+ * The knowledge is identified by instances of {@link MemoryKey}.
+ * The knowledge of primitive types may be read and written
+ * without boxing. The functions with a string identifier
+ * are still supported; they use the key with the given name.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public interface TypedMemory extends Memory {
+
+	/** Replies the knowledge with the given key.
+	 * 
+	 * @param <T> is the type of the data.
+	 * @param key is the key of the knowledge.
+	 * @return the data or <code>null</code>
+	 */
+	public <T> T getMemorizedData(MemoryKey<T> key);
+
+	/** Replies if a knowledge with the given key is existing in the memory.
+	 * 
+	 * @param key is the key of the knowledge.
+	 * @return <code>true</code> if the knowledge is existing, otherwise <code>false</code>
+	 */
+	public boolean hasMemorizedData(MemoryKey<?> key);
+
+	/** Put a knowledge in the memory.
+	 * 
+	 * @param <T> is the type of the data.
+	 * @param key is the key of the knowledge.
+	 * @param value is the data to memorize, or <code>null</code> to remove the knowledge.
+	 * @return <code>true</code> if the knowledge was successfully saved, otherwise <code>false</code>
+	 */
+	public <T> boolean putMemorizedData(MemoryKey<T> key, T value);
+
+	/** Remove a knowledge from the memory.
+	 * 
+	 * @param key is the key of the knowledge.
+	 */
+	public void removeMemorizedData(MemoryKey<?> key);
+
+	/** Replies the integer knowledge with the given key.
+	 * 
+	 * @param key is the key of the knowledge.
+	 * @param defaultValue is the value to reply if the knowledge is not existing.
+	 * @return the data.
+	 */
+	public int getMemorizedInt(MemoryKey<Integer> key, int defaultValue);
+
+	/** Put an integer knowledge in the memory.
+	 * 
+	 * @param key is the key of the knowledge.
+	 * @param value is the data to memorize.
+	 */
+	public void putMemorizedInt(MemoryKey<Integer> key, int value);
+
+	/** Replies the long integer knowledge with the given key.
+	 * 
+	 * @param key is the key of the knowledge.
+	 * @param defaultValue is the value to reply if the knowledge is not existing.
+	 * @return the data.
+	 */
+	public long getMemorizedLong(MemoryKey<Long> key, long defaultValue);
+
+	/** Put a long integer knowledge in the memory.
+	 * 
+	 * @param key is the key of the knowledge.
+	 * @param value is the data to memorize.
+	 */
+	public void putMemorizedLong(MemoryKey<Long> key, long value);
+
+	/** Replies the floating-point knowledge with the given key.
+	 * 
+	 * @param key is the key of the knowledge.
+	 * @param defaultValue is the value to reply if the knowledge is not existing.
+	 * @return the data.
+	 */
+	public double getMemorizedDouble(MemoryKey<Double> key, double defaultValue);
+
+	/** Put a floating-point knowledge in the memory.
+	 * 
+	 * @param key is the key of the knowledge.
+	 * @param value is the data to memorize.
+	 */
+	public void putMemorizedDouble(MemoryKey<Double> key, double value);
+
+	/** Replies the boolean knowledge with the given key.
+	 * 
+	 * @param key is the key of the knowledge.
+	 * @param defaultValue is the value to reply if the knowledge is not existing.
+	 * @return the data.
+	 */
+	public boolean getMemorizedBoolean(MemoryKey<Boolean> key, boolean defaultValue);
+
+	/** Put a boolean knowledge in the memory.
+	 * 
+	 * @param key is the key of the knowledge.
+	 * @param value is the data to memorize.
+	 */
+	public void putMemorizedBoolean(MemoryKey<Boolean> key, boolean value);
+
+}
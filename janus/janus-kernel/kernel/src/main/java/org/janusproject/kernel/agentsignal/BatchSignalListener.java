@@ -0,0 +1,51 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agentsignal;
+
+import java.util.List;
+
+/**
+ * A listener on signals which is able to receive
+ * the signals by batches.
+ * <p>
+ * When a signal manager is delivering several signals at
+ * once, it invokes {@link #onSignals(List)} instead of
+ * invoking {@link #onSignal(Signal)} for each signal.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ * @see ConcurrentSignalManager
+ */
+public interface BatchSignalListener extends SignalListener {
+
+	/**
+	 * Invoked when signals were received.
+	 * 
+	 * @param signals are the signals in delivering order.
+	 * This list is not modifiable and must not be kept
+	 * after the invocation.
+	 */
+	public void onSignals(List<Signal> signals);
+
+}
@@ -0,0 +1,405 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agentsignal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.janusproject.kernel.configuration.JanusProperties;
+
+/**
+ * Signal manager that is buffering the signal
+ * until its function {@link #sync()} is invoked, and
+ * which may be fired from any thread.
+ * <p>
+ * The firing of a signal does not take any lock: the signals
+ * are put in a non-blocking queue, and the listeners are stored
+ * in a copy-on-write array. According to the
+ * {@link SignalCoalescingPolicy coalescing policy}, the signals
+ * of the same type which are fired between two synchronizations
+ * are merged, and only the latest one is delivered.
+ * <p>
+ * The signals are delivered by batch when {@link #sync()} is
+ * invoked, usually at the activation of the owner of this
+ * manager. A {@link BatchSignalListener} receives all the signals
+ * of the batch with a single invocation; the other listeners
+ * receive them one by one.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see BufferedSignalManager
+ * @since 1.1
+ */
+public class ConcurrentSignalManager extends BufferedSignalManager {
+
+	private static final SignalListener[] NO_LISTENER = new SignalListener[0];
+
+	private final AtomicReference<SignalListener[]> signalListeners = new AtomicReference<SignalListener[]>(NO_LISTENER);
+
+	/** Pending signals, or the keys of the pending coalesced signals.
+	 */
+	private final Queue<Object> pending = new ConcurrentLinkedQueue<Object>();
+
+	/** Latest coalesced signal for each key.
+	 */
+	private final ConcurrentMap<SignalKey,Signal> latest = new ConcurrentHashMap<SignalKey,Signal>();
+
+	private final AtomicInteger pendingCount = new AtomicInteger();
+
+	private volatile SignalCoalescingPolicy coalescing;
+
+	/**
+	 * @param properties
+	 */
+	public ConcurrentSignalManager(JanusProperties properties) {
+		this(properties, null, SignalCoalescingPolicy.NONE);
+	}
+
+	/**
+	 * @param properties
+	 * @param coalescing is the policy used to merge the signals.
+	 */
+	public ConcurrentSignalManager(JanusProperties properties, SignalCoalescingPolicy coalescing) {
+		this(properties, null, coalescing);
+	}
+
+	/**
+	 * @param properties
+	 * @param parent is the signal manager that owns this submanager. All
+	 * the signals will be fired by the parent manager.
+	 */
+	public ConcurrentSignalManager(JanusProperties properties, SignalManager parent) {
+		this(properties, parent, SignalCoalescingPolicy.NONE);
+	}
+
+	/**
+	 * @param properties
+	 * @param parent is the signal manager that owns this submanager. All
+	 * the signals will be fired by the parent manager.
+	 * @param coalescing is the policy used to merge the signals.
+	 */
+	public ConcurrentSignalManager(JanusProperties properties, SignalManager parent, SignalCoalescingPolicy coalescing) {
+		super(properties, parent);
+		this.coalescing = coalescing==null ? SignalCoalescingPolicy.NONE : coalescing;
+	}
+
+	/** Replies the policy used to merge the signals.
+	 * 
+	 * @return the coalescing policy, never <code>null</code>.
+	 */
+	public SignalCoalescingPolicy getCoalescingPolicy() {
+		return this.coalescing;
+	}
+
+	/** Change the policy used to merge the signals.
+	 * The change applies to the signals fired after this call.
+	 * 
+	 * @param coalescing is the coalescing policy.
+	 */
+	public void setCoalescingPolicy(SignalCoalescingPolicy coalescing) {
+		this.coalescing = coalescing==null ? SignalCoalescingPolicy.NONE : coalescing;
+	}
+
+	/** Replies the number of signals which are waiting for
+	 * their delivery.
+	 * <p>
+	 * This number is approximative when signals are
+	 * concurrently fired.
+	 * 
+	 * @return the number of pending signals.
+	 */
+	public int getPendingSignalCount() {
+		return Math.max(0, this.pendingCount.get());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void addSignalListener(SignalListener listener) {
+		SignalListener[] old, nl;
+		do {
+			old = this.signalListeners.get();
+			nl = Arrays.copyOf(old, old.length+1);
+			nl[old.length] = listener;
+		}
+		while (!this.signalListeners.compareAndSet(old, nl));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeSignalListener(SignalListener listener) {
+		SignalListener[] old, nl;
+		int idx;
+		do {
+			old = this.signalListeners.get();
+			idx = -1;
+			for(int i=0; idx<0 && i<old.length; ++i) {
+				if (old[i]==listener) idx = i;
+			}
+			if (idx<0) return;
+			if (old.length==1) {
+				nl = NO_LISTENER;
+			}
+			else {
+				nl = new SignalListener[old.length-1];
+				System.arraycopy(old, 0, nl, 0, idx);
+				System.arraycopy(old, idx+1, nl, idx, nl.length-idx);
+			}
+		}
+		while (!this.signalListeners.compareAndSet(old, nl));
+	}
+
+	/** Deliver the buffered signals to the listeners.
+	 */
+	@Override
+	public void sync() {
+		switch(getPolicy()) {
+		case IGNORE_ALL:
+			clearPendingSignals();
+			break;
+		case FIRE_SIGNAL:
+			List<Signal> batch = drain();
+			if (!batch.isEmpty()) {
+				batch = Collections.unmodifiableList(batch);
+				for(SignalListener listener : this.signalListeners.get()) {
+					if (listener instanceof BatchSignalListener) {
+						((BatchSignalListener)listener).onSignals(batch);
+					}
+					else {
+						for(Signal signal : batch) {
+							listener.onSignal(signal);
+						}
+					}
+				}
+			}
+			break;
+		case STORE_IN_QUEUE:
+			// Do nothing because the events were already stored in the queue.
+			break;
+		default:
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void onSignal(Signal signal) {
+		switch(getPolicy()) {
+		case IGNORE_ALL:
+			break;
+		case FIRE_SIGNAL:
+			enqueue(signal);
+			break;
+		case STORE_IN_QUEUE:
+			enqueue(signal);
+			// notifies the SignalManager children
+			for (SignalListener listener : this.signalListeners.get()) {
+				if (listener instanceof SignalManager)
+					listener.onSignal(signal);
+			}
+			break;
+		default:
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Signal getSignal() {
+		if (getPolicy()==SignalPolicy.STORE_IN_QUEUE) {
+			return poll();
+		}
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasSignal() {
+		if (getPolicy()==SignalPolicy.STORE_IN_QUEUE) {
+			return !this.pending.isEmpty();
+		}
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void reset() {
+		this.signalListeners.set(NO_LISTENER);
+		clearPendingSignals();
+		super.reset();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return this.pending.toString();
+	}
+
+	private void enqueue(Signal signal) {
+		SignalKey key;
+		switch(this.coalescing) {
+		case LATEST_PER_TYPE:
+			key = new SignalKey(signal, false);
+			break;
+		case LATEST_PER_SOURCE_AND_TYPE:
+			key = new SignalKey(signal, true);
+			break;
+		case NONE:
+		default:
+			key = null;
+		}
+		if (key==null) {
+			this.pending.offer(signal);
+			this.pendingCount.incrementAndGet();
+		}
+		else if (this.latest.put(key, signal)==null) {
+			// First signal of this type since the last delivery:
+			// the key is queued to preserve the firing order.
+			this.pending.offer(key);
+			this.pendingCount.incrementAndGet();
+		}
+	}
+
+	private Signal poll() {
+		Object o;
+		Signal s;
+		while ((o = this.pending.poll())!=null) {
+			this.pendingCount.decrementAndGet();
+			if (o instanceof SignalKey) {
+				s = this.latest.remove(o);
+				if (s!=null) return s;
+			}
+			else {
+				return (Signal)o;
+			}
+		}
+		return null;
+	}
+
+	/** Remove the signals which were pending when this
+	 * function was invoked. The signals which are concurrently
+	 * fired are left for the next drain.
+	 * 
+	 * @return the drained signals.
+	 */
+	private List<Signal> drain() {
+		int count = this.pendingCount.get();
+		if (count<=0) return Collections.emptyList();
+		List<Signal> batch = new ArrayList<Signal>(count);
+		Signal s;
+		for(int i=0; i<count && (s = poll())!=null; ++i) {
+			batch.add(s);
+		}
+		return batch;
+	}
+
+	private void clearPendingSignals() {
+		while (poll()!=null) {
+			//
+		}
+	}
+
+	/**
+	 * Key used to coalesce the signals.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static final class SignalKey {
+
+		private final Class<?> type;
+		private final String name;
+		private final Object source;
+		private final int hash;
+
+		/**
+		 * @param signal
+		 * @param withSource
+		 */
+		public SignalKey(Signal signal, boolean withSource) {
+			this.type = signal.getClass();
+			this.name = signal.getName();
+			this.source = withSource ? signal.getSource() : null;
+			int h = this.type.hashCode();
+			h = h * 31 + (this.name==null ? 0 : this.name.hashCode());
+			h = h * 31 + (this.source==null ? 0 : System.identityHashCode(this.source));
+			this.hash = h;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (obj==this) return true;
+			if (obj instanceof SignalKey) {
+				SignalKey k = (SignalKey)obj;
+				return this.hash==k.hash
+					&& this.type==k.type
+					&& this.source==k.source
+					&& (this.name==null ? k.name==null : this.name.equals(k.name));
+			}
+			return false;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String toString() {
+			return this.name==null ? this.type.getSimpleName() : this.name;
+		}
+
+	}
+
+}
@@ -0,0 +1,49 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agentsignal;
+
+/**
+ * Policy used by a {@link ConcurrentSignalManager} to merge
+ * the signals which are fired between two synchronizations.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public enum SignalCoalescingPolicy {
+
+	/** All the signals are kept and delivered in firing order.
+	 */
+	NONE,
+
+	/** Only the latest signal of each type is kept.
+	 * The type of a signal is its class and its name.
+	 */
+	LATEST_PER_TYPE,
+
+	/** Only the latest signal of each type and each source is kept.
+	 * The type of a signal is its class and its name.
+	 */
+	LATEST_PER_SOURCE_AND_TYPE;
+
+}
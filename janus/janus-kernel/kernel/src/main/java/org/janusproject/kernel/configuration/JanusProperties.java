@@ -181,6 +181,36 @@ public class JanusProperties extends Properties {
 	 */
 	public static final String DEFAULT_ZEROMQ_MULICAT_GROUP_ADDRESS = "237.252.249.227"; //$NON-NLS-1$
 
+	/** This constants indicates the default TCP port used by the
+	 * NIO networking layer.
+	 * <p>
+	 * Value: <code>9871</code>.
+	 * 
+	 * @see JanusProperty#NIO_PORT
+	 * @since 1.1
+	 */
+	public static final int DEFAULT_NIO_PORT = 9871;
+
+	/** This constants indicates the default number of I/O threads
+	 * used by the NIO networking layer.
+	 * <p>
+	 * Value: <code>2</code>.
+	 * 
+	 * @see JanusProperty#NIO_IO_THREADS
+	 * @since 1.1
+	 */
+	public static final int DEFAULT_NIO_IO_THREADS = 2;
+
+	/** This constants indicates the default size of the shared-memory
+	 * buffers used between the kernels on the same host.
+	 * <p>
+	 * Value: <code>8388608</code>, ie. 8 MB.
+	 * 
+	 * @see JanusProperty#SHM_RING_SIZE
+	 * @since 1.1
+	 */
+	public static final int DEFAULT_SHM_RING_SIZE = 8 * 1024 * 1024;
+
 	/** Timeout delay (in milliseconds) to await a kernel agent
 	 * to be killed.
 	 * <p>
@@ -237,6 +267,42 @@ public class JanusProperties extends Properties {
 	 */
 	public static final String DEFAULT_ROLE_MAILBOX_TYPE = null;
 
+	/** Indicates if the kernel metrics are collected by default.
+	 * <p>
+	 * Value: <code>false</code>.
+	 * 
+	 * @see JanusProperty#JANUS_METRICS
+	 * @since 1.1
+	 */
+	public static final boolean DEFAULT_METRICS = false;
+
+	/** Period (in milliseconds) of the dump of the kernel metrics.
+	 * <p>
+	 * Value: <code>0</code>, ie. no periodic dump.
+	 * 
+	 * @see JanusProperty#JANUS_METRICS_DUMP_PERIOD
+	 * @since 1.1
+	 */
+	public static final long DEFAULT_METRICS_DUMP_PERIOD = 0;
+
+	/** Indicates if the kernel metrics are exported with JMX by default.
+	 * <p>
+	 * Value: <code>false</code>.
+	 * 
+	 * @see JanusProperty#JANUS_METRICS_JMX
+	 * @since 1.1
+	 */
+	public static final boolean DEFAULT_METRICS_JMX = false;
+
+	/** Period (in milliseconds) of the balancing of the loads of the kernels.
+	 * <p>
+	 * Value: <code>0</code>, ie. no balancing.
+	 * 
+	 * @see JanusProperty#JANUS_LOAD_BALANCING_PERIOD
+	 * @since 1.1
+	 */
+	public static final long DEFAULT_LOAD_BALANCING_PERIOD = 0;
+
 	static {
 		try {
 			DEFAULT_JXTA_SEEDING_URI = new URI("http://www.janus-project.org/JxtaRendezVous"); //$NON-NLS-1$
@@ -598,6 +664,18 @@ public class JanusProperties extends Properties {
 		case JANUS_ROLE_MAILBOX_TYPE:
 			defVal = DEFAULT_ROLE_MAILBOX_TYPE;
 			break;
+		case JANUS_METRICS:
+			defVal = Boolean.toString(DEFAULT_METRICS);
+			break;
+		case JANUS_METRICS_DUMP_PERIOD:
+			defVal = Long.toString(DEFAULT_METRICS_DUMP_PERIOD);
+			break;
+		case JANUS_METRICS_JMX:
+			defVal = Boolean.toString(DEFAULT_METRICS_JMX);
+			break;
+		case JANUS_LOAD_BALANCING_PERIOD:
+			defVal = Long.toString(DEFAULT_LOAD_BALANCING_PERIOD);
+			break;
 		case JANUS_KERNEL_KILL_TIMEOUT:
 			defVal = Long.toString(DEFAULT_KERNEL_AGENT_KILL_TIMEOUT);
 			break;
@@ -617,12 +695,24 @@ public class JanusProperties extends Properties {
 		case ZEROMQ_MULICAT_GROUP_ADDRESS:
 			defVal = DEFAULT_ZEROMQ_MULICAT_GROUP_ADDRESS;
 			break;
+		case NIO_PORT:
+			defVal = Integer.toString(DEFAULT_NIO_PORT);
+			break;
+		case NIO_IO_THREADS:
+			defVal = Integer.toString(DEFAULT_NIO_IO_THREADS);
+			break;
+		case SHM_RING_SIZE:
+			defVal = Integer.toString(DEFAULT_SHM_RING_SIZE);
+			break;
 		case JANUS_KERNEL_HOME:
 		case JANUS_APPLICATION_HOME:
 		case JANUS_HOME:
 		case JXTA_HOME:
 		case JXTA_WOJ_ID:
 		case JXTA_APPLICATION_ID:
+		case NIO_PEERS:
+		case NIO_PEERS_FILE:
+		case SHM_DIRECTORY:
 			// null default value
 			break;
 		default:
@@ -664,6 +754,10 @@ public class JanusProperties extends Properties {
 		case JANUS_AGENT_KEEP_ALIVE:
 		case JANUS_AGENT_SIGNAL_POLICY:
 		case JANUS_ROLE_MAILBOX_TYPE:
+		case JANUS_METRICS:
+		case JANUS_METRICS_DUMP_PERIOD:
+		case JANUS_METRICS_JMX:
+		case JANUS_LOAD_BALANCING_PERIOD:
 		case JANUS_KERNEL_KEEP_ALIVE:
 		case JANUS_KERNEL_KILL_TIMEOUT:
 		case JXTA_HOME:
@@ -675,6 +769,12 @@ public class JanusProperties extends Properties {
 		case JXTA_LEVEL:
 		case JXTA_LOGGING:
 		case ZEROMQ_MULICAT_GROUP_ADDRESS:
+		case NIO_PORT:
+		case NIO_PEERS:
+		case NIO_PEERS_FILE:
+		case NIO_IO_THREADS:
+		case SHM_DIRECTORY:
+		case SHM_RING_SIZE:
 			return new JanusProperty[0];
 		default:
 		}
@@ -715,6 +815,10 @@ public class JanusProperties extends Properties {
 		case JANUS_AGENT_KEEP_ALIVE:
 		case JANUS_AGENT_SIGNAL_POLICY:
 		case JANUS_KERNEL_KILL_TIMEOUT:
+		case JANUS_METRICS:
+		case JANUS_METRICS_DUMP_PERIOD:
+		case JANUS_METRICS_JMX:
+		case JANUS_LOAD_BALANCING_PERIOD:
 		case JXTA_CLEAN:
 		case JXTA_MODE:
 		case JXTA_SEEDING_URI:
@@ -723,6 +827,12 @@ public class JanusProperties extends Properties {
 		case JXTA_LEVEL:
 		case JXTA_LOGGING:
 		case ZEROMQ_MULICAT_GROUP_ADDRESS:
+		case NIO_PORT:
+		case NIO_PEERS:
+		case NIO_PEERS_FILE:
+		case NIO_IO_THREADS:
+		case SHM_DIRECTORY:
+		case SHM_RING_SIZE:
 			return getProperty(property.getPropertyName(), defaultValue);
 		default:
 		}
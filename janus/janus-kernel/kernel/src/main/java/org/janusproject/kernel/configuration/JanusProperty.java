@@ -138,6 +138,38 @@ public enum JanusProperty {
 	 */
 	JANUS_ROLE_MAILBOX_TYPE("janus.agent.role.mailbox.type", false), //$NON-NLS-1$
 
+	/** Indicates if the kernel metrics are collected.
+	 * <p>
+	 * Read-only: no.
+	 * @since 1.1
+	 */
+	JANUS_METRICS("janus.metrics", false), //$NON-NLS-1$
+
+	/** Indicates the period (in milliseconds) at which the kernel
+	 * metrics are dumped in the kernel log. Zero or a negative
+	 * value disables the periodic dump.
+	 * <p>
+	 * Read-only: no.
+	 * @since 1.1
+	 */
+	JANUS_METRICS_DUMP_PERIOD("janus.metrics.dumpPeriod", false), //$NON-NLS-1$
+
+	/** Indicates if the kernel metrics are exported as a JMX bean.
+	 * <p>
+	 * Read-only: no.
+	 * @since 1.1
+	 */
+	JANUS_METRICS_JMX("janus.metrics.jmx", false), //$NON-NLS-1$
+
+	/** Indicates the period (in milliseconds) at which the kernels
+	 * exchange their loads and move their agents with their load
+	 * balancers. Zero or a negative value disables the balancing.
+	 * <p>
+	 * Read-only: no.
+	 * @since 1.1
+	 */
+	JANUS_LOAD_BALANCING_PERIOD("janus.loadBalancing.period", false), //$NON-NLS-1$
+
 	/**
 	 * If janus should clean the jxta home, it deletes
 	 * all directories.
@@ -199,7 +231,68 @@ public enum JanusProperty {
 	 * Read-only: yes.
 	 * @since 1.0
 	 */
-	ZEROMQ_MULICAT_GROUP_ADDRESS("org.zeromq.multicastGroupAddress", true); //$NON-NLS-1$
+	ZEROMQ_MULICAT_GROUP_ADDRESS("org.zeromq.multicastGroupAddress", true), //$NON-NLS-1$
+
+	/**
+	 * The TCP port on which the NIO networking layer is accepting
+	 * the connections of the other kernels. The value <code>0</code>
+	 * means that any free port is used; in this case, the other kernels
+	 * must find the address of the kernel in the directory file.
+	 * <p>
+	 * Read-only: yes.
+	 * @since 1.1
+	 */
+	NIO_PORT("org.janusproject.network.nio.port", true), //$NON-NLS-1$
+
+	/**
+	 * The addresses of the kernels to which the NIO networking layer
+	 * is connecting at startup. The addresses have the form <code>host:port</code>,
+	 * or <code>host</code> for the default port,
+	 * and are separated by commas.
+	 * <p>
+	 * Read-only: yes.
+	 * @since 1.1
+	 */
+	NIO_PEERS("org.janusproject.network.nio.peers", true), //$NON-NLS-1$
+
+	/**
+	 * The file which is shared by the kernels using the NIO networking layer
+	 * on the same host or on a shared file system. Each kernel is reading
+	 * the addresses of the other kernels from this file, and is adding
+	 * its own address inside.
+	 * <p>
+	 * Read-only: yes.
+	 * @since 1.1
+	 */
+	NIO_PEERS_FILE("org.janusproject.network.nio.peersFile", true), //$NON-NLS-1$
+
+	/**
+	 * The number of threads used by the NIO networking layer to read
+	 * and write on the connections.
+	 * <p>
+	 * Read-only: yes.
+	 * @since 1.1
+	 */
+	NIO_IO_THREADS("org.janusproject.network.nio.ioThreads", true), //$NON-NLS-1$
+
+	/**
+	 * The directory in which the kernels running on the same host
+	 * are publishing their presence and their shared-memory buffers.
+	 * If not set, a directory in the temporary directory of the system is used.
+	 * <p>
+	 * Read-only: yes.
+	 * @since 1.1
+	 */
+	SHM_DIRECTORY("org.janusproject.network.shm.directory", true), //$NON-NLS-1$
+
+	/**
+	 * The size in bytes of the shared-memory buffer used to send
+	 * the frames from a kernel to another kernel on the same host.
+	 * <p>
+	 * Read-only: yes.
+	 * @since 1.1
+	 */
+	SHM_RING_SIZE("org.janusproject.network.shm.ringSize", true); //$NON-NLS-1$
 
 
 
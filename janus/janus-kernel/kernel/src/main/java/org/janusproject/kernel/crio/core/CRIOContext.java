@@ -132,6 +132,28 @@ public class CRIOContext {
 		return this.gr;
 	}
 	
+	/** Replies the addresses of the groups which are existing
+	 * in this context.
+	 * 
+	 * @return the addresses of the groups.
+	 * @since 1.1
+	 */
+	public Collection<GroupAddress> getGroupAddresses() {
+		return new ArrayList<GroupAddress>(this.gr.identifiers());
+	}
+	
+	/** Create a snapshot of the given group.
+	 * 
+	 * @param group is the address of the group.
+	 * @return the snapshot, or <code>null</code> if the group does not exist.
+	 * @since 1.1
+	 */
+	public GroupSnapshot createGroupSnapshot(GroupAddress group) {
+		KernelScopeGroup grp = this.gr.get(group);
+		if (grp==null) return null;
+		return grp.createSnapshot();
+	}
+	
 	/** Replies the time manager embedded in this CRIO context.
 	 * 
 	 * @return the time manager embedded in this CRIO context.
@@ -336,6 +358,14 @@ public class CRIOContext {
 			return null;
 		}
 
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void setNextPlayerAddress(AgentAddress address) {
+			RolePlayer.setNextAddress(address);
+		}
+
 	}
 
 }
@@ -31,8 +31,9 @@ import org.janusproject.kernel.repository.ConcurrentHashRepository;
  * This registry stores a reference to each group of the kernel
  * and their respective address: Groups White Pages.
  * <p>
- * This class is a singleton.
- * On a given JVM, there is only one kernel and one GroupRepository.
+ * There is one GroupRepository per kernel. Several kernels
+ * may be hosted by the same JVM, eg. the shards of a
+ * {@link org.janusproject.kernel.agent.KernelShards}.
  * 
  * @author $Author: ngaud$
  * @author $Author: srodriguez$
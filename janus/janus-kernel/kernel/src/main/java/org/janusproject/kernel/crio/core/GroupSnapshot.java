@@ -0,0 +1,111 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.crio.core;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.janusproject.kernel.address.AgentAddress;
+
+/**
+ * Snapshot of the state of a group, used by the check-points.
+ * <p>
+ * A snapshot contains the address of the group, its
+ * flags and the addresses of the players of each role.
+ * It is built while the group is locked, so that it is
+ * consistent even if the group is used by the agents.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public final class GroupSnapshot implements Serializable {
+
+	private static final long serialVersionUID = 4480781468357815601L;
+
+	private final GroupAddress address;
+	private final boolean isDistributed;
+	private final boolean isPersistent;
+	private final Map<Class<? extends Role>, List<AgentAddress>> players;
+
+	/**
+	 * @param address is the address of the group.
+	 * @param isDistributed indicates if the group is distributed.
+	 * @param isPersistent indicates if the group is persistent.
+	 * @param players are the players of each role.
+	 */
+	GroupSnapshot(GroupAddress address, boolean isDistributed, boolean isPersistent,
+			Map<Class<? extends Role>, List<AgentAddress>> players) {
+		this.address = address;
+		this.isDistributed = isDistributed;
+		this.isPersistent = isPersistent;
+		this.players = players;
+	}
+
+	/** Replies the address of the group.
+	 * 
+	 * @return the address of the group.
+	 */
+	public GroupAddress getAddress() {
+		return this.address;
+	}
+
+	/** Replies if the group is distributed.
+	 * 
+	 * @return <code>true</code> if the group is distributed, otherwise <code>false</code>.
+	 */
+	public boolean isDistributed() {
+		return this.isDistributed;
+	}
+
+	/** Replies if the group is persistent.
+	 * 
+	 * @return <code>true</code> if the group is persistent, otherwise <code>false</code>.
+	 */
+	public boolean isPersistent() {
+		return this.isPersistent;
+	}
+
+	/** Replies the roles played in the group when the snapshot was created.
+	 * 
+	 * @return the played roles.
+	 */
+	public Set<Class<? extends Role>> getPlayedRoles() {
+		return Collections.unmodifiableSet(this.players.keySet());
+	}
+
+	/** Replies the players of the given role when the snapshot was created.
+	 * 
+	 * @param role
+	 * @return the addresses of the players.
+	 */
+	public List<AgentAddress> getRolePlayers(Class<? extends Role> role) {
+		List<AgentAddress> l = this.players.get(role);
+		if (l==null) return Collections.emptyList();
+		return Collections.unmodifiableList(l);
+	}
+
+}
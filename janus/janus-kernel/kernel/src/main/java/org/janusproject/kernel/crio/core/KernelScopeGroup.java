@@ -25,18 +25,18 @@ import java.lang.ref.WeakReference;
 import java.lang.reflect.Array;
 import java.security.AccessControlContext;
 import java.security.AccessController;
-import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EventListener;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.locks.ReentrantLock;
@@ -45,7 +45,9 @@ import java.util.logging.Logger;
 
 import org.arakhne.afc.vmutil.locale.Locale;
 import org.janusproject.kernel.address.Address;
+import org.janusproject.kernel.address.AddressIndexedMap;
 import org.janusproject.kernel.address.AgentAddress;
+import org.janusproject.kernel.agentmemory.SharedBlackBoardMemory;
 import org.janusproject.kernel.channels.ChannelInteractable;
 import org.janusproject.kernel.condition.ConditionFailure;
 import org.janusproject.kernel.condition.ConditionnedObject;
@@ -60,8 +62,13 @@ import org.janusproject.kernel.crio.role.RolePlayingEvent;
 import org.janusproject.kernel.crio.role.RolePlayingListener;
 import org.janusproject.kernel.crio.role.UndefinedRoleException;
 import org.janusproject.kernel.logger.LoggerUtil;
+import org.janusproject.kernel.mailbox.DeliveryBuffer;
+import org.janusproject.kernel.mailbox.Mailbox;
 import org.janusproject.kernel.message.Message;
 import org.janusproject.kernel.message.MessageReceiverSelectionPolicy;
+import org.janusproject.kernel.metrics.Counter;
+import org.janusproject.kernel.metrics.Histogram;
+import org.janusproject.kernel.metrics.KernelMetrics;
 import org.janusproject.kernel.status.Status;
 import org.janusproject.kernel.util.comparator.GenericComparator;
 import org.janusproject.kernel.util.directaccess.DirectAccessCollection;
@@ -89,6 +96,12 @@ import org.janusproject.kernel.util.sizediterator.UnmodifiableMapKeySizedIterato
  */
 final class KernelScopeGroup extends ConditionnedObject<RolePlayer, GroupCondition> {
 
+	private static final Counter SENT_MESSAGES = KernelMetrics.getCounter(KernelMetrics.SENT_MESSAGES);
+	private static final Counter BROADCAST_MESSAGES = KernelMetrics.getCounter(KernelMetrics.BROADCAST_MESSAGES);
+	private static final Counter DELIVERED_MESSAGES = KernelMetrics.getCounter(KernelMetrics.DELIVERED_MESSAGES);
+	private static final Counter REMOTE_MESSAGES = KernelMetrics.getCounter(KernelMetrics.REMOTE_MESSAGES);
+	private static final Histogram MAILBOX_DEPTH = KernelMetrics.getHistogram(KernelMetrics.MAILBOX_DEPTH);
+
 	/**
 	 * The address of the group
 	 */
@@ -129,7 +142,8 @@ final class KernelScopeGroup extends ConditionnedObject<RolePlayer, GroupConditi
 	/**
 	 * Agent-Role pairs.
 	 */
-	private final Map<AgentAddress, Collection<Class<? extends Role>>> rolesPerPlayer = new TreeMap<AgentAddress, Collection<Class<? extends Role>>>();
+	private final Map<AgentAddress, Collection<Class<? extends Role>>> rolesPerPlayer = new AddressIndexedMap<AgentAddress, Collection<Class<? extends Role>>>(
+			new TreeMap<AgentAddress, Collection<Class<? extends Role>>>());
 
 	/**
 	 * Use to synchronize internal data structures.
@@ -152,6 +166,11 @@ final class KernelScopeGroup extends ConditionnedObject<RolePlayer, GroupConditi
 	 */
 	private Object privateUserData = null;
 
+	/** Black board shared by the roles of the group.
+	 * @since 1.1
+	 */
+	private volatile SharedBlackBoardMemory sharedMemory = null;
+
 	private ListenerCollection<EventListener> eventListeners = null;
 	
 	/**
@@ -594,13 +613,23 @@ final class KernelScopeGroup extends ConditionnedObject<RolePlayer, GroupConditi
 			AgentAddress adr = player.getAddress();			
 	
 			try {
-				roleToTake = AccessController.doPrivileged(new RoleInstanciator(role,
-						factory), accessContext);
+				RoleInstanciator instanciator = new RoleInstanciator(role, factory);
+				if (System.getSecurityManager()==null) {
+					// No access control is applied, the privileged
+					// context is useless.
+					roleToTake = instanciator.run();
+				}
+				else {
+					roleToTake = AccessController.doPrivileged(instanciator, accessContext);
+				}
 			}
 			catch(AssertionError ae) {
 				throw ae;
 			}
-			catch (PrivilegedActionException e) {
+			catch(RuntimeException e) {
+				throw e;
+			}
+			catch (Exception e) {
 				Throwable t = e;
 				while (t.getCause() != null) {
 					t = t.getCause();
@@ -735,6 +764,9 @@ final class KernelScopeGroup extends ConditionnedObject<RolePlayer, GroupConditi
 	protected RoleAddress sendMessageToRemoteKernel(Message msg) {
 		DistantCRIOContextHandler distantKernel = getDistantCRIOContextHandler();
 		if (distantKernel!=null) {
+			if (KernelMetrics.isMetricsEnable()) {
+				REMOTE_MESSAGES.increment();
+			}
 			Address adr = distantKernel.sendMessage(msg);
 			assert(adr instanceof RoleAddress);
 			return (RoleAddress)adr;
@@ -746,16 +778,40 @@ final class KernelScopeGroup extends ConditionnedObject<RolePlayer, GroupConditi
 		return this.organization.get().getCRIOContext().getDistantCRIOContextHandler();
 	}
 
+	/** Put the given message in the mailbox of the given role.
+	 * 
+	 * @param role
+	 * @param message
+	 */
+	private static void deliver(Role role, Message message) {
+		Mailbox mailbox = role.getMailbox();
+		role.getPlayerInstance().markModified();
+		if (DeliveryBuffer.post(mailbox, message, true)) return;
+		mailbox.add(message);
+		if (KernelMetrics.isMetricsEnable()) {
+			DELIVERED_MESSAGES.increment();
+			MAILBOX_DEPTH.record(mailbox.size());
+		}
+	}
+
 	/**
 	 * Broadcast the specified <code>Message</code> to all entities playing the
 	 * <code>Role</code> in the field <code>receiverRole</code> of the message.
+	 * <p>
+	 * When a {@link DeliveryBuffer} is attached to the current thread,
+	 * the local receivers are resolved when the buffer is flushed, so that
+	 * they do not depend on the roles taken or left in the meantime
+	 * by the other threads.
 	 * 
 	 * @param message
 	 *            is the message to broadcast
 	 * @param includeSender
 	 *            indicates if the message sender may also receive the message.
 	 */
-	public void broadcastMessage(Message message, boolean includeSender) {
+	public void broadcastMessage(final Message message, final boolean includeSender) {
+		if (KernelMetrics.isMetricsEnable()) {
+			BROADCAST_MESSAGES.increment();
+		}
 		this.internalStructureLock.lock();
 		try {
 			assert (message != null);
@@ -775,6 +831,65 @@ final class KernelScopeGroup extends ConditionnedObject<RolePlayer, GroupConditi
 
 			if (!roles.hasNext())
 				throw new UndefinedRoleException(orga.getClass(), receiverRole);
+
+			// local broadcast
+			if (!DeliveryBuffer.post(new Runnable() {
+					@SuppressWarnings("synthetic-access")
+					@Override
+					public void run() {
+						broadcastLocalMessage(message, includeSender);
+					}
+				})) {
+				broadcastLocalMessage(message, includeSender);
+			}
+			
+			while (roles.hasNext()) {
+				roles.next();
+				// remote broadcast
+		
+				if (isDistributed()) {
+		
+					RoleDescriptor senderRoleDescriptor = this.playersPerRole.get(senderAddress.getRole());
+					// if senderRoleDescriptor == null no local players are here so it
+					// is a distant message => DONT LOOP
+					// check if the sender is local or not
+					if (senderRoleDescriptor != null
+							&& senderRoleDescriptor.containsLocalPlayer(senderAddress.getPlayer())) {
+						DistantCRIOContextHandler distantKernel = getDistantCRIOContextHandler();
+						if (distantKernel!=null) {
+							distantKernel.broadcastMessage(message);
+						}
+					}
+		
+				}
+			}
+		}
+		finally {
+			this.internalStructureLock.unlock();
+		}
+	}
+
+	/**
+	 * Put the specified <code>Message</code> in the mailboxes of the
+	 * local players of the role in the field <code>receiverRole</code>
+	 * of the message.
+	 * 
+	 * @param message
+	 *            is the message to broadcast
+	 * @param includeSender
+	 *            indicates if the message sender may also receive the message.
+	 */
+	private void broadcastLocalMessage(Message message, boolean includeSender) {
+		this.internalStructureLock.lock();
+		try {
+			RoleAddress senderAddress = (RoleAddress)message.getSender();
+			RoleAddress receiverAddress = (RoleAddress)message.getReceiver();
+			
+			Organization orga = this.organization.get();
+			if (orga==null) return;
+	
+			Iterator<Class<? extends Role>> roles = orga.iterator(receiverAddress.getRole());
+			assert(roles!=null);
 			
 			Class<? extends Role> realReceiverRole;
 			
@@ -789,17 +904,16 @@ final class KernelScopeGroup extends ConditionnedObject<RolePlayer, GroupConditi
 		
 					assert (senderAddress.getRole() != null);
 		
-					// local broadcast
 					if (includeSender) {
 						for (Role r : roleDescriptor.getLocalRoles()) {
-							r.getMailbox().add(message);
+							deliver(r, message);
 						}
 					}
 					else {
 						for (Role r : roleDescriptor.getLocalRoles()) {
 							if ((!senderAddress.getPlayer().equals(r.getPlayer()))
 								|| (!senderAddress.getRole().equals(r.getClass()))) {
-								r.getMailbox().add(message);
+								deliver(r, message);
 							}
 						}
 					}
@@ -808,23 +922,6 @@ final class KernelScopeGroup extends ConditionnedObject<RolePlayer, GroupConditi
 					getLogger().fine(Locale.getString(KernelScopeGroup.class, "NO_ROLE_DESCRIPTOR_WHEN_BROADCASTING_MESSAGE",  //$NON-NLS-1$
 							getAddress().toString(), realReceiverRole.toString()));
 				}
-				// remote broadcast
-		
-				if (isDistributed()) {
-		
-					RoleDescriptor senderRoleDescriptor = this.playersPerRole.get(senderAddress.getRole());
-					// if senderRoleDescriptor == null no local players are here so it
-					// is a distant message => DONT LOOP
-					// check if the sender is local or not
-					if (senderRoleDescriptor != null
-							&& senderRoleDescriptor.containsLocalPlayer(senderAddress.getPlayer())) {
-						DistantCRIOContextHandler distantKernel = getDistantCRIOContextHandler();
-						if (distantKernel!=null) {
-							distantKernel.broadcastMessage(message);
-						}
-					}
-		
-				}
 			}
 		}
 		finally {
@@ -843,6 +940,9 @@ final class KernelScopeGroup extends ConditionnedObject<RolePlayer, GroupConditi
 	 *         was found, <code>null</code> else.
 	 */
 	public RoleAddress sendMessage(Message message, boolean includeSender) {
+		if (KernelMetrics.isMetricsEnable()) {
+			SENT_MESSAGES.increment();
+		}
 		this.internalStructureLock.lock();
 		try {
 			assert (message != null);
@@ -903,7 +1003,7 @@ final class KernelScopeGroup extends ConditionnedObject<RolePlayer, GroupConditi
 				//
 				// MESSAGE IS ENQUEUED
 				//
-				receivingRole.getMailbox().add(message);
+				deliver(receivingRole, message);
 				return receivingRole.getAddress();
 			}
 
@@ -1367,6 +1467,59 @@ final class KernelScopeGroup extends ConditionnedObject<RolePlayer, GroupConditi
 		}
 	}
 
+	/** Replies the black board which is shared by the roles
+	 * played in this group on the local kernel.
+	 * 
+	 * @return the shared black board, never <code>null</code>.
+	 * @since 1.1
+	 */
+	public SharedBlackBoardMemory getSharedMemory() {
+		SharedBlackBoardMemory memory = this.sharedMemory;
+		if (memory==null) {
+			this.internalStructureLock.lock();
+			try {
+				memory = this.sharedMemory;
+				if (memory==null) {
+					memory = new SharedBlackBoardMemory();
+					this.sharedMemory = memory;
+				}
+			}
+			finally {
+				this.internalStructureLock.unlock();
+			}
+		}
+		return memory;
+	}
+
+	/** Create a snapshot of the membership of this group.
+	 * <p>
+	 * The snapshot is built while the internal structure of
+	 * the group is locked.
+	 * 
+	 * @return the snapshot.
+	 * @since 1.1
+	 */
+	GroupSnapshot createSnapshot() {
+		this.internalStructureLock.lock();
+		try {
+			Map<Class<? extends Role>, List<AgentAddress>> players = new LinkedHashMap<Class<? extends Role>, List<AgentAddress>>();
+			SizedIterator<AgentAddress> addresses;
+			List<AgentAddress> list;
+			for(Entry<Class<? extends Role>, RoleDescriptor> entry : this.playersPerRole.entrySet()) {
+				addresses = entry.getValue().getAddresses();
+				list = new ArrayList<AgentAddress>(addresses.totalSize());
+				while (addresses.hasNext()) {
+					list.add(addresses.next());
+				}
+				players.put(entry.getKey(), list);
+			}
+			return new GroupSnapshot(this.address, this.isDistributed, this.isPersistent, players);
+		}
+		finally {
+			this.internalStructureLock.unlock();
+		}
+	}
+
 	/**
 	 * Describes the players of a role inside a group.
 	 * 
@@ -1377,7 +1530,7 @@ final class KernelScopeGroup extends ConditionnedObject<RolePlayer, GroupConditi
 	 */
 	private class RoleDescriptor {
 
-		private SortedMap<AgentAddress, Role> localEntities = null;
+		private Map<AgentAddress, Role> localEntities = null;
 
 		private Set<AgentAddress> remoteEntities = null;
 
@@ -1577,7 +1730,8 @@ final class KernelScopeGroup extends ConditionnedObject<RolePlayer, GroupConditi
 			KernelScopeGroup.this.internalStructureLock.lock();
 			try {
 				if (this.localEntities == null)
-					this.localEntities = new TreeMap<AgentAddress,Role>();
+					this.localEntities = new AddressIndexedMap<AgentAddress,Role>(
+							new TreeMap<AgentAddress,Role>());
 				this.localEntities.put(entity, role);
 				return true;
 			}
@@ -1880,7 +2034,7 @@ final class KernelScopeGroup extends ConditionnedObject<RolePlayer, GroupConditi
 		private final SizedIterator<Role> roles;
 		
 		public RoleAddressIterator(Collection<Role> roles) {
-			this.roles = new UnmodifiableCollectionSizedIterator<Role>(roles);
+			this.roles = new ModifiableCollectionSizedIterator<Role>(roles);
 		}
 
 		public RoleAddressIterator(SizedIterator<Role> roles) {
@@ -55,4 +55,16 @@ public interface PrivilegedPlayerAddressService {
 	 */
 	public RolePlayer getBindedPlayer(AgentAddress address);
 
+	/** Force the address of the next role player which is created
+	 * by the current thread with its default constructor.
+	 * <p>
+	 * This function is used to restore the address of an agent
+	 * which is deserialized, eg. after a migration.
+	 * 
+	 * @param address is the address to give to the next player,
+	 * or <code>null</code> to cancel a previous call.
+	 * @since 1.1
+	 */
+	public void setNextPlayerAddress(AgentAddress address);
+
 }
@@ -30,6 +30,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.logging.Logger;
 
 import org.arakhne.afc.vmutil.locale.Locale;
@@ -37,6 +39,7 @@ import org.janusproject.kernel.address.AgentAddress;
 import org.janusproject.kernel.agentmemory.Memory;
 import org.janusproject.kernel.agentmemory.MemoryEvent;
 import org.janusproject.kernel.agentmemory.MemoryListener;
+import org.janusproject.kernel.agentmemory.SharedBlackBoardMemory;
 import org.janusproject.kernel.agentsignal.BufferedSignalManager;
 import org.janusproject.kernel.agentsignal.Signal;
 import org.janusproject.kernel.agentsignal.SignalListener;
@@ -45,6 +48,7 @@ import org.janusproject.kernel.agentsignal.SignalPolicy;
 import org.janusproject.kernel.condition.Condition;
 import org.janusproject.kernel.condition.ConditionnedObject;
 import org.janusproject.kernel.condition.TimeCondition;
+import org.janusproject.kernel.configuration.JanusProperties;
 import org.janusproject.kernel.crio.capacity.Capacity;
 import org.janusproject.kernel.crio.capacity.CapacityContainer;
 import org.janusproject.kernel.crio.capacity.CapacityContext;
@@ -56,6 +60,7 @@ import org.janusproject.kernel.crio.organization.GroupCondition;
 import org.janusproject.kernel.crio.organization.GroupListener;
 import org.janusproject.kernel.crio.organization.MembershipService;
 import org.janusproject.kernel.crio.organization.OrganizationFactory;
+import org.janusproject.kernel.crio.role.ReactiveRole;
 import org.janusproject.kernel.crio.role.RoleActivationPrototypeValidator;
 import org.janusproject.kernel.crio.role.RoleCondition;
 import org.janusproject.kernel.crio.role.RoleFactory;
@@ -92,6 +97,9 @@ import org.janusproject.kernel.util.sizediterator.SizedIterator;
 public abstract class Role extends
 		ConditionnedObject<RolePlayer, RoleCondition> implements Activable {
 
+	private static final AtomicReferenceFieldUpdater<Role,Mailbox> MAILBOX_UPDATER =
+		AtomicReferenceFieldUpdater.newUpdater(Role.class, Mailbox.class, "mailbox"); //$NON-NLS-1$
+
 	/**
 	 * The group where this role is defined
 	 */
@@ -109,7 +117,7 @@ public abstract class Role extends
 	/**
 	 * The mailbox of this role
 	 */
-	private Mailbox mailbox;
+	private volatile Mailbox mailbox;
 
 	/**
 	 * The message transport service of this role
@@ -150,6 +158,14 @@ public abstract class Role extends
 	private final boolean hasMigrated = false;
 
 	private RepositoryGroupWrapper groupEventWrapper = null;
+
+	/** Indicates if the role is activated only when it has something to do.
+	 */
+	private volatile boolean isReactive = getClass().isAnnotationPresent(ReactiveRole.class);
+
+	/** Indicates if a reactive role has something to do.
+	 */
+	private final AtomicBoolean isActivationRequested = new AtomicBoolean(true);
 	
 	/**
 	 * Create a role outside a group, without owner and mailbox.
@@ -744,6 +760,24 @@ public abstract class Role extends
 		return this.memory;
 	}
 
+	/**
+	 * Replies the black board which is shared by the roles played
+	 * in the same group on the local kernel.
+	 * <p>
+	 * The shared black board may be read without lock, and updated
+	 * with versioned writes. It permits to the roles of a group to
+	 * share a state without exchanging messages.
+	 * 
+	 * @return the shared black board of the group.
+	 * @MINDAPI
+	 * @since 1.1
+	 */
+	protected final SharedBlackBoardMemory getGroupMemory() {
+		KernelScopeGroup grp = getKernelScopeGroup();
+		assert(grp!=null);
+		return grp.getSharedMemory();
+	}
+
 	/**
 	 * Replies the knowledge with the given identifier.
 	 * 
@@ -825,7 +859,7 @@ public abstract class Role extends
 			RolePlayer player = this.owner.get();
 			assert (player != null);
 			SignalManager emm = player.getSignalManager();
-			this.signalManager = new BufferedSignalManager(
+			this.signalManager = new RoleSignalManager(
 					this.crioContext.get().getProperties(),
 					emm);
 		}
@@ -1025,6 +1059,25 @@ public abstract class Role extends
 		return !getMailbox().isEmpty();
 	}
 
+	/**
+	 * Indicates if the mailbox contains a message of the given type.
+	 * <p>
+	 * This function does not scan the mailbox when the mailbox
+	 * is a {@link org.janusproject.kernel.mailbox.PerTypeMailbox}.
+	 * 
+	 * @param <T> is the type of the expected messages.
+	 * @param type is the type of the expected messages.
+	 * @return <code>true</code> if the message contains at least one message
+	 *         of the given type, otherwise <code>false</code>
+	 * @see #getMessages(Class)
+	 * @see #peekMessages(Class)
+	 * @MESSAGEAPI
+	 * @since 1.1
+	 */
+	protected final <T extends Message> boolean hasMessage(Class<T> type) {
+		return getMailbox().contains(new TypeSelector<T>(type));
+	}
+
 	/**
 	 * Replies the number of messages in the mailbox.
 	 * 
@@ -1284,10 +1337,15 @@ public abstract class Role extends
 	 * @MESSAGEAPI
 	 */
 	protected final Mailbox getMailbox() {
-		if (this.mailbox == null) {
-			this.mailbox = MailboxUtil.createDefaultMailbox(getClass(), this.crioContext.get().getProperties(), getLogger());
+		Mailbox m = this.mailbox;
+		if (m == null) {
+			// The mailbox may be lazily created by several senders at the same time
+			m = MailboxUtil.createDefaultMailbox(getClass(), this.crioContext.get().getProperties(), getLogger());
+			if (!MAILBOX_UPDATER.compareAndSet(this, null, m)) {
+				m = this.mailbox;
+			}
 		}
-		return this.mailbox;
+		return m;
 	}
 
 	/**
@@ -2573,6 +2631,70 @@ public abstract class Role extends
 		return false;
 	}
 
+	/** Replies if this role is activated only when it has something to do.
+	 * <p>
+	 * By default, a role is reactive if its class is marked
+	 * with {@link ReactiveRole}.
+	 * 
+	 * @return <code>true</code> if this role is reactive,
+	 * <code>false</code> if it is activated at each pass of the
+	 * role activator.
+	 * @since 1.1
+	 * @see ReactiveRole
+	 */
+	public final boolean isReactive() {
+		return this.isReactive;
+	}
+
+	/** Change the activation mode of this role.
+	 * 
+	 * @param reactive is <code>true</code> if this role is activated only
+	 * when it has something to do, <code>false</code> if it is activated
+	 * at each pass of the role activator.
+	 * @since 1.1
+	 * @see ReactiveRole
+	 */
+	protected final void setReactive(boolean reactive) {
+		this.isReactive = reactive;
+		this.isActivationRequested.set(true);
+	}
+
+	/** Request the activation of this role at the next pass of the
+	 * role activator, even if the role is reactive and has no
+	 * pending message nor event.
+	 * 
+	 * @since 1.1
+	 */
+	protected final void requestActivation() {
+		this.isActivationRequested.set(true);
+	}
+
+	/** Replies if this role must be activated by the role activator,
+	 * and consumes the activation requests.
+	 * <p>
+	 * A role which is not reactive is always activated. A reactive
+	 * role is activated if it is sleeping, to evaluate its wake-up
+	 * condition; if its activation was requested, eg. by a signal
+	 * or a memory change; or if it has pending messages.
+	 * 
+	 * @return <code>true</code> if the role must be activated,
+	 * otherwise <code>false</code>.
+	 */
+	boolean hasPendingWork() {
+		if (!this.isReactive || this.roleWakeUpCondition!=null
+			|| this.isActivationRequested.getAndSet(false)) {
+			return true;
+		}
+		Mailbox m = this.mailbox;
+		if (m!=null) {
+			if (!m.isEmpty()) return true;
+			if (m instanceof BufferedMailbox) {
+				return !((BufferedMailbox)m).isBufferEmpty();
+			}
+		}
+		return false;
+	}
+
 	/** Replies if the role is currently sleeping, ie. it is
 	 * waiting for a particular condition to wake up.
 	 *  
@@ -2583,6 +2705,37 @@ public abstract class Role extends
 		return this.roleWakeUpCondition!=null;
 	}
 
+	/**
+	 * Buffered signal manager of a role, which is requesting
+	 * the activation of the role when a signal is received.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private class RoleSignalManager extends BufferedSignalManager {
+
+		/**
+		 * @param properties
+		 * @param parent
+		 */
+		public RoleSignalManager(JanusProperties properties, SignalManager parent) {
+			super(properties, parent);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void onSignal(Signal signal) {
+			super.onSignal(signal);
+			requestActivation();
+		}
+
+	}
+
 	/**
 	 * Wrapper to player's memory to avoid invalid accesses from role.
 	 * 
@@ -2685,6 +2838,7 @@ public abstract class Role extends
 				this.events = new LinkedList<MemoryEvent>();
 			}
 			this.events.add(event);
+			requestActivation();
 		}
 
 		/**
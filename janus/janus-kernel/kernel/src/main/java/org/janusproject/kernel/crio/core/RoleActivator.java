@@ -37,6 +37,10 @@ import org.janusproject.kernel.util.directaccess.SafeIterator;
  * Allows to schedule roles.
  * <p>
  * This activator is empty if there have no more role inside.
+ * <p>
+ * The reactive roles are activated only when they have
+ * pending messages, signals, memory events, or a wake-up
+ * condition to evaluate.
  * 
  * @author $Author: ngaud$
  * @author $Author: srodriguez$
@@ -80,6 +84,8 @@ extends AbstractActivator<Role> {
 		Role r;
 		while (roles.hasNext()) {
 			r = roles.next();
+			// The reactive roles are skipped when they have nothing to do
+			if (!r.hasPendingWork()) continue;
 			try {
 				if (!r.wakeUpIfSleeping()) {
 					ms.addStatus(r.proceedPrivateBehaviour());
@@ -31,6 +31,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 import org.janusproject.kernel.address.AgentAddress;
@@ -86,6 +87,13 @@ import org.janusproject.kernel.util.sizediterator.SizedIterator;
  */
 public abstract class RolePlayer implements CapacityCaller, LoggerProvider {
 
+	/** Address to give to the next role player created by the
+	 * current thread with the default constructor.
+	 * 
+	 * @see PrivilegedPlayerAddressService#setNextPlayerAddress(AgentAddress)
+	 */
+	private static final ThreadLocal<AgentAddress> NEXT_ADDRESS = new ThreadLocal<AgentAddress>();
+
 	private final PlayerAddress address;
 
 	private Memory memory = null;
@@ -110,11 +118,34 @@ public abstract class RolePlayer implements CapacityCaller, LoggerProvider {
 	/** Credentials for the role player.
 	 */
 	private Credentials credentials = null;
+
+	/** Stamp changed each time the state of this player may have changed.
+	 */
+	private final AtomicLong modificationStamp = new AtomicLong();
 	
 	/**
 	 */
 	public RolePlayer() {
-		this.address = new PlayerAddress(this);
+		AgentAddress adr = NEXT_ADDRESS.get();
+		if (adr==null) {
+			this.address = new PlayerAddress(this);
+		}
+		else {
+			NEXT_ADDRESS.remove();
+			this.address = new PlayerAddress(this, adr.getUUID(), adr.getName());
+		}
+	}
+	
+	/** Set the address to give to the next role player created by the
+	 * current thread with the default constructor.
+	 * 
+	 * @param address is the address to give, or <code>null</code> to
+	 * create a new address.
+	 * @since 1.1
+	 */
+	static void setNextAddress(AgentAddress address) {
+		if (address==null) NEXT_ADDRESS.remove();
+		else NEXT_ADDRESS.set(address);
 	}
 
 	/**
@@ -210,6 +241,29 @@ public abstract class RolePlayer implements CapacityCaller, LoggerProvider {
 	 */
 	public abstract CRIOContext getCRIOContext();
 
+	/** Replies a stamp which is changed each time the state of this player
+	 * may have changed, ie. when the player is activated or when a
+	 * message is delivered to it or to one of its roles.
+	 * <p>
+	 * This stamp is used by the incremental check-points to avoid
+	 * the serialization of the unchanged players.
+	 * 
+	 * @return the modification stamp.
+	 * @since 1.1
+	 */
+	public final long getModificationStamp() {
+		return this.modificationStamp.get();
+	}
+
+	/** Notify that the state of this player may have changed.
+	 * 
+	 * @see #getModificationStamp()
+	 * @since 1.1
+	 */
+	protected final void markModified() {
+		this.modificationStamp.incrementAndGet();
+	}
+
 	/**
 	 * Replies the address of the role player.
 	 * 
@@ -0,0 +1,68 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.crio.role;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/** Annotation that permits to mark the role classes which
+ * are activated only when they have something to do.
+ * <p>
+ * A reactive role is not activated at each pass of the role
+ * activator of its player. It is activated only when:
+ * <ul>
+ * <li>a message is in its mailbox;</li>
+ * <li>a signal was received by its signal manager;</li>
+ * <li>a data of the memory of its player has changed;</li>
+ * <li>the condition of its sleep is satisfied, eg. a time condition;</li>
+ * <li>it has explicitly requested an activation.</li>
+ * </ul>
+ * Reactive roles are well suited for the roles which are
+ * waiting for requests.
+ * <p>
+ * <strong>Example</strong><br>
+ * <pre><code><span>@</span>ReactiveRole
+ *public class Server extends Role {
+ *   public Status live() {
+ *      for(Message m : getMessages()) {
+ *         ...
+ *      }
+ *      return null;
+ *   }
+ *}</code></pre>
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ * @see org.janusproject.kernel.crio.core.Role#isReactive()
+ */
+@Retention(value=RUNTIME)
+@Target({ElementType.TYPE})
+@Inherited
+public @interface ReactiveRole {
+	//
+}
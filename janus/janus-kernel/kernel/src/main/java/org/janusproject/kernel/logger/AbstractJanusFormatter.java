@@ -75,6 +75,34 @@ extends Formatter {
 				dt);
 	}
 	
+	/** Format the emission time of the given record for log message.
+	 * <p>
+	 * If the record is a {@link JanusLogRecord}, the kernel time
+	 * captured when the record was emitted is used. Otherwise,
+	 * the current time is used.
+	 * 
+	 * @param record is the record to log.
+	 * @return the formated time
+	 * @since 1.1
+	 */
+	protected String formatDate(LogRecord record) {
+		if (record instanceof JanusLogRecord) {
+			JanusLogRecord janusRecord = (JanusLogRecord)record;
+			Date dt = janusRecord.getCurrentDate();
+			if (dt==null) {
+				return Locale.getString(
+						AbstractJanusFormatter.class,
+						"INTEGER_DATE",  //$NON-NLS-1$
+						Float.toString(janusRecord.getCurrentTime()));
+			}
+			return Locale.getString(
+					AbstractJanusFormatter.class,
+					"HUMAN_DATE", //$NON-NLS-1$
+					dt);
+		}
+		return formatDate();
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
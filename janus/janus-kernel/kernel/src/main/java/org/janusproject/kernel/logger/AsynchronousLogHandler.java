@@ -0,0 +1,296 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * Handler which is publishing the log records from a background thread.
+ * <p>
+ * The records are stored in a bounded ring buffer by the emitting
+ * threads. A single daemon thread is draining the buffer by batches
+ * and gives the records to the delegate handler which is
+ * formatting and outputting them. In this way, the formatting
+ * of the records is not done by the agents' threads, and the
+ * delegate handler is used by one thread only, in the order
+ * of the records.
+ * <p>
+ * When the buffer is full, the emitting thread is waiting for
+ * free space. {@link #flush()} and {@link #close()} are
+ * executed by the background thread, after the records which
+ * are already in the buffer; the caller is waiting for their
+ * completion.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class AsynchronousLogHandler
+extends Handler {
+
+	/** Default size of the ring buffer.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	/** Maximal number of records published in one batch.
+	 */
+	private static final int BATCH_SIZE = 256;
+
+	private final Handler delegate;
+	private final BlockingQueue<Object> buffer;
+	private final Thread worker;
+	private volatile boolean closed = false;
+
+	/**
+	 * @param delegate is the handler which is formatting and outputting the records.
+	 */
+	public AsynchronousLogHandler(Handler delegate) {
+		this(delegate, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param delegate is the handler which is formatting and outputting the records.
+	 * @param bufferSize is the maximal number of records waiting for publication.
+	 */
+	public AsynchronousLogHandler(Handler delegate, int bufferSize) {
+		assert(delegate!=null);
+		assert(bufferSize>0);
+		this.delegate = delegate;
+		this.buffer = new ArrayBlockingQueue<Object>(bufferSize);
+		this.worker = new Thread(new Drainer(), "Janus Asynchronous Logging"); //$NON-NLS-1$
+		this.worker.setDaemon(true);
+		this.worker.start();
+	}
+
+	/** Replies the handler which is formatting and outputting the records.
+	 * 
+	 * @return the delegate handler.
+	 */
+	public Handler getDelegate() {
+		return this.delegate;
+	}
+
+	/** Replies the number of records waiting for publication.
+	 * 
+	 * @return the number of records in the buffer.
+	 */
+	public int getBufferSize() {
+		return this.buffer.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void publish(LogRecord record) {
+		if (record!=null && !this.closed && isLoggable(record)) {
+			if (Thread.currentThread()==this.worker) {
+				// The delegate handler is logging something.
+				this.delegate.publish(record);
+			}
+			else if (!this.buffer.offer(record)) {
+				// The buffer is full: wait for free space
+				// to preserve the order of the records.
+				enqueue(record);
+			}
+		}
+	}
+
+	/** Put the given object in the buffer, waiting for free space if necessary.
+	 * 
+	 * @param object
+	 * @return <code>true</code> if the object was added, <code>false</code>
+	 * if the current thread was interrupted.
+	 */
+	private boolean enqueue(Object object) {
+		try {
+			this.buffer.put(object);
+			return true;
+		}
+		catch(InterruptedException _) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/** Run the given command on the background thread and wait for its end.
+	 * 
+	 * @param command
+	 */
+	private void runOnWorker(Command command) {
+		if (this.worker.isAlive() && enqueue(command)) {
+			boolean interrupted = false;
+			while (true) {
+				try {
+					command.done.await();
+					break;
+				}
+				catch(InterruptedException _) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void publishRecord(LogRecord record) {
+		try {
+			this.delegate.publish(record);
+		}
+		catch(AssertionError ae) {
+			throw ae;
+		}
+		catch(Exception e) {
+			reportError(null, e, ErrorManager.WRITE_FAILURE);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void flush() {
+		if (Thread.currentThread()==this.worker) {
+			this.delegate.flush();
+		}
+		else if (!this.closed) {
+			runOnWorker(new Command(false));
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws SecurityException {
+		if (!this.closed) {
+			this.closed = true;
+			runOnWorker(new Command(true));
+		}
+	}
+
+	/**
+	 * Command executed by the background thread after the records
+	 * which were published before it.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class Command {
+
+		/** Indicates if the handler must be closed.
+		 */
+		public final boolean close;
+
+		/** Released when the command is executed.
+		 */
+		public final CountDownLatch done = new CountDownLatch(1);
+
+		/**
+		 * @param close
+		 */
+		public Command(boolean close) {
+			this.close = close;
+		}
+
+	}
+
+	/**
+	 * Background task which is draining the ring buffer.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private class Drainer implements Runnable {
+
+		/**
+		 */
+		public Drainer() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public void run() {
+			BlockingQueue<Object> buffer = AsynchronousLogHandler.this.buffer;
+			Handler delegate = AsynchronousLogHandler.this.delegate;
+			List<Object> batch = new ArrayList<Object>(BATCH_SIZE);
+			boolean running = true;
+			while (running) {
+				try {
+					batch.add(buffer.take());
+				}
+				catch (InterruptedException _) {
+					continue;
+				}
+				buffer.drainTo(batch, BATCH_SIZE-1);
+				boolean published = false;
+				for(Object element : batch) {
+					if (element instanceof Command) {
+						Command command = (Command)element;
+						try {
+							delegate.flush();
+							published = false;
+							if (command.close) {
+								delegate.close();
+								running = false;
+							}
+						}
+						finally {
+							command.done.countDown();
+						}
+						if (!running) break;
+					}
+					else {
+						publishRecord((LogRecord)element);
+						published = true;
+					}
+				}
+				if (published) {
+					delegate.flush();
+				}
+				batch.clear();
+			}
+		}
+
+	}
+
+}
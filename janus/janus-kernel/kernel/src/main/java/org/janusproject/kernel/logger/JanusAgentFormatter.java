@@ -69,7 +69,7 @@ extends AbstractJanusFormatter {
 				LoggerUtil.isShortLogMessageEnable()
 				? "SHORT_MESSAGE" //$NON-NLS-1$
 				: "MESSAGE", //$NON-NLS-1$
-				formatDate(),
+				formatDate(record),
 				this.agent.getName(),
 				this.agent.getUUID().toString(),
 				action,
@@ -0,0 +1,65 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.logger;
+
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * Formatter for the handlers of the loggers shared by several entities.
+ * <p>
+ * Each {@link JanusLogRecord} is formatted with the Janus formatter
+ * of the entity which has emitted it. The other records are formatted
+ * with a {@link SimpleFormatter}.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class JanusEntityFormatter
+extends Formatter {
+
+	private final Formatter defaultFormatter = new SimpleFormatter();
+
+	/**
+	 */
+	public JanusEntityFormatter() {
+		//
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String format(LogRecord record) {
+		if (record instanceof JanusLogRecord) {
+			AbstractJanusFormatter formatter = ((JanusLogRecord)record).getFormatter();
+			if (formatter!=null) {
+				return formatter.format(record);
+			}
+		}
+		return this.defaultFormatter.format(record);
+	}
+
+}
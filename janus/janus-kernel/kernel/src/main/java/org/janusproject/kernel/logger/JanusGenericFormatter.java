@@ -63,7 +63,7 @@ extends AbstractJanusFormatter {
 				LoggerUtil.isShortLogMessageEnable()
 				? "SHORT_MESSAGE" //$NON-NLS-1$
 				: "MESSAGE", //$NON-NLS-1$
-				formatDate(),
+				formatDate(record),
 				action,
 				message);
 	}
@@ -72,7 +72,7 @@ extends AbstractJanusFormatter {
 				LoggerUtil.isShortLogMessageEnable()
 				? "SHORT_MESSAGE" //$NON-NLS-1$
 				: "MESSAGE", //$NON-NLS-1$
-				formatDate(),
+				formatDate(record),
 				this.organization,
 				this.group.getUUID().toString(),
 				action,
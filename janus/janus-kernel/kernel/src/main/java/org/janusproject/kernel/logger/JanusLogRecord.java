@@ -0,0 +1,126 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.logger;
+
+import java.util.Date;
+import java.util.logging.LogRecord;
+
+import org.janusproject.kernel.address.Address;
+import org.janusproject.kernel.time.KernelTimeManager;
+
+/**
+ * Log record which is carrying the identity of the Janus entity
+ * which has emitted it.
+ * <p>
+ * The entity's address and the name of the played role are
+ * stored as structured fields, and the kernel time is captured
+ * when the record is created. In this way, the record may
+ * be formatted later, from another thread, without
+ * loosing the emission context.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class JanusLogRecord
+extends LogRecord {
+
+	private static final long serialVersionUID = -2890917398717658219L;
+
+	private final Address entity;
+	private final String roleName;
+	private final Date currentDate;
+	private final float currentTime;
+	private transient final AbstractJanusFormatter formatter;
+
+	/**
+	 * @param source is the record to copy.
+	 * @param timeManager is the time manager used to capture the emission time.
+	 * @param entity is the address of the entity which has emitted the record.
+	 * @param roleName is the name of the role played by the entity, or <code>null</code>.
+	 * @param formatter is the formatter dedicated to the entity.
+	 */
+	JanusLogRecord(LogRecord source, KernelTimeManager timeManager, Address entity, String roleName, AbstractJanusFormatter formatter) {
+		super(source.getLevel(), source.getMessage());
+		assert(timeManager!=null);
+		setLoggerName(source.getLoggerName());
+		setMillis(source.getMillis());
+		setParameters(source.getParameters());
+		setResourceBundle(source.getResourceBundle());
+		setResourceBundleName(source.getResourceBundleName());
+		setSequenceNumber(source.getSequenceNumber());
+		setSourceClassName(source.getSourceClassName());
+		setSourceMethodName(source.getSourceMethodName());
+		setThreadID(source.getThreadID());
+		setThrown(source.getThrown());
+		this.entity = entity;
+		this.roleName = roleName;
+		this.currentDate = timeManager.getCurrentDate();
+		this.currentTime = timeManager.getCurrentTime();
+		this.formatter = formatter;
+	}
+
+	/** Replies the address of the entity which has emitted this record.
+	 * 
+	 * @return the address of the emitter.
+	 */
+	public Address getEntity() {
+		return this.entity;
+	}
+
+	/** Replies the name of the role played by the emitter when
+	 * this record was emitted.
+	 * 
+	 * @return the name of the role, or <code>null</code> if the
+	 * emitter is not a role.
+	 */
+	public String getRoleName() {
+		return this.roleName;
+	}
+
+	/** Replies the kernel date at which this record was emitted.
+	 * 
+	 * @return the date, or <code>null</code> if the kernel time
+	 * manager does not provide dates.
+	 */
+	public Date getCurrentDate() {
+		return this.currentDate;
+	}
+
+	/** Replies the kernel time at which this record was emitted.
+	 * 
+	 * @return the time.
+	 */
+	public float getCurrentTime() {
+		return this.currentTime;
+	}
+
+	/** Replies the formatter dedicated to the emitter.
+	 * 
+	 * @return the formatter, or <code>null</code> if none.
+	 */
+	AbstractJanusFormatter getFormatter() {
+		return this.formatter;
+	}
+
+}
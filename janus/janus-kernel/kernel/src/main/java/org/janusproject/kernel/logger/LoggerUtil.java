@@ -25,6 +25,8 @@ import java.net.URL;
 import java.nio.channels.Channels;
 import java.nio.channels.WritableByteChannel;
 import java.util.Enumeration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Formatter;
@@ -56,7 +58,10 @@ public class LoggerUtil {
 	private static final AtomicBoolean isLoggingEnabled;
 	private static final AtomicBoolean isDefaultConfigurationLoaded = new AtomicBoolean(false);
 	private static final AtomicBoolean isShortLogMessage;
+	private static final AtomicBoolean isSharedLoggerEnabled = new AtomicBoolean(false);
+	private static final Map<String,Logger> sharedLoggers = new ConcurrentHashMap<String,Logger>();
 	private static Class<? extends Handler> defaultHandlerType = null;
+	private static AsynchronousLogHandler sharedHandler = null;
 	
 	static {
 		boolean isEmbeddedOS;
@@ -126,6 +131,105 @@ public class LoggerUtil {
 		isShortLogMessage.set(enable);
 	}
 
+	/** Replies if the agents, roles and groups are using lightweight
+	 * loggers in place of dedicated loggers.
+	 * <p>
+	 * When enabled, the loggers replied by {@link #createAgentLogger(Class, KernelTimeManager, Address)},
+	 * {@link #createRoleLogger(Class, KernelTimeManager, Address, String)} and
+	 * {@link #createGroupLogger(Class, KernelTimeManager, Address)} are
+	 * {@link SharedEntityLogger}s. They are not registered in the {@link LogManager};
+	 * and they are forwarding the log records to one logger per
+	 * type of entity. The records are formatted and output by an
+	 * {@link AsynchronousLogHandler}.
+	 * 
+	 * @return <code>true</code> if the shared loggers are enabled, otherwise <code>false</code>
+	 * @since 1.1
+	 */
+	public static boolean isSharedLoggerEnable() {
+		return isSharedLoggerEnabled.get();
+	}
+	
+	/** Set if the agents, roles and groups are using lightweight
+	 * loggers in place of dedicated loggers.
+	 * <p>
+	 * This flag has only effect on the loggers created after its change.
+	 * 
+	 * @param enable is <code>true</code> to enable, otherwise <code>false</code>
+	 * @see #isSharedLoggerEnable()
+	 * @since 1.1
+	 */
+	public static void setSharedLoggerEnable(boolean enable) {
+		isSharedLoggerEnabled.set(enable);
+	}
+	
+	/** Replies the asynchronous handler used by the shared loggers.
+	 * 
+	 * @return the handler.
+	 */
+	private static AsynchronousLogHandler getSharedHandler() {
+		synchronized(LoggerUtil.class) {
+			if (sharedHandler==null) {
+				Class<? extends Handler> handlerType = getHandlerType();
+				Handler handler;
+				try {
+					handler = handlerType.newInstance();
+				}
+				catch (Throwable _) {
+					handler = new ConsoleHandler();
+				}
+				handler.setFormatter(new JanusEntityFormatter());
+				sharedHandler = new AsynchronousLogHandler(handler);
+			}
+			return sharedHandler;
+		}
+	}
+	
+	/** Replies the logger shared by all the entities of the given type.
+	 * 
+	 * @param type is the type of the logger owners.
+	 * @return the shared logger.
+	 */
+	private static Logger getSharedLogger(Class<?> type) {
+		String name = type.getName();
+		Logger logger = sharedLoggers.get(name);
+		if (logger==null) {
+			loadDefaultConfiguration(false);
+			logger = Logger.getLogger(name);
+			AsynchronousLogHandler handler = getSharedHandler();
+			synchronized(logger) {
+				// The handlers configured by the user are kept.
+				boolean found = false;
+				for(Handler h : logger.getHandlers()) {
+					if (h==handler) found = true;
+				}
+				if (!found) {
+					logger.addHandler(handler);
+				}
+			}
+			logger.setUseParentHandlers(false);
+			sharedLoggers.put(name, logger);
+		}
+		return logger;
+	}
+	
+	/** Create a lightweight logger for an entity.
+	 * 
+	 * @param type is the type of the logger owner.
+	 * @param timeManager is the current time manager.
+	 * @param address is the address of the entity.
+	 * @param roleName is the name of the played role, or <code>null</code>.
+	 * @param formatter is the formatter to use.
+	 * @return a logger.
+	 */
+	private static Logger createSharedLogger(Class<?> type, KernelTimeManager timeManager, Address address, String roleName, AbstractJanusFormatter formatter) {
+		assert(type!=null);
+		assert(formatter!=null);
+		if (isLoggingEnabled.get()) {
+			return new SharedEntityLogger(getSharedLogger(type), timeManager, address, roleName, formatter);
+		}
+		return BlackHoleLogger.SINGLETON;
+	}
+
 	/** Create a logger.
 	 * 
 	 * @param type is the type of the logger owner.
@@ -177,6 +281,10 @@ public class LoggerUtil {
 	 * @return a logger.
 	 */
 	public static Logger createAgentLogger(Class<?> type, KernelTimeManager timeManager, Address address) {
+		if (isSharedLoggerEnabled.get()) {
+			return createSharedLogger(type, timeManager, address, null,
+					new JanusAgentFormatter(timeManager, address));
+		}
 		return createLogger(type, new JanusAgentFormatter(timeManager, address));
 	}
 	
@@ -200,6 +308,10 @@ public class LoggerUtil {
 	 * @return a logger.
 	 */
 	public static Logger createRoleLogger(Class<?> type, KernelTimeManager timeManager, Address address, String roleName) {
+		if (isSharedLoggerEnabled.get()) {
+			return createSharedLogger(type, timeManager, address, roleName,
+					new JanusRoleFormatter(timeManager, address, roleName));
+		}
 		return createLogger(type, new JanusRoleFormatter(timeManager, address, roleName));
 	}
 
@@ -223,6 +335,10 @@ public class LoggerUtil {
 	 */
 	public static Logger createGroupLogger(Class<?> type, KernelTimeManager timeManager, Address address) {
 		assert(type!=null);
+		if (isSharedLoggerEnabled.get()) {
+			return createSharedLogger(type, timeManager, address, null,
+					new JanusGroupFormatter(timeManager, type.getName(), address));
+		}
 		return createLogger(type, new JanusGroupFormatter(timeManager, type.getName(), address));
 	}
 
@@ -318,6 +434,9 @@ public class LoggerUtil {
 				}
 				logger.removeHandler(oldHandler);
 			}
+			if (formatter==null && logger instanceof SharedEntityLogger) {
+				formatter = ((SharedEntityLogger)logger).getFormatter();
+			}
 			if (formatter!=null) {
 				handler.setFormatter(formatter);
 			}
@@ -347,6 +466,9 @@ public class LoggerUtil {
 				}
 				logger.removeHandler(oldHandler);
 			}
+			if (formatter==null && logger instanceof SharedEntityLogger) {
+				formatter = ((SharedEntityLogger)logger).getFormatter();
+			}
 			Handler handler;
 			if (formatter!=null) {
 				handler = new StreamHandler(stream, formatter);
@@ -0,0 +1,178 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.logger;
+
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.janusproject.kernel.address.Address;
+import org.janusproject.kernel.time.KernelTimeManager;
+
+/**
+ * Lightweight logger dedicated to one Janus entity.
+ * <p>
+ * This logger is not registered in the {@link java.util.logging.LogManager}.
+ * It is attaching the address of the entity and the name of the played
+ * role to each record as structured fields (see {@link JanusLogRecord}),
+ * and forwards the records to a logger which is shared by all the entities
+ * of the same type.
+ * <p>
+ * If handlers are directly added to this logger, the records are
+ * given to them. The records are also forwarded to the shared logger
+ * when {@link #getUseParentHandlers()} is <code>true</code>.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class SharedEntityLogger
+extends Logger {
+
+	private final Logger sharedLogger;
+	private final KernelTimeManager timeManager;
+	private final Address entity;
+	private final String roleName;
+	private final AbstractJanusFormatter formatter;
+	private volatile Level level = null;
+
+	/**
+	 * @param sharedLogger is the logger shared by all the entities of the same type.
+	 * @param timeManager is the current time manager.
+	 * @param entity is the address of the entity.
+	 * @param roleName is the name of the played role, or <code>null</code>.
+	 * @param formatter is the formatter dedicated to the entity.
+	 */
+	SharedEntityLogger(Logger sharedLogger, KernelTimeManager timeManager, Address entity, String roleName, AbstractJanusFormatter formatter) {
+		super(sharedLogger.getName(), null);
+		assert(timeManager!=null);
+		assert(formatter!=null);
+		this.sharedLogger = sharedLogger;
+		this.timeManager = timeManager;
+		this.entity = entity;
+		this.roleName = roleName;
+		this.formatter = formatter;
+		super.setUseParentHandlers(true);
+		super.setLevel(Level.ALL);
+	}
+
+	/** Replies the logger shared by all the entities of the same type.
+	 * 
+	 * @return the shared logger.
+	 */
+	public Logger getSharedLogger() {
+		return this.sharedLogger;
+	}
+
+	/** Replies the address of the entity.
+	 * 
+	 * @return the address of the entity.
+	 */
+	public Address getEntity() {
+		return this.entity;
+	}
+
+	/** Replies the name of the played role.
+	 * 
+	 * @return the name of the role, or <code>null</code>.
+	 */
+	public String getRoleName() {
+		return this.roleName;
+	}
+
+	/** Replies the formatter dedicated to the entity.
+	 * 
+	 * @return the formatter.
+	 */
+	AbstractJanusFormatter getFormatter() {
+		return this.formatter;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setLevel(Level newLevel) throws SecurityException {
+		// The level of the super class is used by the convenience
+		// methods of some JREs without calling isLoggable().
+		// When the level is inherited from the shared logger, the filtering
+		// is done by log(LogRecord).
+		super.setLevel(newLevel==null ? Level.ALL : newLevel);
+		this.level = newLevel;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Level getLevel() {
+		return this.level;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isLoggable(Level level) {
+		Level l = this.level;
+		if (l!=null) {
+			return l!=Level.OFF && level.intValue()>=l.intValue();
+		}
+		return this.sharedLogger.isLoggable(level);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Logger getParent() {
+		return this.sharedLogger;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void log(LogRecord record) {
+		if (!isLoggable(record.getLevel())) return;
+		JanusLogRecord janusRecord;
+		if (record instanceof JanusLogRecord) {
+			janusRecord = (JanusLogRecord)record;
+		}
+		else {
+			janusRecord = new JanusLogRecord(record, this.timeManager, this.entity, this.roleName, this.formatter);
+		}
+		Handler[] handlers = getHandlers();
+		if (handlers.length>0) {
+			for(Handler handler : handlers) {
+				handler.publish(janusRecord);
+			}
+			if (!getUseParentHandlers()) return;
+		}
+		for(Handler handler : this.sharedLogger.getHandlers()) {
+			handler.publish(janusRecord);
+		}
+	}
+
+}
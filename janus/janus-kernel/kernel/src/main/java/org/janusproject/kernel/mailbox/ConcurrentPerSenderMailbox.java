@@ -0,0 +1,587 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.mailbox;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.janusproject.kernel.message.CreationDateMessageComparator;
+import org.janusproject.kernel.message.Message;
+import org.janusproject.kernel.util.autoremove.AutoremoveIterator;
+import org.janusproject.kernel.util.selector.AutoremoveSelectorIterator;
+import org.janusproject.kernel.util.selector.Selector;
+import org.janusproject.kernel.util.selector.SelectorIterator;
+
+/**
+ * This class provides a thread-safe implementation of a {@link Mailbox}
+ * that is storing the messages in a queue per sender, and which is
+ * replying them in a fair round-robin order over the senders.
+ * <p>
+ * Contrary to {@link PerSenderMailbox}, all the messages of a sender
+ * are kept, in their arrival order. The queue of each sender is a
+ * non-blocking queue, and the senders having pending messages are
+ * stored in a non-blocking ring: the additions do not take any lock,
+ * even when they are concurrently done by several threads.
+ * Each invocation of {@link #removeFirst()} replies the
+ * oldest message of the sender at the head of the ring, and
+ * moves this sender to the tail of the ring. A sender which is
+ * sending many messages cannot starve the other senders.
+ * The queue of a sender is removed when all its messages
+ * were consumed, so that the senders which are not sending
+ * anymore are not kept by this mailbox.
+ * <p>
+ * Because this mailbox is thread-safe, it does not need to be
+ * buffered.
+ * <p>
+ * All the mailbox implementations must ensure that, when a message should be added,
+ * the comparator is invoked as: <code>comparator(newMessage, messageAlreadyInMailbox)</code>.
+ * It means that the first parameter given to the comparator is always the
+ * parameter of the addition function.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class ConcurrentPerSenderMailbox extends AbstractMailbox {
+
+	private static final long serialVersionUID = -3150914446573001917L;
+
+	/** Key used for the messages without sender.
+	 */
+	private static final String NO_SENDER = "?"; //$NON-NLS-1$
+
+	/** Queues of the senders.
+	 */
+	private final ConcurrentMap<Object,SenderQueue> queues = new ConcurrentHashMap<Object,SenderQueue>();
+
+	/** Ring of the senders which have pending messages.
+	 */
+	private final Queue<SenderQueue> ring = new ConcurrentLinkedQueue<SenderQueue>();
+
+	private final AtomicInteger size = new AtomicInteger();
+
+	/**
+	 */
+	public ConcurrentPerSenderMailbox() {
+		//
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The messages of a sender are replied in their arrival
+	 * order; the comparator is not used to sort them.
+	 */
+	@Override
+	public final Comparator<? super Message> comparator() {
+		return CreationDateMessageComparator.SINGLETON;
+	}
+
+	private SenderQueue getQueue(Object key) {
+		SenderQueue queue = this.queues.get(key);
+		SenderQueue newQueue;
+		while (queue==null || queue.state.get()==SenderQueue.REMOVED) {
+			newQueue = new SenderQueue(key);
+			if (queue==null) {
+				queue = this.queues.putIfAbsent(key, newQueue);
+				if (queue==null) queue = newQueue;
+			}
+			else if (this.queues.replace(key, queue, newQueue)) {
+				queue = newQueue;
+			}
+			else {
+				queue = this.queues.get(key);
+			}
+		}
+		return queue;
+	}
+
+	/** Put the given queue in the ring if it is not inside
+	 * and it has pending messages.
+	 * 
+	 * @param queue
+	 * @return <code>false</code> if the queue was removed from this
+	 * mailbox, <code>true</code> otherwise.
+	 */
+	private boolean activate(SenderQueue queue) {
+		int state;
+		while (!queue.messages.isEmpty()) {
+			state = queue.state.get();
+			if (state==SenderQueue.REMOVED) return false;
+			if (state==SenderQueue.ACTIVE) return true;
+			if (queue.state.compareAndSet(SenderQueue.INACTIVE, SenderQueue.ACTIVE)) {
+				this.ring.offer(queue);
+				return true;
+			}
+		}
+		return true;
+	}
+
+	/** Invoked when the given queue was taken from the ring
+	 * and it should not be put back at its tail.
+	 * The queue is put back in the ring if it has received
+	 * a message in the meantime, or removed from this mailbox
+	 * if it is empty.
+	 * 
+	 * @param queue
+	 */
+	private void deactivate(SenderQueue queue) {
+		queue.state.set(SenderQueue.INACTIVE);
+		activate(queue);
+		// A concurrent addition either activates the queue
+		// before this removal, or sees the removed state
+		// and puts its message in a new queue.
+		if (queue.messages.isEmpty()
+			&& queue.state.compareAndSet(SenderQueue.INACTIVE, SenderQueue.REMOVED)) {
+			this.queues.remove(queue.sender, queue);
+		}
+	}
+
+	/** Remove the given queue from the ring and from this
+	 * mailbox if it has no more message.
+	 * 
+	 * @param queue
+	 */
+	private void release(SenderQueue queue) {
+		// Only the thread which has taken the queue from the ring may deactivate it.
+		if (queue.messages.isEmpty() && this.ring.remove(queue)) {
+			deactivate(queue);
+		}
+	}
+
+	/** Replies the number of senders for which a queue is
+	 * stored in this mailbox.
+	 * 
+	 * @return the number of sender queues.
+	 */
+	int getSenderCount() {
+		return this.queues.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean add(Message msg) {
+		assert(msg!=null);
+		Object key = msg.getSender()==null ? NO_SENDER : msg.getSender();
+		SenderQueue queue;
+		while (true) {
+			queue = getQueue(key);
+			queue.messages.offer(msg);
+			this.size.incrementAndGet();
+			if (activate(queue)) return true;
+			// The queue was removed before the message was added.
+			if (!queue.messages.remove(msg)) return true;
+			this.size.decrementAndGet();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void synchronize(Mailbox mailbox) {
+		assert(mailbox!=null);
+		clear();
+		for(Message msg : mailbox) {
+			add(msg);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		SenderQueue queue;
+		while ((queue = this.ring.poll())!=null) {
+			while (queue.messages.poll()!=null) {
+				this.size.decrementAndGet();
+			}
+			deactivate(queue);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(Message msg) {
+		assert(msg!=null);
+		SenderQueue queue = this.queues.get(msg.getSender()==null ? NO_SENDER : msg.getSender());
+		return queue!=null && queue.messages.contains(msg);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(Selector<? extends Message> selector) {
+		assert(selector!=null);
+		for(SenderQueue queue : this.ring) {
+			for(Message msg : queue.messages) {
+				if (selector.isSelected(msg)) return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Message get(int index) {
+		if (index<0) return null;
+		int i = 0;
+		Iterator<Message> iterator = new MessageIterator();
+		while (iterator.hasNext()) {
+			Message msg = iterator.next();
+			if (i==index) return msg;
+			++i;
+		}
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Message getFirst() {
+		Message msg;
+		for(SenderQueue queue : this.ring) {
+			msg = queue.messages.peek();
+			if (msg!=null) return msg;
+		}
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T extends Message> T getFirst(Selector<T> selector) {
+		assert(selector!=null);
+		for(SenderQueue queue : this.ring) {
+			for(Message msg : queue.messages) {
+				if (selector.isSelected(msg))
+					return selector.getSupportedClass().cast(msg);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isEmpty() {
+		return this.size.get()<=0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return Math.max(0, this.size.get());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean remove(Message msg) {
+		assert(msg!=null);
+		SenderQueue queue = this.queues.get(msg.getSender()==null ? NO_SENDER : msg.getSender());
+		if (queue!=null && queue.messages.remove(msg)) {
+			this.size.decrementAndGet();
+			release(queue);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Message remove(int index) {
+		if (index<0) return null;
+		int i = 0;
+		Iterator<Message> iterator = new MessageIterator();
+		while (iterator.hasNext()) {
+			Message msg = iterator.next();
+			if (i==index) {
+				iterator.remove();
+				return msg;
+			}
+			++i;
+		}
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean removeAll(Selector<? extends Message> selector) {
+		assert(selector!=null);
+		boolean changed = false;
+		Iterator<Message> iterator = new MessageIterator();
+		while (iterator.hasNext()) {
+			if (selector.isSelected(iterator.next())) {
+				iterator.remove();
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The replied message is the oldest message of the sender
+	 * at the head of the ring of the senders. This sender is
+	 * moved to the tail of the ring.
+	 */
+	@Override
+	public Message removeFirst() {
+		SenderQueue queue;
+		Message msg;
+		while ((queue = this.ring.poll())!=null) {
+			msg = queue.messages.poll();
+			if (msg!=null && !queue.messages.isEmpty()) {
+				// Round-robin: the sender goes back to the tail of the ring.
+				this.ring.offer(queue);
+			}
+			else {
+				// The queue may have received a message since the test;
+				// in this case the sender is put back in the ring.
+				deactivate(queue);
+			}
+			if (msg!=null) {
+				this.size.decrementAndGet();
+				return msg;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T extends Message> T removeFirst(Selector<T> selector) {
+		assert(selector!=null);
+		Iterator<Message> iterator = new MessageIterator();
+		while (iterator.hasNext()) {
+			Message msg = iterator.next();
+			if (selector.isSelected(msg)) {
+				iterator.remove();
+				return selector.getSupportedClass().cast(msg);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Message> iterator(boolean consumeMails) {
+		if (consumeMails)
+			return new AutoremoveIterator<Message>(new MessageIterator());
+		return new MessageIterator();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T extends Message> Iterator<T> iterator(Selector<T> selector, boolean consumeMails) {
+		if (consumeMails)
+			return new AutoremoveSelectorIterator<T>(
+					selector, new MessageIterator());
+		return new SelectorIterator<T>(
+				selector, new MessageIterator());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder();
+		b.append('[');
+		Iterator<Message> iterator = new MessageIterator();
+		while (iterator.hasNext()) {
+			b.append(iterator.next());
+			if (iterator.hasNext()) b.append(", "); //$NON-NLS-1$
+		}
+		b.append(']');
+		return b.toString();
+	}
+
+	/**
+	 * Queue of the messages of a sender.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class SenderQueue implements Serializable {
+
+		private static final long serialVersionUID = 5539270939046734829L;
+
+		/** The queue is not inside the ring.
+		 */
+		public static final int INACTIVE = 0;
+
+		/** The queue is inside the ring.
+		 */
+		public static final int ACTIVE = 1;
+
+		/** The queue was removed from the mailbox; no message
+		 * may be added inside.
+		 */
+		public static final int REMOVED = 2;
+
+		/** Key of the sender in the map of the queues.
+		 */
+		public final Object sender;
+
+		/** Messages in arrival order.
+		 */
+		public final Queue<Message> messages = new ConcurrentLinkedQueue<Message>();
+
+		/** State of this queue.
+		 */
+		public final AtomicInteger state = new AtomicInteger(INACTIVE);
+
+		/**
+		 * @param sender is the key of the sender in the map of the queues.
+		 */
+		public SenderQueue(Object sender) {
+			this.sender = sender;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String toString() {
+			return this.messages.toString();
+		}
+
+	}
+
+	/**
+	 * Iterator on the messages, sender by sender in the ring order.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private class MessageIterator implements Iterator<Message> {
+
+		private final Iterator<SenderQueue> senders;
+		private SenderQueue queue = null;
+		private Iterator<Message> messages = null;
+		private Message next = null;
+		private SenderQueue lastQueue = null;
+		private Message last = null;
+
+		/**
+		 */
+		@SuppressWarnings("synthetic-access")
+		public MessageIterator() {
+			this.senders = ConcurrentPerSenderMailbox.this.ring.iterator();
+			searchNext();
+		}
+
+		private void searchNext() {
+			this.next = null;
+			while (this.next==null) {
+				if (this.messages!=null && this.messages.hasNext()) {
+					this.next = this.messages.next();
+				}
+				else if (this.senders.hasNext()) {
+					this.queue = this.senders.next();
+					this.messages = this.queue.messages.iterator();
+				}
+				else {
+					return;
+				}
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean hasNext() {
+			return this.next!=null;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Message next() {
+			if (this.next==null) throw new NoSuchElementException();
+			this.last = this.next;
+			this.lastQueue = this.queue;
+			searchNext();
+			return this.last;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public void remove() {
+			if (this.last==null) throw new IllegalStateException();
+			if (this.lastQueue.messages.remove(this.last)) {
+				ConcurrentPerSenderMailbox.this.size.decrementAndGet();
+				release(this.lastQueue);
+			}
+			this.last = null;
+			this.lastQueue = null;
+		}
+
+	}
+
+}
@@ -0,0 +1,238 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.mailbox;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.janusproject.kernel.message.Message;
+import org.janusproject.kernel.metrics.Counter;
+import org.janusproject.kernel.metrics.Histogram;
+import org.janusproject.kernel.metrics.KernelMetrics;
+
+/**
+ * Buffer of the messages which are posted by a thread and
+ * delivered later in their posting order.
+ * <p>
+ * When a buffer is attached to the current thread with
+ * {@link #setCurrent(DeliveryBuffer)}, the messages which
+ * are sent by this thread to local agents or roles are
+ * stored in the buffer instead of being added to the
+ * mailboxes of the receivers. They are added to the mailboxes
+ * when {@link #flush()} is invoked. It permits to the
+ * simulation schedulers to deliver the messages at the end
+ * of a step, in an order which does not depend on the
+ * scheduling of the threads.
+ * <p>
+ * A delivery may also be deferred with {@link #post(Runnable)}, eg.
+ * when the receivers must be resolved at the end of the step.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class DeliveryBuffer {
+
+	private static final ThreadLocal<DeliveryBuffer> CURRENT = new ThreadLocal<DeliveryBuffer>();
+
+	private static final Counter DELIVERED_MESSAGES = KernelMetrics.getCounter(KernelMetrics.DELIVERED_MESSAGES);
+	private static final Histogram MAILBOX_DEPTH = KernelMetrics.getHistogram(KernelMetrics.MAILBOX_DEPTH);
+
+	// For each buffered delivery, the mailbox and the message, or the
+	// deferred delivery when the mailbox is null.
+	private final List<Mailbox> mailboxes = new ArrayList<Mailbox>();
+	private final List<Message> messages = new ArrayList<Message>();
+	private final List<Runnable> deliveries = new ArrayList<Runnable>();
+	/** Indexes of the messages for which the delivery is recorded in the metrics.
+	 */
+	private final BitSet recorded = new BitSet();
+
+	/**
+	 */
+	public DeliveryBuffer() {
+		//
+	}
+
+	/** Replies the buffer attached to the current thread.
+	 * 
+	 * @return the buffer, or <code>null</code> if the messages
+	 * are immediately delivered.
+	 */
+	public static DeliveryBuffer getCurrent() {
+		return CURRENT.get();
+	}
+
+	/** Attach the given buffer to the current thread.
+	 * 
+	 * @param buffer is the buffer, or <code>null</code> to deliver
+	 * the messages immediately.
+	 */
+	public static void setCurrent(DeliveryBuffer buffer) {
+		if (buffer==null) CURRENT.remove();
+		else CURRENT.set(buffer);
+	}
+
+	/** Post the given message in the buffer attached to the
+	 * current thread.
+	 * 
+	 * @param mailbox is the mailbox of the receiver.
+	 * @param message is the message to deliver.
+	 * @return <code>true</code> if the message was buffered,
+	 * <code>false</code> if no buffer is attached to the current
+	 * thread and the message must be delivered by the caller.
+	 */
+	public static boolean post(Mailbox mailbox, Message message) {
+		return post(mailbox, message, false);
+	}
+
+	/** Post the given message in the buffer attached to the
+	 * current thread.
+	 * 
+	 * @param mailbox is the mailbox of the receiver.
+	 * @param message is the message to deliver.
+	 * @param recordDelivery indicates if the delivery is recorded in
+	 * the {@link KernelMetrics#DELIVERED_MESSAGES} and
+	 * {@link KernelMetrics#MAILBOX_DEPTH} metrics when the message
+	 * is added to the mailbox.
+	 * @return <code>true</code> if the message was buffered,
+	 * <code>false</code> if no buffer is attached to the current
+	 * thread and the message must be delivered by the caller.
+	 */
+	public static boolean post(Mailbox mailbox, Message message, boolean recordDelivery) {
+		DeliveryBuffer buffer = CURRENT.get();
+		if (buffer==null) return false;
+		buffer.add(mailbox, message, recordDelivery);
+		return true;
+	}
+
+	/** Post the given delivery in the buffer attached to the
+	 * current thread. The delivery is run by {@link #flush()},
+	 * in the posting order of the messages and of the deliveries.
+	 * 
+	 * @param delivery is the delivery to run.
+	 * @return <code>true</code> if the delivery was buffered,
+	 * <code>false</code> if no buffer is attached to the current
+	 * thread and the delivery must be run by the caller.
+	 */
+	public static boolean post(Runnable delivery) {
+		DeliveryBuffer buffer = CURRENT.get();
+		if (buffer==null) return false;
+		buffer.add(delivery);
+		return true;
+	}
+
+	/** Add a deferred delivery in this buffer.
+	 * 
+	 * @param delivery is the delivery to run.
+	 */
+	public synchronized void add(Runnable delivery) {
+		assert(delivery!=null);
+		this.mailboxes.add(null);
+		this.messages.add(null);
+		this.deliveries.add(delivery);
+	}
+
+	/** Add a message in this buffer.
+	 * 
+	 * @param mailbox is the mailbox of the receiver.
+	 * @param message is the message to deliver.
+	 */
+	public void add(Mailbox mailbox, Message message) {
+		add(mailbox, message, false);
+	}
+
+	/** Add a message in this buffer.
+	 * 
+	 * @param mailbox is the mailbox of the receiver.
+	 * @param message is the message to deliver.
+	 * @param recordDelivery indicates if the delivery is recorded in
+	 * the metrics when the message is added to the mailbox.
+	 */
+	public synchronized void add(Mailbox mailbox, Message message, boolean recordDelivery) {
+		assert(mailbox!=null);
+		assert(message!=null);
+		if (recordDelivery) {
+			this.recorded.set(this.messages.size());
+		}
+		this.mailboxes.add(mailbox);
+		this.messages.add(message);
+		this.deliveries.add(null);
+	}
+
+	/** Replies the number of buffered messages and deliveries.
+	 * 
+	 * @return the number of buffered messages and deliveries.
+	 */
+	public synchronized int size() {
+		return this.messages.size();
+	}
+
+	/** Replies if no message is buffered.
+	 * 
+	 * @return <code>true</code> if no message is buffered,
+	 * otherwise <code>false</code>.
+	 */
+	public synchronized boolean isEmpty() {
+		return this.messages.isEmpty();
+	}
+
+	/** Deliver the buffered messages and run the deferred deliveries
+	 * in their posting order, and clear this buffer.
+	 * 
+	 * @return the number of delivered messages and deliveries.
+	 */
+	public int flush() {
+		Mailbox[] mboxes;
+		Message[] msgs;
+		Runnable[] runs;
+		BitSet rec;
+		synchronized(this) {
+			mboxes = this.mailboxes.toArray(new Mailbox[this.mailboxes.size()]);
+			msgs = this.messages.toArray(new Message[this.messages.size()]);
+			runs = this.deliveries.toArray(new Runnable[this.deliveries.size()]);
+			rec = (BitSet)this.recorded.clone();
+			this.mailboxes.clear();
+			this.messages.clear();
+			this.deliveries.clear();
+			this.recorded.clear();
+		}
+		// The deliveries are run outside the lock because
+		// they may lock the receivers.
+		boolean metrics = KernelMetrics.isMetricsEnable();
+		for(int i=0; i<mboxes.length; ++i) {
+			if (mboxes[i]==null) {
+				runs[i].run();
+			}
+			else {
+				mboxes[i].add(msgs[i]);
+				if (metrics && rec.get(i)) {
+					DELIVERED_MESSAGES.increment();
+					MAILBOX_DEPTH.record(mboxes[i].size());
+				}
+			}
+		}
+		return mboxes.length;
+	}
+
+}
@@ -0,0 +1,557 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.mailbox;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.janusproject.kernel.message.CreationDateMessageComparator;
+import org.janusproject.kernel.message.Message;
+import org.janusproject.kernel.util.autoremove.AutoremoveIterator;
+import org.janusproject.kernel.util.directaccess.ListUtil;
+import org.janusproject.kernel.util.selector.AutoremoveSelectorIterator;
+import org.janusproject.kernel.util.selector.Selector;
+import org.janusproject.kernel.util.selector.SelectorIterator;
+import org.janusproject.kernel.util.selector.TypeSelector;
+
+/**
+ * This class provides an implementation of a {@link Mailbox}
+ * that is storing the messages in one queue per concrete type of message.
+ * <p>
+ * The functions which are invoked with a {@link TypeSelector},
+ * including {@link #iterator(Class)} and {@link #iterable(Class)},
+ * only iterate on the queues of the types which are matching
+ * the selector. The queues are sorted with the comparator of
+ * the mailbox, and merged when the messages of several types are
+ * replied. This mailbox is adapted to roles that are
+ * retreiving their messages type by type.
+ * <p>
+ * This implementation is not thread-safe. However, the messages
+ * may be added while the types of the messages are tested with
+ * {@link #hasMessage(Class)} or {@link #contains(Selector)}.
+ * <p>
+ * All the mailbox implementations must ensure that, when a message should be added,
+ * the comparator is invoked as: <code>comparator(newMessage, messageAlreadyInMailbox)</code>.
+ * It means that the first parameter given to the comparator is always the
+ * parameter of the addition function.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class PerTypeMailbox extends AbstractMailbox {
+
+	private static final long serialVersionUID = -2203785104358236316L;
+
+	/** Queues of messages, per concrete type of message.
+	 */
+	protected final Map<Class<? extends Message>,List<Message>> inbox;
+
+	private final Comparator<? super Message> comparator;
+
+	/** Queues which are matching a type, lazily built.
+	 * This map is never modified once published: it is
+	 * copied when a type is added, and reset when a queue
+	 * is created.
+	 */
+	private transient volatile Map<Class<?>,List<List<Message>>> typeIndex = null;
+
+	/**
+	 * Create mailbox manager that sorts the message by their creation date.
+	 */
+	public PerTypeMailbox() {
+		this(null);
+	}
+
+	/**
+	 * Create mailbox manager.
+	 * 
+	 * @param comparator is the comparator that is used to sort the messages in the mailbox.
+	 */
+	public PerTypeMailbox(Comparator<? super Message> comparator) {
+		if (comparator==null) this.comparator = CreationDateMessageComparator.SINGLETON;
+		else this.comparator = comparator;
+		this.inbox = new LinkedHashMap<Class<? extends Message>,List<Message>>();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final Comparator<? super Message> comparator() {
+		return this.comparator;
+	}
+
+	/** Replies the queue for the given concrete type.
+	 * 
+	 * @param type
+	 * @param create indicates if the queue must be created when it does not exist.
+	 * @return the queue, or <code>null</code>.
+	 */
+	private List<Message> getQueue(Class<? extends Message> type, boolean create) {
+		List<Message> queue = this.inbox.get(type);
+		if (queue==null && create) {
+			queue = new LinkedList<Message>();
+			this.inbox.put(type, queue);
+			// A new type may match the previously indexed types
+			this.typeIndex = null;
+		}
+		return queue;
+	}
+
+	/** Replies the queues of the messages which are instances of the given type.
+	 * 
+	 * @param type
+	 * @return the queues.
+	 */
+	private List<List<Message>> getQueues(Class<?> type) {
+		Map<Class<?>,List<List<Message>>> index = this.typeIndex;
+		List<List<Message>> queues = (index==null) ? null : index.get(type);
+		if (queues==null) {
+			synchronized(this.inbox) {
+				index = this.typeIndex;
+				queues = (index==null) ? null : index.get(type);
+				if (queues==null) {
+					queues = new ArrayList<List<Message>>();
+					for(Map.Entry<Class<? extends Message>,List<Message>> entry : this.inbox.entrySet()) {
+						if (type.isAssignableFrom(entry.getKey())) {
+							queues.add(entry.getValue());
+						}
+					}
+					Map<Class<?>,List<List<Message>>> newIndex = (index==null)
+							? new HashMap<Class<?>,List<List<Message>>>()
+							: new HashMap<Class<?>,List<List<Message>>>(index);
+					newIndex.put(type, queues);
+					this.typeIndex = newIndex;
+				}
+			}
+		}
+		return queues;
+	}
+
+	/** Replies the queues which may contain messages selected by the given selector.
+	 * 
+	 * @param selector
+	 * @return the queues.
+	 */
+	private Collection<List<Message>> getQueues(Selector<?> selector) {
+		if (selector instanceof TypeSelector<?>) {
+			return getQueues(selector.getSupportedClass());
+		}
+		return this.inbox.values();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean add(Message msg) {
+		assert(msg!=null);
+		synchronized(this.inbox) {
+			return ListUtil.dichotomicAdd(getQueue(msg.getClass(), true), this.comparator, msg, true);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void synchronize(Mailbox mailbox) {
+		assert(mailbox!=null);
+		clear();
+		synchronized(this.inbox) {
+			for(Message msg : mailbox) {
+				ListUtil.dichotomicAdd(getQueue(msg.getClass(), true), this.comparator, msg, true);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		for(List<Message> queue : this.inbox.values()) {
+			queue.clear();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(Message msg) {
+		assert(msg!=null);
+		List<Message> queue = getQueue(msg.getClass(), false);
+		return queue!=null && queue.contains(msg);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(Selector<? extends Message> selector) {
+		assert(selector!=null);
+		if (selector instanceof TypeSelector<?>) {
+			return hasMessage(selector.getSupportedClass());
+		}
+		for(List<Message> queue : this.inbox.values()) {
+			for(Message msg : queue) {
+				if (selector.isSelected(msg)) return true;
+			}
+		}
+		return false;
+	}
+
+	/** Replies if this mailbox contains a message of the given type.
+	 * <p>
+	 * The cost of this function depends on the number of
+	 * types of messages, not on the number of messages.
+	 * 
+	 * @param type
+	 * @return <code>true</code> if a message of the given type is
+	 * in the mailbox, otherwise <code>false</code>.
+	 */
+	public boolean hasMessage(Class<? extends Message> type) {
+		assert(type!=null);
+		for(List<Message> queue : getQueues(type)) {
+			if (!queue.isEmpty()) return true;
+		}
+		return false;
+	}
+
+	/** Replies the number of messages of the given type.
+	 * 
+	 * @param type
+	 * @return the number of messages of the given type.
+	 */
+	public int size(Class<? extends Message> type) {
+		assert(type!=null);
+		int size = 0;
+		for(List<Message> queue : getQueues(type)) {
+			size += queue.size();
+		}
+		return size;
+	}
+
+	/** Remove and reply all the messages of the given type.
+	 * 
+	 * @param <T> is the type of the messages.
+	 * @param type is the type of the messages.
+	 * @return the messages of the given type, sorted with the comparator of this mailbox.
+	 */
+	public <T extends Message> List<T> drain(Class<T> type) {
+		assert(type!=null);
+		List<T> messages = new ArrayList<T>();
+		synchronized(this.inbox) {
+			Iterator<Message> iterator = new MergeIterator(getQueues(type), this.comparator);
+			while (iterator.hasNext()) {
+				messages.add(type.cast(iterator.next()));
+				iterator.remove();
+			}
+		}
+		return messages;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Message get(int index) {
+		if (index<0) return null;
+		int i = 0;
+		Iterator<Message> iterator = iterator(false);
+		Message msg;
+		while (iterator.hasNext()) {
+			msg = iterator.next();
+			if (i==index) return msg;
+			++i;
+		}
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Message getFirst() {
+		Iterator<Message> iterator = iterator(false);
+		if (iterator.hasNext()) return iterator.next();
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T extends Message> T getFirst(Selector<T> selector) {
+		assert(selector!=null);
+		Iterator<T> iterator = iterator(selector, false);
+		if (iterator.hasNext()) return iterator.next();
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isEmpty() {
+		for(List<Message> queue : this.inbox.values()) {
+			if (!queue.isEmpty()) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean remove(Message msg) {
+		assert(msg!=null);
+		synchronized(this.inbox) {
+			List<Message> queue = getQueue(msg.getClass(), false);
+			return queue!=null && queue.remove(msg);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Message remove(int index) {
+		if (index<0) return null;
+		int i = 0;
+		Iterator<Message> iterator = iterator(false);
+		Message msg;
+		while (iterator.hasNext()) {
+			msg = iterator.next();
+			if (i==index) {
+				iterator.remove();
+				return msg;
+			}
+			++i;
+		}
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean removeAll(Selector<? extends Message> selector) {
+		assert(selector!=null);
+		boolean changed = false;
+		if (selector instanceof TypeSelector<?>) {
+			for(List<Message> queue : getQueues(selector.getSupportedClass())) {
+				if (!queue.isEmpty()) {
+					queue.clear();
+					changed = true;
+				}
+			}
+		}
+		else {
+			Iterator<Message> iterator;
+			for(List<Message> queue : this.inbox.values()) {
+				iterator = queue.iterator();
+				while (iterator.hasNext()) {
+					if (selector.isSelected(iterator.next())) {
+						iterator.remove();
+						changed = true;
+					}
+				}
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Message removeFirst() {
+		Iterator<Message> iterator = iterator(false);
+		if (!iterator.hasNext()) return null;
+		Message msg = iterator.next();
+		iterator.remove();
+		return msg;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T extends Message> T removeFirst(Selector<T> selector) {
+		assert(selector!=null);
+		Iterator<Message> iterator = new MergeIterator(getQueues(selector), this.comparator);
+		Message msg;
+		while (iterator.hasNext()) {
+			msg = iterator.next();
+			if (selector.isSelected(msg)) {
+				iterator.remove();
+				return selector.getSupportedClass().cast(msg);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		int size = 0;
+		for(List<Message> queue : this.inbox.values()) {
+			size += queue.size();
+		}
+		return size;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Message> iterator(boolean consumeMails) {
+		Iterator<Message> iterator = new MergeIterator(this.inbox.values(), this.comparator);
+		if (consumeMails)
+			return new AutoremoveIterator<Message>(iterator);
+		return iterator;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T extends Message> Iterator<T> iterator(Selector<T> selector, boolean consumeMails) {
+		Iterator<Message> iterator = new MergeIterator(getQueues(selector), this.comparator);
+		if (consumeMails)
+			return new AutoremoveSelectorIterator<T>(selector, iterator);
+		return new SelectorIterator<T>(selector, iterator);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return this.inbox.toString();
+	}
+
+	/**
+	 * Iterator which is merging sorted queues.
+	 * <p>
+	 * The queue of the last replied message is not moved
+	 * forward before the next call to {@link #next()},
+	 * so that the replied message may be removed.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class MergeIterator implements Iterator<Message> {
+
+		private final Comparator<? super Message> comparator;
+		private final Iterator<Message>[] iterators;
+		private final Message[] heads;
+		private int last = -1;
+		private boolean removable = false;
+
+		/**
+		 * @param queues
+		 * @param comparator
+		 */
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		public MergeIterator(Collection<List<Message>> queues, Comparator<? super Message> comparator) {
+			this.comparator = comparator;
+			this.iterators = new Iterator[queues.size()];
+			this.heads = new Message[this.iterators.length];
+			int i = 0;
+			for(List<Message> queue : queues) {
+				this.iterators[i] = queue.iterator();
+				this.heads[i] = this.iterators[i].hasNext() ? this.iterators[i].next() : null;
+				++i;
+			}
+		}
+
+		private void moveForward() {
+			if (this.last>=0) {
+				Iterator<Message> iterator = this.iterators[this.last];
+				this.heads[this.last] = iterator.hasNext() ? iterator.next() : null;
+				this.last = -1;
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean hasNext() {
+			for(Message head : this.heads) {
+				if (head!=null) return true;
+			}
+			return this.last>=0 && this.iterators[this.last].hasNext();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Message next() {
+			moveForward();
+			int min = -1;
+			for(int i=0; i<this.heads.length; ++i) {
+				if (this.heads[i]!=null
+					&& (min<0 || this.comparator.compare(this.heads[i], this.heads[min])<0)) {
+					min = i;
+				}
+			}
+			if (min<0) throw new NoSuchElementException();
+			Message msg = this.heads[min];
+			this.heads[min] = null;
+			this.last = min;
+			this.removable = true;
+			return msg;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void remove() {
+			if (!this.removable || this.last<0) throw new IllegalStateException();
+			this.iterators[this.last].remove();
+			this.removable = false;
+		}
+
+	}
+
+}
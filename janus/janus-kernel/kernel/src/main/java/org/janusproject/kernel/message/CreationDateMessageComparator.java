@@ -20,6 +20,7 @@
  */
 package org.janusproject.kernel.message;
 
+import java.io.Serializable;
 import java.util.Comparator;
 import java.util.UUID;
 
@@ -39,7 +40,9 @@ import org.janusproject.kernel.message.Message;
  * @mavenartifactid $ArtifactId$
  */
 public class CreationDateMessageComparator
-implements Comparator<Message> {
+implements Comparator<Message>, Serializable {
+
+	private static final long serialVersionUID = -2114052567024584177L;
 
 	/** Singleton of a message comparator.
 	 * 
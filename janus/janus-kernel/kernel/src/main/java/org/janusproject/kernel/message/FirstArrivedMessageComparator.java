@@ -20,6 +20,7 @@
  */
 package org.janusproject.kernel.message;
 
+import java.io.Serializable;
 import java.util.Comparator;
 import java.util.UUID;
 
@@ -40,7 +41,9 @@ import org.janusproject.kernel.message.Message;
  * @since 0.5
  */
 public class FirstArrivedMessageComparator
-implements Comparator<Message> {
+implements Comparator<Message>, Serializable {
+
+	private static final long serialVersionUID = -2241170800708852859L;
 
 	/** Singleton of a message comparator.
 	 */
@@ -24,6 +24,7 @@ import java.io.Serializable;
 import java.util.UUID;
 
 import org.janusproject.kernel.address.Address;
+import org.janusproject.kernel.util.random.RandomNumber;
 
 /**
  * This class precises the minimal set of attributes required by a message to be send and receive.
@@ -56,7 +57,7 @@ implements Serializable, Cloneable {
 	/**
 	 * Unique Id for the message.
 	 */
-	private final UUID id = UUID.randomUUID();
+	private final UUID id = RandomNumber.randomUUID();
 
 	/**
 	 * Address of the sender entity.
@@ -0,0 +1,117 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter which may be incremented by many threads with a low contention.
+ * <p>
+ * The counter is striped: each thread increments one of several cells,
+ * selected from the identifier of the thread. The cells are padded to
+ * avoid false sharing between the processors. The value of the counter
+ * is the sum of the cells.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class Counter {
+
+	/** Number of longs between two cells, to put each cell
+	 * in its own cache line.
+	 */
+	private static final int PADDING = 8;
+
+	private final String name;
+	private final int mask;
+	private final AtomicLongArray cells;
+
+	/**
+	 * @param name is the name of the counter.
+	 */
+	public Counter(String name) {
+		this.name = name;
+		int stripes = 1;
+		int processors = Runtime.getRuntime().availableProcessors();
+		while (stripes<processors) {
+			stripes <<= 1;
+		}
+		this.mask = stripes - 1;
+		this.cells = new AtomicLongArray(stripes * PADDING);
+	}
+
+	/** Replies the name of this counter.
+	 * 
+	 * @return the name of this counter.
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/** Increment this counter.
+	 */
+	public void increment() {
+		add(1);
+	}
+
+	/** Add the given amount to this counter.
+	 * 
+	 * @param amount
+	 */
+	public void add(long amount) {
+		int cell = ((int)Thread.currentThread().getId()) & this.mask;
+		this.cells.addAndGet(cell * PADDING, amount);
+	}
+
+	/** Replies the value of this counter.
+	 * <p>
+	 * The value is not an atomic snapshot when the counter is
+	 * incremented concurrently.
+	 * 
+	 * @return the value of this counter.
+	 */
+	public long get() {
+		long sum = 0;
+		for(int i=0; i<this.cells.length(); i+=PADDING) {
+			sum += this.cells.get(i);
+		}
+		return sum;
+	}
+
+	/** Reset this counter to zero.
+	 */
+	public void reset() {
+		for(int i=0; i<this.cells.length(); i+=PADDING) {
+			this.cells.set(i, 0);
+		}
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return this.name+"="+get(); //$NON-NLS-1$
+	}
+
+}
@@ -0,0 +1,177 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of positive values, such as latencies.
+ * <p>
+ * The values are counted in buckets with exponential bounds: the
+ * bucket <var>i</var> contains the values in
+ * [2<sup>i-1</sup>;2<sup>i</sup>[. Recording a value is lock-free
+ * and does not allocate; the percentiles are approximated by the
+ * upper bound of the bucket which contains them.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class Histogram {
+
+	private static final int BUCKET_COUNT = 64;
+
+	private final String name;
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final Counter count;
+	private final Counter sum;
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * @param name is the name of the histogram.
+	 */
+	public Histogram(String name) {
+		this.name = name;
+		this.count = new Counter(name);
+		this.sum = new Counter(name);
+	}
+
+	/** Replies the name of this histogram.
+	 * 
+	 * @return the name of this histogram.
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/** Record a value in this histogram.
+	 * The negative values are recorded as zero.
+	 * 
+	 * @param value
+	 */
+	public void record(long value) {
+		long v = (value<0) ? 0 : value;
+		this.buckets.incrementAndGet(BUCKET_COUNT - Long.numberOfLeadingZeros(v));
+		this.count.increment();
+		this.sum.add(v);
+		long m = this.max.get();
+		while (v>m && !this.max.compareAndSet(m, v)) {
+			m = this.max.get();
+		}
+	}
+
+	/** Replies the number of recorded values.
+	 * 
+	 * @return the number of recorded values.
+	 */
+	public long getCount() {
+		return this.count.get();
+	}
+
+	/** Replies the sum of the recorded values.
+	 * 
+	 * @return the sum of the recorded values.
+	 */
+	public long getSum() {
+		return this.sum.get();
+	}
+
+	/** Replies the mean of the recorded values.
+	 * 
+	 * @return the mean of the recorded values, or zero if no value was recorded.
+	 */
+	public double getMean() {
+		long c = getCount();
+		if (c==0) return 0.;
+		return ((double)getSum()) / c;
+	}
+
+	/** Replies the greatest recorded value.
+	 * 
+	 * @return the greatest recorded value.
+	 */
+	public long getMax() {
+		return this.max.get();
+	}
+
+	/** Replies an approximation of the given percentile.
+	 * The replied value is the upper bound of the bucket which
+	 * contains the percentile, bounded by the greatest recorded value.
+	 * 
+	 * @param percentile is a value in [0;1].
+	 * @return the approximated percentile, or zero if no value was recorded.
+	 */
+	public long getPercentile(double percentile) {
+		long total = 0;
+		long[] counts = new long[BUCKET_COUNT];
+		for(int i=0; i<BUCKET_COUNT; ++i) {
+			counts[i] = this.buckets.get(i);
+			total += counts[i];
+		}
+		if (total==0) return 0;
+		long rank = (long)Math.ceil(percentile * total);
+		if (rank<1) rank = 1;
+		long seen = 0;
+		long m = getMax();
+		for(int i=0; i<BUCKET_COUNT; ++i) {
+			seen += counts[i];
+			if (seen>=rank) {
+				if (i==0) return 0;
+				return Math.min((1L << i) - 1, m);
+			}
+		}
+		return m;
+	}
+
+	/** Reset this histogram.
+	 */
+	public void reset() {
+		for(int i=0; i<BUCKET_COUNT; ++i) {
+			this.buckets.set(i, 0);
+		}
+		this.count.reset();
+		this.sum.reset();
+		this.max.set(0);
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder();
+		b.append(this.name);
+		b.append(": count="); //$NON-NLS-1$
+		b.append(getCount());
+		b.append(", mean="); //$NON-NLS-1$
+		b.append(Math.round(getMean()));
+		b.append(", p50="); //$NON-NLS-1$
+		b.append(getPercentile(.5));
+		b.append(", p99="); //$NON-NLS-1$
+		b.append(getPercentile(.99));
+		b.append(", max="); //$NON-NLS-1$
+		b.append(getMax());
+		return b.toString();
+	}
+
+}
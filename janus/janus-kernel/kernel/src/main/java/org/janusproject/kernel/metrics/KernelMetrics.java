@@ -0,0 +1,458 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.arakhne.afc.vmutil.locale.Locale;
+
+/**
+ * Registry of the metrics of the kernels.
+ * <p>
+ * The metrics are shared by all the kernels of the virtual machine:
+ * when several kernels are running in the same virtual machine, the
+ * metrics are the sums over these kernels.
+ * They are collected only when {@link #isMetricsEnable()} replies
+ * <code>true</code>; the instrumented code is expected to test this
+ * flag before updating a metric, so that the cost of disabled
+ * metrics is a volatile read.
+ * <p>
+ * The kernels are enabling the metrics with {@link #enableMetrics()}
+ * and disabling them with {@link #disableMetrics()}. These calls are
+ * counted, so that the metrics stay enabled until the last kernel
+ * which has enabled them is stopped.
+ * <p>
+ * The metrics may be read with {@link #dump()}, or through JMX
+ * after a call to {@link #registerMBean()}.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public final class KernelMetrics {
+
+	/** Name of the counter of the messages sent to one receiver.
+	 */
+	public static final String SENT_MESSAGES = "kernel.messages.sent"; //$NON-NLS-1$
+
+	/** Name of the counter of the broadcast messages.
+	 */
+	public static final String BROADCAST_MESSAGES = "kernel.messages.broadcast"; //$NON-NLS-1$
+
+	/** Name of the counter of the messages put in the local mailboxes.
+	 */
+	public static final String DELIVERED_MESSAGES = "kernel.messages.delivered"; //$NON-NLS-1$
+
+	/** Name of the counter of the messages forwarded to remote kernels.
+	 */
+	public static final String REMOTE_MESSAGES = "kernel.messages.remote"; //$NON-NLS-1$
+
+	/** Name of the histogram of the sizes of the role mailboxes after
+	 * the delivery of a message.
+	 */
+	public static final String MAILBOX_DEPTH = "kernel.mailbox.depth"; //$NON-NLS-1$
+
+	/** Name of the histogram of the durations (in nanoseconds) of the
+	 * activation passes of the agent activators.
+	 */
+	public static final String ACTIVATION_PASS_TIME = "kernel.activator.passTime"; //$NON-NLS-1$
+
+	/** Name of the counter of the agent activations.
+	 */
+	public static final String AGENT_ACTIVATIONS = "kernel.activator.activations"; //$NON-NLS-1$
+
+	/** Name of the gauge of the agents.
+	 */
+	public static final String AGENTS = "kernel.agents"; //$NON-NLS-1$
+
+	/** Name of the gauge of the sleeping agents.
+	 */
+	public static final String SLEEPING_AGENTS = "kernel.agents.sleeping"; //$NON-NLS-1$
+
+	/** Name of the counter of the messages sent on the network.
+	 */
+	public static final String NETWORK_SENT_MESSAGES = "network.messages.sent"; //$NON-NLS-1$
+
+	/** Name of the counter of the messages received from the network.
+	 */
+	public static final String NETWORK_RECEIVED_MESSAGES = "network.messages.received"; //$NON-NLS-1$
+
+	/** Name of the counter of the bytes sent on the network.
+	 */
+	public static final String NETWORK_SENT_BYTES = "network.bytes.sent"; //$NON-NLS-1$
+
+	/** Name of the counter of the bytes received from the network.
+	 */
+	public static final String NETWORK_RECEIVED_BYTES = "network.bytes.received"; //$NON-NLS-1$
+
+	/** Name of the JMX bean of the metrics.
+	 */
+	public static final String MBEAN_NAME = "org.janusproject.kernel:type=KernelMetrics"; //$NON-NLS-1$
+
+	private static final AtomicBoolean isMetricsEnabled = new AtomicBoolean(false);
+	private static final ConcurrentMap<String,Counter> counters = new ConcurrentHashMap<String,Counter>();
+	private static final ConcurrentMap<String,Histogram> histograms = new ConcurrentHashMap<String,Histogram>();
+	private static final ConcurrentMap<String,Gauge> gauges = new ConcurrentHashMap<String,Gauge>();
+	private static int mbeanRegistrations = 0;
+	private static int metricsUsers = 0;
+	private static boolean isMetricsForced = false;
+
+	private KernelMetrics() {
+		//
+	}
+
+	/** Replies if the metrics are collected.
+	 * 
+	 * @return <code>true</code> if the metrics are collected,
+	 * otherwise <code>false</code>.
+	 */
+	public static boolean isMetricsEnable() {
+		return isMetricsEnabled.get();
+	}
+
+	/** Force the collection of the metrics, independently of the
+	 * calls to {@link #enableMetrics()} and {@link #disableMetrics()}.
+	 * 
+	 * @param enable
+	 */
+	public static void setMetricsEnable(boolean enable) {
+		synchronized(KernelMetrics.class) {
+			isMetricsForced = enable;
+			isMetricsEnabled.set(isMetricsForced || metricsUsers>0);
+		}
+	}
+
+	/** Enable the collection of the metrics on behalf of a kernel.
+	 * Each call must be followed by a call to {@link #disableMetrics()}.
+	 */
+	public static void enableMetrics() {
+		synchronized(KernelMetrics.class) {
+			++metricsUsers;
+			isMetricsEnabled.set(true);
+		}
+	}
+
+	/** Release the collection of the metrics enabled by
+	 * {@link #enableMetrics()}. The metrics are no more collected
+	 * when all the calls to {@link #enableMetrics()} are released.
+	 */
+	public static void disableMetrics() {
+		synchronized(KernelMetrics.class) {
+			if (metricsUsers>0) {
+				--metricsUsers;
+			}
+			isMetricsEnabled.set(isMetricsForced || metricsUsers>0);
+		}
+	}
+
+	/** Replies the counter with the given name.
+	 * The counter is created if it does not exist.
+	 * 
+	 * @param name
+	 * @return the counter.
+	 */
+	public static Counter getCounter(String name) {
+		assert(name!=null);
+		Counter counter = counters.get(name);
+		if (counter==null) {
+			counter = new Counter(name);
+			Counter old = counters.putIfAbsent(name, counter);
+			if (old!=null) counter = old;
+		}
+		return counter;
+	}
+
+	/** Replies the histogram with the given name.
+	 * The histogram is created if it does not exist.
+	 * 
+	 * @param name
+	 * @return the histogram.
+	 */
+	public static Histogram getHistogram(String name) {
+		assert(name!=null);
+		Histogram histogram = histograms.get(name);
+		if (histogram==null) {
+			histogram = new Histogram(name);
+			Histogram old = histograms.putIfAbsent(name, histogram);
+			if (old!=null) histogram = old;
+		}
+		return histogram;
+	}
+
+	/** Register a gauge.
+	 * 
+	 * @param name is the name of the gauge.
+	 * @param gauge is the gauge.
+	 * @return <code>true</code> if the gauge was registered,
+	 * <code>false</code> if a gauge with the same name is already registered.
+	 */
+	public static boolean registerGauge(String name, Gauge gauge) {
+		assert(name!=null && gauge!=null);
+		return gauges.putIfAbsent(name, gauge)==null;
+	}
+
+	/** Unregister a gauge.
+	 * 
+	 * @param name is the name of the gauge.
+	 * @param gauge is the gauge to unregister.
+	 * @return <code>true</code> if the gauge was unregistered,
+	 * <code>false</code> if it was not registered with the given name.
+	 */
+	public static boolean unregisterGauge(String name, Gauge gauge) {
+		return gauges.remove(name, gauge);
+	}
+
+	/** Replies the values of the counters, sorted by name.
+	 * 
+	 * @return the values of the counters.
+	 */
+	public static SortedMap<String,Long> getCounters() {
+		SortedMap<String,Long> values = new TreeMap<String,Long>();
+		for(Entry<String,Counter> entry : counters.entrySet()) {
+			values.put(entry.getKey(), Long.valueOf(entry.getValue().get()));
+		}
+		return values;
+	}
+
+	/** Replies the values of the gauges, sorted by name.
+	 * 
+	 * @return the values of the gauges.
+	 */
+	public static SortedMap<String,Long> getGauges() {
+		SortedMap<String,Long> values = new TreeMap<String,Long>();
+		for(Entry<String,Gauge> entry : gauges.entrySet()) {
+			values.put(entry.getKey(), Long.valueOf(entry.getValue().getValue()));
+		}
+		return values;
+	}
+
+	/** Replies the histograms, sorted by name.
+	 * 
+	 * @return the histograms.
+	 */
+	public static SortedMap<String,Histogram> getHistograms() {
+		return new TreeMap<String,Histogram>(histograms);
+	}
+
+	/** Reset the counters and the histograms.
+	 */
+	public static void reset() {
+		for(Counter counter : counters.values()) {
+			counter.reset();
+		}
+		for(Histogram histogram : histograms.values()) {
+			histogram.reset();
+		}
+	}
+
+	/** Replies a textual dump of all the metrics, one metric per line.
+	 * 
+	 * @return the dump.
+	 */
+	public static String dump() {
+		StringBuilder b = new StringBuilder();
+		for(Entry<String,Long> entry : getCounters().entrySet()) {
+			b.append(entry.getKey());
+			b.append("="); //$NON-NLS-1$
+			b.append(entry.getValue());
+			b.append("\n"); //$NON-NLS-1$
+		}
+		for(Entry<String,Long> entry : getGauges().entrySet()) {
+			b.append(entry.getKey());
+			b.append("="); //$NON-NLS-1$
+			b.append(entry.getValue());
+			b.append("\n"); //$NON-NLS-1$
+		}
+		for(Histogram histogram : getHistograms().values()) {
+			b.append(histogram.toString());
+			b.append("\n"); //$NON-NLS-1$
+		}
+		return b.toString();
+	}
+
+	/** Create a task which is logging the dump of the metrics.
+	 * The task is expected to be periodically run by an executor service.
+	 * 
+	 * @param logger is the logger to use.
+	 * @return the task.
+	 */
+	public static Runnable createDumpTask(Logger logger) {
+		assert(logger!=null);
+		return new DumpTask(logger);
+	}
+
+	/** Register the JMX bean of the metrics in the platform bean server.
+	 * <p>
+	 * The bean is registered once; the registrations are counted so
+	 * that the bean is unregistered by the last call to
+	 * {@link #unregisterMBean()}.
+	 * 
+	 * @throws JMException if the bean cannot be registered.
+	 */
+	public static void registerMBean() throws JMException {
+		synchronized(KernelMetrics.class) {
+			if (mbeanRegistrations==0) {
+				MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+				server.registerMBean(
+						new StandardMBean(new MBean(), KernelMetricsMXBean.class, true),
+						new ObjectName(MBEAN_NAME));
+			}
+			++mbeanRegistrations;
+		}
+	}
+
+	/** Unregister the JMX bean of the metrics.
+	 * 
+	 * @throws JMException if the bean cannot be unregistered.
+	 * @see #registerMBean()
+	 */
+	public static void unregisterMBean() throws JMException {
+		synchronized(KernelMetrics.class) {
+			if (mbeanRegistrations>0) {
+				--mbeanRegistrations;
+				if (mbeanRegistrations==0) {
+					MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+					server.unregisterMBean(new ObjectName(MBEAN_NAME));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Implementation of the JMX bean.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class MBean implements KernelMetricsMXBean {
+
+		/**
+		 */
+		public MBean() {
+			//
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public boolean isEnabled() {
+			return isMetricsEnable();
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public void setEnabled(boolean enable) {
+			setMetricsEnable(enable);
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public Map<String,Long> getCounters() {
+			return KernelMetrics.getCounters();
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public Map<String,Long> getGauges() {
+			return KernelMetrics.getGauges();
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public Map<String,String> getHistograms() {
+			Map<String,String> values = new TreeMap<String,String>();
+			for(Entry<String,Histogram> entry : KernelMetrics.getHistograms().entrySet()) {
+				values.put(entry.getKey(), entry.getValue().toString());
+			}
+			return values;
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public String dump() {
+			return KernelMetrics.dump();
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public void reset() {
+			KernelMetrics.reset();
+		}
+
+	}
+
+	/**
+	 * Task which is logging the dump of the metrics.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class DumpTask implements Runnable {
+
+		private final Logger logger;
+
+		/**
+		 * @param logger
+		 */
+		public DumpTask(Logger logger) {
+			this.logger = logger;
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public void run() {
+			if (isMetricsEnable() && this.logger.isLoggable(Level.INFO)) {
+				this.logger.info(Locale.getString(KernelMetrics.class, "METRICS_DUMP", dump())); //$NON-NLS-1$
+			}
+		}
+
+	}
+
+}
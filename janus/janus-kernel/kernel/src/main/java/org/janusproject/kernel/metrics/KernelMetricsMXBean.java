@@ -0,0 +1,78 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view on the kernel metrics.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ * @see KernelMetrics#registerMBean()
+ */
+public interface KernelMetricsMXBean {
+
+	/** Replies if the metrics are collected.
+	 * 
+	 * @return <code>true</code> if the metrics are collected,
+	 * otherwise <code>false</code>.
+	 */
+	public boolean isEnabled();
+
+	/** Set if the metrics are collected.
+	 * 
+	 * @param enable
+	 */
+	public void setEnabled(boolean enable);
+
+	/** Replies the values of the counters.
+	 * 
+	 * @return the values of the counters.
+	 */
+	public Map<String,Long> getCounters();
+
+	/** Replies the values of the gauges.
+	 * 
+	 * @return the values of the gauges.
+	 */
+	public Map<String,Long> getGauges();
+
+	/** Replies the summaries of the histograms.
+	 * 
+	 * @return the summaries of the histograms.
+	 */
+	public Map<String,String> getHistograms();
+
+	/** Replies a textual dump of all the metrics.
+	 * 
+	 * @return the dump.
+	 */
+	public String dump();
+
+	/** Reset the counters and the histograms.
+	 */
+	public void reset();
+
+}
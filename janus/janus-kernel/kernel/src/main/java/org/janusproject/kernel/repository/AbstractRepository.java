@@ -71,6 +71,15 @@ implements Repository<ID,DATA>, ModifiableCollectionSizedIteratorOwner<Entry<ID,
 		if (this.listeners.isEmpty()) this.listeners = null;
 	}
 
+	/** Replies if a listener on the changes of this repository was registered.
+	 * 
+	 * @return <code>true</code> if a listener is registered, otherwise <code>false</code>.
+	 * @since 1.1
+	 */
+	protected final boolean hasRepositoryChangeListener() {
+		return this.listeners!=null;
+	}
+
 	/** Fire the event that indicates the specified object was added.
 	 * 
 	 * @param addedObject is the key of the added pair.
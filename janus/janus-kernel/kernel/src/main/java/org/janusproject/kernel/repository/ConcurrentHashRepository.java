@@ -22,6 +22,7 @@ package org.janusproject.kernel.repository;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -86,6 +87,25 @@ extends AbstractRepository<ID,DATA> {
 			fireUpdateRepositoryChange(key, oldData, data);
 	}
 
+	/** Add all the given pairs in this repository.
+	 * <p>
+	 * When no listener is registered on this repository,
+	 * the pairs are added with a single bulk operation.
+	 * 
+	 * @param data are the pairs to add.
+	 * @since 1.1
+	 */
+	public void addAll(Map<? extends ID, ? extends DATA> data) {
+		if (hasRepositoryChangeListener()) {
+			for(Entry<? extends ID, ? extends DATA> entry : data.entrySet()) {
+				add(entry.getKey(), entry.getValue());
+			}
+		}
+		else {
+			this.content.putAll(data);
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
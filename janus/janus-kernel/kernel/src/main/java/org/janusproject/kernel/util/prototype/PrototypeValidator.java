@@ -26,6 +26,8 @@ import java.util.List;
 import java.util.logging.Logger;
 
 import org.arakhne.afc.vmutil.locale.Locale;
+import org.janusproject.kernel.util.reflect.ClassMetadataFacet;
+import org.janusproject.kernel.util.reflect.ClassMetadataRegistry;
 
 /**
  * Validate the prototype of an invocation.
@@ -99,6 +101,7 @@ public abstract class PrototypeValidator<MT, AT extends Annotation> {
 
 	private final Class<MT> annotatedType;
 	private final Class<AT> annotationType;
+	private final ClassMetadataFacet<AT> prototypeFacet = new PrototypeFacet();
 	
 	private volatile boolean notAnnotatedWarningDisplayed = false;
 	
@@ -142,7 +145,7 @@ public abstract class PrototypeValidator<MT, AT extends Annotation> {
 	public boolean validateInputs(
 			Class<? extends MT> objectToTest,
 			Object... parameters) {
-		AT prototype = searchFirstPrototypeInClassHierarchy(objectToTest);
+		AT prototype = ClassMetadataRegistry.getFacet(objectToTest, this.prototypeFacet);
 		if (prototype!=null) {
 			int optionalIndex = getFirstOptionalValueIndex(PrototypeScope.INPUT, prototype);
 			Class<?> allInput = getVariableSizePartValueType(PrototypeScope.INPUT, prototype);
@@ -175,7 +178,7 @@ public abstract class PrototypeValidator<MT, AT extends Annotation> {
 	public boolean validateOutputs(
 			Class<? extends MT> objectToTest,
 			Object... values) {
-		AT prototype = searchFirstPrototypeInClassHierarchy(objectToTest);
+		AT prototype = ClassMetadataRegistry.getFacet(objectToTest, this.prototypeFacet);
 		if (prototype!=null) {
 			int optionalIndex = getFirstOptionalValueIndex(PrototypeScope.OUTPUT, prototype);
 			Class<?> allOutput = getVariableSizePartValueType(PrototypeScope.OUTPUT, prototype);
@@ -195,12 +198,11 @@ public abstract class PrototypeValidator<MT, AT extends Annotation> {
 		return true;
 	}
 	
-	@SuppressWarnings("unchecked")
 	private AT searchFirstPrototypeInClassHierarchy(
-			Class<? extends MT> objectToTest) {
+			Class<?> objectToTest) {
 		AT proto;
-		List<Class<? extends MT>> candidates = new LinkedList<Class<? extends MT>>();
-		Class<? extends MT> type;
+		List<Class<?>> candidates = new LinkedList<Class<?>>();
+		Class<?> type;
 		Class<?> parent;
 		Class<?>[] superTypes;
 		
@@ -217,7 +219,7 @@ public abstract class PrototypeValidator<MT, AT extends Annotation> {
 			if (superTypes!=null) {
 				for(Class<?> t : superTypes) {
 					if (this.annotatedType.isAssignableFrom(t)) {
-						candidates.add((Class<? extends MT>)t);
+						candidates.add(t);
 					}
 				}
 			}
@@ -225,7 +227,7 @@ public abstract class PrototypeValidator<MT, AT extends Annotation> {
 			if (!type.isInterface()) {
 				parent = type.getSuperclass();
 				if (parent!=null && this.annotatedType.isAssignableFrom(parent)) {
-					candidates.add((Class<? extends MT>)parent);
+					candidates.add(parent);
 				}
 			}
 		}
@@ -512,4 +514,34 @@ public abstract class PrototypeValidator<MT, AT extends Annotation> {
 	 */
 	protected abstract int getFirstOptionalValueIndex(PrototypeScope scope, AT prototype);
 
+	/**
+	 * Search the prototype annotation in the class hierarchy.
+	 * The search is done once per class and memorized by
+	 * the {@link ClassMetadataRegistry}.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private class PrototypeFacet implements ClassMetadataFacet<AT> {
+
+		/**
+		 */
+		public PrototypeFacet() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public AT compute(Class<?> type) {
+			return searchFirstPrototypeInClassHierarchy(type);
+		}
+
+	}
+
 }
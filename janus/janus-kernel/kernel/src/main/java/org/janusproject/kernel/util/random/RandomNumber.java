@@ -21,12 +21,18 @@
 package org.janusproject.kernel.util.random;
 
 import java.util.Random;
+import java.util.UUID;
 
 /**
  * Utility class which is providing a convenient random number generator
  * by automatically creating a random number suite.
  * This utility class provides similar features than the {@link Random}
  * class but with a static access to the functions.
+ * <p>
+ * The numbers are drawn from the global generator, except in
+ * the threads for which a local generator was set with
+ * {@link #setLocalRandom(Random)}, eg. by the simulation
+ * schedulers to give a reproducible stream to each agent.
  * 
  * @author $Author: sgalland$
  * @version $FullVersion$
@@ -39,6 +45,112 @@ public class RandomNumber {
 	 */
 	public static final Random RANDOM = new Random();
 
+	/** Domain of the streams of identifiers, so that they differ from
+	 * the random streams with the same seed and index.
+	 */
+	private static final long IDENTIFIER_DOMAIN = 0x6A09E667F3BCC909L;
+
+	private static final ThreadLocal<Random> LOCAL_RANDOM = new ThreadLocal<Random>();
+
+	private static final ThreadLocal<Random> LOCAL_IDENTIFIERS = new ThreadLocal<Random>();
+
+	/** Replies the generator used by the current thread.
+	 * 
+	 * @return the local generator of the current thread if set,
+	 * otherwise {@link #RANDOM}.
+	 * @since 1.1
+	 */
+	public static Random getRandom() {
+		Random r = LOCAL_RANDOM.get();
+		return (r==null) ? RANDOM : r;
+	}
+
+	/** Set the generator used by the current thread.
+	 * 
+	 * @param random is the local generator, or <code>null</code> to
+	 * use the global generator.
+	 * @since 1.1
+	 */
+	public static void setLocalRandom(Random random) {
+		if (random==null) LOCAL_RANDOM.remove();
+		else LOCAL_RANDOM.set(random);
+	}
+
+	/** Set the generator of the identifiers replied by {@link #randomUUID()}
+	 * in the current thread.
+	 * 
+	 * @param identifiers is the generator of the identifiers, usually created
+	 * by {@link #createIdentifierStream(long, long)}, or <code>null</code>
+	 * to reply random identifiers.
+	 * @since 1.1
+	 */
+	public static void setLocalIdentifierStream(Random identifiers) {
+		if (identifiers==null) LOCAL_IDENTIFIERS.remove();
+		else LOCAL_IDENTIFIERS.set(identifiers);
+	}
+
+	/** Create the generator of the stream with the given index
+	 * in the family of streams defined by the given seed.
+	 * <p>
+	 * The generator has 64 bits of state (SplitMix64). The initial
+	 * state and the increment of each stream are derived from the seed
+	 * and from the index, so that the streams with different indexes
+	 * are different sequences of numbers, and not shifted parts
+	 * of the same sequence.
+	 * 
+	 * @param seed is the seed of the family of streams.
+	 * @param index is the index of the stream.
+	 * @return the generator of the stream. It is not thread-safe.
+	 * @since 1.1
+	 */
+	public static Random createStream(long seed, long index) {
+		return createStream(seed, index, 0);
+	}
+
+	/** Create the generator of the identifiers with the given index
+	 * in the family of streams defined by the given seed.
+	 * <p>
+	 * The identifiers are derived from the seed, from the index and
+	 * from the number of identifiers already replied by the generator.
+	 * They are not drawn from the stream replied by
+	 * {@link #createStream(long, long)} with the same seed and index,
+	 * so that creating identifiers does not change the random numbers.
+	 * 
+	 * @param seed is the seed of the family of streams.
+	 * @param index is the index of the stream.
+	 * @return the generator of the identifiers. It is not thread-safe.
+	 * @since 1.1
+	 */
+	public static Random createIdentifierStream(long seed, long index) {
+		return createStream(seed, index, IDENTIFIER_DOMAIN);
+	}
+
+	private static Random createStream(long seed, long index, long domain) {
+		long base = SplitMixRandom.mix64(seed ^ domain);
+		long k = 2 * index + 1;
+		return new SplitMixRandom(
+				SplitMixRandom.mix64(base + k * SplitMixRandom.GOLDEN_GAMMA),
+				SplitMixRandom.mixGamma(base + (k + 1) * SplitMixRandom.GOLDEN_GAMMA));
+	}
+
+	/** Replies a random identifier.
+	 * <p>
+	 * If a generator of identifiers is set for the current thread with
+	 * {@link #setLocalIdentifierStream(Random)}, the identifier is a
+	 * version 4 UUID drawn from this generator; otherwise it is
+	 * replied by {@link UUID#randomUUID()}.
+	 * 
+	 * @return a random identifier.
+	 * @since 1.1
+	 */
+	public static UUID randomUUID() {
+		Random r = LOCAL_IDENTIFIERS.get();
+		if (r==null) return UUID.randomUUID();
+		long msb = (r.nextLong() & 0xFFFFFFFFFFFF0FFFL) | 0x0000000000004000L;
+		long lsb = (r.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+		return new UUID(msb, lsb);
+	}
+
 	/**
 	 * Generates random bytes and places them into a user-supplied
 	 * byte array.  The number of random bytes produced is equal to
@@ -58,7 +170,7 @@ public class RandomNumber {
 	 * @throws NullPointerException if the byte array is null
 	 */
 	public static void nextBytes(byte[] bytes) {
-		RANDOM.nextBytes(bytes);
+		getRandom().nextBytes(bytes);
 	}
 
 	/**
@@ -80,7 +192,7 @@ public class RandomNumber {
 	 *         value from this random number generator's sequence
 	 */
 	public static int nextInt() {
-		return RANDOM.nextInt();
+		return getRandom().nextInt();
 	}
 
 	/**
@@ -139,7 +251,7 @@ public class RandomNumber {
 	 */
 
 	public static int nextInt(int n) {
-		return RANDOM.nextInt(n);
+		return getRandom().nextInt(n);
 	}
 
 	/**
@@ -162,7 +274,7 @@ public class RandomNumber {
 	 *         value from this random number generator's sequence
 	 */
 	public static long nextLong() {
-		return RANDOM.nextLong();
+		return getRandom().nextLong();
 	}
 
 	/**
@@ -185,7 +297,7 @@ public class RandomNumber {
 	 *	       sequence
 	 */
 	public static boolean nextBoolean() {
-		return RANDOM.nextBoolean();
+		return getRandom().nextBoolean();
 	}
 
 	/**
@@ -228,7 +340,7 @@ public class RandomNumber {
 	 *         random number generator's sequence
 	 */
 	public static float nextFloat() {
-		return RANDOM.nextFloat();
+		return getRandom().nextFloat();
 	}
 
 	/**
@@ -271,7 +383,7 @@ public class RandomNumber {
 	 * @see Math#random
 	 */
 	public static double nextDouble() {
-		return RANDOM.nextDouble();
+		return getRandom().nextDouble();
 	}
 
 	/**
@@ -320,7 +432,7 @@ public class RandomNumber {
 	 *         generator's sequence
 	 */
 	public static double nextGaussian() {
-		return RANDOM.nextGaussian();
+		return getRandom().nextGaussian();
 	}
 
 }
@@ -0,0 +1,127 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.util.random;
+
+import java.util.Random;
+
+/**
+ * Random number generator with 64 bits of state, based on the
+ * SplitMix64 algorithm.
+ * <p>
+ * Each generator is defined by its initial state and by the
+ * odd increment (the <i>gamma</i>) which is added to the state
+ * at each draw. The generators with different increments
+ * are producing different sequences of numbers.
+ * <p>
+ * This generator is not thread-safe: it must be used by one
+ * thread at a time.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+class SplitMixRandom extends Random {
+
+	private static final long serialVersionUID = -2903452745014531384L;
+
+	/** Increment of the generators created with a seed.
+	 */
+	static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	// These fields have no initial value because they are
+	// set by setSeed() from the constructor of Random.
+	private long state;
+	private long gamma;
+
+	/**
+	 * @param state is the initial state.
+	 * @param gamma is the increment of the state; it is made odd.
+	 */
+	SplitMixRandom(long state, long gamma) {
+		super(0);
+		this.state = state;
+		this.gamma = gamma | 1L;
+	}
+
+	/** Mix the bits of the given value (finalizer of SplitMix64).
+	 * 
+	 * @param value
+	 * @return the mixed value.
+	 */
+	static long mix64(long value) {
+		long z = value;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/** Replies an increment computed from the given value.
+	 * The increment is odd and its bits are not too regular.
+	 * 
+	 * @param value
+	 * @return the increment.
+	 */
+	static long mixGamma(long value) {
+		long z = value;
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		return (Long.bitCount(z ^ (z >>> 1)) < 24) ? z ^ 0xAAAAAAAAAAAAAAAAL : z;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setSeed(long seed) {
+		super.setSeed(seed);
+		this.state = mix64(seed);
+		this.gamma = GOLDEN_GAMMA;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected int next(int bits) {
+		return (int)(nextLong() >>> (64 - bits));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long nextLong() {
+		this.state += this.gamma;
+		return mix64(this.state);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+}
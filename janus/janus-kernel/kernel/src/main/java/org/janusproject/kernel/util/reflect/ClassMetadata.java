@@ -0,0 +1,96 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.util.reflect;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Metadata of a class which are computed once by reflection
+ * and memorized.
+ * <p>
+ * The metadata are composed of arbitrary {@link ClassMetadataFacet facets},
+ * e.g. the prototype annotations of the agents and roles, or the
+ * watchable attributes used by the probes.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ * @see ClassMetadataRegistry
+ */
+public final class ClassMetadata {
+
+	/** Marker of the undefined values.
+	 */
+	private static final Object NONE = new Object();
+
+	private final Class<?> type;
+
+	private final ConcurrentMap<ClassMetadataFacet<?>,Object> facets = new ConcurrentHashMap<ClassMetadataFacet<?>,Object>(4);
+
+	/**
+	 * @param type is the described class.
+	 */
+	ClassMetadata(Class<?> type) {
+		assert(type!=null);
+		this.type = type;
+	}
+
+	/** Replies the described class.
+	 * 
+	 * @return the described class.
+	 */
+	public Class<?> getType() {
+		return this.type;
+	}
+
+	/** Replies the information computed by the given facet
+	 * for the described class. The facet is invoked only
+	 * when the information was not already computed.
+	 * 
+	 * @param <V> is the type of the information.
+	 * @param facet is the facet which is computing the information.
+	 * @return the information, or <code>null</code> if none.
+	 */
+	@SuppressWarnings("unchecked")
+	public <V> V getFacet(ClassMetadataFacet<V> facet) {
+		assert(facet!=null);
+		Object value = this.facets.get(facet);
+		if (value==null) {
+			value = facet.compute(this.type);
+			if (value==null) value = NONE;
+			Object old = this.facets.putIfAbsent(facet, value);
+			if (old!=null) value = old;
+		}
+		return value==NONE ? null : (V)value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return this.type.getName();
+	}
+
+}
@@ -0,0 +1,52 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.util.reflect;
+
+/**
+ * Information which is computed from a class and
+ * memorized by the {@link ClassMetadataRegistry}.
+ * <p>
+ * The instances of this interface are used as keys in the metadata
+ * of the classes. They should be singletons, or they should
+ * implement {@link Object#equals(Object)} and {@link Object#hashCode()}.
+ * 
+ * @param <V> is the type of the computed information.
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ * @see ClassMetadata#getFacet(ClassMetadataFacet)
+ */
+public interface ClassMetadataFacet<V> {
+
+	/** Compute the information for the given class.
+	 * <p>
+	 * This function may be invoked several times for the
+	 * same class when the information is concurrently
+	 * requested; only one of the computed values is memorized.
+	 * 
+	 * @param type is the class to introspect.
+	 * @return the information, or <code>null</code> if none.
+	 */
+	public V compute(Class<?> type);
+
+}
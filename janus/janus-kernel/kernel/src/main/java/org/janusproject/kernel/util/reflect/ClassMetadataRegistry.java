@@ -0,0 +1,133 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.util.reflect;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the metadata of the classes used by the kernel,
+ * such as the types of the agents, roles and capacities.
+ * <p>
+ * The metadata of a class are computed by reflection the first
+ * time they are requested, and they are shared by all the kernels
+ * of the virtual machine. After that, the accesses to the metadata
+ * are lock-free table lookups.
+ * <p>
+ * The registry keeps strong references to the registered classes,
+ * and to their members through the facets. They are released
+ * when the last kernel of the virtual machine is stopped, and
+ * the OSGi activator of the kernel releases the classes of
+ * a bundle when this bundle is stopped. The other class-loading
+ * environments should invoke {@link #release(ClassLoader)} or
+ * {@link #release(Class)} when they discard classes.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public final class ClassMetadataRegistry {
+
+	private static final ConcurrentMap<Class<?>,ClassMetadata> REGISTRY = new ConcurrentHashMap<Class<?>,ClassMetadata>();
+
+	private ClassMetadataRegistry() {
+		//
+	}
+
+	/** Replies the metadata of the given class.
+	 * 
+	 * @param type is the class.
+	 * @return the metadata of the class, never <code>null</code>.
+	 */
+	public static ClassMetadata get(Class<?> type) {
+		assert(type!=null);
+		ClassMetadata metadata = REGISTRY.get(type);
+		if (metadata==null) {
+			metadata = new ClassMetadata(type);
+			ClassMetadata old = REGISTRY.putIfAbsent(type, metadata);
+			if (old!=null) metadata = old;
+		}
+		return metadata;
+	}
+
+	/** Replies the information computed by the given facet
+	 * for the given class.
+	 * 
+	 * @param <V> is the type of the information.
+	 * @param type is the class.
+	 * @param facet is the facet which is computing the information.
+	 * @return the information, or <code>null</code> if none.
+	 * @see ClassMetadata#getFacet(ClassMetadataFacet)
+	 */
+	public static <V> V getFacet(Class<?> type, ClassMetadataFacet<V> facet) {
+		return get(type).getFacet(facet);
+	}
+
+	/** Forget the metadata of the classes loaded by the
+	 * given class loader.
+	 * 
+	 * @param loader is the class loader.
+	 */
+	public static void release(ClassLoader loader) {
+		Iterator<Class<?>> iterator = REGISTRY.keySet().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().getClassLoader()==loader) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/** Forget the metadata of the given class.
+	 * 
+	 * @param type is the class.
+	 */
+	public static void release(Class<?> type) {
+		REGISTRY.remove(type);
+	}
+
+	/** Replies the classes in the registry.
+	 * 
+	 * @return a copy of the classes in the registry.
+	 */
+	public static Collection<Class<?>> getClasses() {
+		return new ArrayList<Class<?>>(REGISTRY.keySet());
+	}
+
+	/** Forget the metadata of all the classes.
+	 */
+	public static void clear() {
+		REGISTRY.clear();
+	}
+
+	/** Replies the number of classes in the registry.
+	 * 
+	 * @return the number of classes in the registry.
+	 */
+	public static int size() {
+		return REGISTRY.size();
+	}
+
+}
@@ -0,0 +1,248 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.address;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import junit.framework.TestCase;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class AddressIndexedMapTest extends TestCase {
+
+	private AddressIndexer indexer;
+	private AddressIndexedMap<AgentAddress,Integer> map;
+	
+	/**
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.indexer = new AddressIndexer();
+		this.map = new AddressIndexedMap<AgentAddress,Integer>(new TreeMap<AgentAddress,Integer>());
+	}
+
+	/**
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		this.map = null;
+		this.indexer = null;
+		super.tearDown();
+	}
+	
+	/**
+	 */
+	public void testAllocateRelease() {
+		AgentAddress a1 = new AgentAddressStub();
+		AgentAddress a2 = new AgentAddressStub();
+		AgentAddress a3 = new AgentAddressStub();
+		assertEquals(-1, a1.getLocalIndex());
+		
+		assertEquals(0, this.indexer.allocate(a1));
+		assertEquals(1, this.indexer.allocate(a2));
+		assertEquals(0, this.indexer.allocate(a1));
+		assertEquals(0, a1.getLocalIndex());
+		assertEquals(1, a2.getLocalIndex());
+		assertSame(a2, this.indexer.getAddress(1));
+		assertEquals(2, this.indexer.size());
+
+		assertTrue(this.indexer.release(a1));
+		assertFalse(this.indexer.release(a1));
+		assertEquals(-1, a1.getLocalIndex());
+		assertNull(this.indexer.getAddress(0));
+
+		assertEquals(0, this.indexer.allocate(a3));
+		assertEquals(2, this.indexer.allocate(a1));
+		assertEquals(3, this.indexer.size());
+	}
+
+	/**
+	 */
+	public void testAllocateRelease_otherIndexer() {
+		AddressIndexer other = new AddressIndexer();
+		AgentAddress a1 = new AgentAddressStub();
+		AgentAddress a2 = new AgentAddressStub();
+		assertEquals(0, this.indexer.allocate(a1));
+		assertEquals(1, this.indexer.allocate(a2));
+
+		// a1 is indexed by another kernel
+		assertEquals(0, other.allocate(a2));
+		assertEquals(1, other.allocate(a1));
+		assertEquals(1, a1.getLocalIndex());
+
+		assertTrue(this.indexer.release(a1));
+		assertEquals(1, a1.getLocalIndex());
+		assertNull(this.indexer.getAddress(0));
+		assertEquals(1, this.indexer.size());
+
+		assertEquals(1, this.indexer.allocate(a2));
+		assertSame(a2, this.indexer.getAddress(1));
+		assertTrue(this.indexer.release(a2));
+		assertEquals(0, this.indexer.size());
+		assertTrue(other.release(a1));
+		assertTrue(other.release(a2));
+		assertEquals(0, other.size());
+	}
+
+	/**
+	 */
+	public void testPutGetRemove() {
+		List<AgentAddress> addresses = new ArrayList<AgentAddress>();
+		for(int i=0; i<100; ++i) {
+			AgentAddress adr = new AgentAddressStub();
+			if (i%3!=0) this.indexer.allocate(adr);
+			addresses.add(adr);
+			assertNull(this.map.put(adr, Integer.valueOf(i)));
+		}
+		assertEquals(100, this.map.size());
+		for(int i=0; i<100; ++i) {
+			assertEquals(Integer.valueOf(i), this.map.get(addresses.get(i)));
+			assertTrue(this.map.containsKey(addresses.get(i)));
+		}
+		for(int i=0; i<100; i+=2) {
+			assertEquals(Integer.valueOf(i), this.map.remove(addresses.get(i)));
+		}
+		assertEquals(50, this.map.size());
+		for(int i=0; i<100; ++i) {
+			if (i%2==0) {
+				assertNull(this.map.get(addresses.get(i)));
+				assertFalse(this.map.containsKey(addresses.get(i)));
+			}
+			else {
+				assertEquals(Integer.valueOf(i), this.map.get(addresses.get(i)));
+			}
+		}
+	}
+
+	/**
+	 */
+	public void testGet_otherInstance() {
+		AgentAddress adr = new AgentAddressStub();
+		this.indexer.allocate(adr);
+		AgentAddress copy = new AgentAddressStub(adr.getUUID(), null);
+		
+		this.map.put(adr, Integer.valueOf(1));
+		assertEquals(Integer.valueOf(1), this.map.get(copy));
+		
+		this.map.put(copy, Integer.valueOf(2));
+		assertEquals(Integer.valueOf(2), this.map.get(adr));
+		assertEquals(Integer.valueOf(2), this.map.get(copy));
+		
+		assertEquals(Integer.valueOf(2), this.map.remove(copy));
+		assertNull(this.map.get(adr));
+		assertTrue(this.map.isEmpty());
+	}
+
+	/**
+	 */
+	public void testGet_releasedIndex() {
+		AgentAddress a1 = new AgentAddressStub();
+		AgentAddress a2 = new AgentAddressStub();
+		this.indexer.allocate(a1);
+		this.map.put(a1, Integer.valueOf(1));
+		
+		this.indexer.release(a1);
+		this.indexer.allocate(a2);
+		assertEquals(-1, a1.getLocalIndex());
+		assertNull(this.map.get(a2));
+		this.map.put(a2, Integer.valueOf(2));
+
+		// a1 receives a new index while it is still in the map
+		this.indexer.allocate(a1);
+		assertEquals(Integer.valueOf(1), this.map.get(a1));
+		assertEquals(Integer.valueOf(2), this.map.get(a2));
+		
+		assertEquals(Integer.valueOf(1), this.map.remove(a1));
+		assertNull(this.map.get(a1));
+		assertEquals(Integer.valueOf(2), this.map.get(a2));
+	}
+
+	/**
+	 */
+	public void testEntrySet() {
+		AgentAddress a1 = new AgentAddressStub(new UUID(0, 2), null);
+		AgentAddress a2 = new AgentAddressStub(new UUID(0, 1), null);
+		this.indexer.allocate(a1);
+		this.indexer.allocate(a2);
+		this.map.put(a1, Integer.valueOf(1));
+		this.map.put(a2, Integer.valueOf(2));
+		
+		List<AgentAddress> keys = new ArrayList<AgentAddress>(this.map.keySet());
+		assertEquals(2, keys.size());
+		assertSame(a2, keys.get(0));
+		assertSame(a1, keys.get(1));
+		
+		assertTrue(this.map.keySet().remove(a1));
+		assertNull(this.map.get(a1));
+		assertFalse(this.map.containsKey(a1));
+		assertEquals(1, this.map.size());
+		assertEquals(Integer.valueOf(2), this.map.get(a2));
+	}
+
+	/**
+	 */
+	public void testIteratorRemove() {
+		List<AgentAddress> addresses = new ArrayList<AgentAddress>();
+		for(int i=0; i<50; ++i) {
+			AgentAddress adr = new AgentAddressStub();
+			if (i%4!=0) this.indexer.allocate(adr);
+			addresses.add(adr);
+			this.map.put(adr, Integer.valueOf(i));
+		}
+		Iterator<Integer> iterator = this.map.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().intValue()%2==0) iterator.remove();
+		}
+		assertEquals(25, this.map.size());
+		for(int i=0; i<50; ++i) {
+			if (i%2==0) {
+				assertNull(this.map.get(addresses.get(i)));
+				assertFalse(this.map.containsKey(addresses.get(i)));
+			}
+			else {
+				assertEquals(Integer.valueOf(i), this.map.get(addresses.get(i)));
+			}
+		}
+	}
+
+	/**
+	 */
+	public void testSetValue() {
+		AgentAddress a1 = new AgentAddressStub();
+		this.indexer.allocate(a1);
+		this.map.put(a1, Integer.valueOf(1));
+		Entry<AgentAddress,Integer> entry = this.map.entrySet().iterator().next();
+		assertEquals(Integer.valueOf(1), entry.setValue(Integer.valueOf(2)));
+		assertEquals(Integer.valueOf(2), this.map.get(a1));
+		assertEquals(Integer.valueOf(2), this.map.get(new AgentAddressStub(a1.getUUID(), null)));
+	}
+
+}
@@ -0,0 +1,473 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agent;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EventListener;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import junit.framework.TestCase;
+
+import org.janusproject.kernel.Kernel;
+import org.janusproject.kernel.address.Address;
+import org.janusproject.kernel.address.AgentAddress;
+import org.janusproject.kernel.crio.core.GroupAddress;
+import org.janusproject.kernel.crio.core.Role;
+import org.janusproject.kernel.crio.core.RoleAddress;
+import org.janusproject.kernel.logger.LoggerUtil;
+import org.janusproject.kernel.message.Message;
+import org.janusproject.kernel.message.StringMessage;
+import org.janusproject.kernel.status.Status;
+import org.janusproject.kernel.status.StatusFactory;
+import org.janusproject.kernel.util.selector.TypeSelector;
+import org.janusproject.kernel.util.sizediterator.SizedIterator;
+import org.janusproject.kernel.util.sizediterator.UnmodifiableCollectionSizedIterator;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class AgentMigrationTest extends TestCase {
+
+	private List<KernelAgent> kernels;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		LoggerUtil.setGlobalLevel(Level.OFF);
+		Kernels.shutdownNow();
+		this.kernels = Collections.synchronizedList(new ArrayList<KernelAgent>());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		Kernels.shutdownNow();
+		this.kernels = null;
+		super.tearDown();
+	}
+
+	private KernelAgent createKernel() {
+		Kernel kernel = Kernels.create(Boolean.FALSE, new LoopbackKernelAgentFactory());
+		assertNotNull(kernel);
+		KernelAgent agent = this.kernels.get(this.kernels.size()-1);
+		assertSame(kernel, agent.toKernel());
+		return agent;
+	}
+
+	private static void waitFor(KernelAgent kernel, AgentAddress agent) throws InterruptedException {
+		long end = System.currentTimeMillis() + 10000;
+		while (!kernel.getKernelContext().getAgentRepository().contains(agent)
+				&& System.currentTimeMillis()<end) {
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testThresholdLoadBalancer() throws Exception {
+		AgentAddress local = new AgentAddressStub();
+		AgentAddress remote1 = new AgentAddressStub();
+		AgentAddress remote2 = new AgentAddressStub();
+		List<AgentAddress> candidates = new ArrayList<AgentAddress>();
+		for(int i=0; i<20; ++i) {
+			candidates.add(new AgentAddressStub());
+		}
+		ThresholdLoadBalancer balancer = new ThresholdLoadBalancer(1.5f, 5);
+
+		// Balanced kernels
+		Map<AgentAddress,AgentAddress> moves = balancer.balance(
+				new KernelLoad(local, 12, 12, 0, 0),
+				Arrays.asList(new KernelLoad(remote1, 10, 0, 0, 0)),
+				candidates);
+		assertTrue(moves.isEmpty());
+
+		// Overloaded kernel
+		moves = balancer.balance(
+				new KernelLoad(local, 20, 20, 0, 0),
+				Arrays.asList(new KernelLoad(remote1, 10, 0, 0, 0), new KernelLoad(remote2, 4, 0, 0, 0)),
+				candidates);
+		assertEquals(5, moves.size());
+		for(AgentAddress target : moves.values()) {
+			assertEquals(remote2, target);
+		}
+
+		moves = balancer.balance(
+				new KernelLoad(local, 20, 20, 0, 0),
+				Arrays.asList(new KernelLoad(remote1, 16, 0, 0, 0), new KernelLoad(remote2, 12, 0, 0, 0)),
+				candidates);
+		assertEquals(4, moves.size());
+
+		// No remote kernel
+		moves = balancer.balance(
+				new KernelLoad(local, 20, 20, 0, 0),
+				Collections.<KernelLoad>emptyList(),
+				candidates);
+		assertTrue(moves.isEmpty());
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testMigrateAgent() throws Exception {
+		KernelAgent kernel1 = createKernel();
+		KernelAgent kernel2 = createKernel();
+
+		MigrableAgentStub agent = new MigrableAgentStub(true);
+		AgentAddress adr = kernel1.toKernel().launchLightAgent(agent, "migrable"); //$NON-NLS-1$
+		assertNotNull(adr);
+		waitFor(kernel1, adr);
+		while (agent.lifeCount==0) {
+			Thread.sleep(10);
+		}
+
+		assertEquals(1, kernel1.toKernel().getLoad().getMigrableAgentCount());
+
+		Status s = kernel1.toKernel().migrateAgent(adr, kernel2.getAddress());
+		assertTrue(s.isSuccess());
+		assertFalse(kernel1.getKernelContext().getAgentRepository().contains(adr));
+		assertTrue(agent.hasMigrated());
+
+		waitFor(kernel2, adr);
+		Agent migrated = kernel2.getKernelContext().getAgentRepository().get(adr);
+		assertNotNull(migrated);
+		assertNotSame(agent, migrated);
+		assertEquals(adr, migrated.getAddress());
+		assertEquals("migrable", migrated.getAddress().getName()); //$NON-NLS-1$
+		assertFalse(migrated.hasMigrated());
+
+		MigrableAgentStub m = (MigrableAgentStub)migrated;
+		int count = m.lifeCount;
+		assertTrue(count>=agent.lifeCount);
+		long end = System.currentTimeMillis() + 10000;
+		while (m.lifeCount==count && System.currentTimeMillis()<end) {
+			Thread.sleep(10);
+		}
+		assertTrue(m.lifeCount>count);
+		// The agent is not activated again
+		assertEquals(1, m.activationCount);
+		assertEquals("value", m.getData()); //$NON-NLS-1$
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testMigrateAgent_lateMessages() throws Exception {
+		KernelAgent kernel1 = createKernel();
+		KernelAgent kernel2 = createKernel();
+
+		MigrableAgentStub agent = new MigrableAgentStub(true);
+		agent.lateMessage = "late"; //$NON-NLS-1$
+		AgentAddress adr = kernel1.toKernel().launchLightAgent(agent);
+		waitFor(kernel1, adr);
+		while (agent.lifeCount==0) {
+			Thread.sleep(10);
+		}
+
+		Status s = kernel1.toKernel().migrateAgent(adr, kernel2.getAddress());
+		assertTrue(s.isSuccess());
+
+		waitFor(kernel2, adr);
+		MigrableAgentStub migrated = (MigrableAgentStub)kernel2.getKernelContext().getAgentRepository().get(adr);
+		assertNotNull(migrated);
+		long end = System.currentTimeMillis() + 10000;
+		while (migrated.getMailbox().isEmpty() && System.currentTimeMillis()<end) {
+			Thread.sleep(10);
+		}
+		StringMessage message = migrated.getMailbox().removeFirst(
+				new TypeSelector<StringMessage>(StringMessage.class));
+		assertNotNull(message);
+		assertEquals("late", message.getContent()); //$NON-NLS-1$
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testMigrateAgent_sendFailure() throws Exception {
+		KernelAgent kernel1 = createKernel();
+		createKernel();
+
+		MigrableAgentStub agent = new MigrableAgentStub(true);
+		AgentAddress adr = kernel1.toKernel().launchLightAgent(agent);
+		waitFor(kernel1, adr);
+		while (agent.lifeCount==0) {
+			Thread.sleep(10);
+		}
+
+		// The target kernel cannot be reached
+		Status s = kernel1.toKernel().migrateAgent(adr, new AgentAddressStub());
+		assertTrue(s.isFailure());
+
+		// The original agent is resumed
+		assertSame(agent, kernel1.getKernelContext().getAgentRepository().get(adr));
+		assertFalse(agent.hasMigrated());
+		int count = agent.lifeCount;
+		long end = System.currentTimeMillis() + 10000;
+		while (agent.lifeCount==count && System.currentTimeMillis()<end) {
+			Thread.sleep(10);
+		}
+		assertTrue(agent.lifeCount>count);
+		assertEquals(1, agent.activationCount);
+		assertEquals("value", agent.getData()); //$NON-NLS-1$
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testMigrateAgent_notMigrable() throws Exception {
+		KernelAgent kernel1 = createKernel();
+		KernelAgent kernel2 = createKernel();
+
+		MigrableAgentStub agent = new MigrableAgentStub(false);
+		AgentAddress adr = kernel1.toKernel().launchLightAgent(agent);
+		waitFor(kernel1, adr);
+
+		Status s = kernel1.toKernel().migrateAgent(adr, kernel2.getAddress());
+		assertTrue(s.isFailure());
+		assertTrue(kernel1.getKernelContext().getAgentRepository().contains(adr));
+		assertFalse(agent.hasMigrated());
+
+		s = kernel1.toKernel().migrateAgent(new AgentAddressStub(), kernel2.getAddress());
+		assertTrue(s.isFailure());
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class MigrableAgentStub extends Agent {
+
+		private static final long serialVersionUID = 7651346513590486342L;
+
+		private final boolean canMigrate;
+		
+		/** Number of invocations of live().
+		 */
+		public volatile int lifeCount = 0;
+
+		/** Number of invocations of activate().
+		 */
+		public volatile int activationCount = 0;
+
+		/** Message received by the agent after its serialization.
+		 */
+		public transient String lateMessage = null;
+
+		/**
+		 * @param canMigrate
+		 */
+		public MigrableAgentStub(boolean canMigrate) {
+			this.canMigrate = canMigrate;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected boolean canMigrate() {
+			return this.canMigrate;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Status activate(Object... parameters) {
+			++this.activationCount;
+			putMemorizedData("data", "value"); //$NON-NLS-1$ //$NON-NLS-2$
+			return StatusFactory.ok(this);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Status live() {
+			++this.lifeCount;
+			return StatusFactory.ok(this);
+		}
+
+		/**
+		 * @return the memorized data.
+		 */
+		public String getData() {
+			return getMemorizedData("data", String.class); //$NON-NLS-1$
+		}
+
+		private void writeObject(ObjectOutputStream stream) throws IOException {
+			stream.defaultWriteObject();
+			if (this.lateMessage!=null) {
+				// The mailbox of the agent is already serialized
+				getMailbox().add(new StringMessage(this.lateMessage));
+			}
+		}
+
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private class LoopbackKernelAgentFactory implements KernelAgentFactory {
+
+		/**
+		 */
+		public LoopbackKernelAgentFactory() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public KernelAgent newInstance(Boolean commitSuicide,
+				AgentActivator activator, EventListener startUpListener,
+				String applicationName) throws Exception {
+			LoopbackHandler handler = new LoopbackHandler();
+			KernelAgent kernel = new KernelAgent(activator, commitSuicide, null,
+					startUpListener, handler, applicationName, new Object[0]);
+			handler.owner = kernel;
+			AgentMigrationTest.this.kernels.add(kernel);
+			return kernel;
+		}
+
+	}
+
+	/**
+	 * Distant kernel handler which delivers the messages
+	 * to the other kernels of the test.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private class LoopbackHandler implements DistantKernelHandler {
+
+		/** Kernel which is owning this handler.
+		 */
+		public volatile KernelAgent owner = null;
+
+		/**
+		 */
+		public LoopbackHandler() {
+			//
+		}
+
+		private List<KernelAgent> getRemoteKernelAgents() {
+			List<KernelAgent> remotes = new ArrayList<KernelAgent>();
+			synchronized(AgentMigrationTest.this.kernels) {
+				for(KernelAgent kernel : AgentMigrationTest.this.kernels) {
+					if (kernel!=this.owner) remotes.add(kernel);
+				}
+			}
+			return remotes;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isRemoteAddress(GroupAddress groupAddress, AgentAddress address) {
+			return false;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void informLocalRoleTaken(GroupAddress groupAddress, Class<? extends Role> role, AgentAddress agentAddress) {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void informLocalRoleReleased(GroupAddress groupAddress, Class<? extends Role> role, AgentAddress agentAddress) {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public RoleAddress getRemoteAddress(GroupAddress groupAddress) {
+			return null;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Address sendMessage(Message message) {
+			AgentAddress receiver = message.getReceiver();
+			for(KernelAgent kernel : getRemoteKernelAgents()) {
+				if (kernel.getAddress().equals(receiver)
+					|| kernel.getKernelContext().getAgentRepository().contains(receiver)) {
+					return kernel.forwardMessage(message);
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void broadcastMessage(Message message) {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public SizedIterator<AgentAddress> getRemoteKernels() {
+			List<AgentAddress> adrs = new ArrayList<AgentAddress>();
+			for(KernelAgent kernel : getRemoteKernelAgents()) {
+				adrs.add(kernel.getAddress());
+			}
+			return new UnmodifiableCollectionSizedIterator<AgentAddress>(adrs);
+		}
+
+	}
+
+}
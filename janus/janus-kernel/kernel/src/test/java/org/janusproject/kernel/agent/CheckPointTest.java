@@ -0,0 +1,326 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.logging.Level;
+
+import junit.framework.TestCase;
+
+import org.janusproject.kernel.Kernel;
+import org.janusproject.kernel.address.AgentAddress;
+import org.janusproject.kernel.condition.Condition;
+import org.janusproject.kernel.condition.ConditionFailure;
+import org.janusproject.kernel.crio.core.RolePlayer;
+import org.janusproject.kernel.logger.LoggerUtil;
+import org.janusproject.kernel.message.StringMessage;
+import org.janusproject.kernel.status.Status;
+import org.janusproject.kernel.status.StatusFactory;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class CheckPointTest extends TestCase {
+
+	private UUID kernelId;
+	private UUID agent1;
+	private UUID agent2;
+	private UUID group1;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		LoggerUtil.setGlobalLevel(Level.OFF);
+		this.kernelId = UUID.randomUUID();
+		this.agent1 = UUID.randomUUID();
+		this.agent2 = UUID.randomUUID();
+		this.group1 = UUID.randomUUID();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		this.kernelId = this.agent1 = this.agent2 = this.group1 = null;
+		super.tearDown();
+	}
+
+	private CheckPoint createFull() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream dos = new DataOutputStream(bytes);
+		CheckPoint.writeHeader(dos, this.kernelId, false, 0, 123);
+		CheckPoint.writeEntry(dos, CheckPoint.AGENT, this.agent1, new byte[] {1, 2});
+		CheckPoint.writeEntry(dos, CheckPoint.AGENT, this.agent2, new byte[] {3});
+		CheckPoint.writeEntry(dos, CheckPoint.GROUP, this.group1, new byte[] {4, 5, 6});
+		dos.writeByte(CheckPoint.END);
+		dos.close();
+		return CheckPoint.read(new ByteArrayInputStream(bytes.toByteArray()));
+	}
+
+	private CheckPoint createDelta(long sequence) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream dos = new DataOutputStream(bytes);
+		CheckPoint.writeHeader(dos, this.kernelId, true, sequence, 456);
+		CheckPoint.writeEntry(dos, CheckPoint.AGENT, this.agent1, new byte[] {7});
+		CheckPoint.writeEntry(dos, CheckPoint.REMOVED_AGENT, this.agent2, null);
+		dos.writeByte(CheckPoint.END);
+		dos.close();
+		return CheckPoint.read(new ByteArrayInputStream(bytes.toByteArray()));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testRead() throws Exception {
+		CheckPoint cp = createFull();
+		assertEquals(this.kernelId, cp.getKernelId());
+		assertFalse(cp.isDelta());
+		assertEquals(0, cp.getSequence());
+		assertEquals(123, cp.getCreationDate());
+		assertEquals(2, cp.getAgents().size());
+		assertTrue(cp.getAgents().contains(this.agent1));
+		assertTrue(cp.getAgents().contains(this.agent2));
+		assertEquals(1, cp.getGroups().size());
+		assertTrue(cp.getGroups().contains(this.group1));
+		assertTrue(cp.getRemovedAgents().isEmpty());
+		assertTrue(cp.getRemovedGroups().isEmpty());
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testReadInvalid() throws Exception {
+		try {
+			CheckPoint.read(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6}));
+			fail("expecting IOException"); //$NON-NLS-1$
+		}
+		catch(IOException _) {
+			// expected exception
+		}
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testApply() throws Exception {
+		CheckPoint cp = createFull();
+		CheckPoint delta = createDelta(1);
+		assertTrue(delta.isDelta());
+		assertEquals(1, delta.getRemovedAgents().size());
+
+		cp.apply(delta);
+		assertEquals(1, cp.getSequence());
+		assertEquals(456, cp.getCreationDate());
+		assertEquals(1, cp.getAgents().size());
+		assertTrue(cp.getAgents().contains(this.agent1));
+		assertEquals(1, cp.getGroups().size());
+
+		try {
+			cp.apply(createDelta(1));
+			fail("expecting IllegalArgumentException"); //$NON-NLS-1$
+		}
+		catch(IllegalArgumentException _) {
+			// expected exception
+		}
+	}
+
+	private static CheckPoint checkPoint(Kernel kernel) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		assertTrue(kernel.createIncrementalCheckPoint(bytes, true).isSuccess());
+		return CheckPoint.read(new ByteArrayInputStream(bytes.toByteArray()));
+	}
+
+	private static void waitForSleep(SleepingAgentStub... agents) throws InterruptedException {
+		long end = System.currentTimeMillis() + 10000;
+		for(SleepingAgentStub agent : agents) {
+			while ((agent.getAddress()==null || !agent.isSleeping())
+					&& System.currentTimeMillis()<end) {
+				Thread.sleep(10);
+			}
+			assertTrue(agent.isSleeping());
+		}
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testCreateIncrementalCheckPoint() throws Exception {
+		Kernels.shutdownNow();
+		try {
+			Kernel kernel = Kernels.get();
+			SleepingAgentStub a1 = new SleepingAgentStub();
+			SleepingAgentStub a2 = new SleepingAgentStub();
+			SleepingAgentStub a3 = new SleepingAgentStub();
+			AgentAddress adr1 = kernel.launchLightAgent(a1);
+			AgentAddress adr2 = kernel.launchLightAgent(a2);
+			AgentAddress adr3 = kernel.launchLightAgent(a3);
+			waitForSleep(a1, a2, a3);
+
+			CheckPoint full = checkPoint(kernel);
+			assertFalse(full.isDelta());
+			assertEquals(kernel.getAddress().getUUID(), full.getKernelId());
+			assertTrue(full.getAgents().contains(adr1.getUUID()));
+			assertTrue(full.getAgents().contains(adr2.getUUID()));
+			assertTrue(full.getAgents().contains(adr3.getUUID()));
+
+			// Sleeping agents are unchanged
+			CheckPoint delta = checkPoint(kernel);
+			assertTrue(delta.isDelta());
+			assertEquals(1, delta.getSequence());
+			assertFalse(delta.getAgents().contains(adr1.getUUID()));
+			assertFalse(delta.getAgents().contains(adr2.getUUID()));
+			assertFalse(delta.getAgents().contains(adr3.getUUID()));
+			assertTrue(delta.getRemovedAgents().isEmpty());
+			full.apply(delta);
+
+			// a3 sends a message to a1; a2 dies
+			a3.receiver = adr1;
+			a3.awake = true;
+			a2.stop = true;
+			long end = System.currentTimeMillis() + 10000;
+			while ((!a3.sent || !a3.isSleeping()
+					|| kernel.getKernelContext().getAgentRepository().contains(adr2))
+					&& System.currentTimeMillis()<end) {
+				Thread.sleep(10);
+			}
+			assertTrue(a3.sent);
+			assertFalse(kernel.getKernelContext().getAgentRepository().contains(adr2));
+
+			delta = checkPoint(kernel);
+			assertTrue(delta.isDelta());
+			assertEquals(2, delta.getSequence());
+			assertTrue(delta.getAgents().contains(adr1.getUUID()));
+			assertFalse(delta.getAgents().contains(adr2.getUUID()));
+			assertTrue(delta.getAgents().contains(adr3.getUUID()));
+			assertEquals(1, delta.getRemovedAgents().size());
+			assertTrue(delta.getRemovedAgents().contains(adr2.getUUID()));
+			full.apply(delta);
+			assertEquals(2, full.getSequence());
+			assertTrue(full.getAgents().contains(adr1.getUUID()));
+			assertFalse(full.getAgents().contains(adr2.getUUID()));
+			assertTrue(full.getAgents().contains(adr3.getUUID()));
+		}
+		finally {
+			Kernels.shutdownNow();
+		}
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class SleepingAgentStub extends Agent {
+
+		private static final long serialVersionUID = -2390419813659632584L;
+
+		/** Wake up the agent.
+		 */
+		public volatile boolean awake = false;
+
+		/** Kill the agent.
+		 */
+		public volatile boolean stop = false;
+
+		/** Receiver of the message to send when awake.
+		 */
+		public volatile AgentAddress receiver = null;
+
+		/** Indicates if the message was sent.
+		 */
+		public volatile boolean sent = false;
+
+		/**
+		 */
+		public SleepingAgentStub() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Status live() {
+			if (this.stop) {
+				return killMe();
+			}
+			if (this.awake) {
+				this.awake = false;
+				AgentAddress adr = this.receiver;
+				if (adr!=null) {
+					sendMessage(new StringMessage("wake up"), adr); //$NON-NLS-1$
+					this.sent = true;
+				}
+			}
+			sleep(new WakeUpCondition());
+			return StatusFactory.ok(this);
+		}
+
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class WakeUpCondition implements Condition<RolePlayer>, ConditionFailure {
+
+		private static final long serialVersionUID = 4873915436542796126L;
+
+		/**
+		 */
+		public WakeUpCondition() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean evaluate(RolePlayer object) {
+			SleepingAgentStub agent = (SleepingAgentStub)object;
+			return agent.awake || agent.stop;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public ConditionFailure evaluateFailure(RolePlayer object) {
+			return evaluate(object) ? null : this;
+		}
+
+	}
+
+}
@@ -0,0 +1,582 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+
+import junit.framework.TestCase;
+
+import org.janusproject.kernel.Kernel;
+import org.janusproject.kernel.address.AgentAddress;
+import org.janusproject.kernel.crio.core.CRIOContext;
+import org.janusproject.kernel.crio.core.GroupAddress;
+import org.janusproject.kernel.crio.core.Organization;
+import org.janusproject.kernel.crio.core.Role;
+import org.janusproject.kernel.logger.LoggerUtil;
+import org.janusproject.kernel.message.Message;
+import org.janusproject.kernel.message.StringMessage;
+import org.janusproject.kernel.status.Status;
+import org.janusproject.kernel.status.StatusFactory;
+import org.janusproject.kernel.time.ConstantKernelTimeManager;
+import org.janusproject.kernel.util.sizediterator.SizedIterator;
+import org.janusproject.kernel.util.random.RandomNumber;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class DeterministicAgentActivatorTest extends TestCase {
+
+	private static final int AGENT_COUNT = 12;
+	private static final int STEP_COUNT = 20;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		LoggerUtil.setGlobalLevel(Level.OFF);
+		Kernels.shutdownNow();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		Kernels.shutdownNow();
+		super.tearDown();
+	}
+
+	private static String runSimulation(long seed) throws Exception {
+		ConstantKernelTimeManager timeManager = new ConstantKernelTimeManager(1f);
+		DeterministicAgentActivator activator = new DeterministicAgentActivator(seed, 4, timeManager);
+		Kernel kernel = Kernels.create(Boolean.FALSE, activator, timeManager);
+		LauncherAgentStub launcher = new LauncherAgentStub();
+		kernel.launchLightAgent(launcher);
+		long end = System.currentTimeMillis() + 30000;
+		while (!launcher.isFinished() && System.currentTimeMillis()<end) {
+			Thread.sleep(10);
+		}
+		assertTrue(launcher.isFinished());
+		Kernels.shutdownNow();
+		return launcher.getTrace();
+	}
+
+	/**
+	 */
+	public void testCreateStream() {
+		Random r1 = RandomNumber.createStream(1234, 5);
+		Random r2 = RandomNumber.createStream(1234, 5);
+		Random r3 = RandomNumber.createStream(1234, 6);
+		long v1 = r1.nextLong();
+		assertEquals(v1, r2.nextLong());
+		assertTrue(v1!=r3.nextLong());
+
+		// The streams are not shifted parts of the same sequence
+		Set<Long> values = new HashSet<Long>();
+		Random r4 = RandomNumber.createStream(1234, 5);
+		for(int i=0; i<10000; ++i) {
+			values.add(Long.valueOf(r4.nextLong()));
+		}
+		Random r5 = RandomNumber.createStream(1234, 6);
+		for(int i=0; i<10000; ++i) {
+			assertFalse(values.contains(Long.valueOf(r5.nextLong())));
+		}
+
+		// The identifiers are not drawn from the random stream
+		assertTrue(RandomNumber.createStream(1234, 5).nextLong()!=RandomNumber.createIdentifierStream(1234, 5).nextLong());
+	}
+
+	/**
+	 */
+	public void testLocalRandom() {
+		Random r = RandomNumber.createStream(1234, 0);
+		RandomNumber.setLocalRandom(r);
+		try {
+			assertSame(r, RandomNumber.getRandom());
+			assertEquals(RandomNumber.createStream(1234, 0).nextInt(), RandomNumber.nextInt());
+		}
+		finally {
+			RandomNumber.setLocalRandom(null);
+		}
+		assertSame(RandomNumber.RANDOM, RandomNumber.getRandom());
+	}
+
+	/**
+	 */
+	public void testLocalIdentifierStream() {
+		Random r = RandomNumber.createStream(1234, 0);
+		RandomNumber.setLocalRandom(r);
+		RandomNumber.setLocalIdentifierStream(RandomNumber.createIdentifierStream(1234, 0));
+		try {
+			UUID id1 = RandomNumber.randomUUID();
+			UUID id2 = RandomNumber.randomUUID();
+			assertEquals(4, id1.version());
+			assertFalse(id1.equals(id2));
+			// The random stream is not used by the identifiers
+			assertEquals(RandomNumber.createStream(1234, 0).nextInt(), RandomNumber.nextInt());
+
+			RandomNumber.setLocalIdentifierStream(RandomNumber.createIdentifierStream(1234, 0));
+			assertEquals(id1, RandomNumber.randomUUID());
+			assertEquals(id2, RandomNumber.randomUUID());
+		}
+		finally {
+			RandomNumber.setLocalIdentifierStream(null);
+			RandomNumber.setLocalRandom(null);
+		}
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testReproducibility() throws Exception {
+		String trace1 = runSimulation(42);
+		String trace2 = runSimulation(42);
+		assertEquals(trace1, trace2);
+		String trace3 = runSimulation(43);
+		assertFalse(trace1.equals(trace3));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testRolesChangedDuringStep() throws Exception {
+		ConstantKernelTimeManager timeManager = new ConstantKernelTimeManager(1f);
+		DeterministicAgentActivator activator = new DeterministicAgentActivator(42, 4, timeManager);
+		Kernel kernel = Kernels.create(Boolean.FALSE, activator, timeManager);
+		SpeakerAgentStub speaker = new SpeakerAgentStub(activator);
+		kernel.launchLightAgent(speaker);
+		long end = System.currentTimeMillis() + 30000;
+		while (activator.getStep()<=SpeakerAgentStub.SPEAKING_STEP+2 && System.currentTimeMillis()<end) {
+			Thread.sleep(10);
+		}
+		Kernels.shutdownNow();
+		assertEquals(AGENT_COUNT, speaker.listeners.size());
+		// The listeners which have taken the role during the step
+		// of the broadcast have received the message
+		for(ListenerAgentStub listener : speaker.listeners) {
+			assertEquals(Collections.singletonList("hello"), listener.received); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class LauncherAgentStub extends Agent {
+
+		private static final long serialVersionUID = 3108856224829766127L;
+
+		private final List<AgentAddress> peers = new ArrayList<AgentAddress>();
+		private final List<WalkerAgentStub> walkers = new ArrayList<WalkerAgentStub>();
+		private GroupAddress group = null;
+
+		/**
+		 */
+		public LauncherAgentStub() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Status activate(Object... parameters) {
+			this.group = getOrCreateGroup(WalkerOrganizationStub.class);
+			for(int i=0; i<AGENT_COUNT; ++i) {
+				WalkerAgentStub walker = new WalkerAgentStub(this.peers, this.group);
+				this.walkers.add(walker);
+				this.peers.add(launchLightAgent(walker, "walker"+i)); //$NON-NLS-1$
+			}
+			return StatusFactory.ok(this);
+		}
+
+		/**
+		 * @return <code>true</code> if all the walkers have finished.
+		 */
+		public boolean isFinished() {
+			if (this.walkers.size()<AGENT_COUNT) return false;
+			for(WalkerAgentStub walker : this.walkers) {
+				if (!walker.finished) return false;
+			}
+			return true;
+		}
+
+		/**
+		 * @return the trace of all the walkers.
+		 */
+		public String getTrace() {
+			StringBuilder b = new StringBuilder();
+			b.append(this.group.getUUID());
+			b.append('\n');
+			for(WalkerAgentStub walker : this.walkers) {
+				b.append(walker.getAddress().getUUID());
+				b.append('=');
+				b.append(walker.trace);
+				b.append('\n');
+			}
+			return b.toString();
+		}
+
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class WalkerAgentStub extends Agent {
+
+		private static final long serialVersionUID = -8410254366734418453L;
+
+		private final List<AgentAddress> peers;
+		private final GroupAddress group;
+		private int step = 0;
+
+		/** Trace of the walker.
+		 */
+		public final StringBuilder trace = new StringBuilder();
+
+		/** Indicates if the walker has finished.
+		 */
+		public volatile boolean finished = false;
+
+		/**
+		 * @param peers
+		 * @param group is the group in which the walker is playing a role.
+		 */
+		public WalkerAgentStub(List<AgentAddress> peers, GroupAddress group) {
+			this.peers = peers;
+			this.group = group;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Status activate(Object... parameters) {
+			if (requestRole(WalkerRoleStub.class, this.group, this.trace)==null) {
+				return StatusFactory.cancel(this);
+			}
+			return StatusFactory.ok(this);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Status live() {
+			if (this.step<STEP_COUNT) {
+				Message m;
+				while ((m = getMessage())!=null) {
+					this.trace.append(((StringMessage)m).getContent());
+					this.trace.append(';');
+				}
+				int value = RandomNumber.nextInt(1000);
+				this.trace.append('|');
+				this.trace.append(value);
+				this.trace.append('|');
+				AgentAddress target = this.peers.get(RandomNumber.nextInt(this.peers.size()));
+				sendMessage(new StringMessage(getName()+":"+this.step+":"+value), target); //$NON-NLS-1$ //$NON-NLS-2$
+				++this.step;
+				// Run the role
+				return super.live();
+			}
+			else {
+				this.finished = true;
+			}
+			return StatusFactory.ok(this);
+		}
+
+	}
+
+	/**
+	 * Agent which is launching the listeners and which is broadcasting
+	 * a message when they are taking their roles.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class SpeakerAgentStub extends Agent {
+
+		private static final long serialVersionUID = -2169409412733524213L;
+
+		/** Step during which the message is broadcast.
+		 */
+		public static final long SPEAKING_STEP = 3;
+
+		private final DeterministicAgentActivator activator;
+
+		/** Launched listeners.
+		 */
+		public final List<ListenerAgentStub> listeners = new ArrayList<ListenerAgentStub>();
+
+		/**
+		 * @param activator
+		 */
+		public SpeakerAgentStub(DeterministicAgentActivator activator) {
+			this.activator = activator;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Status activate(Object... parameters) {
+			GroupAddress group = getOrCreateGroup(BroadcastOrganizationStub.class);
+			if (requestRole(SpeakerRoleStub.class, group, this.activator)==null) {
+				return StatusFactory.cancel(this);
+			}
+			for(int i=0; i<AGENT_COUNT; ++i) {
+				ListenerAgentStub listener = new ListenerAgentStub(this.activator, group);
+				this.listeners.add(listener);
+				launchLightAgent(listener, "listener"+i); //$NON-NLS-1$
+			}
+			return StatusFactory.ok(this);
+		}
+
+	}
+
+	/**
+	 * Agent which is taking its role during the step of the broadcast.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class ListenerAgentStub extends Agent {
+
+		private static final long serialVersionUID = 4573520937870045102L;
+
+		private final DeterministicAgentActivator activator;
+		private final GroupAddress group;
+
+		/** Contents of the received messages.
+		 */
+		public final List<String> received = new ArrayList<String>();
+
+		/**
+		 * @param activator
+		 * @param group
+		 */
+		public ListenerAgentStub(DeterministicAgentActivator activator, GroupAddress group) {
+			this.activator = activator;
+			this.group = group;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Status live() {
+			if (this.activator.getStep()==SpeakerAgentStub.SPEAKING_STEP) {
+				requestRole(ListenerRoleStub.class, this.group, this.received);
+			}
+			return super.live();
+		}
+
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	public static class BroadcastOrganizationStub extends Organization {
+
+		/**
+		 * @param context
+		 */
+		public BroadcastOrganizationStub(CRIOContext context) {
+			super(context);
+			addRole(SpeakerRoleStub.class);
+			addRole(ListenerRoleStub.class);
+		}
+
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	public static class SpeakerRoleStub extends Role {
+
+		private DeterministicAgentActivator activator = null;
+
+		/**
+		 */
+		public SpeakerRoleStub() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Status activate(Object... parameters) {
+			this.activator = (DeterministicAgentActivator)parameters[0];
+			return StatusFactory.ok(this);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Status live() {
+			if (this.activator.getStep()==SpeakerAgentStub.SPEAKING_STEP) {
+				broadcastMessage(ListenerRoleStub.class, new StringMessage("hello")); //$NON-NLS-1$
+			}
+			return StatusFactory.ok(this);
+		}
+
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	public static class ListenerRoleStub extends Role {
+
+		private List<String> received = null;
+
+		/**
+		 */
+		public ListenerRoleStub() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("unchecked")
+		@Override
+		public Status activate(Object... parameters) {
+			this.received = (List<String>)parameters[0];
+			return StatusFactory.ok(this);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Status live() {
+			Message m;
+			while ((m = getMessage())!=null) {
+				this.received.add(((StringMessage)m).getContent());
+			}
+			return StatusFactory.ok(this);
+		}
+
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	public static class WalkerOrganizationStub extends Organization {
+
+		/**
+		 * @param context
+		 */
+		public WalkerOrganizationStub(CRIOContext context) {
+			super(context);
+			addRole(WalkerRoleStub.class);
+		}
+
+	}
+
+	/**
+	 * Role which is tracing the group membership and the role messages.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	public static class WalkerRoleStub extends Role {
+
+		private StringBuilder trace = null;
+
+		/**
+		 */
+		public WalkerRoleStub() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Status activate(Object... parameters) {
+			this.trace = (StringBuilder)parameters[0];
+			return StatusFactory.ok(this);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Status live() {
+			Message m;
+			while ((m = getMessage())!=null) {
+				this.trace.append('<');
+				this.trace.append(m.getSender().getUUID());
+				this.trace.append(((StringMessage)m).getContent());
+				this.trace.append('>');
+			}
+			this.trace.append('[');
+			SizedIterator<AgentAddress> players = getPlayers();
+			while (players.hasNext()) {
+				this.trace.append(players.next().getUUID());
+				this.trace.append(',');
+			}
+			this.trace.append(']');
+			sendMessage(WalkerRoleStub.class, new StringMessage(getAddress().getUUID().toString()));
+			return StatusFactory.ok(this);
+		}
+
+	}
+
+}
@@ -20,6 +20,9 @@
  */
 package org.janusproject.kernel.agent;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
@@ -27,7 +30,10 @@ import java.util.logging.Level;
 import junit.framework.TestCase;
 
 import org.arakhne.afc.vmutil.locale.Locale;
+import org.janusproject.kernel.BulkKernelListener;
 import org.janusproject.kernel.Kernel;
+import org.janusproject.kernel.KernelAdapter;
+import org.janusproject.kernel.KernelEvent;
 import org.janusproject.kernel.address.Address;
 import org.janusproject.kernel.address.AgentAddress;
 import org.janusproject.kernel.configuration.JanusProperties;
@@ -299,6 +305,65 @@ public class KernelAgentTest extends TestCase {
 		assertSame(this.agent, h.kernel.get());
 	}
 
+	/**
+	 * @throws Exception
+	 */
+	public void testLaunchLightAgentsAgentAddressCollectionAgentActivatorObjectArray() throws Exception {
+		AgentAddress adr = new AgentAddressStub();
+		AgentStub launched = new AgentStub(false);
+		this.agent.launchLightAgent(launched);
+		
+		AgentStub h1 = new AgentStub(false);
+		AgentStub h2 = new AgentStub(false);
+		AgentStub h3 = new AgentStub(false);
+		
+		final List<KernelEvent> bulkEvents = new ArrayList<KernelEvent>();
+		final List<KernelEvent> events = new ArrayList<KernelEvent>();
+		this.agent.addKernelListener(new BulkListener(bulkEvents));
+		this.agent.addKernelListener(new KernelAdapter() {
+			@Override
+			public void agentLaunched(KernelEvent event) {
+				events.add(event);
+			}
+		});
+
+		List<AgentAddress> addresses = this.agent.launchLightAgents(
+				adr, // creator
+				Arrays.asList(h1, launched, h2, h3), // new agents
+				null, // activator
+				null); // initialization parameters
+		
+		assertEquals(
+				Arrays.asList(h1.getAddress(), launched.getAddress(), h2.getAddress(), h3.getAddress()),
+				addresses);
+		
+		assertEquals(1, bulkEvents.size());
+		assertEquals(
+				Arrays.asList(h1.getAddress(), h2.getAddress(), h3.getAddress()),
+				new ArrayList<AgentAddress>(bulkEvents.get(0).getAgents()));
+		assertEquals(3, events.size());
+		assertEquals(h1.getAddress(), events.get(0).getAgent());
+		assertEquals(h2.getAddress(), events.get(1).getAgent());
+		assertEquals(h3.getAddress(), events.get(2).getAgent());
+
+		for(AgentStub h : new AgentStub[] {h1, h2, h3}) {
+			while (!h.isInit.get()) {
+				Thread.yield();
+			}
+		}
+		
+		Thread.sleep(500);
+		
+		for(AgentStub h : new AgentStub[] {h1, h2, h3}) {
+			assertEquals(adr, h.creator);
+			assertSame(AgentLifeState.ALIVE, h.getState());
+			assertTrue(h.isLightAgent());
+			assertSame(this.agent, h.kernel.get());
+			assertSame(h, this.agent.getKernelContext().getAgentRepository().get(h.getAddress()));
+		}
+		assertNull(launched.creator);
+	}
+
 	/**
 	 * @throws TimeoutException 
 	 */
@@ -672,6 +737,35 @@ public class KernelAgentTest extends TestCase {
 
 	}
 	
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class BulkListener extends KernelAdapter implements BulkKernelListener {
+		
+		private final List<KernelEvent> events;
+		
+		/**
+		 * @param events
+		 */
+		public BulkListener(List<KernelEvent> events) {
+			this.events = events;
+		}
+
+		@Override
+		public void agentLaunched(KernelEvent event) {
+			fail("single event received by a bulk listener"); //$NON-NLS-1$
+		}
+
+		@Override
+		public void agentsLaunched(KernelEvent event) {
+			this.events.add(event);
+		}
+		
+	}
+
 	/**
 	 * @author $Author: sgalland$
 	 * @version $FullVersion$
@@ -271,6 +271,33 @@ public class KernelEventTest extends TestCase {
 			return null;
 		}
 
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public List<AgentAddress> launchLightAgents(
+				Collection<? extends Agent> agents, Object... initParams) {
+			return null;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public List<AgentAddress> launchLightAgents(
+				Collection<? extends Agent> agents, AgentActivator activator, Object... initParams) {
+			return null;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public List<AgentAddress> launchLightAgents(
+				AgentFactory factory, int count, Object... initParams) {
+			return null;
+		}
+
 		/**
 		 * {@inheritDoc}
 		 */
@@ -611,6 +638,41 @@ public class KernelEventTest extends TestCase {
 			throw new UnsupportedOperationException();
 		}
 
+		/** {@inheritDoc}
+		 */
+		@Override
+		public Status createIncrementalCheckPoint(OutputStream stream, boolean delta) throws IOException {
+			throw new UnsupportedOperationException();
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public Status migrateAgent(AgentAddress agent, AgentAddress kernel) {
+			throw new UnsupportedOperationException();
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public void setLoadBalancer(LoadBalancer balancer) {
+			throw new UnsupportedOperationException();
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public LoadBalancer getLoadBalancer() {
+			throw new UnsupportedOperationException();
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public KernelLoad getLoad() {
+			throw new UnsupportedOperationException();
+		}
+
 	}
 	
 }
@@ -0,0 +1,230 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agent;
+
+import java.util.UUID;
+import java.util.logging.Level;
+
+import junit.framework.TestCase;
+
+import org.janusproject.kernel.address.AgentAddress;
+import org.janusproject.kernel.crio.core.AddressUtil;
+import org.janusproject.kernel.crio.core.GroupAddress;
+import org.janusproject.kernel.logger.LoggerUtil;
+import org.janusproject.kernel.message.Message;
+import org.janusproject.kernel.message.StringMessage;
+import org.janusproject.kernel.status.Status;
+import org.janusproject.kernel.status.StatusFactory;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class KernelShardsTest extends TestCase {
+
+	private KernelShards shards;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		LoggerUtil.setGlobalLevel(Level.OFF);
+		Kernels.shutdownNow();
+		this.shards = null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		Kernels.shutdownNow();
+		this.shards = null;
+		super.tearDown();
+	}
+
+	private static void waitFor(KernelAgent kernel, AgentAddress agent) throws InterruptedException {
+		long end = System.currentTimeMillis() + 10000;
+		while (!kernel.getKernelContext().getAgentRepository().contains(agent)
+				&& System.currentTimeMillis()<end) {
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 */
+	public void testOrganizationShardSelector() {
+		OrganizationShardSelector selector = new OrganizationShardSelector();
+		int s1 = selector.selectShard(Organization1Stub.class, 4);
+		assertTrue(s1>=0 && s1<4);
+		assertEquals(s1, selector.selectShard(Organization1Stub.class, 4));
+		int s2 = selector.selectShard(Organization2Stub.class, 4);
+		assertTrue(s2>=0 && s2<4);
+
+		selector.assign(Organization1Stub.class, 3);
+		assertEquals(3, selector.selectShard(Organization1Stub.class, 4));
+		assertEquals(1, selector.selectShard(Organization1Stub.class, 2));
+		assertEquals(s2, selector.selectShard(Organization2Stub.class, 4));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testShards() throws Exception {
+		OrganizationShardSelector selector = new OrganizationShardSelector();
+		selector.assign(Organization1Stub.class, 0);
+		selector.assign(Organization2Stub.class, 1);
+		this.shards = new KernelShards(2, selector);
+
+		assertEquals(2, this.shards.getShardCount());
+		assertSame(selector, this.shards.getShardSelector());
+		assertSame(this.shards.getShard(0), this.shards.getShard(Organization1Stub.class));
+		assertSame(this.shards.getShard(1), this.shards.getShard(Organization2Stub.class));
+		assertNotSame(this.shards.getShard(0), this.shards.getShard(1));
+		assertNotSame(
+				this.shards.getShardAgent(0).getCRIOContext(),
+				this.shards.getShardAgent(1).getCRIOContext());
+		assertEquals(1, this.shards.getShardAgent(0).getKernelContext().getDistantKernelHandler().getRemoteKernels().totalSize());
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testCreateGroup() throws Exception {
+		OrganizationShardSelector selector = new OrganizationShardSelector();
+		selector.assign(Organization1Stub.class, 1);
+		this.shards = new KernelShards(2, selector);
+
+		GroupAddress group1 = this.shards.createGroup(Organization1Stub.class);
+		assertNotNull(group1);
+		assertTrue(this.shards.getShardAgent(1).getCRIOContext().getGroupAddresses().contains(group1));
+		assertFalse(this.shards.getShardAgent(0).getCRIOContext().getGroupAddresses().contains(group1));
+		assertSame(this.shards.getShard(1), this.shards.getShardOf(group1));
+
+		GroupAddress group2 = this.shards.createGroup(Organization1Stub.class, "g2"); //$NON-NLS-1$
+		assertNotNull(group2);
+		assertNotSame(group1, group2);
+		assertSame(this.shards.getShard(1), this.shards.getShardOf(group2));
+
+		GroupAddress group3 = this.shards.getOrCreateGroup(Organization1Stub.class);
+		assertSame(this.shards.getShard(1), this.shards.getShardOf(group3));
+		assertTrue(group3.equals(group1) || group3.equals(group2));
+		assertNull(this.shards.getShardOf(AddressUtil.createGroupAddress(UUID.randomUUID(), Organization1Stub.class)));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testCrossShardMessage() throws Exception {
+		this.shards = new KernelShards(2);
+
+		ReceiverAgentStub receiver = new ReceiverAgentStub();
+		AgentAddress receiverAdr = this.shards.getShard(1).launchLightAgent(receiver);
+		waitFor(this.shards.getShardAgent(1), receiverAdr);
+		assertSame(this.shards.getShard(1), this.shards.getShardOf(receiverAdr));
+
+		SenderAgentStub sender = new SenderAgentStub(receiverAdr);
+		AgentAddress senderAdr = this.shards.getShard(0).launchLightAgent(sender);
+		waitFor(this.shards.getShardAgent(0), senderAdr);
+		assertSame(this.shards.getShard(0), this.shards.getShardOf(senderAdr));
+
+		long end = System.currentTimeMillis() + 10000;
+		while (receiver.received==null && System.currentTimeMillis()<end) {
+			Thread.sleep(10);
+		}
+		assertNotNull(receiver.received);
+		assertEquals("hello", receiver.received.getContent()); //$NON-NLS-1$
+		assertEquals(senderAdr, receiver.received.getSender());
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class SenderAgentStub extends Agent {
+
+		private static final long serialVersionUID = -2815040236461286651L;
+
+		private final AgentAddress receiver;
+		private boolean sent = false;
+
+		/**
+		 * @param receiver
+		 */
+		public SenderAgentStub(AgentAddress receiver) {
+			this.receiver = receiver;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Status live() {
+			if (!this.sent) {
+				this.sent = true;
+				sendMessage(new StringMessage("hello"), this.receiver); //$NON-NLS-1$
+			}
+			return StatusFactory.ok(this);
+		}
+
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class ReceiverAgentStub extends Agent {
+
+		private static final long serialVersionUID = 2931861466470584632L;
+
+		/** Received message.
+		 */
+		public volatile StringMessage received = null;
+
+		/**
+		 */
+		public ReceiverAgentStub() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Status live() {
+			Message m = getMessage();
+			if (m instanceof StringMessage) {
+				this.received = (StringMessage)m;
+			}
+			return StatusFactory.ok(this);
+		}
+
+	}
+
+}
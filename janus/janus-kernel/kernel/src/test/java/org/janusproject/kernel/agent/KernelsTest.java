@@ -35,6 +35,8 @@ import org.janusproject.kernel.agent.AgentLifeState;
 import org.janusproject.kernel.agent.KernelAgent;
 import org.janusproject.kernel.agent.Kernels;
 import org.janusproject.kernel.logger.LoggerUtil;
+import org.janusproject.kernel.util.reflect.ClassMetadata;
+import org.janusproject.kernel.util.reflect.ClassMetadataRegistry;
 import junit.framework.TestCase;
 
 /**
@@ -286,6 +288,28 @@ public class KernelsTest extends TestCase {
 		h.removeAgentLifeStateListener(l);
 	}
 
+	/**
+	 * @throws Exception
+	 */
+	public void testRemove_releaseClassMetadata() throws Exception {
+		KernelAgent h = new KernelAgent(new AgentActivator(), false, null, null);
+		
+		AgentListener l = new AgentListener(h.getState());
+		h.addAgentLifeStateListener(l);
+		assertAlive(l);
+		
+		ClassMetadata m = ClassMetadataRegistry.get(KernelsTest.class);
+		assertSame(m, ClassMetadataRegistry.get(KernelsTest.class));
+		
+		h.killMe();
+		
+		assertDead(l);
+		assertFalse(ClassMetadataRegistry.getClasses().contains(KernelsTest.class));
+		assertNotSame(m, ClassMetadataRegistry.get(KernelsTest.class));
+
+		h.removeAgentLifeStateListener(l);
+	}
+
 	/**
 	 */
 	public static void testGetAgentAddress() {
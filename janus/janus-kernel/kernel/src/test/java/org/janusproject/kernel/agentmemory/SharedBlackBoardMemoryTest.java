@@ -0,0 +1,133 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agentmemory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class SharedBlackBoardMemoryTest extends TestCase {
+
+	private static final MemoryKey<Integer> COUNT = MemoryKey.get("SharedBlackBoardMemoryTest.count", Integer.class); //$NON-NLS-1$
+	private static final MemoryKey<String> NAME = MemoryKey.get("SharedBlackBoardMemoryTest.name", String.class); //$NON-NLS-1$
+
+	private SharedBlackBoardMemory memory;
+	
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		this.memory = new SharedBlackBoardMemory();
+	}
+	
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		this.memory = null;
+		super.tearDown();
+	}	
+
+	/**
+	 */
+	public void testVersion() {
+		assertEquals(0, this.memory.getVersion(NAME));
+		assertTrue(this.memory.compareAndPutMemorizedData(NAME, 0, "a")); //$NON-NLS-1$
+		assertEquals(1, this.memory.getVersion(NAME));
+		assertFalse(this.memory.compareAndPutMemorizedData(NAME, 0, "b")); //$NON-NLS-1$
+		assertEquals("a", this.memory.getMemorizedData(NAME)); //$NON-NLS-1$
+		assertTrue(this.memory.compareAndPutMemorizedData(NAME, 1, "c")); //$NON-NLS-1$
+		assertEquals("c", this.memory.getMemorizedData(NAME.getName())); //$NON-NLS-1$
+		
+		this.memory.removeMemorizedData(NAME);
+		assertFalse(this.memory.hasMemorizedData(NAME));
+		assertEquals(3, this.memory.getVersion(NAME));
+	}
+
+	/**
+	 */
+	public void testUntypedKey() {
+		String name = "SharedBlackBoardMemoryTest.untyped"; //$NON-NLS-1$
+		assertTrue(this.memory.putMemorizedData(name, "a")); //$NON-NLS-1$
+		
+		// The untyped knowledge does not prevent the creation of a typed key
+		MemoryKey<Integer> key = MemoryKey.get(name, Integer.class);
+		assertFalse(this.memory.hasMemorizedData(key));
+		assertEquals("a", this.memory.getMemorizedData(name)); //$NON-NLS-1$
+		
+		assertTrue(this.memory.putMemorizedData(name, Integer.valueOf(4)));
+		assertEquals(4, this.memory.getMemorizedInt(key, -1));
+		assertEquals(Integer.valueOf(4), this.memory.getMemorizedData(name));
+		
+		this.memory.removeMemorizedData(name);
+		assertFalse(this.memory.hasMemorizedData(name));
+	}
+
+	/**
+	 */
+	public void testListener() {
+		MemoryListenerStub listener = new MemoryListenerStub();
+		this.memory.addMemoryListener(listener);
+		this.memory.putMemorizedInt(COUNT, 3);
+		listener.assertEquals(COUNT.getName());
+		this.memory.putMemorizedData(NAME, "a"); //$NON-NLS-1$
+		listener.assertEquals(NAME.getName());
+		this.memory.removeMemoryListener(listener);
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testAddAndGetMemorizedInt_concurrent() throws Exception {
+		final int threadCount = 4;
+		final int increments = 10000;
+		List<Thread> threads = new ArrayList<Thread>();
+		for(int i=0; i<threadCount; ++i) {
+			Thread t = new Thread() {
+				@SuppressWarnings("synthetic-access")
+				@Override
+				public void run() {
+					for(int j=0; j<increments; ++j) {
+						SharedBlackBoardMemoryTest.this.memory.addAndGetMemorizedInt(COUNT, 1);
+					}
+				}
+			};
+			threads.add(t);
+			t.start();
+		}
+		for(Thread t : threads) {
+			t.join();
+		}
+		assertEquals(threadCount*increments, this.memory.getMemorizedInt(COUNT, 0));
+		assertEquals(threadCount*increments, this.memory.getVersion(COUNT));
+	}
+
+}
@@ -0,0 +1,191 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agentmemory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class TypedBlackBoardMemoryTest extends TestCase {
+
+	private static final MemoryKey<Integer> COUNT = MemoryKey.get("TypedBlackBoardMemoryTest.count", Integer.class); //$NON-NLS-1$
+	private static final MemoryKey<Double> RATE = MemoryKey.get("TypedBlackBoardMemoryTest.rate", Double.class); //$NON-NLS-1$
+	private static final MemoryKey<String> NAME = MemoryKey.get("TypedBlackBoardMemoryTest.name", String.class); //$NON-NLS-1$
+
+	private TypedBlackBoardMemory memory;
+	private MemoryListenerStub listener;
+	
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		this.memory = new TypedBlackBoardMemory();
+		this.listener = new MemoryListenerStub();
+		this.memory.addMemoryListener(this.listener);
+	}
+	
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		this.memory.removeMemoryListener(this.listener);
+		this.listener = null;
+		this.memory = null;
+		super.tearDown();
+	}	
+
+	/**
+	 */
+	public void testMemoryKeyGet() {
+		assertSame(COUNT, MemoryKey.get("TypedBlackBoardMemoryTest.count", Integer.class)); //$NON-NLS-1$
+		try {
+			MemoryKey.get("TypedBlackBoardMemoryTest.count", Long.class); //$NON-NLS-1$
+			fail("a key cannot have two types"); //$NON-NLS-1$
+		}
+		catch(IllegalArgumentException _) {
+			//
+		}
+	}
+
+	/**
+	 */
+	public void testPrimitive() {
+		assertEquals(-1, this.memory.getMemorizedInt(COUNT, -1));
+		assertFalse(this.memory.hasMemorizedData(COUNT));
+		
+		this.memory.putMemorizedInt(COUNT, 12);
+		this.listener.assertEquals(COUNT.getName());
+		assertEquals(12, this.memory.getMemorizedInt(COUNT, -1));
+		assertEquals(Integer.valueOf(12), this.memory.getMemorizedData(COUNT));
+		assertEquals(Integer.valueOf(12), this.memory.getMemorizedData(COUNT.getName()));
+		
+		this.memory.putMemorizedDouble(RATE, .5);
+		assertEquals(.5, this.memory.getMemorizedDouble(RATE, 0.), 0.);
+		assertEquals(2, this.memory.size());
+		
+		assertTrue(this.memory.putMemorizedData(COUNT.getName(), Integer.valueOf(13)));
+		assertEquals(13, this.memory.getMemorizedInt(COUNT, -1));
+		assertFalse(this.memory.putMemorizedData(COUNT.getName(), "a")); //$NON-NLS-1$
+		
+		this.memory.removeMemorizedData(COUNT);
+		this.listener.assertEquals(COUNT.getName());
+		assertEquals(-1, this.memory.getMemorizedInt(COUNT, -1));
+		assertEquals(1, this.memory.size());
+	}
+
+	/**
+	 */
+	public void testObject() {
+		assertNull(this.memory.getMemorizedData(NAME));
+		assertTrue(this.memory.putMemorizedData(NAME, "a")); //$NON-NLS-1$
+		this.listener.assertEquals(NAME.getName());
+		assertEquals("a", this.memory.getMemorizedData(NAME)); //$NON-NLS-1$
+		assertTrue(this.memory.hasMemorizedData(NAME.getName()));
+		
+		assertTrue(this.memory.putMemorizedData("TypedBlackBoardMemoryTest.other", Boolean.TRUE)); //$NON-NLS-1$
+		assertSame(Boolean.TRUE, this.memory.getMemorizedData("TypedBlackBoardMemoryTest.other")); //$NON-NLS-1$
+
+		assertTrue(this.memory.putMemorizedData(NAME, null));
+		this.listener.assertEquals(NAME.getName());
+		assertFalse(this.memory.hasMemorizedData(NAME));
+	}
+
+	/**
+	 */
+	public void testUntypedKey() {
+		String name = "TypedBlackBoardMemoryTest.untyped"; //$NON-NLS-1$
+		assertTrue(this.memory.putMemorizedData(name, "a")); //$NON-NLS-1$
+		this.listener.assertEquals(name);
+		
+		// The untyped knowledge does not prevent the creation of a typed key
+		MemoryKey<Integer> key = MemoryKey.get(name, Integer.class);
+		assertFalse(this.memory.hasMemorizedData(key));
+		assertEquals("a", this.memory.getMemorizedData(name)); //$NON-NLS-1$
+		
+		// The untyped knowledge is replaced by the typed knowledge
+		assertFalse(this.memory.putMemorizedData(name, "b")); //$NON-NLS-1$
+		assertTrue(this.memory.putMemorizedData(name, Integer.valueOf(4)));
+		assertEquals(4, this.memory.getMemorizedInt(key, -1));
+		assertEquals(Integer.valueOf(4), this.memory.getMemorizedData(name));
+		assertEquals(1, this.memory.size());
+		
+		this.memory.removeMemorizedData(name);
+		assertFalse(this.memory.hasMemorizedData(name));
+		assertEquals(0, this.memory.size());
+	}
+
+	/**
+	 */
+	public void testManyKeys() {
+		List<MemoryKey<Integer>> keys = new ArrayList<MemoryKey<Integer>>();
+		for(int i=0; i<100; ++i) {
+			keys.add(MemoryKey.get("TypedBlackBoardMemoryTest.key"+i, Integer.class)); //$NON-NLS-1$
+		}
+		for(int i=0; i<keys.size(); ++i) {
+			this.memory.putMemorizedInt(keys.get(i), i);
+		}
+		assertEquals(keys.size(), this.memory.size());
+		for(int i=0; i<keys.size(); i+=2) {
+			this.memory.removeMemorizedData(keys.get(i));
+		}
+		assertEquals(keys.size()/2, this.memory.size());
+		for(int i=0; i<keys.size(); ++i) {
+			assertEquals((i%2==0) ? -1 : i, this.memory.getMemorizedInt(keys.get(i), -1));
+		}
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testSerialization() throws Exception {
+		this.memory.putMemorizedInt(COUNT, 5);
+		this.memory.putMemorizedData(NAME, "b"); //$NON-NLS-1$
+		this.memory.putMemorizedData("TypedBlackBoardMemoryTest.serialized", "c"); //$NON-NLS-1$ //$NON-NLS-2$
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(bytes);
+		oos.writeObject(this.memory);
+		oos.close();
+		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		TypedBlackBoardMemory copy = (TypedBlackBoardMemory)ois.readObject();
+		ois.close();
+		
+		assertEquals(3, copy.size());
+		assertEquals(5, copy.getMemorizedInt(COUNT, -1));
+		assertEquals("c", copy.getMemorizedData("TypedBlackBoardMemoryTest.serialized")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("b", copy.getMemorizedData(NAME)); //$NON-NLS-1$
+	}
+
+}
@@ -0,0 +1,244 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.agentsignal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+
+import org.janusproject.kernel.logger.LoggerUtil;
+
+import junit.framework.TestCase;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class ConcurrentSignalManagerTest extends TestCase {
+
+	private ConcurrentSignalManager adapter;
+	private SignalListenerStub listener;
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		LoggerUtil.setGlobalLevel(Level.OFF);
+		this.listener = new SignalListenerStub();
+		this.adapter = new ConcurrentSignalManager(null);
+		this.adapter.addSignalListener(this.listener);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		this.adapter.removeSignalListener(this.listener);
+		this.listener = null;
+		this.adapter = null;
+		super.tearDown();
+	}
+
+	/**
+	 */
+	public void testGetSignal() {
+		Signal s;
+		
+		this.adapter.setPolicy(SignalPolicy.IGNORE_ALL);
+		this.adapter.onSignal(new Signal(this));
+		assertNull(this.adapter.getSignal());
+		this.adapter.sync();
+		assertNull(this.adapter.getSignal());
+
+		this.adapter.setPolicy(SignalPolicy.FIRE_SIGNAL);
+		this.adapter.onSignal(new Signal(this));
+		assertNull(this.adapter.getSignal());
+		this.adapter.sync();
+		assertNull(this.adapter.getSignal());
+
+		this.adapter.setPolicy(SignalPolicy.STORE_IN_QUEUE);
+		this.adapter.onSignal(s = new Signal(this));
+		assertTrue(this.adapter.hasSignal());
+		assertSame(s, this.adapter.getSignal());
+		assertNull(this.adapter.getSignal());
+		assertFalse(this.adapter.hasSignal());
+	}
+
+	/**
+	 */
+	public void testFireSignal() {
+		Signal s = new Signal(this);
+		
+		this.adapter.setPolicy(SignalPolicy.IGNORE_ALL);
+		this.adapter.fireSignal(s);
+		this.adapter.sync();
+		this.listener.assertNull();
+		
+		this.adapter.setPolicy(SignalPolicy.FIRE_SIGNAL);
+		this.adapter.fireSignal(s);
+		assertEquals(1, this.adapter.getPendingSignalCount());
+		this.listener.assertNull();
+		this.adapter.sync();
+		this.listener.assertSignal(s);
+		this.listener.assertNull();
+		assertEquals(0, this.adapter.getPendingSignalCount());
+	}
+
+	/**
+	 */
+	public void testCoalescingLatestPerType() {
+		this.adapter.setCoalescingPolicy(SignalCoalescingPolicy.LATEST_PER_TYPE);
+		Object src1 = new Object();
+		Object src2 = new Object();
+		Signal a1 = new Signal(src1, "a", 1); //$NON-NLS-1$
+		Signal b1 = new Signal(src1, "b", 1); //$NON-NLS-1$
+		Signal a2 = new Signal(src2, "a", 2); //$NON-NLS-1$
+		this.adapter.fireSignal(a1);
+		this.adapter.fireSignal(b1);
+		this.adapter.fireSignal(a2);
+		assertEquals(2, this.adapter.getPendingSignalCount());
+		this.adapter.sync();
+		this.listener.assertSignal(a2);
+		this.listener.assertSignal(b1);
+		this.listener.assertNull();
+	}
+
+	/**
+	 */
+	public void testCoalescingLatestPerSourceAndType() {
+		this.adapter.setCoalescingPolicy(SignalCoalescingPolicy.LATEST_PER_SOURCE_AND_TYPE);
+		Object src1 = new Object();
+		Object src2 = new Object();
+		Signal a1 = new Signal(src1, "a", 1); //$NON-NLS-1$
+		Signal a2 = new Signal(src2, "a", 2); //$NON-NLS-1$
+		Signal a3 = new Signal(src1, "a", 3); //$NON-NLS-1$
+		this.adapter.fireSignal(a1);
+		this.adapter.fireSignal(a2);
+		this.adapter.fireSignal(a3);
+		this.adapter.sync();
+		this.listener.assertSignal(a3);
+		this.listener.assertSignal(a2);
+		this.listener.assertNull();
+	}
+
+	/**
+	 */
+	public void testBatchSignalListener() {
+		BatchListenerStub batch = new BatchListenerStub();
+		this.adapter.addSignalListener(batch);
+		Signal s1 = new Signal(this, "a"); //$NON-NLS-1$
+		Signal s2 = new Signal(this, "b"); //$NON-NLS-1$
+		this.adapter.fireSignal(s1);
+		this.adapter.fireSignal(s2);
+		this.adapter.sync();
+		assertEquals(1, batch.batches.size());
+		List<Signal> signals = batch.batches.get(0);
+		assertEquals(2, signals.size());
+		assertSame(s1, signals.get(0));
+		assertSame(s2, signals.get(1));
+		this.listener.assertSignal(s1);
+		this.listener.assertSignal(s2);
+		this.listener.assertNull();
+
+		this.adapter.sync();
+		assertEquals(1, batch.batches.size());
+		this.adapter.removeSignalListener(batch);
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testConcurrentFiring() throws Exception {
+		final int threadCount = 4;
+		final int signalCount = 5000;
+		this.adapter.setCoalescingPolicy(SignalCoalescingPolicy.LATEST_PER_SOURCE_AND_TYPE);
+		final BatchListenerStub batch = new BatchListenerStub();
+		this.adapter.removeSignalListener(this.listener);
+		this.adapter.addSignalListener(batch);
+		Thread[] threads = new Thread[threadCount];
+		for(int i=0; i<threadCount; ++i) {
+			final Integer source = Integer.valueOf(i);
+			threads[i] = new Thread() {
+				@SuppressWarnings("synthetic-access")
+				@Override
+				public void run() {
+					for(int j=0; j<signalCount; ++j) {
+						ConcurrentSignalManagerTest.this.adapter.fireSignal(
+								new Signal(source, "state", Integer.valueOf(j))); //$NON-NLS-1$
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for(Thread t : threads) {
+			t.join();
+		}
+		this.adapter.sync();
+		assertEquals(1, batch.batches.size());
+		List<Signal> signals = batch.batches.get(0);
+		assertEquals(threadCount, signals.size());
+		for(Signal s : signals) {
+			assertEquals(Integer.valueOf(signalCount-1), s.getValueAt(0));
+		}
+		assertEquals(0, this.adapter.getPendingSignalCount());
+		this.adapter.addSignalListener(this.listener);
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class BatchListenerStub implements BatchSignalListener {
+
+		public final List<List<Signal>> batches = new ArrayList<List<Signal>>();
+
+		/**
+		 */
+		public BatchListenerStub() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void onSignal(Signal signal) {
+			throw new IllegalStateException();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void onSignals(List<Signal> signals) {
+			this.batches.add(new ArrayList<Signal>(signals));
+		}
+
+	}
+
+}
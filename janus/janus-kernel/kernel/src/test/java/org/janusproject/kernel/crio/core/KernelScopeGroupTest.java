@@ -262,6 +262,14 @@ public class KernelScopeGroupTest extends TestCase {
 		assertEquals(1, roleAddresses.totalSize());
 		assertEquals(0, roleAddresses.rest());
 		assertFalse(roleAddresses.hasNext());
+
+		roleAddresses.remove();
+		assertEquals(0, roleAddresses.totalSize());
+		roleAddresses = this.group.getRoleAddresses(RoleStub.class);
+		assertEquals(0, roleAddresses.totalSize());
+		assertFalse(roleAddresses.hasNext());
+		roleAddresses = this.group.getRoleAddresses(Role3Stub.class);
+		assertEquals(1, roleAddresses.totalSize());
 	}
 
 	/**
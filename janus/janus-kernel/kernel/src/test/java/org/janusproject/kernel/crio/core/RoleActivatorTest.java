@@ -24,7 +24,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.logging.Level;
 
+import org.janusproject.kernel.crio.role.ReactiveRole;
 import org.janusproject.kernel.logger.LoggerUtil;
+import org.janusproject.kernel.mailbox.LinkedListMailbox;
+import org.janusproject.kernel.message.StringMessage;
 import junit.framework.TestCase;
 
 /**
@@ -76,5 +79,57 @@ public class RoleActivatorTest extends TestCase {
 	public void testHasActivable() {
 		assertTrue(this.activator.hasActivable());
 	}
+
+	/**
+	 */
+	public void testHasPendingWork_polled() {
+		assertFalse(this.r1.isReactive());
+		assertTrue(this.r1.hasPendingWork());
+		assertTrue(this.r1.hasPendingWork());
+	}
+
+	/**
+	 */
+	public void testHasPendingWork_reactive() {
+		ReactiveRoleStub r = new ReactiveRoleStub();
+		assertTrue(r.isReactive());
+		// First activation
+		assertTrue(r.hasPendingWork());
+		assertFalse(r.hasPendingWork());
+
+		r.requestActivation();
+		assertTrue(r.hasPendingWork());
+		assertFalse(r.hasPendingWork());
+
+		LinkedListMailbox mailbox = new LinkedListMailbox();
+		r.setMailbox(mailbox);
+		assertFalse(r.hasPendingWork());
+		mailbox.add(new StringMessage("a")); //$NON-NLS-1$
+		assertTrue(r.hasPendingWork());
+		assertTrue(r.hasPendingWork());
+		mailbox.clear();
+		assertFalse(r.hasPendingWork());
+
+		r.setReactive(false);
+		assertFalse(r.isReactive());
+		assertTrue(r.hasPendingWork());
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	@ReactiveRole
+	private static class ReactiveRoleStub extends RoleStub {
+
+		/**
+		 */
+		public ReactiveRoleStub() {
+			//
+		}
+
+	}
 	
 }
@@ -0,0 +1,226 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.janusproject.kernel.address.AgentAddress;
+import org.janusproject.kernel.time.ConstantKernelTimeManager;
+
+import junit.framework.TestCase;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class SharedEntityLoggerTest extends TestCase {
+
+	private ConstantKernelTimeManager timeManager;
+	private AgentAddress address;
+	private boolean oldShared;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		this.oldShared = LoggerUtil.isSharedLoggerEnable();
+		LoggerUtil.setSharedLoggerEnable(true);
+		this.timeManager = new ConstantKernelTimeManager(1f);
+		this.address = new AgentAddressStub(UUID.randomUUID(), "agent"); //$NON-NLS-1$
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		LoggerUtil.setSharedLoggerEnable(this.oldShared);
+		this.address = null;
+		this.timeManager = null;
+		super.tearDown();
+	}
+
+	/**
+	 */
+	public void testCreateAgentLogger() {
+		Logger l1 = LoggerUtil.createAgentLogger(SharedEntityLoggerTest.class, this.timeManager, this.address);
+		Logger l2 = LoggerUtil.createAgentLogger(SharedEntityLoggerTest.class, this.timeManager,
+				new AgentAddressStub(UUID.randomUUID(), "agent2")); //$NON-NLS-1$
+		assertTrue(l1 instanceof SharedEntityLogger);
+		assertTrue(l2 instanceof SharedEntityLogger);
+		assertNotSame(l1, l2);
+		assertSame(((SharedEntityLogger)l1).getSharedLogger(), ((SharedEntityLogger)l2).getSharedLogger());
+		assertSame(this.address, ((SharedEntityLogger)l1).getEntity());
+		assertNull(((SharedEntityLogger)l1).getRoleName());
+	}
+
+	/**
+	 */
+	public void testCreateRoleLogger() {
+		Logger l = LoggerUtil.createRoleLogger(SharedEntityLoggerTest.class, this.timeManager, this.address, "role"); //$NON-NLS-1$
+		assertTrue(l instanceof SharedEntityLogger);
+		assertSame(this.address, ((SharedEntityLogger)l).getEntity());
+		assertEquals("role", ((SharedEntityLogger)l).getRoleName()); //$NON-NLS-1$
+	}
+
+	/**
+	 */
+	public void testLogRecord() {
+		Logger l = LoggerUtil.createRoleLogger(SharedEntityLoggerTest.class, this.timeManager, this.address, "role"); //$NON-NLS-1$
+		HandlerStub handler = new HandlerStub();
+		l.addHandler(handler);
+		l.setUseParentHandlers(false);
+		l.setLevel(Level.INFO);
+
+		this.timeManager.increment();
+		l.info("a"); //$NON-NLS-1$
+		l.fine("b"); //$NON-NLS-1$
+
+		assertEquals(1, handler.records.size());
+		LogRecord record = handler.records.get(0);
+		assertTrue(record instanceof JanusLogRecord);
+		JanusLogRecord janusRecord = (JanusLogRecord)record;
+		assertEquals("a", janusRecord.getMessage()); //$NON-NLS-1$
+		assertSame(this.address, janusRecord.getEntity());
+		assertEquals("role", janusRecord.getRoleName()); //$NON-NLS-1$
+		assertEquals(1f, janusRecord.getCurrentTime(), 0f);
+	}
+
+	/**
+	 */
+	public void testSetLevel() {
+		SharedEntityLogger l = (SharedEntityLogger)LoggerUtil.createAgentLogger(SharedEntityLoggerTest.class, this.timeManager, this.address);
+		HandlerStub handler = new HandlerStub();
+		l.addHandler(handler);
+		l.setUseParentHandlers(false);
+		Level oldLevel = l.getSharedLogger().getLevel();
+		try {
+			l.setLevel(Level.FINE);
+			l.fine("a"); //$NON-NLS-1$
+			l.finer("b"); //$NON-NLS-1$
+			assertEquals(1, handler.records.size());
+
+			// The level is inherited from the shared logger
+			l.setLevel(null);
+			assertNull(l.getLevel());
+			l.getSharedLogger().setLevel(Level.FINEST);
+			l.finest("c"); //$NON-NLS-1$
+			l.getSharedLogger().setLevel(Level.WARNING);
+			l.info("d"); //$NON-NLS-1$
+			assertEquals(2, handler.records.size());
+			assertEquals("c", handler.records.get(1).getMessage()); //$NON-NLS-1$
+		}
+		finally {
+			l.getSharedLogger().setLevel(oldLevel);
+		}
+	}
+
+	/**
+	 */
+	public void testAsynchronousLogHandler() {
+		HandlerStub delegate = new HandlerStub();
+		AsynchronousLogHandler handler = new AsynchronousLogHandler(delegate, 4);
+		try {
+			for(int i=0; i<10; ++i) {
+				handler.publish(new LogRecord(Level.INFO, Integer.toString(i)));
+			}
+			handler.flush();
+			assertEquals(0, handler.getBufferSize());
+			assertEquals(10, delegate.records.size());
+		}
+		finally {
+			handler.close();
+		}
+	}
+
+	/**
+	 */
+	public void testAsynchronousLogHandlerOrder() {
+		HandlerStub delegate = new HandlerStub();
+		AsynchronousLogHandler handler = new AsynchronousLogHandler(delegate, 4);
+		for(int i=0; i<1000; ++i) {
+			handler.publish(new LogRecord(Level.INFO, Integer.toString(i)));
+		}
+		handler.close();
+		assertEquals(1000, delegate.records.size());
+		for(int i=0; i<1000; ++i) {
+			assertEquals(Integer.toString(i), delegate.records.get(i).getMessage());
+		}
+		// Records published after the closing are ignored
+		handler.publish(new LogRecord(Level.INFO, "x")); //$NON-NLS-1$
+		assertEquals(1000, delegate.records.size());
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class HandlerStub extends Handler {
+
+		/** Published records.
+		 */
+		public final List<LogRecord> records = new ArrayList<LogRecord>();
+
+		/**
+		 */
+		public HandlerStub() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public synchronized void publish(LogRecord record) {
+			this.records.add(record);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void flush() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void close() throws SecurityException {
+			//
+		}
+
+	}
+
+}
@@ -0,0 +1,290 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.mailbox;
+
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.logging.Level;
+
+import junit.framework.TestCase;
+
+import org.janusproject.kernel.address.AgentAddress;
+import org.janusproject.kernel.logger.LoggerUtil;
+import org.janusproject.kernel.message.Message;
+import org.janusproject.kernel.message.MessageStub;
+import org.janusproject.kernel.message.MessageStub2;
+import org.janusproject.kernel.util.selector.TypeSelector;
+
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see ConcurrentPerSenderMailbox
+ */
+public class ConcurrentPerSenderMailboxTest extends TestCase {
+
+	private ConcurrentPerSenderMailbox mailbox;
+	private MessageStub m1;
+	private MessageStub m2;
+	private MessageStub m3;
+	private MessageStub2 m4;
+	private MessageStub m5;
+	private AgentAddress emitter1;
+	private AgentAddress emitter2;
+	
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		LoggerUtil.setGlobalLevel(Level.OFF);
+		this.emitter1 = new AgentAddressStub(UUID.randomUUID(), "emitter1"); //$NON-NLS-1$
+		this.emitter2 = new AgentAddressStub(UUID.randomUUID(), "emitter2"); //$NON-NLS-1$
+		this.mailbox = new ConcurrentPerSenderMailbox();
+		this.m1 = new MessageStub(1024f, "m1", this.emitter1); //$NON-NLS-1$
+		this.m2 = new MessageStub(2047f, "m2", this.emitter1); //$NON-NLS-1$
+		this.m3 = new MessageStub(4096f, "m3", this.emitter1); //$NON-NLS-1$
+		this.m4 = new MessageStub2(4096f, "m4", this.emitter2); //$NON-NLS-1$
+		this.m5 = new MessageStub(8192f, "m5", this.emitter2); //$NON-NLS-1$
+		this.mailbox.add(this.m1);
+		this.mailbox.add(this.m2);
+		this.mailbox.add(this.m3);
+		this.mailbox.add(this.m4);
+		this.mailbox.add(this.m5);
+	}
+	
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		this.mailbox = null;
+		this.m1 = this.m2 = this.m3 = this.m5 = null;
+		this.m4 = null;
+		this.emitter1 = this.emitter2 = null;
+		super.tearDown();
+	}
+
+	/**
+	 */
+	public void testClear() {
+		assertFalse(this.mailbox.isEmpty());
+		this.mailbox.clear();
+		assertTrue(this.mailbox.isEmpty());
+		assertEquals(0, this.mailbox.size());
+		assertNull(this.mailbox.removeFirst());
+		this.mailbox.add(this.m1);
+		assertSame(this.m1, this.mailbox.removeFirst());
+	}
+
+	/**
+	 */
+	public void testContainsMail() {
+		assertTrue(this.mailbox.contains(this.m1));
+		assertTrue(this.mailbox.contains(this.m4));
+		assertFalse(this.mailbox.contains(new MessageStub(0f, "m6", this.emitter1))); //$NON-NLS-1$
+	}
+
+	/**
+	 */
+	public void testContainsSelector() {
+		assertTrue(this.mailbox.contains(new TypeSelector<MessageStub>(MessageStub.class)));
+		assertTrue(this.mailbox.contains(new TypeSelector<MessageStub2>(MessageStub2.class)));
+		this.mailbox.remove(this.m4);
+		assertFalse(this.mailbox.contains(new TypeSelector<MessageStub2>(MessageStub2.class)));
+	}
+
+	/**
+	 */
+	public void testGetInt() {
+		assertNull(this.mailbox.get(-1));
+		assertSame(this.m1, this.mailbox.get(0));
+		assertSame(this.m2, this.mailbox.get(1));
+		assertSame(this.m3, this.mailbox.get(2));
+		assertSame(this.m4, this.mailbox.get(3));
+		assertSame(this.m5, this.mailbox.get(4));
+		assertNull(this.mailbox.get(5));
+	}
+
+	/**
+	 */
+	public void testGetFirst() {
+		assertSame(this.m1, this.mailbox.getFirst());
+		assertEquals(5, this.mailbox.size());
+	}
+
+	/**
+	 */
+	public void testGetFirstSelector() {
+		assertSame(this.m4, this.mailbox.getFirst(new TypeSelector<MessageStub2>(MessageStub2.class)));
+		assertEquals(5, this.mailbox.size());
+	}
+
+	/**
+	 */
+	public void testRemoveFirst() {
+		// Round-robin over the senders
+		assertSame(this.m1, this.mailbox.removeFirst());
+		assertSame(this.m4, this.mailbox.removeFirst());
+		assertSame(this.m2, this.mailbox.removeFirst());
+		assertSame(this.m5, this.mailbox.removeFirst());
+		assertSame(this.m3, this.mailbox.removeFirst());
+		assertNull(this.mailbox.removeFirst());
+		assertTrue(this.mailbox.isEmpty());
+	}
+
+	/**
+	 */
+	public void testRemoveFirstNewSender() {
+		assertSame(this.m1, this.mailbox.removeFirst());
+		MessageStub m6 = new MessageStub(0f, "m6", new AgentAddressStub(UUID.randomUUID(), "emitter3")); //$NON-NLS-1$ //$NON-NLS-2$
+		this.mailbox.add(m6);
+		assertSame(this.m4, this.mailbox.removeFirst());
+		assertSame(this.m2, this.mailbox.removeFirst());
+		assertSame(m6, this.mailbox.removeFirst());
+		assertSame(this.m5, this.mailbox.removeFirst());
+		assertSame(this.m3, this.mailbox.removeFirst());
+		assertNull(this.mailbox.removeFirst());
+	}
+
+	/**
+	 */
+	public void testSenderQueueRemoval() {
+		assertEquals(2, this.mailbox.getSenderCount());
+		assertSame(this.m1, this.mailbox.removeFirst());
+		assertSame(this.m4, this.mailbox.removeFirst());
+		assertTrue(this.mailbox.remove(this.m5));
+		assertEquals(1, this.mailbox.getSenderCount());
+		assertSame(this.m2, this.mailbox.removeFirst());
+		assertSame(this.m3, this.mailbox.removeFirst());
+		assertEquals(0, this.mailbox.getSenderCount());
+		
+		// The sender queue is created again
+		this.mailbox.add(this.m1);
+		assertEquals(1, this.mailbox.getSenderCount());
+		assertTrue(this.mailbox.contains(this.m1));
+		Iterator<Message> iterator = this.mailbox.iterator();
+		assertSame(this.m1, iterator.next());
+		assertFalse(iterator.hasNext());
+		assertEquals(0, this.mailbox.getSenderCount());
+		assertNull(this.mailbox.removeFirst());
+	}
+
+	/**
+	 */
+	public void testRemoveFirstSelector() {
+		assertSame(this.m4, this.mailbox.removeFirst(new TypeSelector<MessageStub2>(MessageStub2.class)));
+		assertNull(this.mailbox.removeFirst(new TypeSelector<MessageStub2>(MessageStub2.class)));
+		assertEquals(4, this.mailbox.size());
+	}
+
+	/**
+	 */
+	public void testRemoveMessage() {
+		assertTrue(this.mailbox.remove(this.m2));
+		assertFalse(this.mailbox.remove(this.m2));
+		assertEquals(4, this.mailbox.size());
+		assertSame(this.m1, this.mailbox.removeFirst());
+		assertSame(this.m4, this.mailbox.removeFirst());
+		assertSame(this.m3, this.mailbox.removeFirst());
+	}
+
+	/**
+	 */
+	public void testRemoveInt() {
+		assertNull(this.mailbox.remove(5));
+		assertSame(this.m3, this.mailbox.remove(2));
+		assertEquals(4, this.mailbox.size());
+	}
+
+	/**
+	 */
+	public void testRemoveAll() {
+		assertTrue(this.mailbox.removeAll(new TypeSelector<MessageStub>(MessageStub.class)));
+		assertEquals(1, this.mailbox.size());
+		assertSame(this.m4, this.mailbox.removeFirst());
+	}
+
+	/**
+	 */
+	public void testIterator() {
+		Iterator<Message> iterator = this.mailbox.iterator(false);
+		assertSame(this.m1, iterator.next());
+		assertSame(this.m2, iterator.next());
+		assertSame(this.m3, iterator.next());
+		assertSame(this.m4, iterator.next());
+		assertSame(this.m5, iterator.next());
+		assertFalse(iterator.hasNext());
+		assertEquals(5, this.mailbox.size());
+
+		iterator = this.mailbox.iterator();
+		int n = 0;
+		while (iterator.hasNext()) {
+			iterator.next();
+			++n;
+		}
+		assertEquals(5, n);
+		assertTrue(this.mailbox.isEmpty());
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testConcurrentAdd() throws Exception {
+		this.mailbox.clear();
+		final int threadCount = 4;
+		final int messageCount = 2000;
+		Thread[] threads = new Thread[threadCount];
+		for(int i=0; i<threadCount; ++i) {
+			final AgentAddress sender = new AgentAddressStub(UUID.randomUUID(), "sender"+i); //$NON-NLS-1$
+			threads[i] = new Thread() {
+				@SuppressWarnings("synthetic-access")
+				@Override
+				public void run() {
+					for(int j=0; j<messageCount; ++j) {
+						ConcurrentPerSenderMailboxTest.this.mailbox.add(
+								new MessageStub(j, Integer.toString(j), sender));
+					}
+				}
+			};
+			threads[i].start();
+		}
+		int received = 0;
+		boolean running = true;
+		while (running || !this.mailbox.isEmpty()) {
+			running = false;
+			for(Thread t : threads) {
+				if (t.isAlive()) running = true;
+			}
+			if (this.mailbox.removeFirst()!=null) ++received;
+		}
+		for(Thread t : threads) {
+			t.join();
+		}
+		assertEquals(threadCount * messageCount, received);
+		assertNull(this.mailbox.removeFirst());
+		assertEquals(0, this.mailbox.getSenderCount());
+	}
+
+}
@@ -0,0 +1,138 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.mailbox;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.janusproject.kernel.message.Message;
+import org.janusproject.kernel.message.StringMessage;
+import org.janusproject.kernel.metrics.KernelMetrics;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see DeliveryBuffer
+ */
+public class DeliveryBufferTest extends TestCase {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		KernelMetrics.setMetricsEnable(true);
+		KernelMetrics.reset();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		DeliveryBuffer.setCurrent(null);
+		KernelMetrics.reset();
+		KernelMetrics.setMetricsEnable(false);
+		super.tearDown();
+	}
+
+	/**
+	 */
+	public void testPost() {
+		Mailbox mailbox = new LinkedListMailbox();
+		Message m1 = new StringMessage("a"); //$NON-NLS-1$
+		assertFalse(DeliveryBuffer.post(mailbox, m1));
+
+		DeliveryBuffer buffer = new DeliveryBuffer();
+		DeliveryBuffer.setCurrent(buffer);
+		assertSame(buffer, DeliveryBuffer.getCurrent());
+		assertTrue(DeliveryBuffer.post(mailbox, m1));
+		assertEquals(1, buffer.size());
+		assertTrue(mailbox.isEmpty());
+	}
+
+	/**
+	 */
+	public void testFlush() {
+		Mailbox mailbox1 = new LinkedListMailbox();
+		Mailbox mailbox2 = new LinkedListMailbox();
+		Message m1 = new StringMessage("a"); //$NON-NLS-1$
+		Message m2 = new StringMessage("b"); //$NON-NLS-1$
+		Message m3 = new StringMessage("c"); //$NON-NLS-1$
+		DeliveryBuffer buffer = new DeliveryBuffer();
+		buffer.add(mailbox1, m1, true);
+		buffer.add(mailbox2, m2);
+		buffer.add(mailbox1, m3, true);
+
+		// The deliveries are recorded when the messages are in the mailboxes
+		assertEquals(0, KernelMetrics.getCounter(KernelMetrics.DELIVERED_MESSAGES).get());
+
+		assertEquals(3, buffer.flush());
+		assertTrue(buffer.isEmpty());
+		assertEquals(2, mailbox1.size());
+		assertEquals(1, mailbox2.size());
+		assertSame(m2, mailbox2.removeFirst());
+		assertEquals(2, KernelMetrics.getCounter(KernelMetrics.DELIVERED_MESSAGES).get());
+		assertEquals(2, KernelMetrics.getHistogram(KernelMetrics.MAILBOX_DEPTH).getCount());
+
+		// The recorded messages are forgotten by the flush
+		buffer.add(mailbox2, m1);
+		buffer.flush();
+		assertEquals(2, KernelMetrics.getCounter(KernelMetrics.DELIVERED_MESSAGES).get());
+	}
+
+	/**
+	 */
+	public void testDeferredDelivery() {
+		final Mailbox mailbox = new LinkedListMailbox();
+		final Message m1 = new StringMessage("a"); //$NON-NLS-1$
+		Message m2 = new StringMessage("b"); //$NON-NLS-1$
+		final List<Integer> sizes = new ArrayList<Integer>();
+		Runnable delivery = new Runnable() {
+			@Override
+			public void run() {
+				sizes.add(Integer.valueOf(mailbox.size()));
+				mailbox.add(m1);
+			}
+		};
+		assertFalse(DeliveryBuffer.post(delivery));
+
+		DeliveryBuffer buffer = new DeliveryBuffer();
+		DeliveryBuffer.setCurrent(buffer);
+		assertTrue(DeliveryBuffer.post(mailbox, m2));
+		assertTrue(DeliveryBuffer.post(delivery));
+		assertEquals(2, buffer.size());
+		assertTrue(sizes.isEmpty());
+
+		// The delivery is run after the previously posted message
+		assertEquals(2, buffer.flush());
+		assertEquals(Collections.singletonList(Integer.valueOf(1)), sizes);
+		assertEquals(2, mailbox.size());
+		assertTrue(buffer.isEmpty());
+	}
+
+}
@@ -0,0 +1,520 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.mailbox;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
+
+import junit.framework.TestCase;
+
+import org.janusproject.kernel.logger.LoggerUtil;
+import org.janusproject.kernel.message.IntMessage;
+import org.janusproject.kernel.message.LongMessage;
+import org.janusproject.kernel.message.Message;
+import org.janusproject.kernel.message.MessageStub;
+import org.janusproject.kernel.message.MessageStub2;
+import org.janusproject.kernel.message.StringMessage;
+import org.janusproject.kernel.util.selector.TypeSelector;
+
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see PerTypeMailbox
+ */
+public class PerTypeMailboxTest extends TestCase {
+
+	private PerTypeMailbox mailbox;
+	private MessageStub m1;
+	private MessageStub m2;
+	private MessageStub m3;
+	private MessageStub2 m4;
+	
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		LoggerUtil.setGlobalLevel(Level.OFF);
+		this.mailbox = new PerTypeMailbox();
+		this.m1 = new MessageStub(1024f, "m1"); //$NON-NLS-1$
+		this.m2 = new MessageStub(2047f, "m2"); //$NON-NLS-1$
+		this.m3 = new MessageStub(4096f, "m3"); //$NON-NLS-1$
+		this.m4 = new MessageStub2(4096f, "m4"); //$NON-NLS-1$
+		this.mailbox.add(this.m1);
+		this.mailbox.add(this.m2);
+	}
+	
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		this.mailbox = null;
+		this.m1 = this.m2 = this.m3 = null;
+		this.m4 = null;
+		super.tearDown();
+	}
+
+	/**
+	 */
+	public void testClear() {
+		assertFalse(this.mailbox.isEmpty());
+		this.mailbox.clear();
+		assertTrue(this.mailbox.isEmpty());
+		assertEquals(0, this.mailbox.size());
+	}
+
+	/**
+	 */
+	public void testContainsMail() {
+		assertTrue(this.mailbox.contains(this.m1));
+		assertTrue(this.mailbox.contains(this.m2));
+		assertFalse(this.mailbox.contains(this.m3));
+		assertFalse(this.mailbox.contains(this.m4));
+	}
+
+	/**
+	 */
+	public void testContainsSelector() {
+		assertTrue(this.mailbox.contains(new TypeSelector<MessageStub>(MessageStub.class)));
+		assertFalse(this.mailbox.contains(new TypeSelector<MessageStub2>(MessageStub2.class)));
+	}
+
+	/**
+	 */
+	public void testGetInt() {
+		assertNull(this.mailbox.get(-1));
+		assertSame(this.m1, this.mailbox.get(0));
+		assertSame(this.m2, this.mailbox.get(1));
+		assertNull(this.mailbox.get(2));
+	}
+
+	/**
+	 */
+	public void testGetFirst() {
+		assertSame(this.m1, this.mailbox.getFirst());
+	}
+
+	/**
+	 */
+	public void testGetFirstSelector() {
+		assertSame(this.m1, this.mailbox.getFirst(new TypeSelector<MessageStub>(MessageStub.class)));
+		assertNull(this.mailbox.getFirst(new TypeSelector<MessageStub2>(MessageStub2.class)));
+	}
+
+	/**
+	 */
+	public void testIsEmpty() {
+		assertFalse(this.mailbox.isEmpty());
+	}
+
+	/**
+	 */
+	public void testSize() {
+		assertEquals(2, this.mailbox.size());
+	}
+
+	/**
+	 */
+	public void testIterator() {
+		Iterator<Message> iterator = this.mailbox.iterator();
+		
+		assertTrue(iterator.hasNext());
+		assertSame(this.m1, iterator.next());
+		assertTrue(iterator.hasNext());
+		assertSame(this.m2, iterator.next());
+		assertFalse(iterator.hasNext());
+		
+		assertTrue(this.mailbox.isEmpty());
+	}
+
+	/**
+	 */
+	public void testIteratorBoolean_true() {
+		Iterator<Message> iterator = this.mailbox.iterator(true);
+		
+		assertTrue(iterator.hasNext());
+		assertSame(this.m1, iterator.next());
+		assertTrue(iterator.hasNext());
+		assertSame(this.m2, iterator.next());
+		assertFalse(iterator.hasNext());
+		
+		assertTrue(this.mailbox.isEmpty());
+	}
+
+	/**
+	 */
+	public void testIteratorBoolean_false() {
+		Iterator<Message> iterator = this.mailbox.iterator(false);
+		
+		assertTrue(iterator.hasNext());
+		assertSame(this.m1, iterator.next());
+		assertTrue(iterator.hasNext());
+		assertSame(this.m2, iterator.next());
+		assertFalse(iterator.hasNext());
+		
+		assertEquals(2, this.mailbox.size());
+	}
+
+	/**
+	 */
+	public void testIteratorSelector() {
+		Iterator<? extends Message> iterator;
+		
+		iterator = this.mailbox.iterator(new TypeSelector<MessageStub2>(MessageStub2.class));
+		assertFalse(iterator.hasNext());
+		
+		assertEquals(2, this.mailbox.size());
+
+		iterator = this.mailbox.iterator(new OddDateSelector());
+		assertTrue(iterator.hasNext());
+		assertSame(this.m2, iterator.next());
+		assertFalse(iterator.hasNext());
+		
+		assertEquals(1, this.mailbox.size());
+		assertTrue(this.mailbox.contains(this.m1));
+	}
+
+	/**
+	 */
+	public void testIteratorSelectorBoolean_true() {
+		Iterator<? extends Message> iterator;
+		
+		iterator = this.mailbox.iterator(new TypeSelector<MessageStub2>(MessageStub2.class), true);
+		assertFalse(iterator.hasNext());
+		
+		assertEquals(2, this.mailbox.size());
+
+		iterator = this.mailbox.iterator(new OddDateSelector(), true);
+		assertTrue(iterator.hasNext());
+		assertSame(this.m2, iterator.next());
+		assertFalse(iterator.hasNext());
+		
+		assertEquals(1, this.mailbox.size());
+		assertTrue(this.mailbox.contains(this.m1));
+	}
+
+	/**
+	 */
+	public void testIteratorSelectorBoolean_false() {
+		Iterator<? extends Message> iterator;
+		
+		iterator = this.mailbox.iterator(new TypeSelector<MessageStub2>(MessageStub2.class), false);
+		assertFalse(iterator.hasNext());
+		
+		assertEquals(2, this.mailbox.size());
+
+		iterator = this.mailbox.iterator(new OddDateSelector(), false);
+		assertTrue(iterator.hasNext());
+		assertSame(this.m2, iterator.next());
+		assertFalse(iterator.hasNext());
+		
+		assertEquals(2, this.mailbox.size());
+	}
+
+	/**
+	 */
+	public void testAddMail() {
+		Iterator<Message> iterator;
+		
+		MessageStub m5 = new MessageStub(1f, "m5"); //$NON-NLS-1$
+		assertTrue(this.mailbox.add(m5));
+		
+		iterator = this.mailbox.iterator(false);
+		
+		assertTrue(iterator.hasNext());
+		assertSame(m5, iterator.next());
+		assertTrue(iterator.hasNext());
+		assertSame(this.m1, iterator.next());
+		assertTrue(iterator.hasNext());
+		assertSame(this.m2, iterator.next());
+		assertFalse(iterator.hasNext());
+
+		MessageStub m6 = new MessageStub(2000f, "m6"); //$NON-NLS-1$
+		assertTrue(this.mailbox.add(m6));
+		MessageStub m7 = new MessageStub(2000f, "m7"); //$NON-NLS-1$
+		assertTrue(this.mailbox.add(m7));
+		
+		iterator = this.mailbox.iterator(false);
+		
+		assertTrue(iterator.hasNext());
+		assertSame(m5, iterator.next());
+		assertTrue(iterator.hasNext());
+		assertSame(this.m1, iterator.next());
+		assertTrue(iterator.hasNext());
+		if (m6.getIdentifier().compareTo(m7.getIdentifier())<0) {
+			assertSame(m6, iterator.next());
+			assertTrue(iterator.hasNext());
+			assertSame(m7, iterator.next());
+			assertTrue(iterator.hasNext());
+		}
+		else {
+			assertSame(m7, iterator.next());
+			assertTrue(iterator.hasNext());
+			assertSame(m6, iterator.next());
+			assertTrue(iterator.hasNext());
+		}
+		assertSame(this.m2, iterator.next());
+		assertFalse(iterator.hasNext());
+	}
+	
+	/**
+	 */
+	public void testRemoveMail() {
+		Iterator<Message> iterator;
+		
+		assertTrue(this.mailbox.remove(this.m1));
+
+		iterator = this.mailbox.iterator(false);
+		
+		assertTrue(iterator.hasNext());
+		assertSame(this.m2, iterator.next());
+		assertFalse(iterator.hasNext());
+		
+		assertFalse(this.mailbox.remove(this.m3));
+
+		iterator = this.mailbox.iterator(false);
+		
+		assertTrue(iterator.hasNext());
+		assertSame(this.m2, iterator.next());
+		assertFalse(iterator.hasNext());
+
+		assertFalse(this.mailbox.remove(this.m4));
+
+		iterator = this.mailbox.iterator(false);
+		
+		assertTrue(iterator.hasNext());
+		assertSame(this.m2, iterator.next());
+		assertFalse(iterator.hasNext());
+
+		assertTrue(this.mailbox.remove(this.m2));
+
+		iterator = this.mailbox.iterator(false);
+		
+		assertFalse(iterator.hasNext());
+	}
+
+	/**
+	 */
+	public void testRemoveInt() {
+		Iterator<Message> iterator;
+		
+		assertSame(this.m2, this.mailbox.remove(1));
+
+		iterator = this.mailbox.iterator(false);
+		
+		assertTrue(iterator.hasNext());
+		assertSame(this.m1, iterator.next());
+		assertFalse(iterator.hasNext());
+		
+		assertSame(this.m1, this.mailbox.remove(0));
+
+		iterator = this.mailbox.iterator(false);
+		
+		assertFalse(iterator.hasNext());
+	}
+
+	/**
+	 */
+	public void testRemoveAllSelector() {
+		Iterator<Message> iterator;
+
+		assertFalse(this.mailbox.removeAll(new TypeSelector<MessageStub2>(MessageStub2.class)));
+		
+		iterator = this.mailbox.iterator(false);
+		
+		assertTrue(iterator.hasNext());
+		assertSame(this.m1, iterator.next());
+		assertTrue(iterator.hasNext());
+		assertSame(this.m2, iterator.next());
+		assertFalse(iterator.hasNext());
+
+		assertTrue(this.mailbox.removeAll(new TypeSelector<MessageStub>(MessageStub.class)));
+		
+		iterator = this.mailbox.iterator(false);
+		
+		assertFalse(iterator.hasNext());
+	}
+
+	/**
+	 */
+	public void testRemoveFirst() {
+		Iterator<Message> iterator;
+
+		assertSame(this.m1, this.mailbox.removeFirst());
+		
+		iterator = this.mailbox.iterator(false);
+		
+		assertTrue(iterator.hasNext());
+		assertSame(this.m2, iterator.next());
+		assertFalse(iterator.hasNext());
+
+		assertSame(this.m2, this.mailbox.removeFirst());
+		
+		iterator = this.mailbox.iterator(false);
+		
+		assertFalse(iterator.hasNext());
+	}
+
+	/**
+	 */
+	public void testRemoveFirstSelector() {
+		Iterator<Message> iterator;
+
+		assertNull(this.mailbox.removeFirst(new TypeSelector<MessageStub2>(MessageStub2.class)));
+		
+		iterator = this.mailbox.iterator(false);
+		
+		assertTrue(iterator.hasNext());
+		assertSame(this.m1, iterator.next());
+		assertTrue(iterator.hasNext());
+		assertSame(this.m2, iterator.next());
+		assertFalse(iterator.hasNext());
+
+		assertSame(this.m2, this.mailbox.removeFirst(new OddDateSelector()));
+		
+		iterator = this.mailbox.iterator(false);
+		
+		assertTrue(iterator.hasNext());
+		assertSame(this.m1, iterator.next());
+		assertFalse(iterator.hasNext());
+	}
+
+	/**
+	 */
+	public void testIteratorMixedTypes() {
+		Iterator<Message> iterator;
+		MessageStub2 m5 = new MessageStub2(1500f, "m5"); //$NON-NLS-1$
+		this.mailbox.add(this.m4);
+		this.mailbox.add(m5);
+		
+		iterator = this.mailbox.iterator(false);
+		assertTrue(iterator.hasNext());
+		assertSame(this.m1, iterator.next());
+		assertTrue(iterator.hasNext());
+		assertSame(m5, iterator.next());
+		assertTrue(iterator.hasNext());
+		assertSame(this.m2, iterator.next());
+		assertTrue(iterator.hasNext());
+		assertSame(this.m4, iterator.next());
+		assertFalse(iterator.hasNext());
+
+		assertSame(m5, this.mailbox.get(1));
+		assertSame(m5, this.mailbox.getFirst(new TypeSelector<MessageStub2>(MessageStub2.class)));
+
+		Iterator<MessageStub2> iterator2 = this.mailbox.iterator(MessageStub2.class);
+		assertTrue(iterator2.hasNext());
+		assertSame(m5, iterator2.next());
+		assertTrue(iterator2.hasNext());
+		assertSame(this.m4, iterator2.next());
+		assertFalse(iterator2.hasNext());
+		
+		assertEquals(2, this.mailbox.size());
+		assertTrue(this.mailbox.contains(this.m1));
+		assertTrue(this.mailbox.contains(this.m2));
+	}
+
+	/**
+	 */
+	public void testHasMessage() {
+		assertTrue(this.mailbox.hasMessage(MessageStub.class));
+		assertTrue(this.mailbox.hasMessage(Message.class));
+		assertFalse(this.mailbox.hasMessage(MessageStub2.class));
+		
+		this.mailbox.add(this.m4);
+		assertTrue(this.mailbox.hasMessage(MessageStub2.class));
+		assertTrue(this.mailbox.contains(new TypeSelector<MessageStub2>(MessageStub2.class)));
+
+		assertTrue(this.mailbox.remove(this.m4));
+		assertFalse(this.mailbox.hasMessage(MessageStub2.class));
+		assertTrue(this.mailbox.hasMessage(Message.class));
+	}
+
+	/**
+	 */
+	public void testSizeClass() {
+		this.mailbox.add(this.m4);
+		assertEquals(2, this.mailbox.size(MessageStub.class));
+		assertEquals(1, this.mailbox.size(MessageStub2.class));
+		assertEquals(3, this.mailbox.size(Message.class));
+		assertEquals(3, this.mailbox.size());
+	}
+
+	/**
+	 */
+	public void testDrain() {
+		this.mailbox.add(this.m4);
+		this.mailbox.add(this.m3);
+		
+		List<MessageStub> messages = this.mailbox.drain(MessageStub.class);
+		assertEquals(3, messages.size());
+		assertSame(this.m1, messages.get(0));
+		assertSame(this.m2, messages.get(1));
+		assertSame(this.m3, messages.get(2));
+		
+		assertEquals(1, this.mailbox.size());
+		assertSame(this.m4, this.mailbox.getFirst());
+		assertTrue(this.mailbox.drain(MessageStub.class).isEmpty());
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testHasMessageConcurrentAdd() throws Exception {
+		final PerTypeMailbox[] boxes = new PerTypeMailbox[500];
+		for(int i=0; i<boxes.length; ++i) {
+			boxes[i] = new PerTypeMailbox();
+		}
+		final Throwable[] error = new Throwable[1];
+		Thread reader = new Thread() {
+			@Override
+			public void run() {
+				try {
+					for(PerTypeMailbox box : boxes) {
+						while (!box.hasMessage(LongMessage.class)) {
+							box.hasMessage(Message.class);
+							box.contains(new TypeSelector<IntMessage>(IntMessage.class));
+						}
+					}
+				}
+				catch(Throwable e) {
+					error[0] = e;
+				}
+			}
+		};
+		reader.start();
+		for(PerTypeMailbox box : boxes) {
+			box.add(new StringMessage("a")); //$NON-NLS-1$
+			box.add(new IntMessage(1));
+			box.add(new MessageStub(1f, "b")); //$NON-NLS-1$
+			box.add(new LongMessage(2));
+		}
+		reader.join(30000);
+		assertFalse(reader.isAlive());
+		assertNull(error[0]);
+	}
+
+}
@@ -0,0 +1,199 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.metrics;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class KernelMetricsTest extends TestCase {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		KernelMetrics.setMetricsEnable(true);
+		KernelMetrics.reset();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		KernelMetrics.reset();
+		KernelMetrics.setMetricsEnable(false);
+		super.tearDown();
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testCounter() throws Exception {
+		final Counter counter = new Counter("test"); //$NON-NLS-1$
+		assertEquals(0, counter.get());
+		counter.increment();
+		counter.add(10);
+		assertEquals(11, counter.get());
+
+		Thread[] threads = new Thread[4];
+		for(int i=0; i<threads.length; ++i) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for(int j=0; j<1000; ++j) {
+						counter.increment();
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for(Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(4011, counter.get());
+
+		counter.reset();
+		assertEquals(0, counter.get());
+	}
+
+	/**
+	 */
+	public void testHistogram() {
+		Histogram histogram = new Histogram("test"); //$NON-NLS-1$
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getPercentile(.5));
+		assertEquals(0., histogram.getMean());
+
+		for(int i=1; i<=100; ++i) {
+			histogram.record(i);
+		}
+		assertEquals(100, histogram.getCount());
+		assertEquals(5050, histogram.getSum());
+		assertEquals(50.5, histogram.getMean());
+		assertEquals(100, histogram.getMax());
+		// 50 is in [32;64[
+		assertEquals(63, histogram.getPercentile(.5));
+		// 99 is in [64;128[, bounded by the maximum
+		assertEquals(100, histogram.getPercentile(.99));
+		assertEquals(1, histogram.getPercentile(0.));
+
+		histogram.record(-5);
+		assertEquals(101, histogram.getCount());
+		assertEquals(0, histogram.getPercentile(0.));
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+	}
+
+	/**
+	 */
+	public void testRegistry() {
+		Counter counter = KernelMetrics.getCounter("test.counter"); //$NON-NLS-1$
+		assertSame(counter, KernelMetrics.getCounter("test.counter")); //$NON-NLS-1$
+		counter.add(3);
+		assertEquals(Long.valueOf(3), KernelMetrics.getCounters().get("test.counter")); //$NON-NLS-1$
+
+		Histogram histogram = KernelMetrics.getHistogram("test.histogram"); //$NON-NLS-1$
+		assertSame(histogram, KernelMetrics.getHistogram("test.histogram")); //$NON-NLS-1$
+		histogram.record(7);
+
+		Gauge gauge = new Gauge() {
+			@Override
+			public long getValue() {
+				return 42;
+			}
+		};
+		assertTrue(KernelMetrics.registerGauge("test.gauge", gauge)); //$NON-NLS-1$
+		assertFalse(KernelMetrics.registerGauge("test.gauge", gauge)); //$NON-NLS-1$
+		assertEquals(Long.valueOf(42), KernelMetrics.getGauges().get("test.gauge")); //$NON-NLS-1$
+
+		String dump = KernelMetrics.dump();
+		assertTrue(dump.contains("test.counter=3")); //$NON-NLS-1$
+		assertTrue(dump.contains("test.gauge=42")); //$NON-NLS-1$
+		assertTrue(dump.contains("test.histogram: count=1")); //$NON-NLS-1$
+
+		KernelMetrics.reset();
+		assertEquals(0, counter.get());
+		assertEquals(0, histogram.getCount());
+
+		assertTrue(KernelMetrics.unregisterGauge("test.gauge", gauge)); //$NON-NLS-1$
+		assertNull(KernelMetrics.getGauges().get("test.gauge")); //$NON-NLS-1$
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testEnableMetrics() throws Exception {
+		KernelMetrics.setMetricsEnable(false);
+		assertFalse(KernelMetrics.isMetricsEnable());
+		KernelMetrics.enableMetrics();
+		KernelMetrics.enableMetrics();
+		assertTrue(KernelMetrics.isMetricsEnable());
+		KernelMetrics.disableMetrics();
+		assertTrue(KernelMetrics.isMetricsEnable());
+		KernelMetrics.disableMetrics();
+		assertFalse(KernelMetrics.isMetricsEnable());
+		KernelMetrics.disableMetrics();
+		assertFalse(KernelMetrics.isMetricsEnable());
+
+		KernelMetrics.setMetricsEnable(true);
+		KernelMetrics.enableMetrics();
+		KernelMetrics.disableMetrics();
+		assertTrue(KernelMetrics.isMetricsEnable());
+		KernelMetrics.setMetricsEnable(false);
+		assertFalse(KernelMetrics.isMetricsEnable());
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testMBean() throws Exception {
+		ObjectName name = new ObjectName(KernelMetrics.MBEAN_NAME);
+		KernelMetrics.getCounter("test.mbean").add(5); //$NON-NLS-1$
+		KernelMetrics.registerMBean();
+		KernelMetrics.registerMBean();
+		try {
+			assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+			assertEquals(Boolean.TRUE, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Enabled")); //$NON-NLS-1$
+			Object dump = ManagementFactory.getPlatformMBeanServer().invoke(name, "dump", null, null); //$NON-NLS-1$
+			assertTrue(((String)dump).contains("test.mbean=5")); //$NON-NLS-1$
+			KernelMetrics.unregisterMBean();
+			assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+		}
+		finally {
+			KernelMetrics.unregisterMBean();
+		}
+		assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+	}
+
+}
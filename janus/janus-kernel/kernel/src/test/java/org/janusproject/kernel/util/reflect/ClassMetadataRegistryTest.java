@@ -0,0 +1,129 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.util.reflect;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class ClassMetadataRegistryTest extends TestCase {
+
+	/**
+	 */
+	public void testGet() {
+		ClassMetadata m1 = ClassMetadataRegistry.get(PublicStub.class);
+		assertNotNull(m1);
+		assertSame(PublicStub.class, m1.getType());
+		assertSame(m1, ClassMetadataRegistry.get(PublicStub.class));
+		assertNotSame(m1, ClassMetadataRegistry.get(String.class));
+	}
+
+	/**
+	 */
+	public void testGetFacet() {
+		CountingFacet facet = new CountingFacet();
+		assertEquals(PublicStub.class.getName(), ClassMetadataRegistry.getFacet(PublicStub.class, facet));
+		assertEquals(PublicStub.class.getName(), ClassMetadataRegistry.getFacet(PublicStub.class, facet));
+		assertEquals(1, facet.count.get());
+		assertEquals(String.class.getName(), ClassMetadataRegistry.getFacet(String.class, facet));
+		assertEquals(2, facet.count.get());
+	}
+
+	/**
+	 */
+	public void testGetFacet_null() {
+		CountingFacet facet = new CountingFacet();
+		assertNull(ClassMetadataRegistry.getFacet(Object.class, facet));
+		assertNull(ClassMetadataRegistry.getFacet(Object.class, facet));
+		assertEquals(1, facet.count.get());
+	}
+
+	/**
+	 */
+	public void testRelease() {
+		ClassMetadata m = ClassMetadataRegistry.get(PublicStub.class);
+		ClassMetadataRegistry.release(PublicStub.class.getClassLoader());
+		assertNotSame(m, ClassMetadataRegistry.get(PublicStub.class));
+	}
+
+	/**
+	 */
+	public void testReleaseClass() {
+		ClassMetadata m1 = ClassMetadataRegistry.get(PublicStub.class);
+		ClassMetadata m2 = ClassMetadataRegistry.get(Object.class);
+		assertTrue(ClassMetadataRegistry.getClasses().contains(PublicStub.class));
+		ClassMetadataRegistry.release(PublicStub.class);
+		assertFalse(ClassMetadataRegistry.getClasses().contains(PublicStub.class));
+		assertSame(m2, ClassMetadataRegistry.get(Object.class));
+		assertNotSame(m1, ClassMetadataRegistry.get(PublicStub.class));
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	public static class PublicStub {
+
+		/**
+		 */
+		public PublicStub() {
+			//
+		}
+
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class CountingFacet implements ClassMetadataFacet<String> {
+
+		public final AtomicInteger count = new AtomicInteger();
+
+		/**
+		 */
+		public CountingFacet() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String compute(Class<?> type) {
+			this.count.incrementAndGet();
+			if (type==Object.class) return null;
+			return type.getName();
+		}
+
+	}
+
+}
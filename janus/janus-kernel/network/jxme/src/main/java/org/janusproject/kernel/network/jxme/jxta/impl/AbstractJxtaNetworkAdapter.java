@@ -224,6 +224,18 @@ public abstract class AbstractJxtaNetworkAdapter implements NetworkAdapter, JXTA
 		return new ApplicationJxtaGroup(this, ppg.newGroup(pga), parent);		
 	}
 
+	/** Forget the distant location of the given agent in all the groups,
+	 * eg. when the agent has moved to this kernel, or when it was removed.
+	 * 
+	 * @param agent is the address of the agent.
+	 * @since 1.1
+	 */
+	protected void invalidateAgentLocation(AgentAddress agent) {
+		for(JanusGroupJxtaGroup g : this.groups.values()) {
+			g.invalidateLocation(agent);
+		}
+	}
+
 	/**
 	 * Creates the Janus organizational jxta group.
 	 * 
@@ -134,16 +134,15 @@ public class DefaultJxtaNetworkAdapter extends AbstractJxtaNetworkAdapter implem
 	 */
 	@Override
 	public void informLocalAgentAdded(AgentAddress agentAdress) {
-		// TODO Auto-generated method stub
-		
+		// The agent may have migrated from a distant kernel
+		invalidateAgentLocation(agentAdress);
 	}
 
 	/** {@inheritDoc}
 	 */
 	@Override
 	public void informLocalAgentRemoved(AgentAddress agentAddress) {
-		// TODO Auto-generated method stub
-		
+		invalidateAgentLocation(agentAddress);
 	}
 
 }
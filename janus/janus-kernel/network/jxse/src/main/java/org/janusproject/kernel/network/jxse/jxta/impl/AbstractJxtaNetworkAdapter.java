@@ -220,6 +220,18 @@ public abstract class AbstractJxtaNetworkAdapter implements NetworkAdapter, JXTA
 		return new ApplicationJxtaGroup(this, ppg.newGroup(pga), parent);		
 	}
 
+	/** Forget the distant location of the given agent in all the groups,
+	 * eg. when the agent has moved to this kernel, or when it was removed.
+	 * 
+	 * @param agent is the address of the agent.
+	 * @since 1.1
+	 */
+	protected void invalidateAgentLocation(AgentAddress agent) {
+		for(JanusGroupJxtaGroup g : this.groups.values()) {
+			g.invalidateLocation(agent);
+		}
+	}
+
 	/**
 	 * Creates the Janus organizational jxta group.
 	 * 
@@ -422,16 +434,15 @@ public abstract class AbstractJxtaNetworkAdapter implements NetworkAdapter, JXTA
 	 */
 	@Override
 	public void informLocalAgentAdded(AgentAddress agentAdress) {
-		// TODO Auto-generated method stub
-		
+		// The agent may have migrated from a distant kernel
+		invalidateAgentLocation(agentAdress);
 	}
 	
 	/** {@inheritDoc}
 	 */
 	@Override
 	public void informLocalAgentRemoved(AgentAddress agentAddress) {
-		// TODO Auto-generated method stub
-		
+		invalidateAgentLocation(agentAddress);
 	}
 
 	/**
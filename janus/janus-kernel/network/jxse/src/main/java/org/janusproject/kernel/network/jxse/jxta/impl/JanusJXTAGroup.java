@@ -38,7 +38,12 @@ import net.jxta.util.JxtaServerPipe;
 
 import org.arakhne.afc.vmutil.locale.Locale;
 import org.janusproject.kernel.address.Address;
+import org.janusproject.kernel.address.AgentAddress;
+import org.janusproject.kernel.crio.core.RoleAddress;
 import org.janusproject.kernel.message.Message;
+import org.janusproject.kernel.metrics.Counter;
+import org.janusproject.kernel.metrics.KernelMetrics;
+import org.janusproject.kernel.network.AgentLocationCache;
 import org.janusproject.kernel.network.jxse.jxta.JXTANetworkHandler;
 import org.janusproject.kernel.util.random.RandomNumber;
 import org.janusproject.kernel.util.throwable.Throwables;
@@ -66,10 +71,17 @@ abstract class JanusJXTAGroup extends JxtaGroup {
 	private static final String COMM_TYPE_BROADCAST = "Broadcast"; //$NON-NLS-1$
 	private static final String COMM_TYPE_DIRECT_SPECIFIED = "DirectSpecified"; //$NON-NLS-1$
 	private static final String COMM_TYPE_DIRECT_RANDOM = "DirectRandom"; //$NON-NLS-1$
+
+	private static final Counter SENT_MESSAGES = KernelMetrics.getCounter(KernelMetrics.NETWORK_SENT_MESSAGES);
+	private static final Counter RECEIVED_MESSAGES = KernelMetrics.getCounter(KernelMetrics.NETWORK_RECEIVED_MESSAGES);
 	
 	private final static int MAX_SEND_MESSAGE_RETRY = 10;
 	
 	private Boolean joined = false;
+
+	/** Pipes of the kernels which have received the messages to the distant agents.
+	 */
+	private final AgentLocationCache<PipeAdvertisement> locations = new AgentLocationCache<PipeAdvertisement>();
 	
 	/**
 	 * @param adapter is the JXTA network handler supporting this Janus JXTA group.
@@ -123,11 +135,27 @@ abstract class JanusJXTAGroup extends JxtaGroup {
 	 * @throws IOException
 	 */
 	public Address sendMessage(Message message) throws IOException {
+		// Send to the kernel which has previously received a message for the same agent
+		AgentAddress target = getPlayer(message.getReceiver());
+		if (target != null) {
+			PipeAdvertisement cached = this.locations.get(target);
+			if (cached != null) {
+				Address receiver = sendMessage(message, false, cached);
+				if (receiver != null) {
+					return receiver;
+				}
+				this.locations.invalidate(target, cached);
+			}
+		}
 		for (int i = 0; i < MAX_SEND_MESSAGE_RETRY; i++) {
 			PipeAdvertisement pAdv = findCandidateKernel();
 			if (pAdv != null) {
 				Address receiver = sendMessage(message, false, pAdv);
 				if (receiver != null) {
+					AgentAddress player = getPlayer(receiver);
+					if (player != null) {
+						this.locations.put(player, pAdv);
+					}
 					return receiver;
 				}
 			}
@@ -135,9 +163,31 @@ abstract class JanusJXTAGroup extends JxtaGroup {
 		return null;
 	}
 
+	private static AgentAddress getPlayer(Address address) {
+		if (address instanceof RoleAddress) {
+			return ((RoleAddress)address).getPlayer();
+		}
+		if (address instanceof AgentAddress) {
+			return (AgentAddress)address;
+		}
+		return null;
+	}
+
+	/** Forget the location of the given agent, eg. when it has moved to the local kernel.
+	 * 
+	 * @param agent is the address of the agent.
+	 * @since 1.1
+	 */
+	public void invalidateLocation(AgentAddress agent) {
+		this.locations.invalidate(agent);
+	}
+
 	private Address sendMessage(Message message, boolean isBroadcast, PipeAdvertisement pAdv) throws IOException {
 		OutgoingConnectionHandler handler = new OutgoingConnectionHandler(pAdv);
 		net.jxta.endpoint.Message msg = buildJxtaMessage(message, isBroadcast);
+		if (KernelMetrics.isMetricsEnable()) {
+			SENT_MESSAGES.increment();
+		}
 		return handler.send(msg, isBroadcast);
 	}
 
@@ -300,6 +350,9 @@ abstract class JanusJXTAGroup extends JxtaGroup {
 						JanusJXTAGroup.MSG_NAMESPACE_SENDING, 
 						JanusJXTAGroup.MSG_ELEM_OBJ);
 				boolean isBroadcast = COMM_TYPE_BROADCAST.equals(MessageUtils.getStringFromMessage(message, MSG_NAMESPACE_SENDING, MSG_ELEM_COMM_TYPE));
+				if (KernelMetrics.isMetricsEnable()) {
+					RECEIVED_MESSAGES.increment();
+				}
 				
 
 				Address receiver = JanusJXTAGroup.this.processIncomingMessage(janusMessage, isBroadcast);
@@ -0,0 +1,269 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.network;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.janusproject.kernel.address.AgentAddress;
+
+/**
+ * Cache of the locations of the distant agents.
+ * <p>
+ * The location of an agent is the kernel, or the network end-point,
+ * which is hosting the agent. The cache is filled from the notifications
+ * of the distant kernels: the agents which are taking roles, or which are
+ * added, and the receivers which are replying to a message. An agent which
+ * is only known from its roles is removed from the cache when it releases
+ * its last role. A location is replaced when the agent is moving to another
+ * kernel, and it is invalidated when a message cannot be delivered to it,
+ * or when the agent is removed from its kernel. The players announced by
+ * a kernel when it is discovered replace the role counts at this kernel,
+ * so that the roles which were also notified are not counted twice.
+ * <p>
+ * The reading of the cache is not blocking.
+ * 
+ * @param <L> is the type of the locations.
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class AgentLocationCache<L> {
+
+	private final Map<UUID,Entry<L>> locations = new ConcurrentHashMap<UUID,Entry<L>>();
+
+	/**
+	 */
+	public AgentLocationCache() {
+		//
+	}
+
+	/** Replies the location of the given agent.
+	 * 
+	 * @param agent is the address of the agent.
+	 * @return the location of the agent, or <code>null</code> if unknown.
+	 */
+	public L get(AgentAddress agent) {
+		Entry<L> entry = this.locations.get(agent.getUUID());
+		return (entry==null) ? null : entry.location;
+	}
+
+	/** Replies the number of agents in the cache.
+	 * 
+	 * @return the number of agents.
+	 */
+	public int size() {
+		return this.locations.size();
+	}
+
+	/** Set the location of the given agent. The agent is
+	 * kept in the cache until it is invalidated.
+	 * 
+	 * @param agent is the address of the agent.
+	 * @param location is the location of the agent.
+	 */
+	public synchronized void put(AgentAddress agent, L location) {
+		assert(location!=null);
+		Entry<L> entry = this.locations.get(agent.getUUID());
+		int roles = (entry!=null && entry.location.equals(location)) ? entry.roles : 0;
+		this.locations.put(agent.getUUID(), new Entry<L>(location, roles, true));
+	}
+
+	/** Notifies that the given agent has taken a role at the given location.
+	 * 
+	 * @param agent is the address of the role player.
+	 * @param location is the location of the player.
+	 */
+	public synchronized void roleTaken(AgentAddress agent, L location) {
+		assert(location!=null);
+		Entry<L> entry = this.locations.get(agent.getUUID());
+		if (entry!=null && entry.location.equals(location)) {
+			this.locations.put(agent.getUUID(), new Entry<L>(location, entry.roles+1, entry.isPinned));
+		}
+		else {
+			this.locations.put(agent.getUUID(), new Entry<L>(location, 1, false));
+		}
+	}
+
+	/** Notifies that the given agent has released a role at the given location.
+	 * 
+	 * @param agent is the address of the role player.
+	 * @param location is the location of the player.
+	 */
+	public synchronized void roleReleased(AgentAddress agent, L location) {
+		Entry<L> entry = this.locations.get(agent.getUUID());
+		if (entry!=null && entry.location.equals(location)) {
+			if (entry.roles<=1 && !entry.isPinned) {
+				this.locations.remove(agent.getUUID());
+			}
+			else {
+				this.locations.put(agent.getUUID(), new Entry<L>(location, Math.max(0, entry.roles-1), entry.isPinned));
+			}
+		}
+	}
+
+	/** Notifies that the given agent has moved to the given location.
+	 * <p>
+	 * A migrating agent is releasing its roles on its previous kernel,
+	 * and it is taking them again on its new kernel: the roles played
+	 * at the previous location are not counted at the new location.
+	 * The notifications of the previous location which are received
+	 * after this function are ignored.
+	 * 
+	 * @param agent is the address of the agent.
+	 * @param location is the new location of the agent.
+	 */
+	public synchronized void moved(AgentAddress agent, L location) {
+		assert(location!=null);
+		Entry<L> entry = this.locations.get(agent.getUUID());
+		int roles = (entry!=null && entry.location.equals(location)) ? entry.roles : 0;
+		this.locations.put(agent.getUUID(), new Entry<L>(location, roles, true));
+	}
+
+	/** Replace the players at the given location.
+	 * <p>
+	 * The given counts of roles are the complete state of the location,
+	 * eg. the players announced by a kernel when it is discovered.
+	 * The agents which are not inside the given map are no more playing
+	 * a role at the location. The agents which were added at, or moved to,
+	 * another location are not changed.
+	 * 
+	 * @param location is the location of the players.
+	 * @param players are the numbers of roles played by each agent at the location.
+	 */
+	public synchronized void replaceRoles(L location, Map<AgentAddress,Integer> players) {
+		assert(location!=null);
+		Map<UUID,Integer> counts = new HashMap<UUID,Integer>();
+		for(Map.Entry<AgentAddress,Integer> player : players.entrySet()) {
+			counts.put(player.getKey().getUUID(), player.getValue());
+		}
+		Iterator<Map.Entry<UUID,Entry<L>>> iterator = this.locations.entrySet().iterator();
+		Map.Entry<UUID,Entry<L>> e;
+		Integer count;
+		while (iterator.hasNext()) {
+			e = iterator.next();
+			if (e.getValue().location.equals(location)) {
+				count = counts.get(e.getKey());
+				if (count!=null && count.intValue()>0) {
+					e.setValue(new Entry<L>(location, count.intValue(), e.getValue().isPinned));
+				}
+				else if (e.getValue().isPinned) {
+					e.setValue(new Entry<L>(location, 0, true));
+				}
+				else {
+					iterator.remove();
+				}
+				counts.remove(e.getKey());
+			}
+		}
+		Entry<L> entry;
+		for(Map.Entry<UUID,Integer> player : counts.entrySet()) {
+			entry = this.locations.get(player.getKey());
+			if (player.getValue().intValue()>0 && (entry==null || !entry.isPinned)) {
+				this.locations.put(player.getKey(), new Entry<L>(location, player.getValue().intValue(), false));
+			}
+		}
+	}
+
+	/** Remove the location of the given agent.
+	 * 
+	 * @param agent is the address of the agent.
+	 */
+	public synchronized void invalidate(AgentAddress agent) {
+		this.locations.remove(agent.getUUID());
+	}
+
+	/** Remove the location of the given agent if it is the given location.
+	 * A notification from a kernel which was hosting the agent before
+	 * a migration does not invalidate the new location.
+	 * 
+	 * @param agent is the address of the agent.
+	 * @param location is the location to invalidate.
+	 */
+	public synchronized void invalidate(AgentAddress agent, L location) {
+		Entry<L> entry = this.locations.get(agent.getUUID());
+		if (entry!=null && entry.location.equals(location)) {
+			this.locations.remove(agent.getUUID());
+		}
+	}
+
+	/** Remove all the agents at the given location.
+	 * 
+	 * @param location is the location to remove.
+	 */
+	public synchronized void removeLocation(L location) {
+		Iterator<Entry<L>> iterator = this.locations.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().location.equals(location)) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/** Remove all the locations.
+	 */
+	public synchronized void clear() {
+		this.locations.clear();
+	}
+
+	/**
+	 * Location of an agent.
+	 * 
+	 * @param <L> is the type of the locations.
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static final class Entry<L> {
+
+		/** Location of the agent.
+		 */
+		public final L location;
+
+		/** Number of roles played by the agent at the location.
+		 */
+		public final int roles;
+
+		/** Indicates if the agent is kept in the cache when it has no more role.
+		 */
+		public final boolean isPinned;
+
+		/**
+		 * @param location
+		 * @param roles
+		 * @param isPinned
+		 */
+		public Entry(L location, int roles, boolean isPinned) {
+			this.location = location;
+			this.roles = roles;
+			this.isPinned = isPinned;
+		}
+
+	}
+
+}
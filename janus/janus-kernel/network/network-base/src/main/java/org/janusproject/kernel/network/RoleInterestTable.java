@@ -0,0 +1,329 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.network;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.janusproject.kernel.crio.core.GroupAddress;
+import org.janusproject.kernel.crio.core.Role;
+
+/**
+ * Table of the interests of the kernels for the broadcasts in the
+ * distributed groups.
+ * <p>
+ * A kernel is interested by the broadcasts to a role of a group when
+ * it hosts at least one player of this role, or of a sub-role. The
+ * table counts the local players of each role, to detect the first
+ * and the last ones, and the players of each role on the distant
+ * kernels, to select the kernels which must receive a broadcast.
+ * The replies of {@link #getInterestedKernels(GroupAddress, Class)}
+ * are cached until the next change of the distant interests.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class RoleInterestTable {
+
+	private final Map<GroupAddress,Map<Class<? extends Role>,Integer>> localPlayers = new HashMap<GroupAddress,Map<Class<? extends Role>,Integer>>();
+	private final Map<GroupAddress,Map<Class<? extends Role>,Map<UUID,Integer>>> remotePlayers = new HashMap<GroupAddress,Map<Class<? extends Role>,Map<UUID,Integer>>>();
+	private final Map<Key,Set<UUID>> cache = new ConcurrentHashMap<Key,Set<UUID>>();
+
+	/**
+	 */
+	public RoleInterestTable() {
+		//
+	}
+
+	/** Add a local player of the given role.
+	 * 
+	 * @param group is the address of the group.
+	 * @param role is the played role.
+	 * @return <code>true</code> if the given player is the first local
+	 * player of the role, otherwise <code>false</code>.
+	 */
+	public synchronized boolean addLocalPlayer(GroupAddress group, Class<? extends Role> role) {
+		Map<Class<? extends Role>,Integer> roles = this.localPlayers.get(group);
+		if (roles==null) {
+			roles = new HashMap<Class<? extends Role>,Integer>();
+			this.localPlayers.put(group, roles);
+		}
+		Integer count = roles.get(role);
+		roles.put(role, Integer.valueOf(count==null ? 1 : count.intValue()+1));
+		return count==null;
+	}
+
+	/** Remove a local player of the given role.
+	 * 
+	 * @param group is the address of the group.
+	 * @param role is the released role.
+	 * @return <code>true</code> if the given player was the last local
+	 * player of the role, otherwise <code>false</code>.
+	 */
+	public synchronized boolean removeLocalPlayer(GroupAddress group, Class<? extends Role> role) {
+		Map<Class<? extends Role>,Integer> roles = this.localPlayers.get(group);
+		if (roles!=null) {
+			Integer count = roles.get(role);
+			if (count!=null) {
+				if (count.intValue()>1) {
+					roles.put(role, Integer.valueOf(count.intValue()-1));
+					return false;
+				}
+				roles.remove(role);
+				if (roles.isEmpty()) {
+					this.localPlayers.remove(group);
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Remove all the local players of the given group.
+	 * 
+	 * @param group is the address of the group.
+	 * @return the roles which were played in the group.
+	 */
+	public synchronized Set<Class<? extends Role>> removeLocalGroup(GroupAddress group) {
+		Map<Class<? extends Role>,Integer> roles = this.localPlayers.remove(group);
+		if (roles==null) return Collections.emptySet();
+		return roles.keySet();
+	}
+
+	/** Replies if a local player of the given role exists.
+	 * 
+	 * @param group is the address of the group.
+	 * @param role is the role.
+	 * @return <code>true</code> if the role is locally played.
+	 */
+	public synchronized boolean isLocallyPlayed(GroupAddress group, Class<? extends Role> role) {
+		Map<Class<? extends Role>,Integer> roles = this.localPlayers.get(group);
+		return roles!=null && roles.containsKey(role);
+	}
+
+	/** Add a player of the given role on a distant kernel.
+	 * 
+	 * @param kernel is the identifier of the distant kernel.
+	 * @param group is the address of the group.
+	 * @param role is the played role.
+	 */
+	public synchronized void addRemotePlayer(UUID kernel, GroupAddress group, Class<? extends Role> role) {
+		Map<Class<? extends Role>,Map<UUID,Integer>> roles = this.remotePlayers.get(group);
+		if (roles==null) {
+			roles = new HashMap<Class<? extends Role>,Map<UUID,Integer>>();
+			this.remotePlayers.put(group, roles);
+		}
+		Map<UUID,Integer> kernels = roles.get(role);
+		if (kernels==null) {
+			kernels = new HashMap<UUID,Integer>();
+			roles.put(role, kernels);
+		}
+		Integer count = kernels.get(kernel);
+		kernels.put(kernel, Integer.valueOf(count==null ? 1 : count.intValue()+1));
+		if (count==null) {
+			this.cache.clear();
+		}
+	}
+
+	/** Remove a player of the given role on a distant kernel.
+	 * 
+	 * @param kernel is the identifier of the distant kernel.
+	 * @param group is the address of the group.
+	 * @param role is the released role.
+	 */
+	public synchronized void removeRemotePlayer(UUID kernel, GroupAddress group, Class<? extends Role> role) {
+		Map<Class<? extends Role>,Map<UUID,Integer>> roles = this.remotePlayers.get(group);
+		if (roles!=null) {
+			Map<UUID,Integer> kernels = roles.get(role);
+			if (kernels!=null) {
+				Integer count = kernels.get(kernel);
+				if (count!=null) {
+					if (count.intValue()>1) {
+						kernels.put(kernel, Integer.valueOf(count.intValue()-1));
+					}
+					else {
+						kernels.remove(kernel);
+						if (kernels.isEmpty()) {
+							roles.remove(role);
+							if (roles.isEmpty()) {
+								this.remotePlayers.remove(group);
+							}
+						}
+						this.cache.clear();
+					}
+				}
+			}
+		}
+	}
+
+	/** Remove all the players of the given group on a distant kernel.
+	 * 
+	 * @param kernel is the identifier of the distant kernel.
+	 * @param group is the address of the group.
+	 */
+	public synchronized void removeRemoteGroup(UUID kernel, GroupAddress group) {
+		Map<Class<? extends Role>,Map<UUID,Integer>> roles = this.remotePlayers.get(group);
+		if (roles!=null) {
+			removeKernel(roles, kernel);
+			if (roles.isEmpty()) {
+				this.remotePlayers.remove(group);
+			}
+			this.cache.clear();
+		}
+	}
+
+	/** Remove all the players on a distant kernel.
+	 * 
+	 * @param kernel is the identifier of the distant kernel.
+	 */
+	public synchronized void removeRemoteKernel(UUID kernel) {
+		Iterator<Map<Class<? extends Role>,Map<UUID,Integer>>> iterator = this.remotePlayers.values().iterator();
+		Map<Class<? extends Role>,Map<UUID,Integer>> roles;
+		while (iterator.hasNext()) {
+			roles = iterator.next();
+			removeKernel(roles, kernel);
+			if (roles.isEmpty()) {
+				iterator.remove();
+			}
+		}
+		this.cache.clear();
+	}
+
+	private static void removeKernel(Map<Class<? extends Role>,Map<UUID,Integer>> roles, UUID kernel) {
+		Iterator<Map<UUID,Integer>> iterator = roles.values().iterator();
+		Map<UUID,Integer> kernels;
+		while (iterator.hasNext()) {
+			kernels = iterator.next();
+			kernels.remove(kernel);
+			if (kernels.isEmpty()) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/** Replies the distant kernels which are hosting at least
+	 * one player of the given role, or of one of its sub-roles.
+	 * 
+	 * @param group is the address of the group.
+	 * @param role is the role which is receiving a broadcast.
+	 * @return the identifiers of the interested kernels.
+	 */
+	public Set<UUID> getInterestedKernels(GroupAddress group, Class<? extends Role> role) {
+		Key key = new Key(group, role);
+		Set<UUID> kernels = this.cache.get(key);
+		if (kernels==null) {
+			synchronized(this) {
+				kernels = this.cache.get(key);
+				if (kernels==null) {
+					kernels = computeInterestedKernels(group, role);
+					this.cache.put(key, kernels);
+				}
+			}
+		}
+		return kernels;
+	}
+
+	/** Replies the roles whose broadcasts are received by a player
+	 * of the given role: the role itself and its super-roles,
+	 * excepted {@link Role}.
+	 * 
+	 * @param role is the played role.
+	 * @return the roles, from the given role to its highest super-role.
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<Class<? extends Role>> getReceivedRoles(Class<? extends Role> role) {
+		List<Class<? extends Role>> roles = new ArrayList<Class<? extends Role>>();
+		Class<?> type = role;
+		while (type!=null && Role.class.isAssignableFrom(type) && !Role.class.equals(type)) {
+			roles.add((Class<? extends Role>)type);
+			type = type.getSuperclass();
+		}
+		return roles;
+	}
+
+	private Set<UUID> computeInterestedKernels(GroupAddress group, Class<? extends Role> role) {
+		Map<Class<? extends Role>,Map<UUID,Integer>> roles = this.remotePlayers.get(group);
+		if (roles==null) return Collections.emptySet();
+		List<UUID> kernels = new ArrayList<UUID>();
+		for(Map.Entry<Class<? extends Role>,Map<UUID,Integer>> entry : roles.entrySet()) {
+			if (role.isAssignableFrom(entry.getKey())) {
+				kernels.addAll(entry.getValue().keySet());
+			}
+		}
+		if (kernels.isEmpty()) return Collections.emptySet();
+		return Collections.unmodifiableSet(new HashSet<UUID>(kernels));
+	}
+
+	/**
+	 * Key of the cache of the interested kernels.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static final class Key {
+
+		private final GroupAddress group;
+		private final Class<? extends Role> role;
+
+		/**
+		 * @param group
+		 * @param role
+		 */
+		public Key(GroupAddress group, Class<? extends Role> role) {
+			this.group = group;
+			this.role = role;
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof Key) {
+				Key k = (Key)obj;
+				return this.group.equals(k.group) && this.role.equals(k.role);
+			}
+			return false;
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public int hashCode() {
+			return this.group.hashCode() * 31 + this.role.hashCode();
+		}
+
+	}
+
+}
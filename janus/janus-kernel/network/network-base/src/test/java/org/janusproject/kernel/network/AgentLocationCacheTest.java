@@ -0,0 +1,213 @@
+/*
+ * $Id$
+ *
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.network;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import junit.framework.TestCase;
+
+import org.janusproject.kernel.address.AgentAddress;
+import org.janusproject.kernel.crio.core.AddressUtil;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see AgentLocationCache
+ */
+public class AgentLocationCacheTest extends TestCase {
+
+	private AgentLocationCache<UUID> cache;
+	private AgentAddress agent1;
+	private AgentAddress agent2;
+	private UUID kernel1;
+	private UUID kernel2;
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		this.cache = new AgentLocationCache<UUID>();
+		this.agent1 = AddressUtil.createAgentAddress(UUID.randomUUID());
+		this.agent2 = AddressUtil.createAgentAddress(UUID.randomUUID());
+		this.kernel1 = UUID.randomUUID();
+		this.kernel2 = UUID.randomUUID();
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		this.cache = null;
+		this.agent1 = this.agent2 = null;
+		this.kernel1 = this.kernel2 = null;
+		super.tearDown();
+	}
+
+	/**
+	 */
+	public void testRoles() {
+		assertNull(this.cache.get(this.agent1));
+		this.cache.roleTaken(this.agent1, this.kernel1);
+		this.cache.roleTaken(this.agent1, this.kernel1);
+		assertEquals(this.kernel1, this.cache.get(this.agent1));
+		assertEquals(1, this.cache.size());
+
+		this.cache.roleReleased(this.agent1, this.kernel1);
+		assertEquals(this.kernel1, this.cache.get(this.agent1));
+		this.cache.roleReleased(this.agent1, this.kernel1);
+		assertNull(this.cache.get(this.agent1));
+		assertEquals(0, this.cache.size());
+	}
+
+	/**
+	 */
+	public void testPut() {
+		this.cache.put(this.agent1, this.kernel1);
+		this.cache.roleTaken(this.agent1, this.kernel1);
+		this.cache.roleReleased(this.agent1, this.kernel1);
+		// An added agent is kept without role
+		assertEquals(this.kernel1, this.cache.get(this.agent1));
+		this.cache.roleReleased(this.agent1, this.kernel1);
+		assertEquals(this.kernel1, this.cache.get(this.agent1));
+	}
+
+	/**
+	 */
+	public void testInvalidate() {
+		this.cache.put(this.agent1, this.kernel1);
+		this.cache.roleTaken(this.agent2, this.kernel2);
+
+		// The notification of another location is ignored
+		this.cache.invalidate(this.agent1, this.kernel2);
+		assertEquals(this.kernel1, this.cache.get(this.agent1));
+		this.cache.invalidate(this.agent1, this.kernel1);
+		assertNull(this.cache.get(this.agent1));
+
+		this.cache.invalidate(this.agent2);
+		assertNull(this.cache.get(this.agent2));
+		assertEquals(0, this.cache.size());
+	}
+
+	/**
+	 */
+	public void testMoved() {
+		this.cache.put(this.agent1, this.kernel1);
+		this.cache.roleTaken(this.agent1, this.kernel1);
+		this.cache.roleTaken(this.agent1, this.kernel1);
+
+		this.cache.moved(this.agent1, this.kernel2);
+		assertEquals(this.kernel2, this.cache.get(this.agent1));
+
+		// The late notifications of the previous kernel are ignored
+		this.cache.roleReleased(this.agent1, this.kernel1);
+		this.cache.roleReleased(this.agent1, this.kernel1);
+		this.cache.invalidate(this.agent1, this.kernel1);
+		assertEquals(this.kernel2, this.cache.get(this.agent1));
+
+		// The roles are taken again on the new kernel
+		this.cache.roleTaken(this.agent1, this.kernel2);
+		this.cache.roleReleased(this.agent1, this.kernel2);
+		assertEquals(this.kernel2, this.cache.get(this.agent1));
+
+		this.cache.invalidate(this.agent1, this.kernel2);
+		assertNull(this.cache.get(this.agent1));
+	}
+
+	/**
+	 */
+	public void testMovedBeforeReleases() {
+		// The roles on the previous kernel are not counted on the new kernel
+		this.cache.roleTaken(this.agent1, this.kernel1);
+		this.cache.moved(this.agent1, this.kernel2);
+		this.cache.roleTaken(this.agent1, this.kernel2);
+		this.cache.roleReleased(this.agent1, this.kernel2);
+		assertEquals(this.kernel2, this.cache.get(this.agent1));
+		this.cache.roleReleased(this.agent1, this.kernel2);
+		assertEquals(this.kernel2, this.cache.get(this.agent1));
+	}
+
+	/**
+	 */
+	public void testReplaceRoles() {
+		AgentAddress agent3 = AddressUtil.createAgentAddress(UUID.randomUUID());
+		AgentAddress agent4 = AddressUtil.createAgentAddress(UUID.randomUUID());
+		// Notification which is also included in the players
+		this.cache.roleTaken(this.agent1, this.kernel1);
+		// Player which has released its roles since the notification
+		this.cache.roleTaken(this.agent2, this.kernel1);
+		// Added agent without role
+		this.cache.put(agent3, this.kernel1);
+		// Agent which has moved to another kernel
+		this.cache.moved(agent4, this.kernel2);
+
+		Map<AgentAddress,Integer> players = new HashMap<AgentAddress,Integer>();
+		players.put(this.agent1, Integer.valueOf(1));
+		players.put(agent4, Integer.valueOf(2));
+		this.cache.replaceRoles(this.kernel1, players);
+
+		assertEquals(this.kernel1, this.cache.get(this.agent1));
+		assertNull(this.cache.get(this.agent2));
+		assertEquals(this.kernel1, this.cache.get(agent3));
+		assertEquals(this.kernel2, this.cache.get(agent4));
+
+		// The role is counted once
+		this.cache.roleReleased(this.agent1, this.kernel1);
+		assertNull(this.cache.get(this.agent1));
+	}
+
+	/**
+	 */
+	public void testReplaceRolesAddsPlayers() {
+		Map<AgentAddress,Integer> players = new HashMap<AgentAddress,Integer>();
+		players.put(this.agent1, Integer.valueOf(2));
+		players.put(this.agent2, Integer.valueOf(0));
+		this.cache.replaceRoles(this.kernel1, players);
+		assertEquals(this.kernel1, this.cache.get(this.agent1));
+		assertNull(this.cache.get(this.agent2));
+
+		// The same players received twice are not counted twice
+		this.cache.replaceRoles(this.kernel1, players);
+		this.cache.roleReleased(this.agent1, this.kernel1);
+		assertEquals(this.kernel1, this.cache.get(this.agent1));
+		this.cache.roleReleased(this.agent1, this.kernel1);
+		assertNull(this.cache.get(this.agent1));
+	}
+
+	/**
+	 */
+	public void testRemoveLocation() {
+		this.cache.put(this.agent1, this.kernel1);
+		this.cache.roleTaken(this.agent2, this.kernel2);
+		this.cache.removeLocation(this.kernel1);
+		assertNull(this.cache.get(this.agent1));
+		assertEquals(this.kernel2, this.cache.get(this.agent2));
+		this.cache.clear();
+		assertEquals(0, this.cache.size());
+	}
+
+}
@@ -0,0 +1,327 @@
+/*
+ * $Id$
+ *
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.network;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import junit.framework.TestCase;
+
+import org.janusproject.kernel.crio.core.AddressUtil;
+import org.janusproject.kernel.crio.core.CRIOContext;
+import org.janusproject.kernel.crio.core.GroupAddress;
+import org.janusproject.kernel.crio.core.Organization;
+import org.janusproject.kernel.crio.core.Role;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see RoleInterestTable
+ */
+public class RoleInterestTableTest extends TestCase {
+
+	private RoleInterestTable table;
+	private GroupAddress group1;
+	private GroupAddress group2;
+	private UUID kernel1;
+	private UUID kernel2;
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		this.table = new RoleInterestTable();
+		this.group1 = AddressUtil.createGroupAddress(UUID.randomUUID(), OrganizationStub.class);
+		this.group2 = AddressUtil.createGroupAddress(UUID.randomUUID(), OrganizationStub.class);
+		this.kernel1 = UUID.randomUUID();
+		this.kernel2 = UUID.randomUUID();
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		this.table = null;
+		this.group1 = this.group2 = null;
+		this.kernel1 = this.kernel2 = null;
+		super.tearDown();
+	}
+
+	private static Set<UUID> set(UUID... kernels) {
+		return new HashSet<UUID>(Arrays.asList(kernels));
+	}
+
+	/**
+	 */
+	public void testLocalPlayers() {
+		assertFalse(this.table.isLocallyPlayed(this.group1, RoleA.class));
+
+		assertTrue(this.table.addLocalPlayer(this.group1, RoleA.class));
+		assertFalse(this.table.addLocalPlayer(this.group1, RoleA.class));
+		assertTrue(this.table.addLocalPlayer(this.group1, RoleB.class));
+		assertTrue(this.table.addLocalPlayer(this.group2, RoleA.class));
+		assertTrue(this.table.isLocallyPlayed(this.group1, RoleA.class));
+		assertFalse(this.table.isLocallyPlayed(this.group1, SubRoleA.class));
+
+		assertFalse(this.table.removeLocalPlayer(this.group1, RoleA.class));
+		assertTrue(this.table.isLocallyPlayed(this.group1, RoleA.class));
+		assertTrue(this.table.removeLocalPlayer(this.group1, RoleA.class));
+		assertFalse(this.table.isLocallyPlayed(this.group1, RoleA.class));
+		assertFalse(this.table.removeLocalPlayer(this.group1, RoleA.class));
+		assertFalse(this.table.removeLocalPlayer(this.group1, SubRoleA.class));
+
+		// The first player after the last one is detected again
+		assertTrue(this.table.addLocalPlayer(this.group1, RoleA.class));
+
+		assertTrue(this.table.isLocallyPlayed(this.group2, RoleA.class));
+	}
+
+	/**
+	 */
+	public void testRemoveLocalGroup() {
+		this.table.addLocalPlayer(this.group1, RoleA.class);
+		this.table.addLocalPlayer(this.group1, RoleA.class);
+		this.table.addLocalPlayer(this.group1, RoleB.class);
+		this.table.addLocalPlayer(this.group2, RoleA.class);
+
+		Set<Class<? extends Role>> expected = new HashSet<Class<? extends Role>>();
+		expected.add(RoleA.class);
+		expected.add(RoleB.class);
+		assertEquals(expected, this.table.removeLocalGroup(this.group1));
+		assertFalse(this.table.isLocallyPlayed(this.group1, RoleA.class));
+		assertFalse(this.table.isLocallyPlayed(this.group1, RoleB.class));
+		assertTrue(this.table.isLocallyPlayed(this.group2, RoleA.class));
+		assertTrue(this.table.removeLocalGroup(this.group1).isEmpty());
+
+		// The counter of the removed group is not reused
+		assertTrue(this.table.addLocalPlayer(this.group1, RoleA.class));
+	}
+
+	/**
+	 */
+	public void testRemotePlayers() {
+		assertTrue(this.table.getInterestedKernels(this.group1, RoleA.class).isEmpty());
+
+		this.table.addRemotePlayer(this.kernel1, this.group1, RoleA.class);
+		this.table.addRemotePlayer(this.kernel1, this.group1, RoleA.class);
+		this.table.addRemotePlayer(this.kernel2, this.group1, RoleB.class);
+		this.table.addRemotePlayer(this.kernel2, this.group2, RoleA.class);
+
+		assertEquals(set(this.kernel1), this.table.getInterestedKernels(this.group1, RoleA.class));
+		assertEquals(set(this.kernel2), this.table.getInterestedKernels(this.group1, RoleB.class));
+		assertEquals(set(this.kernel2), this.table.getInterestedKernels(this.group2, RoleA.class));
+		assertTrue(this.table.getInterestedKernels(this.group2, RoleB.class).isEmpty());
+
+		// Two players on kernel1: it stays interested after the first release
+		this.table.removeRemotePlayer(this.kernel1, this.group1, RoleA.class);
+		assertEquals(set(this.kernel1), this.table.getInterestedKernels(this.group1, RoleA.class));
+		this.table.removeRemotePlayer(this.kernel1, this.group1, RoleA.class);
+		assertTrue(this.table.getInterestedKernels(this.group1, RoleA.class).isEmpty());
+
+		// Unknown releases are ignored
+		this.table.removeRemotePlayer(this.kernel1, this.group1, RoleA.class);
+		this.table.removeRemotePlayer(this.kernel1, this.group1, RoleB.class);
+		assertEquals(set(this.kernel2), this.table.getInterestedKernels(this.group1, RoleB.class));
+	}
+
+	/**
+	 */
+	public void testSubRoles() {
+		this.table.addRemotePlayer(this.kernel1, this.group1, SubRoleA.class);
+		this.table.addRemotePlayer(this.kernel2, this.group1, RoleA.class);
+
+		// A broadcast to a role is received by the players of its sub-roles
+		assertEquals(set(this.kernel1, this.kernel2), this.table.getInterestedKernels(this.group1, RoleA.class));
+		assertEquals(set(this.kernel1), this.table.getInterestedKernels(this.group1, SubRoleA.class));
+		assertTrue(this.table.getInterestedKernels(this.group1, SubSubRoleA.class).isEmpty());
+		assertTrue(this.table.getInterestedKernels(this.group1, RoleB.class).isEmpty());
+
+		this.table.removeRemotePlayer(this.kernel1, this.group1, SubRoleA.class);
+		assertEquals(set(this.kernel2), this.table.getInterestedKernels(this.group1, RoleA.class));
+		assertTrue(this.table.getInterestedKernels(this.group1, SubRoleA.class).isEmpty());
+	}
+
+	/**
+	 */
+	public void testCacheInvalidation() {
+		this.table.addRemotePlayer(this.kernel1, this.group1, RoleA.class);
+		Set<UUID> kernels = this.table.getInterestedKernels(this.group1, RoleA.class);
+		assertSame(kernels, this.table.getInterestedKernels(this.group1, RoleA.class));
+
+		this.table.addRemotePlayer(this.kernel2, this.group1, SubRoleA.class);
+		assertEquals(set(this.kernel1, this.kernel2), this.table.getInterestedKernels(this.group1, RoleA.class));
+		// The previous reply is not modified
+		assertEquals(set(this.kernel1), kernels);
+	}
+
+	/**
+	 */
+	public void testRemoveRemoteGroup() {
+		this.table.addRemotePlayer(this.kernel1, this.group1, RoleA.class);
+		this.table.addRemotePlayer(this.kernel1, this.group1, RoleB.class);
+		this.table.addRemotePlayer(this.kernel2, this.group1, RoleA.class);
+		this.table.addRemotePlayer(this.kernel1, this.group2, RoleA.class);
+		assertEquals(set(this.kernel1, this.kernel2), this.table.getInterestedKernels(this.group1, RoleA.class));
+
+		this.table.removeRemoteGroup(this.kernel1, this.group1);
+		assertEquals(set(this.kernel2), this.table.getInterestedKernels(this.group1, RoleA.class));
+		assertTrue(this.table.getInterestedKernels(this.group1, RoleB.class).isEmpty());
+		assertEquals(set(this.kernel1), this.table.getInterestedKernels(this.group2, RoleA.class));
+	}
+
+	/**
+	 */
+	public void testRemoveRemoteKernel() {
+		this.table.addRemotePlayer(this.kernel1, this.group1, RoleA.class);
+		this.table.addRemotePlayer(this.kernel1, this.group2, RoleB.class);
+		this.table.addRemotePlayer(this.kernel2, this.group2, RoleB.class);
+		this.table.getInterestedKernels(this.group2, RoleB.class);
+
+		this.table.removeRemoteKernel(this.kernel1);
+		assertTrue(this.table.getInterestedKernels(this.group1, RoleA.class).isEmpty());
+		assertEquals(set(this.kernel2), this.table.getInterestedKernels(this.group2, RoleB.class));
+
+		// The counters of the removed kernel are not reused
+		this.table.addRemotePlayer(this.kernel1, this.group1, RoleA.class);
+		this.table.removeRemotePlayer(this.kernel1, this.group1, RoleA.class);
+		assertTrue(this.table.getInterestedKernels(this.group1, RoleA.class).isEmpty());
+	}
+
+	/**
+	 */
+	public void testGetReceivedRoles() {
+		List<Class<? extends Role>> expected = Arrays.<Class<? extends Role>>asList(
+				SubSubRoleA.class, SubRoleA.class, RoleA.class);
+		assertEquals(expected, RoleInterestTable.getReceivedRoles(SubSubRoleA.class));
+		assertEquals(Collections.<Class<? extends Role>>singletonList(RoleB.class),
+				RoleInterestTable.getReceivedRoles(RoleB.class));
+		assertTrue(RoleInterestTable.getReceivedRoles(Role.class).isEmpty());
+	}
+
+	/**
+	 * The subscriptions to the received roles of the local players
+	 * select the same kernels as the interests of the remote players.
+	 */
+	public void testReceivedRolesMatchInterests() {
+		Class<?>[] roles = new Class<?>[] { RoleA.class, SubRoleA.class, SubSubRoleA.class, RoleB.class };
+		for(Class<?> played : roles) {
+			RoleInterestTable local = new RoleInterestTable();
+			local.addRemotePlayer(this.kernel1, this.group1, played.asSubclass(Role.class));
+			List<Class<? extends Role>> subscriptions = RoleInterestTable.getReceivedRoles(played.asSubclass(Role.class));
+			for(Class<?> broadcast : roles) {
+				boolean interested = !local.getInterestedKernels(this.group1, broadcast.asSubclass(Role.class)).isEmpty();
+				assertEquals(played+" receiving "+broadcast, //$NON-NLS-1$
+						interested, subscriptions.contains(broadcast));
+			}
+		}
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static abstract class OrganizationStub extends Organization {
+
+		/**
+		 * @param context
+		 */
+		public OrganizationStub(CRIOContext context) {
+			super(context);
+		}
+
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static abstract class RoleA extends Role {
+
+		/**
+		 */
+		public RoleA() {
+			//
+		}
+
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static abstract class SubRoleA extends RoleA {
+
+		/**
+		 */
+		public SubRoleA() {
+			//
+		}
+
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static abstract class SubSubRoleA extends SubRoleA {
+
+		/**
+		 */
+		public SubSubRoleA() {
+			//
+		}
+
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static abstract class RoleB extends Role {
+
+		/**
+		 */
+		public RoleB() {
+			//
+		}
+
+	}
+
+}
@@ -0,0 +1,73 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.network.nio.shm;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.janusproject.kernel.address.AgentAddress;
+import org.janusproject.kernel.configuration.JanusProperties;
+import org.janusproject.kernel.configuration.JanusProperty;
+import org.janusproject.kernel.network.nio.tcp.FrameTransport;
+import org.janusproject.kernel.network.nio.tcp.NioNetworkAdapter;
+
+/**
+ * Network adapter for the kernels which are running on the same host.
+ * <p>
+ * The frames are exchanged through memory-mapped files in the
+ * directory given by {@link JanusProperty#SHM_DIRECTORY}, or in
+ * the temporary directory of the system if this property is not set.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ * @see SharedMemoryNode
+ */
+public class SharedMemoryNetworkAdapter extends NioNetworkAdapter {
+
+	/**
+	 */
+	public SharedMemoryNetworkAdapter() {
+		//
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	protected FrameTransport createTransport(AgentAddress kernelAddress, JanusProperties properties) throws IOException {
+		String directory = properties.getProperty(JanusProperty.SHM_DIRECTORY);
+		File dir;
+		if (directory==null || directory.isEmpty()) {
+			dir = new File(System.getProperty("java.io.tmpdir"), "janus-shm"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		else {
+			dir = new File(directory);
+		}
+		return new SharedMemoryNode(
+				kernelAddress.getUUID(),
+				dir,
+				properties.getInt(JanusProperty.SHM_RING_SIZE),
+				this);
+	}
+
+}
@@ -0,0 +1,593 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.network.nio.shm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.janusproject.kernel.network.nio.tcp.FrameTransport;
+import org.janusproject.kernel.network.nio.tcp.Frames;
+import org.janusproject.kernel.network.nio.tcp.NioNodeListener;
+
+/**
+ * Node of the network of kernels which are running on the same host,
+ * based on shared memory.
+ * <p>
+ * The kernels are sharing a directory. Each kernel puts a presence
+ * file in this directory and keeps a lock on it while it is running;
+ * a kernel is considered as dead when its presence file is removed
+ * or when its lock is released. Each pair of kernels is communicating
+ * through two memory-mapped rings, one for each direction (see
+ * {@link SharedMemoryRing}). A ring is created by its producer, so that
+ * a kernel is connected to another kernel when both rings exist.
+ * <p>
+ * The rings are read by one thread, which is spinning a short time
+ * and then sleeping more and more when no frame is available.
+ * When a ring is full, the frames are queued by the sender and written
+ * by this thread once the distant kernel has freed space; a full ring
+ * never makes a kernel unreachable. The frames larger than the half
+ * of a ring are written in several fragments.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class SharedMemoryNode implements FrameTransport {
+
+	/** Delay between two scans of the shared directory, in milliseconds.
+	 */
+	public static final long SCAN_DELAY = 500;
+
+	private static final String PRESENCE_EXTENSION = ".kernel"; //$NON-NLS-1$
+	private static final String RING_EXTENSION = ".ring"; //$NON-NLS-1$
+
+	/** Maximal number of frames read from a ring before reading the other rings.
+	 */
+	private static final int MAX_READ_FRAMES = 256;
+
+	/** Type of the fragments of a large frame, except the last one
+	 * which has the type of the frame.
+	 */
+	private static final byte FRAGMENT = -1;
+
+	private final UUID kernelId;
+	private final File directory;
+	private final int ringSize;
+	private final NioNodeListener listener;
+	private final Map<UUID,Peer> peers = new ConcurrentHashMap<UUID,Peer>();
+
+	private File presenceFile = null;
+	private RandomAccessFile presence = null;
+	private FileLock presenceLock = null;
+	private Thread thread = null;
+	private volatile boolean running = false;
+
+	/**
+	 * @param kernelId is the identifier of the local kernel.
+	 * @param directory is the directory shared by the kernels.
+	 * @param ringSize is the size of the rings in bytes.
+	 * @param listener is the listener on the events of the node.
+	 */
+	public SharedMemoryNode(UUID kernelId, File directory, int ringSize, NioNodeListener listener) {
+		assert(kernelId!=null);
+		assert(directory!=null);
+		assert(listener!=null);
+		this.kernelId = kernelId;
+		this.directory = directory;
+		this.ringSize = ringSize;
+		this.listener = listener;
+	}
+
+	/** Replies the identifier of the local kernel.
+	 * 
+	 * @return the identifier of the local kernel.
+	 */
+	public UUID getKernelId() {
+		return this.kernelId;
+	}
+
+	/** Replies the directory shared by the kernels.
+	 * 
+	 * @return the shared directory.
+	 */
+	public File getDirectory() {
+		return this.directory;
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public List<UUID> getConnectedKernels() {
+		List<UUID> kernels = new ArrayList<UUID>();
+		for(Peer peer : this.peers.values()) {
+			if (peer.isConnected()) kernels.add(peer.id);
+		}
+		return kernels;
+	}
+
+	/** Create the presence file of the local kernel and
+	 * start the thread which is reading the rings.
+	 * 
+	 * @throws IOException
+	 */
+	@Override
+	public synchronized void start() throws IOException {
+		if (this.thread!=null) return;
+		if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+			throw new IOException(this.directory.toString());
+		}
+		// The presence file is locked before being visible to the other kernels.
+		File tmp = new File(this.directory, this.kernelId.toString()+PRESENCE_EXTENSION+".tmp"); //$NON-NLS-1$
+		this.presenceFile = new File(this.directory, this.kernelId.toString()+PRESENCE_EXTENSION);
+		this.presence = new RandomAccessFile(tmp, "rw"); //$NON-NLS-1$
+		this.presenceLock = this.presence.getChannel().lock();
+		if (!tmp.renameTo(this.presenceFile)) {
+			this.presenceLock.release();
+			this.presence.close();
+			tmp.delete();
+			throw new IOException(this.presenceFile.toString());
+		}
+		this.running = true;
+		this.thread = new Thread(new Poller(), "SharedMemoryNode"); //$NON-NLS-1$
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/** Stop the thread which is reading the rings, and remove
+	 * the files of the local kernel.
+	 * 
+	 * @throws IOException
+	 */
+	@Override
+	public synchronized void stop() throws IOException {
+		if (this.thread==null) return;
+		this.running = false;
+		try {
+			this.thread.join(SCAN_DELAY * 4);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		this.thread = null;
+		for(Peer peer : this.peers.values()) {
+			peer.close(false);
+		}
+		this.peers.clear();
+		try {
+			this.presenceFile.delete();
+			this.presenceLock.release();
+		}
+		finally {
+			this.presence.close();
+			this.presence = null;
+			this.presenceLock = null;
+		}
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public boolean send(UUID kernel, byte type, byte[] payload) {
+		Peer peer = this.peers.get(kernel);
+		if (peer==null || !peer.isConnected()) return false;
+		peer.send(type, payload);
+		Frames.frameSent(payload);
+		return true;
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public void sendToAll(byte type, byte[] payload) {
+		for(Peer peer : this.peers.values()) {
+			if (peer.isConnected()) {
+				peer.send(type, payload);
+				Frames.frameSent(payload);
+			}
+		}
+	}
+
+	/** Replies the number of frames, or fragments of frames, which are
+	 * waiting for free space in the ring of the given kernel.
+	 * 
+	 * @param kernel is the identifier of the distant kernel.
+	 * @return the number of waiting frames.
+	 */
+	int getPendingFrameCount(UUID kernel) {
+		Peer peer = this.peers.get(kernel);
+		return peer==null ? 0 : peer.pending.size();
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "shm:"+this.directory.getAbsolutePath(); //$NON-NLS-1$
+	}
+
+	private File ringFile(UUID source, UUID target) {
+		return new File(this.directory, source.toString()+"-"+target.toString()+RING_EXTENSION); //$NON-NLS-1$
+	}
+
+	/** Detect the new kernels, the new rings, and the dead kernels.
+	 */
+	void scan() {
+		File[] files = this.directory.listFiles();
+		if (files!=null) {
+			String name;
+			UUID id;
+			for(File file : files) {
+				name = file.getName();
+				if (name.endsWith(PRESENCE_EXTENSION)) {
+					try {
+						id = UUID.fromString(name.substring(0, name.length()-PRESENCE_EXTENSION.length()));
+					}
+					catch(IllegalArgumentException e) {
+						continue;
+					}
+					if (!id.equals(this.kernelId) && !this.peers.containsKey(id)) {
+						discovered(id, file);
+					}
+				}
+			}
+		}
+
+		for(Peer peer : this.peers.values()) {
+			if (!peer.isAlive()) {
+				this.peers.remove(peer.id);
+				boolean wasConnected = peer.isConnected();
+				peer.close(true);
+				if (wasConnected) {
+					this.listener.peerDisconnected(peer.id);
+				}
+			}
+			else if (!peer.isConnected()) {
+				File in = ringFile(peer.id, this.kernelId);
+				if (in.isFile()) {
+					try {
+						peer.input = SharedMemoryRing.open(in);
+						this.listener.peerConnected(peer.id);
+					}
+					catch(IOException e) {
+						this.listener.networkError(e);
+					}
+				}
+			}
+		}
+	}
+
+	private void discovered(UUID id, File presenceFile) {
+		Peer peer = null;
+		try {
+			peer = new Peer(id, presenceFile);
+			if (peer.isAlive()) {
+				peer.output = SharedMemoryRing.create(ringFile(this.kernelId, id), this.ringSize);
+				this.peers.put(id, peer);
+			}
+			else {
+				// The kernel is dead without removing its files
+				presenceFile.delete();
+				ringFile(id, this.kernelId).delete();
+				peer.close(false);
+			}
+		}
+		catch(FileNotFoundException e) {
+			// The kernel was stopped during the scan
+		}
+		catch(IOException e) {
+			if (peer!=null) peer.close(false);
+			this.listener.networkError(e);
+		}
+	}
+
+	/** Read the available frames in the rings, and write the
+	 * waiting frames in the rings which have free space.
+	 * 
+	 * @return the number of read and written frames.
+	 */
+	int poll() {
+		int count = 0;
+		for(Peer peer : this.peers.values()) {
+			if (peer.isConnected()) {
+				count += peer.input.read(peer, MAX_READ_FRAMES);
+				if (!peer.pending.isEmpty()) {
+					count += peer.flush();
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Distant kernel and the rings used to communicate with it.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private class Peer implements SharedMemoryRing.FrameHandler {
+
+		/** Identifier of the kernel.
+		 */
+		public final UUID id;
+
+		private final File presenceFile;
+
+		/** Opened on the presence file of the kernel to test its lock.
+		 * This file is kept open because, on some systems, closing a file
+		 * releases all the locks of the virtual machine on this file.
+		 */
+		private final RandomAccessFile presence;
+
+		/** Ring in which the frames for the kernel are written.
+		 */
+		public SharedMemoryRing output = null;
+
+		/** Ring from which the frames of the kernel are read.
+		 */
+		public volatile SharedMemoryRing input = null;
+
+		/** Frames which are waiting for free space in the output ring.
+		 * The output ring is written under the lock of this peer.
+		 */
+		public final Queue<Chunk> pending = new ConcurrentLinkedQueue<Chunk>();
+
+		/** Fragments of the large frame being read.
+		 */
+		private ByteArrayOutputStream fragments = null;
+
+		/**
+		 * @param id
+		 * @param presenceFile
+		 * @throws IOException
+		 */
+		public Peer(UUID id, File presenceFile) throws IOException {
+			this.id = id;
+			this.presenceFile = presenceFile;
+			this.presence = new RandomAccessFile(presenceFile, "r"); //$NON-NLS-1$
+		}
+
+		/** Replies if the rings in both directions are available.
+		 * 
+		 * @return <code>true</code> if the kernel is connected.
+		 */
+		public boolean isConnected() {
+			return this.input!=null;
+		}
+
+		/** Replies if the kernel is still running.
+		 * 
+		 * @return <code>true</code> if the kernel is alive.
+		 */
+		public boolean isAlive() {
+			if (!this.presenceFile.exists()) return false;
+			try {
+				FileLock lock = this.presence.getChannel().tryLock(0, Long.MAX_VALUE, true);
+				if (lock==null) return true;
+				lock.release();
+				return false;
+			}
+			catch(OverlappingFileLockException e) {
+				// The kernel is running in the same virtual machine
+				return true;
+			}
+			catch(IOException e) {
+				return false;
+			}
+		}
+
+		/** Write the given frame in the output ring, or queue it
+		 * if the ring has not enough free space.
+		 * 
+		 * @param type is the type of the frame.
+		 * @param payload is the content of the frame.
+		 */
+		public synchronized void send(byte type, byte[] payload) {
+			int max = this.output.getMaximalPayloadSize();
+			if (payload.length<=max && this.pending.isEmpty()
+				&& this.output.write(type, payload, 0, payload.length)) {
+				return;
+			}
+			int offset = 0;
+			int length;
+			do {
+				length = Math.min(max, payload.length - offset);
+				this.pending.offer(new Chunk(
+						(offset+length<payload.length) ? FRAGMENT : type,
+						payload, offset, length));
+				offset += length;
+			}
+			while (offset<payload.length);
+			flush();
+		}
+
+		/** Write the waiting frames in the output ring while it has free space.
+		 * 
+		 * @return the number of written frames.
+		 */
+		public synchronized int flush() {
+			int count = 0;
+			Chunk chunk;
+			while ((chunk = this.pending.peek())!=null
+				&& this.output.write(chunk.type, chunk.payload, chunk.offset, chunk.length)) {
+				this.pending.poll();
+				++count;
+			}
+			return count;
+		}
+
+		/** Close the rings.
+		 * 
+		 * @param dead indicates if the kernel is dead; its ring is deleted.
+		 */
+		public synchronized void close(boolean dead) {
+			this.pending.clear();
+			if (this.output!=null) {
+				this.output.close(true);
+			}
+			SharedMemoryRing in = this.input;
+			if (in!=null) {
+				in.close(dead);
+			}
+			try {
+				this.presence.close();
+			}
+			catch (IOException e) {
+				//
+			}
+		}
+
+		/** {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public void frameRead(byte[] frame) {
+			if (frame[0]==FRAGMENT) {
+				if (this.fragments==null) {
+					this.fragments = new ByteArrayOutputStream();
+				}
+				this.fragments.write(frame, 1, frame.length-1);
+				return;
+			}
+			byte[] f = frame;
+			if (this.fragments!=null) {
+				this.fragments.write(frame, 1, frame.length-1);
+				byte[] content = this.fragments.toByteArray();
+				this.fragments = null;
+				f = new byte[content.length+1];
+				f[0] = frame[0];
+				System.arraycopy(content, 0, f, 1, content.length);
+			}
+			Frames.frameReceived(f);
+			SharedMemoryNode.this.listener.frameReceived(this.id, f);
+		}
+
+	}
+
+	/**
+	 * Frame, or fragment of a frame, waiting for free space in a ring.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class Chunk {
+
+		/** Type of the frame.
+		 */
+		public final byte type;
+
+		/** Array which contains the content of the frame.
+		 */
+		public final byte[] payload;
+
+		/** Index of the first byte of the content.
+		 */
+		public final int offset;
+
+		/** Number of bytes of the content.
+		 */
+		public final int length;
+
+		/**
+		 * @param type
+		 * @param payload
+		 * @param offset
+		 * @param length
+		 */
+		public Chunk(byte type, byte[] payload, int offset, int length) {
+			this.type = type;
+			this.payload = payload;
+			this.offset = offset;
+			this.length = length;
+		}
+
+	}
+
+	/**
+	 * Loop of the thread which is reading the rings.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private class Poller implements Runnable {
+
+		/**
+		 */
+		public Poller() {
+			//
+		}
+
+		/** {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public void run() {
+			long nextScan = 0;
+			long now;
+			int idle = 0;
+			while (SharedMemoryNode.this.running) {
+				try {
+					now = System.currentTimeMillis();
+					if (now>=nextScan) {
+						scan();
+						nextScan = now + SCAN_DELAY;
+					}
+					if (poll()>0) {
+						idle = 0;
+					}
+					else {
+						idle = SharedMemoryRing.backoff(idle);
+					}
+				}
+				catch(AssertionError ae) {
+					throw ae;
+				}
+				catch(Throwable e) {
+					SharedMemoryNode.this.listener.networkError(e);
+				}
+			}
+		}
+
+	}
+
+}
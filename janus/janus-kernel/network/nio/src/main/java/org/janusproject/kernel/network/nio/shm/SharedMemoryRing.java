@@ -0,0 +1,435 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.network.nio.shm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.concurrent.locks.LockSupport;
+
+import sun.misc.Unsafe;
+
+/**
+ * Single-producer/single-consumer ring of frames in a memory-mapped file.
+ * <p>
+ * The file is in the native byte order of the host.
+ * It starts with a header which contains the magic number, the
+ * capacity of the ring, the position of the producer and the position
+ * of the consumer; the positions are in separated cache lines. The
+ * frames have the same layout as on the sockets (see
+ * {@link org.janusproject.kernel.network.nio.tcp.Frames}) and are
+ * aligned on 8 bytes. When a frame does not fit before the end of the
+ * ring, the remaining bytes are skipped with a padding marker.
+ * <p>
+ * Each position is published with a release store, and the position of
+ * the other side is read with an acquire load, so that the content of
+ * a frame is visible before its position, in the same virtual machine
+ * as between processes. These accesses are done on the address of the
+ * mapping with <code>sun.misc.Unsafe</code>; when it is not available,
+ * they are ordered by a volatile field, which is sufficient on the usual
+ * architectures only.
+ * <p>
+ * The writing never waits for free space: a frame is not written
+ * when the consumer is late, and the producer must try again later.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+class SharedMemoryRing {
+
+	/** Magic number at the beginning of the file.
+	 */
+	static final int MAGIC_NUMBER = 0x4A53484D;
+
+	private static final int MAGIC_OFFSET = 0;
+	private static final int CAPACITY_OFFSET = 4;
+	private static final int WRITE_POSITION_OFFSET = 64;
+	private static final int READ_POSITION_OFFSET = 128;
+	private static final int HEADER_SIZE = 192;
+
+	/** Length of the frame which marks the skipped bytes at the end of the ring.
+	 */
+	private static final int PADDING = -1;
+
+	/** Indicates if <code>sun.misc.Unsafe</code> is available.
+	 */
+	private static final boolean UNSAFE_AVAILABLE;
+
+	static {
+		boolean available;
+		try {
+			available = UnsafeAccess.UNSAFE!=null;
+		}
+		catch(Throwable e) {
+			available = false;
+		}
+		UNSAFE_AVAILABLE = available;
+	}
+
+	private final File file;
+	private final RandomAccessFile raf;
+	private final MappedByteBuffer buffer;
+	private final ByteBuffer view;
+	private final int capacity;
+	private final int mask;
+
+	/** Address of the mapping, or <code>0</code> if <code>sun.misc.Unsafe</code> is not available.
+	 */
+	private final long address;
+
+	/** Position of the owner of this side of the ring.
+	 */
+	private long position;
+
+	/** Last known position of the other side of the ring.
+	 */
+	private long otherPosition;
+
+	/** Orders the accesses to the positions when <code>sun.misc.Unsafe</code> is not available.
+	 */
+	private volatile long fence;
+
+	private SharedMemoryRing(File file, RandomAccessFile raf, MappedByteBuffer buffer, int capacity) {
+		this.file = file;
+		this.raf = raf;
+		this.buffer = buffer;
+		this.view = buffer.duplicate();
+		this.capacity = capacity;
+		this.mask = capacity - 1;
+		this.address = UNSAFE_AVAILABLE ? UnsafeAccess.getAddress(buffer) : 0;
+	}
+
+	/** Create the ring in the given file, for its producer.
+	 * The file is created with a temporary name and then renamed,
+	 * so that the consumer never maps an uninitialized ring.
+	 * 
+	 * @param file is the file of the ring.
+	 * @param capacity is the minimal capacity of the ring in bytes;
+	 * it is rounded to a power of two.
+	 * @return the ring.
+	 * @throws IOException
+	 */
+	static SharedMemoryRing create(File file, int capacity) throws IOException {
+		int cap = Integer.highestOneBit(Math.max(capacity, 1024) - 1) << 1;
+		File tmp = new File(file.getParentFile(), file.getName()+".tmp"); //$NON-NLS-1$
+		RandomAccessFile raf = new RandomAccessFile(tmp, "rw"); //$NON-NLS-1$
+		try {
+			raf.setLength(HEADER_SIZE + cap);
+			MappedByteBuffer buffer = raf.getChannel().map(MapMode.READ_WRITE, 0, HEADER_SIZE + cap);
+			buffer.order(ByteOrder.nativeOrder());
+			buffer.putInt(CAPACITY_OFFSET, cap);
+			buffer.putLong(WRITE_POSITION_OFFSET, 0);
+			buffer.putLong(READ_POSITION_OFFSET, 0);
+			buffer.putInt(MAGIC_OFFSET, MAGIC_NUMBER);
+			buffer.force();
+			if (!tmp.renameTo(file)) {
+				file.delete();
+				if (!tmp.renameTo(file)) {
+					throw new IOException(file.toString());
+				}
+			}
+			return new SharedMemoryRing(file, raf, buffer, cap);
+		}
+		catch(IOException e) {
+			raf.close();
+			tmp.delete();
+			throw e;
+		}
+	}
+
+	/** Open the ring in the given file, for its consumer.
+	 * 
+	 * @param file is the file of the ring.
+	 * @return the ring.
+	 * @throws IOException if the file does not contain a ring.
+	 */
+	static SharedMemoryRing open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+		try {
+			long length = raf.length();
+			if (length<HEADER_SIZE) {
+				throw new IOException(file.toString());
+			}
+			MappedByteBuffer buffer = raf.getChannel().map(MapMode.READ_WRITE, 0, length);
+			buffer.order(ByteOrder.nativeOrder());
+			int cap = buffer.getInt(CAPACITY_OFFSET);
+			if (buffer.getInt(MAGIC_OFFSET)!=MAGIC_NUMBER || cap<=0
+				|| Integer.bitCount(cap)!=1 || HEADER_SIZE + cap > length) {
+				throw new IOException(file.toString());
+			}
+			SharedMemoryRing ring = new SharedMemoryRing(file, raf, buffer, cap);
+			ring.position = ring.getPosition(READ_POSITION_OFFSET);
+			return ring;
+		}
+		catch(IOException e) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	/** Replies the file of this ring.
+	 * 
+	 * @return the file.
+	 */
+	File getFile() {
+		return this.file;
+	}
+
+	/** Replies the capacity of this ring.
+	 * 
+	 * @return the capacity in bytes.
+	 */
+	int getCapacity() {
+		return this.capacity;
+	}
+
+	/** Replies the maximal size of the payload of a frame.
+	 * A frame with a larger payload is never written in the ring.
+	 * 
+	 * @return the maximal size of a payload in bytes.
+	 */
+	int getMaximalPayloadSize() {
+		// A frame which is not larger than the half of the ring always
+		// fits in the ring once it is empty, even with a padding.
+		return this.capacity / 2 - 16;
+	}
+
+	private static int align(int size) {
+		return (size + 7) & ~7;
+	}
+
+	/** Read a position with the semantic of a volatile read.
+	 * 
+	 * @param index is the offset of the position in the file.
+	 * @return the position.
+	 */
+	private long getPosition(int index) {
+		if (this.address!=0) {
+			return UnsafeAccess.UNSAFE.getLongVolatile(null, this.address + index);
+		}
+		long p = this.buffer.getLong(index);
+		if (this.fence<0) return 0;
+		return p;
+	}
+
+	/** Write a position with the semantic of an ordered write:
+	 * the previous accesses to the ring are not moved after it.
+	 * 
+	 * @param index is the offset of the position in the file.
+	 * @param value is the position.
+	 */
+	private void putPosition(int index, long value) {
+		if (this.address!=0) {
+			UnsafeAccess.UNSAFE.putOrderedLong(null, this.address + index, value);
+		}
+		else {
+			this.fence = value;
+			this.buffer.putLong(index, value);
+		}
+	}
+
+	/** Write a frame in the ring. This function never waits for free space.
+	 * It must be invoked by the producer only, and by one thread at a time.
+	 * 
+	 * @param type is the type of the frame.
+	 * @param payload is the array which contains the content of the frame.
+	 * @param start is the index of the first byte of the content in the array.
+	 * @param length is the number of bytes of the content.
+	 * @return <code>true</code> if the frame was written; <code>false</code>
+	 * if the consumer has not yet freed enough space.
+	 * @throws IllegalArgumentException if the content is larger than
+	 * {@link #getMaximalPayloadSize()}.
+	 */
+	boolean write(byte type, byte[] payload, int start, int length) {
+		if (length>getMaximalPayloadSize()) {
+			throw new IllegalArgumentException(Integer.toString(length));
+		}
+		int frameLength = length + 1;
+		int size = align(4 + frameLength);
+
+		long w = this.position;
+		int offset = (int)(w & this.mask);
+		int contiguous = this.capacity - offset;
+		long needed = (contiguous<size) ? contiguous + size : size;
+
+		if (w + needed - this.otherPosition > this.capacity) {
+			this.otherPosition = getPosition(READ_POSITION_OFFSET);
+			if (w + needed - this.otherPosition > this.capacity) {
+				return false;
+			}
+		}
+
+		if (contiguous<size) {
+			this.buffer.putInt(HEADER_SIZE + offset, PADDING);
+			w += contiguous;
+			offset = 0;
+		}
+		this.buffer.putInt(HEADER_SIZE + offset, frameLength);
+		this.buffer.put(HEADER_SIZE + offset + 4, type);
+		this.view.position(HEADER_SIZE + offset + 5);
+		this.view.put(payload, start, length);
+		w += size;
+
+		// Publish the frame
+		putPosition(WRITE_POSITION_OFFSET, w);
+		this.position = w;
+		return true;
+	}
+
+	/** Read the available frames and give them to the given handler.
+	 * This function must be invoked by the consumer only.
+	 * 
+	 * @param handler is the handler of the frames.
+	 * @param max is the maximal number of frames to read.
+	 * @return the number of read frames.
+	 */
+	int read(FrameHandler handler, int max) {
+		long w = getPosition(WRITE_POSITION_OFFSET);
+		long r = this.position;
+		if (w==r) return 0;
+		int count = 0;
+		int offset, length;
+		while (r<w && count<max) {
+			offset = (int)(r & this.mask);
+			length = this.buffer.getInt(HEADER_SIZE + offset);
+			if (length==PADDING) {
+				r += this.capacity - offset;
+			}
+			else {
+				byte[] frame = new byte[length];
+				this.view.position(HEADER_SIZE + offset + 4);
+				this.view.get(frame);
+				r += align(4 + length);
+				handler.frameRead(frame);
+				++count;
+			}
+		}
+		// Free the space
+		putPosition(READ_POSITION_OFFSET, r);
+		this.position = r;
+		return count;
+	}
+
+	/** Unmap and close the ring.
+	 * 
+	 * @param delete indicates if the file must be deleted.
+	 */
+	void close(boolean delete) {
+		try {
+			this.raf.close();
+		}
+		catch (IOException e) {
+			//
+		}
+		if (delete) {
+			this.file.delete();
+		}
+	}
+
+	/** Wait according to the number of unsuccessful tries.
+	 * 
+	 * @param idle is the number of unsuccessful tries.
+	 * @return the new number of unsuccessful tries.
+	 */
+	static int backoff(int idle) {
+		if (idle<100) {
+			Thread.yield();
+		}
+		else {
+			LockSupport.parkNanos(Math.min(1000000L, 1000L << Math.min(10, (idle-100)/10)));
+		}
+		return idle + 1;
+	}
+
+	/**
+	 * Access to <code>sun.misc.Unsafe</code>, which is resolved once.
+	 * This class is loaded only when it is used, so that the ring is
+	 * usable on the virtual machines which do not provide it.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	@SuppressWarnings("restriction")
+	private static class UnsafeAccess {
+
+		/** Instance of <code>sun.misc.Unsafe</code>.
+		 */
+		static final Unsafe UNSAFE;
+
+		/** Offset of the address field in the buffers.
+		 */
+		private static final long ADDRESS_OFFSET;
+
+		static {
+			try {
+				Field field = Unsafe.class.getDeclaredField("theUnsafe"); //$NON-NLS-1$
+				field.setAccessible(true);
+				UNSAFE = (Unsafe)field.get(null);
+				ADDRESS_OFFSET = UNSAFE.objectFieldOffset(Buffer.class.getDeclaredField("address")); //$NON-NLS-1$
+			}
+			catch(Exception e) {
+				throw new ExceptionInInitializerError(e);
+			}
+		}
+
+		/** Replies the address of the memory of the given direct buffer.
+		 * 
+		 * @param buffer
+		 * @return the address.
+		 */
+		static long getAddress(Buffer buffer) {
+			return UNSAFE.getLong(buffer, ADDRESS_OFFSET);
+		}
+
+	}
+
+	/**
+	 * Handler of the frames read from a ring.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	static interface FrameHandler {
+
+		/** Invoked for each read frame.
+		 * 
+		 * @param frame is the frame, starting with its type.
+		 */
+		public void frameRead(byte[] frame);
+
+	}
+
+}
@@ -0,0 +1,120 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.network.nio.tcp;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of direct byte buffers used to read and write the frames.
+ * <p>
+ * The allocation of a direct buffer is expensive; the buffers
+ * are kept in this pool when they are released and reused by
+ * the next acquisitions. The number of pooled buffers is bounded.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class BufferPool {
+
+	/** Default size of the buffers, in bytes.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 16384;
+
+	/** Default maximal number of pooled buffers.
+	 */
+	public static final int DEFAULT_MAX_POOLED_BUFFERS = 256;
+
+	private final int bufferSize;
+	private final int maxPooledBuffers;
+	private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+	private final AtomicInteger pooledBuffers = new AtomicInteger();
+
+	/**
+	 */
+	public BufferPool() {
+		this(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED_BUFFERS);
+	}
+
+	/**
+	 * @param bufferSize is the size of the buffers, in bytes.
+	 * @param maxPooledBuffers is the maximal number of buffers kept in the pool.
+	 */
+	public BufferPool(int bufferSize, int maxPooledBuffers) {
+		assert(bufferSize>0);
+		assert(maxPooledBuffers>=0);
+		this.bufferSize = bufferSize;
+		this.maxPooledBuffers = maxPooledBuffers;
+	}
+
+	/** Replies the size of the buffers in this pool.
+	 * 
+	 * @return the size of the buffers, in bytes.
+	 */
+	public int getBufferSize() {
+		return this.bufferSize;
+	}
+
+	/** Replies the number of buffers which are currently in the pool.
+	 * 
+	 * @return the number of available buffers.
+	 */
+	public int getPooledBufferCount() {
+		return this.pooledBuffers.get();
+	}
+
+	/** Replies a cleared direct buffer.
+	 * 
+	 * @return a buffer, never <code>null</code>.
+	 */
+	public ByteBuffer acquire() {
+		ByteBuffer buffer = this.buffers.poll();
+		if (buffer!=null) {
+			this.pooledBuffers.decrementAndGet();
+			buffer.clear();
+			return buffer;
+		}
+		return ByteBuffer.allocateDirect(this.bufferSize);
+	}
+
+	/** Give back the given buffer to the pool.
+	 * The buffers which were not created by this pool are ignored.
+	 * 
+	 * @param buffer
+	 */
+	public void release(ByteBuffer buffer) {
+		if (buffer!=null && buffer.isDirect() && buffer.capacity()==this.bufferSize) {
+			if (this.pooledBuffers.incrementAndGet()<=this.maxPooledBuffers) {
+				buffer.clear();
+				this.buffers.offer(buffer);
+			}
+			else {
+				this.pooledBuffers.decrementAndGet();
+			}
+		}
+	}
+
+}
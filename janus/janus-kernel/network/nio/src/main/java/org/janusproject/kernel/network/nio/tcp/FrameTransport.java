@@ -0,0 +1,79 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.network.nio.tcp;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Transport of the frames between the kernels.
+ * <p>
+ * The frames are described in {@link Frames}. The events of the
+ * transport are notified to a {@link NioNodeListener}.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ * @see NioNode
+ */
+public interface FrameTransport {
+
+	/** Start the transport.
+	 * 
+	 * @throws IOException
+	 */
+	public void start() throws IOException;
+
+	/** Stop the transport and release its resources.
+	 * 
+	 * @throws IOException
+	 */
+	public void stop() throws IOException;
+
+	/** Send a frame to the given kernel.
+	 * The frame may be queued when the kernel is not able to receive it
+	 * immediately; the frames sent to a kernel are received in the same order.
+	 * 
+	 * @param kernel is the identifier of the receiving kernel.
+	 * @param type is the type of the frame.
+	 * @param payload is the content of the frame.
+	 * @return <code>true</code> if the frame was sent or queued;
+	 * <code>false</code> if the kernel is not connected.
+	 */
+	public boolean send(UUID kernel, byte type, byte[] payload);
+
+	/** Send a frame to all the connected kernels.
+	 * 
+	 * @param type is the type of the frame.
+	 * @param payload is the content of the frame.
+	 */
+	public void sendToAll(byte type, byte[] payload);
+
+	/** Replies the identifiers of the connected kernels.
+	 * 
+	 * @return the identifiers of the connected kernels.
+	 */
+	public List<UUID> getConnectedKernels();
+
+}
@@ -0,0 +1,220 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.network.nio.tcp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import org.janusproject.kernel.metrics.Counter;
+import org.janusproject.kernel.metrics.KernelMetrics;
+
+/**
+ * Binary frames exchanged by the NIO kernels.
+ * <p>
+ * Each frame is prefixed by its length:
+ * <pre>
+ * int    length of the frame, type included
+ * byte   type of the frame
+ * byte[] payload
+ * </pre>
+ * The payload of the {@link #HELLO} frame is the identifier
+ * of the kernel; the payload of the other frames is a Java
+ * serialization of the transmitted object.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public final class Frames {
+
+	/** Size of the header of a frame: the length and the type.
+	 */
+	public static final int HEADER_SIZE = 5;
+
+	/** Maximal length of a frame.
+	 */
+	public static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+	/** First frame sent on each connection; it contains the
+	 * identifier of the sending kernel.
+	 */
+	public static final byte HELLO = 1;
+
+	/** Last frame sent on a connection which is replaced by another
+	 * connection to the same kernel.
+	 */
+	public static final byte BYE = 2;
+
+	/** A group was created on the sending kernel.
+	 */
+	public static final byte GROUP_CREATED = 3;
+
+	/** A group was removed from the sending kernel.
+	 */
+	public static final byte GROUP_REMOVED = 4;
+
+	/** A role was taken on the sending kernel.
+	 */
+	public static final byte ROLE_TAKEN = 5;
+
+	/** A role was released on the sending kernel.
+	 */
+	public static final byte ROLE_RELEASED = 6;
+
+	/** An agent was added on the sending kernel.
+	 */
+	public static final byte AGENT_ADDED = 7;
+
+	/** An agent was removed from the sending kernel.
+	 */
+	public static final byte AGENT_REMOVED = 8;
+
+	/** Message to deliver to a single receiver.
+	 */
+	public static final byte MESSAGE = 9;
+
+	/** Message to broadcast.
+	 */
+	public static final byte BROADCAST = 10;
+
+	private static final Counter SENT_MESSAGES = KernelMetrics.getCounter(KernelMetrics.NETWORK_SENT_MESSAGES);
+	private static final Counter SENT_BYTES = KernelMetrics.getCounter(KernelMetrics.NETWORK_SENT_BYTES);
+	private static final Counter RECEIVED_MESSAGES = KernelMetrics.getCounter(KernelMetrics.NETWORK_RECEIVED_MESSAGES);
+	private static final Counter RECEIVED_BYTES = KernelMetrics.getCounter(KernelMetrics.NETWORK_RECEIVED_BYTES);
+
+	private Frames() {
+		//
+	}
+
+	/** Update the network metrics for a frame sent by a transport.
+	 * 
+	 * @param payload is the payload of the sent frame.
+	 */
+	public static void frameSent(byte[] payload) {
+		if (KernelMetrics.isMetricsEnable()) {
+			SENT_MESSAGES.increment();
+			SENT_BYTES.add(HEADER_SIZE + payload.length);
+		}
+	}
+
+	/** Update the network metrics for a frame received by a transport.
+	 * 
+	 * @param frame is the received frame, starting with its type.
+	 */
+	public static void frameReceived(byte[] frame) {
+		if (KernelMetrics.isMetricsEnable()) {
+			RECEIVED_MESSAGES.increment();
+			RECEIVED_BYTES.add(HEADER_SIZE - 1 + frame.length);
+		}
+	}
+
+	/** Create the frame with the given type and payload.
+	 * The frame is written in a buffer of the given pool if
+	 * it is not too large.
+	 * 
+	 * @param pool is the pool of buffers.
+	 * @param type is the type of the frame.
+	 * @param payload is the content of the frame.
+	 * @return the frame, ready to be written.
+	 */
+	public static ByteBuffer encode(BufferPool pool, byte type, byte[] payload) {
+		int size = HEADER_SIZE + payload.length;
+		ByteBuffer buffer = (size<=pool.getBufferSize())
+				? pool.acquire()
+				: ByteBuffer.allocate(size);
+		buffer.putInt(payload.length + 1);
+		buffer.put(type);
+		buffer.put(payload);
+		buffer.flip();
+		return buffer;
+	}
+
+	/** Create the payload of a {@link #HELLO} frame.
+	 * 
+	 * @param kernelId is the identifier of the kernel.
+	 * @return the payload.
+	 */
+	public static byte[] hello(UUID kernelId) {
+		ByteBuffer buffer = ByteBuffer.allocate(16);
+		buffer.putLong(kernelId.getMostSignificantBits());
+		buffer.putLong(kernelId.getLeastSignificantBits());
+		return buffer.array();
+	}
+
+	/** Read the identifier of the kernel from the given frame.
+	 * 
+	 * @param frame is the frame, starting with its type.
+	 * @return the identifier of the kernel.
+	 * @throws IOException if the frame is not a {@link #HELLO} frame.
+	 */
+	public static UUID readHello(byte[] frame) throws IOException {
+		if (frame.length!=17 || frame[0]!=HELLO) {
+			throw new IOException();
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(frame, 1, 16);
+		return new UUID(buffer.getLong(), buffer.getLong());
+	}
+
+	/** Serialize the given object.
+	 * 
+	 * @param object
+	 * @return the payload.
+	 * @throws IOException
+	 */
+	public static byte[] serialize(Serializable object) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(bytes);
+		try {
+			oos.writeObject(object);
+		}
+		finally {
+			oos.close();
+		}
+		return bytes.toByteArray();
+	}
+
+	/** Deserialize the payload of the given frame.
+	 * 
+	 * @param frame is the frame, starting with its type.
+	 * @return the object.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	public static Object deserialize(byte[] frame) throws IOException, ClassNotFoundException {
+		ObjectInputStream ois = new ObjectInputStream(
+				new ByteArrayInputStream(frame, 1, frame.length - 1));
+		try {
+			return ois.readObject();
+		}
+		finally {
+			ois.close();
+		}
+	}
+
+}
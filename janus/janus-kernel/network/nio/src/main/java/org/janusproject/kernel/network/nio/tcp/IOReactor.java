@@ -0,0 +1,357 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.network.nio.tcp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * I/O thread of a {@link NioNode}.
+ * <p>
+ * Each reactor has its own selector and is reading and writing
+ * the frames of the connections which are assigned to it.
+ * The operations on the selector which are requested by the
+ * other threads are queued and run by the reactor.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+class IOReactor implements Runnable {
+
+	private final NioNode node;
+	private final BufferPool pool;
+	private final Selector selector;
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+	private volatile boolean running = true;
+
+	/**
+	 * @param node is the node which owns this reactor.
+	 * @param pool is the pool of buffers.
+	 * @throws IOException
+	 */
+	IOReactor(NioNode node, BufferPool pool) throws IOException {
+		this.node = node;
+		this.pool = pool;
+		this.selector = Selector.open();
+	}
+
+	/** Run the given task in the I/O thread.
+	 * 
+	 * @param task
+	 */
+	void execute(Runnable task) {
+		this.tasks.offer(task);
+		this.selector.wakeup();
+	}
+
+	/** Stop the I/O thread. The connections are closed.
+	 */
+	void stop() {
+		this.running = false;
+		this.selector.wakeup();
+	}
+
+	/** Register the server channel in this reactor.
+	 * 
+	 * @param server
+	 */
+	void accept(final ServerSocketChannel server) {
+		execute(new Runnable() {
+			@SuppressWarnings("synthetic-access")
+			@Override
+			public void run() {
+				try {
+					server.register(IOReactor.this.selector, SelectionKey.OP_ACCEPT);
+				}
+				catch (ClosedChannelException e) {
+					IOReactor.this.node.fireError(e);
+				}
+			}
+		});
+	}
+
+	/** Register the given connection in this reactor.
+	 * 
+	 * @param connection
+	 */
+	void register(final PeerConnection connection) {
+		execute(new Runnable() {
+			@SuppressWarnings("synthetic-access")
+			@Override
+			public void run() {
+				try {
+					boolean connected = connection.channel.isConnected();
+					connection.key = connection.channel.register(IOReactor.this.selector,
+							connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT,
+							connection);
+					connection.readBuffer = IOReactor.this.pool.acquire();
+					if (connected) {
+						IOReactor.this.node.connected(connection);
+					}
+				}
+				catch (IOException e) {
+					close(connection);
+				}
+			}
+		});
+	}
+
+	/** Write the pending frames of the given connection.
+	 * 
+	 * @param connection
+	 */
+	void flush(final PeerConnection connection) {
+		execute(new Runnable() {
+			@SuppressWarnings("synthetic-access")
+			@Override
+			public void run() {
+				try {
+					write(connection);
+				}
+				catch (IOException e) {
+					close(connection);
+				}
+			}
+		});
+	}
+
+	/** Close the given connection once its pending frames are written.
+	 * A {@link Frames#BYE} frame is sent to the distant kernel, which
+	 * is closing the connection on its side. This function must be
+	 * invoked from the I/O thread.
+	 * 
+	 * @param connection
+	 */
+	void retire(PeerConnection connection) {
+		if (!connection.retired) {
+			connection.retired = true;
+			connection.writeQueue.offer(Frames.encode(this.pool, Frames.BYE, new byte[0]));
+			connection.writeScheduled.set(true);
+			try {
+				write(connection);
+			}
+			catch (IOException e) {
+				close(connection);
+			}
+		}
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public void run() {
+		Runnable task;
+		Iterator<SelectionKey> iterator;
+		SelectionKey key;
+		while (this.running) {
+			try {
+				this.selector.select();
+				while ((task = this.tasks.poll())!=null) {
+					task.run();
+				}
+				iterator = this.selector.selectedKeys().iterator();
+				while (iterator.hasNext()) {
+					key = iterator.next();
+					iterator.remove();
+					if (key.isValid()) {
+						handle(key);
+					}
+				}
+			}
+			catch(AssertionError ae) {
+				throw ae;
+			}
+			catch(Throwable e) {
+				this.node.fireError(e);
+			}
+		}
+		for(SelectionKey k : this.selector.keys()) {
+			if (k.attachment() instanceof PeerConnection) {
+				close((PeerConnection)k.attachment());
+			}
+		}
+		try {
+			this.selector.close();
+		}
+		catch (IOException e) {
+			this.node.fireError(e);
+		}
+	}
+
+	private void handle(SelectionKey key) {
+		if (key.isAcceptable()) {
+			this.node.accept((ServerSocketChannel)key.channel());
+			return;
+		}
+		PeerConnection connection = (PeerConnection)key.attachment();
+		try {
+			if (key.isConnectable()) {
+				if (connection.channel.finishConnect()) {
+					key.interestOps(SelectionKey.OP_READ);
+					this.node.connected(connection);
+				}
+			}
+			if (key.isValid() && key.isReadable()) {
+				read(connection);
+			}
+			if (key.isValid() && key.isWritable()) {
+				write(connection);
+			}
+		}
+		catch(IOException e) {
+			close(connection);
+		}
+	}
+
+	private void read(PeerConnection connection) throws IOException {
+		ByteBuffer buffer = connection.readBuffer;
+		int n = connection.channel.read(buffer);
+		if (n<0) {
+			if (connection.retired && !connection.channel.socket().isOutputShutdown()) {
+				// Wait for the writing of the pending frames
+				connection.inputClosed = true;
+				connection.key.interestOps(SelectionKey.OP_WRITE);
+			}
+			else {
+				close(connection);
+			}
+			return;
+		}
+		buffer.flip();
+		try {
+			int length;
+			while (!connection.closed) {
+				if (connection.largeFrame!=null) {
+					ByteBuffer large = connection.largeFrame;
+					int count = Math.min(buffer.remaining(), large.remaining());
+					ByteBuffer slice = buffer.duplicate();
+					slice.limit(buffer.position() + count);
+					large.put(slice);
+					buffer.position(buffer.position() + count);
+					if (large.hasRemaining()) {
+						break;
+					}
+					connection.largeFrame = null;
+					this.node.frameReceived(connection, large.array());
+				}
+				else {
+					if (buffer.remaining()<4) {
+						break;
+					}
+					length = buffer.getInt(buffer.position());
+					if (length<=0 || length>Frames.MAX_FRAME_LENGTH) {
+						throw new IOException(Integer.toString(length));
+					}
+					if (buffer.remaining()-4>=length) {
+						buffer.getInt();
+						byte[] frame = new byte[length];
+						buffer.get(frame);
+						this.node.frameReceived(connection, frame);
+					}
+					else if (length+4>buffer.capacity()) {
+						buffer.getInt();
+						connection.largeFrame = ByteBuffer.allocate(length);
+					}
+					else {
+						break;
+					}
+				}
+			}
+		}
+		finally {
+			if (!connection.closed) {
+				buffer.compact();
+			}
+		}
+	}
+
+	private void write(PeerConnection connection) throws IOException {
+		if (connection.closed || connection.key==null
+			|| !connection.channel.isConnected()) {
+			return;
+		}
+		int readOps = connection.inputClosed ? 0 : SelectionKey.OP_READ;
+		ByteBuffer buffer;
+		while ((buffer = connection.writeQueue.peek())!=null) {
+			connection.channel.write(buffer);
+			if (buffer.hasRemaining()) {
+				connection.key.interestOps(readOps | SelectionKey.OP_WRITE);
+				return;
+			}
+			connection.writeQueue.poll();
+			this.pool.release(buffer);
+		}
+		connection.key.interestOps(readOps);
+		connection.writeScheduled.set(false);
+		if (!connection.writeQueue.isEmpty()) {
+			// A frame was queued while the flag was set
+			if (connection.writeScheduled.compareAndSet(false, true)) {
+				write(connection);
+			}
+		}
+		else if (connection.retired) {
+			if (connection.inputClosed) {
+				close(connection);
+			}
+			else if (!connection.channel.socket().isOutputShutdown()) {
+				connection.channel.socket().shutdownOutput();
+			}
+		}
+	}
+
+	/** Close the given connection.
+	 * 
+	 * @param connection
+	 */
+	void close(PeerConnection connection) {
+		if (!connection.closed) {
+			connection.closed = true;
+			if (connection.key!=null) {
+				connection.key.cancel();
+			}
+			try {
+				connection.channel.close();
+			}
+			catch (IOException e) {
+				//
+			}
+			this.pool.release(connection.readBuffer);
+			connection.readBuffer = null;
+			connection.largeFrame = null;
+			ByteBuffer buffer;
+			while ((buffer = connection.writeQueue.poll())!=null) {
+				this.pool.release(buffer);
+			}
+			this.node.closed(connection);
+		}
+	}
+
+}
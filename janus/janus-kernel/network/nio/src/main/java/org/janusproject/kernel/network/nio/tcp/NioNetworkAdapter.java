@@ -0,0 +1,632 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.network.nio.tcp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.arakhne.afc.vmutil.locale.Locale;
+import org.janusproject.kernel.address.Address;
+import org.janusproject.kernel.address.AgentAddress;
+import org.janusproject.kernel.configuration.JanusProperties;
+import org.janusproject.kernel.configuration.JanusProperty;
+import org.janusproject.kernel.crio.core.AddressUtil;
+import org.janusproject.kernel.crio.core.GroupAddress;
+import org.janusproject.kernel.crio.core.Role;
+import org.janusproject.kernel.crio.core.RoleAddress;
+import org.janusproject.kernel.crio.organization.GroupCondition;
+import org.janusproject.kernel.crio.organization.MembershipService;
+import org.janusproject.kernel.message.Message;
+import org.janusproject.kernel.network.AgentLocationCache;
+import org.janusproject.kernel.network.NetworkAdapter;
+import org.janusproject.kernel.network.NetworkListener;
+import org.janusproject.kernel.network.RoleInterestTable;
+import org.janusproject.kernel.status.Status;
+import org.janusproject.kernel.status.StatusFactory;
+import org.janusproject.kernel.util.sizediterator.SizedIterator;
+import org.janusproject.kernel.util.sizediterator.UnmodifiableCollectionSizedIterator;
+
+/**
+ * Network adapter based on the non-blocking sockets of Java.
+ * <p>
+ * The adapter is keeping the location of the distant agents and
+ * groups from the notifications of the distant kernels, and is
+ * sending each message directly to the kernel of its receiver.
+ * A broadcast is sent only to the kernels which are hosting a
+ * player of the receiving role. When a connection with a kernel is established, the local
+ * groups, agents and roles are sent to this kernel.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class NioNetworkAdapter implements NetworkAdapter, NioNodeListener {
+
+	private final Logger logger;
+	private FrameTransport node = null;
+	private NetworkListener listener = null;
+	private JanusProperties janusProperties = null;
+
+	// Local entities, sent to the new kernels
+	private final Map<GroupAddress,byte[]> localGroups = new ConcurrentHashMap<GroupAddress,byte[]>();
+	private final Set<AgentAddress> localAgents = Collections.newSetFromMap(new ConcurrentHashMap<AgentAddress,Boolean>());
+	private final Set<RoleAddress> localRoles = Collections.newSetFromMap(new ConcurrentHashMap<RoleAddress,Boolean>());
+
+	// Distant entities
+	private final AgentLocationCache<UUID> agentLocations = new AgentLocationCache<UUID>();
+	private final ConcurrentHashMap<GroupAddress,Map<UUID,Boolean>> groupLocations = new ConcurrentHashMap<GroupAddress,Map<UUID,Boolean>>();
+	private final ConcurrentHashMap<GroupAddress,Map<RoleAddress,UUID>> distantRoles = new ConcurrentHashMap<GroupAddress,Map<RoleAddress,UUID>>();
+	private final RoleInterestTable interests = new RoleInterestTable();
+
+	/**
+	 */
+	public NioNetworkAdapter() {
+		this.logger = Logger.getLogger("NioAdapter"); //$NON-NLS-1$
+	}
+
+	/** Replies the transport used by this adapter.
+	 * 
+	 * @return the transport, or <code>null</code> if the network is not initialized.
+	 */
+	public FrameTransport getNode() {
+		return this.node;
+	}
+
+	/** Create the transport of the frames.
+	 * 
+	 * @param kernelAddress is the address of the local kernel.
+	 * @param properties are the properties of the local kernel.
+	 * @return the transport.
+	 * @throws IOException
+	 */
+	protected FrameTransport createTransport(AgentAddress kernelAddress, JanusProperties properties) throws IOException {
+		String directory = properties.getProperty(JanusProperty.NIO_PEERS_FILE);
+		return new NioNode(
+				kernelAddress.getUUID(),
+				properties.getInt(JanusProperty.NIO_PORT),
+				properties.getInt(JanusProperty.NIO_IO_THREADS),
+				PeerDirectory.parseAddresses(properties.getProperty(JanusProperty.NIO_PEERS)),
+				(directory==null || directory.isEmpty()) ? null : new File(directory),
+				this);
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public void initializeNetwork(AgentAddress kernelAddress,
+			JanusProperties properties) throws Exception {
+		this.logger.info(Locale.getString(NioNetworkAdapter.class, "INITIALIZE_NETWORK")); //$NON-NLS-1$
+		this.node = createTransport(kernelAddress, properties);
+		this.node.start();
+		this.logger.info(Locale.getString(NioNetworkAdapter.class, "TRANSPORT_STARTED", this.node)); //$NON-NLS-1$
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public void shutdownNetwork() throws Exception {
+		FrameTransport n = this.node;
+		if (n!=null) {
+			n.stop();
+		}
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public SizedIterator<AgentAddress> getRemoteKernels() {
+		List<AgentAddress> kernels = new ArrayList<AgentAddress>();
+		FrameTransport n = this.node;
+		if (n!=null) {
+			for(UUID id : n.getConnectedKernels()) {
+				kernels.add(AddressUtil.createAgentAddress(id));
+			}
+		}
+		return new UnmodifiableCollectionSizedIterator<AgentAddress>(kernels);
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public boolean isRemoteAddress(GroupAddress groupAddress, AgentAddress address) {
+		Map<RoleAddress,UUID> roles = this.distantRoles.get(groupAddress);
+		if (roles!=null) {
+			for(RoleAddress role : roles.keySet()) {
+				if (address.equals(role.getPlayer())) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public RoleAddress getRemoteAddress(GroupAddress groupAddress) {
+		Map<RoleAddress,UUID> roles = this.distantRoles.get(groupAddress);
+		if (roles!=null) {
+			Iterator<RoleAddress> iterator = roles.keySet().iterator();
+			if (iterator.hasNext()) {
+				return iterator.next();
+			}
+		}
+		return null;
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public void informLocalRoleTaken(GroupAddress groupAddress,
+			Class<? extends Role> role, AgentAddress agentAddress) {
+		RoleAddress adr = AddressUtil.createRoleAddress(groupAddress, role, agentAddress);
+		this.localRoles.add(adr);
+		sendToAll(Frames.ROLE_TAKEN, adr);
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public void informLocalRoleReleased(GroupAddress groupAddress,
+			Class<? extends Role> role, AgentAddress agentAddress) {
+		RoleAddress adr = AddressUtil.createRoleAddress(groupAddress, role, agentAddress);
+		this.localRoles.remove(adr);
+		sendToAll(Frames.ROLE_RELEASED, adr);
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public void informLocalAgentAdded(AgentAddress agentAdress) {
+		// The agent may have migrated from a distant kernel
+		this.agentLocations.invalidate(agentAdress);
+		this.localAgents.add(agentAdress);
+		sendToAll(Frames.AGENT_ADDED, agentAdress);
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public void informLocalAgentRemoved(AgentAddress agentAddress) {
+		this.localAgents.remove(agentAddress);
+		sendToAll(Frames.AGENT_REMOVED, agentAddress);
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public Status informLocalGroupCreated(GroupAddress ga,
+			Collection<? extends GroupCondition> obtainConditions,
+			Collection<? extends GroupCondition> leaveConditions,
+			MembershipService membership) {
+		this.logger.fine(Locale.getString(NioNetworkAdapter.class, "NEW_GROUP", ga.getUUID(), ga.getName())); //$NON-NLS-1$
+		GroupDescription description = new GroupDescription(ga,
+				obtainConditions, leaveConditions, membership,
+				this.janusProperties==null
+				? JanusProperties.DEFAULT_GROUP_PERSISTENCE_FLAG
+				: this.janusProperties.getBoolean(JanusProperty.GROUP_PERSISTENCE));
+		try {
+			byte[] payload = Frames.serialize(description);
+			this.localGroups.put(ga, payload);
+			FrameTransport n = this.node;
+			if (n!=null) {
+				n.sendToAll(Frames.GROUP_CREATED, payload);
+			}
+		}
+		catch(IOException e) {
+			return StatusFactory.error(this, e.getLocalizedMessage(), e);
+		}
+		return StatusFactory.ok(this);
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public Status informLocalGroupRemoved(GroupAddress ga) {
+		this.localGroups.remove(ga);
+		sendToAll(Frames.GROUP_REMOVED, ga);
+		return StatusFactory.ok(this);
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public Address sendMessage(Message message) {
+		Address receiver = message.getReceiver();
+		AgentAddress agent;
+		if (receiver instanceof RoleAddress) {
+			agent = ((RoleAddress)receiver).getPlayer();
+		}
+		else if (receiver instanceof AgentAddress) {
+			agent = (AgentAddress)receiver;
+		}
+		else {
+			agent = null;
+		}
+		UUID kernel = (agent==null) ? null : this.agentLocations.get(agent);
+		FrameTransport n = this.node;
+		if (kernel!=null && n!=null) {
+			try {
+				if (n.send(kernel, Frames.MESSAGE, Frames.serialize(message))) {
+					return receiver;
+				}
+				// The kernel is no more reachable
+				this.agentLocations.invalidate(agent, kernel);
+			}
+			catch(IOException e) {
+				networkError(e);
+			}
+		}
+		return null;
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public void broadcastMessage(Message message) {
+		FrameTransport n = this.node;
+		if (n==null) return;
+		try {
+			Address sender = message.getSender();
+			Address receiver = message.getReceiver();
+			if (receiver instanceof RoleAddress) {
+				RoleAddress role = (RoleAddress)receiver;
+				Set<UUID> kernels = this.interests.getInterestedKernels(role.getGroup(), role.getRole());
+				if (!kernels.isEmpty()) {
+					byte[] payload = Frames.serialize(message);
+					for(UUID kernel : kernels) {
+						n.send(kernel, Frames.BROADCAST, payload);
+					}
+				}
+			}
+			else if (sender instanceof RoleAddress) {
+				Map<UUID,Boolean> kernels = this.groupLocations.get(((RoleAddress)sender).getGroup());
+				if (kernels!=null && !kernels.isEmpty()) {
+					byte[] payload = Frames.serialize(message);
+					for(UUID kernel : kernels.keySet()) {
+						n.send(kernel, Frames.BROADCAST, payload);
+					}
+				}
+			}
+			else {
+				n.sendToAll(Frames.BROADCAST, Frames.serialize(message));
+			}
+		}
+		catch(IOException e) {
+			networkError(e);
+		}
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public void setNetworkAdapterListener(NetworkListener listener) {
+		this.listener = listener;
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public void setJanusProperties(JanusProperties properties) {
+		this.janusProperties = properties;
+	}
+
+	private void sendToAll(byte type, Serializable object) {
+		FrameTransport n = this.node;
+		if (n!=null) {
+			try {
+				n.sendToAll(type, Frames.serialize(object));
+			}
+			catch(IOException e) {
+				networkError(e);
+			}
+		}
+	}
+
+	private void send(UUID kernel, byte type, Serializable object) throws IOException {
+		FrameTransport n = this.node;
+		if (n!=null) {
+			n.send(kernel, type, Frames.serialize(object));
+		}
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public void peerConnected(UUID kernel) {
+		this.logger.info(Locale.getString(NioNetworkAdapter.class, "PEER_CONNECTED", kernel)); //$NON-NLS-1$
+		FrameTransport n = this.node;
+		if (n==null) return;
+		try {
+			for(byte[] group : this.localGroups.values()) {
+				n.send(kernel, Frames.GROUP_CREATED, group);
+			}
+			for(AgentAddress agent : this.localAgents) {
+				send(kernel, Frames.AGENT_ADDED, agent);
+			}
+			for(RoleAddress role : this.localRoles) {
+				send(kernel, Frames.ROLE_TAKEN, role);
+			}
+		}
+		catch(IOException e) {
+			networkError(e);
+		}
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public void peerDisconnected(UUID kernel) {
+		this.logger.info(Locale.getString(NioNetworkAdapter.class, "PEER_DISCONNECTED", kernel)); //$NON-NLS-1$
+		this.agentLocations.removeLocation(kernel);
+		for(Map<UUID,Boolean> kernels : this.groupLocations.values()) {
+			kernels.remove(kernel);
+		}
+		for(Map<RoleAddress,UUID> roles : this.distantRoles.values()) {
+			roles.values().removeAll(Collections.singleton(kernel));
+		}
+		this.interests.removeRemoteKernel(kernel);
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public void frameReceived(UUID kernel, byte[] frame) {
+		try {
+			Object object = Frames.deserialize(frame);
+			switch(frame[0]) {
+			case Frames.GROUP_CREATED:
+				groupCreated(kernel, (GroupDescription)object);
+				break;
+			case Frames.GROUP_REMOVED:
+				groupRemoved(kernel, (GroupAddress)object);
+				break;
+			case Frames.ROLE_TAKEN:
+				roleTaken(kernel, (RoleAddress)object);
+				break;
+			case Frames.ROLE_RELEASED:
+				roleReleased((RoleAddress)object);
+				break;
+			case Frames.AGENT_ADDED:
+				// A known agent which is added on another kernel has migrated
+				this.agentLocations.moved((AgentAddress)object, kernel);
+				break;
+			case Frames.AGENT_REMOVED:
+				this.agentLocations.invalidate((AgentAddress)object, kernel);
+				break;
+			case Frames.MESSAGE:
+				deliver((Message)object, false);
+				break;
+			case Frames.BROADCAST:
+				deliver((Message)object, true);
+				break;
+			default:
+				throw new IOException(Locale.getString(NioNetworkAdapter.class, "UNKNOWN_FRAME", Byte.toString(frame[0]))); //$NON-NLS-1$
+			}
+		}
+		catch(AssertionError ae) {
+			throw ae;
+		}
+		catch(Throwable e) {
+			networkError(e);
+		}
+	}
+
+	private void groupCreated(UUID kernel, GroupDescription description) {
+		GroupAddress group = description.getAddress();
+		getGroupLocations(group).put(kernel, Boolean.TRUE);
+		NetworkListener l = this.listener;
+		if (l!=null && !this.localGroups.containsKey(group)) {
+			l.distantGroupDiscovered(
+					group.getOrganization(), group.getUUID(),
+					description.getObtainConditions(),
+					description.getLeaveConditions(),
+					description.getMembership(),
+					description.isPersistent(),
+					group.getName());
+		}
+	}
+
+	private void groupRemoved(UUID kernel, GroupAddress group) {
+		Map<UUID,Boolean> kernels = this.groupLocations.get(group);
+		if (kernels!=null) {
+			kernels.remove(kernel);
+		}
+		Map<RoleAddress,UUID> roles = this.distantRoles.get(group);
+		if (roles!=null) {
+			roles.values().removeAll(Collections.singleton(kernel));
+		}
+		this.interests.removeRemoteGroup(kernel, group);
+	}
+
+	private void roleTaken(UUID kernel, RoleAddress role) {
+		GroupAddress group = role.getGroup();
+		getGroupLocations(group).put(kernel, Boolean.TRUE);
+		Map<RoleAddress,UUID> roles = this.distantRoles.get(group);
+		if (roles==null) {
+			roles = new ConcurrentHashMap<RoleAddress,UUID>();
+			Map<RoleAddress,UUID> old = this.distantRoles.putIfAbsent(group, roles);
+			if (old!=null) roles = old;
+		}
+		UUID old = roles.put(role, kernel);
+		if (!kernel.equals(old)) {
+			AgentAddress player = role.getPlayer();
+			if (old!=null) {
+				this.interests.removeRemotePlayer(old, group, role.getRole());
+				if (player!=null) {
+					this.agentLocations.roleReleased(player, old);
+				}
+			}
+			this.interests.addRemotePlayer(kernel, group, role.getRole());
+			if (player!=null) {
+				this.agentLocations.roleTaken(player, kernel);
+			}
+		}
+	}
+
+	private void roleReleased(RoleAddress role) {
+		Map<RoleAddress,UUID> roles = this.distantRoles.get(role.getGroup());
+		if (roles!=null) {
+			UUID kernel = roles.remove(role);
+			if (kernel!=null) {
+				this.interests.removeRemotePlayer(kernel, role.getGroup(), role.getRole());
+				AgentAddress player = role.getPlayer();
+				if (player!=null) {
+					this.agentLocations.roleReleased(player, kernel);
+				}
+			}
+		}
+	}
+
+	private Map<UUID,Boolean> getGroupLocations(GroupAddress group) {
+		Map<UUID,Boolean> kernels = this.groupLocations.get(group);
+		if (kernels==null) {
+			kernels = new ConcurrentHashMap<UUID,Boolean>();
+			Map<UUID,Boolean> old = this.groupLocations.putIfAbsent(group, kernels);
+			if (old!=null) kernels = old;
+		}
+		return kernels;
+	}
+
+	private void deliver(Message message, boolean isBroadcast) {
+		NetworkListener l = this.listener;
+		if (l==null) return;
+		Address receiver = message.getReceiver();
+		Address sender = message.getSender();
+		if (receiver instanceof RoleAddress) {
+			RoleAddress role = (RoleAddress)receiver;
+			l.receiveOrganizationalDistantMessage(role.getGroup(), role.getRole(), message, isBroadcast);
+		}
+		else if (isBroadcast && sender instanceof RoleAddress) {
+			l.receiveOrganizationalDistantMessage(((RoleAddress)sender).getGroup(), null, message, true);
+		}
+		else {
+			l.receiveAgentAgentDistantMessage(message, isBroadcast);
+		}
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public void networkError(Throwable error) {
+		NetworkListener l = this.listener;
+		if (l!=null) {
+			l.networkError(error);
+		}
+		else {
+			this.logger.log(Level.SEVERE, error.getLocalizedMessage(), error);
+		}
+	}
+
+	/**
+	 * Description of a group which is sent to the distant kernels.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class GroupDescription implements Serializable {
+
+		private static final long serialVersionUID = -4619335237547287383L;
+
+		private final GroupAddress address;
+		private final ArrayList<GroupCondition> obtainConditions;
+		private final ArrayList<GroupCondition> leaveConditions;
+		private final MembershipService membership;
+		private final boolean persistent;
+
+		/**
+		 * @param address
+		 * @param obtainConditions
+		 * @param leaveConditions
+		 * @param membership
+		 * @param persistent
+		 */
+		public GroupDescription(GroupAddress address,
+				Collection<? extends GroupCondition> obtainConditions,
+				Collection<? extends GroupCondition> leaveConditions,
+				MembershipService membership, boolean persistent) {
+			this.address = address;
+			this.obtainConditions = (obtainConditions==null) ? null : new ArrayList<GroupCondition>(obtainConditions);
+			this.leaveConditions = (leaveConditions==null) ? null : new ArrayList<GroupCondition>(leaveConditions);
+			this.membership = membership;
+			this.persistent = persistent;
+		}
+
+		/** Replies the address of the group.
+		 * 
+		 * @return the address of the group.
+		 */
+		public GroupAddress getAddress() {
+			return this.address;
+		}
+
+		/** Replies the conditions to obtain a role.
+		 * 
+		 * @return the conditions.
+		 */
+		public Collection<? extends GroupCondition> getObtainConditions() {
+			return this.obtainConditions;
+		}
+
+		/** Replies the conditions to leave a role.
+		 * 
+		 * @return the conditions.
+		 */
+		public Collection<? extends GroupCondition> getLeaveConditions() {
+			return this.leaveConditions;
+		}
+
+		/** Replies the membership service of the group.
+		 * 
+		 * @return the membership service.
+		 */
+		public MembershipService getMembership() {
+			return this.membership;
+		}
+
+		/** Replies if the group is persistent.
+		 * 
+		 * @return <code>true</code> if the group is persistent.
+		 */
+		public boolean isPersistent() {
+			return this.persistent;
+		}
+
+	}
+
+}
@@ -0,0 +1,599 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.network.nio.tcp;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Node of the network of kernels, based on non-blocking sockets.
+ * <p>
+ * A node keeps one persistent TCP connection with each distant kernel.
+ * The connections are read and written by a fixed number of I/O threads,
+ * each of them having its own selector. The frames are length-prefixed
+ * (see {@link Frames}) and are written from pooled direct buffers.
+ * <p>
+ * The node is connecting to the kernels given at construction and to the
+ * kernels listed in the directory file. The unreachable kernels are tried
+ * again periodically. When two kernels are opening a connection to each
+ * other at the same time, the connection opened by the kernel with the
+ * lowest identifier is kept; the other one is closed once its pending
+ * frames are written.
+ * <p>
+ * The received frames are given to the listener by worker threads, so that
+ * a slow listener is not stalling the I/O threads. The frames received on a
+ * connection are delivered in their order of arrival.
+ * <p>
+ * A stopped node may be started again.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public class NioNode implements FrameTransport {
+
+	/** Delay between two tries to connect the unreachable kernels, in milliseconds.
+	 */
+	public static final long RECONNECTION_DELAY = 2000;
+
+	private final UUID kernelId;
+	private final int port;
+	private final NioNodeListener listener;
+	private final BufferPool pool;
+	private final File directory;
+	private final Set<InetSocketAddress> knownAddresses = Collections.newSetFromMap(new ConcurrentHashMap<InetSocketAddress,Boolean>());
+	private final Map<InetSocketAddress,UUID> addressOwners = new ConcurrentHashMap<InetSocketAddress,UUID>();
+	private final Set<InetSocketAddress> pendingAddresses = Collections.newSetFromMap(new ConcurrentHashMap<InetSocketAddress,Boolean>());
+	private final Map<UUID,PeerConnection> peers = new HashMap<UUID,PeerConnection>();
+	private final int ioThreads;
+	private IOReactor[] reactors = null;
+	private final AtomicInteger nextReactor = new AtomicInteger();
+	private ServerSocketChannel server = null;
+	private String directoryEntry = null;
+	private Thread[] threads = null;
+	private ScheduledExecutorService connector = null;
+	private ExecutorService workers = null;
+
+	/**
+	 * @param kernelId is the identifier of the local kernel.
+	 * @param port is the port on which the connections are accepted; <code>0</code> for any free port.
+	 * @param ioThreads is the number of I/O threads.
+	 * @param peers are the addresses of the kernels to connect to.
+	 * @param directory is the directory file shared by the kernels, or <code>null</code>.
+	 * @param listener is the listener on the events of the node.
+	 * @throws IOException
+	 */
+	public NioNode(UUID kernelId, int port, int ioThreads, Collection<InetSocketAddress> peers,
+			File directory, NioNodeListener listener) throws IOException {
+		assert(kernelId!=null);
+		assert(listener!=null);
+		this.kernelId = kernelId;
+		this.port = port;
+		this.listener = listener;
+		this.directory = directory;
+		this.pool = new BufferPool();
+		if (peers!=null) {
+			this.knownAddresses.addAll(peers);
+		}
+		this.ioThreads = Math.max(1, ioThreads);
+	}
+
+	/** Replies the identifier of the local kernel.
+	 * 
+	 * @return the identifier of the local kernel.
+	 */
+	public UUID getKernelId() {
+		return this.kernelId;
+	}
+
+	/** Replies the port on which the connections are accepted.
+	 * 
+	 * @return the port, or <code>-1</code> if the node is not started.
+	 */
+	public int getLocalPort() {
+		ServerSocketChannel s = this.server;
+		return s==null ? -1 : s.socket().getLocalPort();
+	}
+
+	/** Replies the pool of buffers used by this node.
+	 * 
+	 * @return the pool of buffers.
+	 */
+	public BufferPool getBufferPool() {
+		return this.pool;
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public List<UUID> getConnectedKernels() {
+		synchronized(this.peers) {
+			return new ArrayList<UUID>(this.peers.keySet());
+		}
+	}
+
+	/** Open the server socket, start the I/O threads and
+	 * connect to the known kernels.
+	 * 
+	 * @throws IOException
+	 */
+	@Override
+	public synchronized void start() throws IOException {
+		if (this.server!=null) return;
+		ServerSocketChannel s = ServerSocketChannel.open();
+		try {
+			s.configureBlocking(false);
+			s.socket().setReuseAddress(true);
+			s.socket().bind(new InetSocketAddress(this.port));
+			IOReactor[] r = new IOReactor[this.ioThreads];
+			for(int i=0; i<r.length; ++i) {
+				r[i] = new IOReactor(this, this.pool);
+			}
+			this.reactors = r;
+		}
+		catch(IOException e) {
+			s.close();
+			throw e;
+		}
+		this.server = s;
+
+		ThreadFactory factory = new NodeThreadFactory();
+		this.workers = Executors.newCachedThreadPool(factory);
+		this.threads = new Thread[this.reactors.length];
+		for(int i=0; i<this.reactors.length; ++i) {
+			this.threads[i] = factory.newThread(this.reactors[i]);
+			this.threads[i].start();
+		}
+		this.reactors[0].accept(this.server);
+
+		if (this.directory!=null) {
+			this.directoryEntry = InetAddress.getLocalHost().getHostAddress()+":"+getLocalPort(); //$NON-NLS-1$
+			PeerDirectory.register(this.directory, this.directoryEntry);
+		}
+
+		this.connector = Executors.newSingleThreadScheduledExecutor(factory);
+		this.connector.scheduleWithFixedDelay(new Connector(), 0, RECONNECTION_DELAY, TimeUnit.MILLISECONDS);
+	}
+
+	/** Close all the connections and stop the I/O threads.
+	 * 
+	 * @throws IOException
+	 */
+	@Override
+	public synchronized void stop() throws IOException {
+		if (this.server==null) return;
+		this.connector.shutdownNow();
+		this.connector = null;
+		try {
+			if (this.directoryEntry!=null) {
+				PeerDirectory.unregister(this.directory, this.directoryEntry);
+				this.directoryEntry = null;
+			}
+		}
+		finally {
+			for(IOReactor reactor : this.reactors) {
+				reactor.stop();
+			}
+			for(Thread thread : this.threads) {
+				try {
+					thread.join(RECONNECTION_DELAY);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			this.threads = null;
+			this.reactors = null;
+			this.workers.shutdown();
+			try {
+				this.workers.awaitTermination(RECONNECTION_DELAY, TimeUnit.MILLISECONDS);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			this.workers = null;
+			this.server.close();
+			this.server = null;
+			synchronized(this.peers) {
+				this.peers.clear();
+			}
+			this.pendingAddresses.clear();
+		}
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public boolean send(UUID kernel, byte type, byte[] payload) {
+		PeerConnection connection;
+		synchronized(this.peers) {
+			connection = this.peers.get(kernel);
+		}
+		if (connection==null) return false;
+		connection.send(Frames.encode(this.pool, type, payload));
+		Frames.frameSent(payload);
+		return true;
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public void sendToAll(byte type, byte[] payload) {
+		List<PeerConnection> connections;
+		synchronized(this.peers) {
+			connections = new ArrayList<PeerConnection>(this.peers.values());
+		}
+		for(PeerConnection connection : connections) {
+			connection.send(Frames.encode(this.pool, type, payload));
+			Frames.frameSent(payload);
+		}
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "tcp://*:"+getLocalPort(); //$NON-NLS-1$
+	}
+
+	/** Open a connection to the given address.
+	 * 
+	 * @param address
+	 */
+	void connect(InetSocketAddress address) {
+		if (!this.pendingAddresses.add(address)) return;
+		SocketChannel channel = null;
+		try {
+			channel = SocketChannel.open();
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			channel.connect(address);
+			IOReactor reactor = nextReactor();
+			reactor.register(new PeerConnection(channel, reactor, address));
+		}
+		catch(IOException e) {
+			this.pendingAddresses.remove(address);
+			if (channel!=null) {
+				try {
+					channel.close();
+				}
+				catch (IOException e1) {
+					//
+				}
+			}
+		}
+	}
+
+	private IOReactor nextReactor() {
+		IOReactor[] r = this.reactors;
+		int index = (this.nextReactor.getAndIncrement() & Integer.MAX_VALUE) % r.length;
+		return r[index];
+	}
+
+	/** Accept the pending connections on the given server channel.
+	 * Invoked by an I/O thread.
+	 * 
+	 * @param serverChannel
+	 */
+	void accept(ServerSocketChannel serverChannel) {
+		SocketChannel channel;
+		try {
+			while ((channel = serverChannel.accept())!=null) {
+				channel.configureBlocking(false);
+				channel.socket().setTcpNoDelay(true);
+				IOReactor reactor = nextReactor();
+				reactor.register(new PeerConnection(channel, reactor, null));
+			}
+		}
+		catch(IOException e) {
+			fireError(e);
+		}
+	}
+
+	/** Invoked by an I/O thread when the given connection is established.
+	 * 
+	 * @param connection
+	 */
+	void connected(PeerConnection connection) {
+		connection.send(Frames.encode(this.pool, Frames.HELLO, Frames.hello(this.kernelId)));
+	}
+
+	/** Invoked by an I/O thread when a frame was received.
+	 * 
+	 * @param connection is the connection on which the frame was received.
+	 * @param frame is the frame, starting with its type.
+	 * @throws IOException
+	 */
+	void frameReceived(PeerConnection connection, byte[] frame) throws IOException {
+		UUID kernel = connection.kernelId;
+		if (kernel==null) {
+			identified(connection, Frames.readHello(frame));
+		}
+		else if (frame[0]==Frames.BYE) {
+			synchronized(this.peers) {
+				if (this.peers.get(kernel)==connection) {
+					this.peers.remove(kernel);
+				}
+			}
+			connection.reactor.retire(connection);
+		}
+		else if (frame[0]!=Frames.HELLO) {
+			Frames.frameReceived(frame);
+			deliver(connection, frame);
+		}
+	}
+
+	/** Queue the given frame, or the {@link PeerConnection#DISCONNECTED}
+	 * marker, for its delivery to the listener by a worker thread.
+	 * 
+	 * @param connection
+	 * @param frame
+	 */
+	private void deliver(PeerConnection connection, byte[] frame) {
+		connection.receptionQueue.offer(frame);
+		if (connection.deliveryScheduled.compareAndSet(false, true)) {
+			ExecutorService w = this.workers;
+			try {
+				if (w==null) throw new RejectedExecutionException();
+				w.execute(new Delivery(connection));
+			}
+			catch(RejectedExecutionException e) {
+				// The node is stopping
+				connection.receptionQueue.clear();
+				connection.deliveryScheduled.set(false);
+			}
+		}
+	}
+
+	private void identified(PeerConnection connection, UUID kernel) {
+		if (connection.dialedAddress!=null) {
+			this.addressOwners.put(connection.dialedAddress, kernel);
+			this.pendingAddresses.remove(connection.dialedAddress);
+		}
+		if (this.kernelId.equals(kernel)) {
+			// Connection to itself
+			connection.reactor.close(connection);
+			return;
+		}
+		connection.kernelId = kernel;
+		PeerConnection replaced = null;
+		PeerConnection retired = null;
+		synchronized(this.peers) {
+			PeerConnection current = this.peers.get(kernel);
+			if (current==null) {
+				this.peers.put(kernel, connection);
+			}
+			else if (connection.getInitiator(this.kernelId).compareTo(current.getInitiator(this.kernelId))<0) {
+				this.peers.put(kernel, connection);
+				replaced = current;
+			}
+			else {
+				retired = connection;
+			}
+		}
+		if (retired!=null) {
+			retired.reactor.retire(retired);
+		}
+		else if (replaced!=null) {
+			final PeerConnection r = replaced;
+			r.reactor.execute(new Runnable() {
+				@Override
+				public void run() {
+					r.reactor.retire(r);
+				}
+			});
+		}
+		else {
+			this.listener.peerConnected(kernel);
+		}
+	}
+
+	/** Invoked by an I/O thread when the given connection was closed.
+	 * 
+	 * @param connection
+	 */
+	void closed(PeerConnection connection) {
+		if (connection.dialedAddress!=null) {
+			this.pendingAddresses.remove(connection.dialedAddress);
+		}
+		UUID kernel = connection.kernelId;
+		boolean disconnected = false;
+		if (kernel!=null) {
+			synchronized(this.peers) {
+				if (this.peers.get(kernel)==connection) {
+					this.peers.remove(kernel);
+					disconnected = true;
+				}
+			}
+		}
+		if (disconnected) {
+			deliver(connection, PeerConnection.DISCONNECTED);
+		}
+	}
+
+	/** Notifies the listener about an error.
+	 * 
+	 * @param error
+	 */
+	void fireError(Throwable error) {
+		this.listener.networkError(error);
+	}
+
+	/**
+	 * Task which is connecting the known kernels.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private class Connector implements Runnable {
+
+		/**
+		 */
+		public Connector() {
+			//
+		}
+
+		/** {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public void run() {
+			try {
+				if (NioNode.this.directory!=null) {
+					NioNode.this.knownAddresses.addAll(PeerDirectory.read(NioNode.this.directory));
+				}
+				UUID owner;
+				for(InetSocketAddress address : NioNode.this.knownAddresses) {
+					owner = NioNode.this.addressOwners.get(address);
+					if (owner==null || !isConnected(owner)) {
+						connect(address);
+					}
+				}
+			}
+			catch(AssertionError ae) {
+				throw ae;
+			}
+			catch(Throwable e) {
+				fireError(e);
+			}
+		}
+
+		@SuppressWarnings("synthetic-access")
+		private boolean isConnected(UUID kernel) {
+			if (NioNode.this.kernelId.equals(kernel)) return true;
+			synchronized(NioNode.this.peers) {
+				return NioNode.this.peers.containsKey(kernel);
+			}
+		}
+
+	}
+
+	/**
+	 * Task which is giving the received frames of a connection to the listener.
+	 * Only one delivery task is running at a time for a given connection.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private class Delivery implements Runnable {
+
+		private final PeerConnection connection;
+
+		/**
+		 * @param connection
+		 */
+		public Delivery(PeerConnection connection) {
+			this.connection = connection;
+		}
+
+		/** {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public void run() {
+			UUID kernel = this.connection.kernelId;
+			byte[] frame;
+			do {
+				while ((frame = this.connection.receptionQueue.poll())!=null) {
+					try {
+						if (frame==PeerConnection.DISCONNECTED) {
+							NioNode.this.listener.peerDisconnected(kernel);
+						}
+						else {
+							NioNode.this.listener.frameReceived(kernel, frame);
+						}
+					}
+					catch(AssertionError ae) {
+						throw ae;
+					}
+					catch(Throwable e) {
+						fireError(e);
+					}
+				}
+				this.connection.deliveryScheduled.set(false);
+			}
+			// A frame may have been queued while the flag was set
+			while (!this.connection.receptionQueue.isEmpty()
+				&& this.connection.deliveryScheduled.compareAndSet(false, true));
+		}
+
+	}
+
+	/**
+	 * Factory of the threads of a node.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class NodeThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		/**
+		 */
+		public NodeThreadFactory() {
+			//
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "NioNode-"+this.count.incrementAndGet()); //$NON-NLS-1$
+			t.setDaemon(true);
+			return t;
+		}
+
+	}
+
+}
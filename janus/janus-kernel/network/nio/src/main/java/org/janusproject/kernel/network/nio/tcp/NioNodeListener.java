@@ -0,0 +1,67 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.network.nio.tcp;
+
+import java.util.EventListener;
+import java.util.UUID;
+
+/**
+ * Listener on the events of a {@link NioNode}.
+ * <p>
+ * The received frames and the disconnections are notified by the worker
+ * threads of the node, in their order of arrival for a given kernel.
+ * The other functions of this listener are invoked by the I/O threads
+ * of the node; they should not block.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public interface NioNodeListener extends EventListener {
+
+	/** Invoked when a connection with a kernel is established.
+	 * 
+	 * @param kernel is the identifier of the connected kernel.
+	 */
+	public void peerConnected(UUID kernel);
+
+	/** Invoked when the connection with a kernel is lost.
+	 * 
+	 * @param kernel is the identifier of the disconnected kernel.
+	 */
+	public void peerDisconnected(UUID kernel);
+
+	/** Invoked when a frame was received from a kernel.
+	 * 
+	 * @param kernel is the identifier of the sending kernel.
+	 * @param frame is the received frame, starting with its type.
+	 */
+	public void frameReceived(UUID kernel, byte[] frame);
+
+	/** Invoked when an error occurs in the node.
+	 * 
+	 * @param error
+	 */
+	public void networkError(Throwable error);
+
+}
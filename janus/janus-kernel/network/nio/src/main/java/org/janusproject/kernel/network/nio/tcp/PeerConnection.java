@@ -0,0 +1,150 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.network.nio.tcp;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Connection with a distant kernel.
+ * <p>
+ * A connection is read and written by the I/O thread of its
+ * reactor only. The frames to write are queued by any thread.
+ * The received frames are queued by the I/O thread and given to the
+ * listener by the workers of the node.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+class PeerConnection {
+
+	/** Channel of the connection.
+	 */
+	final SocketChannel channel;
+
+	/** Reactor which is running the I/O operations of the connection.
+	 */
+	final IOReactor reactor;
+
+	/** Address to which the connection was opened,
+	 * or <code>null</code> if the connection was accepted.
+	 */
+	final InetSocketAddress dialedAddress;
+
+	/** Frames to write.
+	 */
+	final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<ByteBuffer>();
+
+	/** Indicates if a writing of the frames is already scheduled.
+	 */
+	final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+
+	/** Marker queued in {@link #receptionQueue} when the connection is lost.
+	 */
+	static final byte[] DISCONNECTED = new byte[0];
+
+	/** Received frames which are not yet given to the listener.
+	 */
+	final Queue<byte[]> receptionQueue = new ConcurrentLinkedQueue<byte[]>();
+
+	/** Indicates if a delivery of the received frames is already scheduled.
+	 */
+	final AtomicBoolean deliveryScheduled = new AtomicBoolean(false);
+
+	/** Identifier of the distant kernel, known once the
+	 * {@link Frames#HELLO} frame was received.
+	 */
+	volatile UUID kernelId = null;
+
+	/** Indicates if this connection was replaced by another one;
+	 * it is closed once the pending frames are written.
+	 */
+	volatile boolean retired = false;
+
+	/** Key of the channel in the selector of the reactor.
+	 */
+	SelectionKey key = null;
+
+	/** Buffer of reception.
+	 */
+	ByteBuffer readBuffer = null;
+
+	/** Frame being received when it is larger than the buffer of reception.
+	 */
+	ByteBuffer largeFrame = null;
+
+	/** Indicates if the end of the input stream was reached.
+	 */
+	boolean inputClosed = false;
+
+	/** Indicates if the connection is closed.
+	 */
+	boolean closed = false;
+
+	/**
+	 * @param channel is the channel of the connection.
+	 * @param reactor is the reactor of the connection.
+	 * @param dialedAddress is the address to which the connection was opened,
+	 * or <code>null</code> if the connection was accepted.
+	 */
+	PeerConnection(SocketChannel channel, IOReactor reactor, InetSocketAddress dialedAddress) {
+		this.channel = channel;
+		this.reactor = reactor;
+		this.dialedAddress = dialedAddress;
+	}
+
+	/** Replies the identifier of the kernel which has opened this connection.
+	 * 
+	 * @param localKernel is the identifier of the local kernel.
+	 * @return the identifier of the initiator of the connection.
+	 */
+	UUID getInitiator(UUID localKernel) {
+		return this.dialedAddress!=null ? localKernel : this.kernelId;
+	}
+
+	/** Queue the given frame and schedule its writing.
+	 * 
+	 * @param frame
+	 */
+	void send(ByteBuffer frame) {
+		this.writeQueue.offer(frame);
+		if (this.writeScheduled.compareAndSet(false, true)) {
+			this.reactor.flush(this);
+		}
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return this.channel.socket().getRemoteSocketAddress()+"/"+this.kernelId; //$NON-NLS-1$
+	}
+
+}
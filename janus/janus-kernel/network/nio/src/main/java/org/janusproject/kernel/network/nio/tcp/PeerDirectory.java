@@ -0,0 +1,206 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2004-2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.network.nio.tcp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.janusproject.kernel.configuration.JanusProperties;
+
+/**
+ * Static and file-based directory of the kernels.
+ * <p>
+ * The addresses of the kernels have the form <code>host:port</code>,
+ * or <code>host</code> for a kernel listening on
+ * {@link JanusProperties#DEFAULT_NIO_PORT}.
+ * A list of addresses is separated by commas or white spaces.
+ * In a directory file, each line contains one address, and the
+ * lines starting with <code>#</code> are ignored.
+ * The kernels which are sharing a directory file add their own
+ * address in the file when they start, and remove it when they stop.
+ * 
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @since 1.1
+ */
+public final class PeerDirectory {
+
+	/** The file locks are owned by the virtual machine; this
+	 * monitor is protecting the files against the other threads.
+	 */
+	private static final Object LOCK = new Object();
+
+	private PeerDirectory() {
+		//
+	}
+
+	/** Parse the given address.
+	 * 
+	 * @param address is the address with the form <code>host:port</code> or <code>host</code>.
+	 * @return the address.
+	 * @throws IllegalArgumentException if the address has not a valid format.
+	 */
+	public static InetSocketAddress parseAddress(String address) {
+		String adr = address.trim();
+		int index = adr.lastIndexOf(':');
+		if (index<0 && !adr.isEmpty()) {
+			return new InetSocketAddress(adr, JanusProperties.DEFAULT_NIO_PORT);
+		}
+		if (index<=0 || index>=adr.length()-1) {
+			throw new IllegalArgumentException(address);
+		}
+		try {
+			int port = Integer.parseInt(adr.substring(index+1));
+			return new InetSocketAddress(adr.substring(0, index), port);
+		}
+		catch(NumberFormatException e) {
+			throw new IllegalArgumentException(address, e);
+		}
+	}
+
+	/** Parse the given list of addresses.
+	 * 
+	 * @param addresses are the addresses separated by commas or white spaces.
+	 * @return the addresses, never <code>null</code>.
+	 * @throws IllegalArgumentException if an address has not a valid format.
+	 */
+	public static List<InetSocketAddress> parseAddresses(String addresses) {
+		List<InetSocketAddress> list = new ArrayList<InetSocketAddress>();
+		if (addresses!=null) {
+			for(String adr : addresses.split("[,\\s]+")) { //$NON-NLS-1$
+				if (!adr.isEmpty()) {
+					list.add(parseAddress(adr));
+				}
+			}
+		}
+		return list;
+	}
+
+	/** Read the addresses in the given directory file.
+	 * 
+	 * @param file is the directory file.
+	 * @return the addresses in the file; the empty list if the file does not exist.
+	 * @throws IOException
+	 */
+	public static List<InetSocketAddress> read(File file) throws IOException {
+		List<InetSocketAddress> list = new ArrayList<InetSocketAddress>();
+		if (file.exists()) {
+			for(String line : update(file, null, false)) {
+				try {
+					list.add(parseAddress(line));
+				}
+				catch(IllegalArgumentException e) {
+					// Ignore the invalid lines
+				}
+			}
+		}
+		return list;
+	}
+
+	/** Add the given address in the directory file.
+	 * 
+	 * @param file is the directory file.
+	 * @param address is the address to add, with the form <code>host:port</code>.
+	 * @throws IOException
+	 */
+	public static void register(File file, String address) throws IOException {
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent!=null && !parent.exists()) {
+			parent.mkdirs();
+		}
+		update(file, address, true);
+	}
+
+	/** Remove the given address from the directory file.
+	 * 
+	 * @param file is the directory file.
+	 * @param address is the address to remove, with the form <code>host:port</code>.
+	 * @throws IOException
+	 */
+	public static void unregister(File file, String address) throws IOException {
+		update(file, address, false);
+	}
+
+	/** Read the directory file, and add or remove the given address.
+	 * 
+	 * @param file is the directory file.
+	 * @param address is the address to add or remove, or <code>null</code> to only read the file.
+	 * @param add indicates if the address must be added or removed.
+	 * @return the lines of the file before its update.
+	 * @throws IOException
+	 */
+	private static Collection<String> update(File file, String address, boolean add) throws IOException {
+		synchronized(LOCK) {
+			RandomAccessFile raf = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+			try {
+				FileLock lock = raf.getChannel().lock();
+				try {
+					Collection<String> lines = readLines(raf);
+					if (address!=null) {
+						Set<String> newLines = new LinkedHashSet<String>(lines);
+						boolean changed = add ? newLines.add(address) : newLines.remove(address);
+						if (changed) {
+							StringBuilder content = new StringBuilder();
+							for(String line : newLines) {
+								content.append(line);
+								content.append('\n');
+							}
+							raf.setLength(0);
+							raf.write(content.toString().getBytes("UTF-8")); //$NON-NLS-1$
+						}
+					}
+					return lines;
+				}
+				finally {
+					lock.release();
+				}
+			}
+			finally {
+				raf.close();
+			}
+		}
+	}
+
+	private static Collection<String> readLines(RandomAccessFile file) throws IOException {
+		byte[] content = new byte[(int)file.length()];
+		file.seek(0);
+		file.readFully(content);
+		List<String> lines = new ArrayList<String>();
+		for(String line : new String(content, "UTF-8").split("[\\r\\n]+")) { //$NON-NLS-1$ //$NON-NLS-2$
+			String l = line.trim();
+			if (!l.isEmpty() && !l.startsWith("#")) { //$NON-NLS-1$
+				lines.add(l);
+			}
+		}
+		return lines;
+	}
+
+}
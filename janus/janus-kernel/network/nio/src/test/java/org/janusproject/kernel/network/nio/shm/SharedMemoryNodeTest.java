@@ -0,0 +1,256 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.network.nio.shm;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.janusproject.kernel.network.nio.tcp.Frames;
+import org.janusproject.kernel.network.nio.tcp.NioNodeListener;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see SharedMemoryNode
+ */
+public class SharedMemoryNodeTest extends TestCase {
+
+	private static final long TIMEOUT = 10000;
+
+	private File directory;
+	private ListenerStub l1;
+	private ListenerStub l2;
+	private SharedMemoryNode n1;
+	private SharedMemoryNode n2;
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		this.directory = File.createTempFile("janus", "shm"); //$NON-NLS-1$ //$NON-NLS-2$
+		this.directory.delete();
+		this.l1 = new ListenerStub();
+		this.l2 = new ListenerStub();
+		this.n1 = new SharedMemoryNode(UUID.randomUUID(), this.directory, 1024, this.l1);
+		this.n2 = new SharedMemoryNode(UUID.randomUUID(), this.directory, 1024, this.l2);
+		this.n1.start();
+		this.n2.start();
+		assertEquals(this.n2.getKernelId(), this.l1.connected.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+		assertEquals(this.n1.getKernelId(), this.l2.connected.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		this.l2.unblock.countDown();
+		this.n1.stop();
+		this.n2.stop();
+		File[] files = this.directory.listFiles();
+		if (files!=null) {
+			for(File file : files) {
+				file.delete();
+			}
+		}
+		this.directory.delete();
+		this.n1 = this.n2 = null;
+		this.l1 = this.l2 = null;
+		this.directory = null;
+		super.tearDown();
+	}
+
+	private static byte[] payload(int size, int seed) {
+		byte[] payload = new byte[size];
+		for(int i=0; i<size; ++i) {
+			payload[i] = (byte)(seed + i);
+		}
+		return payload;
+	}
+
+	private static void assertFrame(ListenerStub listener, UUID expectedSender, byte expectedType, byte[] expectedPayload) throws Exception {
+		Object[] received = listener.frames.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+		assertNotNull(received);
+		assertEquals(expectedSender, received[0]);
+		byte[] frame = (byte[])received[1];
+		assertEquals(expectedPayload.length+1, frame.length);
+		assertEquals(expectedType, frame[0]);
+		for(int i=0; i<expectedPayload.length; ++i) {
+			assertEquals(expectedPayload[i], frame[i+1]);
+		}
+	}
+
+	/**
+	 */
+	public void testGetConnectedKernels() {
+		List<UUID> kernels = this.n1.getConnectedKernels();
+		assertEquals(1, kernels.size());
+		assertEquals(this.n2.getKernelId(), kernels.get(0));
+		kernels = this.n2.getConnectedKernels();
+		assertEquals(1, kernels.size());
+		assertEquals(this.n1.getKernelId(), kernels.get(0));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testSend() throws Exception {
+		byte[] payload = payload(50, 0);
+		assertTrue(this.n1.send(this.n2.getKernelId(), Frames.MESSAGE, payload));
+		assertFrame(this.l2, this.n1.getKernelId(), Frames.MESSAGE, payload);
+		assertTrue(this.n2.send(this.n1.getKernelId(), Frames.BROADCAST, payload));
+		assertFrame(this.l1, this.n2.getKernelId(), Frames.BROADCAST, payload);
+		assertFalse(this.n1.send(UUID.randomUUID(), Frames.MESSAGE, payload));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testSendToAll() throws Exception {
+		byte[] payload = payload(50, 0);
+		this.n1.sendToAll(Frames.ROLE_TAKEN, payload);
+		assertFrame(this.l2, this.n1.getKernelId(), Frames.ROLE_TAKEN, payload);
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testSendLargerThanRing() throws Exception {
+		byte[] small = payload(10, 1);
+		byte[] large = payload(5000, 2);
+		assertTrue(this.n1.send(this.n2.getKernelId(), Frames.MESSAGE, small));
+		assertTrue(this.n1.send(this.n2.getKernelId(), Frames.BROADCAST, large));
+		assertTrue(this.n1.send(this.n2.getKernelId(), Frames.MESSAGE, small));
+		assertFrame(this.l2, this.n1.getKernelId(), Frames.MESSAGE, small);
+		assertFrame(this.l2, this.n1.getKernelId(), Frames.BROADCAST, large);
+		assertFrame(this.l2, this.n1.getKernelId(), Frames.MESSAGE, small);
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testSendRingFull() throws Exception {
+		UUID k2 = this.n2.getKernelId();
+		this.l2.blocked = true;
+		assertTrue(this.n1.send(k2, Frames.MESSAGE, payload(1, 0)));
+		assertTrue(this.l2.blockedLatch.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+		// The reader of n2 is blocked; the frames are queued once the ring is full
+		for(int i=0; i<100; ++i) {
+			assertTrue(this.n1.send(k2, Frames.MESSAGE, payload(200, i)));
+		}
+		assertTrue(this.n1.getPendingFrameCount(k2)>0);
+		assertEquals(1, this.n1.getConnectedKernels().size());
+
+		this.l2.unblock.countDown();
+		assertFrame(this.l2, this.n1.getKernelId(), Frames.MESSAGE, payload(1, 0));
+		for(int i=0; i<100; ++i) {
+			assertFrame(this.l2, this.n1.getKernelId(), Frames.MESSAGE, payload(200, i));
+		}
+		assertEquals(0, this.n1.getPendingFrameCount(k2));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testStop() throws Exception {
+		this.n2.stop();
+		assertEquals(this.n2.getKernelId(), this.l1.disconnected.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+		assertTrue(this.n1.getConnectedKernels().isEmpty());
+		assertFalse(this.n1.send(this.n2.getKernelId(), Frames.MESSAGE, payload(1, 0)));
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class ListenerStub implements NioNodeListener {
+
+		public final BlockingQueue<UUID> connected = new LinkedBlockingQueue<UUID>();
+		public final BlockingQueue<UUID> disconnected = new LinkedBlockingQueue<UUID>();
+		public final BlockingQueue<Object[]> frames = new LinkedBlockingQueue<Object[]>();
+		public final List<Throwable> errors = new ArrayList<Throwable>();
+		public final CountDownLatch blockedLatch = new CountDownLatch(1);
+		public final CountDownLatch unblock = new CountDownLatch(1);
+		public volatile boolean blocked = false;
+
+		/**
+		 */
+		public ListenerStub() {
+			//
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public void peerConnected(UUID kernel) {
+			this.connected.add(kernel);
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public void peerDisconnected(UUID kernel) {
+			this.disconnected.add(kernel);
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public void frameReceived(UUID kernel, byte[] frame) {
+			if (this.blocked) {
+				this.blockedLatch.countDown();
+				try {
+					this.unblock.await();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			this.frames.add(new Object[] {kernel, frame});
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public void networkError(Throwable error) {
+			synchronized(this.errors) {
+				this.errors.add(error);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,211 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.network.nio.shm;
+
+import java.io.File;
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see SharedMemoryRing
+ */
+public class SharedMemoryRingTest extends TestCase {
+
+	private File file;
+	private SharedMemoryRing producer;
+	private SharedMemoryRing consumer;
+	private FrameList frames;
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		this.file = File.createTempFile("janus", ".ring"); //$NON-NLS-1$ //$NON-NLS-2$
+		this.producer = SharedMemoryRing.create(this.file, 1024);
+		this.consumer = SharedMemoryRing.open(this.file);
+		this.frames = new FrameList();
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		this.consumer.close(false);
+		this.producer.close(true);
+		this.consumer = null;
+		this.producer = null;
+		this.frames = null;
+		this.file = null;
+		super.tearDown();
+	}
+
+	private static byte[] payload(int size, int seed) {
+		byte[] payload = new byte[size];
+		for(int i=0; i<size; ++i) {
+			payload[i] = (byte)(seed + i);
+		}
+		return payload;
+	}
+
+	private static void assertFrame(byte expectedType, byte[] expectedPayload, byte[] frame) {
+		assertEquals(expectedPayload.length+1, frame.length);
+		assertEquals(expectedType, frame[0]);
+		for(int i=0; i<expectedPayload.length; ++i) {
+			assertEquals(expectedPayload[i], frame[i+1]);
+		}
+	}
+
+	/**
+	 */
+	public void testGetCapacity() {
+		assertEquals(1024, this.producer.getCapacity());
+		assertEquals(1024, this.consumer.getCapacity());
+		assertTrue(this.producer.getMaximalPayloadSize()<512);
+	}
+
+	/**
+	 */
+	public void testWriteTooLarge() {
+		int max = this.producer.getMaximalPayloadSize();
+		byte[] payload = new byte[max+1];
+		try {
+			this.producer.write((byte)1, payload, 0, payload.length);
+			fail("expecting IllegalArgumentException"); //$NON-NLS-1$
+		}
+		catch(IllegalArgumentException e) {
+			// expected exception
+		}
+		assertTrue(this.producer.write((byte)1, payload, 0, max));
+		assertEquals(1, this.consumer.read(this.frames, 10));
+		assertEquals(max+1, this.frames.get(0).length);
+	}
+
+	/**
+	 */
+	public void testWriteSlice() {
+		byte[] payload = payload(10, 0);
+		assertTrue(this.producer.write((byte)3, payload, 2, 5));
+		assertEquals(1, this.consumer.read(this.frames, 10));
+		assertFrame((byte)3, new byte[] {2, 3, 4, 5, 6}, this.frames.get(0));
+	}
+
+	/**
+	 */
+	public void testWrapAround() {
+		// Two frames and a padding always fit in the ring
+		int max = 300;
+		int size;
+		byte[] payload;
+		for(int i=0; i<1000; ++i) {
+			size = (i * 37) % max;
+			payload = payload(size, i);
+			assertTrue(this.producer.write((byte)(i%100), payload, 0, size));
+			if (i%2==1) {
+				assertTrue(this.consumer.read(this.frames, 1000)>0);
+			}
+		}
+		this.consumer.read(this.frames, 1000);
+		assertEquals(1000, this.frames.size());
+		for(int i=0; i<1000; ++i) {
+			size = (i * 37) % max;
+			assertFrame((byte)(i%100), payload(size, i), this.frames.get(i));
+		}
+	}
+
+	/**
+	 */
+	public void testRingFull() {
+		byte[] payload = payload(100, 0);
+		// Each frame takes 112 bytes in the ring
+		for(int i=0; i<9; ++i) {
+			assertTrue(this.producer.write((byte)i, payload, 0, payload.length));
+		}
+		assertFalse(this.producer.write((byte)9, payload, 0, payload.length));
+		assertFalse(this.producer.write((byte)9, payload, 0, payload.length));
+
+		assertEquals(1, this.consumer.read(this.frames, 1));
+		// The free space is at the beginning of the ring; the
+		// 16 bytes at the end of the ring are skipped
+		assertTrue(this.producer.write((byte)9, payload, 0, payload.length));
+		assertFalse(this.producer.write((byte)10, payload, 0, payload.length));
+
+		assertEquals(9, this.consumer.read(this.frames, 100));
+		assertEquals(0, this.consumer.read(this.frames, 100));
+		assertTrue(this.producer.write((byte)10, payload, 0, payload.length));
+		assertEquals(1, this.consumer.read(this.frames, 100));
+
+		assertEquals(11, this.frames.size());
+		for(int i=0; i<11; ++i) {
+			assertFrame((byte)i, payload, this.frames.get(i));
+		}
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testOpenAfterRead() throws Exception {
+		byte[] payload = payload(20, 0);
+		assertTrue(this.producer.write((byte)1, payload, 0, payload.length));
+		assertTrue(this.producer.write((byte)2, payload, 0, payload.length));
+		assertEquals(1, this.consumer.read(this.frames, 1));
+		this.consumer.close(false);
+
+		this.consumer = SharedMemoryRing.open(this.file);
+		assertEquals(1, this.consumer.read(this.frames, 10));
+		assertEquals(2, this.frames.size());
+		assertFrame((byte)1, payload, this.frames.get(0));
+		assertFrame((byte)2, payload, this.frames.get(1));
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class FrameList extends ArrayList<byte[]> implements SharedMemoryRing.FrameHandler {
+
+		private static final long serialVersionUID = -2416394787611950231L;
+
+		/**
+		 */
+		public FrameList() {
+			//
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public void frameRead(byte[] frame) {
+			add(frame);
+		}
+
+	}
+
+}
@@ -0,0 +1,272 @@
+/* 
+ * $Id$
+ * 
+ * Janus platform is an open-source multiagent platform.
+ * More details on <http://www.janus-project.org>
+ * Copyright (C) 2012 Janus Core Developers
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.janusproject.kernel.network.nio.tcp;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/**
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see NioNode
+ */
+public class NioNodeTest extends TestCase {
+
+	private static final long TIMEOUT = 10000;
+
+	private final List<NioNode> nodes = new ArrayList<NioNode>();
+
+	/**
+	 * @throws Exception
+	 */
+	@Override
+	public void tearDown() throws Exception {
+		for(NioNode node : this.nodes) {
+			node.stop();
+		}
+		this.nodes.clear();
+		super.tearDown();
+	}
+
+	private NioNode createNode(ListenerStub listener, NioNode... peers) throws Exception {
+		List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>();
+		for(NioNode peer : peers) {
+			addresses.add(new InetSocketAddress("localhost", peer.getLocalPort())); //$NON-NLS-1$
+		}
+		NioNode node = new NioNode(UUID.randomUUID(), 0, 1, addresses, null, listener);
+		this.nodes.add(node);
+		node.start();
+		return node;
+	}
+
+	private static void waitConnections(NioNode node, int count) throws Exception {
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while (node.getConnectedKernels().size()<count) {
+			if (System.currentTimeMillis()>end) {
+				fail("expecting "+count+" connections, having "+node.getConnectedKernels()); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			Thread.sleep(20);
+		}
+	}
+
+	private static byte[] frame(int value) {
+		return new byte[] {(byte)value};
+	}
+
+	private static void assertFrame(ListenerStub listener, UUID expectedSender, int expectedValue) throws Exception {
+		Object[] received = listener.frames.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+		assertNotNull(received);
+		assertEquals(expectedSender, received[0]);
+		byte[] frame = (byte[])received[1];
+		assertEquals(2, frame.length);
+		assertEquals(Frames.MESSAGE, frame[0]);
+		assertEquals((byte)expectedValue, frame[1]);
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testGetLocalPort() throws Exception {
+		NioNode node = new NioNode(UUID.randomUUID(), 0, 1, null, null, new ListenerStub());
+		assertEquals(-1, node.getLocalPort());
+		this.nodes.add(node);
+		node.start();
+		assertTrue(node.getLocalPort()>0);
+		node.stop();
+		assertEquals(-1, node.getLocalPort());
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testSend() throws Exception {
+		ListenerStub l1 = new ListenerStub();
+		ListenerStub l2 = new ListenerStub();
+		ListenerStub l3 = new ListenerStub();
+		NioNode n1 = createNode(l1);
+		NioNode n2 = createNode(l2, n1);
+		NioNode n3 = createNode(l3, n1, n2);
+		waitConnections(n1, 2);
+		waitConnections(n2, 2);
+		waitConnections(n3, 2);
+
+		for(int i=0; i<100; ++i) {
+			assertTrue(n2.send(n1.getKernelId(), Frames.MESSAGE, frame(i)));
+		}
+		for(int i=0; i<100; ++i) {
+			assertFrame(l1, n2.getKernelId(), i);
+		}
+
+		assertTrue(n1.send(n3.getKernelId(), Frames.MESSAGE, frame(5)));
+		assertFrame(l3, n1.getKernelId(), 5);
+
+		assertFalse(n1.send(UUID.randomUUID(), Frames.MESSAGE, frame(5)));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testSendToAll() throws Exception {
+		ListenerStub l1 = new ListenerStub();
+		ListenerStub l2 = new ListenerStub();
+		ListenerStub l3 = new ListenerStub();
+		NioNode n1 = createNode(l1);
+		NioNode n2 = createNode(l2, n1);
+		NioNode n3 = createNode(l3, n1, n2);
+		waitConnections(n1, 2);
+		waitConnections(n2, 2);
+		waitConnections(n3, 2);
+
+		n3.sendToAll(Frames.MESSAGE, frame(7));
+		assertFrame(l1, n3.getKernelId(), 7);
+		assertFrame(l2, n3.getKernelId(), 7);
+		assertNull(l3.frames.poll(100, TimeUnit.MILLISECONDS));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testRestart() throws Exception {
+		ListenerStub l1 = new ListenerStub();
+		ListenerStub l2 = new ListenerStub();
+		NioNode n1 = createNode(l1);
+		NioNode n2 = createNode(l2, n1);
+		waitConnections(n1, 1);
+		waitConnections(n2, 1);
+		assertEquals(n2.getKernelId(), l1.connected.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+
+		n2.stop();
+		assertEquals(n2.getKernelId(), l1.disconnected.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+		assertTrue(n2.getConnectedKernels().isEmpty());
+
+		n2.start();
+		waitConnections(n1, 1);
+		waitConnections(n2, 1);
+		assertEquals(n2.getKernelId(), l1.connected.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+
+		assertTrue(n2.send(n1.getKernelId(), Frames.MESSAGE, frame(1)));
+		assertFrame(l1, n2.getKernelId(), 1);
+		assertTrue(n1.send(n2.getKernelId(), Frames.MESSAGE, frame(2)));
+		assertFrame(l2, n1.getKernelId(), 2);
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testSlowListener() throws Exception {
+		ListenerStub l1 = new ListenerStub();
+		NioNode n1 = createNode(l1);
+		NioNode n2 = createNode(new ListenerStub(), n1);
+		NioNode n3 = createNode(new ListenerStub(), n1);
+		waitConnections(n1, 2);
+		waitConnections(n2, 1);
+		waitConnections(n3, 1);
+
+		l1.blockedSender = n2.getKernelId();
+		try {
+			assertTrue(n2.send(n1.getKernelId(), Frames.MESSAGE, frame(1)));
+			assertTrue(l1.blocked.await(TIMEOUT, TimeUnit.MILLISECONDS));
+			assertTrue(n2.send(n1.getKernelId(), Frames.MESSAGE, frame(2)));
+
+			// The connection with n3 is served by the same I/O thread
+			assertTrue(n3.send(n1.getKernelId(), Frames.MESSAGE, frame(3)));
+			assertFrame(l1, n3.getKernelId(), 3);
+		}
+		finally {
+			l1.unblock.countDown();
+		}
+		assertFrame(l1, n2.getKernelId(), 1);
+		assertFrame(l1, n2.getKernelId(), 2);
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class ListenerStub implements NioNodeListener {
+
+		public final BlockingQueue<UUID> connected = new LinkedBlockingQueue<UUID>();
+		public final BlockingQueue<UUID> disconnected = new LinkedBlockingQueue<UUID>();
+		public final BlockingQueue<Object[]> frames = new LinkedBlockingQueue<Object[]>();
+		public final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+		public final CountDownLatch blocked = new CountDownLatch(1);
+		public final CountDownLatch unblock = new CountDownLatch(1);
+		public volatile UUID blockedSender = null;
+
+		/**
+		 */
+		public ListenerStub() {
+			//
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public void peerConnected(UUID kernel) {
+			this.connected.add(kernel);
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public void peerDisconnected(UUID kernel) {
+			this.disconnected.add(kernel);
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public void frameReceived(UUID kernel, byte[] frame) {
+			if (kernel.equals(this.blockedSender)) {
+				this.blocked.countDown();
+				try {
+					this.unblock.await();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			this.frames.add(new Object[] {kernel, frame});
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public void networkError(Throwable error) {
+			this.errors.add(error);
+		}
+
+	}
+
+}
@@ -130,17 +130,6 @@ public class ZeroMQKernelAgent extends KernelAgent implements
 				EMPTY_GROUP_CLEANING_DELAY * 60, TimeUnit.SECONDS);
 	}
 
-	@Override
-	public Status live() {	
-		Status status = super.live();
-		if(status.isSuccess()) {
-			if (this.node != null) {
-				this.node.run();
-			}
-		}
-		return status;
-	}
-
 	/**
 	 * {@inheritDoc}
 	 */
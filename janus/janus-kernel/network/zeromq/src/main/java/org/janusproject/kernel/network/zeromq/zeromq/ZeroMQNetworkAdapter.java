@@ -25,6 +25,7 @@ import java.net.InetAddress;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -41,6 +42,7 @@ import org.janusproject.kernel.crio.organization.MembershipService;
 import org.janusproject.kernel.message.Message;
 import org.janusproject.kernel.network.NetworkAdapter;
 import org.janusproject.kernel.network.NetworkListener;
+import org.janusproject.kernel.network.RoleInterestTable;
 import org.janusproject.kernel.status.Status;
 import org.janusproject.kernel.status.StatusFactory;
 import org.janusproject.kernel.util.sizediterator.EmptyIterator;
@@ -60,6 +62,7 @@ public class ZeroMQNetworkAdapter implements NetworkAdapter {
 	private final ZeroMQNode node;
 	private final Logger logger;
 	private JanusProperties janusProperties = null;
+	private final RoleInterestTable interests = new RoleInterestTable();
 
 	/**
 	 * @param node is the zeromq node associated to this object.
@@ -79,19 +82,49 @@ public class ZeroMQNetworkAdapter implements NetworkAdapter {
 	@Override
 	public void informLocalRoleTaken(GroupAddress groupAddress,
 			Class<? extends Role> role, AgentAddress agentAddress) {
-		this.logger.log(Level.SEVERE, Locale.getString("UNSUPPORTED_ACTION", "informLocalRoleTaken"));  //$NON-NLS-1$//$NON-NLS-2$
+		// Receive the broadcasts to the role from its first local player
+		if (this.interests.addLocalPlayer(groupAddress, role)) {
+			this.node.subscribeBroadcast(groupAddress.getUUID(), role);
+		}
+		try {
+			this.node.announceRoleTaken(agentAddress);
+		}
+		catch (IOException e) {
+			this.logger.log(Level.SEVERE, e.getLocalizedMessage(), e);
+		}
 	}
 
 	@Override
 	public void informLocalRoleReleased(GroupAddress groupAddress,
 			Class<? extends Role> role, AgentAddress agentAddress) {
-		this.node.unsubscribe(agentAddress.getUUID());
-
+		if (this.interests.removeLocalPlayer(groupAddress, role)) {
+			this.node.unsubscribeBroadcast(groupAddress.getUUID(), role);
+		}
+		try {
+			this.node.announceRoleReleased(agentAddress);
+		}
+		catch (IOException e) {
+			this.logger.log(Level.SEVERE, e.getLocalizedMessage(), e);
+		}
 	}
 
 	@Override
 	public Address sendMessage(Message message) {
-		this.node.publish(message.getReceiver().getUUID(),
+		Address receiver = message.getReceiver();
+		AgentAddress agent = null;
+		if (receiver instanceof RoleAddress) {
+			agent = ((RoleAddress)receiver).getPlayer();
+		}
+		else if (receiver instanceof AgentAddress) {
+			agent = (AgentAddress)receiver;
+		}
+		UUID kernel = (agent==null) ? null : this.node.getAgentLocation(agent);
+		if (kernel!=null) {
+			// Point-to-point to the kernel of the receiver
+			this.node.publishToKernel(kernel, SerializationUtil.encode(message).getBytes());
+			return receiver;
+		}
+		this.node.publish(receiver.getUUID(),
 				"message", SerializationUtil.encode(message).getBytes()); //$NON-NLS-1$
 		return null;
 	}
@@ -99,7 +132,14 @@ public class ZeroMQNetworkAdapter implements NetworkAdapter {
 	@Override
 	public void broadcastMessage(Message message) {
 		Address adr = message.getSender();
-		if (adr instanceof RoleAddress) {
+		Address receiver = message.getReceiver();
+		if (receiver instanceof RoleAddress) {
+			RoleAddress role = (RoleAddress)receiver;
+			this.logger.info(Locale.getString("BROADCAST_MESSAGE", message, role.getGroup().getUUID())); //$NON-NLS-1$
+			this.node.publishBroadcast(role.getGroup().getUUID(), role.getRole(),
+					SerializationUtil.encode(message).getBytes());
+		}
+		else if (adr instanceof RoleAddress) {
 			GroupAddress group = ((RoleAddress) adr).getGroup();
 			this.logger.info(Locale.getString("BROADCAST_MESSAGE", message, group.getUUID())); //$NON-NLS-1$
 			this.node.publish(group.getUUID(), "broadcast", //$NON-NLS-1$
@@ -154,6 +194,9 @@ public class ZeroMQNetworkAdapter implements NetworkAdapter {
 	@Override
 	public Status informLocalGroupRemoved(GroupAddress ga) {
 		this.node.unsubscribe(ga.getUUID());
+		for(Class<? extends Role> role : this.interests.removeLocalGroup(ga)) {
+			this.node.unsubscribeBroadcast(ga.getUUID(), role);
+		}
 		return StatusFactory.ok(this);
 	}
 
@@ -183,13 +226,23 @@ public class ZeroMQNetworkAdapter implements NetworkAdapter {
 
 	@Override
 	public void informLocalAgentAdded(AgentAddress agentAdress) {
-		// TODO Auto-generated method stub
+		// The agent may have migrated from a distant kernel
+		try {
+			this.node.announceAgentAdded(agentAdress);
+		}
+		catch (IOException e) {
+			this.logger.log(Level.SEVERE, e.getLocalizedMessage(), e);
+		}
 	}
 
 	@Override
 	public void informLocalAgentRemoved(AgentAddress agentAddress) {
-		// TODO Auto-generated method stub
-
+		try {
+			this.node.announceAgentRemoved(agentAddress);
+		}
+		catch (IOException e) {
+			this.logger.log(Level.SEVERE, e.getLocalizedMessage(), e);
+		}
 	}
 
 }
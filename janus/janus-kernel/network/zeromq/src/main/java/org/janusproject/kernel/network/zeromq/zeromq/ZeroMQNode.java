@@ -27,10 +27,19 @@ import java.io.Writer;
 import java.net.DatagramPacket;
 import java.net.InetAddress;
 import java.net.MulticastSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -40,13 +49,18 @@ import org.arakhne.afc.vmutil.locale.Locale;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.type.TypeReference;
 import org.janusproject.kernel.address.AgentAddress;
+import org.janusproject.kernel.crio.core.AddressUtil;
 import org.janusproject.kernel.crio.core.Organization;
 import org.janusproject.kernel.crio.core.Role;
 import org.janusproject.kernel.crio.core.RoleAddress;
 import org.janusproject.kernel.crio.organization.GroupCondition;
 import org.janusproject.kernel.crio.organization.MembershipService;
 import org.janusproject.kernel.message.Message;
+import org.janusproject.kernel.metrics.Counter;
+import org.janusproject.kernel.metrics.KernelMetrics;
+import org.janusproject.kernel.network.AgentLocationCache;
 import org.janusproject.kernel.network.NetworkListener;
+import org.janusproject.kernel.network.RoleInterestTable;
 import org.zeromq.ZMQ;
 import org.zeromq.ZMQ.Context;
 import org.zeromq.ZMQ.Poller;
@@ -54,6 +68,35 @@ import org.zeromq.ZMQ.Socket;
 import org.zeromq.ZMQException;
 
 /** Description of a ZeroMQ node.
+ * <p>
+ * Once registered, the node runs two threads: the discovery thread
+ * which is listening on the multicast group for the registrations
+ * of the other nodes, and the I/O thread which is reading all the
+ * pending messages on the ZeroMQ sockets each time the poller wakes up.
+ * The received messages are decoded and delivered by a pool of
+ * workers. Each published message starts with the identifier of
+ * the publishing kernel; the messages published by the same kernel,
+ * including its announcements of groups and roles and its registration
+ * reply, are delivered by the same worker, in the order of their
+ * reception. In this way, a message is never delivered before the
+ * announcement of the group or of the role on which it depends.
+ * <p>
+ * The subscribing and receiving sockets are used by the I/O thread
+ * only; the changes of subscription are queued and applied by this
+ * thread.
+ * <p>
+ * The broadcasts are published on a topic for each group and role.
+ * A node subscribes to this topic only when its kernel is hosting a
+ * player of the role, so that the broadcasts are filtered by ZeroMQ
+ * and never decoded by the other kernels.
+ * <p>
+ * The nodes announce the agents which are added, removed, taking and
+ * releasing roles. The location of the distant agents is cached, so that
+ * a message to a distant agent is published on the topic of its kernel only.
+ * The announcements of a node are numbered. Its registration reply
+ * contains its players and the number of its last announcement: the
+ * players replace the ones known from the previous announcements, and
+ * the announcements which are already included in the reply are ignored.
  * 
  * @author $Author: bfeld$
  * @author $Author: sgalland$
@@ -62,6 +105,33 @@ import org.zeromq.ZMQException;
  * @mavenartifactid $ArtifactId$
  */
 public class ZeroMQNode {
+
+	private static final Counter SENT_MESSAGES = KernelMetrics.getCounter(KernelMetrics.NETWORK_SENT_MESSAGES);
+	private static final Counter SENT_BYTES = KernelMetrics.getCounter(KernelMetrics.NETWORK_SENT_BYTES);
+	private static final Counter RECEIVED_MESSAGES = KernelMetrics.getCounter(KernelMetrics.NETWORK_RECEIVED_MESSAGES);
+	private static final Counter RECEIVED_BYTES = KernelMetrics.getCounter(KernelMetrics.NETWORK_RECEIVED_BYTES);
+
+	/** Timeout of the poller, in milliseconds. It is also the
+	 * maximal delay before a change of subscription is applied.
+	 */
+	private static final long POLL_TIMEOUT = 100;
+
+	/** Timeout of the reception of the discovery packets, in milliseconds.
+	 */
+	private static final int DISCOVERY_TIMEOUT = 500;
+
+	/** Delay to wait for the termination of the threads, in milliseconds.
+	 */
+	private static final long SHUTDOWN_TIMEOUT = 2000;
+
+	/** Prefix of the topics of the broadcasts.
+	 */
+	private static final String BROADCAST_TOPIC_PREFIX = "broadcast/"; //$NON-NLS-1$
+
+	/** Prefix of the topics of the kernels.
+	 */
+	private static final String KERNEL_TOPIC_PREFIX = "kernel/"; //$NON-NLS-1$
+
 	// Node infos
 	private UUID id = null;
 
@@ -81,6 +151,13 @@ public class ZeroMQNode {
 	private Integer subPollinId = null;
 	private Integer serverPollinId = null;
 
+	// Threads
+	private final Queue<Runnable> socketCommands = new ConcurrentLinkedQueue<Runnable>();
+	private volatile Thread ioThread = null;
+	private volatile Thread discoveryThread = null;
+	private volatile boolean stopped = false;
+	private ExecutorService[] workers = null;
+
 	// Logging
 	private Logger logger = null;
 
@@ -90,6 +167,12 @@ public class ZeroMQNode {
 
 	private String applicationName = null;
 
+	// Agent locations
+	private final Map<AgentAddress,Integer> localPlayers = new HashMap<AgentAddress,Integer>();
+	private long announcementSequence = 0;
+	private final Map<UUID,Long> distantSequences = new HashMap<UUID,Long>();
+	private final AgentLocationCache<UUID> agentLocations = new AgentLocationCache<UUID>();
+
 	/**
 	 * Initialize a zeromq node.
 	 * 
@@ -105,7 +188,7 @@ public class ZeroMQNode {
 		// UDP Broadcasting
 		this.udpListener = new MulticastSocket(1600);
 		this.udpListener.joinGroup(this.multicastGroup);
-		this.udpListener.setSoTimeout(1);
+		this.udpListener.setSoTimeout(DISCOVERY_TIMEOUT);
 
 		// Logger
 		this.logger = Logger.getLogger(this.id.toString());
@@ -134,6 +217,13 @@ public class ZeroMQNode {
 				Poller.POLLIN);
 		this.serverPollinId = this.poller.register(this.serverSocket,
 				Poller.POLLIN);
+
+		// Workers
+		int workerCount = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+		this.workers = new ExecutorService[workerCount];
+		for(int i=0; i<workerCount; ++i) {
+			this.workers[i] = Executors.newSingleThreadExecutor(new NodeThreadFactory("worker-"+i)); //$NON-NLS-1$
+		}
 	}
 
 	/**
@@ -142,6 +232,29 @@ public class ZeroMQNode {
 	 * @throws IOException
 	 */
 	public void destroy() throws IOException {
+		stopThreads();
+
+		for(ExecutorService worker : this.workers) {
+			worker.shutdown();
+		}
+		try {
+			boolean terminated = true;
+			for(ExecutorService worker : this.workers) {
+				terminated = worker.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS) && terminated;
+			}
+			if (!terminated) {
+				this.logger.warning(Locale.getString("WORKERS_NOT_STOPPED")); //$NON-NLS-1$
+				for(ExecutorService worker : this.workers) {
+					worker.shutdownNow();
+				}
+			}
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		this.workers = null;
+		this.socketCommands.clear();
+
 		this.subPollinId = null;
 		this.serverPollinId = null;
 		this.poller.unregister(this.serverSocket);
@@ -153,8 +266,12 @@ public class ZeroMQNode {
 		this.serverSocket.close();
 		this.serverSocket = null;
 		this.pubPort = null;
-		this.pubSocket.close();
-		this.pubSocket = null;
+		Socket socket = this.pubSocket;
+		synchronized(socket) {
+			// The late publications of the workers are ignored
+			this.pubSocket = null;
+			socket.close();
+		}
 		
 		this.context.close();
 		this.context = null;
@@ -165,6 +282,14 @@ public class ZeroMQNode {
 
 		this.logger = null;
 
+		synchronized(this.localPlayers) {
+			this.localPlayers.clear();
+		}
+		synchronized(this.distantSequences) {
+			this.distantSequences.clear();
+			this.agentLocations.clear();
+		}
+
 		this.multicastGroup = null;
 		this.id = null;
 	}
@@ -177,7 +302,8 @@ public class ZeroMQNode {
 		return data;
 	}
 
-	/** Register this node other the network.
+	/** Register this node other the network, and start the
+	 * discovery and I/O threads.
 	 * 
 	 * @throws IOException
 	 */
@@ -185,6 +311,7 @@ public class ZeroMQNode {
 		if(this.applicationName != null && !this.applicationName.isEmpty()) {
 			this.subSocket.subscribe(this.applicationName.getBytes());
 		}
+		this.subSocket.subscribe(getKernelTopic(this.id).getBytes());
 
 		byte[] buf = null;
 		DatagramPacket packet;
@@ -195,14 +322,22 @@ public class ZeroMQNode {
 		this.udpListener.send(packet);
 
 		this.ready.set(true);
+
+		this.ioThread = new NodeThreadFactory("io").newThread(new IOLoop()); //$NON-NLS-1$
+		this.discoveryThread = new NodeThreadFactory("discovery").newThread(new DiscoveryLoop()); //$NON-NLS-1$
+		this.stopped = false;
+		this.ioThread.start();
+		this.discoveryThread.start();
 	}
 
-	/** Unregister this node other the network.
+	/** Unregister this node other the network, and stop the
+	 * discovery and I/O threads.
 	 * 
 	 * @throws IOException
 	 */
 	public void unregister() throws IOException {
 		this.ready.set(false);
+		stopThreads();
 
 		//TODO: send unregistration other the multicast group
 		/*byte[] buf = null;
@@ -216,9 +351,61 @@ public class ZeroMQNode {
 		if(this.applicationName != null && !this.applicationName.isEmpty()) {
 			this.subSocket.unsubscribe(this.applicationName.getBytes());
 		}
+		this.subSocket.unsubscribe(getKernelTopic(this.id).getBytes());
 
 	}
 
+	/** Stop the discovery and I/O threads, and wait for their termination.
+	 * The threads are not using the sockets once this function has returned.
+	 * The commands on the sockets which are given after the call to this
+	 * function are ignored.
+	 */
+	private void stopThreads() {
+		this.stopped = true;
+		this.ready.set(false);
+		Thread[] threads = new Thread[] {this.discoveryThread, this.ioThread};
+		boolean interrupted = false;
+		for(Thread thread : threads) {
+			if (thread!=null && thread!=Thread.currentThread()) {
+				while (thread.isAlive()) {
+					try {
+						thread.join(SHUTDOWN_TIMEOUT);
+						if (thread.isAlive()) {
+							this.logger.warning(Locale.getString("THREAD_NOT_STOPPED", thread.getName())); //$NON-NLS-1$
+						}
+					}
+					catch(InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			}
+		}
+		// The references to the threads are removed only when they are terminated,
+		// so that the socket commands are never run in the current thread
+		// while the I/O thread is using the sockets.
+		this.discoveryThread = null;
+		this.ioThread = null;
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/** Run the given action on the sockets from the I/O thread.
+	 * If the I/O thread was not started, the action is run immediately.
+	 * If the node is stopped, the action is ignored.
+	 * 
+	 * @param action
+	 */
+	private void runOnSockets(Runnable action) {
+		if (this.stopped) return;
+		if (this.ioThread==null) {
+			action.run();
+		}
+		else {
+			this.socketCommands.offer(action);
+		}
+	}
+
 	private void processRegistration(Map<String, Object> data, String hostname,
 			boolean reply) throws IOException {
 		if (((String) data.get("id")).equals(this.id.toString())) { //$NON-NLS-1$
@@ -229,6 +416,24 @@ public class ZeroMQNode {
 
 		connectSubSocket(data, hostname);
 
+		// Players of roles on the registered node
+		Object players = data.get("players"); //$NON-NLS-1$
+		if (players instanceof Map<?,?>) {
+			UUID kernel = UUID.fromString((String)data.get("id")); //$NON-NLS-1$
+			Map<AgentAddress,Integer> counts = new HashMap<AgentAddress,Integer>();
+			for(Map.Entry<?,?> entry : ((Map<?,?>)players).entrySet()) {
+				counts.put(
+						AddressUtil.createAgentAddress(UUID.fromString(entry.getKey().toString())),
+						Integer.valueOf(((Number)entry.getValue()).intValue()));
+			}
+			synchronized(this.distantSequences) {
+				// The players replace the announcements which were already received
+				if (isNewAnnouncement(kernel, data.get("sequence"), true)) { //$NON-NLS-1$
+					this.agentLocations.replaceRoles(kernel, counts);
+				}
+			}
+		}
+
 		if (reply) {
 			sendRegistrationTo(data, hostname);
 		}
@@ -236,10 +441,16 @@ public class ZeroMQNode {
 	}
 
 	private void connectSubSocket(Map<String, Object> data, String hostname) {
-		String pubAddress = String.format("tcp://%s:%s", hostname, //$NON-NLS-1$
+		final String pubAddress = String.format("tcp://%s:%s", hostname, //$NON-NLS-1$
 				data.get("pub_port")); //$NON-NLS-1$
 		this.logger.info(Locale.getString("CONNECT_SUBSOCKET", pubAddress)); //$NON-NLS-1$
-		this.subSocket.connect(pubAddress);
+		runOnSockets(new Runnable() {
+			@SuppressWarnings("synthetic-access")
+			@Override
+			public void run() {
+				ZeroMQNode.this.subSocket.connect(pubAddress);
+			}
+		});
 	}
 
 	private static InetAddress getPrimaryIP() throws IOException {
@@ -260,6 +471,14 @@ public class ZeroMQNode {
 			// Register info
 			Map<String, Object> infos = this.getRegistrationInfos();
 			infos.put("address", getPrimaryIP()); //$NON-NLS-1$
+			Map<String, Object> players = new HashMap<String, Object>();
+			synchronized(this.localPlayers) {
+				for(Map.Entry<AgentAddress,Integer> entry : this.localPlayers.entrySet()) {
+					players.put(entry.getKey().getUUID().toString(), entry.getValue());
+				}
+				infos.put("sequence", Long.valueOf(this.announcementSequence)); //$NON-NLS-1$
+			}
+			infos.put("players", players); //$NON-NLS-1$
 
 			// Send packet
 			client.send("".getBytes(), ZMQ.SNDMORE); //$NON-NLS-1$
@@ -271,50 +490,51 @@ public class ZeroMQNode {
 		}
 	}
 
-	/** Run the ZeroMQ node behavior.
+	/** Read all the pending messages on the ZeroMQ sockets.
+	 * This function must be invoked from the I/O thread.
 	 */
-	public void run() {
-
-		if (!this.ready.get()) {
-			return;
-		}
-
-		try {
-			receiveUDP();
-
-			byte[] message;
-			// Poll ZMQ sockets
-			// TODO: Change unit depending on ZEROMQ version
-			this.poller.poll(2000);
+	private void drainSockets() {
+		boolean received = true;
+		while (received) {
+			received = false;
 
 			// Sub socket
-			if (this.poller.pollin(this.subPollinId)) {
-				String dest = new String(this.subSocket.recv(0));
-				String message_type = new String(this.subSocket.recv(0));
-				message = this.subSocket.recv(0);
-				this.processSubMessage(dest, message_type, message);
+			byte[] rawDest = this.subSocket.recv(ZMQ.NOBLOCK);
+			if (rawDest!=null) {
+				received = true;
+				byte[] rawOrigin = this.subSocket.recv(0);
+				byte[] rawType = this.subSocket.recv(0);
+				byte[] data = this.subSocket.recv(0);
+				if (KernelMetrics.isMetricsEnable()) {
+					RECEIVED_MESSAGES.increment();
+					RECEIVED_BYTES.add(rawDest.length + rawOrigin.length + rawType.length + data.length);
+				}
+				dispatch(new SubMessageTask(rawOrigin, rawDest, rawType, data));
 			}
+
 			// Server socket
-			if (this.poller.pollin(this.serverPollinId)) {
-				message = this.serverSocket.recv(0);
-				this.logger.info(Locale.getString("GET_MESSAGE", message)); //$NON-NLS-1$
-				if ("".equals(new String(message))) { //$NON-NLS-1$
-					String messageType = new String(this.serverSocket.recv(0));
-					this.logger.info(Locale.getString("MESSAGE_TYPE", messageType)); //$NON-NLS-1$
-
-					if ("register".equals(messageType)) { //$NON-NLS-1$
-						Map<String, Object> payload = fromBytes(this.serverSocket
-								.recv(0));
-						processRegistration(payload,
-								(String) payload.get("address"), false); //$NON-NLS-1$
-					}
+			byte[] frame = this.serverSocket.recv(ZMQ.NOBLOCK);
+			if (frame!=null) {
+				received = true;
+				List<byte[]> frames = new ArrayList<byte[]>();
+				frames.add(frame);
+				while (this.serverSocket.hasReceiveMore()) {
+					frames.add(this.serverSocket.recv(0));
 				}
+				dispatch(new ServerMessageTask(frames, getServerMessageOrigin(frames)));
 			}
 		}
-		catch(IOException e) {
-			this.logger.log(Level.SEVERE, e.getLocalizedMessage(), e);
-		}
+	}
 
+	/** Give the given task to the worker associated to the kernel
+	 * which has sent the message.
+	 * 
+	 * @param task
+	 */
+	private void dispatch(MessageTask task) {
+		ExecutorService[] w = this.workers;
+		int index = (task.hashOrigin() & Integer.MAX_VALUE) % w.length;
+		w[index].execute(task);
 	}
 
 	private void receiveUDP() throws IOException {
@@ -327,9 +547,6 @@ public class ZeroMQNode {
 			this.udpListener.receive(packet);
 		} catch (InterruptedIOException e) {
 			interupted = true;
-		} catch (IOException e) {
-			e.printStackTrace();
-			System.exit(1);
 		}
 
 		if (!interupted) {
@@ -339,10 +556,64 @@ public class ZeroMQNode {
 		}
 	}
 
+	/** Replies the index of the first frame of the packet in the frames
+	 * received on the server socket.
+	 * 
+	 * @param frames
+	 * @return the index of the first frame of the packet.
+	 */
+	private static int getServerPacketStart(List<byte[]> frames) {
+		// The router socket prefixes the frames with the identity
+		// of the sender; the packet starts after the empty frame.
+		int i = 0;
+		while (i<frames.size() && frames.get(i).length>0) {
+			++i;
+		}
+		return i+1;
+	}
+
+	/** Replies the identifier of the kernel which has sent the
+	 * given message on the server socket.
+	 * 
+	 * @param frames
+	 * @return the identifier of the sending kernel, or <code>null</code>
+	 * if unknown.
+	 */
+	private static byte[] getServerMessageOrigin(List<byte[]> frames) {
+		int i = getServerPacketStart(frames);
+		if (i+1<frames.size() && "register".equals(new String(frames.get(i)))) { //$NON-NLS-1$
+			try {
+				Object id = fromBytes(frames.get(i+1)).get("id"); //$NON-NLS-1$
+				if (id!=null) return id.toString().getBytes();
+			}
+			catch(IOException e) {
+				// The error is reported by the worker
+			}
+		}
+		return null;
+	}
+
+	private void processServerMessage(List<byte[]> frames) throws IOException {
+		int i = getServerPacketStart(frames);
+		if (i<frames.size()) {
+			String messageType = new String(frames.get(i));
+			if (this.logger.isLoggable(Level.FINEST)) {
+				this.logger.finest(Locale.getString("MESSAGE_TYPE", messageType)); //$NON-NLS-1$
+			}
+			if ("register".equals(messageType) && i+1<frames.size()) { //$NON-NLS-1$
+				Map<String, Object> payload = fromBytes(frames.get(i+1));
+				processRegistration(payload,
+						(String) payload.get("address"), false); //$NON-NLS-1$
+			}
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	private void processSubMessage(String dest, String messageType,
 			byte[] data) throws IOException {
-		this.logger.info(Locale.getString("PROCESS_SUBMESSAGE", dest, messageType, data)); //$NON-NLS-1$
+		if (this.logger.isLoggable(Level.FINEST)) {
+			this.logger.finest(Locale.getString("PROCESS_SUBMESSAGE", dest, messageType, Integer.valueOf(data.length))); //$NON-NLS-1$
+		}
 		if ("localGroupCreated".equals(messageType)) { //$NON-NLS-1$
 			Map<String, Object> message = fromBytes(data);
 			String organizationClass = (String) message.get("organization"); //$NON-NLS-1$
@@ -365,9 +636,48 @@ public class ZeroMQNode {
 				this.logger.log(Level.SEVERE, e.getLocalizedMessage(), e);
 			}
 		}
+		else if ("roleTaken".equals(messageType) || "roleReleased".equals(messageType) //$NON-NLS-1$ //$NON-NLS-2$
+				|| "agentAdded".equals(messageType) || "agentRemoved".equals(messageType)) { //$NON-NLS-1$ //$NON-NLS-2$
+			Map<String, Object> message = fromBytes(data);
+			UUID kernel = UUID.fromString((String) message.get("kernel")); //$NON-NLS-1$
+			if (!kernel.equals(this.id)) {
+				AgentAddress agent = AddressUtil.createAgentAddress(
+						UUID.fromString((String) message.get("agent"))); //$NON-NLS-1$
+				synchronized(this.distantSequences) {
+					if (isNewAnnouncement(kernel, message.get("sequence"), false)) { //$NON-NLS-1$
+						if ("roleTaken".equals(messageType)) { //$NON-NLS-1$
+							this.agentLocations.roleTaken(agent, kernel);
+						}
+						else if ("roleReleased".equals(messageType)) { //$NON-NLS-1$
+							this.agentLocations.roleReleased(agent, kernel);
+						}
+						else if ("agentAdded".equals(messageType)) { //$NON-NLS-1$
+							// A known agent which is added on another kernel has migrated
+							this.agentLocations.moved(agent, kernel);
+						}
+						else {
+							this.agentLocations.invalidate(agent, kernel);
+						}
+					}
+				}
+			}
+		}
+		else if ("message".equals(messageType)) { //$NON-NLS-1$
+			Message m = (Message) SerializationUtil.decode(new String(data));
+			if (m.getReceiver() instanceof RoleAddress) {
+				RoleAddress address = m.getReceiver();
+				this.listener.receiveOrganizationalDistantMessage(
+						address.getGroup(), address.getRole(), m, false);
+			}
+			else {
+				this.listener.receiveAgentAgentDistantMessage(m, false);
+			}
+		}
 		else if ("broadcast".equals(messageType)) { //$NON-NLS-1$
 			Message m = (Message) SerializationUtil.decode(new String(data));
-			this.logger.info(Locale.getString("RECEIVE_BROADCAST_MESSAGE", m)); //$NON-NLS-1$
+			if (this.logger.isLoggable(Level.FINEST)) {
+				this.logger.finest(Locale.getString("RECEIVE_BROADCAST_MESSAGE", m)); //$NON-NLS-1$
+			}
 			if (m.getReceiver() instanceof RoleAddress) {
 				RoleAddress address = m.getReceiver();
 				Class<? extends Role> receiverRole = address.getRole();
@@ -388,11 +698,27 @@ public class ZeroMQNode {
 	}
 
 	private void publish(String dest, String messageType, byte[] data) {
-		this.logger.info(
-				Locale.getString("PUBLISH", messageType, new String(data), dest)); //$NON-NLS-1$
-		this.pubSocket.send(dest.toString().getBytes(), ZMQ.SNDMORE);
-		this.pubSocket.send(messageType.getBytes(), ZMQ.SNDMORE);
-		this.pubSocket.send(data, 0);
+		Socket socket = this.pubSocket;
+		if (socket==null) return;
+		if (this.logger.isLoggable(Level.FINEST)) {
+			this.logger.finest(
+					Locale.getString("PUBLISH", messageType, Integer.valueOf(data.length), dest)); //$NON-NLS-1$
+		}
+		byte[] rawDest = dest.toString().getBytes();
+		byte[] rawOrigin = this.id.toString().getBytes();
+		byte[] rawType = messageType.getBytes();
+		// The sockets are not thread-safe
+		synchronized(socket) {
+			if (this.pubSocket!=socket) return;
+			socket.send(rawDest, ZMQ.SNDMORE);
+			socket.send(rawOrigin, ZMQ.SNDMORE);
+			socket.send(rawType, ZMQ.SNDMORE);
+			socket.send(data, 0);
+		}
+		if (KernelMetrics.isMetricsEnable()) {
+			SENT_MESSAGES.increment();
+			SENT_BYTES.add(rawDest.length + rawOrigin.length + rawType.length + data.length);
+		}
 	}
 
 	/** Publish the given data on the application socket.
@@ -416,24 +742,260 @@ public class ZeroMQNode {
 		publish(dest, messageType, fromMap(data).getBytes());
 	}
 
+	/** Replies the topic on which the messages to the given kernel are published.
+	 * 
+	 * @param kernel is the identifier of the kernel.
+	 * @return the topic.
+	 * @since 1.1
+	 */
+	public static String getKernelTopic(UUID kernel) {
+		return KERNEL_TOPIC_PREFIX + kernel.toString() + "/"; //$NON-NLS-1$
+	}
+
+	/** Replies the kernel which is hosting the given agent, if known.
+	 * 
+	 * @param agent is the address of the distant agent.
+	 * @return the identifier of the kernel, or <code>null</code> if unknown.
+	 * @since 1.1
+	 */
+	public UUID getAgentLocation(AgentAddress agent) {
+		return this.agentLocations.get(agent);
+	}
+
+	/** Replies the cache of the locations of the distant agents.
+	 * 
+	 * @return the cache of the agent locations.
+	 * @since 1.1
+	 */
+	public AgentLocationCache<UUID> getAgentLocations() {
+		return this.agentLocations;
+	}
+
+	/** Publish the given message on the topic of the given kernel.
+	 * 
+	 * @param kernel is the identifier of the receiving kernel.
+	 * @param data is the encoded message.
+	 * @since 1.1
+	 */
+	public void publishToKernel(UUID kernel, byte[] data) {
+		publish(getKernelTopic(kernel), "message", data); //$NON-NLS-1$
+	}
+
+	/** Replies if the given announcement of a distant kernel was not
+	 * already received, and save its number.
+	 * The caller must be synchronized on {@link #distantSequences}.
+	 * 
+	 * @param kernel is the identifier of the announcing kernel.
+	 * @param sequence is the number of the announcement, or of the last
+	 * announcement included in a registration.
+	 * @param isRegistration indicates if the announcement is a registration.
+	 * @return <code>true</code> if the announcement must be applied.
+	 */
+	private boolean isNewAnnouncement(UUID kernel, Object sequence, boolean isRegistration) {
+		if (!(sequence instanceof Number)) return true;
+		long s = ((Number)sequence).longValue();
+		Long last = this.distantSequences.get(kernel);
+		if (last!=null && (s<last.longValue() || (!isRegistration && s==last.longValue()))) {
+			return false;
+		}
+		this.distantSequences.put(kernel, Long.valueOf(s));
+		return true;
+	}
+
+	/** Announce to the other nodes that an agent was added on the local kernel.
+	 * The location of this agent on another kernel is forgotten.
+	 * 
+	 * @param agent is the address of the local agent.
+	 * @throws IOException
+	 * @since 1.1
+	 */
+	public void announceAgentAdded(AgentAddress agent) throws IOException {
+		synchronized(this.distantSequences) {
+			this.agentLocations.invalidate(agent);
+		}
+		synchronized(this.localPlayers) {
+			announce("agentAdded", agent); //$NON-NLS-1$
+		}
+	}
+
+	/** Announce to the other nodes that an agent was removed from the local kernel.
+	 * 
+	 * @param agent is the address of the local agent.
+	 * @throws IOException
+	 * @since 1.1
+	 */
+	public void announceAgentRemoved(AgentAddress agent) throws IOException {
+		synchronized(this.localPlayers) {
+			announce("agentRemoved", agent); //$NON-NLS-1$
+		}
+	}
+
+	/** Announce to the other nodes that a local agent has taken a role.
+	 * 
+	 * @param agent is the address of the local role player.
+	 * @throws IOException
+	 * @since 1.1
+	 */
+	public void announceRoleTaken(AgentAddress agent) throws IOException {
+		synchronized(this.localPlayers) {
+			Integer count = this.localPlayers.get(agent);
+			this.localPlayers.put(agent, Integer.valueOf(count==null ? 1 : count.intValue()+1));
+			announce("roleTaken", agent); //$NON-NLS-1$
+		}
+	}
+
+	/** Announce to the other nodes that a local agent has released a role.
+	 * 
+	 * @param agent is the address of the local role player.
+	 * @throws IOException
+	 * @since 1.1
+	 */
+	public void announceRoleReleased(AgentAddress agent) throws IOException {
+		synchronized(this.localPlayers) {
+			Integer count = this.localPlayers.get(agent);
+			if (count!=null) {
+				if (count.intValue()>1) {
+					this.localPlayers.put(agent, Integer.valueOf(count.intValue()-1));
+				}
+				else {
+					this.localPlayers.remove(agent);
+				}
+			}
+			announce("roleReleased", agent); //$NON-NLS-1$
+		}
+	}
+
+	/** Publish an announcement about the given local agent.
+	 * The caller must be synchronized on {@link #localPlayers}, so
+	 * that the announcements are published in the order of their numbers.
+	 * 
+	 * @param messageType
+	 * @param agent
+	 * @throws IOException
+	 */
+	private void announce(String messageType, AgentAddress agent) throws IOException {
+		long sequence = ++this.announcementSequence;
+		if (this.applicationName!=null && !this.applicationName.isEmpty()) {
+			Map<String, Object> data = new HashMap<String, Object>();
+			data.put("kernel", this.id.toString()); //$NON-NLS-1$
+			data.put("agent", agent.getUUID().toString()); //$NON-NLS-1$
+			data.put("sequence", Long.valueOf(sequence)); //$NON-NLS-1$
+			publishToApplication(messageType, data);
+		}
+	}
+
+	/** Replies the topic on which the broadcasts to the given role are published.
+	 * The topic is terminated by a separator, so that it is not a prefix of the
+	 * topics of the other roles.
+	 * 
+	 * @param group is the identifier of the group.
+	 * @param role is the receiving role.
+	 * @return the topic.
+	 * @since 1.1
+	 */
+	public static String getBroadcastTopic(UUID group, Class<? extends Role> role) {
+		StringBuilder topic = new StringBuilder(BROADCAST_TOPIC_PREFIX);
+		topic.append(group.toString());
+		topic.append('/');
+		topic.append(role.getName());
+		topic.append('/');
+		return topic.toString();
+	}
+
+	/** Publish the given broadcast to the players of the given role.
+	 * 
+	 * @param group is the identifier of the group.
+	 * @param role is the receiving role.
+	 * @param data is the encoded message.
+	 * @since 1.1
+	 */
+	public void publishBroadcast(UUID group, Class<? extends Role> role, byte[] data) {
+		publish(getBroadcastTopic(group, role), "broadcast", data); //$NON-NLS-1$
+	}
+
+	/** Subscribe to the broadcasts to the given role and to its super-roles,
+	 * because a broadcast to a role is also received by the players of its sub-roles.
+	 * <p>
+	 * The subscriptions are counted by ZeroMQ: each invocation of this
+	 * function must be followed by an invocation of
+	 * {@link #unsubscribeBroadcast(UUID, Class)}.
+	 * 
+	 * @param group is the identifier of the group.
+	 * @param role is the locally played role.
+	 * @since 1.1
+	 */
+	public void subscribeBroadcast(final UUID group, final Class<? extends Role> role) {
+		final List<byte[]> topics = getBroadcastTopics(group, role);
+		runOnSockets(new Runnable() {
+			@SuppressWarnings("synthetic-access")
+			@Override
+			public void run() {
+				ZeroMQNode.this.logger.info(Locale.getString("SUBSCRIBE_TO", getBroadcastTopic(group, role))); //$NON-NLS-1$
+				for(byte[] topic : topics) {
+					ZeroMQNode.this.subSocket.subscribe(topic);
+				}
+			}
+		});
+	}
+
+	/** Unsubscribe from the broadcasts to the given role and to its super-roles.
+	 * 
+	 * @param group is the identifier of the group.
+	 * @param role is the role which is no more locally played.
+	 * @since 1.1
+	 */
+	public void unsubscribeBroadcast(final UUID group, final Class<? extends Role> role) {
+		final List<byte[]> topics = getBroadcastTopics(group, role);
+		runOnSockets(new Runnable() {
+			@SuppressWarnings("synthetic-access")
+			@Override
+			public void run() {
+				ZeroMQNode.this.logger.info(Locale.getString("UNSUBSCRIBE_TO", getBroadcastTopic(group, role))); //$NON-NLS-1$
+				for(byte[] topic : topics) {
+					ZeroMQNode.this.subSocket.unsubscribe(topic);
+				}
+			}
+		});
+	}
+
+	private static List<byte[]> getBroadcastTopics(UUID group, Class<? extends Role> role) {
+		List<byte[]> topics = new ArrayList<byte[]>();
+		for(Class<? extends Role> type : RoleInterestTable.getReceivedRoles(role)) {
+			topics.add(getBroadcastTopic(group, type).getBytes());
+		}
+		return topics;
+	}
+
 	/** Subscribe to the sub socket associated to the specified agent address.
 	 *  
 	 * @param agentAddress
 	 */
-	public void subscribe(UUID agentAddress) {
-		this.logger.info(Locale.getString("SUBSCRIBE_TO", agentAddress)); //$NON-NLS-1$
-		this.subSocket.subscribe(agentAddress.toString()
-				.getBytes());
+	public void subscribe(final UUID agentAddress) {
+		runOnSockets(new Runnable() {
+			@SuppressWarnings("synthetic-access")
+			@Override
+			public void run() {
+				ZeroMQNode.this.logger.info(Locale.getString("SUBSCRIBE_TO", agentAddress)); //$NON-NLS-1$
+				ZeroMQNode.this.subSocket.subscribe(agentAddress.toString()
+						.getBytes());
+			}
+		});
 	}
 
 	/** Unsubscribe to the socket associated to the specified agent address.
 	 *  
 	 * @param agentAddress
 	 */
-	public void unsubscribe(UUID agentAddress) {
-		this.logger.info(Locale.getString("UNSUBSCRIBE_TO", agentAddress)); //$NON-NLS-1$
-		this.subSocket.unsubscribe(agentAddress.toString()
-				.getBytes());
+	public void unsubscribe(final UUID agentAddress) {
+		runOnSockets(new Runnable() {
+			@SuppressWarnings("synthetic-access")
+			@Override
+			public void run() {
+				ZeroMQNode.this.logger.info(Locale.getString("UNSUBSCRIBE_TO", agentAddress)); //$NON-NLS-1$
+				ZeroMQNode.this.subSocket.unsubscribe(agentAddress.toString()
+						.getBytes());
+			}
+		});
 	}
 
 	// Encoding/Decoding utils
@@ -524,4 +1086,250 @@ public class ZeroMQNode {
 
 	}
 
+	/** Factory of the threads of a node.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private static class NodeThreadFactory implements ThreadFactory {
+
+		private final String name;
+
+		/**
+		 * @param name
+		 */
+		public NodeThreadFactory(String name) {
+			this.name = name;
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "ZeroMQNode-"+this.name); //$NON-NLS-1$
+			t.setDaemon(true);
+			return t;
+		}
+
+	}
+
+	/** Loop of the I/O thread.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private class IOLoop implements Runnable {
+
+		/**
+		 */
+		public IOLoop() {
+			//
+		}
+
+		/** {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public void run() {
+			Runnable command;
+			while (ZeroMQNode.this.ready.get()) {
+				try {
+					while ((command = ZeroMQNode.this.socketCommands.poll())!=null) {
+						command.run();
+					}
+					// TODO: Change unit depending on ZEROMQ version
+					if (ZeroMQNode.this.poller.poll(POLL_TIMEOUT)>0) {
+						drainSockets();
+					}
+				}
+				catch(AssertionError ae) {
+					throw ae;
+				}
+				catch(Throwable e) {
+					ZeroMQNode.this.logger.log(Level.SEVERE, e.getLocalizedMessage(), e);
+				}
+			}
+			// Apply the last changes of subscription
+			while ((command = ZeroMQNode.this.socketCommands.poll())!=null) {
+				command.run();
+			}
+		}
+
+	}
+
+	/** Loop of the discovery thread.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private class DiscoveryLoop implements Runnable {
+
+		/**
+		 */
+		public DiscoveryLoop() {
+			//
+		}
+
+		/** {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public void run() {
+			while (ZeroMQNode.this.ready.get()) {
+				try {
+					receiveUDP();
+				}
+				catch(AssertionError ae) {
+					throw ae;
+				}
+				catch(Throwable e) {
+					if (ZeroMQNode.this.ready.get()) {
+						ZeroMQNode.this.logger.log(Level.SEVERE, e.getLocalizedMessage(), e);
+					}
+				}
+			}
+		}
+
+	}
+
+	/** Task which is processing a received message in a worker.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private abstract class MessageTask implements Runnable {
+
+		/**
+		 */
+		public MessageTask() {
+			//
+		}
+
+		/** Replies the hash code of the kernel which has sent the message.
+		 * 
+		 * @return the hash code of the sending kernel.
+		 */
+		public abstract int hashOrigin();
+
+		/** Process the message.
+		 * 
+		 * @throws Exception
+		 */
+		protected abstract void process() throws Exception;
+
+		/** {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public final void run() {
+			try {
+				process();
+			}
+			catch(AssertionError ae) {
+				throw ae;
+			}
+			catch(Throwable e) {
+				Logger l = ZeroMQNode.this.logger;
+				if (l!=null) l.log(Level.SEVERE, e.getLocalizedMessage(), e);
+			}
+		}
+
+	}
+
+	/** Task which is processing a message received on the sub socket.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private class SubMessageTask extends MessageTask {
+
+		private final byte[] origin;
+		private final byte[] dest;
+		private final byte[] type;
+		private final byte[] data;
+
+		/**
+		 * @param origin
+		 * @param dest
+		 * @param type
+		 * @param data
+		 */
+		public SubMessageTask(byte[] origin, byte[] dest, byte[] type, byte[] data) {
+			this.origin = origin;
+			this.dest = dest;
+			this.type = type;
+			this.data = data;
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public int hashOrigin() {
+			return Arrays.hashCode(this.origin);
+		}
+
+		/** {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		protected void process() throws Exception {
+			processSubMessage(new String(this.dest), new String(this.type), this.data);
+		}
+
+	}
+
+	/** Task which is processing a message received on the server socket.
+	 * 
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @since 1.1
+	 */
+	private class ServerMessageTask extends MessageTask {
+
+		private final List<byte[]> frames;
+		private final byte[] origin;
+
+		/**
+		 * @param frames
+		 * @param origin is the identifier of the sending kernel, or <code>null</code>.
+		 */
+		public ServerMessageTask(List<byte[]> frames, byte[] origin) {
+			this.frames = frames;
+			this.origin = origin;
+		}
+
+		/** {@inheritDoc}
+		 */
+		@Override
+		public int hashOrigin() {
+			return Arrays.hashCode(this.origin);
+		}
+
+		/** {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		protected void process() throws Exception {
+			processServerMessage(this.frames);
+		}
+
+	}
+
 }
@@ -34,11 +34,14 @@ import org.janusproject.kernel.KernelListener;
 import org.janusproject.kernel.address.AgentAddress;
 import org.janusproject.kernel.agent.Agent;
 import org.janusproject.kernel.agent.AgentActivator;
+import org.janusproject.kernel.agent.AgentFactory;
 import org.janusproject.kernel.agent.AgentLifeState;
 import org.janusproject.kernel.agent.AgentLifeStateListener;
 import org.janusproject.kernel.agent.ChannelManager;
 import org.janusproject.kernel.agent.KernelContext;
+import org.janusproject.kernel.agent.KernelLoad;
 import org.janusproject.kernel.agent.Kernels;
+import org.janusproject.kernel.agent.LoadBalancer;
 import org.janusproject.kernel.agent.ProbeManager;
 import org.janusproject.kernel.channels.ChannelInteractableListener;
 import org.janusproject.kernel.credential.Credentials;
@@ -307,6 +310,33 @@ public class OSGiKernelService implements KernelService, KernelListener,
 		return this.kernel.launchLightAgent(agent, name, activator, initParams);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<AgentAddress> launchLightAgents(Collection<? extends Agent> agents,
+			Object... initParams) {
+		return this.kernel.launchLightAgents(agents, initParams);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<AgentAddress> launchLightAgents(Collection<? extends Agent> agents,
+			AgentActivator activator, Object... initParams) {
+		return this.kernel.launchLightAgents(agents, activator, initParams);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<AgentAddress> launchLightAgents(AgentFactory factory, int count,
+			Object... initParams) {
+		return this.kernel.launchLightAgents(factory, count, initParams);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -938,4 +968,39 @@ public class OSGiKernelService implements KernelService, KernelListener,
 		throw new UnsupportedOperationException();
 	}
 
+	/** {@inheritDoc}
+	 */
+	@Override
+	public Status createIncrementalCheckPoint(OutputStream stream, boolean delta) throws IOException {
+		return this.kernel.createIncrementalCheckPoint(stream, delta);
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public Status migrateAgent(AgentAddress agent, AgentAddress kernel) {
+		return this.kernel.migrateAgent(agent, kernel);
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public void setLoadBalancer(LoadBalancer balancer) {
+		this.kernel.setLoadBalancer(balancer);
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public LoadBalancer getLoadBalancer() {
+		return this.kernel.getLoadBalancer();
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public KernelLoad getLoad() {
+		return this.kernel.getLoad();
+	}
+
 }
@@ -28,20 +28,28 @@ import org.janusproject.kernel.mmf.KernelServiceEvent;
 import org.janusproject.kernel.mmf.KernelServiceEvent.KernelServiceEventType;
 import org.janusproject.kernel.mmf.KernelServiceListener;
 import org.janusproject.kernel.mmf.impl.OSGiKernelService;
+import org.janusproject.kernel.mmf.impl.OSGiModuleService;
+import org.janusproject.kernel.util.reflect.ClassMetadataRegistry;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
 import org.osgi.framework.BundleException;
+import org.osgi.framework.SynchronousBundleListener;
 
 /**
  * OSGi activator for Janus kernel service.
+ * <p>
+ * When a bundle is stopped, the metadata of its classes are
+ * released from the {@link ClassMetadataRegistry} to let
+ * the framework unload them.
  * 
  * @author $Author: srodriguez$
  * @version $FullVersion$
  * @mavengroupid $GroupId$
  * @mavenartifactid $ArtifactId$
  */
-public class Activator implements BundleActivator, KernelServiceListener {
+public class Activator implements BundleActivator, KernelServiceListener, SynchronousBundleListener {
 
 	private OSGiKernelService service;
 
@@ -58,12 +66,16 @@ public class Activator implements BundleActivator, KernelServiceListener {
 		this.logger.info(Locale.getString(Activator.class, "KERNEL_STARTED")); //$NON-NLS-1$
 		this.service = new OSGiKernelService(context);
 		this.service.addKernelServiceListener(this);
+		context.addBundleListener(this);
 	}
 
 	/** {@inheritDoc}
 	 */
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		context.removeBundleListener(this);
+		ClassMetadataRegistry.clear();
+
 		if (this.janusRemoteApplicationBundle != null) {
 			this.janusRemoteApplicationBundle.stop();
 		}
@@ -103,5 +115,31 @@ public class Activator implements BundleActivator, KernelServiceListener {
 		}
 
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void bundleChanged(BundleEvent event) {
+		switch(event.getType()) {
+		case BundleEvent.STOPPED:
+		case BundleEvent.UNRESOLVED:
+		case BundleEvent.UNINSTALLED:
+			OSGiKernelService s = this.service;
+			if (s!=null) {
+				OSGiModuleService moduleService = s.getModuleService();
+				if (moduleService!=null) {
+					Bundle bundle = event.getBundle();
+					for(Class<?> type : ClassMetadataRegistry.getClasses()) {
+						if (bundle.equals(moduleService.getBundleForClass(type))) {
+							ClassMetadataRegistry.release(type);
+						}
+					}
+				}
+			}
+			break;
+		default:
+		}
+	}
 	
 }